@@ -75,6 +75,13 @@ public class InstallerDb {
 
     private static final String IPLIKE_SQL_RESOURCE = "iplike.sql";
 
+    private static final String EVENTS_PARTITIONING_SQL_RESOURCE = "events-partitioning.sql";
+
+    private static final String EVENTS_PARTITION_TRIGGER = "events_partition_insert_trigger";
+
+    /** Inheritance child of events holding rows that outlive their partition. */
+    public static final String EVENTS_RETAINED_PARTITION = "events_retained";
+
     public static final float POSTGRES_MIN_VERSION = 7.4f;
     public static final float POSTGRES_MAX_VERSION_PLUS_ONE = 9.9f;
 
@@ -809,6 +816,9 @@ public class InstallerDb {
 
         m_out.println("- creating tables...");
 
+        // the foreign keys that reference events are dropped on purpose once it is partitioned
+        final boolean eventsPartitioned = !m_force && isEventsPartitioned();
+
         for (String tableName : getTableNames()) {
             if (m_force) {
                 tableName = tableName.toLowerCase();
@@ -845,6 +855,10 @@ public class InstallerDb {
                 final Table newTable = getTableFromSQL(tableName);
                 final Table oldTable = getTableFromDB(tableName);
 
+                if (eventsPartitioned) {
+                    removeEventsForeignKeys(newTable);
+                }
+
                 if (newTable.equals(oldTable)) {
                     addIndexesForTable(tableName);
                     addTriggersForTable(tableName);
@@ -1690,10 +1704,15 @@ public class InstallerDb {
     public List<Constraint> getForeignKeyConstraints() throws Exception {
     	if (m_constraints == null) {
 	    	m_constraints = new LinkedList<Constraint>();
+	    	final boolean eventsPartitioned = isEventsPartitioned();
 	
 	        for (final String table : getTableNames()) {
 	        	final String tableLower = table.toLowerCase();
-	            for (final Constraint constraint : getTableFromSQL(tableLower).getConstraints()) {
+	        	final Table sqlTable = getTableFromSQL(tableLower);
+	        	if (eventsPartitioned) {
+	        	    removeEventsForeignKeys(sqlTable);
+	        	}
+	            for (final Constraint constraint : sqlTable.getConstraints()) {
 	                if (constraint.getType() == Constraint.FOREIGN_KEY) {
 	                    m_constraints.add(constraint);
 	                }
@@ -2980,6 +2999,200 @@ public class InstallerDb {
 
     }
 
+    /**
+     * Whether the events table has been converted to time-partitioned
+     * storage with {@link #partitionEvents(String, int)}.
+     *
+     * @return a boolean.
+     * @throws java.sql.SQLException if any.
+     */
+    public boolean isEventsPartitioned() throws SQLException {
+        Statement st = null;
+        ResultSet rs = null;
+        try {
+            st = getConnection().createStatement();
+            rs = st.executeQuery("SELECT count(*) FROM pg_trigger WHERE tgname = '" + EVENTS_PARTITION_TRIGGER + "'");
+            return rs.next() && rs.getInt(1) > 0;
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            closeQuietly(st);
+        }
+    }
+
+    /**
+     * Remove the foreign keys that reference events from a table read from
+     * create.sql, so that it matches the database after
+     * {@link #partitionEvents(String, int)} has dropped them.
+     */
+    private static void removeEventsForeignKeys(final Table table) {
+        final List<Constraint> constraints = table.getConstraints();
+        if (constraints == null) {
+            return;
+        }
+        final List<Constraint> kept = new ArrayList<Constraint>(constraints.size());
+        for (final Constraint constraint : constraints) {
+            if (constraint.isForeignKeyConstraint() && "events".equalsIgnoreCase(constraint.getForeignTable())) {
+                continue;
+            }
+            kept.add(constraint);
+        }
+        table.setConstraints(kept);
+    }
+
+    /**
+     * Convert the events table to range-partitioned storage, one
+     * inheritance child per day or week of eventtime.  The foreign keys
+     * that reference events are dropped (PostgreSQL does not enforce them
+     * across inheritance children), a BEFORE INSERT trigger routes new
+     * events to their partition, and the partitions for the current and
+     * the next <code>partitionsAhead</code> periods are created.  Existing
+     * events stay in the parent table and expire through
+     * {@link #maintainEventPartitions(String, int, boolean)}.  Running
+     * this again with the same interval only re-installs the functions.
+     *
+     * @param interval "day" or "week"
+     * @param partitionsAhead number of future partitions to create
+     * @throws java.lang.Exception if any.
+     */
+    public void partitionEvents(final String interval, final int partitionsAhead) throws Exception {
+        if (!"day".equals(interval) && !"week".equals(interval)) {
+            throw new IllegalArgumentException("events partition interval must be 'day' or 'week', not '" + interval + "'");
+        }
+
+        final Connection c = getConnection();
+        Statement st = null;
+        ResultSet rs = null;
+        try {
+            st = c.createStatement();
+
+            m_out.print("- checking if PostgreSQL supports events partitioning... ");
+            rs = st.executeQuery("SHOW server_version_num");
+            if (!rs.next() || Integer.parseInt(rs.getString(1)) < 80400) {
+                m_out.println("NO");
+                throw new Exception("Partitioning the events table requires PostgreSQL 8.4 or later.");
+            }
+            rs.close();
+            rs = null;
+            m_out.println("OK");
+
+            if (isEventsPartitioned()) {
+                rs = st.executeQuery("SELECT events_partition_interval()");
+                rs.next();
+                final String current = rs.getString(1);
+                rs.close();
+                rs = null;
+                if (!interval.equals(current)) {
+                    throw new Exception("The events table is already partitioned by " + current + "; it cannot be changed to " + interval + ".");
+                }
+            }
+
+            final boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                final List<String[]> foreignKeys = new ArrayList<String[]>();
+                rs = st.executeQuery("SELECT t.relname, c.conname FROM pg_constraint c JOIN pg_class t ON t.oid = c.conrelid "
+                                     + "WHERE c.contype = 'f' AND c.confrelid = 'events'::regclass");
+                while (rs.next()) {
+                    foreignKeys.add(new String[] { rs.getString(1), rs.getString(2) });
+                }
+                rs.close();
+                rs = null;
+                for (final String[] foreignKey : foreignKeys) {
+                    m_out.print("- dropping constraint " + foreignKey[1] + " on " + foreignKey[0] + "... ");
+                    st.execute("ALTER TABLE " + foreignKey[0] + " DROP CONSTRAINT " + foreignKey[1]);
+                    m_out.println("DONE");
+                }
+
+                m_out.print("- installing events partitioning functions... ");
+                st.execute("CREATE OR REPLACE FUNCTION events_partition_interval() RETURNS text AS $$ SELECT '" + interval + "'::text $$ LANGUAGE sql IMMUTABLE");
+                st.execute(readResource(EVENTS_PARTITIONING_SQL_RESOURCE));
+                m_out.println("DONE");
+
+                if (!tableExists(EVENTS_RETAINED_PARTITION)) {
+                    m_out.print("- creating table " + EVENTS_RETAINED_PARTITION + "... ");
+                    st.execute("CREATE TABLE " + EVENTS_RETAINED_PARTITION + " (LIKE events INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING INDEXES)");
+                    st.execute("ALTER TABLE " + EVENTS_RETAINED_PARTITION + " INHERIT events");
+                    m_out.println("DONE");
+                }
+
+                if (!isEventsPartitioned()) {
+                    m_out.print("- adding trigger " + EVENTS_PARTITION_TRIGGER + "... ");
+                    st.execute("CREATE TRIGGER " + EVENTS_PARTITION_TRIGGER + " BEFORE INSERT ON events FOR EACH ROW EXECUTE PROCEDURE events_partition_insert()");
+                    m_out.println("DONE");
+                }
+
+                m_out.print("- creating events partitions... ");
+                rs = st.executeQuery("SELECT events_partition_create(" + partitionsAhead + ")");
+                rs.next();
+                m_out.println(rs.getInt(1) + " CREATED");
+
+                c.commit();
+            } catch (final Exception e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            closeQuietly(st);
+        }
+    }
+
+    /**
+     * Create upcoming events partitions and retire the ones whose period
+     * ended more than <code>retention</code> ago.  Events still referenced
+     * by an outage, notification or alarm are moved to
+     * {@link #EVENTS_RETAINED_PARTITION} first.  This is what the vacuumd
+     * statement <code>SELECT events_partition_maintain(...)</code> runs.
+     *
+     * @param retention a PostgreSQL interval, e.g. "6 weeks"
+     * @param partitionsAhead number of future partitions to keep created
+     * @param detach detach retired partitions instead of dropping them
+     * @return the number of partitions retired
+     * @throws java.sql.SQLException if any.
+     */
+    public int maintainEventPartitions(final String retention, final int partitionsAhead, final boolean detach) throws SQLException {
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            st = getConnection().prepareStatement("SELECT events_partition_maintain(CAST(? AS interval), ?, ?)");
+            st.setString(1, retention);
+            st.setInt(2, partitionsAhead);
+            st.setBoolean(3, detach);
+            rs = st.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            closeQuietly(st);
+        }
+    }
+
+    private String readResource(final String resource) throws Exception {
+        final InputStream is = getClass().getResourceAsStream(resource);
+        if (is == null) {
+            throw new Exception("unable to locate " + resource);
+        }
+        try {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+            final StringBuffer contents = new StringBuffer();
+            String line;
+            while ((line = in.readLine()) != null) {
+                contents.append(line).append("\n");
+            }
+            return contents.toString();
+        } finally {
+            closeQuietly(is);
+        }
+    }
+
     /**
      * <p>vacuumDatabase</p>
      *
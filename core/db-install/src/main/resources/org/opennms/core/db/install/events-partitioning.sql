@@ -0,0 +1,132 @@
+-- Range partitioning of the events table on eventtime, using table
+-- inheritance.  Every partition is an inheritance child of events named
+-- events_pYYYYMMDD after the (UTC) start of the period it holds and carries
+-- a CHECK constraint on that period so constraint exclusion can skip it.
+-- Rows that must outlive their partition are moved to events_retained.
+--
+-- events_partition_interval() ('day' or 'week') is created by the installer
+-- before this file is loaded.  Requires PostgreSQL 8.4 or later.
+
+create or replace function events_partition_start(timestamp with time zone) returns timestamp with time zone as $$
+    select date_trunc(events_partition_interval(), $1 at time zone 'UTC') at time zone 'UTC'
+$$ language sql stable;
+
+create or replace function events_partition_next(timestamp with time zone) returns timestamp with time zone as $$
+    select (date_trunc(events_partition_interval(), $1 at time zone 'UTC') + ('1 ' || events_partition_interval())::interval) at time zone 'UTC'
+$$ language sql stable;
+
+create or replace function events_partition_name(timestamp with time zone) returns text as $$
+    select 'events_p' || to_char(events_partition_start($1) at time zone 'UTC', 'YYYYMMDD')
+$$ language sql stable;
+
+create or replace function events_partition_exists(text) returns boolean as $$
+    select exists (select 1 from pg_catalog.pg_class c
+                    where c.relname = $1 and c.relkind = 'r' and pg_catalog.pg_table_is_visible(c.oid))
+$$ language sql stable;
+
+-- an event is referenced while an outage, notification or alarm points at it
+create or replace function events_is_referenced(integer) returns boolean as $$
+    select exists (select 1 from outages where svclosteventid = $1)
+        or exists (select 1 from outages where svcregainedeventid = $1)
+        or exists (select 1 from notifications where eventid = $1)
+        or exists (select 1 from alarms where lasteventid = $1)
+$$ language sql stable;
+
+-- the IDs of all referenced events, read from the (small) referencing tables
+-- so that retiring a partition does not have to probe them for every event
+create or replace function events_referenced_ids() returns setof integer as $$
+    select svclosteventid from outages where svclosteventid is not null
+    union select svcregainedeventid from outages where svcregainedeventid is not null
+    union select eventid from notifications where eventid is not null
+    union select lasteventid from alarms where lasteventid is not null
+$$ language sql stable;
+
+-- BEFORE INSERT trigger on events: route the row to its partition, or keep
+-- it in the parent table when no partition covers its eventtime
+create or replace function events_partition_insert() returns trigger as $$
+  declare
+    v_target text;
+  begin
+    v_target := events_partition_name(NEW.eventtime);
+    if events_partition_exists(v_target) then
+        execute 'insert into ' || quote_ident(v_target) || ' select ($1).*' using NEW;
+        return NULL;
+    end if;
+    return NEW;
+  end;
+$$ language plpgsql;
+
+-- create the partition for the current period and the next i_ahead periods
+create or replace function events_partition_create(i_ahead integer) returns integer as $$
+  declare
+    v_start timestamp with time zone;
+    v_end timestamp with time zone;
+    v_target text;
+    v_created integer := 0;
+  begin
+    v_start := events_partition_start(now());
+    for i in 0..coalesce(i_ahead, 0) loop
+        v_end := events_partition_next(v_start);
+        v_target := events_partition_name(v_start);
+        if not events_partition_exists(v_target) then
+            execute 'create table ' || quote_ident(v_target)
+                || ' (like events including defaults including constraints including indexes,'
+                || ' check (eventtime >= ' || quote_literal(v_start::text) || '::timestamp with time zone'
+                || ' and eventtime < ' || quote_literal(v_end::text) || '::timestamp with time zone))';
+            execute 'alter table ' || quote_ident(v_target) || ' inherit events';
+            v_created := v_created + 1;
+        end if;
+        v_start := v_end;
+    end loop;
+    return v_created;
+  end;
+$$ language plpgsql;
+
+-- retire every partition whose period ended before now() - i_retention:
+-- referenced rows are copied to events_retained, then the partition is
+-- dropped, or only detached from events when i_detach is true so it can be
+-- archived and dropped by hand.  Rows left in the parent table (from before
+-- the migration, or outside any partition) and unreferenced rows in
+-- events_retained are expired with row deletes.
+--
+-- While the referenced rows are copied a partition is only locked against
+-- writes, so queries on events keep running.  The ACCESS EXCLUSIVE lock that
+-- blocks them is taken by the final drop (or detach) of each partition and
+-- held until the function's transaction commits.
+create or replace function events_partition_maintain(i_retention interval, i_ahead integer, i_detach boolean) returns integer as $$
+  declare
+    v_cutoff timestamp with time zone;
+    v_part record;
+    v_expired text[] := '{}';
+  begin
+    perform events_partition_create(i_ahead);
+
+    v_cutoff := now() - i_retention;
+    for v_part in select c.relname from pg_catalog.pg_inherits i
+                    join pg_catalog.pg_class c on c.oid = i.inhrelid
+                   where i.inhparent = 'events'::regclass
+                     and c.relname ~ '^events_p[0-9]{8}$'
+                   order by c.relname loop
+        if events_partition_next(to_date(substr(v_part.relname, 9), 'YYYYMMDD')::timestamp at time zone 'UTC') <= v_cutoff then
+            execute 'lock table ' || quote_ident(v_part.relname) || ' in share mode';
+            execute 'insert into events_retained select e.* from ' || quote_ident(v_part.relname)
+                || ' e where e.eventid in (select events_referenced_ids())';
+            v_expired := v_expired || v_part.relname::text;
+        end if;
+    end loop;
+
+    for i in 1..coalesce(array_upper(v_expired, 1), 0) loop
+        if i_detach then
+            execute 'alter table ' || quote_ident(v_expired[i]) || ' no inherit events';
+        else
+            execute 'drop table ' || quote_ident(v_expired[i]);
+        end if;
+    end loop;
+
+    insert into events_retained select e.* from only events e where e.eventtime < v_cutoff and e.eventid in (select events_referenced_ids());
+    delete from only events where eventtime < v_cutoff;
+    delete from events_retained where eventtime < v_cutoff and not events_is_referenced(eventid);
+
+    return coalesce(array_upper(v_expired, 1), 0);
+  end;
+$$ language plpgsql;
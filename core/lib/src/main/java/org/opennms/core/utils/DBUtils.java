@@ -47,6 +47,16 @@ import org.slf4j.LoggerFactory;
 public class DBUtils {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(DBUtils.class);
+
+    /**
+     * Estimates the number of rows in a table from the statistics PostgreSQL
+     * keeps for the query planner, adding up the table's inheritance children
+     * (such as the partitions of events).  Both parameters are the table
+     * name.  Returns null for an unknown table and 0 if it was never analyzed.
+     */
+    public static final String ESTIMATE_ROW_COUNT_SQL = "SELECT sum(greatest(c.reltuples, 0)) FROM pg_catalog.pg_class c "
+            + "WHERE c.relkind = 'r' AND (c.relname = ? OR c.oid IN ("
+            + "SELECT i.inhrelid FROM pg_catalog.pg_inherits i JOIN pg_catalog.pg_class p ON p.oid = i.inhparent WHERE p.relname = ?))";
 	
     private final Set<Statement> m_statements;
     private final Set<ResultSet> m_resultSets;
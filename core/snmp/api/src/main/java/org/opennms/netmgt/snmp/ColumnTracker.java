@@ -94,15 +94,10 @@ public class ColumnTracker extends CollectionTracker {
 
 
                 m_last = responseObjId;
-                if (m_base.isPrefixOf(responseObjId) && !m_base.equals(responseObjId)) {
-                    SnmpInstId inst = responseObjId.getInstance(m_base);
-                    if (inst != null) {
-                        storeResult(new SnmpResult(m_base, inst, val));
-                    }
-                }
-                
-                if (!m_base.isPrefixOf(m_last)) {
+                if (!m_base.isPrefixOf(responseObjId)) {
                     setFinished(true);
+                } else if (m_base.length() < responseObjId.length()) {
+                    storeResult(new SnmpResult(m_base, responseObjId.getInstance(m_base), val));
                 }
                 
             }
@@ -148,7 +143,7 @@ public class ColumnTracker extends CollectionTracker {
     }
 
     public SnmpInstId getLastInstance() {
-        if (m_base.isPrefixOf(m_last) && !m_base.equals(m_last)) {
+        if (m_base.isStrictPrefixOf(m_last)) {
             return m_last.getInstance(m_base);
         } else {
             return null;
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.snmp;
+
+import java.net.InetAddress;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * <p>
+ * What has been learned about walking a single agent: how many repetitions a
+ * GETBULK request can ask for and how many varbinds fit in a request before
+ * the agent answers tooBig.  It also caps the number of requests outstanding
+ * to the agent across all walkers so that a weak control plane is not
+ * flooded when many collections hit the same agent at once.
+ * </p>
+ *
+ * <p>
+ * Max-repetitions is grown by one after every few full responses that come
+ * back quickly and is cut back when the agent truncates a response (to what
+ * it did return), answers tooBig (by half, and it does not grow back past
+ * that point until it has been probed again), times out (by half) or slows
+ * down well past its best round trip time (by a quarter).
+ * </p>
+ *
+ * @see SnmpAgentProfiles
+ */
+public class SnmpAgentProfile {
+
+    /** Number of full, fast responses needed before max-repetitions is increased */
+    static final int GROW_AFTER = 3;
+
+    /** Number of full, fast responses at the ceiling before the ceiling is probed */
+    static final int PROBE_AFTER = 50;
+
+    /** A response slower than this many times the best round trip time is considered slow */
+    static final int SLOW_FACTOR = 4;
+
+    /** Round trip times (in nanoseconds) below this are never considered slow */
+    static final long SLOW_MINIMUM = 250L * 1000L * 1000L;
+
+    private final InetAddress m_address;
+    private final int m_repetitionsLimit;
+    private final int m_maxOutstanding;
+
+    private int m_maxRepetitions;
+    private int m_repetitionsCeiling;
+    private int m_maxVarsPerPdu = 0;
+    private long m_bestRtt = Long.MAX_VALUE;
+    private int m_fullResponses = 0;
+    private boolean m_changed = false;
+
+    private int m_outstanding = 0;
+    private final Queue<Runnable> m_pending = new LinkedList<Runnable>();
+
+    SnmpAgentProfile(final InetAddress address, final int maxRepetitions, final int repetitionsLimit, final int maxOutstanding) {
+        m_address = address;
+        m_repetitionsLimit = Math.max(1, repetitionsLimit);
+        m_maxOutstanding = Math.max(1, maxOutstanding);
+        m_maxRepetitions = clamp(maxRepetitions, m_repetitionsLimit);
+        m_repetitionsCeiling = m_repetitionsLimit;
+    }
+
+    private static int clamp(final int value, final int limit) {
+        return Math.max(1, Math.min(value, limit));
+    }
+
+    public InetAddress getAddress() {
+        return m_address;
+    }
+
+    public synchronized int getMaxRepetitions() {
+        return m_maxRepetitions;
+    }
+
+    public synchronized int getRepetitionsCeiling() {
+        return m_repetitionsCeiling;
+    }
+
+    /**
+     * @return the number of varbinds to put in a request, at most
+     *         <code>configured</code>
+     */
+    public synchronized int getMaxVarsPerPdu(final int configured) {
+        return m_maxVarsPerPdu > 0 ? Math.min(m_maxVarsPerPdu, configured) : configured;
+    }
+
+    /**
+     * Restore a profile saved by {@link SnmpAgentProfiles}.
+     */
+    synchronized void restore(final int maxRepetitions, final int repetitionsCeiling, final int maxVarsPerPdu) {
+        m_repetitionsCeiling = clamp(repetitionsCeiling, m_repetitionsLimit);
+        m_maxRepetitions = clamp(maxRepetitions, m_repetitionsCeiling);
+        m_maxVarsPerPdu = Math.max(0, maxVarsPerPdu);
+    }
+
+    synchronized int[] snapshot() {
+        return new int[] { m_maxRepetitions, m_repetitionsCeiling, m_maxVarsPerPdu };
+    }
+
+    /**
+     * @return true if the profile changed since the last call
+     */
+    synchronized boolean clearChanged() {
+        final boolean changed = m_changed;
+        m_changed = false;
+        return changed;
+    }
+
+    private void setMaxRepetitions(final int maxRepetitions) {
+        final int value = clamp(maxRepetitions, m_repetitionsCeiling);
+        if (value != m_maxRepetitions) {
+            m_maxRepetitions = value;
+            m_changed = true;
+        }
+        m_fullResponses = 0;
+    }
+
+    /**
+     * A response without error came back.
+     *
+     * @param rtt the round trip time in nanoseconds
+     * @param requested the number of varbinds the request asked for
+     * @param received the number of varbinds in the response
+     */
+    public synchronized void responseReceived(final long rtt, final int requested, final int received) {
+        m_bestRtt = Math.min(m_bestRtt, rtt);
+
+        if (received < requested) {
+            // the agent truncated the response to what fits in a message
+            setMaxRepetitions(m_maxRepetitions * received / requested);
+        } else if (rtt > SLOW_MINIMUM && rtt > SLOW_FACTOR * m_bestRtt) {
+            setMaxRepetitions(m_maxRepetitions * 3 / 4);
+        } else if (++m_fullResponses >= GROW_AFTER) {
+            if (m_maxRepetitions < m_repetitionsCeiling) {
+                setMaxRepetitions(m_maxRepetitions + 1);
+            } else if (m_fullResponses >= PROBE_AFTER && m_repetitionsCeiling < m_repetitionsLimit) {
+                m_repetitionsCeiling++;
+                setMaxRepetitions(m_maxRepetitions + 1);
+            }
+        }
+    }
+
+    /**
+     * The agent answered tooBig.
+     *
+     * @param repetitions the max-repetitions of the request, 1 if it did not repeat
+     * @param maxVarsPerPdu the number of varbinds the request was allowed
+     */
+    public synchronized void tooBig(final int repetitions, final int maxVarsPerPdu) {
+        if (repetitions > 1) {
+            m_repetitionsCeiling = Math.max(1, repetitions - 1);
+            setMaxRepetitions(repetitions / 2);
+        } else if (m_maxVarsPerPdu == 0 || maxVarsPerPdu < m_maxVarsPerPdu) {
+            m_maxVarsPerPdu = Math.max(1, maxVarsPerPdu);
+            m_changed = true;
+        }
+    }
+
+    /**
+     * A request to the agent timed out.
+     */
+    public synchronized void timedOut() {
+        setMaxRepetitions(m_maxRepetitions / 2);
+    }
+
+    /**
+     * Run <code>send</code> now if fewer than the maximum number of requests
+     * are outstanding to the agent, otherwise once a request completes.
+     * Every send must be followed by a call to {@link #release()}.
+     */
+    public void send(final Runnable send) {
+        synchronized (this) {
+            if (m_outstanding >= m_maxOutstanding) {
+                m_pending.add(send);
+                return;
+            }
+            m_outstanding++;
+        }
+        send.run();
+    }
+
+    /**
+     * A request to the agent completed: run the next pending send, if any.
+     */
+    public void release() {
+        final Runnable next;
+        synchronized (this) {
+            next = m_pending.poll();
+            if (next == null) {
+                m_outstanding = Math.max(0, m_outstanding - 1);
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    public synchronized int getOutstanding() {
+        return m_outstanding;
+    }
+
+    public synchronized int getPending() {
+        return m_pending.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return new ToStringBuilder(this)
+            .append("address", InetAddrUtils.str(m_address))
+            .append("max repetitions", m_maxRepetitions)
+            .append("repetitions ceiling", m_repetitionsCeiling)
+            .append("max vars per pdu", m_maxVarsPerPdu)
+            .append("outstanding", m_outstanding)
+            .toString();
+    }
+}
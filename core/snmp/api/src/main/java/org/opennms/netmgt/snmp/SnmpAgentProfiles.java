@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.snmp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * The {@link SnmpAgentProfile}s used by {@link SnmpWalker}s when adaptive
+ * walking is enabled with <code>org.opennms.snmp.adaptive=true</code>.
+ * </p>
+ *
+ * <ul>
+ * <li><code>org.opennms.snmp.adaptive.repetitionsLimit</code>: the most
+ * repetitions a GETBULK request may ask for (default 50)</li>
+ * <li><code>org.opennms.snmp.adaptive.maxOutstanding</code>: the most requests
+ * outstanding to a single agent (default 4)</li>
+ * <li><code>org.opennms.snmp.adaptive.profileFile</code>: where profiles are
+ * saved so they survive a restart (default
+ * <code>${opennms.home}/share/snmp-agent-profiles.properties</code>)</li>
+ * </ul>
+ */
+public final class SnmpAgentProfiles {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnmpAgentProfiles.class);
+
+    /** Profiles are saved at most this often (in milliseconds) */
+    static final long SAVE_INTERVAL = 5L * 60L * 1000L;
+
+    private static SnmpAgentProfiles s_instance = new SnmpAgentProfiles(
+        Boolean.getBoolean("org.opennms.snmp.adaptive"),
+        Integer.getInteger("org.opennms.snmp.adaptive.repetitionsLimit", 50),
+        Integer.getInteger("org.opennms.snmp.adaptive.maxOutstanding", 4),
+        getDefaultProfileFile());
+
+    private final boolean m_enabled;
+    private final int m_repetitionsLimit;
+    private final int m_maxOutstanding;
+    private final File m_profileFile;
+    private final ConcurrentMap<InetAddress, SnmpAgentProfile> m_profiles = new ConcurrentHashMap<InetAddress, SnmpAgentProfile>();
+    private final Map<String, int[]> m_saved = new ConcurrentHashMap<String, int[]>();
+    private volatile long m_lastSaved = System.currentTimeMillis();
+
+    SnmpAgentProfiles(final boolean enabled, final int repetitionsLimit, final int maxOutstanding, final File profileFile) {
+        m_enabled = enabled;
+        m_repetitionsLimit = repetitionsLimit;
+        m_maxOutstanding = maxOutstanding;
+        m_profileFile = profileFile;
+        if (m_enabled) {
+            load();
+        }
+    }
+
+    private static File getDefaultProfileFile() {
+        final String file = System.getProperty("org.opennms.snmp.adaptive.profileFile");
+        if (file != null && file.trim().length() > 0) {
+            return new File(file.trim());
+        }
+        final String home = System.getProperty("opennms.home");
+        return home == null ? null : new File(home + File.separator + "share" + File.separator + "snmp-agent-profiles.properties");
+    }
+
+    public static SnmpAgentProfiles getInstance() {
+        return s_instance;
+    }
+
+    static void setInstance(final SnmpAgentProfiles instance) {
+        s_instance = instance;
+    }
+
+    public boolean isEnabled() {
+        return m_enabled;
+    }
+
+    /**
+     * @param maxRepetitions the configured max-repetitions, used for an agent
+     *        without a profile
+     */
+    public SnmpAgentProfile getProfile(final InetAddress address, final int maxRepetitions) {
+        SnmpAgentProfile profile = m_profiles.get(address);
+        if (profile == null) {
+            final SnmpAgentProfile newProfile = new SnmpAgentProfile(address, maxRepetitions, m_repetitionsLimit, m_maxOutstanding);
+            final int[] saved = m_saved.remove(InetAddrUtils.str(address));
+            if (saved != null) {
+                newProfile.restore(saved[0], saved[1], saved[2]);
+            }
+            profile = m_profiles.putIfAbsent(address, newProfile);
+            if (profile == null) {
+                profile = newProfile;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Save the profiles if they changed and were last saved more than
+     * {@link #SAVE_INTERVAL} ago.
+     */
+    public void saveIfDue() {
+        if (m_profileFile != null && System.currentTimeMillis() - m_lastSaved > SAVE_INTERVAL) {
+            save();
+        }
+    }
+
+    /**
+     * Load the profiles saved in the profile file.  Each line is
+     * <code>address=maxRepetitions,repetitionsCeiling,maxVarsPerPdu</code>.
+     */
+    synchronized void load() {
+        if (m_profileFile == null || !m_profileFile.exists()) {
+            return;
+        }
+        final Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(m_profileFile);
+            props.load(in);
+        } catch (final IOException e) {
+            LOG.warn("Unable to load SNMP agent profiles from {}", m_profileFile, e);
+            return;
+        } finally {
+            closeQuietly(in);
+        }
+        for (final String address : props.stringPropertyNames()) {
+            final String[] values = props.getProperty(address).split(",");
+            try {
+                m_saved.put(address, new int[] {
+                    Integer.parseInt(values[0].trim()),
+                    Integer.parseInt(values[1].trim()),
+                    Integer.parseInt(values[2].trim())
+                });
+            } catch (final RuntimeException e) {
+                LOG.warn("Ignoring invalid SNMP agent profile for {}: {}", address, props.getProperty(address));
+            }
+        }
+        LOG.info("Loaded {} SNMP agent profiles from {}", m_saved.size(), m_profileFile);
+    }
+
+    /**
+     * Save the profiles to the profile file, if anything changed.
+     */
+    synchronized void save() {
+        m_lastSaved = System.currentTimeMillis();
+        boolean changed = false;
+        for (final SnmpAgentProfile profile : m_profiles.values()) {
+            changed |= profile.clearChanged();
+        }
+        if (m_profileFile == null || !changed) {
+            return;
+        }
+
+        final Properties props = new Properties();
+        for (final Map.Entry<String, int[]> entry : m_saved.entrySet()) {
+            props.setProperty(entry.getKey(), format(entry.getValue()));
+        }
+        for (final SnmpAgentProfile profile : m_profiles.values()) {
+            props.setProperty(InetAddrUtils.str(profile.getAddress()), format(profile.snapshot()));
+        }
+
+        final File tmp = new File(m_profileFile.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            props.store(out, "SNMP agent profiles: maxRepetitions,repetitionsCeiling,maxVarsPerPdu");
+            out.close();
+            out = null;
+            if (!tmp.renameTo(m_profileFile)) {
+                m_profileFile.delete();
+                if (!tmp.renameTo(m_profileFile)) {
+                    throw new IOException("Unable to rename " + tmp + " to " + m_profileFile);
+                }
+            }
+            LOG.debug("Saved {} SNMP agent profiles to {}", props.size(), m_profileFile);
+        } catch (final IOException e) {
+            LOG.warn("Unable to save SNMP agent profiles to {}", m_profileFile, e);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static String format(final int[] values) {
+        return values[0] + "," + values[1] + "," + values[2];
+    }
+
+    private static void closeQuietly(final Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (final IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -49,6 +49,14 @@ public class SnmpInstId extends SnmpObjId {
     public SnmpInstId(int instance) {
         super(new int[] { instance }, false);
     }
+
+    /**
+     * A view of the sub-ids of an oid, used by {@link SnmpObjId#getInstance(SnmpObjId)}
+     * so instances share the array of the oid they came from.
+     */
+    SnmpInstId(int[] ids, int offset, int length) {
+        super(ids, offset, length);
+    }
     
     @Override
     protected boolean addPrefixDotInToString() {
@@ -32,18 +32,31 @@ import java.util.StringTokenizer;
 
 public class SnmpObjId implements Comparable<SnmpObjId> {
     
-    /* FIXME: Change the implementation of this to cache oids and share common prefixes
-     * This should enhance the amount of garbage we generate a great deal at least for
-     * this class.
+    /*
+     * An oid is a view of m_length sub-ids starting at m_offset in m_ids.
+     * The array is never modified after construction, so prefixes and
+     * instances (see getPrefix and getInstance) share the array of the oid
+     * they were taken from instead of copying it.
      */
 
-    private int[] m_ids;
+    private final int[] m_ids;
+    private final int m_offset;
+    private final int m_length;
     
     /**
      * These constructors are private.  The get method should be called to create a new oid
      */ 
     protected SnmpObjId(int[] ids, boolean clone) {
-        m_ids = (clone ? cloneIds(ids) : ids);
+        this(clone ? cloneIds(ids) : ids, 0, ids.length);
+    }
+    
+    /**
+     * These constructors are private.  The get method should be called to create a new oid
+     */ 
+    protected SnmpObjId(int[] ids, int offset, int length) {
+        m_ids = ids;
+        m_offset = offset;
+        m_length = length;
     }
     
     /**
@@ -64,7 +77,7 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
      * These constructors are private.  The get method should be called to create a new oid
      */ 
     protected SnmpObjId(SnmpObjId oid) {
-        this(oid.m_ids);
+        this(oid.m_ids, oid.m_offset, oid.m_length);
     }
     
     /**
@@ -78,28 +91,25 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
      * These constructors are private.  The get method should be called to create a new oid
      */ 
     private SnmpObjId(SnmpObjId objId, String instance) {
-        this(appendArrays(objId.m_ids, convertStringToInts(instance)), false);
+        this(objId.append(convertStringToInts(instance)));
     }
     
     /**
      * These constructors are private.  The get method should be called to create a new oid
      */ 
     private SnmpObjId(SnmpObjId objId, SnmpObjId instance) {
-        this(appendArrays(objId.m_ids, instance.m_ids), false);
+        this(objId.append(instance));
     }
 
     public int[] getIds() {
-        return cloneIds(m_ids);
+        int[] ids = new int[m_length];
+        System.arraycopy(m_ids, m_offset, ids, 0, m_length);
+        return ids;
     }
     
     private static int[] cloneIds(int[] ids) {
-        return cloneIds(ids, ids.length);
-    }
-    
-    private static int[] cloneIds(int[] ids, int lengthToClone) {
-        int len = Math.min(lengthToClone, ids.length);
-        int[] newIds = new int[len];
-        System.arraycopy(ids, 0, newIds, 0, len);
+        int[] newIds = new int[ids.length];
+        System.arraycopy(ids, 0, newIds, 0, ids.length);
         return newIds;
     }
     
@@ -138,7 +148,11 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
 
     @Override
     public int hashCode() {
-        return 0;
+        int hash = 1;
+        for(int i = m_offset; i < m_offset + m_length; i++) {
+            hash = 31 * hash + m_ids[i];
+        }
+        return hash;
     }
 
     @Override
@@ -148,7 +162,7 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
             if (i != 0 || addPrefixDotInToString()) {
                 buf.append('.');  
             }
-            buf.append(m_ids[i]);
+            buf.append(m_ids[m_offset + i]);
         }
         return buf.toString();
     }
@@ -166,7 +180,7 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
         // which is the entire length of one or both oids
         int minLen = Math.min(length(), other.length());
         for(int i = 0; i < minLen; i++) {
-            int diff = m_ids[i] - other.m_ids[i];
+            int diff = m_ids[m_offset + i] - other.m_ids[other.m_offset + i];
             // the first one that is not equal indicates which is bigger
             if (diff != 0)
                 return diff;
@@ -182,11 +196,16 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
     }
     
     public SnmpObjId append(SnmpObjId inst) {
-        return append(inst.m_ids);
+        int[] ids = new int[m_length + inst.m_length];
+        System.arraycopy(m_ids, m_offset, ids, 0, m_length);
+        System.arraycopy(inst.m_ids, inst.m_offset, ids, m_length, inst.m_length);
+        return new SnmpObjId(ids, false);
     }
 
     public SnmpObjId append(int[] instIds) {
-        int[] ids = appendArrays(m_ids, instIds);
+        int[] ids = new int[m_length + instIds.length];
+        System.arraycopy(m_ids, m_offset, ids, 0, m_length);
+        System.arraycopy(instIds, 0, ids, m_length, instIds.length);
         return new SnmpObjId(ids, false);
     }
 
@@ -205,6 +224,16 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
         return new SnmpObjId(ids);
     }
 
+    /**
+     * Create an oid that uses <code>ids</code> as is instead of copying it.
+     * This is for decoding received varbinds, where the array belongs to a
+     * PDU that is discarded afterwards; the caller must not modify the
+     * array once it has been wrapped.
+     */
+    public static SnmpObjId wrap(int[] ids) {
+        return new SnmpObjId(ids, false);
+    }
+
     public static SnmpObjId get(SnmpObjId oid) {
         return new SnmpObjId(oid);
     }
@@ -225,38 +254,49 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
     	if (other == null || length() > other.length())
             return false;
         
-        for(int i = 0; i < m_ids.length; i++) {
-            if (m_ids[i] != other.m_ids[i])
+        for(int i = 0; i < m_length; i++) {
+            if (m_ids[m_offset + i] != other.m_ids[other.m_offset + i])
                 return false;
         }
         
         return true;
     }
 
+    /**
+     * Whether <code>other</code> starts with this oid and is longer than it,
+     * ie. it names an instance below this oid.
+     */
+    public boolean isStrictPrefixOf(final SnmpObjId other) {
+        return other != null && length() < other.length() && isPrefixOf(other);
+    }
+
     public SnmpInstId getInstance(SnmpObjId base) {
         if (!base.isPrefixOf(this)) return null;
         
-        int[] instanceIds = new int[length() - base.length()];
-        System.arraycopy(m_ids, base.length(), instanceIds, 0, instanceIds.length);
-        return new SnmpInstId(instanceIds);
+        return new SnmpInstId(m_ids, m_offset + base.length(), length() - base.length());
     }
 
     public int length() {
-        return m_ids.length;
+        return m_length;
     }
     
     public SnmpObjId getPrefix(int length) {
     	if (length >= length()) {
     		throw new IllegalArgumentException("Invalid length: " + length +" is longer than length of ObjId");
     	}
+    	if (length < 0) {
+    		throw new IllegalArgumentException("Invalid length: " + length);
+    	}
     	
-    	int[] newIds = cloneIds(m_ids, length);
-        return new SnmpObjId(newIds, false);
+        return new SnmpObjId(m_ids, m_offset, length);
     	
     }
     
     public int getSubIdAt(int index) {
-        return m_ids[index];
+        if (index < 0 || index >= m_length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return m_ids[m_offset + index];
     }
     
     public int getLastSubId() {
@@ -265,10 +305,10 @@ public class SnmpObjId implements Comparable<SnmpObjId> {
 
     public SnmpObjId decrement() {
         if (getLastSubId() == 0) {
-            return new SnmpObjId(cloneIds(m_ids, length() - 1), false);
+            return new SnmpObjId(m_ids, m_offset, length() - 1);
         }
         else {
-            int[] newIds = cloneIds(m_ids, length());
+            int[] newIds = getIds();
             newIds[newIds.length-1] -= 1;
             return new SnmpObjId(newIds, false);
         }
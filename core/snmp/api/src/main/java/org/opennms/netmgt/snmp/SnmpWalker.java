@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +48,68 @@ public abstract class SnmpWalker implements Closeable {
         }
         
         abstract public void reset();
+
+        /**
+         * @return false if the requests built ignore max-repetitions (GETNEXT)
+         */
+        public boolean usesMaxRepetitions() {
+            return true;
+        }
+    }
+
+    /**
+     * Counts what a tracker puts into a request so that the size of the
+     * response can be compared with it.
+     */
+    private static final class CountingPduBuilder extends PduBuilder {
+        private final PduBuilder m_delegate;
+        private int m_oids = 0;
+        private int m_nonRepeaters = 0;
+        private int m_maxRepetitions = 1;
+
+        private CountingPduBuilder(final PduBuilder delegate) {
+            m_delegate = delegate;
+        }
+
+        @Override
+        public void addOid(final SnmpObjId snmpObjId) {
+            m_oids++;
+            m_delegate.addOid(snmpObjId);
+        }
+
+        @Override
+        public void setNonRepeaters(final int numNonRepeaters) {
+            m_nonRepeaters = numNonRepeaters;
+            m_delegate.setNonRepeaters(numNonRepeaters);
+        }
+
+        @Override
+        public void setMaxRepetitions(final int maxRepetitions) {
+            m_maxRepetitions = maxRepetitions;
+            m_delegate.setMaxRepetitions(maxRepetitions);
+        }
+
+        @Override
+        public int getMaxVarsPerPdu() {
+            return m_delegate.getMaxVarsPerPdu();
+        }
+
+        @Override
+        public void setMaxVarsPerPdu(final int maxVarsPerPdu) {
+            m_delegate.setMaxVarsPerPdu(maxVarsPerPdu);
+        }
+
+        int getOids() {
+            return m_oids;
+        }
+
+        int getRepetitions() {
+            return m_oids > m_nonRepeaters ? Math.max(1, m_maxRepetitions) : 1;
+        }
+
+        int getExpectedVarBinds() {
+            return m_nonRepeaters + (m_oids - m_nonRepeaters) * getRepetitions();
+        }
     }
     
     private final String m_name;
@@ -61,6 +124,17 @@ public abstract class SnmpWalker implements Closeable {
     private boolean m_error = false;
     private String m_errorMessage = "";
     private Throwable m_errorThrowable = null;
+    private volatile SnmpWalkCallback m_callback = null;
+    private final AtomicBoolean m_finished = new AtomicBoolean(false);
+
+    // adaptive walking, see SnmpAgentProfiles
+    private final SnmpAgentProfile m_profile;
+    private final AtomicBoolean m_outstanding = new AtomicBoolean(false);
+    private volatile long m_sentAt;
+    private volatile int m_requested;
+    private volatile int m_repetitions;
+    private volatile int m_received;
+    private volatile int m_errorStatus;
     
     protected SnmpWalker(InetAddress address, String name, int maxVarsPerPdu, int maxRepetitions, CollectionTracker tracker) {
         m_address = address;
@@ -72,12 +146,24 @@ public abstract class SnmpWalker implements Closeable {
         m_tracker.setMaxRepetitions(maxRepetitions);
         
         m_maxVarsPerPdu = maxVarsPerPdu;
+
+        final SnmpAgentProfiles profiles = SnmpAgentProfiles.getInstance();
+        m_profile = profiles.isEnabled() ? profiles.getProfile(address, maxRepetitions) : null;
     }
 
     protected abstract WalkerPduBuilder createPduBuilder(int maxVarsPerPdu);
     
+    /**
+     * Set a callback to be notified when the walk finishes, instead of (or
+     * as well as) waiting for it with {@link #waitFor()}.  Must be called
+     * before {@link #start()}.
+     */
+    public void setCallback(SnmpWalkCallback callback) {
+        m_callback = callback;
+    }
+
     public void start() {
-        m_pduBuilder = createPduBuilder(m_maxVarsPerPdu);
+        m_pduBuilder = createPduBuilder(m_profile == null ? m_maxVarsPerPdu : m_profile.getMaxVarsPerPdu(m_maxVarsPerPdu));
         try {
             buildAndSendNextPdu();
         } catch (Throwable e) {
@@ -90,13 +176,72 @@ public abstract class SnmpWalker implements Closeable {
     }
 
     protected void buildAndSendNextPdu() throws IOException {
+        requestCompleted();
         if (m_tracker.isFinished()) {
             handleDone();
-        } else {
+        } else if (m_profile == null) {
             m_pduBuilder.reset();
             m_responseProcessor = m_tracker.buildNextPdu(m_pduBuilder);
             sendNextPdu(m_pduBuilder);
+        } else {
+            buildAndSendAdaptivePdu();
+        }
+    }
+
+    /**
+     * Build the next request with the max-repetitions learned for the agent
+     * and send it once the agent has fewer than the maximum number of
+     * requests outstanding.
+     */
+    private void buildAndSendAdaptivePdu() {
+        m_tracker.setMaxRepetitions(m_profile.getMaxRepetitions());
+        m_pduBuilder.reset();
+        final CountingPduBuilder counter = new CountingPduBuilder(m_pduBuilder);
+        m_responseProcessor = m_tracker.buildNextPdu(counter);
+        if (m_pduBuilder.usesMaxRepetitions()) {
+            m_repetitions = counter.getRepetitions();
+            m_requested = counter.getExpectedVarBinds();
+        } else {
+            m_repetitions = 1;
+            m_requested = counter.getOids();
+        }
+
+        m_profile.send(new Runnable() {
+            @Override
+            public void run() {
+                if (m_finished.get()) {
+                    // the walk ended while the request was waiting its turn
+                    m_profile.release();
+                    return;
+                }
+                m_received = 0;
+                m_errorStatus = CollectionTracker.NO_ERR;
+                m_sentAt = System.nanoTime();
+                m_outstanding.set(true);
+                try {
+                    sendNextPdu(m_pduBuilder);
+                } catch (Throwable e) {
+                    handleFatalError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Tell the agent profile how the last request went and let the next
+     * request to the agent go.
+     */
+    private void requestCompleted() {
+        if (m_profile == null || !m_outstanding.compareAndSet(true, false)) {
+            return;
+        }
+        if (m_errorStatus == CollectionTracker.TOO_BIG_ERR) {
+            m_profile.tooBig(m_repetitions, m_pduBuilder.getMaxVarsPerPdu());
+        } else if (m_errorStatus == CollectionTracker.NO_ERR && !m_tracker.isFinished()) {
+            // the last response of a walk may be short because the agent ran out of MIB
+            m_profile.responseReceived(System.nanoTime() - m_sentAt, m_requested, m_received);
         }
+        m_profile.release();
     }
 
     protected abstract void sendNextPdu(WalkerPduBuilder pduBuilder) throws IOException;
@@ -156,12 +301,30 @@ public abstract class SnmpWalker implements Closeable {
     }
 
     private void finish() {
+        if (m_profile != null && m_outstanding.compareAndSet(true, false)) {
+            if (m_tracker.timedOut()) {
+                m_profile.timedOut();
+            }
+            m_profile.release();
+        }
         signal();
         try {
             close();
         } catch (IOException e) {
             LOG.error("{}: Unexpected Error occured closing SNMP session for: {}", getName(), m_address, e);
         }
+        if (m_profile != null) {
+            SnmpAgentProfiles.getInstance().saveIfDue();
+        }
+        // a walk can be finished more than once, e.g. by a timeout in waitFor() and then by the agent
+        final SnmpWalkCallback callback = m_callback;
+        if (m_finished.compareAndSet(false, true) && callback != null) {
+            try {
+                callback.complete(this);
+            } catch (Throwable t) {
+                LOG.error("{}: Unexpected error in walk callback for: {}", getName(), m_address, t);
+            }
+        }
     }
 
     @Override
@@ -194,10 +357,16 @@ public abstract class SnmpWalker implements Closeable {
     
     // processErrors returns true if we need to retry the request and false otherwise
     protected boolean processErrors(int errorStatus, int errorIndex) {
+        m_errorStatus = errorStatus;
+        if (m_profile != null && errorStatus == CollectionTracker.TOO_BIG_ERR && m_repetitions > 1) {
+            // retry with fewer repetitions before dropping varbinds from the request
+            return true;
+        }
         return m_responseProcessor.processErrors(errorStatus, errorIndex);
     }
     
     protected void processResponse(SnmpObjId receivedOid, SnmpValue val) {
+        m_received++;
         m_responseProcessor.processResponse(receivedOid, val);
     }
 
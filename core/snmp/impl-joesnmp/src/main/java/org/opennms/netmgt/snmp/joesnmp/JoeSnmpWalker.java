@@ -93,6 +93,11 @@ public class JoeSnmpWalker extends SnmpWalker {
         public void setMaxRepetitions(int maxRepetitions) {
         }
 
+        @Override
+        public boolean usesMaxRepetitions() {
+            return false;
+        }
+
     }
     
     public class GetBulkBuilder extends JoeSnmpPduBuilder {
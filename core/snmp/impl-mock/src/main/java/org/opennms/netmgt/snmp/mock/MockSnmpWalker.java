@@ -77,6 +77,11 @@ public class MockSnmpWalker extends SnmpWalker {
         @Override
         public void setMaxRepetitions(final int maxRepetitions) {
         }
+
+        @Override
+        public boolean usesMaxRepetitions() {
+            return false;
+        }
     }
 	
 	private static class MockVarBind {
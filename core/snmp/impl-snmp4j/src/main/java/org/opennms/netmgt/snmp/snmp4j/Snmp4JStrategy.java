@@ -56,6 +56,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snmp4j.CommandResponderEvent;
 import org.snmp4j.MessageDispatcher;
+import org.snmp4j.MessageDispatcherImpl;
 import org.snmp4j.PDU;
 import org.snmp4j.PDUv1;
 import org.snmp4j.SNMP4JSettings;
@@ -63,6 +64,8 @@ import org.snmp4j.ScopedPDU;
 import org.snmp4j.Snmp;
 import org.snmp4j.TransportMapping;
 import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.mp.MPv1;
+import org.snmp4j.mp.MPv2c;
 import org.snmp4j.mp.MPv3;
 import org.snmp4j.mp.MessageProcessingModel;
 import org.snmp4j.mp.PduHandle;
@@ -79,6 +82,8 @@ import org.snmp4j.smi.SMIConstants;
 import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.VariableBinding;
 import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.snmp4j.util.MultiThreadedMessageDispatcher;
+import org.snmp4j.util.ThreadPool;
 
 public class Snmp4JStrategy implements SnmpStrategy {
 	
@@ -445,9 +450,13 @@ public class Snmp4JStrategy implements SnmpStrategy {
         } else {
         	udpAddress = new UdpAddress(address, snmpTrapPort);
         }
-        final TransportMapping transport = new DefaultUdpTransportMapping(udpAddress);
+        final DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(udpAddress);
+        final int receiveBufferSize = Integer.getInteger("org.opennms.snmp.snmp4j.trapReceiveBufferSize", 0);
+        if (receiveBufferSize > 0) {
+            transport.setReceiveBufferSize(receiveBufferSize);
+        }
         info.setTransportMapping(transport);
-        Snmp snmp = new Snmp(transport);
+        final Snmp snmp = createTrapSession(transport);
         snmp.addCommandResponder(m_trapHandler);
 
         if (snmpUsers != null) {
@@ -485,6 +494,29 @@ public class Snmp4JStrategy implements SnmpStrategy {
         snmp.listen();
     }
     
+    /**
+     * With <code>org.opennms.snmp.snmp4j.trapDispatchThreads</code> above 1,
+     * the listen thread only reads datagrams off the socket: decoding and
+     * handing the traps to the listener happens on a pool of that many
+     * threads, so the socket is emptied faster and the kernel receive buffer
+     * overflows less under bursts.
+     */
+    private static Snmp createTrapSession(final TransportMapping transport) {
+        final int dispatchThreads = Integer.getInteger("org.opennms.snmp.snmp4j.trapDispatchThreads", 1);
+        if (dispatchThreads <= 1) {
+            return new Snmp(transport);
+        }
+
+        final MessageDispatcher dispatcher = new MultiThreadedMessageDispatcher(ThreadPool.create("Snmp4JTrapDispatcher", dispatchThreads), new MessageDispatcherImpl());
+        // the Snmp(MessageDispatcher, TransportMapping) constructor does not set up the message processing models
+        dispatcher.addMessageProcessingModel(new MPv2c());
+        dispatcher.addMessageProcessingModel(new MPv1());
+        dispatcher.addMessageProcessingModel(new MPv3());
+        SecurityProtocols.getInstance().addDefaultProtocols();
+        LOG.info("Dispatching received traps on {} threads", dispatchThreads);
+        return new Snmp(dispatcher, transport);
+    }
+
         @Override
     public void registerForTraps(final TrapNotificationListener listener, final TrapProcessorFactory processorFactory, InetAddress address, int snmpTrapPort) throws IOException {
         registerForTraps(listener, processorFactory, address, snmpTrapPort, null);
@@ -498,13 +530,13 @@ public class Snmp4JStrategy implements SnmpStrategy {
         @Override
     public void unregisterForTraps(final TrapNotificationListener listener, InetAddress address, int snmpTrapPort) throws IOException {
         RegistrationInfo info = s_registrations.remove(listener);
-        closeQuietly(info.getSession());
+        closeTrapSession(info.getSession());
     }
 
         @Override
     public void unregisterForTraps(final TrapNotificationListener listener, final int snmpTrapPort) throws IOException {
         RegistrationInfo info = s_registrations.remove(listener);
-        closeQuietly(info.getSession());
+        closeTrapSession(info.getSession());
     }
 
         @Override
@@ -599,6 +631,13 @@ public class Snmp4JStrategy implements SnmpStrategy {
 
     }
 
+    private void closeTrapSession(final Snmp session) {
+        closeQuietly(session);
+        if (session != null && session.getMessageDispatcher() instanceof MultiThreadedMessageDispatcher) {
+            ((MultiThreadedMessageDispatcher) session.getMessageDispatcher()).stop();
+        }
+    }
+
     private void closeQuietly(Snmp session) {
         if (session == null) {
             return;
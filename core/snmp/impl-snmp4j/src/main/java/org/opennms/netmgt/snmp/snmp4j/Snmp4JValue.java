@@ -219,7 +219,7 @@ class Snmp4JValue extends AbstractSnmpValue {
     public String toDisplayString() {
         switch (m_value.getSyntax()) {
         case SMIConstants.SYNTAX_OBJECT_IDENTIFIER :
-            return SnmpObjId.get(((OID)m_value).getValue()).toString();
+            return SnmpObjId.wrap(((OID)m_value).getValue()).toString();
         case SMIConstants.SYNTAX_TIMETICKS :
             return Long.toString(toLong());
         case SMIConstants.SYNTAX_OCTET_STRING :
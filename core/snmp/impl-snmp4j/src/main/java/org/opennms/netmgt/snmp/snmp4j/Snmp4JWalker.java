@@ -89,6 +89,11 @@ public class Snmp4JWalker extends SnmpWalker {
         @Override
         public void setMaxRepetitions(int maxRepititions) {
         }
+
+        @Override
+        public boolean usesMaxRepetitions() {
+            return false;
+        }
         
     }
     
@@ -143,7 +148,8 @@ public class Snmp4JWalker extends SnmpWalker {
                     if (!processErrors(response.getErrorStatus(), response.getErrorIndex())) {
                         for (int i = 0; i < response.size(); i++) {
                             final VariableBinding vb = response.get(i);
-                            final SnmpObjId receivedOid = SnmpObjId.get(vb.getOid().getValue());
+                            // the response PDU is discarded after this, so share its sub-id array
+                            final SnmpObjId receivedOid = SnmpObjId.wrap(vb.getOid().getValue());
                             final SnmpValue val = new Snmp4JValue(vb.getVariable());
                             Snmp4JWalker.this.processResponse(receivedOid, val);
                         }
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.snmp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.snmp.snmp4j.MockSnmpAgentTestCase;
+import org.opennms.netmgt.snmp.snmp4j.Snmp4JStrategy;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Walks the mock SNMP agent with adaptive walking enabled while the agent
+ * limits the size of its responses.
+ */
+public class AdaptiveWalkTest extends MockSnmpAgentTestCase {
+
+    private static final SnmpObjId MIB2 = SnmpObjId.get(".1.3.6.1.2.1");
+
+    private static final int MAX_REPETITIONS = 50;
+
+    private final Snmp4JStrategy m_strategy = new Snmp4JStrategy();
+
+    private SnmpAgentProfiles m_profiles;
+
+    private static class CountingColumnTracker extends ColumnTracker {
+        private int m_count = 0;
+
+        public CountingColumnTracker(final SnmpObjId base) {
+            super(base);
+        }
+
+        public int getCount() {
+            return m_count;
+        }
+
+        @Override
+        protected void storeResult(final SnmpResult res) {
+            m_count++;
+        }
+    }
+
+    public AdaptiveWalkTest() {
+        setPropertiesResource(new ClassPathResource("snmpTestData1.properties"));
+    }
+
+    @Override
+    protected boolean usingMockStrategy() {
+        return false;
+    }
+
+    @Before
+    public void saveProfiles() {
+        m_profiles = SnmpAgentProfiles.getInstance();
+    }
+
+    @After
+    public void restoreProfiles() {
+        SnmpAgentProfiles.setInstance(m_profiles);
+    }
+
+    @Override
+    protected SnmpAgentConfig getAgentConfig() {
+        final SnmpAgentConfig config = super.getAgentConfig();
+        config.setVersion(SnmpAgentConfig.VERSION2C);
+        config.setMaxRepetitions(MAX_REPETITIONS);
+        return config;
+    }
+
+    private SnmpWalker start(final CountingColumnTracker tracker) {
+        final SnmpWalker walker = m_strategy.createWalker(getAgentConfig(), "mib-2", tracker);
+        walker.start();
+        return walker;
+    }
+
+    private static void finish(final SnmpWalker walker) throws InterruptedException {
+        walker.waitFor(30000);
+        assertFalse(walker.getErrorMessage(), walker.failed());
+    }
+
+    private int walk() throws InterruptedException {
+        final CountingColumnTracker tracker = new CountingColumnTracker(MIB2);
+        finish(start(tracker));
+        return tracker.getCount();
+    }
+
+    @Test
+    public void testWalkWithLimitedResponseSize() throws Exception {
+        SnmpAgentProfiles.setInstance(new SnmpAgentProfiles(false, MAX_REPETITIONS, 4, null));
+        final int expected = walk();
+        assertTrue(expected > MAX_REPETITIONS);
+
+        final SnmpAgentProfiles profiles = new SnmpAgentProfiles(true, MAX_REPETITIONS, 4, null);
+        SnmpAgentProfiles.setInstance(profiles);
+        getAgent().setMaxResponseSize(484);
+
+        assertEquals(expected, walk());
+
+        final SnmpAgentProfile profile = profiles.getProfile(getAgentAddress(), MAX_REPETITIONS);
+        assertTrue("max-repetitions should have been reduced: " + profile, profile.getMaxRepetitions() < MAX_REPETITIONS);
+        assertEquals(0, profile.getOutstanding());
+
+        // a second walk starts from what the first one learned
+        final int learned = profile.getMaxRepetitions();
+        assertEquals(expected, walk());
+        assertTrue("max-repetitions should stay near " + learned + ": " + profile, profile.getMaxRepetitions() <= profile.getRepetitionsCeiling());
+    }
+
+    @Test
+    public void testOutstandingRequestsPerAgentCapped() throws Exception {
+        final SnmpAgentProfiles profiles = new SnmpAgentProfiles(true, MAX_REPETITIONS, 1, null);
+        SnmpAgentProfiles.setInstance(profiles);
+
+        final CountingColumnTracker[] trackers = new CountingColumnTracker[3];
+        final SnmpWalker[] walkers = new SnmpWalker[trackers.length];
+        for (int i = 0; i < trackers.length; i++) {
+            trackers[i] = new CountingColumnTracker(MIB2);
+            walkers[i] = start(trackers[i]);
+        }
+        for (final SnmpWalker walker : walkers) {
+            finish(walker);
+        }
+
+        assertTrue(trackers[0].getCount() > 0);
+        for (final CountingColumnTracker tracker : trackers) {
+            assertEquals(trackers[0].getCount(), tracker.getCount());
+        }
+        final SnmpAgentProfile profile = profiles.getProfile(getAgentAddress(), MAX_REPETITIONS);
+        assertEquals(0, profile.getOutstanding());
+        assertEquals(0, profile.getPending());
+    }
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.snmp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SnmpAgentProfileTest {
+
+    private static final long FAST = 1000L * 1000L;
+    private static final long SLOW = 500L * 1000L * 1000L;
+
+    private final InetAddress m_address = InetAddrUtils.addr("192.168.1.1");
+
+    private static void respond(final SnmpAgentProfile profile, final int times) {
+        for (int i = 0; i < times; i++) {
+            final int requested = profile.getMaxRepetitions();
+            profile.responseReceived(FAST, requested, requested);
+        }
+    }
+
+    @Test
+    public void testGrowsOnFullResponses() {
+        final SnmpAgentProfile profile = new SnmpAgentProfile(m_address, 10, 50, 4);
+        respond(profile, SnmpAgentProfile.GROW_AFTER - 1);
+        assertEquals(10, profile.getMaxRepetitions());
+        respond(profile, 1);
+        assertEquals(11, profile.getMaxRepetitions());
+    }
+
+    @Test
+    public void testNeverGrowsPastLimit() {
+        final SnmpAgentProfile profile = new SnmpAgentProfile(m_address, 100, 20, 4);
+        assertEquals(20, profile.getMaxRepetitions());
+        respond(profile, SnmpAgentProfile.PROBE_AFTER * 2);
+        assertEquals(20, profile.getMaxRepetitions());
+    }
+
+    @Test
+    public void testShrinksToTruncatedResponse() {
+        final SnmpAgentProfile profile = new SnmpAgentProfile(m_address, 10, 50, 4);
+        // two columns, 10 repetitions each, only 8 varbinds fit
+        profile.responseReceived(FAST, 20, 8);
+        assertEquals(4, profile.getMaxRepetitions());
+    }
+
+    @Test
+    public void testTooBigSetsCeiling() {
+        final SnmpAgentProfile profile = new SnmpAgentProfile(m_address, 10, 50, 4);
+        profile.tooBig(10, 10);
+        assertEquals(5, profile.getMaxRepetitions());
+        assertEquals(9, profile.getRepetitionsCeiling());
+
+        respond(profile, SnmpAgentProfile.GROW_AFTER * 4);
+        assertEquals(9, profile.getMaxRepetitions());
+
+        // stays below the size that was too big until the ceiling is probed
+        respond(profile, SnmpAgentProfile.PROBE_AFTER - 1);
+        assertEquals(9, profile.getMaxRepetitions());
+        respond(profile, 1);
+        assertEquals(10, profile.getMaxRepetitions());
+        assertEquals(10, profile.getRepetitionsCeiling());
+    }
+
+    @Test
+    public void testTooBigWithoutRepetitions() {
+        final SnmpAgentProfile profile = new SnmpAgentProfile(m_address, 1, 50, 4);
+        assertEquals(10, profile.getMaxVarsPerPdu(10));
+        profile.tooBig(1, 8);
+        assertEquals(8, profile.getMaxVarsPerPdu(10));
+        assertEquals(5, profile.getMaxVarsPerPdu(5));
+    }
+
+    @Test
+    public void testShrinksOnTimeoutsAndSlowResponses() {
+        final SnmpAgentProfile profile = new SnmpAgentProfile(m_address, 40, 50, 4);
+        profile.timedOut();
+        assertEquals(20, profile.getMaxRepetitions());
+
+        profile.responseReceived(FAST, 20, 20);
+        profile.responseReceived(SLOW, 20, 20);
+        assertEquals(15, profile.getMaxRepetitions());
+
+        for (int i = 0; i < 10; i++) {
+            profile.timedOut();
+        }
+        assertEquals(1, profile.getMaxRepetitions());
+    }
+
+    @Test
+    public void testOutstandingRequestsCapped() {
+        final SnmpAgentProfile profile = new SnmpAgentProfile(m_address, 10, 50, 2);
+        final AtomicInteger sent = new AtomicInteger();
+        final Runnable send = new Runnable() {
+            @Override
+            public void run() {
+                sent.incrementAndGet();
+            }
+        };
+
+        profile.send(send);
+        profile.send(send);
+        profile.send(send);
+        assertEquals(2, sent.get());
+        assertEquals(2, profile.getOutstanding());
+        assertEquals(1, profile.getPending());
+
+        profile.release();
+        assertEquals(3, sent.get());
+        assertEquals(2, profile.getOutstanding());
+        assertEquals(0, profile.getPending());
+
+        profile.release();
+        profile.release();
+        assertEquals(0, profile.getOutstanding());
+    }
+
+    @Test
+    public void testProfilesAreSaved() throws Exception {
+        final File file = File.createTempFile("snmp-agent-profiles", ".properties");
+        file.delete();
+        try {
+            final SnmpAgentProfiles profiles = new SnmpAgentProfiles(true, 50, 4, file);
+            profiles.getProfile(m_address, 10).tooBig(10, 10);
+            profiles.getProfile(InetAddrUtils.addr("192.168.1.2"), 10).tooBig(1, 3);
+            profiles.save();
+
+            final SnmpAgentProfiles loaded = new SnmpAgentProfiles(true, 50, 4, file);
+            final SnmpAgentProfile profile = loaded.getProfile(m_address, 30);
+            assertEquals(5, profile.getMaxRepetitions());
+            assertEquals(9, profile.getRepetitionsCeiling());
+            assertEquals(3, loaded.getProfile(InetAddrUtils.addr("192.168.1.2"), 10).getMaxVarsPerPdu(10));
+
+            // agents without a saved profile start from the configured value
+            assertEquals(30, loaded.getProfile(InetAddrUtils.addr("192.168.1.3"), 30).getMaxRepetitions());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -133,6 +133,39 @@ public class SnmpObjIdTest extends TestCase {
         SnmpObjId oid2 = SnmpObjId.get(".1.3.5.7.0");
         assertEquals(oid, oid2.decrement());
     }
+
+    public void testInstanceAndPrefixViews() {
+        SnmpObjId base = SnmpObjId.get(".1.3.6.1.2.1.31.1.1.1.6");
+        SnmpObjId received = SnmpObjId.wrap(new int[] {1, 3, 6, 1, 2, 1, 31, 1, 1, 1, 6, 42, 7});
+
+        assertTrue(base.isStrictPrefixOf(received));
+        assertFalse(base.isStrictPrefixOf(base));
+        assertFalse(received.isStrictPrefixOf(base));
+
+        SnmpInstId inst = received.getInstance(base);
+        assertEquals(new SnmpInstId("42.7"), inst);
+        assertEquals(new SnmpInstId("42.7").hashCode(), inst.hashCode());
+        assertEquals("42.7", inst.toString());
+        assertEquals(2, inst.length());
+        assertEquals(7, inst.getLastSubId());
+        assertArrayEquals(new int[] {42, 7}, inst.getIds());
+        assertEquals(SnmpObjId.get(".1.3.6.1.2.1.31.1.1.1.6.42.7"), base.append(inst));
+
+        SnmpObjId prefix = received.getPrefix(11);
+        assertEquals(base, prefix);
+        assertEquals(base.hashCode(), prefix.hashCode());
+        assertEquals(".1.3.6.1.2.1.31.1.1.1.6", prefix.toString());
+        assertTrue(prefix.isPrefixOf(received));
+        assertEquals(SnmpObjId.get(".1.3.6.1.2.1.31.1.1.1.5"), prefix.decrement());
+        assertEquals(prefix, SnmpObjId.get(prefix, "0").decrement());
+
+        try {
+            inst.getSubIdAt(2);
+            fail("Expected ArrayIndexOutOfBoundsException");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            
+        }
+    }
     
     
 
@@ -29,6 +29,7 @@
 package org.opennms.netmgt.snmp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -37,6 +38,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Ignore;
@@ -201,6 +205,50 @@ public class SnmpTrackerTest implements InitializingBean {
         assertEquals("number of columns returned must match test data", Long.valueOf(6).longValue(), ct.getCount());
     }
  
+    @Test
+    public void testWalkCallbackCalledOnce() throws Exception {
+        final CountingColumnTracker ct = new CountingColumnTracker(SnmpObjId.get(".1.3.6.1.2.1.2.2.1.1"));
+        final SnmpWalker walker = walkWithCallback("172.20.1.205", ct);
+
+        assertFalse("walk must not fail", walker.failed());
+        assertEquals("number of columns returned must match test data", Long.valueOf(6).longValue(), ct.getCount());
+    }
+
+    @Test
+    public void testWalkCallbackCalledOnceOnTimeout() throws Exception {
+        // there is no mock data for this address so the request times out
+        final CountingColumnTracker ct = new CountingColumnTracker(SnmpObjId.get(".1.3.6.1.2.1.2.2.1.1"));
+        final SnmpWalker walker = walkWithCallback("172.20.1.206", ct);
+
+        assertTrue("walk must fail", walker.failed() || walker.timedOut());
+        assertEquals(0, ct.getCount());
+    }
+
+    private SnmpWalker walkWithCallback(final String host, final CollectionTracker c) throws Exception {
+        final SnmpAgentConfig config = m_snmpPeerFactory.getAgentConfig(InetAddressUtils.addr(host));
+        config.setVersion(SnmpAgentConfig.VERSION2C);
+        final SnmpWalker walker = SnmpUtils.createWalker(config, "test", c);
+        assertNotNull(walker);
+
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        walker.setCallback(new SnmpWalkCallback() {
+            @Override
+            public void complete(final SnmpWalker w) {
+                calls.incrementAndGet();
+                latch.countDown();
+            }
+        });
+        walker.start();
+
+        assertTrue("callback was not called", latch.await(30, TimeUnit.SECONDS));
+        walker.waitFor();
+        // give a second callback a chance to show up
+        Thread.sleep(200);
+        assertEquals("callback calls", 1, calls.get());
+        return walker;
+    }
+
     @Test
     public void testTableTrackerWithFullTable() throws Exception {
     	final TestRowCallback rc = new TestRowCallback();
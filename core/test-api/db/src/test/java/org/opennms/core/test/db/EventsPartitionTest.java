@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.core.test.db;
+
+import org.opennms.core.db.install.Constraint;
+import org.opennms.core.db.install.InstallerDb;
+import org.opennms.core.utils.DBUtils;
+
+public class EventsPartitionTest extends PopulatedTemporaryDatabaseTestCase {
+
+    @Override
+    public void tearDown() throws Exception {
+        if (isEnabled()) {
+            getInstallerDb().closeConnection();
+        }
+        super.tearDown();
+    }
+
+    public void testPartitionEvents() throws Exception {
+        insertEvent(1, "now() - interval '60 days'");
+
+        assertFalse(getInstallerDb().isEventsPartitioned());
+        getInstallerDb().partitionEvents("day", 1);
+        assertTrue(getInstallerDb().isEventsPartitioned());
+
+        assertEquals("foreign keys referencing events", 0, jdbcTemplate.queryForInt("SELECT count(*) FROM pg_constraint WHERE contype = 'f' AND confrelid = 'events'::regclass"));
+        assertEquals("current and next day partitions", 2, jdbcTemplate.queryForInt("SELECT count(*) FROM pg_class WHERE relname ~ '^events_p[0-9]{8}$'"));
+
+        insertEvent(2, "now()");
+
+        assertEquals("events visible through the parent table", 2, jdbcTemplate.queryForInt("SELECT count(*) FROM events"));
+        assertEquals("existing event stays in the parent table", 1, jdbcTemplate.queryForInt("SELECT eventid FROM ONLY events"));
+        assertEquals(jdbcTemplate.queryForObject("SELECT events_partition_name(now())", String.class),
+                     jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM events WHERE eventid = 2", String.class));
+
+        // a second run with the same interval is harmless, another interval is refused
+        getInstallerDb().partitionEvents("day", 1);
+        try {
+            getInstallerDb().partitionEvents("week", 1);
+            fail("changing the partition interval should fail");
+        } catch (final Exception e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("already partitioned by day"));
+        }
+    }
+
+    public void testCreateTablesAfterPartitioning() throws Exception {
+        getInstallerDb().partitionEvents("day", 1);
+        resetOutputStream();
+
+        // the dropped foreign keys must not make the tables that referenced events look out of date
+        getInstallerDb().createTables();
+
+        final String output = getOutputStream().toString();
+        for (final String table : new String[] { "events", "outages", "notifications", "alarms" }) {
+            assertTrue(output, output.contains("checking table \"" + table + "\"... UPTODATE"));
+        }
+        assertEquals("foreign keys referencing events", 0, jdbcTemplate.queryForInt("SELECT count(*) FROM pg_constraint WHERE contype = 'f' AND confrelid = 'events'::regclass"));
+        assertTrue(getInstallerDb().isEventsPartitioned());
+
+        for (final Constraint constraint : getInstallerDb().getForeignKeyConstraints()) {
+            assertFalse(constraint.getName(), "events".equalsIgnoreCase(constraint.getForeignTable()));
+        }
+    }
+
+    public void testMaintainEventPartitions() throws Exception {
+        insertEvent(1, "now() - interval '60 days'");
+        getInstallerDb().partitionEvents("day", 1);
+        insertEvent(2, "now()");
+        insertEvent(3, "now()");
+        insertEvent(4, "now()");
+        executeSQL("INSERT INTO alarms (alarmID, eventUei, dpName, counter, severity, lastEventID) VALUES (1, 'uei.opennms.org/test', 'localhost', 1, 1, 3)");
+        executeSQL("INSERT INTO notifications (notifyID, textMsg, eventID, eventUEI) VALUES (1, 'test', 4, 'uei.opennms.org/test')");
+
+        // nothing is old enough yet
+        assertEquals(0, getInstallerDb().maintainEventPartitions("6 weeks", 1, false));
+        assertEquals(3, jdbcTemplate.queryForInt("SELECT count(*) FROM events"));
+
+        // a negative retention puts the cutoff after today's partition
+        final String today = jdbcTemplate.queryForObject("SELECT events_partition_name(now())", String.class);
+        assertEquals(1, getInstallerDb().maintainEventPartitions("-1 day", 1, false));
+        assertEquals("retired partition dropped", 0, jdbcTemplate.queryForInt("SELECT count(*) FROM pg_class WHERE relname = ?", today));
+        assertEquals("referenced events retained", 7, jdbcTemplate.queryForInt("SELECT sum(eventid) FROM " + InstallerDb.EVENTS_RETAINED_PARTITION));
+        assertEquals(2, jdbcTemplate.queryForInt("SELECT count(*) FROM events"));
+
+        // once nothing references them, the retained events expire as well
+        executeSQL("DELETE FROM alarms");
+        executeSQL("DELETE FROM notifications");
+        getInstallerDb().maintainEventPartitions("-1 day", 1, false);
+        assertEquals(0, jdbcTemplate.queryForInt("SELECT count(*) FROM events"));
+    }
+
+    public void testMaintainDetachesPartitions() throws Exception {
+        getInstallerDb().partitionEvents("week", 0);
+        insertEvent(1, "now()");
+
+        final String thisWeek = jdbcTemplate.queryForObject("SELECT events_partition_name(now())", String.class);
+        assertEquals(1, getInstallerDb().maintainEventPartitions("-8 days", 0, true));
+        assertEquals(0, jdbcTemplate.queryForInt("SELECT count(*) FROM events"));
+        assertEquals("detached partition keeps its rows", 1, jdbcTemplate.queryForInt("SELECT count(*) FROM " + thisWeek));
+    }
+
+    public void testEstimatedRowCountIncludesPartitions() throws Exception {
+        getInstallerDb().partitionEvents("day", 1);
+        for (int i = 1; i <= 10; i++) {
+            insertEvent(i, "now()");
+        }
+        executeSQL("ANALYZE events");
+        executeSQL("ANALYZE " + jdbcTemplate.queryForObject("SELECT events_partition_name(now())", String.class));
+
+        assertEquals("rows left in the parent table", 0, jdbcTemplate.queryForInt("SELECT count(*) FROM ONLY events"));
+        assertEquals("estimate summed over the partitions", 10, jdbcTemplate.queryForInt(DBUtils.ESTIMATE_ROW_COUNT_SQL, "events", "events"));
+
+        // tables without children are estimated as before
+        executeSQL("INSERT INTO alarms (alarmID, eventUei, dpName, counter, severity) VALUES (1, 'uei.opennms.org/test', 'localhost', 1, 1)");
+        executeSQL("ANALYZE alarms");
+        assertEquals(1, jdbcTemplate.queryForInt(DBUtils.ESTIMATE_ROW_COUNT_SQL, "alarms", "alarms"));
+    }
+
+    private void insertEvent(final int eventId, final String eventTime) {
+        executeSQL("INSERT INTO events (eventID, eventUei, eventTime, eventSource, eventDpName, eventCreateTime, eventSeverity, eventLog, eventDisplay) "
+                   + "VALUES (" + eventId + ", 'uei.opennms.org/test', " + eventTime + ", 'test', 'localhost', now(), 1, 'Y', 'Y')");
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.poller;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * A {@link ServiceMonitor} that can poll without blocking the calling thread.
+ * </p>
+ *
+ * <p>
+ * The poller calls {@link #poll(MonitoredService, Map, PollStatusCallback)}
+ * from one of its scheduler threads. The monitor starts the poll and returns
+ * right away, then reports the result through the callback once the poll is
+ * complete, timed out or failed. The callback is usually invoked from the
+ * monitor's own I/O thread, so it must not block.
+ * </p>
+ *
+ * <p>
+ * The synchronous {@link ServiceMonitor#poll(MonitoredService, Map)} must
+ * still be implemented, it is used by the callers that need the result
+ * in-line, such as the remote poller and the critical service checks.
+ * </p>
+ *
+ * @version $Id: $
+ */
+public interface AsyncServiceMonitor extends ServiceMonitor {
+
+    /**
+     * Starts polling the service. Exactly one call to
+     * {@link PollStatusCallback#complete(org.opennms.netmgt.model.PollStatus)}
+     * is made for each call to this method, including when the poll cannot
+     * be started.
+     *
+     * @param svc the service to poll
+     * @param parameters
+     *            The package parameters (timeout, retry, etc...) to be used for
+     *            this poll.
+     * @param callback receives the result of the poll
+     */
+    public void poll(MonitoredService svc, Map<String, Object> parameters, PollStatusCallback callback);
+}
@@ -74,7 +74,7 @@ public class AvailCalculations extends Object {
      * Castor object that holds all the information required for the generating
      * xml to be translated to the pdf.
      */
-    private static Report m_report = null;
+    private Report m_report = null;
 
     /**
      * End time
@@ -38,11 +38,16 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.exolab.castor.xml.MarshalException;
 import org.exolab.castor.xml.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
 import org.opennms.core.logging.Logging;
 import org.opennms.netmgt.config.CategoryFactory;
 import org.opennms.netmgt.config.categories.CatFactory;
@@ -104,6 +109,25 @@ public class AvailabilityData {
     */
     
     private AvailabilityDataService m_availabilityDataService;
+
+    /**
+     * Number of categories computed at the same time
+     */
+    private int m_threads = Integer.getInteger("org.opennms.reporting.availability.threads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The computed report content for one category, before it is numbered
+     * into the report.
+     */
+    private static class CategoryResult {
+        private final List<Node> m_nodes;
+        private final Report m_report;
+
+        public CategoryResult(final List<Node> nodes, final Report report) {
+            m_nodes = nodes;
+            m_report = report;
+        }
+    }
     
     // This version used when end date availalable as strings (from command line?)
     
@@ -198,39 +222,33 @@ public class AvailabilityData {
                 
                 LOG.debug("CATEGORY {}", categoryName);
                 
+                // the categories are computed without holding the read lock,
+                // so a configuration reload cannot block the worker threads
+                final List<org.opennms.netmgt.config.categories.Category> cats = new ArrayList<org.opennms.netmgt.config.categories.Category>();
                 m_catFactory.getReadLock().lock();
                 try {
                     if (categoryName.equals("") || categoryName.equals("all")) {
-                        int catCount = 0;
-                        LOG.debug("catCount {}", catCount);
-                        
                         for(final Categorygroup cg : config.getCategorygroupCollection()) {
-                        
-                            for(org.opennms.netmgt.config.categories.Category cat : cg.getCategories().getCategoryCollection()) {
-                
-                                LOG.debug("CATEGORY {}", cat.getLabel());
-                                catCount++;
-                                populateDataStructures(cat, report, format, monthFormat, catCount);
-                            }
+                            cats.addAll(cg.getCategories().getCategoryCollection());
                         }
-                        LOG.debug("catCount {}", catCount);
+                        LOG.debug("catCount {}", cats.size());
                     } else {
-                        org.opennms.netmgt.config.categories.Category cat = (org.opennms.netmgt.config.categories.Category) m_catFactory.getCategory(categoryName);
-                        LOG.debug("CATEGORY - now populating data structures {}", cat.getLabel());
-                        populateDataStructures(cat, report, format, monthFormat, 1);
+                        cats.add((org.opennms.netmgt.config.categories.Category) m_catFactory.getCategory(categoryName));
                     }
-                
-                    final SimpleDateFormat simplePeriod = new SimpleDateFormat("MMMMMMMMMMM dd, yyyy");
-                    final String reportPeriod = simplePeriod.format(new java.util.Date(m_startTime)) + " - " + simplePeriod.format(new java.util.Date(m_endTime));
-                    Created created = report.getCreated();
-                    if (created == null) {
-                        created = new Created();
-                    }
-                    created.setPeriod(reportPeriod);
-                    report.setCreated(created);
                 } finally {
                     m_catFactory.getReadLock().unlock();
                 }
+
+                populateDataStructures(cats, report, format, monthFormat);
+
+                final SimpleDateFormat simplePeriod = new SimpleDateFormat("MMMMMMMMMMM dd, yyyy");
+                final String reportPeriod = simplePeriod.format(new java.util.Date(m_startTime)) + " - " + simplePeriod.format(new java.util.Date(m_endTime));
+                Created created = report.getCreated();
+                if (created == null) {
+                    created = new Created();
+                }
+                created.setPeriod(reportPeriod);
+                report.setCreated(created);
                 
                 LOG.debug("After availCalculations");
                 return null;
@@ -239,39 +257,113 @@ public class AvailabilityData {
 
     }
 
+    /**
+     * Computes the given categories, up to m_threads of them at the same
+     * time, and adds them to the report in order.
+     */
+    private void populateDataStructures(
+            final List<org.opennms.netmgt.config.categories.Category> cats,
+            final Report report, final String format, final String monthFormat)
+            throws Exception {
+
+        if (m_availabilityDataService == null) {
+            LOG.debug("DATA SERVICE IS NULL");
+            throw new IllegalStateException("Data service is null");
+        }
+
+        final int threads = Math.max(1, Math.min(m_threads, cats.size()));
+        if (threads == 1) {
+            int catIndex = 0;
+            for (final org.opennms.netmgt.config.categories.Category cat : cats) {
+                catIndex++;
+                LOG.debug("CATEGORY - now populating data structures {}", cat.getLabel());
+                addCategory(report, populateDataStructures(cat, format, monthFormat, catIndex), catIndex);
+            }
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new LogPreservingThreadFactory(getClass().getSimpleName(), threads, true));
+        try {
+            final List<Future<CategoryResult>> results = new ArrayList<Future<CategoryResult>>(cats.size());
+            int catIndex = 0;
+            for (final org.opennms.netmgt.config.categories.Category cat : cats) {
+                final int index = ++catIndex;
+                results.add(executor.submit(new Callable<CategoryResult>() {
+                    @Override
+                    public CategoryResult call() throws Exception {
+                        LOG.debug("CATEGORY - now populating data structures {}", cat.getLabel());
+                        return populateDataStructures(cat, format, monthFormat, index);
+                    }
+                }));
+            }
+
+            catIndex = 0;
+            for (final Future<CategoryResult> result : results) {
+                catIndex++;
+                try {
+                    addCategory(report, result.get(), catIndex);
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw new Exception(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds the category computed by
+     * {@link #populateDataStructures(org.opennms.netmgt.config.categories.Category, String, String, int)}
+     * to the report, numbering its sections after the ones already there.
+     */
+    private void addCategory(final Report report, final CategoryResult result, final int catIndex) {
+        report.setCatCount(catIndex);
+
+        for (final org.opennms.reporting.availability.Category category : result.m_report.getCategories().getCategory()) {
+            for (final CatSections catSections : category.getCatSections()) {
+                for (final Section section : catSections.getSection()) {
+                    section.setSectionIndex(m_sectionIndex + section.getSectionIndex());
+                }
+            }
+            report.getCategories().addCategory(category);
+        }
+
+        m_sectionIndex += result.m_report.getSectionCount() + 1;
+        report.setSectionCount(m_sectionIndex - 1);
+        m_nodes = result.m_nodes;
+    }
+
     /**
      * Populates the data structure for this category. This method only
-     * computes for monitored services in this category.
+     * computes for monitored services in this category. The sections of
+     * the returned report are numbered from 0.
      * 
      * @param cat
      *            Category
-     * @param report
-     *            Report Castor class
      * @param format
      *            SVG-specific/all reports
      */
-    private void populateDataStructures(
-            org.opennms.netmgt.config.categories.Category cat, Report report,
+    private CategoryResult populateDataStructures(
+            org.opennms.netmgt.config.categories.Category cat,
             String format, String monthFormat, int catIndex) throws Exception {
 
         LOG.debug("Inside populate data Structures {}", catIndex);
-        report.setCatCount(catIndex);
-        LOG.debug("Inside populate data Structures");
+        final Report report = new Report();
+        report.setCategories(new org.opennms.reporting.availability.Categories());
         try {
 
             List<String> monitoredServices = new ArrayList<String>(cat.getServiceCollection());
 
-            if (m_availabilityDataService == null) {
-                LOG.debug("DATA SERVICE IS NULL");
-                throw new IllegalStateException("Data service is null");
-            }
-            m_nodes = m_availabilityDataService.getNodes(cat, m_startTime, m_endTime);
+            List<Node> nodes = m_availabilityDataService.getNodes(cat, m_startTime, m_endTime);
             
-            LOG.debug("Nodes {}", m_nodes);
+            LOG.debug("Nodes {}", nodes);
             
             // remove all the nodes that do not have outages
             
-            ListIterator<Node> cleanNodes = m_nodes.listIterator();
+            ListIterator<Node> cleanNodes = nodes.listIterator();
             while (cleanNodes.hasNext()) {
                 Node node = (Node) cleanNodes.next();
                 if (node != null && !node.hasOutages()) {
@@ -279,17 +371,17 @@ public class AvailabilityData {
                     cleanNodes.remove();
                 }
             }
-            LOG.debug("Cleaned Nodes {}", m_nodes);
+            LOG.debug("Cleaned Nodes {}", nodes);
             
-            TreeMap<Double, List<String>> topOffenders = getPercentNode();
+            TreeMap<Double, List<String>> topOffenders = getPercentNode(nodes);
 
             LOG.debug("TOP OFFENDERS {}", topOffenders);
-            if (m_nodes.size() <= 0) {
-                m_nodes = null;
+            if (nodes.size() <= 0) {
+                nodes = null;
             }
-            if (m_nodes != null) {
+            if (nodes != null) {
                 AvailCalculations availCalculations = new AvailCalculations(
-                                                                            m_nodes,
+                                                                            nodes,
                                                                             m_endTime,
                                                                             m_lastMonthEndTime,
                                                                             monitoredServices,
@@ -302,9 +394,8 @@ public class AvailabilityData {
                                                                             format,
                                                                             monthFormat,
                                                                             catIndex,
-                                                                            m_sectionIndex);
-                m_sectionIndex = availCalculations.getSectionIndex();
-                report.setSectionCount(m_sectionIndex - 1);
+                                                                            0);
+                report.setSectionCount(availCalculations.getSectionIndex() - 1);
             } else {
                 org.opennms.reporting.availability.Category category = new org.opennms.reporting.availability.Category();
                 category.setCatComments(cat.getComment());
@@ -314,16 +405,14 @@ public class AvailabilityData {
                 category.setIpaddrCount(0);
                 category.setServiceCount(0);
                 Section section = new Section();
-                section.setSectionIndex(m_sectionIndex);
+                section.setSectionIndex(0);
                 org.opennms.reporting.availability.CatSections catSections = new org.opennms.reporting.availability.CatSections();
                 catSections.addSection(section);
                 category.addCatSections(catSections);
-                org.opennms.reporting.availability.Categories categories = report.getCategories();
-                categories.addCategory(category);
-                report.setCategories(categories);
-                report.setSectionCount(m_sectionIndex);
-                m_sectionIndex++;
+                report.getCategories().addCategory(category);
+                report.setSectionCount(0);
             }
+            return new CategoryResult(nodes, report);
         } catch (Throwable e) {
             LOG.error("Exception has occurred", e);
             throw new Exception(e);
@@ -394,6 +483,10 @@ public class AvailabilityData {
      * @return a {@link java.util.TreeMap} object.
      */
     public TreeMap<Double, List<String>> getPercentNode() {
+        return getPercentNode(m_nodes);
+    }
+
+    private TreeMap<Double, List<String>> getPercentNode(final List<Node> nodes) {
         int days = m_daysInLastMonth;
         long endTime = m_lastMonthEndTime;
         Calendar cal = new GregorianCalendar();
@@ -405,7 +498,7 @@ public class AvailabilityData {
         LOG.debug("getPercentNode: End time {}", new java.util.Date(endTime));
         TreeMap<Double, List<String>> percentNode = new TreeMap<Double, List<String>>();
         
-        for(Node node : m_nodes) {
+        for(Node node : nodes) {
             if (node != null) {
                 double percent = node.getPercentAvail(endTime, rollingWindow);
                 String nodeName = node.getName();
@@ -435,4 +528,13 @@ public class AvailabilityData {
         LOG.debug("setting m_availabilityDataService");
         m_availabilityDataService = availabilityDataService;
     }
+
+    /**
+     * <p>setThreads</p>
+     *
+     * @param threads the number of categories to compute at the same time
+     */
+    public void setThreads(final int threads) {
+        m_threads = threads;
+    }
 }
@@ -80,9 +80,14 @@ public class LegacyAvailabilityDataService implements AvailabilityDataService {
     public LegacyAvailabilityDataService() {
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * Synchronized because the nodes and the connection are kept in fields
+     * while they are loaded.
+     */
     @Override
-    public List<Node> getNodes(final org.opennms.netmgt.config.categories.Category category, final long startTime, final long endTime) throws AvailabilityDataServiceException {
+    public synchronized List<Node> getNodes(final org.opennms.netmgt.config.categories.Category category, final long startTime, final long endTime) throws AvailabilityDataServiceException {
         try {
             return Logging.withPrefix(LOG4J_CATEGORY, new Callable<List<Node>>() {
                 @Override public List<Node> call() throws Exception {
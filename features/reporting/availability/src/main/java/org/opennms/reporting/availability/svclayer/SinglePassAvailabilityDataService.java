@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.reporting.availability.svclayer;
+
+import static org.opennms.core.utils.InetAddressUtils.str;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.opennms.core.db.DataSourceFactory;
+import org.opennms.core.logging.Logging;
+import org.opennms.core.utils.DBUtils;
+import org.opennms.netmgt.config.CategoryFactory;
+import org.opennms.netmgt.filter.FilterDaoFactory;
+import org.opennms.reporting.datablock.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>An {@link AvailabilityDataService} that reads the managed interfaces,
+ * services and outages for the reporting window in one pass and then builds
+ * the nodes of every category from memory. Unlike
+ * {@link LegacyAvailabilityDataService} it does not query the database per
+ * IP address and service, and it is safe to call from several threads at
+ * once, so the categories of a report can be computed in parallel.</p>
+ *
+ * <p>The nodes it returns are the same as the ones the legacy service
+ * returns for the same database.</p>
+ */
+public class SinglePassAvailabilityDataService implements AvailabilityDataService {
+    private static final Logger LOG = LoggerFactory.getLogger(SinglePassAvailabilityDataService.class);
+
+    private static final String LOG4J_CATEGORY = "reports";
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String DB_GET_MANAGED_INTERFACES = "SELECT ipinterface.ipaddr, node.nodeid, node.nodelabel, node.nodetype FROM node, ipinterface WHERE ipinterface.nodeid = node.nodeid AND ipinterface.ismanaged = 'M' ORDER BY ipinterface.id";
+
+    private static final String DB_GET_ACTIVE_SERVICES = "SELECT ifservices.nodeid, ifservices.ipaddr, ifservices.serviceid, service.servicename FROM ifservices, service WHERE ifservices.serviceid = service.serviceid AND ifservices.status = 'A' ORDER BY ifservices.id";
+
+    private static final String DB_GET_OUTAGES = "SELECT nodeid, ipaddr, serviceid, iflostservice, ifregainedservice FROM outages WHERE iflostservice < ? AND (ifregainedservice IS NULL OR ifregainedservice > ?) ORDER BY outageid";
+
+    private OutageIndex m_index;
+
+    /**
+     * A node that has a managed interface with a given address.
+     */
+    private static class NodeEntry {
+        private final int m_nodeId;
+        private final String m_nodeLabel;
+
+        public NodeEntry(final int nodeId, final String nodeLabel) {
+            m_nodeId = nodeId;
+            m_nodeLabel = nodeLabel;
+        }
+    }
+
+    /**
+     * An active service on an interface, with the lost and regained times of
+     * its outages in the reporting window. A regained time of 0 means the
+     * outage is still open.
+     */
+    private static class ServiceEntry {
+        private final int m_serviceId;
+        private final String m_serviceName;
+        private long[] m_lost = new long[0];
+        private long[] m_regained = new long[0];
+        private int m_outageCount;
+
+        public ServiceEntry(final int serviceId, final String serviceName) {
+            m_serviceId = serviceId;
+            m_serviceName = serviceName;
+        }
+
+        public void addOutage(final long lost, final long regained) {
+            if (m_outageCount == m_lost.length) {
+                final int capacity = Math.max(4, m_outageCount * 2);
+                final long[] newLost = new long[capacity];
+                final long[] newRegained = new long[capacity];
+                System.arraycopy(m_lost, 0, newLost, 0, m_outageCount);
+                System.arraycopy(m_regained, 0, newRegained, 0, m_outageCount);
+                m_lost = newLost;
+                m_regained = newRegained;
+            }
+            m_lost[m_outageCount] = lost;
+            m_regained[m_outageCount] = regained;
+            m_outageCount++;
+        }
+    }
+
+    /**
+     * Everything the reports need for one window, keyed the way the legacy
+     * queries look it up.
+     */
+    private static class OutageIndex {
+        private final long m_startTime;
+        private final long m_endTime;
+
+        // active nodes with a managed interface on each address
+        private final Map<String, List<NodeEntry>> m_nodesByAddress = new HashMap<String, List<NodeEntry>>();
+
+        // managed interfaces per address, whatever the node type
+        private final Map<String, Integer> m_managedCount = new HashMap<String, Integer>();
+
+        // active services per node ID and address
+        private final Map<String, List<ServiceEntry>> m_services = new HashMap<String, List<ServiceEntry>>();
+
+        public OutageIndex(final long startTime, final long endTime) {
+            m_startTime = startTime;
+            m_endTime = endTime;
+        }
+
+        public boolean covers(final long startTime, final long endTime) {
+            return m_startTime == startTime && m_endTime == endTime;
+        }
+
+        public List<NodeEntry> getNodes(final String ipAddr) {
+            return m_nodesByAddress.get(ipAddr);
+        }
+
+        public int getManagedCount(final String ipAddr) {
+            final Integer count = m_managedCount.get(ipAddr);
+            return count == null ? 0 : count;
+        }
+
+        public List<ServiceEntry> getServices(final int nodeId, final String ipAddr) {
+            return m_services.get(key(nodeId, ipAddr));
+        }
+
+        private static String key(final int nodeId, final String ipAddr) {
+            return nodeId + "/" + ipAddr;
+        }
+
+        public void load(final Connection conn, final DBUtils db) throws SQLException {
+            int interfaces = 0;
+            PreparedStatement stmt = conn.prepareStatement(DB_GET_MANAGED_INTERFACES);
+            db.watch(stmt);
+            stmt.setFetchSize(FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            db.watch(rs);
+            while (rs.next()) {
+                final String ipAddr = rs.getString(1);
+                final Integer count = m_managedCount.get(ipAddr);
+                m_managedCount.put(ipAddr, count == null ? 1 : count + 1);
+                if ("A".equals(rs.getString(4))) {
+                    List<NodeEntry> nodes = m_nodesByAddress.get(ipAddr);
+                    if (nodes == null) {
+                        nodes = new ArrayList<NodeEntry>(1);
+                        m_nodesByAddress.put(ipAddr, nodes);
+                    }
+                    nodes.add(new NodeEntry(rs.getInt(2), rs.getString(3)));
+                }
+                interfaces++;
+            }
+
+            int services = 0;
+            final Map<String, ServiceEntry> serviceIndex = new HashMap<String, ServiceEntry>();
+            stmt = conn.prepareStatement(DB_GET_ACTIVE_SERVICES);
+            db.watch(stmt);
+            stmt.setFetchSize(FETCH_SIZE);
+            rs = stmt.executeQuery();
+            db.watch(rs);
+            while (rs.next()) {
+                final String key = key(rs.getInt(1), rs.getString(2));
+                final ServiceEntry service = new ServiceEntry(rs.getInt(3), rs.getString(4));
+                List<ServiceEntry> entries = m_services.get(key);
+                if (entries == null) {
+                    entries = new ArrayList<ServiceEntry>(2);
+                    m_services.put(key, entries);
+                }
+                entries.add(service);
+                serviceIndex.put(key + "/" + service.m_serviceId, service);
+                services++;
+            }
+
+            int outages = 0;
+            stmt = conn.prepareStatement(DB_GET_OUTAGES);
+            db.watch(stmt);
+            stmt.setFetchSize(FETCH_SIZE);
+            stmt.setTimestamp(1, new Timestamp(m_endTime));
+            stmt.setTimestamp(2, new Timestamp(m_startTime));
+            rs = stmt.executeQuery();
+            db.watch(rs);
+            while (rs.next()) {
+                final ServiceEntry service = serviceIndex.get(key(rs.getInt(1), rs.getString(2)) + "/" + rs.getInt(3));
+                if (service == null) {
+                    continue;
+                }
+                final Timestamp regained = rs.getTimestamp(5);
+                service.addOutage(rs.getTimestamp(4).getTime(), regained == null ? 0 : regained.getTime());
+                outages++;
+            }
+
+            LOG.debug("Loaded {} managed interfaces, {} active services and {} outages between {} and {}", interfaces, services, outages, new java.util.Date(m_startTime), new java.util.Date(m_endTime));
+        }
+    }
+
+    /**
+     * <p>Constructor for SinglePassAvailabilityDataService.</p>
+     */
+    public SinglePassAvailabilityDataService() {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Node> getNodes(final org.opennms.netmgt.config.categories.Category category, final long startTime, final long endTime) throws AvailabilityDataServiceException {
+        try {
+            return Logging.withPrefix(LOG4J_CATEGORY, new Callable<List<Node>>() {
+                @Override public List<Node> call() throws Exception {
+                    final String rule;
+                    try {
+                        CategoryFactory.init();
+                        rule = CategoryFactory.getInstance().getEffectiveRule(category.getLabel());
+                    } catch (final Exception e) {
+                        LOG.error("Failed to initialize CategoryFactory", e);
+                        throw new AvailabilityDataServiceException("failed to init catFactory");
+                    }
+
+                    try {
+                        final List<InetAddress> nodeIPs = FilterDaoFactory.getInstance().getActiveIPAddressList(rule);
+                        LOG.debug("Number of IPs satisfying rule: {}", nodeIPs.size());
+
+                        final List<String> monitoredServices = new ArrayList<String>(category.getServiceCollection());
+                        LOG.debug("categories in monitoredServices = {}", monitoredServices);
+
+                        return getNodes(getIndex(startTime, endTime), nodeIPs, monitoredServices);
+                    } catch (final Exception e) {
+                        LOG.debug("Failed to get nodes for category {}", category, e);
+                        throw new AvailabilityDataServiceException("Failed to get nodes for category " + category, e);
+                    }
+                }
+            });
+        } catch (final Exception e) {
+            if (e instanceof AvailabilityDataServiceException) throw (AvailabilityDataServiceException)e;
+            throw new AvailabilityDataServiceException(e);
+        }
+    }
+
+    private synchronized OutageIndex getIndex(final long startTime, final long endTime) throws SQLException {
+        if (m_index == null || !m_index.covers(startTime, endTime)) {
+            final OutageIndex index = new OutageIndex(startTime, endTime);
+            final DBUtils db = new DBUtils(getClass());
+            try {
+                final Connection conn = DataSourceFactory.getInstance().getConnection();
+                db.watch(conn);
+                // the driver only honours the fetch size inside a transaction
+                final boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try {
+                    index.load(conn, db);
+                } finally {
+                    conn.rollback();
+                    conn.setAutoCommit(autoCommit);
+                }
+            } finally {
+                db.cleanUp();
+            }
+            m_index = index;
+        }
+        return m_index;
+    }
+
+    private static List<Node> getNodes(final OutageIndex index, final List<InetAddress> nodeIPs, final List<String> monitoredServices) {
+        final Map<Integer, Node> nodes = new LinkedHashMap<Integer, Node>();
+
+        for (final InetAddress addr : nodeIPs) {
+            final String ip = str(addr);
+            final List<NodeEntry> entries = index.getNodes(ip);
+            if (entries == null) {
+                continue;
+            }
+
+            // the legacy service query joins every managed interface with
+            // this address, so each service is seen once per such interface
+            final int repeat = index.getManagedCount(ip);
+
+            for (final NodeEntry entry : entries) {
+                final List<ServiceEntry> services = index.getServices(entry.m_nodeId, ip);
+                if (services == null) {
+                    continue;
+                }
+                for (int i = 0; i < repeat; i++) {
+                    for (final ServiceEntry service : services) {
+                        /*
+                         * If the list is empty, we assume all services are
+                         * monitored. If it has any, we use it as a filter
+                         */
+                        if (monitoredServices.isEmpty() || monitoredServices.contains(service.m_serviceName)) {
+                            addService(nodes, entry, ip, service);
+                        }
+                    }
+                }
+            }
+        }
+
+        return new ArrayList<Node>(nodes.values());
+    }
+
+    private static void addService(final Map<Integer, Node> nodes, final NodeEntry entry, final String ip, final ServiceEntry service) {
+        Node node = nodes.get(entry.m_nodeId);
+        if (node == null) {
+            node = new Node(entry.m_nodeLabel, entry.m_nodeId);
+            nodes.put(entry.m_nodeId, node);
+        }
+        node.addInterface(ip, service.m_serviceName);
+
+        for (int i = 0; i < service.m_outageCount; i++) {
+            if (service.m_regained[i] > 0) {
+                node.addInterface(ip, service.m_serviceName, service.m_lost[i], service.m_regained[i]);
+            } else {
+                node.addInterface(ip, service.m_serviceName, service.m_lost[i]);
+            }
+        }
+    }
+}
@@ -43,6 +43,7 @@ import org.opennms.core.test.db.MockDatabase;
 import org.opennms.netmgt.config.CategoryFactory;
 import org.opennms.netmgt.config.DatabaseSchemaConfigFactory;
 import org.opennms.netmgt.mock.MockCategoryFactory;
+import org.opennms.reporting.availability.svclayer.AvailabilityDataService;
 import org.opennms.reporting.availability.svclayer.LegacyAvailabilityDataService;
 
 public class AvailabilityCalculatorTest extends TestCase {
@@ -127,6 +128,15 @@ public class AvailabilityCalculatorTest extends TestCase {
 
     }
 
+    /**
+     * Returns the data service the reports are built with.
+     *
+     * @return a {@link AvailabilityDataService} object.
+     */
+    protected AvailabilityDataService createAvailabilityDataService() {
+        return new LegacyAvailabilityDataService();
+    }
+
     private Section getSectionByName(Category category, String sectionName) {
 
         Section match = null;
@@ -190,6 +200,10 @@ public class AvailabilityCalculatorTest extends TestCase {
     */
 
     private Report buildReport(Calendar calendar, String calFormat) {
+        return buildReport(calendar, calFormat, createAvailabilityDataService());
+    }
+
+    protected Report buildReport(Calendar calendar, String calFormat, AvailabilityDataService dataService) {
 
         Report report = null;
 
@@ -204,7 +218,7 @@ public class AvailabilityCalculatorTest extends TestCase {
         try {
             AvailabilityCalculator calculator = new AvailabilityCalculatorImpl();
             AvailabilityData data = new AvailabilityData();
-            data.setAvailabilityDataService(new LegacyAvailabilityDataService());
+            data.setAvailabilityDataService(dataService);
             calculator.setAvailabilityData(data);
             calculator.setPeriodEndDate(m_calendar.getTime());
             calculator.setLogoURL("wahtever");
@@ -43,6 +43,7 @@ import org.opennms.core.test.db.MockDatabase;
 import org.opennms.netmgt.config.CategoryFactory;
 import org.opennms.netmgt.config.DatabaseSchemaConfigFactory;
 import org.opennms.netmgt.mock.MockCategoryFactory;
+import org.opennms.reporting.availability.svclayer.AvailabilityDataService;
 import org.opennms.reporting.availability.svclayer.LegacyAvailabilityDataService;
 
 public class AvailabilityReportTest extends TestCase {
@@ -119,6 +120,15 @@ public class AvailabilityReportTest extends TestCase {
 
     }
 
+    /**
+     * Returns the data service the reports are built with.
+     *
+     * @return a {@link AvailabilityDataService} object.
+     */
+    protected AvailabilityDataService createAvailabilityDataService() {
+        return new LegacyAvailabilityDataService();
+    }
+
     private Section getSectionByName (Category category, String sectionName) {
 
         Section match = null;
@@ -196,7 +206,7 @@ public class AvailabilityReportTest extends TestCase {
              * availData =
              */
             AvailabilityData reportSource = new AvailabilityData();
-            reportSource.setAvailabilityDataService(new LegacyAvailabilityDataService());
+            reportSource.setAvailabilityDataService(createAvailabilityDataService());
             reportSource.fillReport("Network Interfaces", report, "HTML", calFormat, "4", "18", "2005");
         } catch (Throwable e) {
             throw new UndeclaredThrowableException(e); 
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.reporting.availability;
+
+import java.io.StringWriter;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import org.exolab.castor.xml.Marshaller;
+import org.opennms.reporting.availability.svclayer.AvailabilityDataService;
+import org.opennms.reporting.availability.svclayer.LegacyAvailabilityDataService;
+import org.opennms.reporting.availability.svclayer.SinglePassAvailabilityDataService;
+
+/**
+ * Runs the {@link AvailabilityCalculatorTest} checks against the
+ * {@link SinglePassAvailabilityDataService} and compares the marshalled
+ * report with the one built from the {@link LegacyAvailabilityDataService}.
+ */
+public class SinglePassAvailabilityCalculatorTest extends AvailabilityCalculatorTest {
+
+    @Override
+    protected AvailabilityDataService createAvailabilityDataService() {
+        return new SinglePassAvailabilityDataService();
+    }
+
+    public void testClassicReportMatchesLegacy() throws Exception {
+        addParityData();
+        assertReportsMatch(m_calendar, "classic");
+    }
+
+    public void testCalendarReportMatchesLegacy() throws Exception {
+        addParityData();
+        assertReportsMatch(new GregorianCalendar(2005, 4, 20), "calendar");
+    }
+
+    /**
+     * Adds the cases the single pass service handles differently from the
+     * per-address queries of the legacy service.
+     */
+    private void addParityData() {
+        // a second node sharing an address with node 1
+        m_db.update("insert into node (nodeID, nodelabel, nodeCreateTime, nodeType) values (3,'test3.availability.opennms.org','2004-03-01 09:00:00','A')");
+        m_db.update("insert into ipinterface (id, nodeid, ipaddr, ismanaged) values (4, 3,'192.168.100.1','M');");
+        m_db.update("insert into ifservices (nodeid, ipaddr, serviceid, status, ipInterfaceId) values (3,'192.168.100.1',1,'A', 4);");
+        m_db.update("insert into outages (outageid, nodeid, ipaddr, serviceid, ifLostService, ifRegainedService) values "
+                + "(7,3,'192.168.100.1',1,'2005-04-06 08:00:00','2005-04-06 09:00:00');");
+
+        // a deleted node
+        m_db.update("insert into node (nodeID, nodelabel, nodeCreateTime, nodeType) values (4,'test4.availability.opennms.org','2004-03-01 09:00:00','D')");
+        m_db.update("insert into ipinterface (id, nodeid, ipaddr, ismanaged) values (5, 4,'192.168.100.4','M');");
+        m_db.update("insert into ifservices (nodeid, ipaddr, serviceid, status, ipInterfaceId) values (4,'192.168.100.4',1,'A', 5);");
+
+        // an unmanaged interface
+        m_db.update("insert into ipinterface (id, nodeid, ipaddr, ismanaged) values (6, 1,'192.168.100.5','U');");
+        m_db.update("insert into ifservices (nodeid, ipaddr, serviceid, status, ipInterfaceId) values (1,'192.168.100.5',1,'A', 6);");
+
+        // a second service with an outage that is still open
+        m_db.update("insert into ifservices (nodeid, ipaddr, serviceid, status, ipInterfaceId) values (2,'192.168.100.2',2,'A', 2);");
+        m_db.update("insert into outages (outageid, nodeid, ipaddr, serviceid, ifLostService, ifRegainedService) values "
+                + "(8,2,'192.168.100.2',2,'2005-05-10 08:00:00',null);");
+
+        // an outage that starts before the reporting period
+        m_db.update("insert into outages (outageid, nodeid, ipaddr, serviceid, ifLostService, ifRegainedService) values "
+                + "(9,2,'192.168.100.3',1,'2004-03-15 08:00:00','2004-06-01 08:00:00');");
+
+        // a service that is no longer active
+        m_db.update("insert into ifservices (nodeid, ipaddr, serviceid, status, ipInterfaceId) values (2,'192.168.100.3',3,'N', 3);");
+        m_db.update("insert into outages (outageid, nodeid, ipaddr, serviceid, ifLostService, ifRegainedService) values "
+                + "(10,2,'192.168.100.3',3,'2005-04-07 08:00:00','2005-04-07 09:00:00');");
+    }
+
+    private void assertReportsMatch(final Calendar calendar, final String calFormat) throws Exception {
+        final Report legacy = buildReport(calendar, calFormat, new LegacyAvailabilityDataService());
+        final Report singlePass = buildReport(calendar, calFormat, new SinglePassAvailabilityDataService());
+
+        // the creation time is the only value expected to differ
+        singlePass.setCreated(legacy.getCreated());
+
+        assertEquals(marshal(legacy), marshal(singlePass));
+    }
+
+    private static String marshal(final Report report) throws Exception {
+        final StringWriter writer = new StringWriter();
+        final Marshaller marshaller = new Marshaller(writer);
+        marshaller.setSuppressNamespaces(true);
+        marshaller.marshal(report);
+        return writer.toString();
+    }
+}
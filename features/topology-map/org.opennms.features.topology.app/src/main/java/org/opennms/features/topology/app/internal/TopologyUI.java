@@ -62,7 +62,7 @@ import org.opennms.features.topology.api.topo.Criteria;
 import org.opennms.features.topology.api.topo.VertexRef;
 import org.opennms.features.topology.app.internal.CommandManager.DefaultOperationContext;
 import org.opennms.features.topology.app.internal.TopologyComponent.VertexUpdateListener;
-import org.opennms.features.topology.app.internal.jung.FRLayoutAlgorithm;
+import org.opennms.features.topology.app.internal.jung.BarnesHutLayoutAlgorithm;
 import org.opennms.features.topology.app.internal.support.CategoryHopCriteria;
 import org.opennms.features.topology.app.internal.support.FontAwesomeIcons;
 import org.opennms.features.topology.app.internal.support.IconRepositoryManager;
@@ -243,7 +243,7 @@ public class TopologyUI extends UI implements CommandUpdateListener, MenuItemUpd
 
         // Set the algorithm last so that the criteria and SZLs are
         // in place before we run the layout algorithm.
-        m_graphContainer.setLayoutAlgorithm(new FRLayoutAlgorithm());
+        m_graphContainer.setLayoutAlgorithm(new BarnesHutLayoutAlgorithm());
 
         loadUserSettings(m_applicationContext);
 
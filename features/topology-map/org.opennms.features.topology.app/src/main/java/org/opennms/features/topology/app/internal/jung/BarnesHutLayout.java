@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.features.topology.app.internal.jung;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Fruchterman-Reingold force directed layout whose repulsive forces are
+ * approximated with a Barnes-Hut quadtree, which brings an iteration down from
+ * O(n&sup2;) to O(n log n).  The forces of an iteration are computed in parallel
+ * and the layout can be continued from existing positions: vertices that
+ * already had a location start out cool, only adjusting their position locally so
+ * the picture stays stable, while newly added vertices may move freely.
+ */
+class BarnesHutLayout {
+
+	/** Cells smaller than theta times their distance are treated as a single body */
+	private static final double THETA = 0.8;
+	private static final double COOLING = 0.95;
+	/** Below this fraction of k the layout is considered settled */
+	private static final double MIN_TEMPERATURE = 0.01;
+	/** Vertices that had a position start with this fraction of k as temperature */
+	private static final double WARM_TEMPERATURE = 0.1;
+	private static final int MAX_DEPTH = 40;
+	/** Smaller graphs are not worth the overhead of splitting the work */
+	private static final int PARALLEL_THRESHOLD = 500;
+
+	private final int m_count;
+	private final double[] m_x;
+	private final double[] m_y;
+	private final double[] m_dispX;
+	private final double[] m_dispY;
+	private final double[] m_mobility;
+	private final int[][] m_neighbors;
+	private final double m_minX;
+	private final double m_minY;
+	private final double m_maxX;
+	private final double m_maxY;
+	private final double m_k;
+	private final double m_minTemperature;
+	private double m_temperature;
+	private int m_iterations = 0;
+
+	/**
+	 * @param x the x coordinates, updated in place
+	 * @param y the y coordinates, updated in place
+	 * @param placed which vertices had a position before, null for a cold start
+	 * @param neighbors the adjacency list of every vertex
+	 * @param width the width of the layout area
+	 * @param height the height of the layout area
+	 */
+	BarnesHutLayout(double[] x, double[] y, boolean[] placed, int[][] neighbors, double width, double height) {
+		m_count = x.length;
+		m_x = x;
+		m_y = y;
+		m_dispX = new double[m_count];
+		m_dispY = new double[m_count];
+		m_mobility = new double[m_count];
+		m_neighbors = neighbors;
+
+		// Keep the existing positions inside of the area we lay out in
+		double minX = 0, minY = 0, maxX = width, maxY = height;
+		int placedCount = 0;
+		for (int i = 0; i < m_count; i++) {
+			if (placed != null && placed[i]) {
+				minX = Math.min(minX, x[i]);
+				minY = Math.min(minY, y[i]);
+				maxX = Math.max(maxX, x[i]);
+				maxY = Math.max(maxY, y[i]);
+				placedCount++;
+			}
+		}
+		m_minX = minX;
+		m_minY = minY;
+		m_maxX = maxX;
+		m_maxY = maxY;
+
+		m_k = Math.sqrt(((maxX - minX) * (maxY - minY)) / Math.max(1, m_count));
+		m_minTemperature = m_k * MIN_TEMPERATURE;
+
+		final double coldTemperature = Math.max(maxX - minX, maxY - minY) / 10.0;
+		if (placedCount == 0) {
+			m_temperature = coldTemperature;
+		} else {
+			// The more vertices are new, the more the rest of the graph has to make room for them
+			m_temperature = Math.max(m_k * WARM_TEMPERATURE, coldTemperature * (1.0 - ((double)placedCount / m_count)));
+		}
+		for (int i = 0; i < m_count; i++) {
+			final boolean settled = placed != null && placed[i];
+			m_mobility[i] = settled ? 1.0 : coldTemperature / m_temperature;
+		}
+	}
+
+	boolean isDone() {
+		return m_temperature < m_minTemperature;
+	}
+
+	int getIterations() {
+		return m_iterations;
+	}
+
+	/**
+	 * Runs iterations until the layout settled, the maximum number of
+	 * iterations has been done or the deadline has passed.
+	 *
+	 * @param deadline the {@link System#currentTimeMillis()} by which to stop
+	 * @param maxIterations the maximum number of iterations to run
+	 * @param executor the executor used to compute the forces in parallel, may be null
+	 * @param parallelism the number of parts to split each iteration into
+	 */
+	void run(long deadline, int maxIterations, ExecutorService executor, int parallelism) throws InterruptedException {
+		final int parts = (executor == null || m_count < PARALLEL_THRESHOLD) ? 1 : Math.max(1, parallelism);
+		int iteration = 0;
+		while (!isDone() && iteration < maxIterations && System.currentTimeMillis() < deadline) {
+			step(executor, parts);
+			iteration++;
+		}
+	}
+
+	void step(ExecutorService executor, int parts) throws InterruptedException {
+		final QuadTree tree = new QuadTree(m_minX, m_minY, Math.max(m_maxX - m_minX, m_maxY - m_minY));
+		for (int i = 0; i < m_count; i++) {
+			tree.insert(i, m_x[i], m_y[i]);
+		}
+
+		if (parts <= 1) {
+			computeForces(tree, 0, m_count);
+		} else {
+			final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(parts);
+			final int chunk = (m_count + parts - 1) / parts;
+			for (int start = 0; start < m_count; start += chunk) {
+				final int from = start;
+				final int to = Math.min(m_count, start + chunk);
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						computeForces(tree, from, to);
+						return null;
+					}
+				});
+			}
+			for (final Future<Void> future : executor.invokeAll(tasks)) {
+				try {
+					future.get();
+				} catch (final ExecutionException e) {
+					throw new IllegalStateException("Unable to compute layout forces", e.getCause());
+				}
+			}
+		}
+
+		for (int i = 0; i < m_count; i++) {
+			final double length = Math.sqrt(m_dispX[i] * m_dispX[i] + m_dispY[i] * m_dispY[i]);
+			if (length > 0) {
+				final double move = Math.min(length, m_temperature * m_mobility[i]);
+				m_x[i] = Math.min(m_maxX, Math.max(m_minX, m_x[i] + m_dispX[i] / length * move));
+				m_y[i] = Math.min(m_maxY, Math.max(m_minY, m_y[i] + m_dispY[i] / length * move));
+			}
+		}
+
+		m_temperature *= COOLING;
+		m_iterations++;
+	}
+
+	/**
+	 * Computes the displacement of the vertices from (inclusive) to (exclusive).
+	 * Every call only writes its own slots, so ranges can be processed concurrently.
+	 */
+	private void computeForces(QuadTree tree, int from, int to) {
+		final double k2 = m_k * m_k;
+		final double[] force = new double[2];
+		for (int i = from; i < to; i++) {
+			force[0] = 0;
+			force[1] = 0;
+			tree.repulsion(i, m_x[i], m_y[i], k2, force);
+
+			for (final int j : m_neighbors[i]) {
+				final double dx = m_x[i] - m_x[j];
+				final double dy = m_y[i] - m_y[j];
+				final double distance = Math.sqrt(dx * dx + dy * dy);
+				// d^2/k along the edge, towards the neighbor
+				force[0] -= dx * distance / m_k;
+				force[1] -= dy * distance / m_k;
+			}
+
+			m_dispX[i] = force[0];
+			m_dispY[i] = force[1];
+		}
+	}
+
+	/**
+	 * Region quadtree over the vertex positions; every cell knows the number
+	 * of vertices below it and their center of mass.
+	 */
+	private static final class QuadTree {
+		private final double m_cellX;
+		private final double m_cellY;
+		private final double m_size;
+		private final int m_depth;
+		private int m_mass = 0;
+		private double m_sumX = 0;
+		private double m_sumY = 0;
+		/** The single vertex in a leaf, -1 for empty and internal cells */
+		private int m_body = -1;
+		private double m_bodyX;
+		private double m_bodyY;
+		private QuadTree[] m_children;
+
+		QuadTree(double cellX, double cellY, double size) {
+			this(cellX, cellY, size, 0);
+		}
+
+		private QuadTree(double cellX, double cellY, double size, int depth) {
+			m_cellX = cellX;
+			m_cellY = cellY;
+			m_size = size;
+			m_depth = depth;
+		}
+
+		void insert(int body, double x, double y) {
+			if (m_mass == 0) {
+				m_body = body;
+				m_bodyX = x;
+				m_bodyY = y;
+			} else if (m_depth < MAX_DEPTH) {
+				if (m_children == null) {
+					m_children = new QuadTree[4];
+					if (m_body >= 0) {
+						child(m_bodyX, m_bodyY).insert(m_body, m_bodyX, m_bodyY);
+						m_body = -1;
+					}
+				}
+				child(x, y).insert(body, x, y);
+			}
+			// Beyond the maximum depth vertices are (nearly) on top of each other, they just add mass
+			m_mass++;
+			m_sumX += x;
+			m_sumY += y;
+		}
+
+		private QuadTree child(double x, double y) {
+			final double half = m_size / 2.0;
+			final int index = (x < m_cellX + half ? 0 : 1) + (y < m_cellY + half ? 0 : 2);
+			if (m_children[index] == null) {
+				m_children[index] = new QuadTree(m_cellX + (index % 2) * half, m_cellY + (index / 2) * half, half, m_depth + 1);
+			}
+			return m_children[index];
+		}
+
+		/**
+		 * Adds the repulsive force k^2/d of all other vertices on vertex i to force.
+		 */
+		void repulsion(int i, double x, double y, double k2, double[] force) {
+			int mass = m_mass;
+			if (mass == 0 || (m_children == null && m_body == i && mass == 1)) {
+				return;
+			}
+
+			final double centerX = m_sumX / mass;
+			final double centerY = m_sumY / mass;
+			double dx = x - centerX;
+			double dy = y - centerY;
+			double distance2 = dx * dx + dy * dy;
+
+			if (m_children == null || m_size * m_size < THETA * THETA * distance2) {
+				if (m_children == null && m_body == i) {
+					// Overflowing leaf that contains i itself
+					mass--;
+				}
+				if (distance2 < 0.01) {
+					// Vertices on top of each other, push them apart in a direction that differs per vertex
+					final double angle = i * 2.399963229728653;
+					dx = Math.cos(angle) * 0.1;
+					dy = Math.sin(angle) * 0.1;
+					distance2 = 0.01;
+				}
+				final double factor = k2 * mass / distance2;
+				force[0] += dx * factor;
+				force[1] += dy * factor;
+				return;
+			}
+
+			for (final QuadTree child : m_children) {
+				if (child != null) {
+					child.repulsion(i, x, y, k2, force);
+				}
+			}
+		}
+	}
+}
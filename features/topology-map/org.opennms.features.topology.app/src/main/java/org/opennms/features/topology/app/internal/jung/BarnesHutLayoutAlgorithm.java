@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.features.topology.app.internal.jung;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.opennms.features.topology.api.Graph;
+import org.opennms.features.topology.api.GraphContainer;
+import org.opennms.features.topology.api.Layout;
+import org.opennms.features.topology.api.Point;
+import org.opennms.features.topology.api.topo.Edge;
+import org.opennms.features.topology.api.topo.Vertex;
+import org.opennms.features.topology.api.topo.VertexRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Force directed layout for large graphs, see {@link BarnesHutLayout}.
+ *
+ * The layout starts from the current vertex positions, so refreshing the map
+ * only moves the vertices that need to make room for new ones, and it stops
+ * once the time budget is used up; a layout that was cut short is continued
+ * on the next refresh.  A settled layout of a graph that did not change is
+ * left alone.
+ */
+public class BarnesHutLayoutAlgorithm extends AbstractLayoutAlgorithm {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BarnesHutLayoutAlgorithm.class);
+
+	/** Maximum time in milliseconds a single layout run may take */
+	private static final long TIME_BUDGET = Long.getLong("org.opennms.features.topology.layoutTimeBudget", 2000L);
+	private static final int MAX_ITERATIONS = 700;
+	private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	private static ExecutorService s_executor;
+
+	/** The outcome of the last run per layout, so that a graph that did not change is not laid out again */
+	private final Map<Layout, LayoutState> m_states = Collections.synchronizedMap(new WeakHashMap<Layout, LayoutState>());
+
+	@Override
+	public void updateLayout(final GraphContainer graphContainer) {
+		final long deadline = System.currentTimeMillis() + TIME_BUDGET;
+
+		Graph g = graphContainer.getGraph();
+
+		final Layout graphLayout = g.getLayout();
+
+		final List<Vertex> vertices = new ArrayList<Vertex>(g.getDisplayVertices());
+		final int count = vertices.size();
+		if (count == 0) {
+			return;
+		}
+
+		final Map<VertexRef, Integer> indexes = new HashMap<VertexRef, Integer>(count * 2);
+		for (int i = 0; i < count; i++) {
+			indexes.put(vertices.get(i), i);
+		}
+
+		final int[][] neighbors = adjacency(g.getDisplayEdges(), indexes, count);
+
+		// Fetch the known positions at once, Layout.getLocation() scans all edges for unplaced vertices
+		final Map<VertexRef, Point> locations = graphLayout.getLocations();
+		final double[] x = new double[count];
+		final double[] y = new double[count];
+		final boolean[] placed = new boolean[count];
+		int placedCount = 0;
+		for (int i = 0; i < count; i++) {
+			final Point location = locations.get(vertices.get(i));
+			if (location != null) {
+				x[i] = location.getX();
+				y[i] = location.getY();
+				placed[i] = true;
+				placedCount++;
+			}
+		}
+
+		final int signature = 31 * vertices.hashCode() + Arrays.deepHashCode(neighbors);
+		final LayoutState previous = m_states.get(graphLayout);
+		if (placedCount == count && previous != null && previous.isUnchanged(signature, x, y)) {
+			LOG.debug("updateLayout: {} vertices have already been laid out, skipping", count);
+			return;
+		}
+
+		final Dimension size = selectLayoutSize(graphContainer);
+		placeNewVertices(x, y, placed, neighbors, size, placedCount > 0);
+
+		final BarnesHutLayout layout = new BarnesHutLayout(x, y, placedCount > 0 ? placed : null, neighbors, size.getWidth(), size.getHeight());
+		try {
+			layout.run(deadline, MAX_ITERATIONS, getExecutor(), PARALLELISM);
+		} catch (final InterruptedException e) {
+			LOG.warn("Interrupted while laying out {} vertices, keeping the intermediate result", count);
+			Thread.currentThread().interrupt();
+		}
+
+		LOG.debug("updateLayout: {} vertices ({} new) laid out in {} iterations, settled={}", count, count - placedCount, layout.getIterations(), layout.isDone());
+
+		// Store the new positions in the layout
+		final int[] resultX = new int[count];
+		final int[] resultY = new int[count];
+		for (int i = 0; i < count; i++) {
+			resultX[i] = (int)x[i];
+			resultY[i] = (int)y[i];
+			graphLayout.setLocation(vertices.get(i), resultX[i], resultY[i]);
+		}
+		if (layout.isDone()) {
+			m_states.put(graphLayout, new LayoutState(signature, resultX, resultY));
+		} else {
+			m_states.remove(graphLayout);
+		}
+	}
+
+	private static int[][] adjacency(final Collection<Edge> edges, final Map<VertexRef, Integer> indexes, final int count) {
+		final int[] degree = new int[count];
+		final List<int[]> pairs = new ArrayList<int[]>(edges.size());
+		for (Edge e : edges) {
+			final Integer source = indexes.get(e.getSource().getVertex());
+			final Integer target = indexes.get(e.getTarget().getVertex());
+			if (source == null || target == null || source.equals(target)) {
+				continue;
+			}
+			pairs.add(new int[] { source, target });
+			degree[source]++;
+			degree[target]++;
+		}
+
+		final int[][] neighbors = new int[count][];
+		for (int i = 0; i < count; i++) {
+			neighbors[i] = new int[degree[i]];
+			degree[i] = 0;
+		}
+		for (final int[] pair : pairs) {
+			neighbors[pair[0]][degree[pair[0]]++] = pair[1];
+			neighbors[pair[1]][degree[pair[1]]++] = pair[0];
+		}
+		return neighbors;
+	}
+
+	/**
+	 * New vertices start next to their already placed neighbors, or anywhere
+	 * in the layout area if they have none.
+	 */
+	private static void placeNewVertices(final double[] x, final double[] y, final boolean[] placed, final int[][] neighbors, final Dimension size, final boolean warmStart) {
+		final Random random = new Random(x.length);
+		final double jitter = ELBOW_ROOM;
+		for (int i = 0; i < x.length; i++) {
+			if (placed[i]) {
+				continue;
+			}
+			int placedNeighbors = 0;
+			double sumX = 0, sumY = 0;
+			if (warmStart) {
+				for (final int j : neighbors[i]) {
+					if (placed[j]) {
+						sumX += x[j];
+						sumY += y[j];
+						placedNeighbors++;
+					}
+				}
+			}
+			if (placedNeighbors > 0) {
+				x[i] = sumX / placedNeighbors + (random.nextDouble() - 0.5) * jitter;
+				y[i] = sumY / placedNeighbors + (random.nextDouble() - 0.5) * jitter;
+			} else {
+				x[i] = random.nextDouble() * size.getWidth();
+				y[i] = random.nextDouble() * size.getHeight();
+			}
+		}
+	}
+
+	private static final class LayoutState {
+		private final int m_signature;
+		private final int[] m_x;
+		private final int[] m_y;
+
+		LayoutState(final int signature, final int[] x, final int[] y) {
+			m_signature = signature;
+			m_x = x;
+			m_y = y;
+		}
+
+		/**
+		 * @return true if the graph has the same vertices and edges and nobody moved a vertex since
+		 */
+		boolean isUnchanged(final int signature, final double[] x, final double[] y) {
+			if (signature != m_signature || x.length != m_x.length) {
+				return false;
+			}
+			for (int i = 0; i < x.length; i++) {
+				if (x[i] != m_x[i] || y[i] != m_y[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (s_executor == null) {
+			s_executor = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+				private final AtomicInteger m_threadNumber = new AtomicInteger(0);
+
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, "BarnesHutLayout-" + m_threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return s_executor;
+	}
+}
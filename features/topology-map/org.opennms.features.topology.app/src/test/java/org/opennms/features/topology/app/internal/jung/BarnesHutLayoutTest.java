@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.features.topology.app.internal.jung;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class BarnesHutLayoutTest {
+
+    private static final double WIDTH = 1600;
+    private static final double HEIGHT = 900;
+
+    @Test
+    public void testColdLayoutSettles() throws Exception {
+        final int[][] neighbors = grid(20, 30);
+        final double[] x = new double[600];
+        final double[] y = new double[600];
+        randomize(x, y, 0);
+
+        final BarnesHutLayout layout = new BarnesHutLayout(x, y, null, neighbors, WIDTH, HEIGHT);
+        layout.run(Long.MAX_VALUE, 1000, null, 1);
+        assertTrue(layout.isDone());
+
+        // Connected vertices end up much closer to each other than the average pair
+        assertTrue(averageEdgeLength(x, y, neighbors) * 4 < averageDistance(x, y));
+    }
+
+    @Test
+    public void testParallelMatchesSerial() throws Exception {
+        final int[][] neighbors = grid(40, 25);
+        final double[] serialX = new double[1000];
+        final double[] serialY = new double[1000];
+        randomize(serialX, serialY, 0);
+        final double[] parallelX = serialX.clone();
+        final double[] parallelY = serialY.clone();
+
+        new BarnesHutLayout(serialX, serialY, null, neighbors, WIDTH, HEIGHT).run(Long.MAX_VALUE, 50, null, 1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            new BarnesHutLayout(parallelX, parallelY, null, neighbors, WIDTH, HEIGHT).run(Long.MAX_VALUE, 50, executor, 4);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertArrayEquals(serialX, parallelX, 0.0);
+        assertArrayEquals(serialY, parallelY, 0.0);
+    }
+
+    @Test
+    public void testWarmStartKeepsExistingPositions() throws Exception {
+        final int[][] neighbors = grid(20, 30);
+        final double[] x = new double[600];
+        final double[] y = new double[600];
+        randomize(x, y, 0);
+        new BarnesHutLayout(x, y, null, neighbors, WIDTH, HEIGHT).run(Long.MAX_VALUE, 1000, null, 1);
+
+        // Add a vertex hanging off of vertex 0 and lay out again
+        final double[] newX = new double[601];
+        final double[] newY = new double[601];
+        System.arraycopy(x, 0, newX, 0, 600);
+        System.arraycopy(y, 0, newY, 0, 600);
+        newX[600] = x[0];
+        newY[600] = y[0];
+        final boolean[] placed = new boolean[601];
+        for (int i = 0; i < 600; i++) {
+            placed[i] = true;
+        }
+        final int[][] newNeighbors = new int[601][];
+        System.arraycopy(neighbors, 0, newNeighbors, 0, 600);
+        newNeighbors[0] = append(neighbors[0], 600);
+        newNeighbors[600] = new int[] { 0 };
+
+        final BarnesHutLayout layout = new BarnesHutLayout(newX, newY, placed, newNeighbors, WIDTH, HEIGHT);
+        layout.run(Long.MAX_VALUE, 1000, null, 1);
+        assertTrue(layout.isDone());
+
+        double moved = 0;
+        for (int i = 0; i < 600; i++) {
+            moved += Math.hypot(newX[i] - x[i], newY[i] - y[i]);
+        }
+        // On average the existing vertices move by less than a small fraction of the layout
+        assertTrue(moved / 600 < WIDTH / 50);
+    }
+
+    private static int[][] grid(final int columns, final int rows) {
+        final int[][] neighbors = new int[columns * rows][];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int[] adjacent = new int[0];
+                if (column > 0) adjacent = append(adjacent, row * columns + column - 1);
+                if (column < columns - 1) adjacent = append(adjacent, row * columns + column + 1);
+                if (row > 0) adjacent = append(adjacent, (row - 1) * columns + column);
+                if (row < rows - 1) adjacent = append(adjacent, (row + 1) * columns + column);
+                neighbors[row * columns + column] = adjacent;
+            }
+        }
+        return neighbors;
+    }
+
+    private static int[] append(final int[] values, final int value) {
+        final int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, values.length);
+        result[values.length] = value;
+        return result;
+    }
+
+    private static void randomize(final double[] x, final double[] y, final long seed) {
+        final Random random = new Random(seed);
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextDouble() * WIDTH;
+            y[i] = random.nextDouble() * HEIGHT;
+        }
+    }
+
+    private static double averageEdgeLength(final double[] x, final double[] y, final int[][] neighbors) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < neighbors.length; i++) {
+            for (final int j : neighbors[i]) {
+                sum += Math.hypot(x[i] - x[j], y[i] - y[j]);
+                count++;
+            }
+        }
+        return sum / count;
+    }
+
+    private static double averageDistance(final double[] x, final double[] y) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < x.length; i += 7) {
+            for (int j = i + 1; j < x.length; j += 7) {
+                sum += Math.hypot(x[i] - x[j], y[i] - y[j]);
+                count++;
+            }
+        }
+        return sum / count;
+    }
+}
@@ -235,6 +235,11 @@ public class MockNodeDao implements NodeDao {
 
     }
 
+    @Override
+    public void updateInterfaceScanStamps(Integer nodeId, Collection<Integer> ipInterfaceIds, Collection<Integer> snmpInterfaceIds, Date scanStamp) {
+        // this mock holds no nodes or interfaces, so there is nothing to stamp
+    }
+
     @Override
     public Collection<Integer> getNodeIds() {
         // TODO Auto-generated method stub
@@ -65,13 +65,13 @@ import org.opennms.features.topology.api.topo.WrappedGraph;
 import org.opennms.features.topology.api.topo.WrappedGroup;
 import org.opennms.features.topology.api.topo.WrappedLeafVertex;
 import org.opennms.features.topology.api.topo.WrappedVertex;
-import org.opennms.netmgt.dao.api.DataLinkInterfaceDao;
-import org.opennms.netmgt.dao.api.IpInterfaceDao;
 import org.opennms.netmgt.dao.api.NodeDao;
-import org.opennms.netmgt.dao.api.SnmpInterfaceDao;
 import org.opennms.netmgt.dao.api.TopologyDao;
 import org.opennms.netmgt.model.*;
 import org.opennms.netmgt.model.OnmsNode.NodeType;
+import org.opennms.netmgt.model.topology.TopologyInterfaceSummary;
+import org.opennms.netmgt.model.topology.TopologyLinkSummary;
+import org.opennms.netmgt.model.topology.TopologyNodeSummary;
 import org.slf4j.LoggerFactory;
 
 public class LinkdTopologyProvider extends AbstractTopologyProvider implements GraphProvider, SearchProvider {
@@ -89,7 +89,7 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
             m_state = m_upState;
         }
         
-        public void setParentInterfaces(OnmsSnmpInterface sourceInterface, OnmsSnmpInterface targetInterface) {
+        public void setParentInterfaces(TopologyInterfaceSummary sourceInterface, TopologyInterfaceSummary targetInterface) {
             m_state.setParentInterfaces(sourceInterface, targetInterface);
         }
         
@@ -115,7 +115,7 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
     }
     
     private interface LinkState{
-        void setParentInterfaces(OnmsSnmpInterface sourceInterface, OnmsSnmpInterface targetInterface);
+        void setParentInterfaces(TopologyInterfaceSummary sourceInterface, TopologyInterfaceSummary targetInterface);
         String getLinkStatus();
     }
     
@@ -139,7 +139,7 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
         }
 
         @Override
-        public void setParentInterfaces(OnmsSnmpInterface sourceInterface, OnmsSnmpInterface targetInterface) {
+        public void setParentInterfaces(TopologyInterfaceSummary sourceInterface, TopologyInterfaceSummary targetInterface) {
             if(sourceInterface != null && sourceInterface.getIfOperStatus() != null) {
                 if(sourceInterface.getIfOperStatus() != 1) {
                     getLinkStateMachine().setState( getLinkStateMachine().getDownState() );
@@ -171,7 +171,7 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
         }
 
         @Override
-        public void setParentInterfaces(OnmsSnmpInterface sourceInterface, OnmsSnmpInterface targetInterface) {
+        public void setParentInterfaces(TopologyInterfaceSummary sourceInterface, TopologyInterfaceSummary targetInterface) {
             if(targetInterface != null && targetInterface.getIfOperStatus() != null) {
                 if(sourceInterface != null) {
                     if(sourceInterface.getIfOperStatus() == 1 && targetInterface.getIfOperStatus() == 1) {
@@ -199,7 +199,7 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
 
         
         @Override
-        public void setParentInterfaces(OnmsSnmpInterface sourceInterface, OnmsSnmpInterface targetInterface) {
+        public void setParentInterfaces(TopologyInterfaceSummary sourceInterface, TopologyInterfaceSummary targetInterface) {
             if(targetInterface != null && targetInterface.getIfOperStatus() != null) {
                 if(sourceInterface != null) {
                     if(sourceInterface.getIfOperStatus() == 1 && targetInterface.getIfOperStatus() == 1) {
@@ -261,16 +261,32 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
       };
 
     private boolean addNodeWithoutLink = false;
-    
-    private DataLinkInterfaceDao m_dataLinkInterfaceDao;
+
+    /**
+     * Set when {@link #addNodeWithoutLink} was toggled so that the next
+     * {@link #refresh()} adds or removes the link-less nodes.
+     */
+    private boolean m_addNodeWithoutLinkChanged = false;
 
     private NodeDao m_nodeDao;
 
-    private SnmpInterfaceDao m_snmpInterfaceDao;
+    private TopologyDao m_topologyDao;
 
-    private IpInterfaceDao m_ipInterfaceDao;
+    private long m_checkInterval = Long.getLong("org.opennms.features.topology.linkd.checkInterval", 5000L);
 
-    private TopologyDao m_topologyDao;
+    private long m_resyncInterval = Long.getLong("org.opennms.features.topology.linkd.resyncInterval", 300000L);
+
+    /**
+     * The node and link summaries the graph was built from, <code>null</code>
+     * until the first {@link #load(String)} and after {@link #resetContainer()}.
+     */
+    private LinkdTopologySnapshot m_snapshot;
+
+    /**
+     * Parents assigned to plain vertices in the configuration file, applied
+     * to vertices that show up after the file was loaded.
+     */
+    private final Map<String, VertexRef> m_configuredParents = new HashMap<String, VertexRef>();
 
     private String m_configurationFile;
 
@@ -286,14 +302,6 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
         m_configurationFile = configurationFile;
     }
 
-    public SnmpInterfaceDao getSnmpInterfaceDao() {
-        return m_snmpInterfaceDao;
-    }
-
-    public void setSnmpInterfaceDao(SnmpInterfaceDao snmpInterfaceDao) {
-        m_snmpInterfaceDao = snmpInterfaceDao;
-    }
-
     public NodeDao getNodeDao() {
         return m_nodeDao;
     }
@@ -307,21 +315,36 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
     }
 
     public void setAddNodeWithoutLink(boolean addNodeWithoutLink) {
+        if (this.addNodeWithoutLink != addNodeWithoutLink) {
+            m_addNodeWithoutLinkChanged = true;
+        }
         this.addNodeWithoutLink = addNodeWithoutLink;
     }
 
-    public DataLinkInterfaceDao getDataLinkInterfaceDao() {
-        return m_dataLinkInterfaceDao;
-    }
-
-    public void setDataLinkInterfaceDao(DataLinkInterfaceDao dataLinkInterfaceDao) {
-        m_dataLinkInterfaceDao = dataLinkInterfaceDao;
+    public TopologyDao getTopologyDao() {
+        return m_topologyDao;
     }
 
     public void setTopologyDao(TopologyDao topologyDao) {
         m_topologyDao = topologyDao;
     }
 
+    /**
+     * Sets the minimum time in milliseconds between two checks of the
+     * database for node and link changes.
+     */
+    public void setCheckInterval(long checkInterval) {
+        m_checkInterval = checkInterval;
+    }
+
+    /**
+     * Sets the time in milliseconds after which all nodes and links are read
+     * again even if the change markers did not move.
+     */
+    public void setResyncInterval(long resyncInterval) {
+        m_resyncInterval = resyncInterval;
+    }
+
     public void setFilterManager(FilterManager filterManager){
         m_filterManager = filterManager;
     }
@@ -352,73 +375,55 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
         return (WrappedGraph) u.unmarshal(file.toURI().toURL());
     }
 
+    /**
+     * Applies the node and link changes found since the last refresh to the
+     * graph. The database is checked at most every few seconds no matter how
+     * many UI sessions refresh, and the graph is only touched for the nodes
+     * and links that actually changed.
+     */
     @Override
-    public void refresh() {
-        try {
-            load(null);
-        } catch (MalformedURLException e) {
-            LoggerFactory.getLogger(LinkdTopologyProvider.class).error(e.getMessage(), e);
-        } catch (JAXBException e) {
-            LoggerFactory.getLogger(LinkdTopologyProvider.class).error(e.getMessage(), e);
+    public synchronized void refresh() {
+        if (m_snapshot == null) {
+            try {
+                load(null);
+            } catch (MalformedURLException e) {
+                LoggerFactory.getLogger(LinkdTopologyProvider.class).error(e.getMessage(), e);
+            } catch (JAXBException e) {
+                LoggerFactory.getLogger(LinkdTopologyProvider.class).error(e.getMessage(), e);
+            }
+            return;
         }
+        applyDelta(m_snapshot.update());
+    }
+
+    @Override
+    public void resetContainer() {
+        super.resetContainer();
+        m_snapshot = null;
     }
 
     @Override
-    public void load(String filename) throws MalformedURLException, JAXBException {
+    public synchronized void load(String filename) throws MalformedURLException, JAXBException {
         if (filename != null) {
             LoggerFactory.getLogger(LinkdTopologyProvider.class).warn("Filename that was specified for linkd topology will be ignored: " + filename + ", using " + m_configurationFile + " instead");
         }
         log("loadtopology: resetContainer ");
         resetContainer();
+        m_configuredParents.clear();
 
-        for (DataLinkInterface link: m_dataLinkInterfaceDao.findAll()) {
-            log("loadtopology: parsing link: " + link.getDataLinkInterfaceId());
-
-            OnmsNode node = m_nodeDao.get(link.getNode().getId());
-            log("loadtopology: found source node: " + node.getLabel());
-            String sourceId = node.getNodeId();
-            Vertex source = getVertex(getVertexNamespace(), sourceId);
-            if (source == null) {
-                log("loadtopology: adding source node as vertex: " + node.getLabel());
-                source = getVertex(node);
-                addVertices(source);
-            }
+        m_snapshot = new LinkdTopologySnapshot(m_topologyDao, m_filterManager, m_checkInterval, m_resyncInterval);
+        m_snapshot.reload();
 
-            OnmsNode parentNode = m_nodeDao.get(link.getNodeParentId());
-            log("loadtopology: found target node: " + parentNode.getLabel());
-            String targetId = parentNode.getNodeId();
-            Vertex target = getVertex(getVertexNamespace(), targetId);
-            if (target == null) {
-                log("loadtopology: adding target as vertex: " + parentNode.getLabel());
-                target = getVertex(parentNode);
-                addVertices(target);
-            }
-            
-            // Create a new edge that connects the vertices
-            // TODO: Make sure that all properties are set on this object
-            AbstractEdge edge = connectVertices(link.getDataLinkInterfaceId(), source, target); 
-            edge.setTooltipText(getEdgeTooltipText(link, source, target));
+        for (TopologyLinkSummary link : m_snapshot.getLinks().values()) {
+            addLink(link);
         }
-        
+
         log("loadtopology: adding nodes without links: " + isAddNodeWithoutLink());
         if (isAddNodeWithoutLink()) {
-
-            List<OnmsNode> allNodes;
-            allNodes = getAllNodesNoACL();
-
-            for (OnmsNode onmsnode: allNodes) {
-                String nodeId = onmsnode.getNodeId();
-                if (getVertex(getVertexNamespace(), nodeId) == null) {
-                    log("loadtopology: adding link-less node: " + onmsnode.getLabel());
-                    addVertices(getVertex(onmsnode));
-                }
-            }
-
-
-
-
+            addNodesWithoutLink(m_snapshot.getNodes().keySet());
         }
-        
+        m_addNodeWithoutLinkChanged = false;
+
         File configFile = new File(m_configurationFile);
         if (configFile.exists() && configFile.canRead()) {
             log("loadtopology: loading topology from configuration file: " + m_configurationFile);
@@ -463,6 +468,9 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
                     log("loadtopology: setting parent of " + child + " to " + parent);
                     if (!child.equals(parent)) setParent(child, parent);
                 }
+                if (!eachVertexInFile.group && eachVertexInFile.parent != null && eachVertexInFile.id != null) {
+                    m_configuredParents.put(eachVertexInFile.id, eachVertexInFile.parent);
+                }
             }
         } else {
             log("loadtopology: could not load topology configFile:" + m_configurationFile);
@@ -472,63 +480,153 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
         log("Found " + getEdges().size() + " edges");
     }
 
-    private List<OnmsNode> getAllNodesNoACL() {
-        if(getFilterManager().isEnabled()){
-            String[] userGroups = getFilterManager().getAuthorizationGroups();
-            List<OnmsNode> nodeList = null;
-            try{
-                getFilterManager().disableAuthorizationFilter();
-                nodeList = m_nodeDao.findAll();
+    private void applyDelta(LinkdTopologySnapshot.Delta delta) {
+        if (delta.isEmpty() && !m_addNodeWithoutLinkChanged) {
+            return;
+        }
+        log("refresh: applying " + delta);
+        final Set<String> touchedVertexIds = new HashSet<String>();
 
-            } finally {
-                if(userGroups != null){
-                    getFilterManager().enableAuthorizationFilter(userGroups);
+        // changed links are removed here and added again below
+        for (Integer linkId : delta.m_removedLinks) {
+            removeLink(linkId, touchedVertexIds);
+        }
+        for (Integer linkId : delta.m_changedLinks) {
+            removeLink(linkId, touchedVertexIds);
+        }
+        for (Integer nodeId : delta.m_removedNodes) {
+            Vertex vertex = getVertex(getVertexNamespace(), String.valueOf(nodeId));
+            if (vertex != null) {
+                log("refresh: removing deleted node: " + vertex.getLabel());
+                removeVertex(vertex);
+            }
+        }
+        for (Integer nodeId : delta.m_changedNodes) {
+            Vertex vertex = getVertex(getVertexNamespace(), String.valueOf(nodeId));
+            if (vertex instanceof AbstractVertex) {
+                updateVertex((AbstractVertex)vertex, m_snapshot.getNode(nodeId));
+            }
+        }
+        if (!delta.m_changedNodes.isEmpty()) {
+            // the edge tooltips show the labels and addresses of both ends
+            for (TopologyLinkSummary link : m_snapshot.getLinks().values()) {
+                if (delta.m_changedNodes.contains(link.getNodeId()) || delta.m_changedNodes.contains(link.getParentNodeId())) {
+                    Edge edge = getEdge(getEdgeNamespace(), String.valueOf(link.getLinkId()));
+                    if (edge instanceof AbstractEdge) {
+                        ((AbstractEdge)edge).setTooltipText(getEdgeTooltipText(link, getVertex(edge.getSource().getVertex()), getVertex(edge.getTarget().getVertex())));
+                    }
                 }
-                return nodeList != null ? nodeList : Collections.EMPTY_LIST;
             }
+        }
+        for (Integer linkId : delta.m_addedLinks) {
+            addLink(m_snapshot.getLink(linkId));
+        }
+        for (Integer linkId : delta.m_changedLinks) {
+            addLink(m_snapshot.getLink(linkId));
+        }
+
+        if (isAddNodeWithoutLink()) {
+            addNodesWithoutLink(m_addNodeWithoutLinkChanged ? m_snapshot.getNodes().keySet() : delta.m_addedNodes);
         } else {
-            return m_nodeDao.findAll();
+            if (m_addNodeWithoutLinkChanged) {
+                for (Integer nodeId : m_snapshot.getNodes().keySet()) {
+                    touchedVertexIds.add(String.valueOf(nodeId));
+                }
+            }
+            removeNodesWithoutLink(touchedVertexIds);
+        }
+        m_addNodeWithoutLinkChanged = false;
+    }
+
+    private void addLink(TopologyLinkSummary link) {
+        if (link == null) return;
+        log("loadtopology: parsing link: " + link.getLinkId());
+
+        Vertex source = getOrAddVertex(link.getNodeId());
+        Vertex target = getOrAddVertex(link.getParentNodeId());
+        if (source == null || target == null) {
+            LoggerFactory.getLogger(LinkdTopologyProvider.class).warn("Ignoring link to a node that does not exist: {}", link);
+            return;
         }
 
+        // Create a new edge that connects the vertices
+        // TODO: Make sure that all properties are set on this object
+        AbstractEdge edge = connectVertices(String.valueOf(link.getLinkId()), source, target);
+        edge.setTooltipText(getEdgeTooltipText(link, source, target));
+    }
 
+    private void removeLink(Integer linkId, Set<String> touchedVertexIds) {
+        Edge edge = getEdge(getEdgeNamespace(), String.valueOf(linkId));
+        if (edge != null) {
+            touchedVertexIds.add(edge.getSource().getVertex().getId());
+            touchedVertexIds.add(edge.getTarget().getVertex().getId());
+            removeEdges(edge);
+        }
     }
 
-    private AbstractVertex getVertex(OnmsNode onmsnode) {
-        OnmsIpInterface ip = getAddress(onmsnode);
-        AbstractVertex vertex = new SimpleLeafVertex(TOPOLOGY_NAMESPACE_LINKD, onmsnode.getNodeId(), 0, 0);
-        vertex.setIconKey(getIconName(onmsnode));
-        vertex.setLabel(onmsnode.getLabel());
-        vertex.setIpAddress(ip == null ? null : ip.getIpAddress().getHostAddress());
-        vertex.setNodeID(Integer.parseInt(onmsnode.getNodeId()));
-        vertex.setTooltipText(getNodeTooltipText(onmsnode, vertex, ip));
+    private Vertex getOrAddVertex(int nodeId) {
+        Vertex vertex = getVertex(getVertexNamespace(), String.valueOf(nodeId));
+        if (vertex == null) {
+            TopologyNodeSummary node = m_snapshot.getNode(nodeId);
+            if (node == null) return null;
+            log("loadtopology: adding node as vertex: " + node.getNodeLabel());
+            vertex = getVertex(node);
+            addVertices(vertex);
+            VertexRef parentRef = m_configuredParents.get(vertex.getId());
+            Vertex parent = parentRef == null ? null : getVertex(parentRef);
+            if (parent != null && !vertex.equals(parent)) {
+                setParent(vertex, parent);
+            }
+        }
         return vertex;
     }
 
-    private OnmsIpInterface getAddress(OnmsNode node) {
-        //OnmsIpInterface ip = node.getPrimaryInterface();
-        OnmsIpInterface ip = m_ipInterfaceDao.findPrimaryInterfaceByNodeId(node.getId());
-        if ( ip == null) {
-//            for (OnmsIpInterface iterip: node.getIpInterfaces()) {
-            for (OnmsIpInterface iterip: m_ipInterfaceDao.findByNodeId(node.getId())) {
-                ip = iterip;
-                break;
+    private void addNodesWithoutLink(Collection<Integer> nodeIds) {
+        for (Integer nodeId : nodeIds) {
+            getOrAddVertex(nodeId);
+        }
+    }
+
+    private void removeNodesWithoutLink(Collection<String> vertexIds) {
+        if (vertexIds.isEmpty()) return;
+        Set<String> linkedVertexIds = new HashSet<String>();
+        for (Edge edge : getEdges()) {
+            linkedVertexIds.add(edge.getSource().getVertex().getId());
+            linkedVertexIds.add(edge.getTarget().getVertex().getId());
+        }
+        for (String vertexId : vertexIds) {
+            Vertex vertex = getVertex(getVertexNamespace(), vertexId);
+            if (vertex != null && !vertex.isGroup() && !linkedVertexIds.contains(vertexId)) {
+                log("refresh: removing link-less node: " + vertex.getLabel());
+                removeVertex(vertex);
             }
         }
-        return ip;
     }
-    
 
-    private String getEdgeTooltipText(DataLinkInterface link,
+    private AbstractVertex getVertex(TopologyNodeSummary node) {
+        AbstractVertex vertex = new SimpleLeafVertex(TOPOLOGY_NAMESPACE_LINKD, String.valueOf(node.getNodeId()), 0, 0);
+        updateVertex(vertex, node);
+        return vertex;
+    }
+
+    private static void updateVertex(AbstractVertex vertex, TopologyNodeSummary node) {
+        vertex.setIconKey(getIconName(node.getSysObjectId()));
+        vertex.setLabel(node.getNodeLabel());
+        vertex.setIpAddress(node.getIpAddress());
+        vertex.setNodeID(node.getNodeId());
+        vertex.setTooltipText(getNodeTooltipText(node, vertex));
+    }
+
+    private String getEdgeTooltipText(TopologyLinkSummary link,
             Vertex source, Vertex target) {
         StringBuffer tooltipText = new StringBuffer();
 
-        OnmsSnmpInterface sourceInterface = m_snmpInterfaceDao.findByNodeIdAndIfIndex(Integer.parseInt(source.getId()), link.getIfIndex());
-        OnmsSnmpInterface targetInterface = m_snmpInterfaceDao.findByNodeIdAndIfIndex(Integer.parseInt(target.getId()), link.getParentIfIndex());
+        TopologyInterfaceSummary sourceInterface = link.getSourceInterface();
+        TopologyInterfaceSummary targetInterface = link.getTargetInterface();
         
         tooltipText.append(HTML_TOOLTIP_TAG_OPEN);
         if (sourceInterface != null && targetInterface != null
-         && sourceInterface.getNetMask() != null && !sourceInterface.getNetMask().isLoopbackAddress() 
-         && targetInterface.getNetMask() != null && !targetInterface.getNetMask().isLoopbackAddress()) {
+         && sourceInterface.isLayer3() && targetInterface.isLayer3()) {
             tooltipText.append("Type of Link: Layer3/Layer2");
         } else {
             tooltipText.append("Type of Link: Layer2");
@@ -578,7 +676,7 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
         return tooltipText.toString();
     }
 
-    private static String getNodeTooltipText(OnmsNode node, AbstractVertex vertex, OnmsIpInterface ip) {
+    private static String getNodeTooltipText(TopologyNodeSummary node, AbstractVertex vertex) {
         StringBuffer tooltipText = new StringBuffer();
 
         /*
@@ -601,7 +699,7 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
         
         tooltipText.append(HTML_TOOLTIP_TAG_OPEN);
         tooltipText.append( "Status: " +getNodeStatusString(node.getType()));
-        if (ip != null && ip.isManaged()) {
+        if (node.isManaged()) {
             tooltipText.append( " / Managed");
         } else {
             tooltipText.append( " / Unmanaged");
@@ -615,7 +713,11 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
     }
     
     public static String getIconName(OnmsNode node) {
-        return node.getSysObjectId() == null ? "linkd:system" : "linkd:system:snmp:"+node.getSysObjectId();
+        return getIconName(node.getSysObjectId());
+    }
+
+    private static String getIconName(String sysObjectId) {
+        return sysObjectId == null ? "linkd:system" : "linkd:system:snmp:"+sysObjectId;
     }
     
     @Override
@@ -796,14 +898,6 @@ public class LinkdTopologyProvider extends AbstractTopologyProvider implements G
         LoggerFactory.getLogger(LinkdTopologyProvider.class).debug(string);
     }
 
-    public IpInterfaceDao getIpInterfaceDao() {
-        return m_ipInterfaceDao;
-    }
-
-    public void setIpInterfaceDao(IpInterfaceDao ipInterfaceDao) {
-        m_ipInterfaceDao = ipInterfaceDao;
-    }
-
     @Override
     public Criteria getDefaultCriteria() {
         final OnmsNode node = m_topologyDao.getDefaultFocusPoint();
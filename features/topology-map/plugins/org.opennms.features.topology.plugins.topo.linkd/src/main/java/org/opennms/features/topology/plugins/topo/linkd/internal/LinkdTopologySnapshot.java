@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.features.topology.plugins.topo.linkd.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.opennms.netmgt.dao.api.TopologyDao;
+import org.opennms.netmgt.model.FilterManager;
+import org.opennms.netmgt.model.topology.TopologyLinkSummary;
+import org.opennms.netmgt.model.topology.TopologyNodeSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the node and link summaries behind the linkd topology and works out
+ * what changed since the last read. The database is only asked for a cheap
+ * version marker on each update; the summaries are read again only when the
+ * marker moved, at most once per check interval, and in full once per
+ * resync interval to pick up changes that do not move the markers (label
+ * edits, interface status changes).
+ *
+ * The summaries are always read without the ACL filter because the topology
+ * provider is shared by all UI sessions; ACLs are applied when vertices are
+ * searched or displayed.
+ */
+class LinkdTopologySnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LinkdTopologySnapshot.class);
+
+    /**
+     * The ids of the nodes and links that were added, changed or removed by
+     * an update.
+     */
+    static class Delta {
+        final Set<Integer> m_addedNodes = new LinkedHashSet<Integer>();
+        final Set<Integer> m_changedNodes = new LinkedHashSet<Integer>();
+        final Set<Integer> m_removedNodes = new LinkedHashSet<Integer>();
+        final Set<Integer> m_addedLinks = new LinkedHashSet<Integer>();
+        final Set<Integer> m_changedLinks = new LinkedHashSet<Integer>();
+        final Set<Integer> m_removedLinks = new LinkedHashSet<Integer>();
+
+        public boolean isEmpty() {
+            return m_addedNodes.isEmpty() && m_changedNodes.isEmpty() && m_removedNodes.isEmpty()
+                && m_addedLinks.isEmpty() && m_changedLinks.isEmpty() && m_removedLinks.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "nodes +" + m_addedNodes.size() + " ~" + m_changedNodes.size() + " -" + m_removedNodes.size()
+                + ", links +" + m_addedLinks.size() + " ~" + m_changedLinks.size() + " -" + m_removedLinks.size();
+        }
+    }
+
+    private final TopologyDao m_topologyDao;
+
+    private final FilterManager m_filterManager;
+
+    private final long m_checkInterval;
+
+    private final long m_resyncInterval;
+
+    private Map<Integer, TopologyNodeSummary> m_nodes = Collections.emptyMap();
+
+    private Map<Integer, TopologyLinkSummary> m_links = Collections.emptyMap();
+
+    private String m_nodeVersion;
+
+    private String m_linkVersion;
+
+    private long m_lastCheck;
+
+    private long m_lastResync;
+
+    public LinkdTopologySnapshot(TopologyDao topologyDao, FilterManager filterManager, long checkInterval, long resyncInterval) {
+        m_topologyDao = topologyDao;
+        m_filterManager = filterManager;
+        m_checkInterval = checkInterval;
+        m_resyncInterval = resyncInterval;
+    }
+
+    public synchronized TopologyNodeSummary getNode(int nodeId) {
+        return m_nodes.get(nodeId);
+    }
+
+    public synchronized Map<Integer, TopologyNodeSummary> getNodes() {
+        return Collections.unmodifiableMap(m_nodes);
+    }
+
+    public synchronized TopologyLinkSummary getLink(int linkId) {
+        return m_links.get(linkId);
+    }
+
+    public synchronized Map<Integer, TopologyLinkSummary> getLinks() {
+        return Collections.unmodifiableMap(m_links);
+    }
+
+    /**
+     * Reads all nodes and links regardless of the version markers.
+     */
+    public synchronized Delta reload() {
+        final Delta delta = new Delta();
+        final String[] groups = disableAuthorizationFilter();
+        try {
+            m_nodeVersion = m_topologyDao.getNodeVersion();
+            m_linkVersion = m_topologyDao.getLinkVersion();
+            m_nodes = diffNodes(m_topologyDao.getNodeSummaries(), delta);
+            m_links = diffLinks(m_topologyDao.getLinkSummaries(), delta);
+        } finally {
+            enableAuthorizationFilter(groups);
+        }
+        m_lastCheck = m_lastResync = System.currentTimeMillis();
+        LOG.debug("reload: {}", delta);
+        return delta;
+    }
+
+    /**
+     * Reads the nodes or links whose version marker changed since the last
+     * update. Calls made within the check interval of the previous one
+     * return an empty delta without touching the database.
+     */
+    public synchronized Delta update() {
+        final long now = System.currentTimeMillis();
+        if (now - m_lastResync >= m_resyncInterval) {
+            return reload();
+        }
+        final Delta delta = new Delta();
+        if (now - m_lastCheck < m_checkInterval) {
+            return delta;
+        }
+        m_lastCheck = now;
+
+        final String[] groups = disableAuthorizationFilter();
+        try {
+            final String nodeVersion = m_topologyDao.getNodeVersion();
+            if (!nodeVersion.equals(m_nodeVersion)) {
+                m_nodeVersion = nodeVersion;
+                m_nodes = diffNodes(m_topologyDao.getNodeSummaries(), delta);
+            }
+            final String linkVersion = m_topologyDao.getLinkVersion();
+            if (!linkVersion.equals(m_linkVersion)) {
+                m_linkVersion = linkVersion;
+                m_links = diffLinks(m_topologyDao.getLinkSummaries(), delta);
+            }
+        } finally {
+            enableAuthorizationFilter(groups);
+        }
+        if (!delta.isEmpty()) {
+            LOG.debug("update: {}", delta);
+        }
+        return delta;
+    }
+
+    private Map<Integer, TopologyNodeSummary> diffNodes(List<TopologyNodeSummary> summaries, Delta delta) {
+        final Map<Integer, TopologyNodeSummary> nodes = new LinkedHashMap<Integer, TopologyNodeSummary>();
+        for (final TopologyNodeSummary summary : summaries) {
+            nodes.put(summary.getNodeId(), summary);
+            final TopologyNodeSummary previous = m_nodes.get(summary.getNodeId());
+            if (previous == null) {
+                delta.m_addedNodes.add(summary.getNodeId());
+            } else if (!previous.equals(summary)) {
+                delta.m_changedNodes.add(summary.getNodeId());
+            }
+        }
+        for (final Integer nodeId : m_nodes.keySet()) {
+            if (!nodes.containsKey(nodeId)) {
+                delta.m_removedNodes.add(nodeId);
+            }
+        }
+        return nodes;
+    }
+
+    private Map<Integer, TopologyLinkSummary> diffLinks(List<TopologyLinkSummary> summaries, Delta delta) {
+        final Map<Integer, TopologyLinkSummary> links = new LinkedHashMap<Integer, TopologyLinkSummary>();
+        for (final TopologyLinkSummary summary : summaries) {
+            links.put(summary.getLinkId(), summary);
+            final TopologyLinkSummary previous = m_links.get(summary.getLinkId());
+            if (previous == null) {
+                delta.m_addedLinks.add(summary.getLinkId());
+            } else if (!previous.equals(summary)) {
+                delta.m_changedLinks.add(summary.getLinkId());
+            }
+        }
+        for (final Integer linkId : m_links.keySet()) {
+            if (!links.containsKey(linkId)) {
+                delta.m_removedLinks.add(linkId);
+            }
+        }
+        return links;
+    }
+
+    private String[] disableAuthorizationFilter() {
+        if (m_filterManager == null || !m_filterManager.isEnabled()) {
+            return null;
+        }
+        final String[] groups = m_filterManager.getAuthorizationGroups();
+        m_filterManager.disableAuthorizationFilter();
+        return groups;
+    }
+
+    private void enableAuthorizationFilter(String[] groups) {
+        if (groups != null) {
+            m_filterManager.enableAuthorizationFilter(groups);
+        }
+    }
+}
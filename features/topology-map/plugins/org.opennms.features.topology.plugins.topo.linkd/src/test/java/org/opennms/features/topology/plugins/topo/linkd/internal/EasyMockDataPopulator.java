@@ -45,6 +45,7 @@ import org.opennms.netmgt.dao.api.DataLinkInterfaceDao;
 import org.opennms.netmgt.dao.api.IpInterfaceDao;
 import org.opennms.netmgt.dao.api.NodeDao;
 import org.opennms.netmgt.dao.api.SnmpInterfaceDao;
+import org.opennms.netmgt.dao.api.TopologyDao;
 import org.opennms.netmgt.model.DataLinkInterface;
 import org.opennms.netmgt.model.NetworkBuilder;
 import org.opennms.netmgt.model.OnmsDistPoller;
@@ -52,6 +53,8 @@ import org.opennms.netmgt.model.OnmsIpInterface;
 import org.opennms.netmgt.model.OnmsNode;
 import org.opennms.netmgt.model.OnmsArpInterface.StatusType;
 import org.opennms.netmgt.model.OnmsNode.NodeType;
+import org.opennms.netmgt.model.topology.TopologyLinkSummary;
+import org.opennms.netmgt.model.topology.TopologyNodeSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -95,6 +98,9 @@ public class EasyMockDataPopulator {
     @Autowired
     private IpInterfaceDao m_ipInterfaceDao;
 
+    @Autowired
+    private TopologyDao m_topologyDao;
+
     @Autowired
     private OperationContext m_operationContext;
     
@@ -310,10 +316,34 @@ public class EasyMockDataPopulator {
             EasyMock.expect(m_ipInterfaceDao.findByNodeId(i)).andReturn(getList(getNode(i).getIpInterfaces())).anyTimes();
         }
 
+        EasyMock.expect(m_topologyDao.getNodeSummaries()).andReturn(getNodeSummaries()).anyTimes();
+        EasyMock.expect(m_topologyDao.getLinkSummaries()).andReturn(getLinkSummaries()).anyTimes();
+        EasyMock.expect(m_topologyDao.getNodeVersion()).andReturn("1").anyTimes();
+        EasyMock.expect(m_topologyDao.getLinkVersion()).andReturn("1").anyTimes();
+
         EasyMock.replay(m_dataLinkInterfaceDao);
         EasyMock.replay(m_nodeDao);
         EasyMock.replay(m_snmpInterfaceDao);
         EasyMock.replay(m_ipInterfaceDao);
+        EasyMock.replay(m_topologyDao);
+    }
+
+    public List<TopologyNodeSummary> getNodeSummaries() {
+        List<TopologyNodeSummary> summaries = new ArrayList<TopologyNodeSummary>();
+        for (OnmsNode node : getNodes()) {
+            OnmsIpInterface ip = node.getPrimaryInterface();
+            summaries.add(new TopologyNodeSummary(node.getId(), node.getLabel(), node.getSysObjectId(), node.getSysLocation(), node.getType(),
+                                                  ip == null ? null : ip.getIpAddress().getHostAddress(), ip != null && ip.isManaged()));
+        }
+        return summaries;
+    }
+
+    public List<TopologyLinkSummary> getLinkSummaries() {
+        List<TopologyLinkSummary> summaries = new ArrayList<TopologyLinkSummary>();
+        for (DataLinkInterface link : getLinks()) {
+            summaries.add(new TopologyLinkSummary(link.getId(), link.getNode().getId(), link.getIfIndex(), link.getNodeParentId(), link.getParentIfIndex(), null, null));
+        }
+        return summaries;
     }
     
     public OnmsNode getNode(Integer id) {
@@ -345,6 +375,7 @@ public class EasyMockDataPopulator {
         EasyMock.reset(m_nodeDao);
         EasyMock.reset(m_snmpInterfaceDao);
         EasyMock.reset(m_ipInterfaceDao);
+        EasyMock.reset(m_topologyDao);
     }
 
     public OnmsNode getNode1() {
@@ -552,6 +583,14 @@ public class EasyMockDataPopulator {
         m_snmpInterfaceDao = snmpInterfaceDao;
     }
 
+    public TopologyDao getTopologyDao() {
+        return m_topologyDao;
+    }
+
+    public void setTopologyDao(TopologyDao topologyDao) {
+        m_topologyDao = topologyDao;
+    }
+
     public IpInterfaceDao getIpInterfaceDao() {
         return m_ipInterfaceDao;
     }
@@ -37,6 +37,7 @@ import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.JAXBException;
@@ -63,10 +64,10 @@ import org.opennms.features.topology.api.topo.VertexProvider;
 import org.opennms.features.topology.api.topo.VertexRef;
 import org.opennms.features.topology.api.topo.WrappedLeafVertex;
 import org.opennms.features.topology.api.topo.WrappedVertex;
-import org.opennms.netmgt.dao.api.DataLinkInterfaceDao;
-import org.opennms.netmgt.model.DataLinkInterface;
+import org.opennms.netmgt.dao.api.TopologyDao;
 import org.opennms.netmgt.model.FilterManager;
 import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.model.topology.TopologyLinkSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -278,12 +279,9 @@ public class LinkdTopologyProviderTest {
 	public void loadSavedGraphWithOnlyGroups() throws Exception {
 		m_topologyProvider.setConfigurationFile("target/test-classes/saved-linkd-graph.xml");
 		
-		// Temporarily replace the DataLinkInterfaceDao with a mock empty impl
-		DataLinkInterfaceDao dao = m_topologyProvider.getDataLinkInterfaceDao();
-		DataLinkInterfaceDao mockDao = EasyMock.createMock(DataLinkInterfaceDao.class);
-		EasyMock.expect(mockDao.findAll()).andReturn(new ArrayList<DataLinkInterface>()).anyTimes();
-		EasyMock.replay(mockDao);
-		m_topologyProvider.setDataLinkInterfaceDao(mockDao);
+		// Temporarily replace the TopologyDao with a mock impl without links
+		TopologyDao dao = m_topologyProvider.getTopologyDao();
+		m_topologyProvider.setTopologyDao(createTopologyDaoWithoutLinks());
 		
 		m_topologyProvider.load(null);
 		
@@ -334,8 +332,8 @@ public class LinkdTopologyProviderTest {
 		assertEquals(null, vert8.getParent());
 		assertEquals(0, m_topologyProvider.getSemanticZoomLevel(vert8));
 
-		// Reset the DataLinkInterfaceDao
-		m_topologyProvider.setDataLinkInterfaceDao(dao);
+		// Reset the TopologyDao
+		m_topologyProvider.setTopologyDao(dao);
 	}
 
 	@Test
@@ -459,14 +457,8 @@ public class LinkdTopologyProviderTest {
     public void testAssignChildrenToParentsCorrectly() throws MalformedURLException, JAXBException {
         LinkdTopologyProvider topologyProvider = new LinkdTopologyProvider();
 
-        DataLinkInterfaceDao datalinkIfDaoMock = EasyMock.createNiceMock(DataLinkInterfaceDao.class);
-        EasyMock.expect(datalinkIfDaoMock.findAll()).andReturn(new ArrayList<DataLinkInterface>()).anyTimes();
-        EasyMock.replay(datalinkIfDaoMock);
-        
-        topologyProvider.setDataLinkInterfaceDao(datalinkIfDaoMock);
+        topologyProvider.setTopologyDao(createTopologyDaoWithoutLinks());
         topologyProvider.setNodeDao(m_databasePopulator.getNodeDao());
-        topologyProvider.setIpInterfaceDao(m_databasePopulator.getIpInterfaceDao());
-        topologyProvider.setSnmpInterfaceDao(m_databasePopulator.getSnmpInterfaceDao());
         topologyProvider.setFilterManager(new TestFilterManager());
         topologyProvider.setConfigurationFile(getClass().getResource("/saved-linkd-graph2.xml").getFile());
         topologyProvider.setAddNodeWithoutLink(true);
@@ -492,6 +484,55 @@ public class LinkdTopologyProviderTest {
         
     }
     
+    @Test
+    public void testRefreshAppliesChanges() throws MalformedURLException, JAXBException {
+        List<TopologyLinkSummary> links = m_databasePopulator.getLinkSummaries();
+        List<TopologyLinkSummary> changedLinks = new ArrayList<TopologyLinkSummary>();
+        for (TopologyLinkSummary link : links) {
+            // drop both links of node 1
+            if (link.getNodeId() != 1 && link.getParentNodeId() != 1) {
+                changedLinks.add(link);
+            }
+        }
+
+        TopologyDao topologyDao = EasyMock.createNiceMock(TopologyDao.class);
+        EasyMock.expect(topologyDao.getNodeVersion()).andReturn("1").anyTimes();
+        EasyMock.expect(topologyDao.getNodeSummaries()).andReturn(m_databasePopulator.getNodeSummaries()).anyTimes();
+        EasyMock.expect(topologyDao.getLinkVersion()).andReturn("1").times(2).andReturn("2").anyTimes();
+        EasyMock.expect(topologyDao.getLinkSummaries()).andReturn(links).once().andReturn(changedLinks).anyTimes();
+        EasyMock.replay(topologyDao);
+
+        LinkdTopologyProvider topologyProvider = new LinkdTopologyProvider();
+        topologyProvider.setTopologyDao(topologyDao);
+        topologyProvider.setCheckInterval(0);
+        topologyProvider.setConfigurationFile("target/does-not-exist.xml");
+        topologyProvider.load(null);
+        assertEquals(8, topologyProvider.getVertices().size());
+        assertEquals(8, topologyProvider.getEdges().size());
+
+        // link version unchanged, nothing to do
+        topologyProvider.refresh();
+        assertEquals(8, topologyProvider.getEdges().size());
+
+        topologyProvider.refresh();
+        assertEquals(6, topologyProvider.getEdges().size());
+        assertEquals(7, topologyProvider.getVertices().size());
+        assertFalse(topologyProvider.containsVertexId("1"));
+        assertTrue(topologyProvider.containsVertexId("2"));
+
+        EasyMock.verify(topologyDao);
+    }
+
+    private TopologyDao createTopologyDaoWithoutLinks() {
+        TopologyDao topologyDao = EasyMock.createNiceMock(TopologyDao.class);
+        EasyMock.expect(topologyDao.getNodeSummaries()).andReturn(m_databasePopulator.getNodeSummaries()).anyTimes();
+        EasyMock.expect(topologyDao.getLinkSummaries()).andReturn(new ArrayList<TopologyLinkSummary>()).anyTimes();
+        EasyMock.expect(topologyDao.getNodeVersion()).andReturn("1").anyTimes();
+        EasyMock.expect(topologyDao.getLinkVersion()).andReturn("1").anyTimes();
+        EasyMock.replay(topologyDao);
+        return topologyDao;
+    }
+
     // checks that the vertex and the node are equal
     private void check(Vertex child, OnmsNode node, Vertex parent) {
         Assert.assertNotNull(child);
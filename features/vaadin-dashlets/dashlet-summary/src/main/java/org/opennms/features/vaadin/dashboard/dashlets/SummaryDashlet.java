@@ -37,6 +37,8 @@ import org.opennms.netmgt.dao.api.AlarmDao;
 import org.opennms.netmgt.model.OnmsAlarm;
 import org.opennms.netmgt.model.OnmsSeverity;
 
+import java.util.Map;
+
 /**
  * This class implements a {@link Dashlet} for testing purposes.
  *
@@ -216,14 +218,17 @@ public class SummaryDashlet extends AbstractDashlet {
 
         verticalLayout.addComponent(getLegend("Severity"));
 
+        Map<OnmsSeverity, Integer> acknowledgedCounts = countBySeverity(true, m_timeslot);
+        Map<OnmsSeverity, Integer> notAcknowledgedCounts = countBySeverity(false, m_timeslot);
+
         for (OnmsSeverity onmsSeverity : OnmsSeverity.values()) {
             HorizontalLayout horizontalLayout = new HorizontalLayout();
             horizontalLayout.setSpacing(true);
             horizontalLayout.addStyleName("summary");
             horizontalLayout.addStyleName(onmsSeverity.name().toLowerCase());
 
-            int acknowledged = countBySeverity(true, m_timeslot, onmsSeverity);
-            int notAcknowledged = countBySeverity(false, m_timeslot, onmsSeverity);
+            int acknowledged = acknowledgedCounts.containsKey(onmsSeverity) ? acknowledgedCounts.get(onmsSeverity) : 0;
+            int notAcknowledged = notAcknowledgedCounts.containsKey(onmsSeverity) ? notAcknowledgedCounts.get(onmsSeverity) : 0;
 
             Label labelSeverity = new Label(onmsSeverity.getLabel());
             labelSeverity.addStyleName("summary-font");
@@ -398,14 +403,13 @@ public class SummaryDashlet extends AbstractDashlet {
     }
 
     /**
-     * Searches for alarms with the given criterias and returns the number found.
+     * Searches for alarms with the given criterias and returns the number found per severity.
      *
      * @param acknowledged search for acknowledged or unacknowledged alarms
      * @param age          the age of the alarms
-     * @param onmsSeverity the {@link OnmsSeverity} to search for
-     * @return number of alarms found
+     * @return number of alarms found per {@link OnmsSeverity}
      */
-    public int countBySeverity(boolean acknowledged, long age, OnmsSeverity onmsSeverity) {
+    public Map<OnmsSeverity, Integer> countBySeverity(boolean acknowledged, long age) {
         CriteriaBuilder criteriaBuilder = new CriteriaBuilder(OnmsAlarm.class);
 
         if (acknowledged) {
@@ -414,11 +418,9 @@ public class SummaryDashlet extends AbstractDashlet {
             criteriaBuilder.isNull("alarmAckUser");
         }
 
-        criteriaBuilder.eq("severity", onmsSeverity);
-
         criteriaBuilder.sql("EXTRACT(EPOCH FROM CURRENT_TIMESTAMP - lastEventTime) < " + age);
 
-        return m_alarmDao.countMatching(criteriaBuilder.toCriteria());
+        return m_alarmDao.countMatchingBySeverity(criteriaBuilder.toCriteria());
     }
 
     /**
@@ -206,6 +206,10 @@ public class TestNodeDao implements NodeDao {
 	public void updateNodeScanStamp(Integer nodeId, Date scanStamp) {
 	}
 
+	@Override
+	public void updateInterfaceScanStamps(Integer nodeId, Collection<Integer> ipInterfaceIds, Collection<Integer> snmpInterfaceIds, Date scanStamp) {
+	}
+
 	@Override
 	public Collection<Integer> getNodeIds() {
 		return null;
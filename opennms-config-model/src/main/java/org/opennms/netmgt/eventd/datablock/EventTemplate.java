@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.eventd.datablock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.opennms.netmgt.xml.event.Event;
+import org.opennms.netmgt.xml.event.Parm;
+import org.opennms.netmgt.xml.event.Value;
+import org.opennms.netmgt.xml.eventconf.AlarmData;
+import org.opennms.netmgt.xml.eventconf.Autoaction;
+import org.opennms.netmgt.xml.eventconf.Operaction;
+
+/**
+ * A string with <code>%element%</code> and <code>%parm[...]%</code> tokens,
+ * split once into literal and token segments so that expanding it for an
+ * event does not have to scan and copy the string again.
+ *
+ * <p>Templates are cached by their text. The eventconf strings are compiled
+ * when the event configuration is loaded; anything else is compiled the
+ * first time it is expanded.</p>
+ *
+ * @see EventUtil#expandParms(String, Event, Map)
+ */
+public final class EventTemplate {
+    /**
+     * Upper bound on the number of cached templates, so that strings built at
+     * runtime cannot grow the cache without limit.
+     */
+    private static final int MAX_CACHED_TEMPLATES = 100000;
+
+    /**
+     * Tokens with whitespace in them are not expanded. This is the same test
+     * {@link EventUtil} always used, so it is kept as a regular expression.
+     */
+    private static final Pattern WHITESPACE = Pattern.compile(".*\\s.*");
+
+    private static final Map<String, EventTemplate> s_cache = new ConcurrentHashMap<String, EventTemplate>();
+
+    private final String m_template;
+
+    private final Segment[] m_segments;
+
+    private final boolean m_hasTokens;
+
+    private EventTemplate(final String template, final List<Segment> segments, final boolean hasTokens) {
+        m_template = template;
+        m_segments = segments.toArray(new Segment[segments.size()]);
+        m_hasTokens = hasTokens;
+    }
+
+    /**
+     * Returns the compiled form of a template, from the cache if it has been
+     * compiled before.
+     *
+     * @param template the string to compile
+     * @return a {@link org.opennms.netmgt.eventd.datablock.EventTemplate} object.
+     */
+    public static EventTemplate compile(final String template) {
+        EventTemplate compiled = s_cache.get(template);
+        if (compiled == null) {
+            compiled = parse(template);
+            if (compiled.m_hasTokens && s_cache.size() < MAX_CACHED_TEMPLATES) {
+                s_cache.put(template, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles the templates of an eventconf event: descr, logmsg,
+     * operinstruct, autoactions, operactions, tticket, and the alarm
+     * reduction and clear keys.
+     *
+     * @param event a {@link org.opennms.netmgt.xml.eventconf.Event} object.
+     */
+    public static void precompile(final org.opennms.netmgt.xml.eventconf.Event event) {
+        precompile(event.getDescr());
+        if (event.getLogmsg() != null) {
+            precompile(event.getLogmsg().getContent());
+        }
+        precompile(event.getOperinstruct());
+        for (final Autoaction action : event.getAutoactionCollection()) {
+            precompile(action.getContent());
+        }
+        for (final Operaction action : event.getOperactionCollection()) {
+            precompile(action.getContent());
+        }
+        if (event.getTticket() != null) {
+            precompile(event.getTticket().getContent());
+        }
+        final AlarmData alarmData = event.getAlarmData();
+        if (alarmData != null) {
+            precompile(alarmData.getReductionKey());
+            precompile(alarmData.getClearKey());
+        }
+    }
+
+    private static void precompile(final String template) {
+        if (template != null) {
+            compile(template);
+        }
+    }
+
+    /**
+     * Drops all cached templates. Called before the event configuration is
+     * reloaded.
+     */
+    public static void clearCache() {
+        s_cache.clear();
+    }
+
+    /**
+     * Splits the template the same way {@link EventUtil} used to scan it: a
+     * token runs from one '%' to the next, a token containing whitespace
+     * leaves its opening '%' as a literal, and an unterminated '%' is kept
+     * with the rest of the string.
+     */
+    private static EventTemplate parse(final String template) {
+        final List<Segment> segments = new ArrayList<Segment>();
+        final StringBuilder literal = new StringBuilder();
+        boolean hasTokens = false;
+
+        int pos = 0;
+        int start;
+        while ((start = template.indexOf(EventUtil.PERCENT, pos)) != -1) {
+            literal.append(template, pos, start);
+
+            final int end = template.indexOf(EventUtil.PERCENT, start + 1);
+            if (end == -1) {
+                pos = start;
+                break;
+            }
+
+            final String token = template.substring(start + 1, end);
+            if (WHITESPACE.matcher(token).matches()) {
+                literal.append(EventUtil.PERCENT);
+                pos = start + 1;
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                segments.add(new Literal(literal.toString()));
+                literal.setLength(0);
+            }
+            segments.add(token(token));
+            hasTokens = true;
+            pos = end + 1;
+        }
+
+        literal.append(template, pos, template.length());
+        if (literal.length() > 0) {
+            segments.add(new Literal(literal.toString()));
+        }
+        return new EventTemplate(template, segments, hasTokens);
+    }
+
+    private static Segment token(final String token) {
+        if (token.startsWith(EventUtil.PARM_BEGIN)
+                && !token.equals(EventUtil.PARMS_VALUES)
+                && !token.equals(EventUtil.PARMS_NAMES)
+                && !token.equals(EventUtil.PARMS_ALL)
+                && !token.equals(EventUtil.NUM_PARMS_STR)
+                && !token.startsWith(EventUtil.PARM_NAME_NUMBERED_PREFIX)) {
+            if (token.startsWith(EventUtil.PARM_NUM_PREFIX)) {
+                final int end = token.lastIndexOf(EventUtil.PARM_END_SUFFIX);
+                int parmNum = -1;
+                if (end != -1) {
+                    try {
+                        parmNum = Integer.parseInt(token.substring(EventUtil.PARM_NUM_PREFIX_LENGTH, end));
+                    } catch (final NumberFormatException e) {
+                        parmNum = -1;
+                    }
+                }
+                return new NumberedParm(token, parmNum);
+            }
+            final int end = token.indexOf(EventUtil.PARM_END_SUFFIX, EventUtil.PARM_BEGIN_LENGTH);
+            return new NamedParm(token, end == -1 ? null : token.substring(EventUtil.PARM_BEGIN_LENGTH, end));
+        }
+        return new Element(token);
+    }
+
+    /**
+     * <p>hasTokens</p>
+     *
+     * @return false if expanding this template can never change it
+     */
+    public boolean hasTokens() {
+        return m_hasTokens;
+    }
+
+    /**
+     * Expands the template for an event.
+     *
+     * @param event the event whose values are substituted
+     * @param parms the parameter index of the event, or null to build one
+     * when it is needed
+     * @param decode the varbind decodes, or null
+     * @return the expanded string, or null if it is the same as the template
+     */
+    public String expand(final Event event, final ParameterIndex parms, final Map<String, Map<String, String>> decode) {
+        if (!m_hasTokens) {
+            return null;
+        }
+
+        ParameterIndex index = parms;
+        final StringBuilder ret = new StringBuilder(m_template.length() + 64);
+        for (final Segment segment : m_segments) {
+            if (segment instanceof Literal) {
+                ret.append(((Literal) segment).m_text);
+                continue;
+            }
+            if (index == null && segment instanceof NamedParm) {
+                index = new ParameterIndex(event);
+            }
+
+            final Token token = (Token) segment;
+            final String value = token.getValue(event, index);
+            if (value == null) {
+                continue;
+            }
+            final Map<String, String> values = decode == null ? null : decode.get(token.m_token);
+            if (values != null && values.containsKey(value)) {
+                ret.append(values.get(value)).append('(').append(value).append(')');
+            } else {
+                ret.append(value);
+            }
+        }
+
+        final String retStr = ret.toString();
+        return retStr.equals(m_template) ? null : retStr;
+    }
+
+    /**
+     * The values of an event's parameters by name, built once and shared by
+     * all the templates expanded for that event. The first parameter with a
+     * value wins when a name is repeated.
+     */
+    public static final class ParameterIndex {
+        private final Map<String, Parm> m_parms;
+        private final Map<String, String> m_values = new HashMap<String, String>();
+
+        /**
+         * <p>Constructor for ParameterIndex.</p>
+         *
+         * @param event a {@link org.opennms.netmgt.xml.event.Event} object.
+         */
+        public ParameterIndex(final Event event) {
+            final List<Parm> parms = event.getParmCollection();
+            m_parms = new HashMap<String, Parm>(parms.size() * 2);
+            for (final Parm parm : parms) {
+                final String name = parm.getParmName();
+                if (name == null || parm.getValue() == null) {
+                    continue;
+                }
+                final String key = name.trim();
+                if (!m_parms.containsKey(key)) {
+                    m_parms.put(key, parm);
+                }
+            }
+        }
+
+        /**
+         * <p>getValue</p>
+         *
+         * @param name the parameter name
+         * @return the trimmed value of the parameter, or null if the event
+         * does not have it
+         */
+        public String getValue(final String name) {
+            if (m_values.containsKey(name)) {
+                return m_values.get(name);
+            }
+            final Parm parm = m_parms.get(name);
+            String value = null;
+            if (parm != null) {
+                value = EventUtil.getValueAsString(parm.getValue());
+                if (value != null) {
+                    value = value.trim();
+                }
+            }
+            m_values.put(name, value);
+            return value;
+        }
+    }
+
+    private static abstract class Segment {
+    }
+
+    private static final class Literal extends Segment {
+        private final String m_text;
+
+        public Literal(final String text) {
+            m_text = text;
+        }
+    }
+
+    private static abstract class Token extends Segment {
+        protected final String m_token;
+
+        public Token(final String token) {
+            m_token = token;
+        }
+
+        public abstract String getValue(Event event, ParameterIndex parms);
+    }
+
+    /**
+     * An event element or any token that is not a plain parameter lookup,
+     * resolved by {@link EventUtil#getValueOfParm(String, Event)}.
+     */
+    private static final class Element extends Token {
+        public Element(final String token) {
+            super(token);
+        }
+
+        @Override
+        public String getValue(final Event event, final ParameterIndex parms) {
+            return EventUtil.getValueOfParm(m_token, event);
+        }
+    }
+
+    private static final class NamedParm extends Token {
+        private final String m_name;
+
+        public NamedParm(final String token, final String name) {
+            super(token);
+            m_name = name;
+        }
+
+        @Override
+        public String getValue(final Event event, final ParameterIndex parms) {
+            return m_name == null ? null : parms.getValue(m_name);
+        }
+    }
+
+    private static final class NumberedParm extends Token {
+        private final int m_parmNum;
+
+        public NumberedParm(final String token, final int parmNum) {
+            super(token);
+            m_parmNum = parmNum;
+        }
+
+        @Override
+        public String getValue(final Event event, final ParameterIndex parms) {
+            final List<Parm> eventParms = event.getParmCollection();
+            if (m_parmNum < 1 || eventParms == null || m_parmNum > eventParms.size()) {
+                return null;
+            }
+            final Value value = eventParms.get(m_parmNum - 1).getValue();
+            if (value == null) {
+                return null;
+            }
+            final String ret = EventUtil.getValueAsString(value);
+            return ret == null ? null : ret.trim();
+        }
+    }
+}
@@ -28,11 +28,6 @@
 
 package org.opennms.netmgt.eventd.datablock;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetAddress;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -897,73 +892,30 @@ public final class EventUtil {
      * @param event a {@link org.opennms.netmgt.xml.event.Event} object.
      */
     public static String expandParms(String inp, Event event, Map<String, Map<String, String>> decode) {
-        int index1 = -1;
-        int index2 = -1;
+        return expandParms(inp, event, decode, null);
+    }
 
+    /**
+     * Expand the value as {@link #expandParms(String, Event, Map)} does,
+     * looking named parameters up in an index that is shared by all the
+     * values expanded for the same event.
+     *
+     * @param inp
+     *            the input string in which parm values are to be expanded
+     * @param event a {@link org.opennms.netmgt.xml.event.Event} object.
+     * @param decode
+     *            the varbind decode for this, or null
+     * @param parms
+     *            the parameter index of the event, or null to build one if
+     *            it is needed
+     * @return expanded value if the value had any parameter to expand, null
+     *         otherwise
+     */
+    public static String expandParms(String inp, Event event, Map<String, Map<String, String>> decode, EventTemplate.ParameterIndex parms) {
         if (inp == null) {
             return null;
         }
-
-        StringBuffer ret = new StringBuffer();
-
-        String tempInp = inp;
-        int inpLen = inp.length();
-
-        // check input string to see if it has any %xxx% substring
-        while ((tempInp != null) && ((index1 = tempInp.indexOf(PERCENT)) != -1)) {
-            // copy till first %
-            ret.append(tempInp.substring(0, index1));
-            tempInp = tempInp.substring(index1);
-
-            index2 = tempInp.indexOf(PERCENT, 1);
-            if (index2 != -1) {
-                // Get the value between the %s
-                String parm = tempInp.substring(1, index2);
-                // m_logger.debug("parm: " + parm + " found in value");
-
-                // If there's any whitespace in between the % signs, then do not try to 
-                // expand it with a parameter value
-                if (parm.matches(".*\\s.*")) {
-                    ret.append(PERCENT);
-                    tempInp = tempInp.substring(1);
-                    continue;
-                }
-
-                String parmVal = getValueOfParm(parm, event);
-                // m_logger.debug("value of parm: " + parmVal);
-
-                if (parmVal != null) {
-                    if (decode != null && decode.containsKey(parm) && decode.get(parm).containsKey(parmVal)) {
-                        ret.append(decode.get(parm).get(parmVal));
-                        ret.append("(");
-                        ret.append(parmVal);
-                        ret.append(")");
-                    } else {
-                        ret.append(parmVal);
-                    }
-                }
-
-                if (index2 < (inpLen - 1)) {
-                    tempInp = tempInp.substring(index2 + 1);
-                } else {
-                    tempInp = null;
-                }
-            }
-            else {
-                break;
-            }
-        }
-
-        if ((index1 == -1 || index2 == -1) && (tempInp != null)) {
-            ret.append(tempInp);
-        }
-
-        String retStr = ret.toString();
-        if (retStr != null && !retStr.equals(inp)) {
-            return retStr;
-        } else {
-            return null;
-        }
+        return EventTemplate.compile(inp).expand(event, parms, decode);
     }
 
 
@@ -1078,34 +1030,16 @@ public final class EventUtil {
 	}
 
 	/**
-	 * <p>cloneEvent</p>
+	 * Returns a deep copy of an event. The copy constructor shares the
+	 * event's strings and copies its nested objects, which is much cheaper
+	 * than the serialization round trip this used to do.
 	 *
 	 * @param orig a {@link org.opennms.netmgt.xml.event.Event} object.
 	 * @return a {@link org.opennms.netmgt.xml.event.Event} object.
 	 */
 	public static Event cloneEvent(Event orig) {
-	       Event copy = null;
-	        try {
-	            // Write the object out to a byte array
-	            ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
-	            ObjectOutputStream out = new ObjectOutputStream(bos);
-	            out.writeObject(orig);
-	            out.flush();
-	            out.close();
-	
-	            // Make an input stream from the byte array and read
-	            // a copy of the object back in.
-	            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
-	            copy = (Event)in.readObject();
-	        }
-	        catch(IOException e) {
-	            LOG.error("Exception cloning event", e);
-	        }
-	        catch(ClassNotFoundException cnfe) {
-	            LOG.error("Exception cloning event", cnfe);
-	        }
-	        return copy;
-	}	
+		return orig == null ? null : new Event(orig);
+	}
 
     /**
      * Helper method.
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.eventd.datablock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.xml.event.Event;
+import org.opennms.netmgt.xml.event.Parm;
+import org.opennms.netmgt.xml.event.Value;
+
+public class EventTemplateTest {
+
+    private Event m_trap;
+
+    @Before
+    public void setUp() {
+        m_trap = new Event();
+        m_trap.setUei("uei.opennms.org/vendor/Test/traps/linkStateChange");
+        m_trap.setNodeid(17L);
+        m_trap.setInterface("10.1.2.3");
+        for (int i = 1; i <= 20; i++) {
+            addParm(".1.3.6.1.4.1.5813.20.1." + i, " value" + i + " ");
+        }
+    }
+
+    private void addParm(final String name, final String content) {
+        final Value value = new Value();
+        value.setContent(content);
+        final Parm parm = new Parm();
+        parm.setParmName(name);
+        parm.setValue(value);
+        m_trap.addParm(parm);
+    }
+
+    @Test
+    public void testTrapWithTwentyVarbinds() {
+        final StringBuilder template = new StringBuilder("%uei% on %nodeid%/%interface%:");
+        final StringBuilder expected = new StringBuilder(m_trap.getUei() + " on 17/10.1.2.3:");
+        for (int i = 1; i <= 20; i++) {
+            template.append(" %parm[.1.3.6.1.4.1.5813.20.1.").append(i).append("]%=%parm[#").append(i).append("]%");
+            expected.append(" value").append(i).append("=value").append(i);
+        }
+        template.append(" (%parm[##]%)");
+        expected.append(" (20)");
+
+        final EventTemplate.ParameterIndex parms = new EventTemplate.ParameterIndex(m_trap);
+        assertEquals(expected.toString(), EventUtil.expandParms(template.toString(), m_trap, null, parms));
+        assertEquals(expected.toString(), EventUtil.expandParms(template.toString(), m_trap));
+    }
+
+    @Test
+    public void testTemplatesAreCached() {
+        final String template = "%uei%:%parm[#1]%";
+        assertSame(EventTemplate.compile(template), EventTemplate.compile(template));
+    }
+
+    @Test
+    public void testLiteralsAreNotExpanded() {
+        assertFalse(EventTemplate.compile("no tokens here").hasTokens());
+        assertNull(EventUtil.expandParms("no tokens here", m_trap));
+        assertNull(EventUtil.expandParms("50% done", m_trap));
+    }
+
+    @Test
+    public void testTokensWithWhitespaceAreLiteral() {
+        assertEquals("50% done and 17", EventUtil.expandParms("50% done and %nodeid%", m_trap));
+        assertEquals("a % b 17 c", EventUtil.expandParms("a % b %nodeid% c", m_trap));
+    }
+
+    @Test
+    public void testUnknownTokensAreRemoved() {
+        assertEquals("[]", EventUtil.expandParms("[%parm[nonexistent]%]", m_trap));
+        assertEquals("[]", EventUtil.expandParms("[%parm[#21]%]", m_trap));
+        assertEquals("[]", EventUtil.expandParms("[%bogus%]", m_trap));
+    }
+
+    @Test
+    public void testFirstParmWithAValueWins() {
+        addParm("ifName", "eth0");
+        addParm("ifName", "eth1");
+        assertEquals("eth0", EventUtil.expandParms("%parm[ifName]%", m_trap));
+    }
+
+    @Test
+    public void testDecode() {
+        final Map<String, Map<String, String>> decode = new HashMap<String, Map<String, String>>();
+        final Map<String, String> values = new HashMap<String, String>();
+        values.put("value1", "up");
+        decode.put("parm[#1]", values);
+        assertEquals("state up(value1)", EventUtil.expandParms("state %parm[#1]%", m_trap, decode));
+    }
+}
@@ -37,6 +37,7 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.opennms.core.xml.JaxbUtils;
+import org.opennms.netmgt.eventd.datablock.EventTemplate;
 import org.opennms.netmgt.xml.eventconf.Event;
 import org.opennms.netmgt.xml.eventconf.Events;
 import org.opennms.netmgt.xml.eventconf.Events.EventCallback;
@@ -238,6 +239,15 @@ public class DefaultEventConfDao implements EventConfDao, InitializingBean {
 
 			m_events = events;
 
+			EventTemplate.clearCache();
+			events.forEachEvent(null, new EventCallback<Void>() {
+				@Override
+				public Void process(Void accum, Event event) {
+					EventTemplate.precompile(event);
+					return accum;
+				}
+			});
+
 		} catch (Exception e) {
 			throw new DataRetrievalFailureException("Unabled to load " + m_configResource, e);
 		}
@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.opennms.netmgt.eventd.datablock.EventTemplate;
 import org.opennms.netmgt.eventd.datablock.EventUtil;
 import org.opennms.netmgt.model.events.EventProcessor;
 import org.opennms.netmgt.xml.event.AlarmData;
@@ -423,8 +424,8 @@ public final class EventExpander implements EventProcessor, InitializingBean {
     /**
      * Expand parms in the event logmsg
      */
-    private void expandParms(Logmsg logmsg, Event event, Map<String, Map<String, String>> decode) {
-        String strRet = org.opennms.netmgt.eventd.datablock.EventUtil.expandParms(logmsg.getContent(), event, decode);
+    private void expandParms(Logmsg logmsg, Event event, Map<String, Map<String, String>> decode, EventTemplate.ParameterIndex parms) {
+        String strRet = EventUtil.expandParms(logmsg.getContent(), event, decode, parms);
         if (strRet != null) {
             logmsg.setContent(strRet);
         }
@@ -433,11 +434,11 @@ public final class EventExpander implements EventProcessor, InitializingBean {
     /**
      * Expand parms in the event autoaction(s)
      */
-    private void expandParms(Autoaction[] autoactions, Event event) {
+    private void expandParms(Autoaction[] autoactions, Event event, EventTemplate.ParameterIndex parms) {
         boolean expanded = false;
 
         for (Autoaction action : autoactions) {
-            String strRet = EventUtil.expandParms(action.getContent(), event);
+            String strRet = EventUtil.expandParms(action.getContent(), event, null, parms);
             if (strRet != null) {
                 action.setContent(strRet);
                 expanded = true;
@@ -452,11 +453,11 @@ public final class EventExpander implements EventProcessor, InitializingBean {
     /**
      * Expand parms in the event operaction(s)
      */
-    private void expandParms(Operaction[] operactions, Event event) {
+    private void expandParms(Operaction[] operactions, Event event, EventTemplate.ParameterIndex parms) {
         boolean expanded = false;
 
         for (Operaction action : operactions) {
-            String strRet = EventUtil.expandParms(action.getContent(), event);
+            String strRet = EventUtil.expandParms(action.getContent(), event, null, parms);
             if (strRet != null) {
                 action.setContent(strRet);
                 expanded = true;
@@ -471,8 +472,8 @@ public final class EventExpander implements EventProcessor, InitializingBean {
     /**
      * Expand parms in the event tticket
      */
-    private void expandParms(Tticket tticket, Event event) {
-        String strRet = EventUtil.expandParms(tticket.getContent(), event);
+    private void expandParms(Tticket tticket, Event event, EventTemplate.ParameterIndex parms) {
+        String strRet = EventUtil.expandParms(tticket.getContent(), event, null, parms);
         if (strRet != null) {
             tticket.setContent(strRet);
         }
@@ -489,13 +490,17 @@ public final class EventExpander implements EventProcessor, InitializingBean {
      * parameter named 'name', if present - %parm[# <num>]% is replaced by the
      * value of the parameter number 'num', if present - %parm[##]% is replaced
      * by the number of parameters
+     *
+     * The parameters are indexed by name once and the index is shared by all
+     * of the elements.
      */
     private void expandParms(Event event, Map<String, Map<String, String>> decode) {
         String strRet = null;
+        final EventTemplate.ParameterIndex parms = new EventTemplate.ParameterIndex(event);
 
         // description
         if (event.getDescr() != null) {
-            strRet = org.opennms.netmgt.eventd.datablock.EventUtil.expandParms(event.getDescr(), event,decode);
+            strRet = EventUtil.expandParms(event.getDescr(), event, decode, parms);
             if (strRet != null) {
                 event.setDescr(strRet);
                 strRet = null;
@@ -504,12 +509,12 @@ public final class EventExpander implements EventProcessor, InitializingBean {
 
         // logmsg
         if (event.getLogmsg() != null) {
-            expandParms(event.getLogmsg(), event, decode);
+            expandParms(event.getLogmsg(), event, decode, parms);
         }
 
         // operinstr
         if (event.getOperinstruct() != null) {
-            strRet = EventUtil.expandParms(event.getOperinstruct(), event);
+            strRet = EventUtil.expandParms(event.getOperinstruct(), event, null, parms);
             if (strRet != null) {
                 event.setOperinstruct(strRet);
                 strRet = null;
@@ -518,27 +523,27 @@ public final class EventExpander implements EventProcessor, InitializingBean {
 
         // autoaction
         if (event.getAutoaction() != null) {
-            expandParms(event.getAutoaction(), event);
+            expandParms(event.getAutoaction(), event, parms);
         }
 
         // operaction
         if (event.getOperaction() != null) {
-            expandParms(event.getOperaction(), event);
+            expandParms(event.getOperaction(), event, parms);
         }
 
         // tticket
         if (event.getTticket() != null) {
-            expandParms(event.getTticket(), event);
+            expandParms(event.getTticket(), event, parms);
         }
         
         // reductionKey
         if (event.getAlarmData() != null) {
-            strRet = EventUtil.expandParms(event.getAlarmData().getReductionKey(), event);
+            strRet = EventUtil.expandParms(event.getAlarmData().getReductionKey(), event, null, parms);
             if (strRet != null) {
                 event.getAlarmData().setReductionKey(strRet);
             }
             strRet = null;
-            strRet = EventUtil.expandParms(event.getAlarmData().getClearKey(), event);
+            strRet = EventUtil.expandParms(event.getAlarmData().getClearKey(), event, null, parms);
             if (strRet != null) {
             	event.getAlarmData().setClearKey(strRet);
             }
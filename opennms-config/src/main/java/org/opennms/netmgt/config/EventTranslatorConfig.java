@@ -72,4 +72,10 @@ public interface EventTranslatorConfig {
 	 */
 	void update() throws Exception;
 
+	/**
+	 * Forget any cached sql-value lookups, e.g. because nodes, interfaces
+	 * or services have changed.
+	 */
+	void invalidateLookups();
+
 }
@@ -34,11 +34,20 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,9 +59,9 @@ import org.exolab.castor.xml.MarshalException;
 import org.exolab.castor.xml.ValidationException;
 import org.opennms.core.db.DataSourceFactory;
 import org.opennms.core.utils.ConfigFileConstants;
+import org.opennms.core.utils.DBUtils;
 import org.opennms.core.utils.MatchTable;
 import org.opennms.core.utils.PropertiesUtils;
-import org.opennms.core.utils.SingleResultQuerier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.opennms.core.xml.CastorUtils;
@@ -68,6 +77,7 @@ import org.opennms.netmgt.xml.event.Parm;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.FatalBeanException;
 import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.dao.DataRetrievalFailureException;
 
 /**
  * This is the singleton class used to load the configuration from the
@@ -105,6 +115,31 @@ public final class EventTranslatorConfigFactory implements EventTranslatorConfig
      */
 	private DataSource m_dbConnFactory = null;
 
+    /**
+     * How long, in milliseconds, the result of an sql-value lookup is reused.
+     * Zero, the default, disables the cache.
+     */
+    private final long m_sqlCacheTtl = Long.getLong("org.opennms.translator.sqlValue.cacheTtl", 0L);
+
+    /**
+     * The most results kept per sql-value.
+     */
+    private final int m_sqlCacheSize = Integer.getInteger("org.opennms.translator.sqlValue.cacheSize", 10000);
+
+    /**
+     * The most idle prepared statements, each holding a connection, kept per sql-value.
+     */
+    private final int m_sqlStatementPoolSize = Integer.getInteger("org.opennms.translator.sqlValue.statementPoolSize", 1);
+
+    /**
+     * Bumped whenever cached sql-value results must no longer be used.
+     */
+    private final AtomicLong m_lookupGeneration = new AtomicLong();
+
+    /**
+     * Every sql-value created for the current configuration, so their statements can be closed.
+     */
+    private final List<SqlValueSpec> m_sqlValueSpecs = new CopyOnWriteArrayList<SqlValueSpec>();
     
     /**
      * Private constructor
@@ -172,9 +207,34 @@ public final class EventTranslatorConfigFactory implements EventTranslatorConfig
                 }
             }
             
+            // rebuild the specs from the new configuration
+            m_translationSpecs = null;
+            closeSqlValueSpecs();
+            invalidateLookups();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Idle pooled statements are closed as well, so their connections are
+     * handed back; they are prepared again on the next lookup.
+     */
+    @Override
+    public void invalidateLookups() {
+        m_lookupGeneration.incrementAndGet();
+        for (SqlValueSpec spec : m_sqlValueSpecs) {
+            spec.closeStatements(false);
+        }
+    }
+
+    private void closeSqlValueSpecs() {
+        for (SqlValueSpec spec : m_sqlValueSpecs) {
+            spec.closeStatements(true);
+        }
+        m_sqlValueSpecs.clear();
+    }
+
     /**
      * Load the config from the default config file and create the singleton
      * instance of this factory.
@@ -571,8 +631,11 @@ public final class EventTranslatorConfigFactory implements EventTranslatorConfig
 			return new ParameterValueSpec(val);
 		else if ("constant".equals(val.getType()))
 			return new ConstantValueSpec(val);
-		else if ("sql".equals(val.getType()))
-			return new SqlValueSpec(val);
+		else if ("sql".equals(val.getType())) {
+			SqlValueSpec spec = new SqlValueSpec(val);
+			m_sqlValueSpecs.add(spec);
+			return spec;
+		}
 		else
 			return new ValueSpecUnspecified();
 	}
@@ -628,6 +691,27 @@ public final class EventTranslatorConfigFactory implements EventTranslatorConfig
 	class SqlValueSpec extends ValueSpec {
 		Value m_val;
 		List<ValueSpec> m_nestedValues;
+
+		/**
+		 * Recent lookup results keyed by the bound arguments, least recently
+		 * used first.  Guarded by itself.
+		 */
+		private final Map<List<Object>, LookupResult> m_results = new LinkedHashMap<List<Object>, LookupResult>(16, 0.75f, true) {
+		    private static final long serialVersionUID = -2385404384146208787L;
+
+		    @Override
+		    protected boolean removeEldestEntry(Map.Entry<List<Object>, LookupResult> eldest) {
+		        return size() > m_sqlCacheSize;
+		    }
+		};
+		private long m_resultsGeneration = -1;
+
+		/**
+		 * Idle prepared statements, each on its own connection.  Guarded by itself.
+		 */
+		private final LinkedList<PooledStatement> m_statements = new LinkedList<PooledStatement>();
+		private boolean m_closed = false;
+
 		public SqlValueSpec(Value val) {
 			m_val = val;
 			m_nestedValues = null; // lazy init
@@ -654,65 +738,139 @@ public final class EventTranslatorConfigFactory implements EventTranslatorConfig
 					return false;
 			}
 		    
-		    Query query = createQuery(e);
-		    int rowCount = query.execute();
+		    Object[] args = getArguments(e);
+		    LookupResult result = lookup(args);
 
-		    if (rowCount < 1) {
-                LOG.info("No results found for query {}. No match.", query.reproduceStatement());
+		    if (result.getRowCount() < 1) {
+                LOG.info("No results found for query {}. No match.", reproduceStatement(args));
                 return false;
 		    }
 		    
 		    return true;
 		}
-		
-		private class Query {
-		    SingleResultQuerier m_querier;
-		    Object[] m_args;
-		    
-		    Query(SingleResultQuerier querier, Object[] args) {
-		        m_querier = querier;
-		        m_args = args;
+
+		private Object[] getArguments(Event srcEvent) {
+            Object[] args = new Object[getNestedValues().size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = (getNestedValues().get(i)).getResult(srcEvent);
+            }
+            return args;
+		}
+
+		private String reproduceStatement(Object[] args) {
+		    return m_val.getResult()+": with vals "+Arrays.asList(args);
+		}
+
+		/**
+		 * Returns the result of the query for the given arguments, from the
+		 * cache if a result is there that has not expired and has not been
+		 * invalidated since it was stored.
+		 */
+		private LookupResult lookup(Object[] args) {
+		    if (m_sqlCacheTtl <= 0 || m_sqlCacheSize <= 0) {
+		        return execute(args);
 		    }
 
-		    public int getRowCount() {
-		        return m_querier.getCount();
+		    List<Object> key = Arrays.asList(args);
+		    long generation = m_lookupGeneration.get();
+		    synchronized (m_results) {
+		        if (m_resultsGeneration != generation) {
+		            m_results.clear();
+		            m_resultsGeneration = generation;
+		        }
+		        LookupResult cached = m_results.get(key);
+		        if (cached != null && !cached.isExpired()) {
+		            LOG.debug("lookup: using cached result {} for query {}", cached.getResult(), reproduceStatement(args));
+		            return cached;
+		        }
 		    }
 
-		    public int execute() {
-		        m_querier.execute(m_args);
-		        return getRowCount();
+		    LookupResult result = execute(args);
+
+		    synchronized (m_results) {
+		        // don't store a result that raced with an invalidation
+		        if (m_resultsGeneration == m_lookupGeneration.get()) {
+		            m_results.put(key, result);
+		        }
 		    }
-		    
-		    public String reproduceStatement() {
-		        return m_querier.reproduceStatement(m_args);
+		    return result;
+		}
+
+		private LookupResult execute(Object[] args) {
+		    PooledStatement stmt = null;
+		    boolean reused = false;
+		    try {
+		        stmt = borrowStatement();
+		        reused = stmt != null;
+		        if (stmt == null) {
+		            stmt = new PooledStatement(m_dbConnFactory, m_val.getResult());
+		        }
+		        return release(stmt, stmt.execute(args));
+		    } catch (SQLException e) {
+		        if (stmt != null) {
+		            stmt.close();
+		        }
+		        if (!reused) {
+		            throw new DataRetrievalFailureException("Problem executing statement: "+reproduceStatement(args), e);
+		        }
+		        // the pooled connection may have gone stale, try once more on a new one
+		        LOG.debug("execute: pooled statement failed, retrying on a new connection: {}", e.getMessage());
+		        stmt = null;
+		        try {
+		            stmt = new PooledStatement(m_dbConnFactory, m_val.getResult());
+		            return release(stmt, stmt.execute(args));
+		        } catch (SQLException retryException) {
+		            if (stmt != null) {
+		                stmt.close();
+		            }
+		            throw new DataRetrievalFailureException("Problem executing statement: "+reproduceStatement(args), retryException);
+		        }
 		    }
-		    
-		    public Object getResult() {
-		        return m_querier.getResult();
+		}
+
+		private PooledStatement borrowStatement() {
+		    synchronized (m_statements) {
+		        return m_statements.poll();
 		    }
-		    
 		}
-		
-		public Query createQuery(Event srcEvent) {
-            Object[] args = new Object[getNestedValues().size()];
-            SingleResultQuerier querier = new SingleResultQuerier(m_dbConnFactory, m_val.getResult());
-            for (int i = 0; i < args.length; i++) {
-                args[i] = (getNestedValues().get(i)).getResult(srcEvent);
-            }
-            
-            return new Query(querier, args);
+
+		private LookupResult release(PooledStatement stmt, LookupResult result) {
+		    synchronized (m_statements) {
+		        if (!m_closed && m_statements.size() < m_sqlStatementPoolSize) {
+		            m_statements.add(stmt);
+		            return result;
+		        }
+		    }
+		    stmt.close();
+		    return result;
 		}
-		
+
+		/**
+		 * Closes the idle statements.  A retired spec belongs to a replaced
+		 * configuration and pools no further statements.
+		 */
+		void closeStatements(boolean retire) {
+		    synchronized (m_statements) {
+		        for (PooledStatement stmt : m_statements) {
+		            stmt.close();
+		        }
+		        m_statements.clear();
+		        if (retire) {
+		            m_closed = true;
+		        }
+		    }
+		}
+
                 @Override
 		public String getResult(Event srcEvent) {
-		    Query query = createQuery(srcEvent);
-            query.execute();
-			if (query.getRowCount() < 1) {
-                LOG.info("No results found for query {}. Returning null", query.reproduceStatement());
+		    Object[] args = getArguments(srcEvent);
+		    LookupResult lookup = lookup(args);
+			if (lookup.getRowCount() < 1) {
+                LOG.info("No results found for query {}. Returning null", reproduceStatement(args));
 				return null;
 			}
 			else {
-			    Object result = query.getResult();
+			    Object result = lookup.getResult();
 			    LOG.debug("getResult: result of single result querier is: {}", result);
 			    if (result != null) {
 			        return result.toString();
@@ -724,6 +882,72 @@ public final class EventTranslatorConfigFactory implements EventTranslatorConfig
 		
 	}
 
+	/**
+	 * The row count and last first-column value of an sql-value query, as
+	 * {@link org.opennms.core.utils.SingleResultQuerier} would report them.
+	 */
+	private class LookupResult {
+	    private final int m_rowCount;
+	    private final Object m_result;
+	    private final long m_expires;
+
+	    LookupResult(int rowCount, Object result) {
+	        m_rowCount = rowCount;
+	        m_result = result;
+	        m_expires = System.currentTimeMillis() + m_sqlCacheTtl;
+	    }
+
+	    int getRowCount() { return m_rowCount; }
+
+	    Object getResult() { return m_result; }
+
+	    boolean isExpired() {
+	        return System.currentTimeMillis() >= m_expires;
+	    }
+	}
+
+	/**
+	 * A statement prepared on a connection that is held for reuse by a
+	 * single {@link SqlValueSpec}.
+	 */
+	private class PooledStatement {
+	    private final Connection m_connection;
+	    private final PreparedStatement m_statement;
+
+	    PooledStatement(DataSource dataSource, String sql) throws SQLException {
+	        m_connection = dataSource.getConnection();
+	        try {
+	            m_statement = m_connection.prepareStatement(sql);
+	        } catch (SQLException e) {
+	            new DBUtils(EventTranslatorConfigFactory.class, m_connection).cleanUp();
+	            throw e;
+	        }
+	    }
+
+	    LookupResult execute(Object[] args) throws SQLException {
+	        m_statement.clearParameters();
+	        for (int i = 0; i < args.length; i++) {
+	            m_statement.setObject(i+1, args[i]);
+	        }
+	        ResultSet rs = m_statement.executeQuery();
+	        try {
+	            int count = 0;
+	            Object result = null;
+	            while (rs.next()) {
+	                result = rs.getObject(1);
+	                count++;
+	            }
+	            return new LookupResult(count, result);
+	        } finally {
+	            new DBUtils(EventTranslatorConfigFactory.class, rs).cleanUp();
+	        }
+	    }
+
+	    void close() {
+	        new DBUtils(EventTranslatorConfigFactory.class, m_statement, m_connection).cleanUp();
+	    }
+	}
+
 	abstract class AttributeValueSpec extends ValueSpec {
 		Value m_val;
 		AttributeValueSpec(Value val) { m_val = val; }
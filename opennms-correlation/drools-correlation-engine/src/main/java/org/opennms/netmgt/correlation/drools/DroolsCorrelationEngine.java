@@ -31,12 +31,18 @@ package org.opennms.netmgt.correlation.drools;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.IOUtils;
 import org.drools.RuleBase;
@@ -50,6 +56,7 @@ import org.drools.compiler.PackageBuilderConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.opennms.netmgt.correlation.AbstractCorrelationEngine;
+import org.opennms.netmgt.model.events.EventUtils;
 import org.opennms.netmgt.xml.event.Event;
 import org.springframework.core.io.Resource;
 
@@ -62,16 +69,190 @@ import org.springframework.core.io.Resource;
 public class DroolsCorrelationEngine extends AbstractCorrelationEngine {
     private static final Logger LOG = LoggerFactory.getLogger(DroolsCorrelationEngine.class);
 
+    /** Partition key that routes events by their node ID. */
+    public static final String PARTITION_KEY_NODEID = "nodeid";
+
+    /** The length of each partition's queue unless {@link #setQueueLength(int)} is called. */
+    public static final int DEFAULT_QUEUE_LENGTH = 100000;
+
+    private static final long STATISTICS_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * What a partition's queue does with a new fact when it is full.
+     */
+    public static enum OverflowPolicy {
+        /** Drop the new fact. */
+        DISCARD_NEWEST,
+        /** Drop the oldest queued fact to make room for the new one. */
+        DISCARD_OLDEST,
+        /**
+         * Wait for room, so that the thread delivering events to the engine
+         * slows down with the partition.
+         */
+        BLOCK
+    }
+
     private WorkingMemory m_workingMemory;
     private List<String> m_interestingEvents;
     private List<Resource> m_rules;
     private Map<String, Object> m_globals = new HashMap<String, Object>();
     private String m_name;
     private String m_assertBehaviour;
-    
+    private int m_partitionCount = 1;
+    private String m_partitionKey = PARTITION_KEY_NODEID;
+    private int m_batchSize = 100;
+    private int m_queueLength = DEFAULT_QUEUE_LENGTH;
+    private OverflowPolicy m_overflowPolicy = OverflowPolicy.BLOCK;
+    private volatile boolean m_stopped = false;
+
+    // only set when more than one partition is configured
+    private Partition[] m_partitions;
+    private Thread[] m_threads;
+    private final ThreadLocal<Partition> m_currentPartition = new ThreadLocal<Partition>();
+    private final Map<Integer, Partition> m_timerPartitions = new ConcurrentHashMap<Integer, Partition>();
+
+    /**
+     * One working memory with its own queue and thread. Facts are inserted
+     * in batches of up to {@link DroolsCorrelationEngine#m_batchSize} and the
+     * rules are fired once per batch. The queue holds at most
+     * {@link DroolsCorrelationEngine#m_queueLength} facts, see
+     * {@link OverflowPolicy} for what happens when it is full.
+     */
+    private class Partition implements Runnable {
+        private final int m_index;
+        private final WorkingMemory m_memory;
+        private final BlockingQueue<Object> m_queue = new LinkedBlockingQueue<Object>(m_queueLength);
+        private final AtomicLong m_dropped = new AtomicLong();
+        private final AtomicLong m_factCount = new AtomicLong();
+        private final AtomicLong m_fireCount = new AtomicLong();
+        private final AtomicLong m_fireTime = new AtomicLong();
+        private final AtomicLong m_maxFireTime = new AtomicLong();
+        private long m_lastReport = System.nanoTime();
+
+        public Partition(final int index, final WorkingMemory memory) {
+            m_index = index;
+            m_memory = memory;
+        }
+
+        public void add(final Object fact) {
+            if (m_stopped) {
+                LOG.warn("Engine {} has been stopped, discarding {}", getName(), fact);
+                return;
+            }
+            switch (m_overflowPolicy) {
+            case BLOCK:
+                try {
+                    m_queue.put(fact);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    m_dropped.incrementAndGet();
+                    LOG.warn("Interrupted while waiting for room in partition {} of engine {}, discarding {}", m_index, getName(), fact);
+                }
+                break;
+            case DISCARD_OLDEST:
+                while (!m_queue.offer(fact)) {
+                    final Object oldest = m_queue.poll();
+                    if (oldest != null) {
+                        m_dropped.incrementAndGet();
+                        LOG.warn("Partition {} of engine {} is full, discarding oldest {}", m_index, getName(), oldest);
+                    }
+                }
+                break;
+            default:
+                if (!m_queue.offer(fact)) {
+                    m_dropped.incrementAndGet();
+                    LOG.warn("Partition {} of engine {} is full, discarding {}", m_index, getName(), fact);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            m_currentPartition.set(this);
+            final List<Object> batch = new ArrayList<Object>(m_batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(m_queue.take());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                m_queue.drainTo(batch, m_batchSize - 1);
+                try {
+                    correlate(batch);
+                } catch (final Throwable t) {
+                    LOG.error("Correlation failed for {} facts in partition {} of engine {}", batch.size(), m_index, getName(), t);
+                }
+                batch.clear();
+                report();
+            }
+        }
+
+        private void correlate(final List<Object> batch) {
+            final long start = System.nanoTime();
+            synchronized (m_memory) {
+                for (final Object fact : batch) {
+                    m_memory.insert(fact);
+                }
+                m_memory.fireAllRules();
+            }
+            final long elapsed = System.nanoTime() - start;
+            m_factCount.addAndGet(batch.size());
+            m_fireCount.incrementAndGet();
+            m_fireTime.addAndGet(elapsed);
+            if (elapsed > m_maxFireTime.get()) {
+                m_maxFireTime.set(elapsed);
+            }
+        }
+
+        private void report() {
+            final long now = System.nanoTime();
+            if (now - m_lastReport >= STATISTICS_INTERVAL) {
+                m_lastReport = now;
+                LOG.info("Engine {} partition {}: backlog {}, {} dropped, {} facts in {} rule firings, average {} ms, max {} ms",
+                         getName(), m_index, getBacklog(), getDropped(), m_factCount.get(), m_fireCount.get(), getAverageFireTime(), getMaxFireTime());
+            }
+        }
+
+        public int getBacklog() {
+            return m_queue.size();
+        }
+
+        public long getDropped() {
+            return m_dropped.get();
+        }
+
+        public long getFactCount() {
+            return m_factCount.get();
+        }
+
+        public long getFireCount() {
+            return m_fireCount.get();
+        }
+
+        public long getAverageFireTime() {
+            final long fireCount = m_fireCount.get();
+            return fireCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(m_fireTime.get() / fireCount);
+        }
+
+        public long getMaxFireTime() {
+            return TimeUnit.NANOSECONDS.toMillis(m_maxFireTime.get());
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
-    public synchronized void correlate(final Event e) {
+    public void correlate(final Event e) {
+        if (m_partitions != null) {
+            getPartition(e).add(e);
+        } else {
+            correlateInSession(e);
+        }
+    }
+
+    private synchronized void correlateInSession(final Event e) {
 	LOG.debug("Begin correlation for Event {} uei: {}", e.getDbid(), e.getUei());
         m_workingMemory.insert(e);
         m_workingMemory.fireAllRules();
@@ -80,7 +261,16 @@ public class DroolsCorrelationEngine extends AbstractCorrelationEngine {
 
     /** {@inheritDoc} */
     @Override
-    protected synchronized void timerExpired(final Integer timerId) {
+    protected void timerExpired(final Integer timerId) {
+        if (m_partitions != null) {
+            final Partition partition = m_timerPartitions.remove(timerId);
+            (partition == null ? m_partitions[0] : partition).add(new TimerExpired(timerId));
+        } else {
+            timerExpiredInSession(timerId);
+        }
+    }
+
+    private synchronized void timerExpiredInSession(final Integer timerId) {
 	LOG.info("Begin correlation for Timer {}", timerId);
         TimerExpired expiration  = new TimerExpired(timerId);
         m_workingMemory.insert(expiration);
@@ -88,6 +278,36 @@ public class DroolsCorrelationEngine extends AbstractCorrelationEngine {
 	LOG.debug("Begin correlation for Timer {}", timerId);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Timers set by rules running in a partition expire in that partition.
+     */
+    @Override
+    public Integer setTimer(final long millis) {
+        final Integer timerId = super.setTimer(millis);
+        final Partition partition = m_currentPartition.get();
+        if (partition != null) {
+            m_timerPartitions.put(timerId, partition);
+        }
+        return timerId;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void cancelTimer(final Integer timerId) {
+        m_timerPartitions.remove(timerId);
+        super.cancelTimer(timerId);
+    }
+
+    private Partition getPartition(final Event e) {
+        final Object key = PARTITION_KEY_NODEID.equals(m_partitionKey) ? e.getNodeid() : EventUtils.getParm(e, m_partitionKey);
+        if (key == null) {
+            return m_partitions[0];
+        }
+        return m_partitions[(key.hashCode() & Integer.MAX_VALUE) % m_partitions.length];
+    }
+
     /** {@inheritDoc} */
     @Override
     public List<String> getInterestingEvents() {
@@ -148,13 +368,62 @@ public class DroolsCorrelationEngine extends AbstractCorrelationEngine {
 
         ruleBase.addPackage( builder.getPackage() );
 
-        m_workingMemory = ruleBase.newStatefulSession();
-        m_workingMemory.setGlobal("engine", this);
-        
-        for (final Map.Entry<String, Object> entry : m_globals.entrySet()) {
-            m_workingMemory.setGlobal(entry.getKey(), entry.getValue());
+        m_workingMemory = newWorkingMemory(ruleBase);
+
+        if (m_partitionCount > 1) {
+            LOG.info("Starting {} partitions for engine {}, keyed by {}", m_partitionCount, getName(), m_partitionKey);
+            final Partition[] partitions = new Partition[m_partitionCount];
+            final Thread[] threads = new Thread[m_partitionCount];
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new Partition(i, i == 0 ? m_workingMemory : newWorkingMemory(ruleBase));
+                threads[i] = new Thread(partitions[i], getName() + "-Partition-" + i);
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+            m_partitions = partitions;
+            m_threads = threads;
         }
+    }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Interrupts the partition threads and waits for them to finish the
+     * batch they are correlating. Facts still queued are discarded.
+     */
+    @Override
+    public void stop() {
+        m_stopped = true;
+        if (m_threads != null) {
+            for (final Thread thread : m_threads) {
+                thread.interrupt();
+            }
+            for (final Thread thread : m_threads) {
+                try {
+                    thread.join(STOP_TIMEOUT);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (thread.isAlive()) {
+                    LOG.warn("Thread {} of engine {} did not stop within {} ms", thread.getName(), getName(), STOP_TIMEOUT);
+                }
+            }
+            for (final Partition partition : m_partitions) {
+                partition.m_queue.clear();
+            }
+        }
+        super.stop();
+    }
+
+    private WorkingMemory newWorkingMemory(final RuleBase ruleBase) {
+        final WorkingMemory workingMemory = ruleBase.newStatefulSession();
+        workingMemory.setGlobal("engine", this);
+
+        for (final Map.Entry<String, Object> entry : m_globals.entrySet()) {
+            workingMemory.setGlobal(entry.getKey(), entry.getValue());
+        }
+        return workingMemory;
     }
 
     private void loadRules(final PackageBuilder builder) throws DroolsParserException, IOException {
@@ -178,8 +447,12 @@ public class DroolsCorrelationEngine extends AbstractCorrelationEngine {
      */
     public int getMemorySize() {
         int count = 0;
-        for(final Iterator<?> it = m_workingMemory.iterateObjects(); it.hasNext(); it.next()) {
-            count++;
+        for (final WorkingMemory memory : getWorkingMemories()) {
+            synchronized (memory) {
+                for(final Iterator<?> it = memory.iterateObjects(); it.hasNext(); it.next()) {
+                    count++;
+                }
+            }
         }
     	return count;
     }
@@ -191,16 +464,107 @@ public class DroolsCorrelationEngine extends AbstractCorrelationEngine {
      */
     public List<Object> getMemoryObjects() {
     	final List<Object> objects = new LinkedList<Object>();
-        for(Iterator<?> it = m_workingMemory.iterateObjects(); it.hasNext(); ) {
-        	objects.add(it.next());
+        for (final WorkingMemory memory : getWorkingMemories()) {
+            synchronized (memory) {
+                for(Iterator<?> it = memory.iterateObjects(); it.hasNext(); ) {
+                    objects.add(it.next());
+                }
+            }
         }
         return objects;
     }
     
+    /**
+     * <p>getWorkingMemory</p>
+     *
+     * @return the working memory, or the one of the first partition when
+     * the engine is partitioned
+     */
     public WorkingMemory getWorkingMemory() {
     	return m_workingMemory;
     }
 
+    private List<WorkingMemory> getWorkingMemories() {
+        final List<WorkingMemory> memories = new ArrayList<WorkingMemory>();
+        if (m_partitions == null) {
+            memories.add(m_workingMemory);
+        } else {
+            for (final Partition partition : m_partitions) {
+                memories.add(partition.m_memory);
+            }
+        }
+        return memories;
+    }
+
+    /**
+     * <p>getPartitionCount</p>
+     *
+     * @return the number of independent working memories
+     */
+    public int getPartitionCount() {
+        return m_partitions == null ? 1 : m_partitions.length;
+    }
+
+    /**
+     * <p>getBacklog</p>
+     *
+     * @param partition the partition index
+     * @return the number of facts waiting to be inserted into the partition
+     */
+    public int getBacklog(final int partition) {
+        return m_partitions == null ? 0 : m_partitions[partition].getBacklog();
+    }
+
+    /**
+     * <p>getDropped</p>
+     *
+     * @param partition the partition index
+     * @return the number of facts discarded because the partition's queue was full
+     */
+    public long getDropped(final int partition) {
+        return m_partitions == null ? 0 : m_partitions[partition].getDropped();
+    }
+
+    /**
+     * <p>getFactCount</p>
+     *
+     * @param partition the partition index
+     * @return the number of events and timers inserted into the partition
+     */
+    public long getFactCount(final int partition) {
+        return m_partitions == null ? 0 : m_partitions[partition].getFactCount();
+    }
+
+    /**
+     * <p>getFireCount</p>
+     *
+     * @param partition the partition index
+     * @return the number of times the rules were fired in the partition
+     */
+    public long getFireCount(final int partition) {
+        return m_partitions == null ? 0 : m_partitions[partition].getFireCount();
+    }
+
+    /**
+     * <p>getAverageFireTime</p>
+     *
+     * @param partition the partition index
+     * @return the average time in milliseconds to insert a batch and fire the rules
+     */
+    public long getAverageFireTime(final int partition) {
+        return m_partitions == null ? 0 : m_partitions[partition].getAverageFireTime();
+    }
+
+    /**
+     * <p>getMaxFireTime</p>
+     *
+     * @param partition the partition index
+     * @return the longest time in milliseconds to insert a batch and fire the rules
+     */
+    public long getMaxFireTime(final int partition) {
+        return m_partitions == null ? 0 : m_partitions[partition].getMaxFireTime();
+    }
+
     /**
      * <p>setName</p>
      *
@@ -227,10 +591,65 @@ public class DroolsCorrelationEngine extends AbstractCorrelationEngine {
      * @param value a {@link java.lang.Object} object.
      */
     public void setGlobal(final String name, final Object value) {
-        m_workingMemory.setGlobal(name, value);
+        for (final WorkingMemory memory : getWorkingMemories()) {
+            memory.setGlobal(name, value);
+        }
     }
 
 	public void setAssertBehaviour(String assertBehaviour) {
 		m_assertBehaviour = assertBehaviour;
 	}
+
+    /**
+     * Sets the number of independent working memories. With more than one
+     * partition events are routed by the partition key, each partition
+     * correlates on its own thread and the rules only see the facts of
+     * their own partition. Must be set before {@link #initialize()}.
+     *
+     * @param partitionCount the number of partitions, 1 for a single synchronous session
+     */
+    public void setPartitionCount(final int partitionCount) {
+        m_partitionCount = partitionCount;
+    }
+
+    /**
+     * Sets how events are routed to partitions: {@link #PARTITION_KEY_NODEID}
+     * or the name of an event parameter. Events without a key go to the
+     * first partition.
+     *
+     * @param partitionKey a {@link java.lang.String} object.
+     */
+    public void setPartitionKey(final String partitionKey) {
+        m_partitionKey = partitionKey;
+    }
+
+    /**
+     * Sets the maximum number of queued facts a partition inserts before it
+     * fires the rules.
+     *
+     * @param batchSize a int.
+     */
+    public void setBatchSize(final int batchSize) {
+        m_batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Sets the maximum number of facts queued for each partition. Must be
+     * set before {@link #initialize()}.
+     *
+     * @param queueLength a int.
+     */
+    public void setQueueLength(final int queueLength) {
+        m_queueLength = Math.max(1, queueLength);
+    }
+
+    /**
+     * Sets what a partition does with a new fact when its queue is full,
+     * {@link OverflowPolicy#BLOCK} by default.
+     *
+     * @param overflowPolicy a {@link OverflowPolicy} object.
+     */
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        m_overflowPolicy = overflowPolicy;
+    }
 }
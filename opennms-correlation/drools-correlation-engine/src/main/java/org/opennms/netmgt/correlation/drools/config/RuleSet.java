@@ -99,6 +99,21 @@ public class RuleSet implements Serializable {
 
 	@XmlAttribute(name="assert-behaviour")
 	private String _assertBehaviour;
+
+	@XmlAttribute(name="partitions")
+	private Integer _partitions;
+
+	@XmlAttribute(name="partition-key")
+	private String _partitionKey;
+
+	@XmlAttribute(name="batch-size")
+	private Integer _batchSize;
+
+	@XmlAttribute(name="queue-length")
+	private Integer _queueLength;
+
+	@XmlAttribute(name="overflow-policy")
+	private String _overflowPolicy;
     /**
      * Field _ruleFileList.
      */
@@ -150,6 +165,56 @@ public class RuleSet implements Serializable {
 	}
 
 
+	public int getPartitions() {
+		return _partitions == null ? 1 : _partitions;
+	}
+
+
+	public void setPartitions(Integer partitions) {
+		this._partitions = partitions;
+	}
+
+
+	public String getPartitionKey() {
+		return _partitionKey == null ? DroolsCorrelationEngine.PARTITION_KEY_NODEID : _partitionKey;
+	}
+
+
+	public void setPartitionKey(String partitionKey) {
+		this._partitionKey = partitionKey;
+	}
+
+
+	public int getBatchSize() {
+		return _batchSize == null ? 100 : _batchSize;
+	}
+
+
+	public void setBatchSize(Integer batchSize) {
+		this._batchSize = batchSize;
+	}
+
+
+	public int getQueueLength() {
+		return _queueLength == null ? DroolsCorrelationEngine.DEFAULT_QUEUE_LENGTH : _queueLength;
+	}
+
+
+	public void setQueueLength(Integer queueLength) {
+		this._queueLength = queueLength;
+	}
+
+
+	public String getOverflowPolicy() {
+		return _overflowPolicy == null ? "block" : _overflowPolicy;
+	}
+
+
+	public void setOverflowPolicy(String overflowPolicy) {
+		this._overflowPolicy = overflowPolicy;
+	}
+
+
 	/**
      * 
      * 
@@ -925,6 +990,11 @@ public class RuleSet implements Serializable {
 		final DroolsCorrelationEngine engine = new DroolsCorrelationEngine();
 		engine.setName(getName());
 		engine.setAssertBehaviour(getAssertBehaviour());
+		engine.setPartitionCount(getPartitions());
+		engine.setPartitionKey(getPartitionKey());
+		engine.setBatchSize(getBatchSize());
+		engine.setQueueLength(getQueueLength());
+		engine.setOverflowPolicy(DroolsCorrelationEngine.OverflowPolicy.valueOf(getOverflowPolicy().toUpperCase().replace('-', '_')));
 		engine.setEventIpcManager(eventIpcManager);
 		engine.setScheduler(new Timer(getName()+"-Timer"));
 		engine.setInterestingEvents(getInterestingEvents());
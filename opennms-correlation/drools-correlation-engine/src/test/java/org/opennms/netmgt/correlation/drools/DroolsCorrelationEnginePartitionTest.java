@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.correlation.drools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.EventConstants;
+import org.opennms.netmgt.model.events.EventBuilder;
+import org.opennms.netmgt.xml.event.Event;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+public class DroolsCorrelationEnginePartitionTest {
+    private DroolsCorrelationEngine m_engine;
+
+    @Before
+    public void setUp() throws Exception {
+        final Map<String, Object> globals = new HashMap<String, Object>();
+        globals.put("PROVISIONING_GROUP", "ApplicationServers");
+        globals.put("SERVICE_NAME", "Tomcat");
+
+        m_engine = new DroolsCorrelationEngine();
+        m_engine.setName("partitionedRules");
+        m_engine.setRulesResources(Collections.<Resource>singletonList(new FileSystemResource("src/test/opennms-home/etc/drools-engine.d/simpleRules/SimpleRules.drl")));
+        m_engine.setGlobals(globals);
+        m_engine.setPartitionCount(4);
+        m_engine.setBatchSize(10);
+        m_engine.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        m_engine.stop();
+    }
+
+    @Test
+    public void testEventsAreCorrelatedInTheirPartition() throws Exception {
+        assertEquals(4, m_engine.getPartitionCount());
+
+        for (int i = 0; i < 100; i++) {
+            m_engine.correlate(createEvent(i % 8));
+        }
+        waitForFacts(100);
+
+        assertEquals(100, m_engine.getMemorySize());
+        for (int i = 0; i < m_engine.getPartitionCount(); i++) {
+            // nodes i and i + 4 share a partition
+            assertEquals(25, m_engine.getFactCount(i));
+            assertEquals(0, m_engine.getBacklog(i));
+        }
+    }
+
+    @Test
+    public void testStopEndsPartitionThreads() throws Exception {
+        m_engine.correlate(createEvent(1));
+        waitForFacts(1);
+
+        m_engine.stop();
+
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse(thread.getName() + " is still running", thread.getName().startsWith("partitionedRules-Partition-"));
+        }
+        m_engine.correlate(createEvent(2));
+        assertEquals(1, m_engine.getMemorySize());
+    }
+
+    private Event createEvent(final long nodeId) {
+        final EventBuilder bldr = new EventBuilder(EventConstants.NODE_LOST_SERVICE_EVENT_UEI, "Test");
+        bldr.setNodeid(nodeId);
+        bldr.setService("Tomcat");
+        return bldr.getEvent();
+    }
+
+    private void waitForFacts(final long expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            long facts = 0;
+            for (int i = 0; i < m_engine.getPartitionCount(); i++) {
+                facts += m_engine.getFactCount(i);
+            }
+            if (facts >= expected) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+    }
+}
@@ -116,6 +116,20 @@ public abstract class AbstractCorrelationEngine implements CorrelationEngine {
         }
     }
     
+    /**
+     * Releases what the engine holds, called when the correlator stops. The
+     * pending timers are cancelled along with the engine's scheduler.
+     */
+    public void stop() {
+        for (final TimerTask task : m_pendingTasks.values()) {
+            task.cancel();
+        }
+        m_pendingTasks.clear();
+        if (m_scheduler != null) {
+            m_scheduler.cancel();
+        }
+    }
+
     /**
      * <p>timerExpired</p>
      *
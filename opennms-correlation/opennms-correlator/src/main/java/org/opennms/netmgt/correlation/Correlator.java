@@ -99,6 +99,24 @@ public class Correlator extends AbstractServiceDaemon implements CorrelationEngi
 		
 	}
 
+	/**
+	 * Unsubscribes the engines from eventd and stops them.
+	 */
+	@Override
+	protected void onStop() {
+		for (final EngineAdapter adapter : m_adapters) {
+			m_eventIpcManager.removeEventListener(adapter);
+		}
+		m_adapters.clear();
+		for (final CorrelationEngine engine : m_engines) {
+			if (engine instanceof AbstractCorrelationEngine) {
+				LOG.info("Stopping correlation engine: {}", engine);
+				((AbstractCorrelationEngine)engine).stop();
+			}
+		}
+		m_initialized = false;
+	}
+
 	/**
 	 * <p>setCorrelationEngines</p>
 	 *
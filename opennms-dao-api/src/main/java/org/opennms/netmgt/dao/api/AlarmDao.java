@@ -28,15 +28,37 @@
 
 package org.opennms.netmgt.dao.api;
 
+import org.opennms.core.criteria.Criteria;
 import org.opennms.netmgt.model.OnmsAlarm;
+import org.opennms.netmgt.model.OnmsCriteria;
+import org.opennms.netmgt.model.OnmsSeverity;
 import org.opennms.netmgt.model.alarm.AlarmSummary;
 
 import java.util.List;
+import java.util.Map;
 
 public interface AlarmDao extends OnmsDao<OnmsAlarm, Integer> {
 
     OnmsAlarm findByReductionKey(String reductionKey);
 
+    /**
+     * <p>Count the alarms matching the given criteria grouped by their severity,
+     * using a single query.</p>
+     *
+     * @param criteria the criteria, must not contain any projection or order
+     * @return the number of matching alarms per severity; severities without alarms are not contained
+     */
+    Map<OnmsSeverity, Integer> countMatchingBySeverity(OnmsCriteria criteria);
+
+    /**
+     * <p>Count the alarms matching the given criteria grouped by their severity,
+     * using a single query.</p>
+     *
+     * @param criteria the criteria, orders and limits are ignored
+     * @return the number of matching alarms per severity; severities without alarms are not contained
+     */
+    Map<OnmsSeverity, Integer> countMatchingBySeverity(Criteria criteria);
+
     /**
      * <p>Get the list of current - not yet acknowledged - alarms per node with severity greater than normal,
      * reflecting the max severity, the minimum last event time and alarm count;
@@ -55,5 +77,19 @@ public interface AlarmDao extends OnmsDao<OnmsAlarm, Integer> {
      */
     List<AlarmSummary> getNodeAlarmSummariesIncludeAcknowledgedOnes(List<Integer> nodeIds);
 
+    /**
+     * The node alarm summaries may be served from a cache that is refreshed whenever alarms are
+     * saved, updated or deleted through this DAO.  Code changing alarms by other means (e.g.
+     * acknowledgments or bulk updates) has to call this method to make the change visible immediately.
+     */
+    void invalidateNodeAlarmSummaries();
+
+    /**
+     * Returns an estimate of the number of alarms, taken from database
+     * statistics rather than by counting them.
+     *
+     * @return the estimated number of alarms
+     */
+    int estimateCountAll();
 
 }
@@ -48,4 +48,12 @@ public interface EventDao extends OnmsDao<OnmsEvent, Integer> {
      */
     List<OnmsEvent> getEventsAfterDate(List<String> ueiList, Date date);
 
+    /**
+     * Returns an estimate of the number of events, taken from database
+     * statistics rather than by counting them.
+     *
+     * @return the estimated number of events
+     */
+    int estimateCountAll();
+
 }
@@ -204,6 +204,17 @@ public interface NodeDao extends OnmsDao<OnmsNode, Integer> {
      */
     void updateNodeScanStamp(Integer nodeId, Date scanStamp);
 
+    /**
+     * Set the last capsd poll time of the given IP and SNMP interfaces of a
+     * node with bulk updates, without loading or rewriting the rows.
+     *
+     * @param nodeId a {@link java.lang.Integer} object.
+     * @param ipInterfaceIds ids of {@link org.opennms.netmgt.model.OnmsIpInterface} rows to stamp
+     * @param snmpInterfaceIds ids of {@link org.opennms.netmgt.model.OnmsSnmpInterface} rows to stamp
+     * @param scanStamp a {@link java.util.Date} object.
+     */
+    void updateInterfaceScanStamps(Integer nodeId, Collection<Integer> ipInterfaceIds, Collection<Integer> snmpInterfaceIds, Date scanStamp);
+
     /**
      * <p>getNodeIds</p>
      *
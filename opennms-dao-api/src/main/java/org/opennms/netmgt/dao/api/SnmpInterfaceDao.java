@@ -28,6 +28,8 @@
 
 package org.opennms.netmgt.dao.api;
 
+import java.util.List;
+
 import org.opennms.netmgt.model.OnmsSnmpInterface;
 
 
@@ -56,5 +58,13 @@ public interface SnmpInterfaceDao extends OnmsDao<OnmsSnmpInterface, Integer> {
      * @return a {@link org.opennms.netmgt.model.OnmsSnmpInterface} object.
      */
     OnmsSnmpInterface findByForeignKeyAndIfIndex(String foreignSource, String foreignId, Integer ifIndex);
+
+    /**
+     * <p>findByNodeId</p>
+     *
+     * @param nodeId a {@link java.lang.Integer} object.
+     * @return a {@link java.util.List} object.
+     */
+    List<OnmsSnmpInterface> findByNodeId(Integer nodeId);
     
 }
@@ -27,10 +27,39 @@
  *******************************************************************************/
 package org.opennms.netmgt.dao.api;
 
+import java.util.List;
+
 import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.model.topology.TopologyLinkSummary;
+import org.opennms.netmgt.model.topology.TopologyNodeSummary;
 
 public interface TopologyDao {
 
     OnmsNode getDefaultFocusPoint();
 
+    /**
+     * Reads the label, primary address and status attributes of every node
+     * without loading node entities.
+     */
+    List<TopologyNodeSummary> getNodeSummaries();
+
+    /**
+     * Reads every data link together with the SNMP interfaces at both of its
+     * ends without loading link or interface entities.
+     */
+    List<TopologyLinkSummary> getLinkSummaries();
+
+    /**
+     * Returns a cheap marker that changes whenever nodes are added, deleted
+     * or rescanned. Callers compare it with a previous value to decide
+     * whether {@link #getNodeSummaries()} needs to be read again.
+     */
+    String getNodeVersion();
+
+    /**
+     * Returns a cheap marker that changes whenever linkd adds, deletes or
+     * re-polls data links.
+     */
+    String getLinkVersion();
+
 }
@@ -1,10 +1,15 @@
 package org.opennms.netmgt.dao.mock;
 
+import org.opennms.core.criteria.Criteria;
 import org.opennms.netmgt.dao.api.AlarmDao;
 import org.opennms.netmgt.model.OnmsAlarm;
+import org.opennms.netmgt.model.OnmsCriteria;
+import org.opennms.netmgt.model.OnmsSeverity;
 import org.opennms.netmgt.model.alarm.AlarmSummary;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class MockAlarmDao extends AbstractMockDao<OnmsAlarm, Integer> implements AlarmDao {
@@ -44,6 +49,21 @@ public class MockAlarmDao extends AbstractMockDao<OnmsAlarm, Integer> implements
         throw new UnsupportedOperationException("Not yet implemented!");
     }
 
+    @Override
+    public Map<OnmsSeverity, Integer> countMatchingBySeverity(final OnmsCriteria criteria) {
+        throw new UnsupportedOperationException("Not yet implemented!");
+    }
+
+    @Override
+    public Map<OnmsSeverity, Integer> countMatchingBySeverity(final Criteria criteria) {
+        final Map<OnmsSeverity, Integer> counts = new EnumMap<OnmsSeverity, Integer>(OnmsSeverity.class);
+        for (final OnmsAlarm alarm : findMatching(criteria)) {
+            final Integer count = counts.get(alarm.getSeverity());
+            counts.put(alarm.getSeverity(), count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
     @Override
     public List<AlarmSummary> getNodeAlarmSummaries() {
         throw new UnsupportedOperationException("Not yet implemented!");
@@ -53,4 +73,13 @@ public class MockAlarmDao extends AbstractMockDao<OnmsAlarm, Integer> implements
     public List<AlarmSummary> getNodeAlarmSummariesIncludeAcknowledgedOnes(List<Integer> nodeIds) {
         throw new UnsupportedOperationException("Not yet implemented!");
     }
+
+    @Override
+    public void invalidateNodeAlarmSummaries() {
+    }
+
+    @Override
+    public int estimateCountAll() {
+        return countAll();
+    }
 }
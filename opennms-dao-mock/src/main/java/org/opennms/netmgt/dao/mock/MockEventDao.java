@@ -39,6 +39,11 @@ public class MockEventDao extends AbstractMockDao<OnmsEvent, Integer> implements
         return matchingEvents;
     }
 
+    @Override
+    public int estimateCountAll() {
+        return countAll();
+    }
+
     @Override
     public Set<CountedObject<String>> getUeiCounts(final Integer limit) {
         final Map<String,Long> counts = new HashMap<String,Long>();
@@ -1,6 +1,7 @@
 package org.opennms.netmgt.dao.mock;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -91,7 +92,13 @@ public class MockIpInterfaceDao extends AbstractMockDao<OnmsIpInterface, Integer
 
     @Override
     public List<OnmsIpInterface> findByNodeId(final Integer nodeId) {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        final List<OnmsIpInterface> ifaces = new ArrayList<OnmsIpInterface>();
+        for (final OnmsIpInterface iface : findAll()) {
+            if (iface.getNode() != null && nodeId.equals(iface.getNode().getId())) {
+                ifaces.add(iface);
+            }
+        }
+        return ifaces;
     }
 
     @Override
@@ -268,6 +268,18 @@ public class MockNodeDao extends AbstractMockDao<OnmsNode, Integer> implements N
         get(nodeId).setLastCapsdPoll(scanStamp);
     }
 
+    @Override
+    public void updateInterfaceScanStamps(final Integer nodeId, final Collection<Integer> ipInterfaceIds, final Collection<Integer> snmpInterfaceIds, final Date scanStamp) {
+        for (final Integer id : ipInterfaceIds) {
+            final OnmsIpInterface iface = getIpInterfaceDao().get(id);
+            if (iface != null) iface.setIpLastCapsdPoll(scanStamp);
+        }
+        for (final Integer id : snmpInterfaceIds) {
+            final OnmsSnmpInterface iface = getSnmpInterfaceDao().get(id);
+            if (iface != null) iface.setLastCapsdPoll(scanStamp);
+        }
+    }
+
     @Override
     public Collection<Integer> getNodeIds() {
         final List<Integer> ids = new ArrayList<Integer>();
@@ -1,5 +1,7 @@
 package org.opennms.netmgt.dao.mock;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.opennms.netmgt.dao.api.SnmpInterfaceDao;
@@ -40,4 +42,15 @@ public class MockSnmpInterfaceDao extends AbstractMockDao<OnmsSnmpInterface, Int
         return null;
     }
 
+    @Override
+    public List<OnmsSnmpInterface> findByNodeId(final Integer nodeId) {
+        final List<OnmsSnmpInterface> ifaces = new ArrayList<OnmsSnmpInterface>();
+        for (final OnmsSnmpInterface iface : findAll()) {
+            if (iface.getNode() != null && nodeId.equals(iface.getNode().getId())) {
+                ifaces.add(iface);
+            }
+        }
+        return ifaces;
+    }
+
 }
@@ -36,6 +36,7 @@ import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.Projections;
 import org.hibernate.metadata.ClassMetadata;
+import org.opennms.core.utils.DBUtils;
 import org.opennms.netmgt.dao.api.OnmsDao;
 import org.opennms.netmgt.model.OnmsCriteria;
 import org.slf4j.Logger;
@@ -61,13 +62,15 @@ public abstract class AbstractDaoHibernate<T, K extends Serializable> extends Hi
     private static final Logger LOG = LoggerFactory.getLogger(AbstractDaoHibernate.class);
     Class<T> m_entityClass;
     private String m_lockName;
+    private String m_tableName;
     private final HibernateCriteriaConverter m_criteriaConverter = new HibernateCriteriaConverter();
     
     public AbstractDaoHibernate(final Class<T> entityClass) {
         super();
         m_entityClass = entityClass;
         Table table = m_entityClass.getAnnotation(Table.class);
-        m_lockName = (table == null || "".equals(table.name()) ? m_entityClass.getSimpleName() : table.name()).toUpperCase() + "_ACCESS";
+        m_tableName = (table == null || "".equals(table.name()) ? m_entityClass.getSimpleName() : table.name());
+        m_lockName = m_tableName.toUpperCase() + "_ACCESS";
     }
 
     @Override
@@ -208,6 +211,36 @@ public abstract class AbstractDaoHibernate<T, K extends Serializable> extends Hi
         return queryInt("select count(*) from " + m_entityClass.getName());
     }
 
+    /**
+     * <p>Estimate the number of rows in the entity's table from the
+     * statistics PostgreSQL keeps for the query planner.  This is cheap
+     * regardless of the size of the table, but only as current as the last
+     * ANALYZE; if the table has never been analyzed the rows are counted.
+     * Rows in inheritance children of the table, like the partitions of a
+     * partitioned events table, are included.</p>
+     *
+     * @return an estimate of the number of rows
+     */
+    public int estimateCountAll() {
+        final String tableName = m_tableName.toLowerCase();
+        final HibernateCallback<Number> callback = new HibernateCallback<Number>() {
+            @Override
+            public Number doInHibernate(final Session session) throws HibernateException, SQLException {
+                return (Number)session.createSQLQuery(DBUtils.ESTIMATE_ROW_COUNT_SQL)
+                        .setString(0, tableName)
+                        .setString(1, tableName)
+                        .uniqueResult();
+            }
+        };
+
+        final Number estimate = getHibernateTemplate().execute(callback);
+        if (estimate == null || estimate.floatValue() <= 0) {
+            LOG.debug("No planner statistics for table {}, counting rows", tableName);
+            return countAll();
+        }
+        return (int)Math.min(Integer.MAX_VALUE, estimate.longValue());
+    }
+
     /**
      * <p>delete</p>
      *
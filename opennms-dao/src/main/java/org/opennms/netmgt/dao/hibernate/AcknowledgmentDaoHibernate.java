@@ -35,6 +35,7 @@ import java.util.List;
 
 import org.hibernate.ObjectNotFoundException;
 import org.opennms.netmgt.dao.api.AcknowledgmentDao;
+import org.opennms.netmgt.dao.api.AlarmDao;
 import org.opennms.netmgt.model.AckType;
 import org.opennms.netmgt.model.Acknowledgeable;
 import org.opennms.netmgt.model.OnmsAcknowledgment;
@@ -53,6 +54,9 @@ import org.springframework.transaction.annotation.Transactional;
 public class AcknowledgmentDaoHibernate extends AbstractDaoHibernate<OnmsAcknowledgment, Integer> implements AcknowledgmentDao {
 
     private static final Logger LOG = LoggerFactory.getLogger(AcknowledgmentDaoHibernate.class);
+
+    private AlarmDao m_alarmDao;
+
     /**
      * <p>Constructor for AcknowledgmentDaoHibernate.</p>
      */
@@ -60,10 +64,22 @@ public class AcknowledgmentDaoHibernate extends AbstractDaoHibernate<OnmsAcknowl
         super(OnmsAcknowledgment.class);
     }
 
+    /**
+     * <p>setAlarmDao</p>
+     *
+     * @param alarmDao the alarm DAO whose node alarm summaries are invalidated when an alarm is acknowledged
+     */
+    public void setAlarmDao(final AlarmDao alarmDao) {
+        m_alarmDao = alarmDao;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void updateAckable(Acknowledgeable ackable) {
         getHibernateTemplate().update(ackable);
+        if (m_alarmDao != null && ackable instanceof OnmsAlarm) {
+            m_alarmDao.invalidateNodeAlarmSummaries();
+        }
     }
 
     /** {@inheritDoc} */
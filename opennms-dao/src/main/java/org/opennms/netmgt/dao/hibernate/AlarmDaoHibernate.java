@@ -28,12 +28,24 @@
 
 package org.opennms.netmgt.dao.hibernate;
 
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
 import org.opennms.netmgt.dao.api.AlarmDao;
 import org.opennms.netmgt.model.OnmsAlarm;
+import org.opennms.netmgt.model.OnmsCriteria;
+import org.opennms.netmgt.model.OnmsSeverity;
 import org.opennms.netmgt.model.alarm.AlarmSummary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.hibernate3.HibernateCallback;
 
 /**
  * <p>AlarmDaoHibernate class.</p>
@@ -43,6 +55,17 @@ import org.opennms.netmgt.model.alarm.AlarmSummary;
  */
 public class AlarmDaoHibernate extends AbstractDaoHibernate<OnmsAlarm, Integer> implements AlarmDao {
 
+    /**
+     * How long, in milliseconds, the node alarm summaries may be served from
+     * memory before they are aggregated again.  Changes made through this DAO
+     * or the acknowledgment DAO invalidate them immediately.
+     */
+    private static final long SUMMARY_CACHE_MAX_AGE = Long.getLong("org.opennms.dao.alarmSummaryCacheMaxAge", 5000L);
+
+    private final HibernateCriteriaConverter m_criteriaConverter = new HibernateCriteriaConverter();
+
+    private final NodeAlarmSummaryCache m_summaryCache = new NodeAlarmSummaryCache(this, SUMMARY_CACHE_MAX_AGE);
+
 	public AlarmDaoHibernate() {
 		super(OnmsAlarm.class);
 	}
@@ -54,46 +77,110 @@ public class AlarmDaoHibernate extends AbstractDaoHibernate<OnmsAlarm, Integer>
         return super.findUnique(hql, reductionKey);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Map<OnmsSeverity, Integer> countMatchingBySeverity(final OnmsCriteria onmsCrit) {
+        return getHibernateTemplate().execute(new HibernateCallback<Map<OnmsSeverity, Integer>>() {
+            @Override
+            public Map<OnmsSeverity, Integer> doInHibernate(final Session session) throws HibernateException, SQLException {
+                return countBySeverity(onmsCrit.getDetachedCriteria().getExecutableCriteria(session));
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<OnmsSeverity, Integer> countMatchingBySeverity(final org.opennms.core.criteria.Criteria criteria) {
+        return getHibernateTemplate().execute(new HibernateCallback<Map<OnmsSeverity, Integer>>() {
+            @Override
+            public Map<OnmsSeverity, Integer> doInHibernate(final Session session) throws HibernateException, SQLException {
+                return countBySeverity(m_criteriaConverter.convertForCount(criteria, session));
+            }
+        });
+    }
+
+    private static Map<OnmsSeverity, Integer> countBySeverity(final Criteria hibernateCriteria) {
+        hibernateCriteria.setProjection(Projections.projectionList().add(Projections.groupProperty("severity")).add(Projections.rowCount()));
+        @SuppressWarnings("unchecked")
+        final List<Object[]> rows = hibernateCriteria.list();
+        hibernateCriteria.setProjection(null);
+        hibernateCriteria.setResultTransformer(Criteria.ROOT_ENTITY);
+
+        final Map<OnmsSeverity, Integer> counts = new EnumMap<OnmsSeverity, Integer>(OnmsSeverity.class);
+        for (final Object[] row : rows) {
+            counts.put((OnmsSeverity)row[0], ((Number)row[1]).intValue());
+        }
+        return counts;
+    }
+
     /** {@inheritDoc} */
     @Override
     public List<AlarmSummary> getNodeAlarmSummariesIncludeAcknowledgedOnes(List<Integer> nodeIds) {
         if (nodeIds.size() < 1) {
             return Collections.emptyList();
         }
-        StringBuilder sql = new StringBuilder();
-        //count(*) - count(alarm.alarmAckTime) counts only the unacknowledged alarms
-        sql.append("SELECT DISTINCT new org.opennms.netmgt.model.alarm.AlarmSummary( node.id, node.label, min(alarm.lastEventTime), max(alarm.severity), (count(*) - count(alarm.alarmAckTime)) ) ");
-        sql.append("FROM OnmsAlarm AS alarm ");
-        sql.append ("LEFT JOIN alarm.node AS node ");
-        sql.append("WHERE node.id IS NOT NULL AND alarm.severity > 3 ");
-
-        // optional
-        if (nodeIds.size() == 1) {
-            sql.append("AND node.id = " + nodeIds.get(0) + " ");
-        } else {
-            sql.append("AND node.id in (");
-            for (int i=0; i<nodeIds.size(); i++) {
-                sql.append(nodeIds.get(i));
-                if (i < nodeIds.size() -1) {
-                    sql.append(",");
-                }
-            }
-            sql.append(") ");
-        }
-        sql.append("GROUP BY node.id, node.label ");
-        return findObjects(AlarmSummary.class, sql.toString());
+        return m_summaryCache.getNodeAlarmSummariesIncludeAcknowledgedOnes(nodeIds);
     }
 
     /** {@inheritDoc} */
     @Override
     public List<AlarmSummary> getNodeAlarmSummaries() {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT DISTINCT new org.opennms.netmgt.model.alarm.AlarmSummary(node.id, node.label, min(alarm.lastEventTime), max(alarm.severity), count(*)) ");
-        sql.append("FROM OnmsAlarm AS alarm ");
-        sql.append ("LEFT JOIN alarm.node AS node ");
-        sql.append("WHERE node.id IS NOT NULL AND alarm.severity > 3 AND alarm.alarmAckTime IS NULL ");
-        sql.append("GROUP BY node.id, node.label ");
-        sql.append("ORDER BY min(alarm.lastEventTime) DESC, node.label ASC");
-        return findObjects(AlarmSummary.class, sql.toString());
+        return m_summaryCache.getNodeAlarmSummaries();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidateNodeAlarmSummaries() {
+        m_summaryCache.invalidate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void save(final OnmsAlarm alarm) throws DataAccessException {
+        super.save(alarm);
+        m_summaryCache.invalidate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void saveOrUpdate(final OnmsAlarm alarm) throws DataAccessException {
+        super.saveOrUpdate(alarm);
+        m_summaryCache.invalidate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void update(final OnmsAlarm alarm) throws DataAccessException {
+        super.update(alarm);
+        m_summaryCache.invalidate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void merge(final OnmsAlarm alarm) {
+        super.merge(alarm);
+        m_summaryCache.invalidate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void delete(final OnmsAlarm alarm) throws DataAccessException {
+        super.delete(alarm);
+        m_summaryCache.invalidate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void deleteAll(final Collection<OnmsAlarm> alarms) throws DataAccessException {
+        super.deleteAll(alarms);
+        m_summaryCache.invalidate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int bulkDelete(final String hql, final Object[] values) throws DataAccessException {
+        final int count = super.bulkDelete(hql, values);
+        m_summaryCache.invalidate();
+        return count;
     }
 }
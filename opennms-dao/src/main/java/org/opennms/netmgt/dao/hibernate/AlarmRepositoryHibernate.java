@@ -32,6 +32,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.hibernate.criterion.Restrictions;
@@ -148,8 +149,8 @@ public class AlarmRepositoryHibernate implements AlarmRepository, InitializingBe
     @Override
     public int[] countMatchingAlarmsBySeverity(final OnmsCriteria criteria) {
         final int[] alarmCounts = new int[8];
-        for (final OnmsSeverity value : OnmsSeverity.values()) {
-            alarmCounts[value.getId()] = m_alarmDao.countMatching(criteria.doClone().add(Restrictions.eq("severity", value)));
+        for (final Map.Entry<OnmsSeverity, Integer> entry : m_alarmDao.countMatchingBySeverity(criteria.doClone()).entrySet()) {
+            alarmCounts[entry.getKey().getId()] = entry.getValue();
         }
         return alarmCounts;
     }
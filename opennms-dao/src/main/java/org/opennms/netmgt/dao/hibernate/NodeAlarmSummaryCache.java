@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.dao.hibernate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.opennms.netmgt.model.FilterManager;
+import org.opennms.netmgt.model.OnmsSeverity;
+import org.opennms.netmgt.model.alarm.AlarmSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.hibernate3.HibernateCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>Keeps a snapshot of the outstanding alarms per node and severity so that the
+ * node alarm summaries shown by the web UI, the ReST services and the topology
+ * status providers do not have to aggregate the alarms table on every page refresh.</p>
+ *
+ * <p>The snapshot is reloaded lazily: every alarm change made through the owning
+ * {@link AlarmDaoHibernate} (or an acknowledgment processed by the
+ * {@link AcknowledgmentDaoHibernate}) invalidates it, and it never gets older than
+ * the configured maximum age, which bounds how long changes made outside of this
+ * DAO (by another daemon context, vacuumd automations, etc.) remain invisible.
+ * Sessions restricted by the ACL filter always query the database.</p>
+ */
+class NodeAlarmSummaryCache {
+    private static final Logger LOG = LoggerFactory.getLogger(NodeAlarmSummaryCache.class);
+
+    private static final String ALL_ALARMS_QUERY = "SELECT node.id, node.label, alarm.severity, count(*), count(alarm.alarmAckTime), min(alarm.lastEventTime) " +
+            "FROM OnmsAlarm AS alarm LEFT JOIN alarm.node AS node " +
+            "WHERE node.id IS NOT NULL AND alarm.severity > 3 " +
+            "GROUP BY node.id, node.label, alarm.severity";
+
+    private static final String UNACKNOWLEDGED_ALARMS_QUERY = "SELECT node.id, alarm.severity, min(alarm.lastEventTime) " +
+            "FROM OnmsAlarm AS alarm LEFT JOIN alarm.node AS node " +
+            "WHERE node.id IS NOT NULL AND alarm.severity > 3 AND alarm.alarmAckTime IS NULL " +
+            "GROUP BY node.id, alarm.severity";
+
+    private final AbstractDaoHibernate<?, ?> m_dao;
+    private final long m_maxAge;
+    private final AtomicLong m_generation = new AtomicLong(0);
+    private volatile Snapshot m_snapshot;
+
+    /**
+     * @param dao the DAO used to run the aggregation queries
+     * @param maxAge the maximum age of a snapshot in milliseconds, 0 disables caching
+     */
+    NodeAlarmSummaryCache(final AbstractDaoHibernate<?, ?> dao, final long maxAge) {
+        m_dao = dao;
+        m_maxAge = maxAge;
+    }
+
+    /**
+     * Marks the current snapshot as stale.  When called inside of a transaction,
+     * the snapshot is invalidated again once the transaction completes so that
+     * a reload racing with the commit cannot keep the pre-commit state around,
+     * and the calling thread bypasses the cache until then so that it sees its
+     * own uncommitted changes.
+     */
+    void invalidate() {
+        m_generation.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive() && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(NodeAlarmSummaryCache.this);
+                    m_generation.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    List<AlarmSummary> getNodeAlarmSummaries() {
+        final List<AlarmSummary> summaries = new ArrayList<AlarmSummary>();
+        for (final NodeAlarms node : getSnapshot().getNodes()) {
+            final AlarmSummary summary = node.getUnacknowledgedSummary();
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        // same ordering as "ORDER BY min(lastEventTime) DESC, node.label ASC", NULLs first
+        Collections.sort(summaries, new Comparator<AlarmSummary>() {
+            @Override
+            public int compare(final AlarmSummary a, final AlarmSummary b) {
+                final Date aDate = a.getMinLastEventDate();
+                final Date bDate = b.getMinLastEventDate();
+                if (aDate == null || bDate == null) {
+                    if (aDate != bDate) {
+                        return aDate == null ? -1 : 1;
+                    }
+                } else {
+                    final int result = bDate.compareTo(aDate);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return compareLabels(a.getNodeLabel(), b.getNodeLabel());
+            }
+        });
+        return summaries;
+    }
+
+    List<AlarmSummary> getNodeAlarmSummariesIncludeAcknowledgedOnes(final List<Integer> nodeIds) {
+        final Snapshot snapshot = getSnapshot();
+        final List<AlarmSummary> summaries = new ArrayList<AlarmSummary>(nodeIds.size());
+        for (final Integer nodeId : nodeIds) {
+            final NodeAlarms node = snapshot.getNode(nodeId);
+            if (node != null) {
+                summaries.add(node.getOverallSummary());
+            }
+        }
+        return summaries;
+    }
+
+    private Snapshot getSnapshot() {
+        if (m_maxAge <= 0 || TransactionSynchronizationManager.hasResource(this) || isAuthorizationFiltered()) {
+            return load(m_generation.get());
+        }
+
+        Snapshot snapshot = m_snapshot;
+        if (isCurrent(snapshot)) {
+            return snapshot;
+        }
+
+        // only one caller reloads, everybody else waits for its result
+        synchronized (this) {
+            snapshot = m_snapshot;
+            if (!isCurrent(snapshot)) {
+                snapshot = load(m_generation.get());
+                m_snapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * With ACLs enabled the session only sees the nodes the user is authorized for,
+     * such results must never be shared with other users.
+     */
+    private boolean isAuthorizationFiltered() {
+        return m_dao.getHibernateTemplate().execute(new HibernateCallback<Boolean>() {
+            @Override
+            public Boolean doInHibernate(final Session session) throws HibernateException, SQLException {
+                return session.getEnabledFilter(FilterManager.AUTH_FILTER_NAME) != null;
+            }
+        });
+    }
+
+    private boolean isCurrent(final Snapshot snapshot) {
+        return snapshot != null && snapshot.getGeneration() == m_generation.get() && System.currentTimeMillis() - snapshot.getLoadTime() < m_maxAge;
+    }
+
+    private Snapshot load(final long generation) {
+        final long start = System.currentTimeMillis();
+        final Snapshot snapshot = new Snapshot(generation, start);
+
+        for (final Object[] row : m_dao.findObjects(Object[].class, ALL_ALARMS_QUERY)) {
+            final NodeAlarms node = snapshot.getOrCreateNode((Integer)row[0], (String)row[1]);
+            node.addAlarms((OnmsSeverity)row[2], ((Number)row[3]).longValue(), ((Number)row[4]).longValue(), (Date)row[5]);
+        }
+        for (final Object[] row : m_dao.findObjects(Object[].class, UNACKNOWLEDGED_ALARMS_QUERY)) {
+            final NodeAlarms node = snapshot.getNode((Integer)row[0]);
+            if (node != null) {
+                node.setMinUnacknowledgedEventTime((OnmsSeverity)row[1], (Date)row[2]);
+            }
+        }
+
+        LOG.debug("Loaded alarm summaries for {} nodes in {}ms", snapshot.getNodes().size(), System.currentTimeMillis() - start);
+        return snapshot;
+    }
+
+    private static int compareLabels(final String a, final String b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : (a == null ? 1 : -1);
+        }
+        return a.compareTo(b);
+    }
+
+    private static Date earliest(final Date a, final Date b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        return a.before(b) ? a : b;
+    }
+
+    private static final class Snapshot {
+        private final long m_generation;
+        private final long m_loadTime;
+        private final Map<Integer, NodeAlarms> m_nodes = new LinkedHashMap<Integer, NodeAlarms>();
+
+        Snapshot(final long generation, final long loadTime) {
+            m_generation = generation;
+            m_loadTime = loadTime;
+        }
+
+        long getGeneration() {
+            return m_generation;
+        }
+
+        long getLoadTime() {
+            return m_loadTime;
+        }
+
+        Collection<NodeAlarms> getNodes() {
+            return m_nodes.values();
+        }
+
+        NodeAlarms getNode(final Integer nodeId) {
+            return m_nodes.get(nodeId);
+        }
+
+        NodeAlarms getOrCreateNode(final Integer nodeId, final String nodeLabel) {
+            NodeAlarms node = m_nodes.get(nodeId);
+            if (node == null) {
+                node = new NodeAlarms(nodeId, nodeLabel);
+                m_nodes.put(nodeId, node);
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Alarm counts and oldest last event times of a single node, indexed by severity ID.
+     */
+    private static final class NodeAlarms {
+        private final Integer m_nodeId;
+        private final String m_nodeLabel;
+        private final long[] m_alarmCount = new long[OnmsSeverity.CRITICAL.getId() + 1];
+        private final long[] m_unacknowledgedCount = new long[OnmsSeverity.CRITICAL.getId() + 1];
+        private final Date[] m_minLastEventTime = new Date[OnmsSeverity.CRITICAL.getId() + 1];
+        private final Date[] m_minUnacknowledgedEventTime = new Date[OnmsSeverity.CRITICAL.getId() + 1];
+
+        NodeAlarms(final Integer nodeId, final String nodeLabel) {
+            m_nodeId = nodeId;
+            m_nodeLabel = nodeLabel;
+        }
+
+        void addAlarms(final OnmsSeverity severity, final long count, final long acknowledgedCount, final Date minLastEventTime) {
+            final int id = severity.getId();
+            m_alarmCount[id] += count;
+            m_unacknowledgedCount[id] += count - acknowledgedCount;
+            m_minLastEventTime[id] = earliest(m_minLastEventTime[id], minLastEventTime);
+        }
+
+        void setMinUnacknowledgedEventTime(final OnmsSeverity severity, final Date minLastEventTime) {
+            m_minUnacknowledgedEventTime[severity.getId()] = minLastEventTime;
+        }
+
+        /**
+         * @return the summary of the unacknowledged alarms, or null if all alarms have been acknowledged
+         */
+        AlarmSummary getUnacknowledgedSummary() {
+            OnmsSeverity maxSeverity = null;
+            Date minLastEventTime = null;
+            long count = 0;
+            for (int id = 0; id < m_unacknowledgedCount.length; id++) {
+                if (m_unacknowledgedCount[id] > 0) {
+                    maxSeverity = OnmsSeverity.get(id);
+                    minLastEventTime = earliest(minLastEventTime, m_minUnacknowledgedEventTime[id]);
+                    count += m_unacknowledgedCount[id];
+                }
+            }
+            return maxSeverity == null ? null : new AlarmSummary(m_nodeId, m_nodeLabel, minLastEventTime, maxSeverity, count);
+        }
+
+        /**
+         * @return the maximum severity and oldest event over all alarms, but only counting the unacknowledged ones
+         */
+        AlarmSummary getOverallSummary() {
+            OnmsSeverity maxSeverity = null;
+            Date minLastEventTime = null;
+            long count = 0;
+            for (int id = 0; id < m_alarmCount.length; id++) {
+                if (m_alarmCount[id] > 0) {
+                    maxSeverity = OnmsSeverity.get(id);
+                    minLastEventTime = earliest(minLastEventTime, m_minLastEventTime[id]);
+                    count += m_unacknowledgedCount[id];
+                }
+            }
+            return new AlarmSummary(m_nodeId, m_nodeLabel, minLastEventTime, maxSeverity, count);
+        }
+    }
+}
@@ -390,6 +390,35 @@ public class NodeDaoHibernate extends AbstractDaoHibernate<OnmsNode, Integer> im
         update(n);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void updateInterfaceScanStamps(final Integer nodeId, final Collection<Integer> ipInterfaceIds, final Collection<Integer> snmpInterfaceIds, final Date scanStamp) {
+        bulkUpdateScanStamp("update OnmsIpInterface set ipLastCapsdPoll = :scanStamp where node.id = :nodeId and id in (:ids)", nodeId, ipInterfaceIds, scanStamp);
+        bulkUpdateScanStamp("update OnmsSnmpInterface set lastCapsdPoll = :scanStamp where node.id = :nodeId and id in (:ids)", nodeId, snmpInterfaceIds, scanStamp);
+    }
+
+    private void bulkUpdateScanStamp(final String hql, final Integer nodeId, final Collection<Integer> ids, final Date scanStamp) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        getHibernateTemplate().execute(new HibernateCallback<Integer>() {
+            @Override
+            public Integer doInHibernate(final Session session) throws HibernateException, SQLException {
+                // keep the IN lists to a size every database handles
+                final List<Integer> idList = new ArrayList<Integer>(ids);
+                int updated = 0;
+                for (int i = 0; i < idList.size(); i += 1000) {
+                    updated += session.createQuery(hql)
+                        .setTimestamp("scanStamp", scanStamp)
+                        .setInteger("nodeId", nodeId)
+                        .setParameterList("ids", idList.subList(i, Math.min(i + 1000, idList.size())))
+                        .executeUpdate();
+                }
+                return updated;
+            }
+        });
+    }
+
     /**
      * <p>getNodeIds</p>
      *
@@ -28,6 +28,8 @@
 
 package org.opennms.netmgt.dao.hibernate;
 
+import java.util.List;
+
 import org.opennms.netmgt.dao.api.SnmpInterfaceDao;
 import org.opennms.netmgt.model.OnmsSnmpInterface;
 import org.springframework.util.Assert;
@@ -70,6 +72,11 @@ public class SnmpInterfaceDaoHibernate extends
                           ifIndex);
     }
 
-	
+    /** {@inheritDoc} */
+    @Override
+    public List<OnmsSnmpInterface> findByNodeId(Integer nodeId) {
+        Assert.notNull(nodeId, "nodeId may not be null");
+        return find("from OnmsSnmpInterface snmpIf where snmpIf.node.id = ?", nodeId);
+    }
 
 }
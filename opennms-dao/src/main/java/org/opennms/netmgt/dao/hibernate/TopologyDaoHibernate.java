@@ -27,12 +27,24 @@
  *******************************************************************************/
 package org.opennms.netmgt.dao.hibernate;
 
+import java.net.InetAddress;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.opennms.netmgt.dao.api.TopologyDao;
 import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.model.OnmsNode.NodeType;
+import org.opennms.netmgt.model.PrimaryType;
+import org.opennms.netmgt.model.topology.TopologyInterfaceSummary;
+import org.opennms.netmgt.model.topology.TopologyLinkSummary;
+import org.opennms.netmgt.model.topology.TopologyNodeSummary;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
 
@@ -75,4 +87,102 @@ public class TopologyDaoHibernate extends HibernateDaoSupport implements Topolog
         }
         return null;
     }
+
+    @Override
+    public List<TopologyNodeSummary> getNodeSummaries() {
+        return getHibernateTemplate().execute(new HibernateCallback<List<TopologyNodeSummary>>() {
+            @Override
+            public List<TopologyNodeSummary> doInHibernate(Session session) throws HibernateException, SQLException {
+                // pick the address the same way as IpInterfaceDao.findPrimaryInterfaceByNodeId():
+                // the most recently scanned primary SNMP interface, else the first interface
+                final Map<Integer, Object[]> addresses = new HashMap<Integer, Object[]>();
+                final List<?> ipRows = session.createQuery("select ip.node.id, ip.ipAddress, ip.isManaged, ip.isSnmpPrimary, ip.ipLastCapsdPoll from OnmsIpInterface as ip order by ip.node.id, ip.id").list();
+                for (final Object element : ipRows) {
+                    final Object[] row = (Object[]) element;
+                    final Object[] current = addresses.get(row[0]);
+                    if (current == null || isBetterAddress(row, current)) {
+                        addresses.put((Integer) row[0], row);
+                    }
+                }
+
+                final List<TopologyNodeSummary> summaries = new ArrayList<TopologyNodeSummary>();
+                final List<?> nodeRows = session.createQuery("select n.id, n.label, n.sysObjectId, n.sysLocation, n.type from OnmsNode as n order by n.id").list();
+                for (final Object element : nodeRows) {
+                    final Object[] row = (Object[]) element;
+                    final Object[] ip = addresses.get(row[0]);
+                    final String ipAddress = ip == null || ip[1] == null ? null : ((InetAddress) ip[1]).getHostAddress();
+                    final boolean managed = ip != null && "M".equals(ip[2]);
+                    summaries.add(new TopologyNodeSummary((Integer) row[0], (String) row[1], (String) row[2], (String) row[3], (NodeType) row[4], ipAddress, managed));
+                }
+                return summaries;
+            }
+        });
+    }
+
+    private static boolean isBetterAddress(final Object[] candidate, final Object[] current) {
+        final boolean candidatePrimary = PrimaryType.PRIMARY.equals(candidate[3]);
+        final boolean currentPrimary = PrimaryType.PRIMARY.equals(current[3]);
+        if (candidatePrimary != currentPrimary) {
+            return candidatePrimary;
+        }
+        if (!candidatePrimary) {
+            return false;
+        }
+        final Date candidatePoll = (Date) candidate[4];
+        final Date currentPoll = (Date) current[4];
+        return candidatePoll != null && (currentPoll == null || candidatePoll.after(currentPoll));
+    }
+
+    @Override
+    public List<TopologyLinkSummary> getLinkSummaries() {
+        return getHibernateTemplate().execute(new HibernateCallback<List<TopologyLinkSummary>>() {
+            @Override
+            public List<TopologyLinkSummary> doInHibernate(Session session) throws HibernateException, SQLException {
+                final Map<String, TopologyInterfaceSummary> interfaces = new HashMap<String, TopologyInterfaceSummary>();
+                addInterfaceSummaries(interfaces, session, "select distinct snmp.node.id, snmp.ifIndex, snmp.ifName, snmp.ifOperStatus, snmp.ifSpeed, snmp.netMask from OnmsSnmpInterface as snmp, DataLinkInterface as dli where snmp.node.id = dli.node.id and snmp.ifIndex = dli.ifIndex");
+                addInterfaceSummaries(interfaces, session, "select distinct snmp.node.id, snmp.ifIndex, snmp.ifName, snmp.ifOperStatus, snmp.ifSpeed, snmp.netMask from OnmsSnmpInterface as snmp, DataLinkInterface as dli where snmp.node.id = dli.nodeParentId and snmp.ifIndex = dli.parentIfIndex");
+
+                final List<TopologyLinkSummary> summaries = new ArrayList<TopologyLinkSummary>();
+                final List<?> linkRows = session.createQuery("select dli.id, dli.node.id, dli.ifIndex, dli.nodeParentId, dli.parentIfIndex from DataLinkInterface as dli order by dli.id").list();
+                for (final Object element : linkRows) {
+                    final Object[] row = (Object[]) element;
+                    summaries.add(new TopologyLinkSummary((Integer) row[0], (Integer) row[1], (Integer) row[2], (Integer) row[3], (Integer) row[4],
+                                                          interfaces.get(row[1] + ":" + row[2]), interfaces.get(row[3] + ":" + row[4])));
+                }
+                return summaries;
+            }
+        });
+    }
+
+    private static void addInterfaceSummaries(final Map<String, TopologyInterfaceSummary> interfaces, final Session session, final String query) {
+        for (final Object element : session.createQuery(query).list()) {
+            final Object[] row = (Object[]) element;
+            final InetAddress netMask = (InetAddress) row[5];
+            interfaces.put(row[0] + ":" + row[1], new TopologyInterfaceSummary((Integer) row[0], (Integer) row[1], (String) row[2], (Integer) row[3], (Long) row[4], netMask != null && !netMask.isLoopbackAddress()));
+        }
+    }
+
+    @Override
+    public String getNodeVersion() {
+        return getVersion("select count(n.id), max(n.id), max(n.lastCapsdPoll) from OnmsNode as n");
+    }
+
+    @Override
+    public String getLinkVersion() {
+        return getVersion("select count(dli.id), max(dli.id), max(dli.lastPollTime) from DataLinkInterface as dli");
+    }
+
+    private String getVersion(final String query) {
+        return getHibernateTemplate().execute(new HibernateCallback<String>() {
+            @Override
+            public String doInHibernate(Session session) throws HibernateException, SQLException {
+                final Object[] row = (Object[]) session.createQuery(query).uniqueResult();
+                final StringBuilder version = new StringBuilder();
+                for (final Object value : row) {
+                    version.append(value instanceof Date ? ((Date) value).getTime() : value).append('/');
+                }
+                return version.toString();
+            }
+        });
+    }
 }
@@ -35,6 +35,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 
@@ -53,6 +54,7 @@ import org.opennms.netmgt.dao.api.DistPollerDao;
 import org.opennms.netmgt.dao.api.EventDao;
 import org.opennms.netmgt.dao.api.NodeDao;
 import org.opennms.netmgt.model.OnmsAlarm;
+import org.opennms.netmgt.model.OnmsCriteria;
 import org.opennms.netmgt.model.OnmsEvent;
 import org.opennms.netmgt.model.OnmsNode;
 import org.opennms.netmgt.model.OnmsSeverity;
@@ -312,6 +314,73 @@ public class AlarmDaoTest implements InitializingBean {
             Assert.assertEquals("N/A", sum.getFuzzyTimeDown());
         }
 
+    @Test
+    @Transactional
+    public void testAlarmSummaryAfterAcknowledge() {
+        OnmsNode node = m_nodeDao.findAll().iterator().next();
+
+        OnmsAlarm major = createAlarm(node, "uei://org/opennms/test/majorAlarmTest", OnmsSeverity.MAJOR);
+        OnmsAlarm minor = createAlarm(node, "uei://org/opennms/test/minorAlarmTest", OnmsSeverity.MINOR);
+
+        List<AlarmSummary> summary = m_alarmDao.getNodeAlarmSummaries();
+        Assert.assertEquals(1, summary.size());
+        Assert.assertEquals(OnmsSeverity.MAJOR, summary.get(0).getMaxSeverity());
+        Assert.assertEquals(2, summary.get(0).getAlarmCount());
+
+        major.acknowledge("admin");
+        m_alarmDao.update(major);
+
+        summary = m_alarmDao.getNodeAlarmSummaries();
+        Assert.assertEquals(1, summary.size());
+        Assert.assertEquals(OnmsSeverity.MINOR, summary.get(0).getMaxSeverity());
+        Assert.assertEquals(1, summary.get(0).getAlarmCount());
+
+        summary = m_alarmDao.getNodeAlarmSummariesIncludeAcknowledgedOnes(Arrays.asList(node.getId()));
+        Assert.assertEquals(1, summary.size());
+        Assert.assertEquals(OnmsSeverity.MAJOR, summary.get(0).getMaxSeverity());
+        Assert.assertEquals(1, summary.get(0).getAlarmCount());
+
+        minor.acknowledge("admin");
+        m_alarmDao.update(minor);
+
+        Assert.assertEquals(0, m_alarmDao.getNodeAlarmSummaries().size());
+        summary = m_alarmDao.getNodeAlarmSummariesIncludeAcknowledgedOnes(Arrays.asList(node.getId()));
+        Assert.assertEquals(1, summary.size());
+        Assert.assertEquals(0, summary.get(0).getAlarmCount());
+    }
+
+    @Test
+    @Transactional
+    public void testCountMatchingBySeverity() {
+        OnmsNode node = m_nodeDao.findAll().iterator().next();
+
+        createAlarm(node, "uei://org/opennms/test/majorAlarmTest", OnmsSeverity.MAJOR);
+        createAlarm(node, "uei://org/opennms/test/minorAlarmTest", OnmsSeverity.MINOR);
+        createAlarm(node, "uei://org/opennms/test/otherMinorAlarmTest", OnmsSeverity.MINOR);
+
+        Map<OnmsSeverity, Integer> counts = m_alarmDao.countMatchingBySeverity(new OnmsCriteria(OnmsAlarm.class));
+        assertEquals(Integer.valueOf(1), counts.get(OnmsSeverity.MAJOR));
+        assertEquals(Integer.valueOf(2), counts.get(OnmsSeverity.MINOR));
+        assertNull(counts.get(OnmsSeverity.CRITICAL));
+
+        Criteria criteria = new Criteria(OnmsAlarm.class);
+        criteria.addRestriction(new EqRestriction("uei", "uei://org/opennms/test/minorAlarmTest"));
+        counts = m_alarmDao.countMatchingBySeverity(criteria);
+        assertEquals(1, counts.size());
+        assertEquals(Integer.valueOf(1), counts.get(OnmsSeverity.MINOR));
+    }
+
+    private OnmsAlarm createAlarm(OnmsNode node, String uei, OnmsSeverity severity) {
+        OnmsAlarm alarm = new OnmsAlarm();
+        alarm.setNode(node);
+        alarm.setUei(uei);
+        alarm.setSeverity(severity);
+        alarm.setCounter(1);
+        alarm.setDistPoller(m_distPollerDao.load("localhost"));
+        m_alarmDao.save(alarm);
+        return alarm;
+    }
+
         @Test
         @Transactional
         public void testSortOnNodeLabel() {
@@ -35,6 +35,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
@@ -373,6 +374,52 @@ public class NodeDaoTest implements InitializingBean {
 
     }
 
+    @Test
+    @JUnitTemporaryDatabase // This test manages its own transactions so use a fresh database
+    public void testUpdateInterfaceScanStamps() {
+        m_populator.populateDatabase();
+
+        final Date timestamp = new Date(1234);
+
+        m_transTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            public void doInTransactionWithoutResult(TransactionStatus status) {
+                OnmsNode n = getNodeDao().get(getNode1().getId());
+                OnmsIpInterface iface = n.getIpInterfaceByIpAddress("192.168.1.1");
+                assertNotNull(iface);
+                OnmsSnmpInterface snmpIface = n.getSnmpInterfaceWithIfIndex(1);
+                assertNotNull(snmpIface);
+
+                getNodeDao().updateInterfaceScanStamps(n.getId(), Collections.singleton(iface.getId()), Collections.singleton(snmpIface.getId()), timestamp);
+                // an empty list stamps nothing
+                getNodeDao().updateInterfaceScanStamps(n.getId(), Collections.<Integer>emptySet(), Collections.<Integer>emptySet(), new Date(5678));
+            }
+
+        });
+
+        m_transTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            public void doInTransactionWithoutResult(TransactionStatus status) {
+                deleteObsoleteInterfaces(timestamp);
+            }
+
+        });
+
+        m_transTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            public void doInTransactionWithoutResult(TransactionStatus status) {
+                validateScan();
+                OnmsNode after = getNodeDao().get(getNode1().getId());
+                assertEquals(timestamp.getTime(), after.getIpInterfaceByIpAddress("192.168.1.1").getIpLastCapsdPoll().getTime());
+                assertEquals(timestamp.getTime(), after.getSnmpInterfaceWithIfIndex(1).getLastCapsdPoll().getTime());
+            }
+
+        });
+    }
+
     private void validateScan() {
         OnmsNode after = getNodeDao().get(getNode1().getId());
 
@@ -27,6 +27,8 @@
  *******************************************************************************/
 package org.opennms.netmgt.dao.hibernate;
 
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -35,6 +37,8 @@ import org.opennms.core.test.db.annotations.JUnitTemporaryDatabase;
 import org.opennms.netmgt.dao.DatabasePopulator;
 import org.opennms.netmgt.dao.api.TopologyDao;
 import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.model.topology.TopologyLinkSummary;
+import org.opennms.netmgt.model.topology.TopologyNodeSummary;
 import org.opennms.test.JUnitConfigurationEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -83,4 +87,35 @@ public class TopologyDaoHibernateTest {
         Assert.assertNotNull(node2);
     }
 
+    @Test
+    @Transactional
+    public void testGetSummaries() {
+        Assert.assertEquals(0, m_topologyDao.getNodeSummaries().size());
+        Assert.assertEquals(0, m_topologyDao.getLinkSummaries().size());
+        final String nodeVersion = m_topologyDao.getNodeVersion();
+        final String linkVersion = m_topologyDao.getLinkVersion();
+
+        m_populator.populateDatabase();
+
+        Assert.assertFalse(nodeVersion.equals(m_topologyDao.getNodeVersion()));
+        Assert.assertFalse(linkVersion.equals(m_topologyDao.getLinkVersion()));
+
+        final List<TopologyNodeSummary> nodes = m_topologyDao.getNodeSummaries();
+        Assert.assertEquals(m_populator.getNodeDao().countAll(), nodes.size());
+        final TopologyNodeSummary node1 = nodes.get(0);
+        Assert.assertEquals(m_populator.getNode1().getId().intValue(), node1.getNodeId());
+        Assert.assertEquals("node1", node1.getNodeLabel());
+        Assert.assertEquals("192.168.1.1", node1.getIpAddress());
+        Assert.assertTrue(node1.isManaged());
+
+        final List<TopologyLinkSummary> links = m_topologyDao.getLinkSummaries();
+        Assert.assertEquals(3, links.size());
+        final TopologyLinkSummary link = links.get(0);
+        Assert.assertEquals(m_populator.getNode1().getId().intValue(), link.getNodeId());
+        Assert.assertEquals(1, link.getIfIndex());
+        Assert.assertNotNull(link.getSourceInterface());
+        Assert.assertEquals(Integer.valueOf(1), link.getSourceInterface().getIfOperStatus());
+        Assert.assertEquals(Long.valueOf(10000000), link.getTargetInterface().getIfSpeed());
+    }
+
 }
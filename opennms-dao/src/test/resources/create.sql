@@ -720,6 +720,7 @@ create index events_nodeid_idx on events(nodeID);
 create index events_ipaddr_idx on events(ipaddr);
 create index events_serviceid_idx on events(serviceID);
 create index events_time_idx on events(eventTime);
+create index events_time_id_idx on events(eventTime, eventID);
 create index events_severity_idx on events(eventSeverity);
 create index events_log_idx on events(eventLog);
 create index events_display_idx on events(eventDisplay);
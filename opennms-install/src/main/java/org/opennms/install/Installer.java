@@ -114,6 +114,7 @@ public class Installer {
     String m_library_search_path = null;
     String m_fix_constraint_name = null;
     boolean m_fix_constraint_remove_rows = false;
+    String m_partition_events = null;
 
     protected Options options = new Options();
     protected CommandLine m_commandLine;
@@ -147,7 +148,7 @@ public class Installer {
         loadProperties();
         parseArguments(argv);
 
-        final boolean doDatabase = (m_update_database || m_do_inserts || m_update_iplike || m_update_unicode || m_fix_constraint);
+        final boolean doDatabase = (m_update_database || m_do_inserts || m_update_iplike || m_update_unicode || m_fix_constraint || m_partition_events != null);
 
         if (!doDatabase && m_tomcat_conf == null && !m_install_webapp && m_library_search_path == null) {
             usage(options, m_commandLine, "Nothing to do.  Use -h for help.", null);
@@ -255,6 +256,10 @@ public class Installer {
             }
         }
 
+        if (m_partition_events != null) {
+            m_installerDb.partitionEvents(m_partition_events, 2);
+        }
+
         if (m_update_unicode) {
             System.out.println("WARNING: the -U option is deprecated, it does nothing now");
         }
@@ -496,6 +501,8 @@ public class Installer {
                           "drop rows that match the constraint specified in -C, instead of fixing them");
         options.addOption("e", "extended-repairs", false,
                           "enable extended repairs of old schemas");
+        options.addOption("E", "partition-events", true,
+                          "partition the events table by 'day' or 'week' (requires PostgreSQL 8.4 or later, see vacuumd-configuration.xml for retention)");
         // tomcat-related options
         options.addOption("y", "do-webapp", false,
                           "install web application (see '-w')");
@@ -560,6 +567,7 @@ public class Installer {
         	System.setProperty("opennms.contexts", "production,repair");
         }
         m_update_database = m_commandLine.hasOption("d");
+        m_partition_events = m_commandLine.getOptionValue("E");
         m_remove_database = m_commandLine.hasOption("Z");
         m_do_full_vacuum = m_commandLine.hasOption("f");
         m_do_inserts = m_commandLine.hasOption("i");
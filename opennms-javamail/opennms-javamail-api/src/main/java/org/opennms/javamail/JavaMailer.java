@@ -431,11 +431,32 @@ public class JavaMailer {
     public void sendMessage(Message message) throws JavaMailerException {
         Transport t = null;
         try {
-            t = getSession().getTransport(getTransport());
-            LOG.debug("for transport name '{}' got: {}@{}", getTransport(), t.getClass().getName(), Integer.toHexString(t.hashCode()));
+            t = connectTransport();
+            sendMessage(message, t);
+        } finally {
+            try {
+                if (t != null && t.isConnected()) {
+                    t.close();
+                }
+            } catch (MessagingException e) {
+                throw new JavaMailerException("Java Mailer messaging exception on transport close: " + e, e);
+            }
+        }
+    }
 
-            LoggingTransportListener listener = new LoggingTransportListener();
-            t.addTransportListener(listener);
+    /**
+     * Gets a transport for this mailer's session and connects it to the
+     * configured mail host.  The caller owns the transport and is responsible
+     * for closing it, which allows one connection to be used for several
+     * messages.
+     *
+     * @return a connected {@link javax.mail.Transport} object.
+     * @throws org.opennms.javamail.JavaMailerException if any.
+     */
+    public Transport connectTransport() throws JavaMailerException {
+        try {
+            final Transport t = getSession().getTransport(getTransport());
+            LOG.debug("for transport name '{}' got: {}@{}", getTransport(), t.getClass().getName(), Integer.toHexString(t.hashCode()));
 
             if (t.getURLName().getProtocol().equals("mta")) {
                 // JMTA throws an AuthenticationFailedException if we call connect()
@@ -447,23 +468,35 @@ public class JavaMailer {
                 LOG.debug("not authenticating to {}", getMailHost());
                 t.connect(getMailHost(), getSmtpPort(), null, null);
             }
-
-            t.sendMessage(message, message.getAllRecipients());
-            listener.assertAllMessagesDelivered();
+            return t;
         } catch (NoSuchProviderException e) {
             LOG.error("Couldn't get a transport: {}", e, e);
             throw new JavaMailerException("Couldn't get a transport: " + e, e);
         } catch (MessagingException e) {
             LOG.error("Java Mailer messaging exception: {}", e, e);
             throw new JavaMailerException("Java Mailer messaging exception: " + e, e);
+        }
+    }
+
+    /**
+     * Send message over a transport returned by {@link #connectTransport()}.
+     * The transport is left open.
+     *
+     * @param message a {@link javax.mail.Message} object.
+     * @param t a {@link javax.mail.Transport} object.
+     * @throws org.opennms.javamail.JavaMailerException if any.
+     */
+    public void sendMessage(Message message, Transport t) throws JavaMailerException {
+        final LoggingTransportListener listener = new LoggingTransportListener();
+        t.addTransportListener(listener);
+        try {
+            t.sendMessage(message, message.getAllRecipients());
+            listener.assertAllMessagesDelivered();
+        } catch (MessagingException e) {
+            LOG.error("Java Mailer messaging exception: {}", e, e);
+            throw new JavaMailerException("Java Mailer messaging exception: " + e, e);
         } finally {
-            try {
-                if (t != null && t.isConnected()) {
-                    t.close();
-                }
-            } catch (MessagingException e) {
-                throw new JavaMailerException("Java Mailer messaging exception on transport close: " + e, e);
-            }
+            t.removeTransportListener(listener);
         }
     }
     
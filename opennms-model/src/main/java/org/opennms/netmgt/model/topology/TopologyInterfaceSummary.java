@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.model.topology;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+
+/**
+ * The SNMP interface attributes shown for one end of a topology link.
+ */
+public class TopologyInterfaceSummary {
+
+    private final int nodeId;
+    private final int ifIndex;
+    private final String ifName;
+    private final Integer ifOperStatus;
+    private final Long ifSpeed;
+    private final boolean layer3;
+
+    public TopologyInterfaceSummary(final Integer nodeId, final Integer ifIndex, final String ifName, final Integer ifOperStatus, final Long ifSpeed, final boolean layer3) {
+        super();
+        this.nodeId = nodeId;
+        this.ifIndex = ifIndex;
+        this.ifName = ifName;
+        this.ifOperStatus = ifOperStatus;
+        this.ifSpeed = ifSpeed;
+        this.layer3 = layer3;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int getIfIndex() {
+        return ifIndex;
+    }
+
+    public String getIfName() {
+        return ifName;
+    }
+
+    public Integer getIfOperStatus() {
+        return ifOperStatus;
+    }
+
+    public Long getIfSpeed() {
+        return ifSpeed;
+    }
+
+    /**
+     * @return whether the interface has a netmask that is not a loopback address
+     */
+    public boolean isLayer3() {
+        return layer3;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof TopologyInterfaceSummary)) {
+            return false;
+        }
+        final TopologyInterfaceSummary that = (TopologyInterfaceSummary) obj;
+        return new EqualsBuilder()
+        .append(this.nodeId, that.nodeId)
+        .append(this.ifIndex, that.ifIndex)
+        .append(this.ifName, that.ifName)
+        .append(this.ifOperStatus, that.ifOperStatus)
+        .append(this.ifSpeed, that.ifSpeed)
+        .append(this.layer3, that.layer3)
+        .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+        .append(nodeId)
+        .append(ifIndex)
+        .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "[TopologyInterfaceSummary: " + nodeId + ":" + ifIndex + ":" + ifName + "]";
+    }
+
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.model.topology;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+
+/**
+ * A data link between two nodes together with the SNMP interfaces at both
+ * ends, read with projection queries instead of loading
+ * {@link org.opennms.netmgt.model.DataLinkInterface} entities.
+ */
+public class TopologyLinkSummary {
+
+    private final int linkId;
+    private final int nodeId;
+    private final int ifIndex;
+    private final int parentNodeId;
+    private final int parentIfIndex;
+    private final TopologyInterfaceSummary sourceInterface;
+    private final TopologyInterfaceSummary targetInterface;
+
+    public TopologyLinkSummary(final Integer linkId, final Integer nodeId, final Integer ifIndex, final Integer parentNodeId, final Integer parentIfIndex, final TopologyInterfaceSummary sourceInterface, final TopologyInterfaceSummary targetInterface) {
+        super();
+        this.linkId = linkId;
+        this.nodeId = nodeId;
+        this.ifIndex = ifIndex;
+        this.parentNodeId = parentNodeId;
+        this.parentIfIndex = parentIfIndex;
+        this.sourceInterface = sourceInterface;
+        this.targetInterface = targetInterface;
+    }
+
+    public int getLinkId() {
+        return linkId;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int getIfIndex() {
+        return ifIndex;
+    }
+
+    public int getParentNodeId() {
+        return parentNodeId;
+    }
+
+    public int getParentIfIndex() {
+        return parentIfIndex;
+    }
+
+    /**
+     * @return the SNMP interface on {@link #getNodeId()}, may be <code>null</code>
+     */
+    public TopologyInterfaceSummary getSourceInterface() {
+        return sourceInterface;
+    }
+
+    /**
+     * @return the SNMP interface on {@link #getParentNodeId()}, may be <code>null</code>
+     */
+    public TopologyInterfaceSummary getTargetInterface() {
+        return targetInterface;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof TopologyLinkSummary)) {
+            return false;
+        }
+        final TopologyLinkSummary that = (TopologyLinkSummary) obj;
+        return new EqualsBuilder()
+        .append(this.linkId, that.linkId)
+        .append(this.nodeId, that.nodeId)
+        .append(this.ifIndex, that.ifIndex)
+        .append(this.parentNodeId, that.parentNodeId)
+        .append(this.parentIfIndex, that.parentIfIndex)
+        .append(this.sourceInterface, that.sourceInterface)
+        .append(this.targetInterface, that.targetInterface)
+        .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+        .append(linkId)
+        .append(nodeId)
+        .append(parentNodeId)
+        .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "[TopologyLinkSummary: " + linkId + ": " + nodeId + ":" + ifIndex + " -> " + parentNodeId + ":" + parentIfIndex + "]";
+    }
+
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.model.topology;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.opennms.netmgt.model.OnmsNode.NodeType;
+
+/**
+ * The node attributes needed to draw a node in the topology map, read with a
+ * projection query instead of loading the full {@link org.opennms.netmgt.model.OnmsNode}.
+ */
+public class TopologyNodeSummary {
+
+    private final int nodeId;
+    private final String nodeLabel;
+    private final String sysObjectId;
+    private final String sysLocation;
+    private final NodeType type;
+    private final String ipAddress;
+    private final boolean managed;
+
+    public TopologyNodeSummary(final Integer nodeId, final String nodeLabel, final String sysObjectId, final String sysLocation, final NodeType type, final String ipAddress, final boolean managed) {
+        super();
+        this.nodeId = nodeId;
+        if (nodeLabel == null) {
+            this.nodeLabel = String.valueOf(nodeId);
+        } else {
+            this.nodeLabel = nodeLabel;
+        }
+        this.sysObjectId = sysObjectId;
+        this.sysLocation = sysLocation;
+        this.type = type;
+        this.ipAddress = ipAddress;
+        this.managed = managed;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public String getNodeLabel() {
+        return nodeLabel;
+    }
+
+    public String getSysObjectId() {
+        return sysObjectId;
+    }
+
+    public String getSysLocation() {
+        return sysLocation;
+    }
+
+    public NodeType getType() {
+        return type;
+    }
+
+    /**
+     * @return the primary SNMP interface address, or the first address of the
+     * node if it has no primary interface; <code>null</code> if the node has
+     * no IP interfaces
+     */
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    /**
+     * @return whether the interface returned by {@link #getIpAddress()} is managed
+     */
+    public boolean isManaged() {
+        return managed;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof TopologyNodeSummary)) {
+            return false;
+        }
+        final TopologyNodeSummary that = (TopologyNodeSummary) obj;
+        return new EqualsBuilder()
+        .append(this.nodeId, that.nodeId)
+        .append(this.nodeLabel, that.nodeLabel)
+        .append(this.sysObjectId, that.sysObjectId)
+        .append(this.sysLocation, that.sysLocation)
+        .append(this.type, that.type)
+        .append(this.ipAddress, that.ipAddress)
+        .append(this.managed, that.managed)
+        .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+        .append(nodeId)
+        .append(nodeLabel)
+        .append(ipAddress)
+        .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer buffer = new StringBuffer();
+        buffer.append("[TopologyNodeSummary: ");
+        buffer.append(this.nodeId);
+        buffer.append(":");
+        buffer.append(this.nodeLabel);
+        buffer.append(" (");
+        buffer.append(this.ipAddress);
+        buffer.append(")]");
+        return buffer.toString();
+    }
+
+}
@@ -104,6 +104,24 @@ public class AlarmData implements Serializable {
         super();
     }
 
+    /**
+     * Creates a copy of another AlarmData.
+     *
+     * @param alarmData the AlarmData to copy
+     */
+    public AlarmData(final AlarmData alarmData) {
+        super();
+        this._reductionKey = alarmData._reductionKey;
+        this._alarmType = alarmData._alarmType;
+        this._clearKey = alarmData._clearKey;
+        this._autoClean = alarmData._autoClean;
+        this._x733AlarmType = alarmData._x733AlarmType;
+        this._x733ProbableCause = alarmData._x733ProbableCause;
+        for (final UpdateField updateField : alarmData.m_updateFieldList) {
+            this.m_updateFieldList.add(updateField == null ? null : new UpdateField(updateField));
+        }
+    }
+
 
     public void deleteAlarmType(
     ) {
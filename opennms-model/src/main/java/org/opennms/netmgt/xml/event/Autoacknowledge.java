@@ -91,6 +91,17 @@ public class Autoacknowledge implements Serializable {
         setState("on");
     }
 
+    /**
+     * Creates a copy of another Autoacknowledge.
+     *
+     * @param autoacknowledge the Autoacknowledge to copy
+     */
+    public Autoacknowledge(final Autoacknowledge autoacknowledge) {
+        super();
+        this._content = autoacknowledge._content;
+        this._state = autoacknowledge._state;
+    }
+
 
       //-----------/
      //- Methods -/
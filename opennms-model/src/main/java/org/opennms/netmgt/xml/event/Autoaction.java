@@ -89,6 +89,17 @@ public class Autoaction implements Serializable {
         setState("on");
     }
 
+    /**
+     * Creates a copy of another Autoaction.
+     *
+     * @param autoaction the Autoaction to copy
+     */
+    public Autoaction(final Autoaction autoaction) {
+        super();
+        this._content = autoaction._content;
+        this._state = autoaction._state;
+    }
+
 
       //-----------/
      //- Methods -/
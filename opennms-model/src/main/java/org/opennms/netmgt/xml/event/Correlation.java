@@ -114,6 +114,23 @@ public class Correlation implements Serializable {
         this._cueiList = new java.util.ArrayList<java.lang.String>();
     }
 
+    /**
+     * Creates a copy of another Correlation.
+     *
+     * @param correlation the Correlation to copy
+     */
+    public Correlation(final Correlation correlation) {
+        super();
+        this._state = correlation._state;
+        this._path = correlation._path;
+        this._cmin = correlation._cmin;
+        this._cmax = correlation._cmax;
+        this._ctime = correlation._ctime;
+        if (correlation._cueiList != null) {
+            this._cueiList = new java.util.ArrayList<java.lang.String>(correlation._cueiList);
+        }
+    }
+
 
       //-----------/
      //- Methods -/
@@ -284,6 +284,79 @@ public class Event implements Serializable {
 		_scriptList = new ArrayList<Script>();
 	}
 
+	/**
+	 * Creates a copy of an event without serializing it. Strings, boxed
+	 * numbers and the interface address are immutable and shared with the
+	 * original; the parms and every other nested object are copied, so the
+	 * copy can be changed without changing the original.
+	 *
+	 * @param event the event to copy
+	 */
+	public Event(final Event event) {
+		super();
+		_uuid = event._uuid;
+		_dbid = event._dbid;
+		_distPoller = event._distPoller;
+		_creationTime = event._creationTime;
+		_masterStation = event._masterStation;
+		_uei = event._uei;
+		_source = event._source;
+		_nodeid = event._nodeid;
+		_time = event._time;
+		_host = event._host;
+		_interfaceAddress = event._interfaceAddress;
+		_interfaceString = event._interfaceString;
+		_snmphost = event._snmphost;
+		_service = event._service;
+		_descr = event._descr;
+		_severity = event._severity;
+		_pathoutage = event._pathoutage;
+		_operinstruct = event._operinstruct;
+		_ifIndex = event._ifIndex;
+		_ifAlias = event._ifAlias;
+		_mouseovertext = event._mouseovertext;
+		_mask = event._mask == null ? null : new Mask(event._mask);
+		_snmp = event._snmp == null ? null : new Snmp(event._snmp);
+		_logmsg = event._logmsg == null ? null : new Logmsg(event._logmsg);
+		_correlation = event._correlation == null ? null : new Correlation(event._correlation);
+		_autoacknowledge = event._autoacknowledge == null ? null : new Autoacknowledge(event._autoacknowledge);
+		_tticket = event._tticket == null ? null : new Tticket(event._tticket);
+		_alarmData = event._alarmData == null ? null : new AlarmData(event._alarmData);
+		if (event._parms != null) {
+			_parms = new ArrayList<Parm>(event._parms.size());
+			for (final Parm parm : event._parms) {
+				_parms.add(parm == null ? null : new Parm(parm));
+			}
+		}
+		if (event._autoactionList != null) {
+			_autoactionList = new ArrayList<Autoaction>(event._autoactionList.size());
+			for (final Autoaction autoaction : event._autoactionList) {
+				_autoactionList.add(autoaction == null ? null : new Autoaction(autoaction));
+			}
+		}
+		if (event._operactionList != null) {
+			_operactionList = new ArrayList<Operaction>(event._operactionList.size());
+			for (final Operaction operaction : event._operactionList) {
+				_operactionList.add(operaction == null ? null : new Operaction(operaction));
+			}
+		}
+		if (event._forwardList != null) {
+			_forwardList = new ArrayList<Forward>(event._forwardList.size());
+			for (final Forward forward : event._forwardList) {
+				_forwardList.add(forward == null ? null : new Forward(forward));
+			}
+		}
+		if (event._scriptList != null) {
+			_scriptList = new ArrayList<Script>(event._scriptList.size());
+			for (final Script script : event._scriptList) {
+				_scriptList.add(script == null ? null : new Script(script));
+			}
+		}
+		if (event._loggroupList != null) {
+			_loggroupList = new ArrayList<String>(event._loggroupList);
+		}
+	}
+
 	// -----------/
 	// - Methods -/
 	// -----------/
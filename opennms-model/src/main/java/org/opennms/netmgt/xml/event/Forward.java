@@ -98,6 +98,18 @@ public class Forward implements Serializable {
         setMechanism("snmpudp");
     }
 
+    /**
+     * Creates a copy of another Forward.
+     *
+     * @param forward the Forward to copy
+     */
+    public Forward(final Forward forward) {
+        super();
+        this._content = forward._content;
+        this._state = forward._state;
+        this._mechanism = forward._mechanism;
+    }
+
 
       //-----------/
      //- Methods -/
@@ -104,6 +104,18 @@ public class Logmsg implements Serializable {
         setDest("logndisplay".intern());
     }
 
+    /**
+     * Creates a copy of another Logmsg.
+     *
+     * @param logmsg the Logmsg to copy
+     */
+    public Logmsg(final Logmsg logmsg) {
+        super();
+        this._content = logmsg._content;
+        this._notify = logmsg._notify;
+        this._dest = logmsg._dest;
+    }
+
 
       //-----------/
      //- Methods -/
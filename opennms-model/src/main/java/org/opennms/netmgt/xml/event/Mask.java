@@ -86,6 +86,21 @@ public class Mask implements Serializable {
         this._maskelementList = new java.util.ArrayList<org.opennms.netmgt.xml.event.Maskelement>();
     }
 
+    /**
+     * Creates a copy of another Mask.
+     *
+     * @param mask the Mask to copy
+     */
+    public Mask(final Mask mask) {
+        super();
+        if (mask._maskelementList != null) {
+            this._maskelementList = new java.util.ArrayList<org.opennms.netmgt.xml.event.Maskelement>(mask._maskelementList.size());
+            for (final Maskelement maskelement : mask._maskelementList) {
+                this._maskelementList.add(maskelement == null ? null : new Maskelement(maskelement));
+            }
+        }
+    }
+
 
       //-----------/
      //- Methods -/
@@ -88,6 +88,19 @@ public class Maskelement implements Serializable {
         this._mevalueList = new java.util.ArrayList<java.lang.String>();
     }
 
+    /**
+     * Creates a copy of another Maskelement.
+     *
+     * @param maskelement the Maskelement to copy
+     */
+    public Maskelement(final Maskelement maskelement) {
+        super();
+        this._mename = maskelement._mename;
+        if (maskelement._mevalueList != null) {
+            this._mevalueList = new java.util.ArrayList<java.lang.String>(maskelement._mevalueList);
+        }
+    }
+
 
       //-----------/
      //- Methods -/
@@ -96,6 +96,18 @@ public class Operaction implements Serializable {
         setState("on");
     }
 
+    /**
+     * Creates a copy of another Operaction.
+     *
+     * @param operaction the Operaction to copy
+     */
+    public Operaction(final Operaction operaction) {
+        super();
+        this._content = operaction._content;
+        this._state = operaction._state;
+        this._menutext = operaction._menutext;
+    }
+
 
       //-----------/
      //- Methods -/
@@ -85,6 +85,17 @@ public class Parm implements Serializable {
         super();
     }
 
+    /**
+     * Creates a copy of another Parm.
+     *
+     * @param parm the Parm to copy
+     */
+    public Parm(final Parm parm) {
+        super();
+        this._parmName = parm._parmName;
+        this._value = parm._value == null ? null : new Value(parm._value);
+    }
+
 
       //-----------/
      //- Methods -/
@@ -88,6 +88,17 @@ public class Script implements Serializable {
         setContent("");
     }
 
+    /**
+     * Creates a copy of another Script.
+     *
+     * @param script the Script to copy
+     */
+    public Script(final Script script) {
+        super();
+        this._content = script._content;
+        this._language = script._language;
+    }
+
 
       //-----------/
      //- Methods -/
@@ -115,6 +115,22 @@ public class Snmp implements Serializable {
         super();
     }
 
+    /**
+     * Creates a copy of another Snmp.
+     *
+     * @param snmp the Snmp to copy
+     */
+    public Snmp(final Snmp snmp) {
+        super();
+        this._id = snmp._id;
+        this._idtext = snmp._idtext;
+        this._version = snmp._version;
+        this._specific = snmp._specific;
+        this._generic = snmp._generic;
+        this._community = snmp._community;
+        this._timeStamp = snmp._timeStamp;
+    }
+
 
       //-----------/
      //- Methods -/
@@ -89,6 +89,17 @@ public class Tticket implements Serializable {
         setState("on");
     }
 
+    /**
+     * Creates a copy of another Tticket.
+     *
+     * @param tticket the Tticket to copy
+     */
+    public Tticket(final Tticket tticket) {
+        super();
+        this._content = tticket._content;
+        this._state = tticket._state;
+    }
+
 
       //-----------/
      //- Methods -/
@@ -48,6 +48,21 @@ public class UpdateField {
     
     @XmlAttribute(name="update-on-reduction", required=false)
     private java.lang.Boolean m_updateOnReduction = Boolean.TRUE;
+
+    public UpdateField() {
+        super();
+    }
+
+    /**
+     * Creates a copy of another UpdateField.
+     *
+     * @param updateField the UpdateField to copy
+     */
+    public UpdateField(final UpdateField updateField) {
+        super();
+        m_fieldName = updateField.m_fieldName;
+        m_updateOnReduction = updateField.m_updateOnReduction;
+    }
     
     public String getFieldName() {
         return m_fieldName;
@@ -95,6 +95,18 @@ public class Value implements Serializable {
         setEncoding("text");
     }
 
+    /**
+     * Creates a copy of another Value.
+     *
+     * @param value the Value to copy
+     */
+    public Value(final Value value) {
+        super();
+        this._content = value._content;
+        this._type = value._type;
+        this._encoding = value._encoding;
+    }
+
 
       //-----------/
      //- Methods -/
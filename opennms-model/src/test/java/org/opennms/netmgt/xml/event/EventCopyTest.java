@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.xml.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.InetAddress;
+
+import org.junit.Test;
+import org.opennms.netmgt.model.events.EventBuilder;
+
+public class EventCopyTest {
+
+    private Event createEvent() throws Exception {
+        final EventBuilder builder = new EventBuilder("uei.opennms.org/test/copy", "EventCopyTest");
+        builder.setNodeid(3);
+        builder.setInterface(InetAddress.getByName("10.0.0.1"));
+        builder.setSeverity("Major");
+        builder.addParam("ifName", "eth0");
+        builder.addParam("ifIndex", 2);
+        final Event event = builder.getEvent();
+
+        final Logmsg logmsg = new Logmsg();
+        logmsg.setContent("link down");
+        event.setLogmsg(logmsg);
+
+        final Snmp snmp = new Snmp();
+        snmp.setId(".1.3.6.1.6.3.1.1.5");
+        snmp.setGeneric(2);
+        event.setSnmp(snmp);
+
+        final AlarmData alarmData = new AlarmData();
+        alarmData.setReductionKey("%uei%:%nodeid%");
+        alarmData.setAlarmType(1);
+        final UpdateField updateField = new UpdateField();
+        updateField.setFieldName("severity");
+        alarmData.getUpdateFieldList().add(updateField);
+        event.setAlarmData(alarmData);
+
+        final Autoaction autoaction = new Autoaction();
+        autoaction.setContent("/bin/true");
+        event.addAutoaction(autoaction);
+        event.addLoggroup("network");
+        return event;
+    }
+
+    @Test
+    public void testCopyIsEqual() throws Exception {
+        final Event event = createEvent();
+        final Event copy = new Event(event);
+
+        assertSame(event.getUei(), copy.getUei());
+        assertEquals(event.getNodeid(), copy.getNodeid());
+        assertEquals("Major", copy.getSeverity());
+        assertEquals("link down", copy.getLogmsg().getContent());
+        assertEquals(Integer.valueOf(2), copy.getSnmp().getGeneric());
+        assertEquals("/bin/true", copy.getAutoaction(0).getContent());
+        assertEquals(event.getInterface(), copy.getInterface());
+        assertEquals(2, copy.getParmCollection().size());
+        assertEquals("eth0", copy.getParmCollection().get(0).getValue().getContent());
+        assertEquals("severity", copy.getAlarmData().getUpdateFieldList().get(0).getFieldName());
+    }
+
+    @Test
+    public void testCopyIsIndependent() throws Exception {
+        final Event event = createEvent();
+        final Event copy = new Event(event);
+
+        assertNotSame(event.getLogmsg(), copy.getLogmsg());
+        assertNotSame(event.getParmCollection(), copy.getParmCollection());
+        assertNotSame(event.getParmCollection().get(0).getValue(), copy.getParmCollection().get(0).getValue());
+
+        copy.getLogmsg().setContent("changed");
+        copy.getParmCollection().get(0).getValue().setContent("eth1");
+        copy.addParm(new Parm("extra", "value"));
+        copy.getSnmp().setGeneric(3);
+        copy.getAlarmData().setReductionKey("changed");
+        copy.getAutoaction(0).setContent("/bin/false");
+        copy.addLoggroup("other");
+
+        assertEquals("link down", event.getLogmsg().getContent());
+        assertEquals("eth0", event.getParmCollection().get(0).getValue().getContent());
+        assertEquals(2, event.getParmCollection().size());
+        assertEquals(Integer.valueOf(2), event.getSnmp().getGeneric());
+        assertEquals("%uei%:%nodeid%", event.getAlarmData().getReductionKey());
+        assertEquals("/bin/true", event.getAutoaction(0).getContent());
+        assertEquals(1, event.getLoggroupCount());
+    }
+
+    @Test
+    public void testCopyWithoutOptionalParts() {
+        final Event event = new Event();
+        event.setUei("uei.opennms.org/test/empty");
+        final Event copy = new Event(event);
+
+        assertEquals("uei.opennms.org/test/empty", copy.getUei());
+        assertNull(copy.getSnmp());
+        assertNull(copy.getAlarmData());
+        assertEquals(0, copy.getParmCollection().size());
+    }
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.provision.persist.requisition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.opennms.core.xml.JaxbUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the nodes of a requisition (model-import) document one at a time.
+ *
+ * <p>Only the <code>model-import</code> attributes and the node currently being
+ * returned are held in memory, so very large requisitions can be walked without
+ * unmarshalling the whole {@link Requisition}.  Documents without the model-import
+ * namespace are accepted, just like {@link JaxbUtils} does.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public class RequisitionNodeReader implements Iterator<RequisitionNode>, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(RequisitionNodeReader.class);
+
+    private static final String MODEL_IMPORT_NAMESPACE = RequisitionNode.class.getPackage().getAnnotation(XmlSchema.class).namespace();
+
+    private final InputStream m_stream;
+    private final XMLStreamReader m_reader;
+    private final String m_foreignSource;
+    private final XMLGregorianCalendar m_dateStamp;
+    private final XMLGregorianCalendar m_lastImport;
+    private RequisitionNode m_next;
+    private int m_nodeCount = 0;
+
+    /**
+     * <p>Constructor for RequisitionNodeReader.</p>
+     *
+     * @param url the location of the requisition document
+     * @throws java.io.IOException if the document cannot be opened or is not a requisition
+     */
+    public RequisitionNodeReader(final URL url) throws IOException {
+        this(url.openStream());
+    }
+
+    /**
+     * <p>Constructor for RequisitionNodeReader.</p>
+     *
+     * @param stream the requisition document, closed by {@link #close()}
+     * @throws java.io.IOException if the document is not a requisition
+     */
+    public RequisitionNodeReader(final InputStream stream) throws IOException {
+        m_stream = stream;
+        try {
+            final XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            m_reader = new NamespaceDefaultingReader(factory.createXMLStreamReader(stream));
+
+            while (m_reader.hasNext() && m_reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                m_reader.next();
+            }
+            if (!m_reader.isStartElement() || !"model-import".equals(m_reader.getLocalName())) {
+                throw new IOException("document is not a requisition (expected a model-import element)");
+            }
+            m_foreignSource = m_reader.getAttributeValue(null, "foreign-source");
+            final DatatypeFactory datatypeFactory = DatatypeFactory.newInstance();
+            m_dateStamp = parseDate(datatypeFactory, m_reader.getAttributeValue(null, "date-stamp"));
+            m_lastImport = parseDate(datatypeFactory, m_reader.getAttributeValue(null, "last-import"));
+        } catch (final DatatypeConfigurationException e) {
+            closeQuietly();
+            throw new IOException("unable to parse requisition dates: " + e.getMessage(), e);
+        } catch (final XMLStreamException e) {
+            closeQuietly();
+            throw new IOException("unable to parse requisition: " + e.getMessage(), e);
+        } catch (final IOException e) {
+            closeQuietly();
+            throw e;
+        }
+    }
+
+    /**
+     * <p>getForeignSource</p>
+     *
+     * @return the foreign-source attribute of the requisition
+     */
+    public String getForeignSource() {
+        return m_foreignSource;
+    }
+
+    /**
+     * Returns a requisition holding the <code>model-import</code> attributes of the
+     * document but none of its nodes.
+     *
+     * @return the requisition header
+     */
+    public Requisition getHeader() {
+        final Requisition header = new Requisition(m_foreignSource);
+        if (m_dateStamp != null) {
+            header.setDateStamp(m_dateStamp);
+        }
+        header.setLastImport(m_lastImport);
+        return header;
+    }
+
+    /**
+     * <p>getNodeCount</p>
+     *
+     * @return the number of nodes returned so far
+     */
+    public int getNodeCount() {
+        return m_nodeCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext() {
+        if (m_next == null) {
+            m_next = readNext();
+        }
+        return m_next != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RequisitionNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final RequisitionNode node = m_next;
+        m_next = null;
+        m_nodeCount++;
+        return node;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove is not supported while streaming a requisition");
+    }
+
+    private RequisitionNode readNext() {
+        try {
+            while (m_reader.hasNext()) {
+                if (m_reader.isStartElement() && "node".equals(m_reader.getLocalName())) {
+                    // the unmarshaller leaves the cursor on the event following </node>
+                    final Unmarshaller um = JaxbUtils.getUnmarshallerFor(RequisitionNode.class, null, false);
+                    final JAXBElement<RequisitionNode> element = um.unmarshal(m_reader, RequisitionNode.class);
+                    return element.getValue();
+                }
+                m_reader.next();
+            }
+            return null;
+        } catch (final XMLStreamException e) {
+            throw new IllegalStateException("unable to read requisition node #" + (m_nodeCount + 1) + " for foreign source " + m_foreignSource, e);
+        } catch (final JAXBException e) {
+            throw new IllegalStateException("unable to unmarshal requisition node #" + (m_nodeCount + 1) + " for foreign source " + m_foreignSource, e);
+        }
+    }
+
+    private static XMLGregorianCalendar parseDate(final DatatypeFactory datatypeFactory, final String value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return datatypeFactory.newXMLGregorianCalendar(value);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("invalid requisition date " + value, e);
+        }
+    }
+
+    /**
+     * <p>close</p>
+     */
+    @Override
+    public void close() {
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (m_reader != null) {
+                m_reader.close();
+            }
+        } catch (final XMLStreamException e) {
+            LOG.debug("failed to close requisition reader", e);
+        }
+        try {
+            m_stream.close();
+        } catch (final IOException e) {
+            LOG.debug("failed to close requisition stream", e);
+        }
+    }
+
+    /**
+     * Puts unqualified elements into the model-import namespace so that requisitions
+     * written without an xmlns declaration unmarshal the same way as qualified ones.
+     */
+    private static final class NamespaceDefaultingReader extends StreamReaderDelegate {
+        public NamespaceDefaultingReader(final XMLStreamReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public String getNamespaceURI() {
+            final String namespace = super.getNamespaceURI();
+            return (namespace == null || namespace.length() == 0) ? MODEL_IMPORT_NAMESPACE : namespace;
+        }
+
+        @Override
+        public QName getName() {
+            final QName name = super.getName();
+            if (name.getNamespaceURI() == null || name.getNamespaceURI().length() == 0) {
+                return new QName(MODEL_IMPORT_NAMESPACE, name.getLocalPart(), name.getPrefix());
+            }
+            return name;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.provision.persist.requisition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.core.test.MockLogAppender;
+import org.opennms.core.xml.JaxbUtils;
+import org.springframework.core.io.ClassPathResource;
+
+public class RequisitionNodeReaderTest {
+
+    @Before
+    public void setUp() {
+        MockLogAppender.setupLogging();
+    }
+
+    @Test
+    public void testStreamMatchesUnmarshalledRequisition() throws Exception {
+        final ClassPathResource resource = new ClassPathResource("/requisition-test.xml");
+        final Requisition requisition = JaxbUtils.unmarshal(Requisition.class, resource);
+
+        final List<RequisitionNode> streamed = new ArrayList<RequisitionNode>();
+        final RequisitionNodeReader reader = new RequisitionNodeReader(resource.getInputStream());
+        try {
+            assertNull(reader.getForeignSource());
+            assertEquals(requisition.getDateStamp(), reader.getHeader().getDateStamp());
+            assertEquals(0, reader.getHeader().getNodeCount());
+            while (reader.hasNext()) {
+                streamed.add(reader.next());
+            }
+            assertEquals(requisition.getNodeCount(), reader.getNodeCount());
+        } finally {
+            reader.close();
+        }
+
+        assertEquals(requisition.getNodes().size(), streamed.size());
+        for (int i = 0; i < streamed.size(); i++) {
+            assertEquals(JaxbUtils.marshal(requisition.getNodes().get(i)), JaxbUtils.marshal(streamed.get(i)));
+        }
+    }
+
+    @Test
+    public void testUnqualifiedRequisition() throws Exception {
+        final String xml = "<model-import foreign-source=\"unqualified\">"
+            + "<node foreign-id=\"1\" node-label=\"one\"><interface ip-addr=\"10.0.0.1\" snmp-primary=\"P\"><monitored-service service-name=\"ICMP\"/></interface><category name=\"Servers\"/></node>"
+            + "<node foreign-id=\"2\" node-label=\"two\"/>"
+            + "</model-import>";
+
+        final RequisitionNodeReader reader = new RequisitionNodeReader(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        try {
+            assertEquals("unqualified", reader.getForeignSource());
+
+            final RequisitionNode one = reader.next();
+            assertEquals("1", one.getForeignId());
+            assertEquals(1, one.getInterfaces().size());
+            assertEquals("ICMP", one.getInterfaces().get(0).getMonitoredServices().get(0).getServiceName());
+            assertEquals("Servers", one.getCategories().get(0).getName());
+
+            assertEquals("two", reader.next().getNodeLabel());
+            assertFalse(reader.hasNext());
+        } finally {
+            reader.close();
+        }
+    }
+}
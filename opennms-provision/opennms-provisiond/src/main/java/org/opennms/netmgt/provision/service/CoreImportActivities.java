@@ -28,36 +28,59 @@
 
 package org.opennms.netmgt.provision.service;
 
-import java.util.Collection;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.xml.bind.ValidationException;
 
 import org.opennms.core.tasks.BatchTask;
+import org.opennms.core.tasks.DefaultTaskCoordinator;
+import org.opennms.core.tasks.SyncTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.opennms.netmgt.EventConstants;
-import org.opennms.netmgt.provision.persist.AbstractRequisitionVisitor;
-import org.opennms.netmgt.provision.persist.OnmsNodeRequisition;
-import org.opennms.netmgt.provision.persist.RequisitionVisitor;
 import org.opennms.netmgt.provision.persist.requisition.Requisition;
+import org.opennms.netmgt.provision.persist.requisition.RequisitionNode;
+import org.opennms.netmgt.provision.persist.requisition.RequisitionNodeReader;
 import org.opennms.netmgt.provision.service.lifecycle.LifeCycleInstance;
 import org.opennms.netmgt.provision.service.lifecycle.Phase;
 import org.opennms.netmgt.provision.service.lifecycle.annotations.Activity;
 import org.opennms.netmgt.provision.service.lifecycle.annotations.ActivityProvider;
 import org.opennms.netmgt.provision.service.operations.ImportOperation;
 import org.opennms.netmgt.provision.service.operations.ImportOperationsManager;
+import org.opennms.netmgt.provision.service.operations.ProvisionMonitor;
 import org.opennms.netmgt.provision.service.operations.RequisitionImport;
+import org.opennms.netmgt.provision.service.operations.RequisitionNodeDigests;
+import org.opennms.netmgt.provision.service.operations.SaveOrUpdateOperation;
 import org.springframework.core.io.Resource;
 
 /**
  * CoreImportActivities
  *
+ * <p>Requisition nodes are audited and imported in chunks of
+ * <code>org.opennms.provisiond.importChunkSize</code> nodes: the next chunk is only
+ * read from the requisition once every node of the previous one has been
+ * persisted, so the number of import operations held in memory stays bounded
+ * no matter how large the requisition is.</p>
+ *
  * @author brozow
  * @version $Id: $
  */
 @ActivityProvider
 public class CoreImportActivities {
     private static final Logger LOG = LoggerFactory.getLogger(CoreImportActivities.class);
+
+    private static final String IMPORT_CHUNK_SIZE = "org.opennms.provisiond.importChunkSize";
+    private static final String SKIP_UNCHANGED_NODES = "org.opennms.provisiond.skipUnchangedNodes";
+    private static final int DEFAULT_IMPORT_CHUNK_SIZE = 500;
     
     ProvisionService m_provisionService;
     
@@ -66,13 +89,25 @@ public class CoreImportActivities {
     }
 
     @Activity( lifecycle = "import", phase = "validate", schedulingHint="import")
-    public RequisitionImport loadSpecFile(final Resource resource) {
+    public RequisitionImport loadSpecFile(final Resource resource, final ProvisionMonitor monitor) {
         final RequisitionImport ri = new RequisitionImport();
+        ri.setMonitor(monitor);
 
         info("Loading requisition from resource %s", resource);
         try {
+            ri.getMonitor().beginLoadingResource(resource);
             final Requisition specFile = m_provisionService.loadRequisition(resource);
-            ri.setRequisition(specFile);
+            final URL url = m_provisionService.getRequisitionURL(specFile.getForeignSource());
+            if (url == null) {
+                // no deployed file to stream the nodes from, keep them in memory
+                ri.setRequisition(specFile);
+            } else {
+                final Requisition header = validateRequisition(url);
+                header.setResource(resource);
+                ri.setRequisition(header);
+                ri.setRequisitionURL(url);
+            }
+            ri.getMonitor().finishLoadingResource(resource);
             debug("Finished loading requisition.");
         } catch (final Throwable t) {
             ri.abort(t);
@@ -81,6 +116,47 @@ public class CoreImportActivities {
         return ri;
     }
     
+    /**
+     * Reads the deployed requisition one node at a time and checks that every node
+     * can be read and that no foreign ID is used twice.  Only the foreign IDs and
+     * the header of the requisition are kept.
+     *
+     * @return the requisition header, without its nodes
+     */
+    private Requisition validateRequisition(final URL url) throws IOException, ValidationException {
+        final RequisitionNodeReader reader = new RequisitionNodeReader(url);
+        try {
+            final Set<String> foreignIds = new HashSet<String>();
+            final Map<String,Integer> duplicates = new LinkedHashMap<String,Integer>();
+            while (reader.hasNext()) {
+                final String foreignId = reader.next().getForeignId();
+                if (!foreignIds.add(foreignId)) {
+                    final Integer count = duplicates.get(foreignId);
+                    duplicates.put(foreignId, count == null ? 2 : count + 1);
+                }
+            }
+
+            if (!duplicates.isEmpty()) {
+                final StringBuilder sb = new StringBuilder();
+                sb.append("Duplicate nodes found on foreign source ").append(reader.getForeignSource()).append(": ");
+                final Iterator<Map.Entry<String,Integer>> it = duplicates.entrySet().iterator();
+                while (it.hasNext()) {
+                    final Map.Entry<String,Integer> duplicate = it.next();
+                    sb.append(duplicate.getKey()).append(" (").append(duplicate.getValue()).append(" found)");
+                    if (it.hasNext()) {
+                        sb.append(", ");
+                    }
+                }
+                throw new ValidationException(sb.toString());
+            }
+
+            debug("Validated %d nodes for foreign source %s.", reader.getNodeCount(), reader.getForeignSource());
+            return reader.getHeader();
+        } finally {
+            reader.close();
+        }
+    }
+
     @Activity( lifecycle = "import", phase = "audit", schedulingHint="import" )
     public ImportOperationsManager auditNodes(final RequisitionImport ri, final Boolean rescanExisting) {
         if (ri.isAborted()) {
@@ -91,6 +167,7 @@ public class CoreImportActivities {
         final Requisition specFile = ri.getRequisition();
 
         info("Auditing nodes for requisition %s", specFile);
+        ri.getMonitor().beginAuditNodes();
 
         // @ipv6
         m_provisionService.createDistPollerIfNecessary("localhost", "127.0.0.1");
@@ -101,9 +178,16 @@ public class CoreImportActivities {
         final ImportOperationsManager opsMgr = new ImportOperationsManager(foreignIdsToNodes, m_provisionService, rescanExisting);
         
         opsMgr.setForeignSource(foreignSource);
-        opsMgr.auditNodes(specFile);
 
-        debug("Finished auditing nodes.");
+        final File digestDirectory = getDigestDirectory();
+        if (digestDirectory != null) {
+            final RequisitionNodeDigests digests = new RequisitionNodeDigests(digestDirectory, foreignSource);
+            ri.setNodeDigests(digests);
+            opsMgr.setNodeDigests(digests);
+        }
+
+        ri.getMonitor().finishAuditNodes();
+        debug("Found %d existing nodes, requisition nodes will be audited in chunks of %d.", foreignIdsToNodes.size(), getChunkSize());
         
         return opsMgr;
     }
@@ -116,11 +200,60 @@ public class CoreImportActivities {
         }
 
         info("Scheduling nodes for phase %s", currentPhase);
-        
-        final Collection<ImportOperation> operations = opsMgr.getOperations();
-        
+
+        final Iterator<RequisitionNode> nodes;
+        try {
+            nodes = ri.openNodes();
+        } catch (final IOException e) {
+            ri.abort(e);
+            return;
+        }
+
+        ri.getMonitor().beginPreprocessingOps();
+        scheduleNextChunk(currentPhase, opsMgr, ri, nodes, System.currentTimeMillis());
+    }
+
+    /**
+     * Audits the next chunk of requisition nodes and adds a nodeImport lifecycle for
+     * each resulting operation to the scan phase.  While there are nodes left, a task
+     * depending on all of those lifecycles is added that reads the chunk after it.
+     */
+    private void scheduleNextChunk(final Phase currentPhase, final ImportOperationsManager opsMgr, final RequisitionImport ri, final Iterator<RequisitionNode> nodes, final long startTime) {
+        if (ri.isAborted()) {
+            info("The import has been aborted, not auditing any more nodes.");
+            RequisitionImport.closeNodes(nodes);
+            return;
+        }
+
+        final List<ImportOperation> operations;
+        final boolean moreNodes;
+        try {
+            operations = opsMgr.auditNodes(nodes, getChunkSize());
+            moreNodes = nodes.hasNext();
+        } catch (final RuntimeException e) {
+            RequisitionImport.closeNodes(nodes);
+            ri.abort(e);
+            return;
+        }
+
+        if (!moreNodes) {
+            RequisitionImport.closeNodes(nodes);
+            operations.addAll(opsMgr.getDeleteOperations());
+            ri.getMonitor().beginProcessingOps(opsMgr.getDeleteCount(), opsMgr.getUpdateCount(), opsMgr.getInsertCount());
+        }
+
+        final int audited = opsMgr.getAuditedNodeCount();
+        final long elapsed = Math.max(1L, System.currentTimeMillis() - startTime);
+        ri.getMonitor().nodesAudited(audited, opsMgr.getUnchangedCount());
+        info("Audited %d nodes for foreign source %s (%d unchanged, %d updates, %d inserts, %.1f nodes/sec), scheduling %d operations",
+             audited, opsMgr.getForeignSource(), opsMgr.getUnchangedCount(), opsMgr.getUpdateCount(), opsMgr.getInsertCount(),
+             audited * 1000.0 / elapsed, operations.size());
+
+        final DefaultTaskCoordinator coordinator = currentPhase.getCoordinator();
+        final BatchTask chunk = coordinator.createBatch(currentPhase).get();
+
         for(final ImportOperation op : operations) {
-            final LifeCycleInstance nodeScan = currentPhase.createNestedLifeCycle("nodeImport");
+            final LifeCycleInstance nodeScan = currentPhase.getLifeCycleInstance().createNestedLifeCycle(chunk, "nodeImport");
 
             debug("Created lifecycle %s for operation %s", nodeScan, op);
             
@@ -129,7 +262,22 @@ public class CoreImportActivities {
             nodeScan.trigger();
         }
 
+        if (moreNodes) {
+            final SyncTask next = coordinator.createTask(currentPhase, new Runnable() {
+                @Override
+                public void run() {
+                    scheduleNextChunk(currentPhase, opsMgr, ri, nodes, startTime);
+                }
 
+                @Override
+                public String toString() {
+                    return "audit next chunk of requisition " + opsMgr.getForeignSource();
+                }
+            }, "import");
+            next.addPrerequisite(chunk);
+            currentPhase.add(next);
+        }
+        currentPhase.add(chunk);
     }
     
     
@@ -142,7 +290,9 @@ public class CoreImportActivities {
 
         if (rescanExisting == null || rescanExisting) {
             info("Running scan phase of %s", operation);
+            ri.getMonitor().beginPreprocessing(operation);
             operation.scan();
+            ri.getMonitor().finishPreprocessing(operation);
     
             info("Finished Running scan phase of %s", operation);
         } else {
@@ -158,7 +308,15 @@ public class CoreImportActivities {
         }
 
         info("Running persist phase of %s", operation);
+        ri.getMonitor().beginPersisting(operation);
         operation.persist();
+        ri.getMonitor().finishPersisting(operation);
+
+        // a NullUpdateOperation leaves the node alone, so it must be imported again next time
+        final RequisitionNodeDigests digests = ri.getNodeDigests();
+        if (digests != null && operation instanceof SaveOrUpdateOperation && !(operation instanceof ImportOperationsManager.NullUpdateOperation)) {
+            digests.persisted(((SaveOrUpdateOperation)operation).getForeignId());
+        }
         info("Finished Running persist phase of %s", operation);
 
     }
@@ -171,39 +329,59 @@ public class CoreImportActivities {
         }
 
         info("Running relate phase");
+        ri.getMonitor().finishPreprocessingOps();
+        ri.getMonitor().finishProcessingOps();
+        ri.getMonitor().beginRelateNodes();
         
-        final Requisition requisition = ri.getRequisition();
-        RequisitionVisitor visitor = new AbstractRequisitionVisitor() {
-            @Override
-            public void visitNode(final OnmsNodeRequisition nodeReq) {
-                LOG.debug("Scheduling relate of node {}", nodeReq);
-                currentPhase.add(parentSetter(m_provisionService, nodeReq, requisition.getForeignSource()));
+        final String foreignSource = ri.getRequisition().getForeignSource();
+        Iterator<RequisitionNode> nodes = null;
+        try {
+            nodes = ri.openNodes();
+            while (nodes.hasNext()) {
+                final RequisitionNode node = nodes.next();
+                LOG.debug("Scheduling relate of node {}", node.getForeignId());
+                currentPhase.add(parentSetter(m_provisionService, node, foreignSource));
             }
-        };
-        
-        requisition.visit(visitor);
-        
+        } catch (final IOException e) {
+            ri.abort(e);
+        } catch (final RuntimeException e) {
+            ri.abort(e);
+        } finally {
+            RequisitionImport.closeNodes(nodes);
+        }
+
+        final RequisitionNodeDigests digests = ri.getNodeDigests();
+        if (digests != null && !ri.isAborted()) {
+            digests.save();
+        }
+
+        ri.getMonitor().finishRelateNodes();
         LOG.info("Finished Running relate phase");
 
     }
     
-    private static Runnable parentSetter(final ProvisionService provisionService, final OnmsNodeRequisition nodeReq, final String foreignSource) {
+    private static Runnable parentSetter(final ProvisionService provisionService, final RequisitionNode node, final String foreignSource) {
+        // only keep what is needed to set the parent, not the whole requisition node
+        final String foreignId = node.getForeignId();
+        final String nodeLabel = node.getNodeLabel();
+        // If the node requisition does not include a parent foreign source
+        // name, then use the foreign source of the current requisition
+        // as the default value
+        //
+        // @see http://issues.opennms.org/browse/NMS-4109
+        //
+        final String parentForeignSource = node.getParentForeignSource() == null ? foreignSource : node.getParentForeignSource();
+        final String parentForeignId = node.getParentForeignId();
+        final String parentNodeLabel = node.getParentNodeLabel();
         return new Runnable() {
             @Override
             public void run() {
                 provisionService.setNodeParentAndDependencies(
                     foreignSource,
-                    nodeReq.getForeignId(),
-                    // If the node requisition does not include a parent foreign source
-                    // name, then use the foreign source of the current requisition
-                    // as the default value
-                    //
-                    // @see http://issues.opennms.org/browse/NMS-4109
-                    //
-                    nodeReq.getParentForeignSource() == null ? 
-                        foreignSource : nodeReq.getParentForeignSource(),
-                    nodeReq.getParentForeignId(),
-                    nodeReq.getParentNodeLabel()
+                    foreignId,
+                    parentForeignSource,
+                    parentForeignId,
+                    parentNodeLabel
                 );
 
                 provisionService.clearCache();
@@ -211,11 +389,28 @@ public class CoreImportActivities {
 
             @Override
             public String toString() {
-                return "set parent for node "+nodeReq.getNodeLabel();
+                return "set parent for node "+nodeLabel;
             }
         }; 
     }
 
+    private static int getChunkSize() {
+        final int chunkSize = Integer.getInteger(IMPORT_CHUNK_SIZE, DEFAULT_IMPORT_CHUNK_SIZE);
+        return chunkSize > 0 ? chunkSize : DEFAULT_IMPORT_CHUNK_SIZE;
+    }
+
+    private static File getDigestDirectory() {
+        if (!Boolean.getBoolean(SKIP_UNCHANGED_NODES)) {
+            return null;
+        }
+        final String home = System.getProperty("opennms.home");
+        if (home == null) {
+            LOG.warn("{} is set but opennms.home is not, importing all nodes", SKIP_UNCHANGED_NODES);
+            return null;
+        }
+        return new File(home, "share" + File.separator + "provisiond" + File.separator + "requisition-digests");
+    }
+
     protected void info(String format, Object... args) {
     	LOG.info(format, args);
     }
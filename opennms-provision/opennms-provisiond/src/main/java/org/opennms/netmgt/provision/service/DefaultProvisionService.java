@@ -31,8 +31,12 @@ package org.opennms.netmgt.provision.service;
 import static org.opennms.core.utils.InetAddressUtils.addr;
 import static org.opennms.core.utils.InetAddressUtils.str;
 
+import java.io.File;
 import java.net.InetAddress;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -494,6 +498,231 @@ public class DefaultProvisionService implements ProvisionService, InitializingBe
         }.execute();
     }
 
+    /** {@inheritDoc} */
+    @Transactional
+    @Override
+    public List<OnmsSnmpInterface> updateSnmpInterfacesAttributes(final Integer nodeId, final Collection<OnmsSnmpInterface> snmpInterfaces) {
+        final InterfaceDiff diff = new InterfaceDiff(nodeId);
+        final List<OnmsSnmpInterface> updated = new ArrayList<OnmsSnmpInterface>(snmpInterfaces.size());
+        for (final OnmsSnmpInterface snmpInterface : snmpInterfaces) {
+            updated.add(diff.apply(snmpInterface));
+        }
+        diff.finish();
+        return updated;
+    }
+
+    /** {@inheritDoc} */
+    @Transactional
+    @Override
+    public List<OnmsIpInterface> updateIpInterfacesAttributes(final Integer nodeId, final Collection<OnmsIpInterface> ipInterfaces) {
+        final InterfaceDiff diff = new InterfaceDiff(nodeId);
+        final List<OnmsIpInterface> updated = new ArrayList<OnmsIpInterface>(ipInterfaces.size());
+        for (final OnmsIpInterface ipInterface : ipInterfaces) {
+            updated.add(diff.apply(ipInterface));
+        }
+        diff.finish();
+        return updated;
+    }
+
+    /**
+     * Compares scanned interfaces against the node's interfaces as loaded
+     * once from the database. New interfaces are saved, changed ones are
+     * merged and updated, and the ones that only need a new scan stamp are
+     * collected so {@link #finish()} can stamp them with bulk updates.
+     * Before the first insert the table is locked and the interfaces are
+     * reloaded, so an interface inserted by a concurrent scan is updated
+     * instead of inserted twice.
+     */
+    private final class InterfaceDiff {
+        private final Integer m_nodeId;
+        private OnmsNode m_dbNode;
+        private Map<Integer, OnmsSnmpInterface> m_dbSnmpInterfaces;
+        private Map<String, OnmsIpInterface> m_dbIpInterfaces;
+        private boolean m_snmpInterfacesLocked = false;
+        private boolean m_ipInterfacesLocked = false;
+        private final Map<Date, Set<Integer>> m_snmpStamps = new HashMap<Date, Set<Integer>>();
+        private final Map<Date, Set<Integer>> m_ipStamps = new HashMap<Date, Set<Integer>>();
+        private int m_inserted = 0;
+        private int m_updated = 0;
+        private int m_unchanged = 0;
+
+        private InterfaceDiff(final Integer nodeId) {
+            m_nodeId = nodeId;
+        }
+
+        private OnmsNode getDbNode() {
+            if (m_dbNode == null) {
+                m_dbNode = m_nodeDao.load(m_nodeId);
+                assertNotNull(m_dbNode, "no node found with nodeId %d", m_nodeId);
+            }
+            return m_dbNode;
+        }
+
+        private OnmsSnmpInterface apply(final OnmsSnmpInterface scannedSnmpIface) {
+            if (m_dbSnmpInterfaces == null) {
+                loadSnmpInterfaces();
+            }
+
+            OnmsSnmpInterface dbSnmpIface = m_dbSnmpInterfaces.get(scannedSnmpIface.getIfIndex());
+            if (dbSnmpIface == null && !m_snmpInterfacesLocked) {
+                // lock the table since we are about to insert, like UpsertTemplate does, and
+                // make sure the interface wasn't inserted by another scan while we waited for the lock
+                m_snmpInterfaceDao.lock();
+                m_snmpInterfacesLocked = true;
+                loadSnmpInterfaces();
+                dbSnmpIface = m_dbSnmpInterfaces.get(scannedSnmpIface.getIfIndex());
+            }
+            if (dbSnmpIface == null) {
+                // for performance reasons we don't add the snmp interface to the node so we avoid loading all the interfaces
+                scannedSnmpIface.setNode(getDbNode());
+                LOG.info("Saving SnmpInterface {}", scannedSnmpIface);
+                m_snmpInterfaceDao.save(scannedSnmpIface);
+                m_dbSnmpInterfaces.put(scannedSnmpIface.getIfIndex(), scannedSnmpIface);
+                m_inserted++;
+                return scannedSnmpIface;
+            }
+
+            // merge everything but the scan stamp and see whether anything changed
+            final Date scanStamp = scannedSnmpIface.getLastCapsdPoll();
+            final List<Object> before = snmpAttributes(dbSnmpIface);
+            scannedSnmpIface.setLastCapsdPoll(null);
+            dbSnmpIface.mergeSnmpInterfaceAttributes(scannedSnmpIface);
+            scannedSnmpIface.setLastCapsdPoll(scanStamp);
+
+            if (before.equals(snmpAttributes(dbSnmpIface))) {
+                if (isNewStamp(scanStamp, dbSnmpIface.getLastCapsdPoll())) {
+                    addStamp(m_snmpStamps, scanStamp, dbSnmpIface.getId());
+                }
+                m_unchanged++;
+            } else {
+                if (scanStamp != null) {
+                    dbSnmpIface.setLastCapsdPoll(scanStamp);
+                }
+                LOG.info("Updating SnmpInterface {}", dbSnmpIface);
+                m_snmpInterfaceDao.update(dbSnmpIface);
+                m_updated++;
+            }
+            return dbSnmpIface;
+        }
+
+        private OnmsIpInterface apply(final OnmsIpInterface scannedIface) {
+            final OnmsSnmpInterface snmpInterface = scannedIface.getSnmpInterface();
+            if (snmpInterface != null && snmpInterface.getIfIndex() != null) {
+                scannedIface.setSnmpInterface(apply(snmpInterface));
+            }
+
+            if (m_dbIpInterfaces == null) {
+                loadIpInterfaces();
+            }
+
+            final String ipAddress = str(scannedIface.getIpAddress());
+            OnmsIpInterface dbIface = m_dbIpInterfaces.get(ipAddress);
+            if (dbIface == null && !m_ipInterfacesLocked) {
+                // same check after taking the table lock as for SNMP interfaces
+                m_ipInterfaceDao.lock();
+                m_ipInterfacesLocked = true;
+                loadIpInterfaces();
+                dbIface = m_dbIpInterfaces.get(ipAddress);
+            }
+            LOG.debug("Updating interface attributes for DB interface {} for node {} with ip {}", dbIface, m_nodeId, ipAddress);
+            if (dbIface == null) {
+                // for performance reasons we don't add the ip interface to the node so we avoid loading all the interfaces
+                scannedIface.setNode(getDbNode());
+                scannedIface.visit(new ServiceTypeFulfiller());
+                LOG.info("SaveOrUpdating IpInterface {}", scannedIface);
+                m_ipInterfaceDao.saveOrUpdate(scannedIface);
+                scannedIface.visit(new AddEventVisitor(m_eventForwarder));
+                m_dbIpInterfaces.put(ipAddress, scannedIface);
+                m_inserted++;
+                return scannedIface;
+            }
+
+            boolean changed = false;
+            if (dbIface.isManaged() && !scannedIface.isManaged()) {
+                final Set<OnmsMonitoredService> monSvcs = dbIface.getMonitoredServices();
+                for (final OnmsMonitoredService monSvc : monSvcs) {
+                    monSvc.visit(new DeleteEventVisitor(m_eventForwarder));
+                }
+                changed = !monSvcs.isEmpty();
+                monSvcs.clear();
+            }
+
+            final Date scanStamp = scannedIface.getIpLastCapsdPoll();
+            final List<Object> before = ipAttributes(dbIface);
+            scannedIface.setIpLastCapsdPoll(null);
+            dbIface.mergeInterfaceAttributes(scannedIface);
+            scannedIface.setIpLastCapsdPoll(scanStamp);
+
+            if (!changed && before.equals(ipAttributes(dbIface))) {
+                if (isNewStamp(scanStamp, dbIface.getIpLastCapsdPoll())) {
+                    addStamp(m_ipStamps, scanStamp, dbIface.getId());
+                }
+                m_unchanged++;
+            } else {
+                if (scanStamp != null) {
+                    dbIface.setIpLastCapsdPoll(scanStamp);
+                }
+                LOG.info("Updating IpInterface {}", dbIface);
+                m_ipInterfaceDao.update(dbIface);
+                m_updated++;
+            }
+            return dbIface;
+        }
+
+        private void loadSnmpInterfaces() {
+            m_dbSnmpInterfaces = new HashMap<Integer, OnmsSnmpInterface>();
+            for (final OnmsSnmpInterface dbSnmpIface : m_snmpInterfaceDao.findByNodeId(m_nodeId)) {
+                m_dbSnmpInterfaces.put(dbSnmpIface.getIfIndex(), dbSnmpIface);
+            }
+        }
+
+        private void loadIpInterfaces() {
+            m_dbIpInterfaces = new HashMap<String, OnmsIpInterface>();
+            for (final OnmsIpInterface dbIface : m_ipInterfaceDao.findByNodeId(m_nodeId)) {
+                m_dbIpInterfaces.put(str(dbIface.getIpAddress()), dbIface);
+            }
+        }
+
+        private void finish() {
+            m_ipInterfaceDao.flush();
+            final Set<Date> stamps = new HashSet<Date>(m_snmpStamps.keySet());
+            stamps.addAll(m_ipStamps.keySet());
+            for (final Date stamp : stamps) {
+                m_nodeDao.updateInterfaceScanStamps(m_nodeId, getStamped(m_ipStamps, stamp), getStamped(m_snmpStamps, stamp), stamp);
+            }
+            LOG.debug("Applied scan results for node {}: {} inserted, {} updated, {} unchanged", m_nodeId, m_inserted, m_updated, m_unchanged);
+        }
+
+        private List<Object> snmpAttributes(final OnmsSnmpInterface iface) {
+            return Arrays.<Object>asList(iface.getIfAdminStatus(), iface.getIfAlias(), iface.getIfDescr(), iface.getIfName(),
+                                         iface.getIfOperStatus(), iface.getIfSpeed(), iface.getIfType(), iface.getNetMask(),
+                                         iface.getPhysAddr(), iface.getPoll(), iface.getLastSnmpPoll(), iface.getCollect());
+        }
+
+        private List<Object> ipAttributes(final OnmsIpInterface iface) {
+            return Arrays.<Object>asList(iface.getIsManaged(), iface.getIsSnmpPrimary(), iface.getIpHostName());
+        }
+
+        private boolean isNewStamp(final Date scanStamp, final Date dbStamp) {
+            // compare millis; the database copy is usually a java.sql.Timestamp
+            return scanStamp != null && (dbStamp == null || scanStamp.getTime() != dbStamp.getTime());
+        }
+
+        private void addStamp(final Map<Date, Set<Integer>> stamps, final Date stamp, final Integer id) {
+            Set<Integer> ids = stamps.get(stamp);
+            if (ids == null) {
+                ids = new HashSet<Integer>();
+                stamps.put(stamp, ids);
+            }
+            ids.add(id);
+        }
+
+        private Set<Integer> getStamped(final Map<Date, Set<Integer>> stamps, final Date stamp) {
+            final Set<Integer> ids = stamps.get(stamp);
+            return ids == null ? Collections.<Integer>emptySet() : ids;
+        }
+    }
+
     /** {@inheritDoc} */
     @Transactional
     @Override
@@ -908,6 +1137,26 @@ public class DefaultProvisionService implements ProvisionService, InitializingBe
         return r;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public URL getRequisitionURL(final String foreignSource) {
+        try {
+            m_foreignSourceRepository.flush();
+            final URL url = m_foreignSourceRepository.getRequisitionURL(foreignSource);
+            if (url == null || !"file".equals(url.getProtocol())) {
+                return null;
+            }
+            final File file = new File(url.toURI());
+            return file.canRead() ? url : null;
+        } catch (final ForeignSourceRepositoryException e) {
+            LOG.warn("Unable to locate the deployed requisition for foreign source {}", foreignSource, e);
+            return null;
+        } catch (final URISyntaxException e) {
+            LOG.warn("Unable to locate the deployed requisition for foreign source {}", foreignSource, e);
+            return null;
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.opennms.netmgt.provision.service.ProvisionService#updateNodeInfo(org.opennms.netmgt.model.OnmsNode)
      */
@@ -410,6 +410,7 @@ public class NodeScan implements RunInBatch {
                 }
             }
 
+            final ScanResultAccumulator results = new ScanResultAccumulator(getProvisionService(), getNodeId());
             final IPAddressTableTracker ipAddressTracker = new IPAddressTableTracker() {
             	@Override
             	public void processIPAddressRow(final IPAddressRow row) {
@@ -452,13 +453,13 @@ public class NodeScan implements RunInBatch {
                         }
                         
                         if (iface != null) {
-                            currentPhase.add(ipUpdater(currentPhase, iface), "write");
+                            results.addIpInterface(iface);
                         }
                     }
             	}
             };
 
-            walkTable(currentPhase, provisionedIps, ipAddressTracker);
+            walkTable(currentPhase, provisionedIps, ipAddressTracker, results);
         }
         
         public void detectIpInterfaceTable(final BatchTask currentPhase) {
@@ -475,6 +476,7 @@ public class NodeScan implements RunInBatch {
                 }
             }
 
+            final ScanResultAccumulator results = new ScanResultAccumulator(getProvisionService(), getNodeId());
             final IPInterfaceTableTracker ipIfTracker = new IPInterfaceTableTracker() {
             	@Override
             	public void processIPInterfaceRow(final IPInterfaceRow row) {
@@ -520,16 +522,16 @@ public class NodeScan implements RunInBatch {
 	                    }
 	
 	                    if (iface != null) {
-	                        currentPhase.add(ipUpdater(currentPhase, iface), "write");
+	                        results.addIpInterface(iface);
 	                    }
                     }
                 }
             };
 
-            walkTable(currentPhase, provisionedIps, ipIfTracker);
+            walkTable(currentPhase, provisionedIps, ipIfTracker, results);
         }
 
-		private void walkTable(final BatchTask currentPhase, final Set<InetAddress> provisionedIps, final TableTracker tracker) {
+		private void walkTable(final BatchTask currentPhase, final Set<InetAddress> provisionedIps, final TableTracker tracker, final ScanResultAccumulator results) {
             final OnmsNode node = getNode();
 			LOG.info("detecting IP interfaces for node {}/{}/{} using table tracker {}", node.getId(), node.getForeignSource(), node.getForeignId(), tracker);
 
@@ -562,7 +564,7 @@ public class NodeScan implements RunInBatch {
 					            iface.setIpLastCapsdPoll(getScanStamp());
 					            iface.setIsManaged("M");
 		      
-					            currentPhase.add(ipUpdater(currentPhase, iface), "write");
+					            results.addIpInterface(iface);
 				            }
 				        }
 	      
@@ -572,6 +574,9 @@ public class NodeScan implements RunInBatch {
 				} catch (final InterruptedException e) {
 				    abort("Aborting node scan : Scan thread failed while waiting for the IP address tables");
 				}
+
+				// write everything that was found in one batch
+				currentPhase.add(ipInterfacesWriter(currentPhase, results), "write");
 			}
 		}
         
@@ -580,6 +585,7 @@ public class NodeScan implements RunInBatch {
             final SnmpAgentConfig agentConfig = getAgentConfigFactory().getAgentConfig(getAgentAddress());
             Assert.notNull(getAgentConfigFactory(), "agentConfigFactory was not injected");
             
+            final ScanResultAccumulator results = new ScanResultAccumulator(getProvisionService(), getNodeId());
             final PhysInterfaceTableTracker physIfTracker = new PhysInterfaceTableTracker() {
                 @Override
                 public void processPhysicalInterfaceRow(PhysicalInterfaceRow row) {
@@ -595,17 +601,7 @@ public class NodeScan implements RunInBatch {
                     }
                     
                     if (snmpIface != null) {
-                        final OnmsSnmpInterface snmpIfaceResult = snmpIface;
-        
-                        // add call to the SNMP interface collection enable policies
-        
-                        final Runnable r = new Runnable() {
-                            @Override
-                            public void run() {
-                                getProvisionService().updateSnmpInterfaceAttributes(getNodeId(), snmpIfaceResult);
-                            }
-                        };
-                        currentPhase.add(r, "write");
+                        results.addSnmpInterface(snmpIface);
                     }
                 }
             };
@@ -629,6 +625,14 @@ public class NodeScan implements RunInBatch {
                 abort("Aborting node scan : Scan thread interrupted while waiting for interfaces table");
                 Thread.currentThread().interrupt();
             }
+
+            // write everything that was found in one batch
+            currentPhase.add(new Runnable() {
+                @Override
+                public void run() {
+                    results.persistSnmpInterfaces();
+                }
+            }, "write");
         }
 
         @Override
@@ -822,6 +826,20 @@ public class NodeScan implements RunInBatch {
             };
             return r;
         }
+
+        protected Runnable ipInterfacesWriter(final BatchTask currentPhase, final ScanResultAccumulator results) {
+            Runnable r = new Runnable() {
+                @Override
+                public void run() {
+                    for (final OnmsIpInterface iface : results.persistIpInterfaces()) {
+                        if (iface.isManaged()) {
+                            currentPhase.add(new IpInterfaceScan(getNodeId(), iface.getIpAddress(), getForeignSource(), getProvisionService()));
+                        }
+                    }
+                }
+            };
+            return r;
+        }
         
     }
     
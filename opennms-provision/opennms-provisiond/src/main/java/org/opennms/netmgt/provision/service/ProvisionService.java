@@ -29,6 +29,8 @@
 package org.opennms.netmgt.provision.service;
 
 import java.net.InetAddress;
+import java.net.URL;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -148,6 +150,31 @@ public interface ProvisionService {
     @Transactional
     OnmsSnmpInterface updateSnmpInterfaceAttributes(Integer nodeId, OnmsSnmpInterface snmpInterface);
 
+    /**
+     * Write the SNMP interfaces found by a node scan in a single transaction.
+     * The node's existing interfaces are loaded once and compared in memory;
+     * only new or changed rows are written, and rows whose only change is the
+     * scan stamp are stamped with a bulk update.
+     *
+     * @param nodeId a {@link java.lang.Integer} object.
+     * @param snmpInterfaces the scanned {@link org.opennms.netmgt.model.OnmsSnmpInterface} objects.
+     * @return the persistent interfaces, in the same order.
+     */
+    @Transactional
+    List<OnmsSnmpInterface> updateSnmpInterfacesAttributes(Integer nodeId, Collection<OnmsSnmpInterface> snmpInterfaces);
+
+    /**
+     * Write the IP interfaces found by a node scan in a single transaction,
+     * in the same way as {@link #updateSnmpInterfacesAttributes}. The same
+     * events are sent as for {@link #updateIpInterfaceAttributes}.
+     *
+     * @param nodeId a {@link java.lang.Integer} object.
+     * @param ipInterfaces the scanned {@link org.opennms.netmgt.model.OnmsIpInterface} objects.
+     * @return the persistent interfaces, in the same order.
+     */
+    @Transactional
+    List<OnmsIpInterface> updateIpInterfacesAttributes(Integer nodeId, Collection<OnmsIpInterface> ipInterfaces);
+
     /**
      * <p>addMonitoredService</p>
      *
@@ -315,6 +342,15 @@ public interface ProvisionService {
      */
     Requisition loadRequisition(Resource resource);
 
+    /**
+     * Returns the location of the deployed copy of a requisition so that its
+     * nodes can be streamed rather than held in memory during an import.
+     *
+     * @param foreignSource a {@link java.lang.String} object.
+     * @return a readable file URL, or null if the requisition is not stored in a file
+     */
+    URL getRequisitionURL(String foreignSource);
+
     /**
      * <p>getDetectorsForForeignSource</p>
      *
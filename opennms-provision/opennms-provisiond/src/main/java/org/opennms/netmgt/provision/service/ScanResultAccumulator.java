@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.provision.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.opennms.netmgt.model.OnmsIpInterface;
+import org.opennms.netmgt.model.OnmsSnmpInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the interfaces found while walking a node's interface tables so
+ * that they can be written with one batched call to the
+ * {@link ProvisionService} once the walk is done, instead of one transaction
+ * per interface.
+ *
+ * Rows are added from the SNMP walker's callback thread and drained from the
+ * provisioning write thread, so access is synchronized.
+ */
+class ScanResultAccumulator {
+    private static final Logger LOG = LoggerFactory.getLogger(ScanResultAccumulator.class);
+
+    private final ProvisionService m_provisionService;
+    private final Integer m_nodeId;
+    private final List<OnmsSnmpInterface> m_snmpInterfaces = new ArrayList<OnmsSnmpInterface>();
+    private final List<OnmsIpInterface> m_ipInterfaces = new ArrayList<OnmsIpInterface>();
+
+    ScanResultAccumulator(final ProvisionService provisionService, final Integer nodeId) {
+        m_provisionService = provisionService;
+        m_nodeId = nodeId;
+    }
+
+    synchronized void addSnmpInterface(final OnmsSnmpInterface snmpInterface) {
+        m_snmpInterfaces.add(snmpInterface);
+    }
+
+    synchronized void addIpInterface(final OnmsIpInterface ipInterface) {
+        m_ipInterfaces.add(ipInterface);
+    }
+
+    /**
+     * Write and clear the accumulated SNMP interfaces.
+     *
+     * @return the persistent interfaces
+     */
+    List<OnmsSnmpInterface> persistSnmpInterfaces() {
+        final List<OnmsSnmpInterface> snmpInterfaces;
+        synchronized (this) {
+            snmpInterfaces = new ArrayList<OnmsSnmpInterface>(m_snmpInterfaces);
+            m_snmpInterfaces.clear();
+        }
+        if (snmpInterfaces.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LOG.debug("Writing {} scanned SNMP interfaces for node {}", snmpInterfaces.size(), m_nodeId);
+        return m_provisionService.updateSnmpInterfacesAttributes(m_nodeId, snmpInterfaces);
+    }
+
+    /**
+     * Write and clear the accumulated IP interfaces.
+     *
+     * @return the persistent interfaces
+     */
+    List<OnmsIpInterface> persistIpInterfaces() {
+        final List<OnmsIpInterface> ipInterfaces;
+        synchronized (this) {
+            ipInterfaces = new ArrayList<OnmsIpInterface>(m_ipInterfaces);
+            m_ipInterfaces.clear();
+        }
+        if (ipInterfaces.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LOG.debug("Writing {} scanned IP interfaces for node {}", ipInterfaces.size(), m_nodeId);
+        return m_provisionService.updateIpInterfacesAttributes(m_nodeId, ipInterfaces);
+    }
+}
@@ -57,6 +57,8 @@ public class TimeTrackingMonitor implements ProvisionMonitor {
 	private int m_insertCount;
 	private int m_updateCount;
 	private int m_eventCount;
+	private volatile int m_nodeCount;
+	private volatile int m_unchangedCount;
 
 	/** {@inheritDoc} */
         @Override
@@ -177,6 +179,13 @@ public class TimeTrackingMonitor implements ProvisionMonitor {
 	public void finishAuditNodes() {
 		m_auditDuration.end();
 	}
+
+	/** {@inheritDoc} */
+        @Override
+	public void nodesAudited(int nodeCount, int unchangedCount) {
+		m_nodeCount = nodeCount;
+		m_unchangedCount = unchangedCount;
+	}
 	
 	/**
 	 * <p>beginRelateNodes</p>
@@ -205,6 +214,12 @@ public class TimeTrackingMonitor implements ProvisionMonitor {
 		stats.append("Deletes: ").append(m_deleteCount).append(", ");
 		stats.append("Updates: ").append(m_updateCount).append(", ");
 		stats.append("Inserts: ").append(m_insertCount).append("\n");
+		stats.append("Nodes: ").append(m_nodeCount).append(", ");
+		stats.append("Unchanged: ").append(m_unchangedCount);
+		if (m_importDuration.getLength() > 0) {
+			stats.append(", ").append(String.format("%.1f", m_nodeCount * 1000.0 / m_importDuration.getLength())).append(" nodes per second");
+		}
+		stats.append('\n');
 		stats.append(m_importDuration).append(", ");
 		stats.append(m_loadingDuration).append(", ");
 		stats.append(m_auditDuration).append('\n');
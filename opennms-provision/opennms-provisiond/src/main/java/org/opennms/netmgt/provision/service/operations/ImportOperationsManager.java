@@ -43,7 +43,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.provision.persist.OnmsNodeRequisition;
 import org.opennms.netmgt.provision.persist.requisition.Requisition;
+import org.opennms.netmgt.provision.persist.requisition.RequisitionNode;
 import org.opennms.netmgt.provision.service.ProvisionService;
 import org.opennms.netmgt.provision.service.RequisitionAccountant;
 import org.slf4j.Logger;
@@ -82,6 +84,12 @@ public class ImportOperationsManager {
     private Boolean m_rescanExisting;
     
     private String m_foreignSource;
+
+    private RequisitionNodeDigests m_nodeDigests;
+    private int m_auditedInserts = 0;
+    private int m_auditedUpdates = 0;
+    private int m_auditedNodes = 0;
+    private int m_unchangedNodes = 0;
     
     /**
      * <p>Constructor for ImportOperationsManager.</p>
@@ -154,7 +162,7 @@ public class ImportOperationsManager {
      * @return a int.
      */
     public int getOperationCount() {
-        return m_inserts.size() + m_updates.size() + m_foreignIdToNodeMap.size();
+        return getInsertCount() + getUpdateCount() + getDeleteCount();
     }
     
     /**
@@ -163,7 +171,7 @@ public class ImportOperationsManager {
      * @return a int.
      */
     public int getInsertCount() {
-    	return m_inserts.size();
+    	return m_auditedInserts + m_inserts.size();
     }
 
     /**
@@ -172,7 +180,25 @@ public class ImportOperationsManager {
      * @return a int.
      */
     public int  getUpdateCount() {
-        return m_updates.size();
+        return m_auditedUpdates + m_updates.size();
+    }
+
+    /**
+     * <p>getAuditedNodeCount</p>
+     *
+     * @return the number of requisition nodes audited by {@link #auditNodes(Iterator, int)}
+     */
+    public int getAuditedNodeCount() {
+        return m_auditedNodes;
+    }
+
+    /**
+     * <p>getUnchangedCount</p>
+     *
+     * @return the number of audited nodes that were skipped because they had not changed
+     */
+    public int getUnchangedCount() {
+        return m_unchangedNodes;
     }
 
     /**
@@ -312,6 +338,15 @@ public class ImportOperationsManager {
     public Boolean getRescanExisting() {
         return m_rescanExisting;
     }
+
+    /**
+     * Enables skipping of nodes that are unchanged since the last import.
+     *
+     * @param nodeDigests the digests of the last import, or null to import every node
+     */
+    public void setNodeDigests(final RequisitionNodeDigests nodeDigests) {
+        m_nodeDigests = nodeDigests;
+    }
     
     /**
      * <p>auditNodes</p>
@@ -322,6 +357,65 @@ public class ImportOperationsManager {
         requisition.visit(new RequisitionAccountant(this));
     }
 
+    /**
+     * Audits up to <code>maxNodes</code> further nodes of a requisition and returns the
+     * update and insert operations for them.  Nodes that already exist and whose
+     * digest matches the previous import are accounted for, so they will not be
+     * deleted, but no operation is created for them.
+     *
+     * <p>Once <code>nodes</code> is exhausted the remaining entries of the foreign ID
+     * map are the nodes to delete, see {@link #getDeleteOperations()}.</p>
+     *
+     * @param nodes the requisition nodes, typically streamed from the requisition file
+     * @param maxNodes the maximum number of nodes to read
+     * @return the operations for this chunk of nodes
+     */
+    public List<ImportOperation> auditNodes(final Iterator<RequisitionNode> nodes, final int maxNodes) {
+        final RequisitionAccountant accountant = new RequisitionAccountant(this);
+        int count = 0;
+        while (count < maxNodes && nodes.hasNext()) {
+            final RequisitionNode node = nodes.next();
+            count++;
+            m_auditedNodes++;
+
+            if (m_nodeDigests != null) {
+                final String foreignId = node.getForeignId();
+                final String digest = m_nodeDigests.digest(node);
+                if (nodeExists(foreignId) && m_nodeDigests.isUnchanged(foreignId, digest)) {
+                    LOG.debug("Skipping node {}/{}: it has not changed since the last import", m_foreignSource, foreignId);
+                    processForeignId(foreignId);
+                    m_unchangedNodes++;
+                    continue;
+                }
+                m_nodeDigests.changed(foreignId, digest);
+            }
+            new OnmsNodeRequisition(m_foreignSource, node).visit(accountant);
+        }
+
+        final List<ImportOperation> operations = new ArrayList<ImportOperation>(m_updates.size() + m_inserts.size());
+        operations.addAll(m_updates);
+        operations.addAll(m_inserts);
+        m_auditedUpdates += m_updates.size();
+        m_auditedInserts += m_inserts.size();
+        m_updates.clear();
+        m_inserts.clear();
+        return operations;
+    }
+
+    /**
+     * Returns the operations deleting the nodes that were not found while auditing.
+     *
+     * @return a {@link java.util.List} object.
+     */
+    public List<ImportOperation> getDeleteOperations() {
+        final List<ImportOperation> operations = new ArrayList<ImportOperation>(m_foreignIdToNodeMap.size());
+        final Iterator<ImportOperation> it = new DeleteIterator();
+        while (it.hasNext()) {
+            operations.add(it.next());
+        }
+        return operations;
+    }
+
     @SuppressWarnings("unused")
     private Runnable persister(final ImportOperation oper) {
         Runnable r = new Runnable() {
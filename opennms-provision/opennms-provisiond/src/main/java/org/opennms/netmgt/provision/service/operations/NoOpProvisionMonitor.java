@@ -127,6 +127,11 @@ public class NoOpProvisionMonitor implements ProvisionMonitor {
 	public void finishAuditNodes() {
 	}
 
+	/** {@inheritDoc} */
+        @Override
+	public void nodesAudited(int nodeCount, int unchangedCount) {
+	}
+
 	/**
 	 * <p>beginRelateNodes</p>
 	 */
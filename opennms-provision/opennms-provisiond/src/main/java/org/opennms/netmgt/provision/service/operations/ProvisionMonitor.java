@@ -137,6 +137,14 @@ public interface ProvisionMonitor {
 	 */
 	void finishAuditNodes();
 
+	/**
+	 * <p>nodesAudited</p>
+	 *
+	 * @param nodeCount the number of requisition nodes audited so far
+	 * @param unchangedCount how many of them were skipped as unchanged
+	 */
+	void nodesAudited(int nodeCount, int unchangedCount);
+
 	/**
 	 * <p>beginRelateNodes</p>
 	 */
@@ -28,16 +28,28 @@
 
 package org.opennms.netmgt.provision.service.operations;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
 import javax.xml.bind.ValidationException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.opennms.netmgt.provision.persist.requisition.Requisition;
+import org.opennms.netmgt.provision.persist.requisition.RequisitionNode;
+import org.opennms.netmgt.provision.persist.requisition.RequisitionNodeReader;
 
 public class RequisitionImport {
     private static final Logger LOG = LoggerFactory.getLogger(RequisitionImport.class);
     private Requisition m_requisition;
     private Throwable m_throwable;
+    private URL m_requisitionUrl;
+    private RequisitionNodeDigests m_nodeDigests;
+    private ProvisionMonitor m_monitor = new NoOpProvisionMonitor();
 
     public Requisition getRequisition() {
         return m_requisition;
@@ -56,6 +68,68 @@ public class RequisitionImport {
         }
     }
 
+    /**
+     * Streams the nodes of the requisition from <code>url</code> instead of keeping
+     * them in memory.  Only the requisition header is retained after this call.
+     *
+     * @param url the location of the deployed copy of the requisition
+     */
+    public void setRequisitionURL(final URL url) {
+        m_requisitionUrl = url;
+        if (url != null && m_requisition != null) {
+            final Requisition header = new Requisition(m_requisition.getForeignSource());
+            header.setDateStamp(m_requisition.getDateStamp());
+            header.setLastImport(m_requisition.getLastImport());
+            header.setResource(m_requisition.getResource());
+            m_requisition = header;
+        }
+    }
+
+    public URL getRequisitionURL() {
+        return m_requisitionUrl;
+    }
+
+    /**
+     * Starts a new pass over the nodes of the requisition.  The iterator must be
+     * handed to {@link #closeNodes(Iterator)} when it is no longer needed.
+     *
+     * @return an iterator over the requisition nodes
+     * @throws IOException if the requisition file cannot be read
+     */
+    public Iterator<RequisitionNode> openNodes() throws IOException {
+        if (m_requisitionUrl != null) {
+            return new RequisitionNodeReader(m_requisitionUrl);
+        }
+        final List<RequisitionNode> nodes = m_requisition.getNodes();
+        return nodes == null ? Collections.<RequisitionNode>emptyList().iterator() : nodes.iterator();
+    }
+
+    public static void closeNodes(final Iterator<RequisitionNode> nodes) {
+        if (nodes instanceof Closeable) {
+            try {
+                ((Closeable)nodes).close();
+            } catch (final IOException e) {
+                LOG.debug("Failed to close requisition node iterator", e);
+            }
+        }
+    }
+
+    public RequisitionNodeDigests getNodeDigests() {
+        return m_nodeDigests;
+    }
+
+    public void setNodeDigests(final RequisitionNodeDigests nodeDigests) {
+        m_nodeDigests = nodeDigests;
+    }
+
+    public ProvisionMonitor getMonitor() {
+        return m_monitor;
+    }
+
+    public void setMonitor(final ProvisionMonitor monitor) {
+        m_monitor = monitor == null ? new NoOpProvisionMonitor() : monitor;
+    }
+
     public Throwable getError() {
         return m_throwable;
     }
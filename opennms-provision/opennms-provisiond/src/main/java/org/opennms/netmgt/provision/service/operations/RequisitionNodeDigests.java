@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.provision.service.operations;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.opennms.core.xml.JaxbUtils;
+import org.opennms.netmgt.provision.persist.requisition.RequisitionNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers a digest of every requisition node that was successfully imported
+ * for one foreign source so that the next import can skip nodes whose
+ * requisition entry has not changed.
+ *
+ * <p>Digests are kept in a properties file per foreign source.  Only nodes that
+ * were persisted (or confirmed unchanged) during the current import are written
+ * back, so nodes that failed or were removed from the requisition are always
+ * imported again.</p>
+ */
+public class RequisitionNodeDigests {
+    private static final Logger LOG = LoggerFactory.getLogger(RequisitionNodeDigests.class);
+
+    private final File m_file;
+    private final Map<String, String> m_previous = new ConcurrentHashMap<String, String>();
+    private final Map<String, String> m_pending = new ConcurrentHashMap<String, String>();
+    private final Map<String, String> m_current = new ConcurrentHashMap<String, String>();
+
+    /**
+     * <p>Constructor for RequisitionNodeDigests.</p>
+     *
+     * @param directory the directory holding the digest files
+     * @param foreignSource the foreign source being imported
+     */
+    public RequisitionNodeDigests(final File directory, final String foreignSource) {
+        m_file = new File(directory, foreignSource.replaceAll("[^A-Za-z0-9._-]", "_") + ".properties");
+        load();
+    }
+
+    private void load() {
+        if (!m_file.exists()) {
+            return;
+        }
+        InputStream in = null;
+        try {
+            in = new FileInputStream(m_file);
+            final Properties props = new Properties();
+            props.load(in);
+            for (final String foreignId : props.stringPropertyNames()) {
+                m_previous.put(foreignId, props.getProperty(foreignId));
+            }
+            LOG.debug("Loaded {} requisition node digests from {}", m_previous.size(), m_file);
+        } catch (final IOException e) {
+            LOG.warn("Unable to read requisition node digests from {}, all nodes will be imported", m_file, e);
+            m_previous.clear();
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Computes the digest of a requisition node.
+     *
+     * @param node a {@link org.opennms.netmgt.provision.persist.requisition.RequisitionNode} object.
+     * @return the hex encoded digest
+     */
+    public String digest(final RequisitionNode node) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            final byte[] hash = md.digest(JaxbUtils.marshal(node).getBytes("UTF-8"));
+            final StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (final byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not available", e);
+        }
+    }
+
+    /**
+     * Checks whether a node has the same digest it had after the last successful
+     * import.  Unchanged nodes are carried over to the new digest file.
+     *
+     * @param foreignId the foreign ID of the node
+     * @param digest the digest of the node as it appears in the requisition now
+     * @return true if the node can be skipped
+     */
+    public boolean isUnchanged(final String foreignId, final String digest) {
+        if (digest.equals(m_previous.get(foreignId))) {
+            m_current.put(foreignId, digest);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remembers the digest of a node that is going to be imported.  It is only
+     * saved once {@link #persisted(String)} has been called for the node.
+     *
+     * @param foreignId the foreign ID of the node
+     * @param digest the digest of the node as it appears in the requisition now
+     */
+    public void changed(final String foreignId, final String digest) {
+        m_pending.put(foreignId, digest);
+    }
+
+    /**
+     * Records that the node has been written to the database, so its pending
+     * digest becomes part of the next digest file.
+     *
+     * @param foreignId the foreign ID of the node
+     */
+    public void persisted(final String foreignId) {
+        final String digest = m_pending.remove(foreignId);
+        if (digest != null) {
+            m_current.put(foreignId, digest);
+        }
+    }
+
+    /**
+     * <p>size</p>
+     *
+     * @return the number of digests that will be saved
+     */
+    public int size() {
+        return m_current.size();
+    }
+
+    /**
+     * Replaces the digest file with the digests of the nodes imported this time.
+     */
+    public void save() {
+        final File dir = m_file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            LOG.warn("Unable to create directory {} for requisition node digests", dir);
+            return;
+        }
+        final Properties props = new Properties();
+        props.putAll(m_current);
+
+        final File tmp = new File(dir, m_file.getName() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            props.store(out, "requisition node digests, generated by provisiond");
+            out.close();
+            out = null;
+            if (!tmp.renameTo(m_file)) {
+                // renameTo does not replace existing files on all platforms
+                m_file.delete();
+                if (!tmp.renameTo(m_file)) {
+                    throw new IOException("unable to rename " + tmp + " to " + m_file);
+                }
+            }
+            LOG.debug("Saved {} requisition node digests to {}", m_current.size(), m_file);
+        } catch (final IOException e) {
+            LOG.warn("Unable to save requisition node digests to {}", m_file, e);
+            tmp.delete();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(final Closeable c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (final IOException e) {
+            LOG.debug("failed to close {}", c, e);
+        }
+    }
+}
@@ -188,6 +188,15 @@ public abstract class SaveOrUpdateOperation extends ImportOperation {
         return m_node;
     }
 
+    /**
+     * <p>getForeignId</p>
+     *
+     * @return the foreign ID of the node being saved or updated
+     */
+    public String getForeignId() {
+        return m_node.getForeignId();
+    }
+
     /**
      * <p>foundAsset</p>
      *
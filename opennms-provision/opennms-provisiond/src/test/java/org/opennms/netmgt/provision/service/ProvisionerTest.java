@@ -32,6 +32,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.opennms.core.utils.InetAddressUtils.addr;
 
@@ -1079,6 +1080,30 @@ public class ProvisionerTest extends ProvisioningTestCase implements Initializin
         assertEquals(0, getNodeDao().countAll());
     }
 
+    /**
+     * Same as {@link #testDelete()}, but audits the requisitions three nodes
+     * at a time, so the nodes are imported in several chunks and the deletes
+     * are only scheduled with the last one.
+     */
+    @Test(timeout=300000)
+    public void testDeleteInChunks() throws Exception {
+        System.setProperty("org.opennms.provisiond.importChunkSize", "3");
+        try {
+            importFromResource("classpath:/tec_dump.xml.smalltest", true);
+            assertEquals(10, getNodeDao().countAll());
+
+            // 9 nodes fill the last chunk exactly, the deleted node must still be found
+            importFromResource("classpath:/tec_dump.xml.smalltest.delete", true);
+            assertEquals(9, getNodeDao().countAll());
+            assertNull(getNodeDao().findByForeignId("empty", "1879"));
+
+            importFromResource("classpath:/tec_dump.xml.smalltest.nonodes", true);
+            assertEquals(0, getNodeDao().countAll());
+        } finally {
+            System.getProperties().remove("org.opennms.provisiond.importChunkSize");
+        }
+    }
+
     /**
      * This test makes sure that asset information is getting imported properly.
      * @throws Exception
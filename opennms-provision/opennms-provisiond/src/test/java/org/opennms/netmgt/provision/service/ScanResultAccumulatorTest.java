@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.provision.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opennms.core.test.MockLogAppender;
+import org.opennms.core.test.OpenNMSJUnit4ClassRunner;
+import org.opennms.core.utils.BeanUtils;
+import org.opennms.netmgt.dao.api.DistPollerDao;
+import org.opennms.netmgt.dao.api.IpInterfaceDao;
+import org.opennms.netmgt.dao.api.NodeDao;
+import org.opennms.netmgt.dao.api.SnmpInterfaceDao;
+import org.opennms.netmgt.model.OnmsDistPoller;
+import org.opennms.netmgt.model.OnmsIpInterface;
+import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.model.OnmsSnmpInterface;
+import org.opennms.test.JUnitConfigurationEnvironment;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Tests the batched write of scanned interfaces, from the
+ * {@link ScanResultAccumulator} through the in-memory comparison in
+ * {@link DefaultProvisionService}.
+ */
+@RunWith(OpenNMSJUnit4ClassRunner.class)
+@ContextConfiguration(locations={
+        "classpath:/META-INF/opennms/applicationContext-soa.xml",
+        "classpath:/META-INF/opennms/applicationContext-mockDao.xml",
+        "classpath:/META-INF/opennms/applicationContext-mockEventd.xml",
+        "classpath:/META-INF/opennms/applicationContext-proxy-snmp.xml",
+        "classpath:/META-INF/opennms/mockEventIpcManager.xml",
+        "classpath:/META-INF/opennms/applicationContext-provisiond.xml",
+        "classpath*:/META-INF/opennms/provisiond-extensions.xml",
+        "classpath*:/META-INF/opennms/detectors.xml",
+        "classpath:/mockForeignSourceContext.xml",
+        "classpath:/importerServiceTest.xml"
+})
+@JUnitConfigurationEnvironment(systemProperties="org.opennms.provisiond.enableDiscovery=false")
+public class ScanResultAccumulatorTest implements InitializingBean {
+
+    @Autowired
+    private ProvisionService m_provisionService;
+
+    @Autowired
+    private DistPollerDao m_distPollerDao;
+
+    @Autowired
+    private NodeDao m_nodeDao;
+
+    @Autowired
+    private SnmpInterfaceDao m_snmpInterfaceDao;
+
+    @Autowired
+    private IpInterfaceDao m_ipInterfaceDao;
+
+    private OnmsNode m_node;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        BeanUtils.assertAutowiring(this);
+    }
+
+    @Before
+    public void setUp() {
+        MockLogAppender.setupLogging();
+
+        if (m_distPollerDao.findAll().size() == 0) {
+            m_distPollerDao.save(new OnmsDistPoller("localhost", "127.0.0.1"));
+        }
+        m_node = new OnmsNode(m_distPollerDao.get("localhost"), "scanned-node");
+
+        final OnmsSnmpInterface uplink = new OnmsSnmpInterface(m_node, 1);
+        uplink.setIfAlias("uplink");
+        uplink.setLastCapsdPoll(new Date(1000));
+        final OnmsSnmpInterface renamed = new OnmsSnmpInterface(m_node, 2);
+        renamed.setIfAlias("old name");
+        renamed.setLastCapsdPoll(new Date(1000));
+
+        final OnmsIpInterface unchanged = new OnmsIpInterface("192.168.1.1", m_node);
+        unchanged.setIsManaged("M");
+        unchanged.setIpHostName("unchanged.example.com");
+        unchanged.setIpLastCapsdPoll(new Date(1000));
+        final OnmsIpInterface changed = new OnmsIpInterface("192.168.1.2", m_node);
+        changed.setIsManaged("M");
+        changed.setIpHostName("old.example.com");
+        changed.setIpLastCapsdPoll(new Date(1000));
+
+        m_nodeDao.save(m_node);
+        m_nodeDao.flush();
+    }
+
+    @Test
+    public void testAccumulatesUntilPersisted() {
+        final ScanResultAccumulator accumulator = new ScanResultAccumulator(m_provisionService, m_node.getId());
+        assertTrue(accumulator.persistSnmpInterfaces().isEmpty());
+        assertTrue(accumulator.persistIpInterfaces().isEmpty());
+
+        final Date stamp = new Date(2000);
+        accumulator.addSnmpInterface(scannedSnmpInterface(1, "uplink", stamp));
+        accumulator.addSnmpInterface(scannedSnmpInterface(3, "new", stamp));
+
+        final List<OnmsSnmpInterface> persisted = accumulator.persistSnmpInterfaces();
+        assertEquals(2, persisted.size());
+        assertEquals(3, m_snmpInterfaceDao.findByNodeId(m_node.getId()).size());
+
+        // the rows were handed over once and cleared
+        assertTrue(accumulator.persistSnmpInterfaces().isEmpty());
+    }
+
+    @Test
+    public void testSnmpInterfacesInsertedUpdatedAndStamped() {
+        final OnmsSnmpInterface dbUplink = m_snmpInterfaceDao.findByNodeIdAndIfIndex(m_node.getId(), 1);
+        final OnmsSnmpInterface dbRenamed = m_snmpInterfaceDao.findByNodeIdAndIfIndex(m_node.getId(), 2);
+
+        final Date stamp = new Date(2000);
+        final OnmsSnmpInterface scannedNew = scannedSnmpInterface(3, "new", stamp);
+        final ScanResultAccumulator accumulator = new ScanResultAccumulator(m_provisionService, m_node.getId());
+        accumulator.addSnmpInterface(scannedSnmpInterface(1, "uplink", stamp));
+        accumulator.addSnmpInterface(scannedSnmpInterface(2, "new name", stamp));
+        accumulator.addSnmpInterface(scannedNew);
+
+        final List<OnmsSnmpInterface> persisted = accumulator.persistSnmpInterfaces();
+        assertEquals(3, persisted.size());
+
+        // unchanged: the database row is returned and only gets the new scan stamp
+        assertSame(dbUplink, persisted.get(0));
+        assertEquals("uplink", dbUplink.getIfAlias());
+        assertEquals(stamp, dbUplink.getLastCapsdPoll());
+
+        // changed: merged into the database row
+        assertSame(dbRenamed, persisted.get(1));
+        assertEquals("new name", dbRenamed.getIfAlias());
+        assertEquals(stamp, dbRenamed.getLastCapsdPoll());
+
+        // new: saved against the node
+        assertSame(scannedNew, persisted.get(2));
+        assertNotNull(scannedNew.getId());
+        assertEquals(m_node.getId(), scannedNew.getNode().getId());
+        assertEquals(3, m_snmpInterfaceDao.findByNodeId(m_node.getId()).size());
+    }
+
+    @Test
+    public void testIpInterfacesInsertedUpdatedAndStamped() {
+        final OnmsIpInterface dbUnchanged = m_ipInterfaceDao.findByNodeIdAndIpAddress(m_node.getId(), "192.168.1.1");
+        final OnmsIpInterface dbChanged = m_ipInterfaceDao.findByNodeIdAndIpAddress(m_node.getId(), "192.168.1.2");
+
+        final Date stamp = new Date(2000);
+        final OnmsIpInterface scannedNew = scannedIpInterface("192.168.1.3", "new.example.com", stamp);
+        final ScanResultAccumulator accumulator = new ScanResultAccumulator(m_provisionService, m_node.getId());
+        accumulator.addIpInterface(scannedIpInterface("192.168.1.1", "unchanged.example.com", stamp));
+        accumulator.addIpInterface(scannedIpInterface("192.168.1.2", "new.example.com", stamp));
+        accumulator.addIpInterface(scannedNew);
+
+        final List<OnmsIpInterface> persisted = accumulator.persistIpInterfaces();
+        assertEquals(3, persisted.size());
+
+        assertSame(dbUnchanged, persisted.get(0));
+        assertEquals("unchanged.example.com", dbUnchanged.getIpHostName());
+        assertEquals(stamp, dbUnchanged.getIpLastCapsdPoll());
+
+        assertSame(dbChanged, persisted.get(1));
+        assertEquals("new.example.com", dbChanged.getIpHostName());
+        assertEquals(stamp, dbChanged.getIpLastCapsdPoll());
+
+        assertSame(scannedNew, persisted.get(2));
+        assertNotNull(scannedNew.getId());
+        assertEquals(m_node.getId(), scannedNew.getNode().getId());
+        assertEquals(3, m_ipInterfaceDao.findByNodeId(m_node.getId()).size());
+    }
+
+    @Test
+    public void testMissingScanStampKeepsStoredStamp() {
+        final OnmsSnmpInterface dbUplink = m_snmpInterfaceDao.findByNodeIdAndIfIndex(m_node.getId(), 1);
+
+        // a row without a scan stamp leaves the stored one alone
+        final OnmsSnmpInterface scanned = scannedSnmpInterface(1, "uplink", null);
+        m_provisionService.updateSnmpInterfacesAttributes(m_node.getId(), Collections.singletonList(scanned));
+        assertEquals(new Date(1000), dbUplink.getLastCapsdPoll());
+    }
+
+    private static OnmsSnmpInterface scannedSnmpInterface(final int ifIndex, final String ifAlias, final Date stamp) {
+        final OnmsSnmpInterface snmpInterface = new OnmsSnmpInterface(null, ifIndex);
+        snmpInterface.setIfAlias(ifAlias);
+        snmpInterface.setLastCapsdPoll(stamp);
+        return snmpInterface;
+    }
+
+    private static OnmsIpInterface scannedIpInterface(final String ipAddress, final String hostName, final Date stamp) {
+        final OnmsIpInterface ipInterface = new OnmsIpInterface(ipAddress, null);
+        ipInterface.setIsManaged("M");
+        ipInterface.setIpHostName(hostName);
+        ipInterface.setIpLastCapsdPoll(stamp);
+        return ipInterface;
+    }
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.provision.service.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opennms.core.test.MockLogAppender;
+import org.opennms.netmgt.provision.persist.requisition.RequisitionNode;
+
+/**
+ * Tests the chunked audit of requisition nodes used by the streaming import.
+ */
+public class ImportOperationsManagerTest {
+    private static final String FOREIGN_SOURCE = "imported";
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        MockLogAppender.setupLogging();
+    }
+
+    @Test
+    public void testAuditNodesInChunks() {
+        final Map<String, Integer> existing = new HashMap<String, Integer>();
+        existing.put("a", 1);
+        existing.put("b", 2);
+        existing.put("gone", 3);
+
+        final ImportOperationsManager opsMgr = createOperationsManager(existing);
+        final Iterator<RequisitionNode> nodes = nodes("a", "b", "c", "d", "e").iterator();
+
+        List<ImportOperation> chunk = opsMgr.auditNodes(nodes, 2);
+        assertEquals(2, chunk.size());
+        assertOperations(chunk, UpdateOperation.class, UpdateOperation.class);
+        assertTrue(nodes.hasNext());
+
+        chunk = opsMgr.auditNodes(nodes, 2);
+        assertOperations(chunk, InsertOperation.class, InsertOperation.class);
+
+        chunk = opsMgr.auditNodes(nodes, 2);
+        assertOperations(chunk, InsertOperation.class);
+        assertTrue(!nodes.hasNext());
+
+        // the unmatched node is only known once all chunks have been audited
+        final List<ImportOperation> deletes = opsMgr.getDeleteOperations();
+        assertOperations(deletes, DeleteOperation.class);
+        assertEquals("DELETE: Node 3", deletes.get(0).toString());
+
+        assertEquals(5, opsMgr.getAuditedNodeCount());
+        assertEquals(2, opsMgr.getUpdateCount());
+        assertEquals(3, opsMgr.getInsertCount());
+        assertEquals(1, opsMgr.getDeleteCount());
+        assertEquals(0, opsMgr.getUnchangedCount());
+
+        assertEquals(0, opsMgr.auditNodes(nodes, 2).size());
+    }
+
+    @Test
+    public void testSkipsUnchangedNodesByDigest() {
+        final File dir = m_folder.getRoot();
+        final Map<String, Integer> existing = new HashMap<String, Integer>();
+        existing.put("a", 1);
+        existing.put("b", 2);
+
+        // first import: no digests yet, so every node is imported
+        RequisitionNodeDigests digests = new RequisitionNodeDigests(dir, FOREIGN_SOURCE);
+        ImportOperationsManager opsMgr = createOperationsManager(existing);
+        opsMgr.setNodeDigests(digests);
+        assertOperations(opsMgr.auditNodes(nodes("a", "b", "c").iterator(), 10), UpdateOperation.class, UpdateOperation.class, InsertOperation.class);
+        digests.persisted("a");
+        digests.persisted("b");
+        // "c" failed to persist, so its digest must not be saved
+        assertEquals(2, digests.size());
+        digests.save();
+
+        // second import: "a" is unchanged, "b" was relabelled and "c" is retried
+        existing.put("c", 3);
+        digests = new RequisitionNodeDigests(dir, FOREIGN_SOURCE);
+        opsMgr = createOperationsManager(existing);
+        opsMgr.setNodeDigests(digests);
+
+        final List<RequisitionNode> nodes = nodes("a", "b", "c");
+        nodes.get(1).setNodeLabel("relabelled");
+        final List<ImportOperation> chunk = opsMgr.auditNodes(nodes.iterator(), 10);
+        assertOperations(chunk, UpdateOperation.class, UpdateOperation.class);
+        assertEquals("b", ((SaveOrUpdateOperation)chunk.get(0)).getForeignId());
+        assertEquals("c", ((SaveOrUpdateOperation)chunk.get(1)).getForeignId());
+
+        assertEquals(1, opsMgr.getUnchangedCount());
+        assertEquals(3, opsMgr.getAuditedNodeCount());
+        // the skipped node still counts as found, so it is not deleted
+        assertEquals(0, opsMgr.getDeleteOperations().size());
+
+        // the unchanged node is carried over into the next digest file
+        assertEquals(1, digests.size());
+    }
+
+    @Test
+    public void testInsertsNodeWithDigestButNoDatabaseEntry() {
+        final File dir = m_folder.getRoot();
+        final Map<String, Integer> existing = new HashMap<String, Integer>();
+        existing.put("a", 1);
+
+        final RequisitionNodeDigests digests = new RequisitionNodeDigests(dir, FOREIGN_SOURCE);
+        ImportOperationsManager opsMgr = createOperationsManager(existing);
+        opsMgr.setNodeDigests(digests);
+        opsMgr.auditNodes(nodes("a").iterator(), 10);
+        digests.persisted("a");
+        digests.save();
+
+        // the node has been deleted from the database since the last import
+        opsMgr = createOperationsManager(new HashMap<String, Integer>());
+        opsMgr.setNodeDigests(new RequisitionNodeDigests(dir, FOREIGN_SOURCE));
+        assertOperations(opsMgr.auditNodes(nodes("a").iterator(), 10), InsertOperation.class);
+        assertEquals(0, opsMgr.getUnchangedCount());
+    }
+
+    private static ImportOperationsManager createOperationsManager(final Map<String, Integer> existing) {
+        final ImportOperationsManager opsMgr = new ImportOperationsManager(existing, null, true);
+        opsMgr.setForeignSource(FOREIGN_SOURCE);
+        return opsMgr;
+    }
+
+    private static List<RequisitionNode> nodes(final String... foreignIds) {
+        final List<RequisitionNode> nodes = new ArrayList<RequisitionNode>(foreignIds.length);
+        for (final String foreignId : foreignIds) {
+            final RequisitionNode node = new RequisitionNode();
+            node.setForeignId(foreignId);
+            node.setNodeLabel("node-" + foreignId);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static void assertOperations(final List<ImportOperation> operations, final Class<?>... types) {
+        assertEquals(operations.toString(), types.length, operations.size());
+        for (int i = 0; i < types.length; i++) {
+            assertEquals(operations.get(i).toString(), types[i], operations.get(i).getClass());
+        }
+    }
+}
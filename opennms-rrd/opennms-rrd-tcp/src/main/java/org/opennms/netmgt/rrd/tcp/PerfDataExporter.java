@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.rrd.tcp;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.opennms.core.utils.InetAddressUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Streams {@link PerformanceDataProtos.PerformanceDataReadings} batches to a
+ * receiver over a single long-lived TCP connection.
+ * <p>
+ * Each batch is framed with a varint length prefix, the same framing that
+ * <code>parseDelimitedFrom()</code> expects on the receiving side. Up to
+ * <code>maxInFlightBatches</code> batches are held in memory while the
+ * receiver is slow or unreachable; further batches are appended to a
+ * memory-mapped {@link SpillRing} and replayed in order once the receiver
+ * catches up. Lost connections are re-established with an exponential
+ * backoff.
+ * </p>
+ */
+public class PerfDataExporter implements PerfDataExporterMBean {
+    private static final Logger LOG = LoggerFactory.getLogger(PerfDataExporter.class);
+
+    private static final String OBJECT_NAME = "OpenNMS:Name=PerfDataExporter";
+
+    private String m_host;
+    private int m_port;
+    private int m_maxInFlightBatches = 100;
+    private String m_spillFile;
+    private int m_spillFileSize = 64 * 1024 * 1024;
+    private int m_connectTimeout = 5000;
+    private long m_initialBackoff = 1000;
+    private long m_maxBackoff = 60000;
+
+    private final Object m_lock = new Object();
+    private final LinkedList<byte[]> m_inFlight = new LinkedList<byte[]>();
+    private SpillRing m_spill;
+    private Thread m_writer;
+    private volatile boolean m_running = false;
+    private volatile Socket m_socket;
+    private OutputStream m_out;
+
+    private final AtomicLong m_batchesSent = new AtomicLong();
+    private final AtomicLong m_readingsSent = new AtomicLong();
+    private final AtomicLong m_bytesSent = new AtomicLong();
+    private final AtomicLong m_batchesSpilled = new AtomicLong();
+    private final AtomicLong m_batchesReplayed = new AtomicLong();
+    private final AtomicLong m_batchesDropped = new AtomicLong();
+    private final AtomicLong m_connects = new AtomicLong();
+    private final AtomicLong m_connectionFailures = new AtomicLong();
+
+    /**
+     * <p>send</p>
+     *
+     * @param readings a {@link org.opennms.netmgt.rrd.tcp.PerformanceDataProtos.PerformanceDataReadings} object.
+     */
+    public void send(final PerformanceDataProtos.PerformanceDataReadings readings) {
+        start();
+        // Stored records carry the reading count ahead of the serialized batch
+        final byte[] payload = readings.toByteArray();
+        final byte[] batch = ByteBuffer.allocate(4 + payload.length).putInt(readings.getMessageCount()).put(payload).array();
+        synchronized (m_lock) {
+            if ((m_spill == null || m_spill.isEmpty()) && m_inFlight.size() < m_maxInFlightBatches) {
+                m_inFlight.addLast(batch);
+            } else if (m_spill != null && m_spill.offer(batch)) {
+                m_batchesSpilled.incrementAndGet();
+            } else {
+                if (m_batchesDropped.incrementAndGet() % 100 == 1) {
+                    LOG.warn("Receiver {}:{} is not keeping up, dropped {} performance data batch(es) so far", m_host, m_port, m_batchesDropped.get());
+                }
+            }
+            m_lock.notifyAll();
+        }
+    }
+
+    /**
+     * Open the spill file, register with JMX and start the writer thread.
+     * Called implicitly by the first {@link #send}.
+     */
+    public void start() {
+        synchronized (m_lock) {
+            if (m_running) {
+                return;
+            }
+            if (m_spillFile != null && m_spillFile.trim().length() > 0) {
+                try {
+                    m_spill = new SpillRing(new File(m_spillFile.trim()), m_spillFileSize);
+                } catch (final IOException e) {
+                    LOG.warn("Unable to open performance data spill file {}, batches will be dropped while the receiver is unavailable: {}", m_spillFile, e.getMessage());
+                }
+            }
+            m_running = true;
+            m_writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeLoop();
+                }
+            }, getClass().getSimpleName());
+            m_writer.setDaemon(true);
+            m_writer.start();
+        }
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (final JMException e) {
+            LOG.warn("Unable to register {} with JMX: {}", OBJECT_NAME, e.getMessage());
+        }
+    }
+
+    /**
+     * Stop the writer thread and flush the spill file. Batches that are
+     * still held in memory are moved to the spill file so that they are
+     * replayed on the next start.
+     */
+    public void stop() {
+        final Thread writer;
+        synchronized (m_lock) {
+            if (!m_running) {
+                return;
+            }
+            m_running = false;
+            writer = m_writer;
+            m_lock.notifyAll();
+        }
+        closeSocket();
+        writer.interrupt();
+        try {
+            writer.join(m_connectTimeout);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (m_lock) {
+            if (m_spill != null) {
+                // In-memory batches are older than anything already spilled, so rewrite the ring in order
+                if (!m_inFlight.isEmpty()) {
+                    while (!m_spill.isEmpty()) {
+                        m_inFlight.addLast(m_spill.peek());
+                        m_spill.remove();
+                    }
+                    for (final byte[] batch : m_inFlight) {
+                        m_spill.offer(batch);
+                    }
+                    m_inFlight.clear();
+                }
+                m_spill.close();
+                m_spill = null;
+            }
+        }
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (final JMException e) {
+            LOG.debug("Unable to unregister {} from JMX: {}", OBJECT_NAME, e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        long backoff = m_initialBackoff;
+        while (m_running) {
+            final byte[] batch;
+            final boolean fromSpill;
+            final long sequence;
+            try {
+                synchronized (m_lock) {
+                    while (m_running && m_inFlight.isEmpty() && (m_spill == null || m_spill.isEmpty())) {
+                        m_lock.wait();
+                    }
+                    if (!m_running) {
+                        return;
+                    }
+                    fromSpill = m_inFlight.isEmpty();
+                    // The lock is released while sending, so remember which record this is
+                    sequence = fromSpill ? m_spill.getHeadSequence() : -1;
+                    batch = fromSpill ? m_spill.peek() : m_inFlight.getFirst();
+                }
+
+                if (m_socket == null) {
+                    try {
+                        connect();
+                        backoff = m_initialBackoff;
+                    } catch (final IOException e) {
+                        m_connectionFailures.incrementAndGet();
+                        LOG.warn("Unable to connect to performance data receiver {}:{}, retrying in {}ms: {}", m_host, m_port, backoff, e.getMessage());
+                        Thread.sleep(backoff);
+                        backoff = Math.min(backoff * 2, m_maxBackoff);
+                        continue;
+                    }
+                }
+
+                try {
+                    final CodedOutputStream coded = CodedOutputStream.newInstance(m_out);
+                    coded.writeRawVarint32(batch.length - 4);
+                    coded.writeRawBytes(batch, 4, batch.length - 4);
+                    coded.flush();
+                    m_out.flush();
+                } catch (final IOException e) {
+                    m_connectionFailures.incrementAndGet();
+                    LOG.warn("Error writing to performance data receiver {}:{}, reconnecting: {}", m_host, m_port, e.getMessage());
+                    closeSocket();
+                    continue;
+                }
+
+                synchronized (m_lock) {
+                    // A full spill ring may have evicted the record and stop() may have
+                    // moved the in-memory batches, so only remove the batch that was sent
+                    if (fromSpill) {
+                        if (m_spill != null) {
+                            m_spill.remove(sequence);
+                        }
+                        m_batchesReplayed.incrementAndGet();
+                    } else if (!m_inFlight.isEmpty() && m_inFlight.getFirst() == batch) {
+                        m_inFlight.removeFirst();
+                    }
+                }
+                m_batchesSent.incrementAndGet();
+                m_bytesSent.addAndGet(batch.length - 4);
+                m_readingsSent.addAndGet(ByteBuffer.wrap(batch).getInt());
+            } catch (final InterruptedException e) {
+                if (m_running) {
+                    LOG.warn("{} interrupted while running, exiting", Thread.currentThread().getName());
+                }
+                break;
+            } catch (final Throwable e) {
+                LOG.error("Unexpected exception in {}", Thread.currentThread().getName(), e);
+            }
+        }
+        closeSocket();
+    }
+
+    private void connect() throws IOException {
+        final Socket socket = new Socket();
+        try {
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(InetAddressUtils.addr(m_host), m_port), m_connectTimeout);
+        } catch (final IOException e) {
+            socket.close();
+            throw e;
+        }
+        m_out = new BufferedOutputStream(socket.getOutputStream());
+        m_socket = socket;
+        m_connects.incrementAndGet();
+        LOG.info("Connected to performance data receiver {}:{}", m_host, m_port);
+    }
+
+    private void closeSocket() {
+        final Socket socket = m_socket;
+        m_socket = null;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                LOG.debug("IOException when closing TCP performance data socket: {}", e.getMessage());
+            }
+        }
+    }
+
+    public String getHost() {
+        return m_host;
+    }
+
+    public void setHost(final String host) {
+        m_host = host;
+    }
+
+    public int getPort() {
+        return m_port;
+    }
+
+    public void setPort(final int port) {
+        m_port = port;
+    }
+
+    public int getMaxInFlightBatches() {
+        return m_maxInFlightBatches;
+    }
+
+    public void setMaxInFlightBatches(final int maxInFlightBatches) {
+        m_maxInFlightBatches = maxInFlightBatches;
+    }
+
+    public String getSpillFile() {
+        return m_spillFile;
+    }
+
+    /**
+     * <p>setSpillFile</p>
+     *
+     * @param spillFile path of the spill file; blank to disable spilling
+     */
+    public void setSpillFile(final String spillFile) {
+        m_spillFile = spillFile;
+    }
+
+    public int getSpillFileSize() {
+        return m_spillFileSize;
+    }
+
+    public void setSpillFileSize(final int spillFileSize) {
+        m_spillFileSize = spillFileSize;
+    }
+
+    public void setConnectTimeout(final int connectTimeout) {
+        m_connectTimeout = connectTimeout;
+    }
+
+    public void setInitialBackoff(final long initialBackoff) {
+        m_initialBackoff = initialBackoff;
+    }
+
+    public void setMaxBackoff(final long maxBackoff) {
+        m_maxBackoff = maxBackoff;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isConnected() {
+        return m_socket != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getBatchesSent() {
+        return m_batchesSent.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getReadingsSent() {
+        return m_readingsSent.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getBytesSent() {
+        return m_bytesSent.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getBatchesSpilled() {
+        return m_batchesSpilled.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getBatchesReplayed() {
+        return m_batchesReplayed.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getBatchesDropped() {
+        synchronized (m_lock) {
+            return m_batchesDropped.get() + (m_spill == null ? 0 : m_spill.getEvicted());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getConnects() {
+        return m_connects.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getConnectionFailures() {
+        return m_connectionFailures.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInFlightBatches() {
+        synchronized (m_lock) {
+            return m_inFlight.size();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getSpilledBatches() {
+        synchronized (m_lock) {
+            return m_spill == null ? 0 : m_spill.size();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSpilledBytes() {
+        synchronized (m_lock) {
+            return m_spill == null ? 0 : m_spill.getUsedBytes();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.rrd.tcp;
+
+/**
+ * JMX view of the streaming performance data exporter.
+ */
+public interface PerfDataExporterMBean {
+    /**
+     * @return whether a connection to the receiver is currently open
+     */
+    boolean isConnected();
+
+    /**
+     * @return number of batches written to the receiver
+     */
+    long getBatchesSent();
+
+    /**
+     * @return number of individual readings written to the receiver
+     */
+    long getReadingsSent();
+
+    /**
+     * @return number of serialized bytes written to the receiver
+     */
+    long getBytesSent();
+
+    /**
+     * @return number of batches written to the spill file
+     */
+    long getBatchesSpilled();
+
+    /**
+     * @return number of spilled batches that were later sent to the receiver
+     */
+    long getBatchesReplayed();
+
+    /**
+     * @return number of batches that were discarded, either because no spill
+     * file is configured or because the spill file overflowed
+     */
+    long getBatchesDropped();
+
+    /**
+     * @return number of times a connection to the receiver was (re)established
+     */
+    long getConnects();
+
+    /**
+     * @return number of failed connection attempts and write errors
+     */
+    long getConnectionFailures();
+
+    /**
+     * @return number of batches held in memory waiting to be sent
+     */
+    int getInFlightBatches();
+
+    /**
+     * @return number of batches waiting in the spill file
+     */
+    int getSpilledBatches();
+
+    /**
+     * @return number of bytes used in the spill file
+     */
+    long getSpilledBytes();
+}
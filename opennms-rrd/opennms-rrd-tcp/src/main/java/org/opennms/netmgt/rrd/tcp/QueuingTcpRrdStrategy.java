@@ -64,6 +64,9 @@ public class QueuingTcpRrdStrategy implements RrdStrategy<TcpRrdStrategy.RrdDefi
     private final BlockingQueue<PerformanceDataReading> m_queue = new LinkedBlockingQueue<PerformanceDataReading>(50000);
     private final TcpRrdStrategy m_delegate;
     private int m_skippedReadings = 0;
+    private volatile boolean m_streaming = false;
+    private volatile PerfDataExporter m_exporter;
+    private volatile long m_linger = 1000;
 
     private static class PerformanceDataReading {
         private String m_filename;
@@ -85,7 +88,7 @@ public class QueuingTcpRrdStrategy implements RrdStrategy<TcpRrdStrategy.RrdDefi
         }
     }
 
-    private static class ConsumerThread extends Thread {
+    private class ConsumerThread extends Thread {
         private final BlockingQueue<PerformanceDataReading> m_myQueue;
         private final TcpRrdStrategy m_strategy;
         public ConsumerThread(final TcpRrdStrategy strategy, final BlockingQueue<PerformanceDataReading> queue) {
@@ -99,14 +102,22 @@ public class QueuingTcpRrdStrategy implements RrdStrategy<TcpRrdStrategy.RrdDefi
             try {
                 while (true) {
                     Collection<PerformanceDataReading> sendMe = new ArrayList<PerformanceDataReading>();
-                    if (m_myQueue.drainTo(sendMe) > 0) {
-                        RrdOutputSocket socket = new RrdOutputSocket(m_strategy.getHost(), m_strategy.getPort());
-                        for (PerformanceDataReading reading : sendMe) {
-                            socket.addData(reading.getFilename(), reading.getOwner(), reading.getData());
-                        }
-                        socket.writeData();
+                    // Block until there is work instead of polling, then take whatever else is waiting
+                    sendMe.add(m_myQueue.take());
+                    if (!m_streaming) {
+                        // Every batch opens its own connection, so let more readings arrive first
+                        Thread.sleep(m_linger);
+                    }
+                    m_myQueue.drainTo(sendMe);
+                    RrdOutputSocket socket = new RrdOutputSocket(m_strategy.getHost(), m_strategy.getPort());
+                    for (PerformanceDataReading reading : sendMe) {
+                        socket.addData(reading.getFilename(), reading.getOwner(), reading.getData());
+                    }
+                    final PerfDataExporter exporter = m_exporter;
+                    if (m_streaming && exporter != null) {
+                        socket.writeData(exporter);
                     } else {
-                        Thread.sleep(1000);
+                        socket.writeData();
                     }
                 }
             } catch (InterruptedException e) {
@@ -128,6 +139,37 @@ public class QueuingTcpRrdStrategy implements RrdStrategy<TcpRrdStrategy.RrdDefi
         consumerThread.start();
     }
 
+    /**
+     * <p>setStreaming</p>
+     *
+     * @param streaming if true, batches are sent through the
+     * {@link PerfDataExporter} over a persistent, length-delimited connection
+     * instead of one connection per batch.
+     */
+    public void setStreaming(boolean streaming) {
+        m_streaming = streaming;
+    }
+
+    /**
+     * <p>setLinger</p>
+     *
+     * @param linger how long, in milliseconds, to collect readings into a
+     * batch before sending it when not streaming, since each batch is sent on
+     * a new connection
+     */
+    public void setLinger(long linger) {
+        m_linger = linger;
+    }
+
+    /**
+     * <p>setExporter</p>
+     *
+     * @param exporter a {@link org.opennms.netmgt.rrd.tcp.PerfDataExporter} object.
+     */
+    public void setExporter(PerfDataExporter exporter) {
+        m_exporter = exporter;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setConfigurationProperties(Properties configurationParameters) {
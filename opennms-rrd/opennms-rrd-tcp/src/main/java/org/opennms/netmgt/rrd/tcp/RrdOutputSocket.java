@@ -86,6 +86,25 @@ public class RrdOutputSocket {
         m_messageCount++;
     }
 
+    /**
+     * <p>getMessageCount</p>
+     *
+     * @return the number of readings added so far
+     */
+    public int getMessageCount() {
+        return m_messageCount;
+    }
+
+    /**
+     * <p>writeData</p>
+     *
+     * @param exporter a {@link org.opennms.netmgt.rrd.tcp.PerfDataExporter} that
+     * streams the readings over its long-lived connection
+     */
+    public void writeData(PerfDataExporter exporter) {
+        exporter.send(m_messages.build());
+    }
+
     /**
      * <p>writeData</p>
      */
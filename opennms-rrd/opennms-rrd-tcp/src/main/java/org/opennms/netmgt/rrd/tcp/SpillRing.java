@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.rrd.tcp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fixed-size FIFO of opaque records backed by a memory-mapped file.
+ * <p>
+ * Records are stored as a 4-byte length followed by the payload and wrap
+ * around the end of the data region. The head offset, byte count and record
+ * count live in a small header so that records that were not replayed before
+ * a restart are picked up again when the file is reopened. When a new record
+ * does not fit, the oldest records are evicted to make room for it.
+ * </p>
+ * <p>
+ * This class is not thread-safe; callers are expected to synchronize access.
+ * </p>
+ */
+class SpillRing {
+    private static final Logger LOG = LoggerFactory.getLogger(SpillRing.class);
+
+    private static final int MAGIC = 0x4f4e5052; // "ONPR"
+    private static final int HEADER_SIZE = 32;
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_HEAD = 8;
+    private static final int OFFSET_USED = 16;
+    private static final int OFFSET_COUNT = 24;
+
+    private final File m_file;
+    private final RandomAccessFile m_raf;
+    private final FileChannel m_channel;
+    private final MappedByteBuffer m_buffer;
+    private final long m_dataSize;
+
+    private long m_head;
+    private long m_used;
+    private int m_count;
+    private long m_evicted = 0;
+    private long m_headSequence = 0;
+
+    /**
+     * <p>Constructor for SpillRing.</p>
+     *
+     * @param file the backing file; created if it does not exist
+     * @param size the total size of the file in bytes, including the header
+     * @throws java.io.IOException if the file cannot be opened or mapped
+     */
+    public SpillRing(final File file, final int size) throws IOException {
+        if (size <= HEADER_SIZE + 4) {
+            throw new IllegalArgumentException("Spill file size must be larger than " + (HEADER_SIZE + 4) + " bytes");
+        }
+        m_file = file;
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        m_raf = new RandomAccessFile(file, "rw");
+        final boolean existing = m_raf.length() == size;
+        m_raf.setLength(size);
+        m_channel = m_raf.getChannel();
+        m_buffer = m_channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        m_dataSize = size - HEADER_SIZE;
+
+        if (existing && m_buffer.getInt(OFFSET_MAGIC) == MAGIC && restoreHeader()) {
+            if (m_count > 0) {
+                LOG.info("Found {} spilled performance data batch(es) ({} bytes) in {}", m_count, m_used, file);
+            }
+        } else {
+            m_head = 0;
+            m_used = 0;
+            m_count = 0;
+            m_buffer.putInt(OFFSET_MAGIC, MAGIC);
+            writeHeader();
+        }
+    }
+
+    private boolean restoreHeader() {
+        final long head = m_buffer.getLong(OFFSET_HEAD);
+        final long used = m_buffer.getLong(OFFSET_USED);
+        final int count = m_buffer.getInt(OFFSET_COUNT);
+        if (head < 0 || head >= m_dataSize || used < 0 || used > m_dataSize || count < 0 || (count == 0) != (used == 0)) {
+            LOG.warn("Spill file {} has an inconsistent header, discarding its contents", m_file);
+            return false;
+        }
+        m_head = head;
+        m_used = used;
+        m_count = count;
+        return true;
+    }
+
+    private void writeHeader() {
+        m_buffer.putLong(OFFSET_HEAD, m_head);
+        m_buffer.putLong(OFFSET_USED, m_used);
+        m_buffer.putInt(OFFSET_COUNT, m_count);
+    }
+
+    /**
+     * Append a record, evicting the oldest records if necessary.
+     *
+     * @param record the record payload
+     * @return false if the record can never fit in this ring
+     */
+    public boolean offer(final byte[] record) {
+        final long needed = 4L + record.length;
+        if (needed > m_dataSize) {
+            return false;
+        }
+        while (m_dataSize - m_used < needed) {
+            skipHead();
+            m_evicted++;
+        }
+        final long tail = (m_head + m_used) % m_dataSize;
+        write(tail, ByteBuffer.allocate(4).putInt(record.length).array());
+        write((tail + 4) % m_dataSize, record);
+        m_used += needed;
+        m_count++;
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * Return the oldest record without removing it.
+     *
+     * @return the oldest record, or null if the ring is empty
+     */
+    public byte[] peek() {
+        if (m_count == 0) {
+            return null;
+        }
+        final byte[] record = new byte[readLength()];
+        read((m_head + 4) % m_dataSize, record);
+        return record;
+    }
+
+    /**
+     * Remove the oldest record, if any.
+     */
+    public void remove() {
+        if (m_count > 0) {
+            skipHead();
+            writeHeader();
+        }
+    }
+
+    /**
+     * Return the sequence number of the oldest record. Every record that
+     * leaves the ring, removed or evicted, advances it by one, so a record
+     * keeps the same number for as long as it is in the ring.
+     *
+     * @return the sequence number of the oldest record
+     */
+    public long getHeadSequence() {
+        return m_headSequence;
+    }
+
+    /**
+     * Remove the oldest record if it is still the record with the given
+     * sequence number.
+     *
+     * @param sequence the sequence number returned by {@link #getHeadSequence()}
+     *        when the record was peeked
+     * @return false if that record is no longer in the ring, e.g. because
+     *         {@link #offer} evicted it
+     */
+    public boolean remove(final long sequence) {
+        if (m_count == 0 || sequence != m_headSequence) {
+            return false;
+        }
+        skipHead();
+        writeHeader();
+        return true;
+    }
+
+    private void skipHead() {
+        final long needed = 4L + readLength();
+        m_headSequence++;
+        m_head = (m_head + needed) % m_dataSize;
+        m_used -= needed;
+        m_count--;
+        if (m_count == 0) {
+            m_head = 0;
+            m_used = 0;
+        }
+    }
+
+    private int readLength() {
+        final byte[] length = new byte[4];
+        read(m_head, length);
+        return ByteBuffer.wrap(length).getInt();
+    }
+
+    private void write(final long position, final byte[] src) {
+        final int first = (int)Math.min(src.length, m_dataSize - position);
+        final ByteBuffer buffer = m_buffer.duplicate();
+        buffer.position(HEADER_SIZE + (int)position);
+        buffer.put(src, 0, first);
+        if (first < src.length) {
+            buffer.position(HEADER_SIZE);
+            buffer.put(src, first, src.length - first);
+        }
+    }
+
+    private void read(final long position, final byte[] dst) {
+        final int first = (int)Math.min(dst.length, m_dataSize - position);
+        final ByteBuffer buffer = m_buffer.duplicate();
+        buffer.position(HEADER_SIZE + (int)position);
+        buffer.get(dst, 0, first);
+        if (first < dst.length) {
+            buffer.position(HEADER_SIZE);
+            buffer.get(dst, first, dst.length - first);
+        }
+    }
+
+    public boolean isEmpty() {
+        return m_count == 0;
+    }
+
+    public int size() {
+        return m_count;
+    }
+
+    public long getUsedBytes() {
+        return m_used;
+    }
+
+    public long getEvicted() {
+        return m_evicted;
+    }
+
+    /**
+     * Flush the mapped region to disk and release the file.
+     */
+    public void close() {
+        try {
+            m_buffer.force();
+            m_channel.close();
+            m_raf.close();
+        } catch (final IOException e) {
+            LOG.warn("Failed to close spill file {}: {}", m_file, e.getMessage());
+        }
+    }
+}
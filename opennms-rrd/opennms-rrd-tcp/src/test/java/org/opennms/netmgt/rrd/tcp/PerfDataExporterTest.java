@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.rrd.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the streaming {@link PerfDataExporter} and its {@link SpillRing}.
+ */
+public class PerfDataExporterTest {
+    private File m_spillFile;
+    private PerfDataExporter m_exporter;
+
+    @Before
+    public void setUp() throws Exception {
+        m_spillFile = File.createTempFile("perfdata", ".spill");
+        m_spillFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        if (m_exporter != null) {
+            m_exporter.stop();
+        }
+        m_spillFile.delete();
+    }
+
+    @Test
+    public void testSpillRingReplaysAfterReopen() throws Exception {
+        SpillRing ring = new SpillRing(m_spillFile, 1024);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ring.offer(record(i, 50)));
+        }
+        assertEquals(10, ring.size());
+        assertEquals(0, ring.peek()[0]);
+        ring.remove();
+        ring.close();
+
+        ring = new SpillRing(m_spillFile, 1024);
+        assertEquals(9, ring.size());
+        for (int i = 1; i < 10; i++) {
+            assertEquals(i, ring.peek()[0]);
+            ring.remove();
+        }
+        assertTrue(ring.isEmpty());
+        assertNull(ring.peek());
+        ring.close();
+    }
+
+    @Test
+    public void testSpillRingWrapsAndEvictsOldest() throws Exception {
+        final SpillRing ring = new SpillRing(m_spillFile, 32 + 500);
+        // 100 records of 104 bytes each; only the newest four fit
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ring.offer(record(i, 100)));
+        }
+        assertEquals(4, ring.size());
+        assertEquals(96, ring.getEvicted());
+        for (int i = 96; i < 100; i++) {
+            final byte[] record = ring.peek();
+            assertEquals(100, record.length);
+            assertEquals(i, record[0]);
+            assertEquals(i, record[99]);
+            ring.remove();
+        }
+        assertFalse(ring.offer(new byte[500]));
+        ring.close();
+    }
+
+    @Test
+    public void testSpillRingRemoveSkipsEvictedRecord() throws Exception {
+        final SpillRing ring = new SpillRing(m_spillFile, 32 + 500);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(record(i, 100)));
+        }
+        // The writer peeks the head, then the ring fills up while it is being sent
+        final long sequence = ring.getHeadSequence();
+        assertEquals(0, ring.peek()[0]);
+        assertTrue(ring.offer(record(4, 100)));
+        assertEquals(1, ring.getEvicted());
+
+        assertFalse(ring.remove(sequence));
+        assertEquals(4, ring.size());
+        assertEquals(1, ring.peek()[0]);
+
+        assertTrue(ring.remove(ring.getHeadSequence()));
+        assertEquals(3, ring.size());
+        assertEquals(2, ring.peek()[0]);
+        ring.close();
+    }
+
+    @Test(timeout=30000)
+    public void testSpillAndReplayInOrder() throws Exception {
+        final ServerSocket probe = new ServerSocket(0);
+        final int port = probe.getLocalPort();
+        probe.close();
+
+        m_exporter = new PerfDataExporter();
+        m_exporter.setHost("127.0.0.1");
+        m_exporter.setPort(port);
+        m_exporter.setMaxInFlightBatches(2);
+        m_exporter.setSpillFile(m_spillFile.getAbsolutePath());
+        m_exporter.setSpillFileSize(1024 * 1024);
+        m_exporter.setInitialBackoff(50);
+        m_exporter.setMaxBackoff(200);
+
+        // Nobody is listening yet, so everything past the in-flight limit is spilled
+        for (int i = 0; i < 20; i++) {
+            m_exporter.send(batch(i));
+        }
+        assertEquals(2, m_exporter.getInFlightBatches());
+        assertEquals(18, m_exporter.getSpilledBatches());
+        assertEquals(18, m_exporter.getBatchesSpilled());
+
+        final ServerSocket server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress("127.0.0.1", port));
+        try {
+            final Socket socket = server.accept();
+            final InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int i = 0; i < 20; i++) {
+                final PerformanceDataProtos.PerformanceDataReadings readings = PerformanceDataProtos.PerformanceDataReadings.parseDelimitedFrom(in);
+                assertEquals(1, readings.getMessageCount());
+                assertEquals("batch-" + i, readings.getMessage(0).getPath());
+            }
+            socket.close();
+        } finally {
+            server.close();
+        }
+
+        while (m_exporter.getBatchesSent() < 20) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, m_exporter.getSpilledBatches());
+        assertEquals(18, m_exporter.getBatchesReplayed());
+        assertEquals(20, m_exporter.getReadingsSent());
+        assertEquals(0, m_exporter.getBatchesDropped());
+    }
+
+    private static byte[] record(final int index, final int length) {
+        final byte[] record = new byte[length];
+        for (int i = 0; i < length; i++) {
+            record[i] = (byte)index;
+        }
+        return record;
+    }
+
+    private static PerformanceDataProtos.PerformanceDataReadings batch(final int index) {
+        return PerformanceDataProtos.PerformanceDataReadings.newBuilder()
+                .addMessage(PerformanceDataProtos.PerformanceDataReading.newBuilder()
+                        .setPath("batch-" + index)
+                        .setOwner("test")
+                        .setTimestamp(System.currentTimeMillis())
+                        .addValue(index))
+                .build();
+    }
+}
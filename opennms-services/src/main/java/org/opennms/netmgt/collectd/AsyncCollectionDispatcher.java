@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.collectd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Shared state for asynchronous collection. With
+ * <code>org.opennms.collectd.async=true</code>, {@link CollectableService}s
+ * whose collector is an {@link AsyncServiceCollector} only start their
+ * collection on a scheduler thread. Persisting and thresholding the result
+ * happens on a small completion pool, and instead of the scheduler's thread
+ * count the number of collections in flight is capped by
+ * <code>org.opennms.collectd.async.maxInFlight</code>.
+ * </p>
+ *
+ * <p>
+ * It also keeps the statistics exposed by the Collectd MBean: collection
+ * lateness (how long after it was due a collection started), collections in
+ * flight or deferred for lack of a free slot, and timeouts per agent.
+ * </p>
+ */
+public final class AsyncCollectionDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncCollectionDispatcher.class);
+
+    /** How long a collection waits before trying again for a free slot */
+    static final long DEFERRAL_DELAY = 1000;
+
+    private final boolean m_enabled;
+    private final int m_maxInFlight;
+    private final Semaphore m_inFlight;
+    private final ExecutorService m_completionExecutor;
+
+    private final AtomicLong m_deferred = new AtomicLong();
+    private final AtomicLong m_latenessTotal = new AtomicLong();
+    private final AtomicLong m_latenessCount = new AtomicLong();
+    private final AtomicLong m_maxLateness = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> m_timeouts = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * Configure from the <code>org.opennms.collectd.async.*</code> system properties.
+     */
+    AsyncCollectionDispatcher() {
+        this(Boolean.getBoolean("org.opennms.collectd.async"),
+             Integer.getInteger("org.opennms.collectd.async.maxInFlight", 1000),
+             Integer.getInteger("org.opennms.collectd.async.completionThreads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    AsyncCollectionDispatcher(final boolean enabled, final int maxInFlight, final int completionThreads) {
+        m_enabled = enabled;
+        m_maxInFlight = Math.max(1, maxInFlight);
+        m_inFlight = new Semaphore(m_maxInFlight);
+        if (m_enabled) {
+            final int threads = Math.max(1, completionThreads);
+            m_completionExecutor = Executors.newFixedThreadPool(threads, new LogPreservingThreadFactory("Collectd-Completion", threads, false));
+            LOG.info("Asynchronous collection enabled with at most {} collections in flight and {} completion threads", m_maxInFlight, threads);
+        } else {
+            m_completionExecutor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return m_enabled;
+    }
+
+    /**
+     * Take a slot for a collection, the caller must call {@link #finished()}
+     * once the collection is over.
+     *
+     * @return false if the in-flight limit has been reached
+     */
+    boolean tryStart() {
+        if (m_inFlight.tryAcquire()) {
+            return true;
+        }
+        m_deferred.incrementAndGet();
+        return false;
+    }
+
+    void finished() {
+        m_inFlight.release();
+    }
+
+    /**
+     * Run the completion of a collection on the completion pool.
+     */
+    void execute(final Runnable completion) {
+        try {
+            m_completionExecutor.execute(completion);
+        } catch (final RejectedExecutionException e) {
+            LOG.warn("Collectd is stopping, completing the collection on the calling thread");
+            completion.run();
+        }
+    }
+
+    void stop() {
+        if (m_completionExecutor != null) {
+            m_completionExecutor.shutdown();
+        }
+    }
+
+    void recordLateness(final long lateness) {
+        final long value = Math.max(0, lateness);
+        m_latenessTotal.addAndGet(value);
+        m_latenessCount.incrementAndGet();
+        long max = m_maxLateness.get();
+        while (value > max && !m_maxLateness.compareAndSet(max, value)) {
+            max = m_maxLateness.get();
+        }
+    }
+
+    void recordTimeout(final String hostAddress) {
+        AtomicLong count = m_timeouts.get(hostAddress);
+        if (count == null) {
+            final AtomicLong newCount = new AtomicLong();
+            count = m_timeouts.putIfAbsent(hostAddress, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    public int getMaxInFlight() {
+        return m_maxInFlight;
+    }
+
+    public int getInFlight() {
+        return m_maxInFlight - m_inFlight.availablePermits();
+    }
+
+    public long getDeferred() {
+        return m_deferred.get();
+    }
+
+    public long getAverageLateness() {
+        final long count = m_latenessCount.get();
+        return count == 0 ? 0 : m_latenessTotal.get() / count;
+    }
+
+    public long getMaxLateness() {
+        return m_maxLateness.get();
+    }
+
+    public long getTimeouts() {
+        long total = 0;
+        for (final AtomicLong count : m_timeouts.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * @return one "address: count" line per agent that had timeouts
+     */
+    public List<String> getTimeoutsPerAgent() {
+        final Map<String, Long> sorted = new TreeMap<String, Long>();
+        for (final Map.Entry<String, AtomicLong> entry : m_timeouts.entrySet()) {
+            sorted.put(entry.getKey(), entry.getValue().get());
+        }
+        final List<String> lines = new ArrayList<String>(sorted.size());
+        for (final Map.Entry<String, Long> entry : sorted.entrySet()) {
+            lines.add(entry.getKey() + ": " + entry.getValue());
+        }
+        return lines;
+    }
+}
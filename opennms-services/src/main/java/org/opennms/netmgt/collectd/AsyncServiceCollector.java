@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.collectd;
+
+import java.util.Map;
+
+import org.opennms.netmgt.model.events.EventProxy;
+
+/**
+ * <p>
+ * A {@link ServiceCollector} that can collect without blocking the calling
+ * thread.
+ * </p>
+ *
+ * <p>
+ * When asynchronous collection is enabled, collectd calls
+ * {@link #collect(CollectionAgent, EventProxy, Map, CollectionSetCallback)}
+ * from one of its scheduler threads. The collector starts the collection and
+ * returns right away, then reports the result through the callback, usually
+ * from its own I/O thread. The synchronous
+ * {@link ServiceCollector#collect(CollectionAgent, EventProxy, Map)} must
+ * still be implemented.
+ * </p>
+ *
+ * @version $Id: $
+ */
+public interface AsyncServiceCollector extends ServiceCollector {
+
+    /**
+     * Starts a collection. Exactly one call to the callback is made for each
+     * call to this method, including when the collection cannot be started.
+     *
+     * @param agent a {@link org.opennms.netmgt.collectd.CollectionAgent} object.
+     * @param eproxy a {@link org.opennms.netmgt.model.events.EventProxy} object.
+     * @param parameters a {@link java.util.Map} object.
+     * @param callback receives the result of the collection
+     */
+    void collect(CollectionAgent agent, EventProxy eproxy, Map<String, Object> parameters, CollectionSetCallback callback);
+}
@@ -111,6 +111,13 @@ final class CollectableService implements ReadyRunnable {
     
     private final RrdRepository m_repository;
 
+    private final AsyncCollectionDispatcher m_dispatcher;
+
+    /**
+     * When the next collection is due, used to measure how late it starts.
+     */
+    private volatile long m_nextDueTime = 0L;
+
     /**
      * Constructs a new instance of a CollectableService object.
      *
@@ -121,14 +128,16 @@ final class CollectableService implements ReadyRunnable {
      * @param scheduler a {@link org.opennms.netmgt.scheduler.Scheduler} object.
      * @param schedulingCompletedFlag a {@link org.opennms.netmgt.collectd.Collectd.SchedulingCompletedFlag} object.
      * @param transMgr a {@link org.springframework.transaction.PlatformTransactionManager} object.
+     * @param dispatcher a {@link org.opennms.netmgt.collectd.AsyncCollectionDispatcher} object.
      */
-    protected CollectableService(OnmsIpInterface iface, IpInterfaceDao ifaceDao, CollectionSpecification spec, Scheduler scheduler, SchedulingCompletedFlag schedulingCompletedFlag, PlatformTransactionManager transMgr) throws CollectionInitializationException {
+    protected CollectableService(OnmsIpInterface iface, IpInterfaceDao ifaceDao, CollectionSpecification spec, Scheduler scheduler, SchedulingCompletedFlag schedulingCompletedFlag, PlatformTransactionManager transMgr, AsyncCollectionDispatcher dispatcher) throws CollectionInitializationException {
         m_agent = DefaultCollectionAgent.create(iface.getId(), ifaceDao, transMgr);
         m_spec = spec;
         m_scheduler = scheduler;
         m_schedulingCompletedFlag = schedulingCompletedFlag;
         m_ifaceDao = ifaceDao;
         m_transMgr = transMgr;
+        m_dispatcher = dispatcher;
 
         m_nodeId = iface.getNode().getId().intValue();
         m_status = ServiceCollector.COLLECTION_SUCCEEDED;
@@ -302,8 +311,14 @@ final class CollectableService implements ReadyRunnable {
             return;
         }
 
+        if (m_dispatcher.isEnabled() && m_spec.isAsync() && !m_spec.scheduledOutage(m_agent)) {
+            doRunAsync();
+            return;
+        }
+
         // Update last scheduled poll time
         m_lastScheduledCollectionTime = System.currentTimeMillis();
+        recordLateness();
 
         /*
          * Check scheduled outages to see if any apply indicating
@@ -313,22 +328,101 @@ final class CollectableService implements ReadyRunnable {
             try {
                 doCollection();
                 updateStatus(ServiceCollector.COLLECTION_SUCCEEDED, null);
-            } catch (CollectionTimedOut e) {
-                LOG.info(e.getMessage());
-                updateStatus(ServiceCollector.COLLECTION_FAILED, e);
-            } catch (CollectionWarning e) {
-                LOG.warn(e.getMessage(), e);
-                updateStatus(ServiceCollector.COLLECTION_FAILED, e);
-            } catch (CollectionException e) {
-                LOG.error(e.getMessage(), e);
-                updateStatus(ServiceCollector.COLLECTION_FAILED, e);
             } catch (Throwable e) {
-                LOG.error(e.getMessage(), e);
-                updateStatus(ServiceCollector.COLLECTION_FAILED, new CollectionException("Collection failed unexpectedly: " + e.getClass().getSimpleName() + ": " + e.getMessage(), e));
+                collectionFailed(e);
             }
         }
         
-    	// Reschedule the service
+        reschedule();
+    }
+
+    /**
+     * Starts the collection and returns without waiting for it. The result
+     * is persisted and thresholded on the dispatcher's completion pool,
+     * which then reschedules the service. If too many collections are in
+     * flight the service is tried again shortly.
+     */
+    private void doRunAsync() {
+        if (!m_dispatcher.tryStart()) {
+            LOG.debug("run: deferring collection for {}, {} collections are in flight", this, m_dispatcher.getInFlight());
+            m_scheduler.schedule(AsyncCollectionDispatcher.DEFERRAL_DELAY, getReadyRunnable());
+            return;
+        }
+
+        m_lastScheduledCollectionTime = System.currentTimeMillis();
+        recordLateness();
+
+        LOG.info("run: starting new asynchronous collection for {}/{}/{}", getHostAddress(), m_spec.getServiceName(), m_spec.getPackageName());
+        try {
+            m_spec.collect(m_agent, new CollectionSetCallback() {
+                @Override
+                public void complete(final CollectionSet result) {
+                    completeAsync(result, null);
+                }
+
+                @Override
+                public void failed(final CollectionException e) {
+                    completeAsync(null, e);
+                }
+            });
+        } catch (final Throwable e) {
+            completeAsync(null, new CollectionException("An undeclared throwable was caught during data collection for interface " + getHostAddress() +"/"+ m_spec.getServiceName(), e));
+        }
+    }
+
+    private void completeAsync(final CollectionSet result, final CollectionException failure) {
+        m_dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                Logging.withPrefix(Collectd.LOG4J_CATEGORY, new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (failure != null) {
+                                LOG.warn("run: failed collection for {}/{}/{}", getHostAddress(), m_spec.getServiceName(), m_spec.getPackageName());
+                                throw failure;
+                            }
+                            processCollectionSet(result);
+                            LOG.info("run: finished collection for {}/{}/{}", getHostAddress(), m_spec.getServiceName(), m_spec.getPackageName());
+                            updateStatus(ServiceCollector.COLLECTION_SUCCEEDED, null);
+                        } catch (Throwable e) {
+                            collectionFailed(e);
+                        } finally {
+                            m_dispatcher.finished();
+                            reschedule();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void collectionFailed(final Throwable e) {
+        if (e instanceof CollectionTimedOut) {
+            LOG.info(e.getMessage());
+            m_dispatcher.recordTimeout(getHostAddress());
+            updateStatus(ServiceCollector.COLLECTION_FAILED, (CollectionTimedOut)e);
+        } else if (e instanceof CollectionWarning) {
+            LOG.warn(e.getMessage(), e);
+            updateStatus(ServiceCollector.COLLECTION_FAILED, (CollectionWarning)e);
+        } else if (e instanceof CollectionException) {
+            LOG.error(e.getMessage(), e);
+            updateStatus(ServiceCollector.COLLECTION_FAILED, (CollectionException)e);
+        } else {
+            LOG.error(e.getMessage(), e);
+            updateStatus(ServiceCollector.COLLECTION_FAILED, new CollectionException("Collection failed unexpectedly: " + e.getClass().getSimpleName() + ": " + e.getMessage(), e));
+        }
+    }
+
+    private void recordLateness() {
+        if (m_nextDueTime > 0) {
+            m_dispatcher.recordLateness(m_lastScheduledCollectionTime - m_nextDueTime);
+        }
+    }
+
+    private void reschedule() {
+        // Reschedule the service
+        m_nextDueTime = System.currentTimeMillis() + m_spec.getInterval();
         m_scheduler.schedule(m_spec.getInterval(), getReadyRunnable());
     }
 
@@ -375,35 +469,8 @@ final class CollectableService implements ReadyRunnable {
          */
 	private void doCollection() throws CollectionException {
 		LOG.info("run: starting new collection for {}/{}/{}", getHostAddress(), m_spec.getServiceName(), m_spec.getPackageName());
-		CollectionSet result = null;
 		try {
-		    result = m_spec.collect(m_agent);
-		    if (result != null) {
-                        Collectd.instrumentation().beginPersistingServiceData(m_nodeId, getHostAddress(), m_spec.getServiceName());
-                        try {
-                            BasePersister persister = createPersister(m_params, m_repository);
-                            persister.setIgnorePersist(result.ignorePersist());
-                            result.visit(persister);
-                        } finally {
-                            Collectd.instrumentation().endPersistingServiceData(m_nodeId, getHostAddress(), m_spec.getServiceName());
-                        }
-                        
-                        /*
-                         * Do the thresholding; this could be made more generic (listeners being passed the collectionset), but frankly, why bother?
-                         * The first person who actually needs to configure that sort of thing on the fly can code it up.
-                         */
-                        if (m_thresholdVisitor != null) {
-                            if (m_thresholdVisitor.isNodeInOutage()) {
-                                LOG.info("run: the threshold processing will be skipped because the node {} is on a scheduled outage.", m_nodeId);
-                            } else if (m_thresholdVisitor.hasThresholds()) {
-                                result.visit(m_thresholdVisitor);
-                            }
-                        }
-                       
-                        if (result.getStatus() != ServiceCollector.COLLECTION_SUCCEEDED) {
-                            throw new CollectionFailed(result.getStatus());
-                        }
-                    }
+		    processCollectionSet(m_spec.collect(m_agent));
                 } catch (CollectionException e) {
                     LOG.warn("run: failed collection for {}/{}/{}", getHostAddress(), m_spec.getServiceName(), m_spec.getPackageName());
                     throw e;
@@ -414,6 +481,40 @@ final class CollectableService implements ReadyRunnable {
 		LOG.info("run: finished collection for {}/{}/{}", getHostAddress(), m_spec.getServiceName(), m_spec.getPackageName());
 	}
 
+    /**
+     * Persist and threshold the result of a collection.
+     */
+    private void processCollectionSet(final CollectionSet result) throws CollectionException {
+        if (result == null) {
+            return;
+        }
+
+        Collectd.instrumentation().beginPersistingServiceData(m_nodeId, getHostAddress(), m_spec.getServiceName());
+        try {
+            BasePersister persister = createPersister(m_params, m_repository);
+            persister.setIgnorePersist(result.ignorePersist());
+            result.visit(persister);
+        } finally {
+            Collectd.instrumentation().endPersistingServiceData(m_nodeId, getHostAddress(), m_spec.getServiceName());
+        }
+
+        /*
+         * Do the thresholding; this could be made more generic (listeners being passed the collectionset), but frankly, why bother?
+         * The first person who actually needs to configure that sort of thing on the fly can code it up.
+         */
+        if (m_thresholdVisitor != null) {
+            if (m_thresholdVisitor.isNodeInOutage()) {
+                LOG.info("run: the threshold processing will be skipped because the node {} is on a scheduled outage.", m_nodeId);
+            } else if (m_thresholdVisitor.hasThresholds()) {
+                result.visit(m_thresholdVisitor);
+            }
+        }
+
+        if (result.getStatus() != ServiceCollector.COLLECTION_SUCCEEDED) {
+            throw new CollectionFailed(result.getStatus());
+        }
+    }
+
 	/**
      * Process any outstanding updates.
      * 
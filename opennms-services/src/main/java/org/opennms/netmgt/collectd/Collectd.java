@@ -159,6 +159,11 @@ public class Collectd extends AbstractServiceDaemon implements
 
     private final SchedulingCompletedFlag m_schedulingCompletedFlag = new SchedulingCompletedFlag();
 
+    /**
+     * Asynchronous collection limits and collection statistics
+     */
+    private final AsyncCollectionDispatcher m_dispatcher = new AsyncCollectionDispatcher();
+
     private volatile EventIpcManager m_eventIpcManager;
 
     @Autowired
@@ -256,6 +261,15 @@ public class Collectd extends AbstractServiceDaemon implements
         m_eventIpcManager = eventIpcManager;
     }
 
+    /**
+     * <p>getAsyncCollectionDispatcher</p>
+     *
+     * @return the asynchronous collection limits and collection statistics
+     */
+    public AsyncCollectionDispatcher getAsyncCollectionDispatcher() {
+        return m_dispatcher;
+    }
+
     /**
      * <p>getEventIpcManager</p>
      *
@@ -329,6 +343,7 @@ public class Collectd extends AbstractServiceDaemon implements
     @Override
     protected void onStop() {
         getScheduler().stop();
+        m_dispatcher.stop();
         deinstallMessageSelectors();
 
         setScheduler(null);
@@ -503,7 +518,8 @@ public class Collectd extends AbstractServiceDaemon implements
 
                 cSvc = new CollectableService(iface, m_ifaceDao, spec, getScheduler(),
                                               m_schedulingCompletedFlag,
-                                              m_transTemplate.getTransactionManager());
+                                              m_transTemplate.getTransactionManager(),
+                                              m_dispatcher);
 
                 // Add new collectable service to the collectable service list.
                 m_collectableServices.add(cSvc);
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.collectd;
+
+import org.opennms.netmgt.config.collector.CollectionSet;
+
+/**
+ * Receives the result of an {@link AsyncServiceCollector} collection.
+ *
+ * @version $Id: $
+ */
+public interface CollectionSetCallback {
+
+    /**
+     * Called with the collected data.
+     *
+     * @param collectionSet a {@link org.opennms.netmgt.config.collector.CollectionSet} object.
+     */
+    void complete(CollectionSet collectionSet);
+
+    /**
+     * Called instead of {@link #complete(CollectionSet)} when the collection failed.
+     *
+     * @param e the reason
+     */
+    void failed(CollectionException e);
+}
@@ -268,6 +268,38 @@ public class CollectionSpecification {
         }
     }
 
+    /**
+     * <p>isAsync</p>
+     *
+     * @return true if the collector can collect without blocking the caller
+     */
+    public boolean isAsync() {
+        return getCollector() instanceof AsyncServiceCollector;
+    }
+
+    /**
+     * Start a collection with an {@link AsyncServiceCollector}, see {@link #isAsync()}.
+     *
+     * @param agent a {@link org.opennms.netmgt.collectd.CollectionAgent} object.
+     * @param callback receives the result of the collection
+     */
+    public void collect(final CollectionAgent agent, final CollectionSetCallback callback) {
+        Collectd.instrumentation().beginCollectorCollect(agent.getNodeId(), agent.getHostAddress(), m_svcName);
+        ((AsyncServiceCollector)getCollector()).collect(agent, EventIpcManagerFactory.getIpcManager(), getPropertyMap(), new CollectionSetCallback() {
+            @Override
+            public void complete(final CollectionSet collectionSet) {
+                Collectd.instrumentation().endCollectorCollect(agent.getNodeId(), agent.getHostAddress(), m_svcName);
+                callback.complete(collectionSet);
+            }
+
+            @Override
+            public void failed(final CollectionException e) {
+                Collectd.instrumentation().endCollectorCollect(agent.getNodeId(), agent.getHostAddress(), m_svcName);
+                callback.failed(e);
+            }
+        });
+    }
+
     /**
      * <p>scheduledOutage</p>
      *
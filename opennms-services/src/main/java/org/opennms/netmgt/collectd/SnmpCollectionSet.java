@@ -46,6 +46,7 @@ import org.opennms.netmgt.snmp.CollectionTracker;
 import org.opennms.netmgt.snmp.SnmpAgentConfig;
 import org.opennms.netmgt.snmp.SnmpResult;
 import org.opennms.netmgt.snmp.SnmpUtils;
+import org.opennms.netmgt.snmp.SnmpWalkCallback;
 import org.opennms.netmgt.snmp.SnmpWalker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -397,6 +398,31 @@ public class SnmpCollectionSet implements Collectable, CollectionSet {
         }
     }
 
+    /**
+     * Starts the walk and returns without waiting for it. The callback is
+     * called from the SNMP library's thread once the walk is over.
+     */
+    void collect(final CollectionSetCallback callback) {
+        final SnmpWalker walker = createWalker();
+        walker.setCallback(new SnmpWalkCallback() {
+            @Override
+            public void complete(final SnmpWalker finishedWalker) {
+                logFinishedWalker();
+                try {
+                    verifySuccessfulWalk(finishedWalker);
+                } catch (final CollectionException e) {
+                    callback.failed(e);
+                    return;
+                }
+                m_status = ServiceCollector.COLLECTION_SUCCEEDED;
+                callback.complete(SnmpCollectionSet.this);
+            }
+        });
+        walker.start();
+
+        logStartedWalker();
+    }
+
     boolean checkDisableForceRescan(final String disabledString) {
         final Map<String, Object> parameters = m_snmpCollection.getServiceParameters().getParameters();
         final String src = ParameterMap.getKeyedString(parameters, "disableForceRescan", null);
@@ -55,7 +55,7 @@ import org.slf4j.LoggerFactory;
  *
  * @author <A HREF="mailto:brozow@opennms.org">Matt Brozowski</A>
  */
-public class SnmpCollector implements ServiceCollector {
+public class SnmpCollector implements AsyncServiceCollector {
     
     private static final Logger LOG = LoggerFactory.getLogger(SnmpCollector.class);
     
@@ -327,19 +327,7 @@ public class SnmpCollector implements ServiceCollector {
             try {
                 collectionSet.collect();
                 
-                /*
-                 * FIXME: Should we even be doing this? I say we get rid of this force rescan thingie
-                 * {@see http://issues.opennms.org/browse/NMS-1057}
-                 */
-                if (System.getProperty("org.opennms.netmgt.collectd.SnmpCollector.forceRescan", "false").equalsIgnoreCase("true")
-                        && collectionSet.rescanNeeded()) {
-                    /*
-                     * TODO: the behavior of this object may have been re-factored away.
-                     * Verify that this is correct and remove this unused object if it
-                     * is no longer needed.  My gut thinks this should be investigated.
-                     */
-                    forceRescanState.rescanIndicated();
-                }
+                checkForceRescan(collectionSet, forceRescanState);
                 /**
                  * Persistence is now done by the BasePersister visitor
                  * @see CollectableService#doCollection()
@@ -359,6 +347,78 @@ public class SnmpCollector implements ServiceCollector {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Start data collection, the collection set is passed to the callback
+     * once the SNMP walk has finished.
+     */
+    @Override
+    public void collect(final CollectionAgent agent, final EventProxy eventProxy, final Map<String, Object> parameters, final CollectionSetCallback callback) {
+        final SnmpCollectionSet collectionSet;
+        final ForceRescanState forceRescanState;
+        try {
+            final ServiceParameters params = new ServiceParameters(parameters);
+            params.logIfAliasConfig();
+            final OnmsSnmpCollection snmpCollection = new OnmsSnmpCollection(agent, params);
+
+            forceRescanState = new ForceRescanState(agent, eventProxy);
+
+            collectionSet = snmpCollection.createCollectionSet(agent);
+            collectionSet.setCollectionTimestamp(new Date());
+            if (!collectionSet.hasDataToCollect()) {
+                logNoDataToCollect(agent);
+            }
+        } catch (final Throwable t) {
+            callback.failed(new CollectionException("Unexpected error during node SNMP collection for: " + agent.getHostAddress(), t));
+            return;
+        }
+
+        final CollectionAgent collectionAgent = collectionSet.getCollectionAgent();
+        Collectd.instrumentation().beginCollectingServiceData(collectionAgent.getNodeId(), collectionAgent.getHostAddress(), serviceName());
+        try {
+            collectionSet.collect(new CollectionSetCallback() {
+                @Override
+                public void complete(final CollectionSet result) {
+                    Collectd.instrumentation().endCollectingServiceData(collectionAgent.getNodeId(), collectionAgent.getHostAddress(), serviceName());
+                    try {
+                        checkForceRescan(collectionSet, forceRescanState);
+                    } catch (final Throwable t) {
+                        callback.failed(new CollectionException("Unexpected error during node SNMP collection for: " + agent.getHostAddress(), t));
+                        return;
+                    }
+                    callback.complete(result);
+                }
+
+                @Override
+                public void failed(final CollectionException e) {
+                    Collectd.instrumentation().endCollectingServiceData(collectionAgent.getNodeId(), collectionAgent.getHostAddress(), serviceName());
+                    Collectd.instrumentation().reportCollectionException(agent.getNodeId(), agent.getHostAddress(), serviceName(), e);
+                    callback.failed(e);
+                }
+            });
+        } catch (final Throwable t) {
+            Collectd.instrumentation().endCollectingServiceData(collectionAgent.getNodeId(), collectionAgent.getHostAddress(), serviceName());
+            callback.failed(new CollectionException("Unexpected error during node SNMP collection for: " + agent.getHostAddress(), t));
+        }
+    }
+
+    private void checkForceRescan(final SnmpCollectionSet collectionSet, final ForceRescanState forceRescanState) {
+        /*
+         * FIXME: Should we even be doing this? I say we get rid of this force rescan thingie
+         * {@see http://issues.opennms.org/browse/NMS-1057}
+         */
+        if (System.getProperty("org.opennms.netmgt.collectd.SnmpCollector.forceRescan", "false").equalsIgnoreCase("true")
+                && collectionSet.rescanNeeded()) {
+            /*
+             * TODO: the behavior of this object may have been re-factored away.
+             * Verify that this is correct and remove this unused object if it
+             * is no longer needed.  My gut thinks this should be investigated.
+             */
+            forceRescanState.rescanIndicated();
+        }
+    }
+
     /*private void persistData(ServiceParameters params, SnmpCollectionSet collectionSet) {
         Collectd.instrumentation().beginPersistingServiceData(collectionSet.getCollectionAgent().getNodeId(), collectionSet.getCollectionAgent().getHostAddress(), serviceName());
         try {
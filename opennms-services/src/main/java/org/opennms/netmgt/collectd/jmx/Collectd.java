@@ -28,6 +28,9 @@
 
 package org.opennms.netmgt.collectd.jmx;
 
+import java.util.List;
+
+import org.opennms.netmgt.collectd.AsyncCollectionDispatcher;
 import org.opennms.netmgt.daemon.AbstractSpringContextJmxServiceDaemon;
 
 /**
@@ -51,4 +54,51 @@ public class Collectd extends AbstractSpringContextJmxServiceDaemon<org.opennms.
         return "collectdContext";
     }
 
+    private AsyncCollectionDispatcher getDispatcher() {
+        return getDaemon().getAsyncCollectionDispatcher();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getCollectionsInFlight() {
+        return getDispatcher().getInFlight();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaxCollectionsInFlight() {
+        return getDispatcher().getMaxInFlight();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getCollectionsDeferred() {
+        return getDispatcher().getDeferred();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getAverageCollectionLateness() {
+        return getDispatcher().getAverageLateness();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMaxCollectionLateness() {
+        return getDispatcher().getMaxLateness();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getCollectionTimeouts() {
+        return getDispatcher().getTimeouts();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getCollectionTimeoutsPerAgent() {
+        final List<String> lines = getDispatcher().getTimeoutsPerAgent();
+        return lines.toArray(new String[lines.size()]);
+    }
+
 }
@@ -37,4 +37,43 @@ import org.opennms.netmgt.daemon.BaseOnmsMBean;
  * @version $Id: $
  */
 public interface CollectdMBean extends BaseOnmsMBean {
+    /**
+     * @return the number of asynchronous collections started and not yet
+     * completed
+     */
+    public int getCollectionsInFlight();
+
+    /**
+     * @return the maximum number of asynchronous collections in flight
+     */
+    public int getMaxCollectionsInFlight();
+
+    /**
+     * @return the number of times a collection was put off because the
+     * in-flight limit had been reached (counter)
+     */
+    public long getCollectionsDeferred();
+
+    /**
+     * @return the average time, in milliseconds, between a collection
+     * being due and it being started
+     */
+    public long getAverageCollectionLateness();
+
+    /**
+     * @return the longest time, in milliseconds, between a collection
+     * being due and it being started
+     */
+    public long getMaxCollectionLateness();
+
+    /**
+     * @return the number of collections that timed out (counter)
+     */
+    public long getCollectionTimeouts();
+
+    /**
+     * @return one line per agent with the number of collections that timed
+     * out
+     */
+    public String[] getCollectionTimeoutsPerAgent();
 }
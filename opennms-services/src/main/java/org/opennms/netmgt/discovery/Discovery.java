@@ -30,23 +30,14 @@ package org.opennms.netmgt.discovery;
 
 import java.io.IOException;
 import java.net.InetAddress;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.locks.Lock;
 
 import org.exolab.castor.xml.MarshalException;
 import org.exolab.castor.xml.ValidationException;
-import org.opennms.core.db.DataSourceFactory;
-import org.opennms.core.utils.DBUtils;
-import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.netmgt.EventConstants;
 import org.opennms.netmgt.config.DiscoveryConfigFactory;
 import org.opennms.netmgt.daemon.AbstractServiceDaemon;
@@ -57,6 +48,7 @@ import org.opennms.netmgt.model.events.EventBuilder;
 import org.opennms.netmgt.model.events.EventForwarder;
 import org.opennms.netmgt.model.events.annotations.EventHandler;
 import org.opennms.netmgt.model.events.annotations.EventListener;
+import org.opennms.netmgt.utils.InterfaceToNodeCache;
 import org.opennms.netmgt.xml.event.Event;
 import org.opennms.netmgt.xml.event.Parm;
 import org.slf4j.Logger;
@@ -90,14 +82,9 @@ public class Discovery extends AbstractServiceDaemon {
     private static final int PING_FINISHING = 2;
     
     /**
-     * The SQL query used to get the list of managed IP addresses from the database
+     * the known addresses, discovery is skipped on them
      */
-    private static final String ALL_IP_ADDRS_SQL = "SELECT DISTINCT ipAddr FROM ipInterface WHERE isManaged <> 'D'";
-    
-    /**
-     * a set of devices to skip discovery on
-     */
-    private Set<String> m_alreadyDiscovered = Collections.synchronizedSet(new HashSet<String>());
+    private final InterfaceToNodeCache m_alreadyDiscovered = InterfaceToNodeCache.getInstance();
 
     private DiscoveryConfigFactory m_discoveryFactory;
 
@@ -244,7 +231,7 @@ public class Discovery extends AbstractServiceDaemon {
     }
 
     private boolean isAlreadyDiscovered(InetAddress address) {
-        if (m_alreadyDiscovered.contains(InetAddressUtils.str(address))) {
+        if (m_alreadyDiscovered.getNodeId(address) != -1) {
             return true;
         }
         return false;
@@ -303,6 +290,7 @@ public class Discovery extends AbstractServiceDaemon {
     @Override
     protected void onStop() {
         stopTimer();
+        m_alreadyDiscovered.stopBackgroundRefresh(this);
     }
 
     /**
@@ -325,36 +313,17 @@ public class Discovery extends AbstractServiceDaemon {
      * <p>syncAlreadyDiscovered</p>
      */
     protected void syncAlreadyDiscovered() {
-    	/**
-    	 * Make a new list with which we'll replace the existing one, that way
-    	 * if something goes wrong with the DB we won't lose whatever was already
-    	 * in there
-    	 */
-    	Set<String> newAlreadyDiscovered = Collections.synchronizedSet(new HashSet<String>());
-    	Connection conn = null;
-        final DBUtils d = new DBUtils(getClass());
-
-    	try {
-    		conn = DataSourceFactory.getInstance().getConnection();
-    		d.watch(conn);
-    		PreparedStatement stmt = conn.prepareStatement(ALL_IP_ADDRS_SQL);
-    		d.watch(stmt);
-    		ResultSet rs = stmt.executeQuery();
-    		d.watch(rs);
-    		if (rs != null) {
-    			while (rs.next()) {
-    				newAlreadyDiscovered.add(rs.getString(1));
-    			}
-    		} else {
-    			LOG.warn("Got null ResultSet from query for all IP addresses");
-    		}
-    		m_alreadyDiscovered = newAlreadyDiscovered;
-    	} catch (SQLException sqle) {
-		LOG.warn("Caught SQLException while trying to query for all IP addresses: {}", sqle.getMessage());
-    	} finally {
-    	    d.cleanUp();
-    	}
-	LOG.info("syncAlreadyDiscovered initialized list of managed IP addresses with {} members", m_alreadyDiscovered.size());
+        /*
+         * The cache keeps whatever was already in there if something goes
+         * wrong with the DB
+         */
+        try {
+            m_alreadyDiscovered.dataSourceSync();
+        } catch (SQLException sqle) {
+            LOG.warn("Caught SQLException while trying to query for all IP addresses: {}", sqle.getMessage());
+        }
+        m_alreadyDiscovered.startBackgroundRefresh(this);
+        LOG.info("syncAlreadyDiscovered initialized list of managed IP addresses with {} members", m_alreadyDiscovered.size());
     }
 
     /**
@@ -435,7 +404,7 @@ public class Discovery extends AbstractServiceDaemon {
         if(event.getInterface() != null) {
             // remove from known nodes
             final String iface = event.getInterface();
-			m_alreadyDiscovered.remove(iface);
+			m_alreadyDiscovered.removeNodeId(iface);
 
             LOG.debug("Removed {} from known node list", iface);
         }
@@ -476,7 +445,9 @@ public class Discovery extends AbstractServiceDaemon {
     public void handleNodeGainedInterface(Event event) {
         // add to known nodes
         final String iface = event.getInterface();
-		m_alreadyDiscovered.add(iface);
+        if (event.hasNodeid()) {
+            m_alreadyDiscovered.setNodeId(iface, event.getNodeid());
+        }
 
         LOG.debug("Added {} as discovered", iface);
     }
@@ -31,17 +31,21 @@ package org.opennms.netmgt.eventd;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.opennms.core.logging.Logging;
 import org.opennms.core.concurrent.LogPreservingThreadFactory;
@@ -50,6 +54,7 @@ import org.opennms.netmgt.model.events.EventIpcManager;
 import org.opennms.netmgt.model.events.EventIpcManagerProxy;
 import org.opennms.netmgt.model.events.EventListener;
 import org.opennms.netmgt.model.events.EventProxyException;
+import org.opennms.netmgt.model.events.EventUtils;
 import org.opennms.netmgt.xml.event.Event;
 import org.opennms.netmgt.xml.event.Events;
 import org.opennms.netmgt.xml.event.Log;
@@ -95,19 +100,53 @@ public class EventIpcManagerDefaultImpl implements EventIpcManager, EventIpcBroa
     }
 
     /**
-     * Hash table of list of event listeners keyed by event UEI
+     * What a listener's queue does with a new event when it is full.
      */
-    private Map<String, List<EventListener>> m_ueiListeners = new HashMap<String, List<EventListener>>();
+    public static enum OverflowPolicy {
+        /** Drop the new event. */
+        DISCARD_NEWEST,
+        /** Drop the oldest queued event to make room for the new one. */
+        DISCARD_OLDEST,
+        /**
+         * Wait for room, slowing down event processing for every listener.
+         * A listener that sends events to itself from its own thread can
+         * deadlock with this policy: once its queue is full it waits for room
+         * that only it can make. Such listeners must use one of the discard
+         * policies.
+         */
+        BLOCK
+    }
+
+    /**
+     * The length of each listener's queue when neither a listener property
+     * nor eventd's queueLength is set.
+     */
+    public static final int DEFAULT_LISTENER_QUEUE_LENGTH = 100000;
+
+    /**
+     * Prefix of the system properties that tune the listener queues. Each
+     * setting can be given for all listeners, e.g.
+     * <code>org.opennms.eventd.listener.queueLength</code>, or for a single
+     * listener by name, e.g.
+     * <code>org.opennms.eventd.listener.Notifd.queueLength</code>.
+     */
+    public static final String LISTENER_PROPERTY_PREFIX = "org.opennms.eventd.listener.";
+
+    /**
+     * Hash table of list of event listeners keyed by event UEI. Registration
+     * is synchronized, broadcasts read it without locking.
+     */
+    private final Map<String, List<EventListener>> m_ueiListeners = new ConcurrentHashMap<String, List<EventListener>>();
 
     /**
      * The list of event listeners interested in all events
      */
-    private List<EventListener> m_listeners = new ArrayList<EventListener>();
+    private final List<EventListener> m_listeners = new CopyOnWriteArrayList<EventListener>();
 
     /**
      * Hash table of event listener threads keyed by the listener's id
      */
-    private Map<String, EventListenerExecutor> m_listenerThreads = new HashMap<String, EventListenerExecutor>();
+    private final Map<String, EventListenerExecutor> m_listenerThreads = new ConcurrentHashMap<String, EventListenerExecutor>();
 
     /**
      * The thread pool handling the events
@@ -123,74 +162,199 @@ public class EventIpcManagerDefaultImpl implements EventIpcManager, EventIpcBroa
     private EventIpcManagerProxy m_eventIpcManagerProxy;
 
     /**
-     * A thread dedicated to each listener. The events meant for each listener
-     * is added to an execution queue when the 'sendNow()' is called. The
-     * ListenerThread reads events off of this queue and sends them to the
-     * appropriate listener.
+     * An event waiting in a listener's queue.
+     */
+    private static class QueuedEvent {
+        private final Event m_event;
+        private final long m_queued = System.nanoTime();
+
+        public QueuedEvent(final Event event) {
+            m_event = event;
+        }
+    }
+
+    /**
+     * The threads dedicated to each listener. The events meant for each
+     * listener are added to a bounded queue when 'broadcastNow()' is called.
+     * Each thread reads events off of its own queue and sends them to the
+     * listener. With more than one thread, events are spread over the threads
+     * by their ordering key, so events with the same key are still handled in
+     * the order they were sent.
      */
     private static class EventListenerExecutor {
         /**
-         * Listener to which this thread is dedicated
+         * Listener to which these threads are dedicated
          */
         private final EventListener m_listener;
 
+        private final OverflowPolicy m_overflowPolicy;
+
+        private final String m_orderingKey;
+
+        private final Worker[] m_workers;
+
+        private final AtomicLong m_delivered = new AtomicLong();
+
+        private final AtomicLong m_dropped = new AtomicLong();
+
+        private final AtomicLong m_latency = new AtomicLong();
+
+        private final AtomicLong m_maxLatency = new AtomicLong();
+
+        private volatile boolean m_stopped = false;
+
         /**
-         * The thread that is running this runnable.
+         * One thread and its queue.
          */
-        private final ExecutorService m_delegateThread;
+        private class Worker implements Runnable {
+            private final BlockingQueue<QueuedEvent> m_queue;
+
+            public Worker(final int queueLength) {
+                m_queue = new LinkedBlockingQueue<QueuedEvent>(queueLength);
+            }
+
+            @Override
+            public void run() {
+                while (!m_stopped || !m_queue.isEmpty()) {
+                    final QueuedEvent queued;
+                    try {
+                        queued = m_queue.poll(500, TimeUnit.MILLISECONDS);
+                    } catch (final InterruptedException e) {
+                        break;
+                    }
+                    if (queued != null) {
+                        deliver(queued);
+                    }
+                }
+            }
+        }
 
         /**
          * Constructor
          */
-        EventListenerExecutor(EventListener listener, Integer handlerQueueLength) {
+        EventListenerExecutor(EventListener listener, int queueLength, OverflowPolicy overflowPolicy, int threads, String orderingKey) {
             m_listener = listener;
-            // You could also do Executors.newSingleThreadExecutor() here
-            m_delegateThread = new ThreadPoolExecutor(
-                    1,
-                    1,
-                    0L,
-                    TimeUnit.MILLISECONDS,
-                    handlerQueueLength == null ? new LinkedBlockingQueue<Runnable>() : new LinkedBlockingQueue<Runnable>(handlerQueueLength),
-                    // This ThreadFactory will ensure that the log prefix of the calling thread
-                    // is used for all events that this listener handles. Therefore, if Notifd
-                    // registers for an event then all logs for handling that event will end up
-                    // inside notifd.log.
-                    new LogPreservingThreadFactory(m_listener.getName(), 1, true),
-                    new RejectedExecutionHandler() {
-                        @Override
-                        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-                            LOG.warn("Listener {}'s event queue is full, discarding event", m_listener.getName());
-                        }
-                    }
-            );
+            m_overflowPolicy = overflowPolicy;
+            m_orderingKey = orderingKey;
+            m_workers = new Worker[Math.max(1, threads)];
+
+            // This ThreadFactory will ensure that the log prefix of the calling thread
+            // is used for all events that this listener handles. Therefore, if Notifd
+            // registers for an event then all logs for handling that event will end up
+            // inside notifd.log.
+            final ThreadFactory threadFactory = new LogPreservingThreadFactory(m_listener.getName(), m_workers.length, true);
+            for (int i = 0; i < m_workers.length; i++) {
+                m_workers[i] = new Worker(queueLength);
+                threadFactory.newThread(m_workers[i]).start();
+            }
         }
 
         public void addEvent(final Event event) {
-            m_delegateThread.execute(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        LOG.info("run: calling onEvent on {} for event {} dbid {} with time {}", m_listener.getName(), event.getUei(), event.getDbid(), event.getTime());
-
-                        // Make sure we restore our log4j logging prefix after onEvent is called
-                        Map mdc = Logging.getCopyOfContextMap();
-                        try {
-                            m_listener.onEvent(event);
-                        } finally {
-                            Logging.setContextMap(mdc);
-                        }
-                    } catch (Throwable t) {
-                        LOG.warn("run: an unexpected error occured during ListenerThread {}", m_listener.getName(), t);
+            if (m_stopped) {
+                LOG.warn("Listener {} has been removed, discarding event", m_listener.getName());
+                return;
+            }
+
+            final BlockingQueue<QueuedEvent> queue = getWorker(event).m_queue;
+            final QueuedEvent queued = new QueuedEvent(event);
+            switch (m_overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(queued);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    m_dropped.incrementAndGet();
+                    LOG.warn("Interrupted while waiting for room in listener {}'s event queue, discarding event", m_listener.getName());
+                }
+                break;
+            case DISCARD_OLDEST:
+                while (!queue.offer(queued)) {
+                    if (queue.poll() != null) {
+                        m_dropped.incrementAndGet();
+                        LOG.warn("Listener {}'s event queue is full, discarding oldest event", m_listener.getName());
                     }
                 }
-            });
+                break;
+            default:
+                if (!queue.offer(queued)) {
+                    m_dropped.incrementAndGet();
+                    LOG.warn("Listener {}'s event queue is full, discarding event", m_listener.getName());
+                }
+            }
+        }
+
+        private Worker getWorker(final Event event) {
+            if (m_workers.length == 1) {
+                return m_workers[0];
+            }
+            final Object key;
+            if ("nodeid".equals(m_orderingKey)) {
+                key = event.getNodeid();
+            } else if ("interface".equals(m_orderingKey)) {
+                key = event.getInterface();
+            } else if ("uei".equals(m_orderingKey)) {
+                key = event.getUei();
+            } else {
+                key = EventUtils.getParm(event, m_orderingKey);
+            }
+            return key == null ? m_workers[0] : m_workers[(key.hashCode() & Integer.MAX_VALUE) % m_workers.length];
+        }
+
+        private void deliver(final QueuedEvent queued) {
+            final Event event = queued.m_event;
+            try {
+                LOG.info("run: calling onEvent on {} for event {} dbid {} with time {}", m_listener.getName(), event.getUei(), event.getDbid(), event.getTime());
+
+                // Make sure we restore our log4j logging prefix after onEvent is called
+                Map mdc = Logging.getCopyOfContextMap();
+                try {
+                    m_listener.onEvent(event);
+                } finally {
+                    Logging.setContextMap(mdc);
+                }
+            } catch (Throwable t) {
+                LOG.warn("run: an unexpected error occured during ListenerThread {}", m_listener.getName(), t);
+            }
+
+            final long latency = System.nanoTime() - queued.m_queued;
+            m_delivered.incrementAndGet();
+            m_latency.addAndGet(latency);
+            if (latency > m_maxLatency.get()) {
+                m_maxLatency.set(latency);
+            }
+        }
+
+        public int getQueueDepth() {
+            int depth = 0;
+            for (final Worker worker : m_workers) {
+                depth += worker.m_queue.size();
+            }
+            return depth;
+        }
+
+        public long getDelivered() {
+            return m_delivered.get();
+        }
+
+        public long getDropped() {
+            return m_dropped.get();
+        }
+
+        public long getAverageLatency() {
+            final long delivered = m_delivered.get();
+            return delivered == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(m_latency.get() / delivered);
+        }
+
+        public long getMaxLatency() {
+            return TimeUnit.NANOSECONDS.toMillis(m_maxLatency.get());
         }
 
         /**
-         * Stops the execution of this listener.
+         * Stops the execution of this listener once the queued events have
+         * been delivered.
          */
         public void stop() {
-            m_delegateThread.shutdown();
+            m_stopped = true;
         }
     }
 
@@ -284,8 +448,9 @@ public class EventIpcManagerDefaultImpl implements EventIpcManager, EventIpcBroa
          */
         Set<EventListener> sentToListeners = new HashSet<EventListener>();
         for (String uei = event.getUei(); uei.length() > 0; ) {
-            if (m_ueiListeners.containsKey(uei)) {
-                for (EventListener listener : m_ueiListeners.get(uei)) {
+            final List<EventListener> listeners = m_ueiListeners.get(uei);
+            if (listeners != null) {
+                for (EventListener listener : listeners) {
                     if (!sentToListeners.contains(listener)) {
                         queueEventToListener(event, listener);
                         sentToListeners.add(listener);
@@ -310,7 +475,10 @@ public class EventIpcManagerDefaultImpl implements EventIpcManager, EventIpcBroa
     }
 
     private void queueEventToListener(Event event, EventListener listener) {
-        m_listenerThreads.get(listener.getName()).addEvent(event);
+        final EventListenerExecutor executor = m_listenerThreads.get(listener.getName());
+        if (executor != null) {
+            executor.addEvent(event);
+        }
     }
 
     /**
@@ -432,10 +600,9 @@ public class EventIpcManagerDefaultImpl implements EventIpcManager, EventIpcBroa
         }
 
         // stop and remove the listener thread for this listener
-        if (m_listenerThreads.containsKey(listener.getName())) {
-            m_listenerThreads.get(listener.getName()).stop();
-
-            m_listenerThreads.remove(listener.getName());
+        final EventListenerExecutor executor = m_listenerThreads.remove(listener.getName());
+        if (executor != null) {
+            executor.stop();
         }
     }
 
@@ -448,8 +615,24 @@ public class EventIpcManagerDefaultImpl implements EventIpcManager, EventIpcBroa
             return;
         }
         
-        EventListenerExecutor listenerThread = new EventListenerExecutor(listener, m_handlerQueueLength);
-        m_listenerThreads.put(listener.getName(), listenerThread);
+        final String name = listener.getName();
+        final String queueLength = getListenerProperty(name, "queueLength", m_handlerQueueLength == null ? null : m_handlerQueueLength.toString());
+        final String overflowPolicy = getListenerProperty(name, "overflowPolicy", OverflowPolicy.DISCARD_NEWEST.name());
+        final String threads = getListenerProperty(name, "threads", "1");
+        final String orderingKey = getListenerProperty(name, "orderingKey", "nodeid");
+
+        EventListenerExecutor listenerThread = new EventListenerExecutor(
+            listener,
+            queueLength == null ? DEFAULT_LISTENER_QUEUE_LENGTH : Integer.parseInt(queueLength),
+            OverflowPolicy.valueOf(overflowPolicy.toUpperCase()),
+            Integer.parseInt(threads),
+            orderingKey
+        );
+        m_listenerThreads.put(name, listenerThread);
+    }
+
+    private static String getListenerProperty(final String listenerName, final String key, final String defaultValue) {
+        return System.getProperty(LISTENER_PROPERTY_PREFIX + listenerName + "." + key, System.getProperty(LISTENER_PROPERTY_PREFIX + key, defaultValue));
     }
 
     /**
@@ -458,7 +641,7 @@ public class EventIpcManagerDefaultImpl implements EventIpcManager, EventIpcBroa
     private void addUeiForListener(String uei, EventListener listener) {
         // Ensure there is a list for this UEI
         if (!m_ueiListeners.containsKey(uei)) {
-            m_ueiListeners.put(uei, new ArrayList<EventListener>());
+            m_ueiListeners.put(uei, new CopyOnWriteArrayList<EventListener>());
         }
         
         List<EventListener> listenersList = m_ueiListeners.get(uei);
@@ -490,6 +673,75 @@ public class EventIpcManagerDefaultImpl implements EventIpcManager, EventIpcBroa
         return m_listeners.remove(listener);
     }
 
+    /**
+     * <p>getListenerNames</p>
+     *
+     * @return the names of the registered listeners
+     */
+    public List<String> getListenerNames() {
+        final List<String> names = new ArrayList<String>(m_listenerThreads.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * <p>getListenerQueueDepth</p>
+     *
+     * @param listenerName a {@link java.lang.String} object.
+     * @return the number of events waiting for the listener, or -1 if no
+     * such listener is registered
+     */
+    public int getListenerQueueDepth(final String listenerName) {
+        final EventListenerExecutor executor = m_listenerThreads.get(listenerName);
+        return executor == null ? -1 : executor.getQueueDepth();
+    }
+
+    /**
+     * <p>getListenerEventsDelivered</p>
+     *
+     * @param listenerName a {@link java.lang.String} object.
+     * @return the number of events the listener has handled
+     */
+    public long getListenerEventsDelivered(final String listenerName) {
+        final EventListenerExecutor executor = m_listenerThreads.get(listenerName);
+        return executor == null ? 0 : executor.getDelivered();
+    }
+
+    /**
+     * <p>getListenerEventsDropped</p>
+     *
+     * @param listenerName a {@link java.lang.String} object.
+     * @return the number of events dropped because the listener's queue was full
+     */
+    public long getListenerEventsDropped(final String listenerName) {
+        final EventListenerExecutor executor = m_listenerThreads.get(listenerName);
+        return executor == null ? 0 : executor.getDropped();
+    }
+
+    /**
+     * <p>getListenerAverageLatency</p>
+     *
+     * @param listenerName a {@link java.lang.String} object.
+     * @return the average time in milliseconds from queuing an event to the
+     * listener until the listener has handled it
+     */
+    public long getListenerAverageLatency(final String listenerName) {
+        final EventListenerExecutor executor = m_listenerThreads.get(listenerName);
+        return executor == null ? 0 : executor.getAverageLatency();
+    }
+
+    /**
+     * <p>getListenerMaxLatency</p>
+     *
+     * @param listenerName a {@link java.lang.String} object.
+     * @return the longest time in milliseconds from queuing an event to the
+     * listener until the listener has handled it
+     */
+    public long getListenerMaxLatency(final String listenerName) {
+        final EventListenerExecutor executor = m_listenerThreads.get(listenerName);
+        return executor == null ? 0 : executor.getMaxLatency();
+    }
+
     /**
      * <p>afterPropertiesSet</p>
      */
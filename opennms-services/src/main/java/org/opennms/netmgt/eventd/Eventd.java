@@ -95,6 +95,11 @@ public final class Eventd extends AbstractServiceDaemon {
      */
     private Collection<EventReceiver> m_eventReceivers;
 
+    /**
+     * The manager that dispatches events to listeners, for statistics.
+     */
+    private EventIpcManagerDefaultImpl m_eventIpcManager;
+
     /**
      * Constuctor creates the localhost address(to be used eventually when
      * eventd originates events during correlation) and the broadcast queue
@@ -201,4 +206,22 @@ public final class Eventd extends AbstractServiceDaemon {
     public void setEventReceivers(Collection<EventReceiver> eventReceivers) {
         m_eventReceivers = eventReceivers;
     }
+
+    /**
+     * <p>getEventIpcManager</p>
+     *
+     * @return a {@link org.opennms.netmgt.eventd.EventIpcManagerDefaultImpl} object.
+     */
+    public EventIpcManagerDefaultImpl getEventIpcManager() {
+        return m_eventIpcManager;
+    }
+
+    /**
+     * <p>setEventIpcManager</p>
+     *
+     * @param eventIpcManager a {@link org.opennms.netmgt.eventd.EventIpcManagerDefaultImpl} object.
+     */
+    public void setEventIpcManager(EventIpcManagerDefaultImpl eventIpcManager) {
+        m_eventIpcManager = eventIpcManager;
+    }
 }
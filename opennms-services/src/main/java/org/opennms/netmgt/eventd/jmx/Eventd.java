@@ -28,7 +28,10 @@
 
 package org.opennms.netmgt.eventd.jmx;
 
+import java.util.List;
+
 import org.opennms.netmgt.daemon.AbstractSpringContextJmxServiceDaemon;
+import org.opennms.netmgt.eventd.EventIpcManagerDefaultImpl;
 
 /**
  * <p>Eventd class.</p>
@@ -48,4 +51,58 @@ public class Eventd extends AbstractSpringContextJmxServiceDaemon<org.opennms.ne
     protected String getSpringContext() {
         return "eventDaemonContext";       
     }
+
+    private EventIpcManagerDefaultImpl getEventIpcManager() {
+        return getDaemon().getEventIpcManager();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getListenerCount() {
+        return getEventIpcManager().getListenerNames().size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getListenerEventsQueued() {
+        long depth = 0;
+        for (final String name : getEventIpcManager().getListenerNames()) {
+            depth += Math.max(0, getEventIpcManager().getListenerQueueDepth(name));
+        }
+        return depth;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getListenerEventsDropped() {
+        long dropped = 0;
+        for (final String name : getEventIpcManager().getListenerNames()) {
+            dropped += getEventIpcManager().getListenerEventsDropped(name);
+        }
+        return dropped;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getListenerStatistics() {
+        final EventIpcManagerDefaultImpl manager = getEventIpcManager();
+        final List<String> names = manager.getListenerNames();
+        final String[] statistics = new String[names.size()];
+        for (int i = 0; i < statistics.length; i++) {
+            final String name = names.get(i);
+            statistics[i] = name
+                + ": queued=" + manager.getListenerQueueDepth(name)
+                + ", delivered=" + manager.getListenerEventsDelivered(name)
+                + ", dropped=" + manager.getListenerEventsDropped(name)
+                + ", averageLatency=" + manager.getListenerAverageLatency(name) + "ms"
+                + ", maxLatency=" + manager.getListenerMaxLatency(name) + "ms";
+        }
+        return statistics;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getListenerQueueDepth(final String listenerName) {
+        return getEventIpcManager().getListenerQueueDepth(listenerName);
+    }
 }
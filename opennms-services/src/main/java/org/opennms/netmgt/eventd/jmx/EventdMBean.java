@@ -37,4 +37,31 @@ import org.opennms.netmgt.daemon.BaseOnmsMBean;
  * @version $Id: $
  */
 public interface EventdMBean extends BaseOnmsMBean {
+    /**
+     * @return the number of registered event listeners
+     */
+    public int getListenerCount();
+
+    /**
+     * @return the number of events waiting for all listeners
+     */
+    public long getListenerEventsQueued();
+
+    /**
+     * @return the number of events dropped because a listener's queue was full
+     */
+    public long getListenerEventsDropped();
+
+    /**
+     * @return one line per listener with its queue depth, delivered and
+     * dropped events, and average and maximum latency
+     */
+    public String[] getListenerStatistics();
+
+    /**
+     * @param listenerName the name of a listener
+     * @return the number of events waiting for the listener, or -1 if no
+     * such listener is registered
+     */
+    public int getListenerQueueDepth(String listenerName);
 }
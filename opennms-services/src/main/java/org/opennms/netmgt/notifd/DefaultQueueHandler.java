@@ -59,10 +59,16 @@ public class DefaultQueueHandler implements NotifdQueueHandler {
     private String m_queueID;
 
     /**
-     * How long to sleep between processing more notices
+     * The longest time to sleep between processing more notices. The handler
+     * wakes earlier when the next notice is due or a new one is queued.
      */
     private long m_interval;
 
+    /**
+     * Delivers the notices, or null to start a thread per notice
+     */
+    private volatile NotificationDeliveryEngine m_deliveryEngine;
+
     /**
      * The status of this fiber.
      */
@@ -93,6 +99,15 @@ public class DefaultQueueHandler implements NotifdQueueHandler {
         m_interval = TimeConverter.convertToMillis(interval);
     }
 
+    /**
+     * <p>setDeliveryEngine</p>
+     *
+     * @param deliveryEngine a {@link org.opennms.netmgt.notifd.NotificationDeliveryEngine} object.
+     */
+    public void setDeliveryEngine(final NotificationDeliveryEngine deliveryEngine) {
+        m_deliveryEngine = deliveryEngine;
+    }
+
     /**
      * The main worker of the fiber. This method is executed by the encapsulated
      * thread to read commands from the execution queue and to execute those
@@ -132,14 +147,12 @@ public class DefaultQueueHandler implements NotifdQueueHandler {
 
             processQueue();
 
-            synchronized (this) {
-                // wait for the next iteration
-                try {
-                    wait(m_interval);
-                } catch (final InterruptedException ex) {
-                    // exit
-                    break;
-                }
+            // wait until the next notice is due or a new one is queued
+            try {
+                waitForNextNotice();
+            } catch (final InterruptedException ex) {
+                // exit
+                break;
             }
 
         } // end infinite loop
@@ -161,12 +174,16 @@ public class DefaultQueueHandler implements NotifdQueueHandler {
                 	final Long now = System.currentTimeMillis();
                 	final SortedMap<Long, List<NotificationTask>> readyNotices = m_noticeQueue.headMap(now);
         
-                    for (final List<NotificationTask> list : readyNotices.values()) {
-                        for (final NotificationTask task : list) {
-                            startTask(task);
+                    try {
+                        for (final List<NotificationTask> list : readyNotices.values()) {
+                            for (final NotificationTask task : list) {
+                                startTask(task);
+                            }
                         }
+                    } finally {
+                        // tasks that could not be started are dropped rather than retried on every pass
+                        readyNotices.clear();
                     }
-                    readyNotices.clear();
         
                     if (m_noticeQueue != null && m_noticeQueue.size() > 0) {
 			LOG.debug("current state of tree: {}", m_noticeQueue);
@@ -180,10 +197,49 @@ public class DefaultQueueHandler implements NotifdQueueHandler {
     }
 
 	private void startTask(final NotificationTask task) {
-		if (!task.isStarted())
+		final NotificationDeliveryEngine engine = m_deliveryEngine;
+		if (engine != null) {
+			engine.deliver(task);
+		} else if (!task.isStarted()) {
 			task.start();
+		}
 	}
 
+    private void waitForNextNotice() throws InterruptedException {
+        final NoticeQueue queue = m_noticeQueue;
+        if (queue == null) {
+            synchronized (this) {
+                wait(m_interval);
+            }
+            return;
+        }
+        synchronized (queue) {
+            if (!isRunning()) {
+                return;
+            }
+            long wait = m_interval;
+            if (!queue.isEmpty()) {
+                wait = Math.min(wait, queue.firstKey() - System.currentTimeMillis() + 1);
+            }
+            if (wait > 0) {
+                queue.wait(wait);
+            }
+        }
+    }
+
+    private synchronized boolean isRunning() {
+        return m_status == RUNNING;
+    }
+
+    private void wakeUp() {
+        final NoticeQueue queue = m_noticeQueue;
+        if (queue != null) {
+            synchronized (queue) {
+                queue.notifyAll();
+            }
+        }
+    }
+
     /**
      * Starts the fiber. If the fiber has already been run or is currently
      * running then an exception is generated. The status of the fiber is
@@ -212,11 +268,14 @@ public class DefaultQueueHandler implements NotifdQueueHandler {
      *             Thrown if the fiber was never started.
      */
     @Override
-    public synchronized void stop() {
-        if (m_status != STOPPED)
-            m_status = STOP_PENDING;
+    public void stop() {
+        synchronized (this) {
+            if (m_status != STOPPED)
+                m_status = STOP_PENDING;
 
-        notifyAll();
+            notifyAll();
+        }
+        wakeUp();
     }
 
     /**
@@ -228,11 +287,14 @@ public class DefaultQueueHandler implements NotifdQueueHandler {
      *             Thrown if the fiber is stopped or has never run.
      */
     @Override
-    public synchronized void pause() {
-        if (m_status == RUNNING || m_status == RESUME_PENDING) {
-            m_status = PAUSE_PENDING;
-            notifyAll();
+    public void pause() {
+        synchronized (this) {
+            if (m_status == RUNNING || m_status == RESUME_PENDING) {
+                m_status = PAUSE_PENDING;
+                notifyAll();
+            }
         }
+        wakeUp();
     }
 
     /**
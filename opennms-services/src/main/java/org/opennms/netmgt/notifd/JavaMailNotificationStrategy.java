@@ -29,6 +29,12 @@
 package org.opennms.netmgt.notifd;
 
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
 
 import org.opennms.core.utils.Argument;
 import org.opennms.javamail.JavaMailer;
@@ -50,6 +56,30 @@ public class JavaMailNotificationStrategy implements NotificationStrategy {
     
     private static final Logger LOG = LoggerFactory.getLogger(JavaMailNotificationStrategy.class);
 
+    /**
+     * How long an idle SMTP connection is kept open for the next message.
+     * Set to 0 to open a new connection for every message.
+     */
+    private static final long CONNECTION_IDLE_TIMEOUT = Long.getLong("org.opennms.notifd.mail.connectionIdleTimeout", 30000L);
+
+    /**
+     * How many messages are sent over one SMTP connection before it is
+     * replaced.
+     */
+    private static final int MAX_MESSAGES_PER_CONNECTION = Integer.getInteger("org.opennms.notifd.mail.maxMessagesPerConnection", 100);
+
+    /**
+     * How many idle SMTP connections are kept open at most.
+     */
+    private static final int MAX_IDLE_CONNECTIONS = Integer.getInteger("org.opennms.notifd.mail.maxIdleConnections", 4);
+
+    /**
+     * Idle connections shared by the delivery threads. A connection is taken
+     * off the queue while a message is sent over it, since transports are
+     * not thread-safe.
+     */
+    private static final BlockingQueue<CachedTransport> s_idle = new LinkedBlockingQueue<CachedTransport>(Math.max(1, MAX_IDLE_CONNECTIONS));
+
     /**
      * <p>Constructor for JavaMailNotificationStrategy.</p>
      */
@@ -68,7 +98,11 @@ public class JavaMailNotificationStrategy implements NotificationStrategy {
 
         try {
             JavaMailer jm = buildMessage(arguments);
-            jm.mailSend();
+            if (CONNECTION_IDLE_TIMEOUT > 0 && !jm.isUseJMTA()) {
+                sendOverCachedTransport(jm);
+            } else {
+                jm.mailSend();
+            }
         } catch (JavaMailerException e) {
             LOG.error("send: Error sending notification.", e);
             return 1;
@@ -76,6 +110,96 @@ public class JavaMailNotificationStrategy implements NotificationStrategy {
         return 0;
     }
 
+    private static void sendOverCachedTransport(final JavaMailer jm) throws JavaMailerException {
+        final Message message = jm.buildMessage();
+        final String key = jm.getTransport() + "://" + jm.getUser() + "@" + jm.getMailHost() + ":" + jm.getSmtpPort();
+        final long now = System.currentTimeMillis();
+
+        CachedTransport cached = checkOut(key, now);
+        if (cached != null) {
+            try {
+                cached.send(jm, message, now);
+                checkIn(cached);
+                return;
+            } catch (JavaMailerException e) {
+                // the relay may have dropped the connection while it was idle
+                LOG.debug("send: failed to send over a reused connection, reconnecting", e);
+                cached.close();
+            }
+        }
+
+        cached = new CachedTransport(key, jm.connectTransport());
+        try {
+            cached.send(jm, message, now);
+        } catch (JavaMailerException e) {
+            cached.close();
+            throw e;
+        }
+        checkIn(cached);
+    }
+
+    /**
+     * Takes an idle connection for <code>key</code> off the queue, closing
+     * the expired connections found on the way.
+     */
+    private static CachedTransport checkOut(final String key, final long now) {
+        CachedTransport match = null;
+        for (final CachedTransport cached : s_idle) {
+            if (!cached.isUsable(now)) {
+                if (s_idle.remove(cached)) {
+                    cached.close();
+                }
+            } else if (match == null && cached.m_key.equals(key) && s_idle.remove(cached)) {
+                match = cached;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Puts a connection back on the idle queue, or closes it if it is used up
+     * or the queue is full.
+     */
+    private static void checkIn(final CachedTransport cached) {
+        if (!cached.isUsable(System.currentTimeMillis()) || !s_idle.offer(cached)) {
+            cached.close();
+        }
+    }
+
+    private static class CachedTransport {
+        private final String m_key;
+        private final Transport m_transport;
+        private long m_lastUsed;
+        private int m_messages;
+
+        public CachedTransport(final String key, final Transport transport) {
+            m_key = key;
+            m_transport = transport;
+        }
+
+        public boolean isUsable(final long now) {
+            return m_messages < MAX_MESSAGES_PER_CONNECTION
+                && now - m_lastUsed < CONNECTION_IDLE_TIMEOUT
+                && m_transport.isConnected();
+        }
+
+        public void send(final JavaMailer jm, final Message message, final long now) throws JavaMailerException {
+            m_lastUsed = now;
+            m_messages++;
+            jm.sendMessage(message, m_transport);
+        }
+
+        public void close() {
+            try {
+                if (m_transport.isConnected()) {
+                    m_transport.close();
+                }
+            } catch (final MessagingException e) {
+                LOG.debug("close: error closing SMTP connection", e);
+            }
+        }
+    }
+
     /**
      * This method extracts the to, subject, and message text from the
      * parameters passed in the notification.
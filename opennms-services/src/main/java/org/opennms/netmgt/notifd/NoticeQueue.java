@@ -49,10 +49,16 @@ public class NoticeQueue extends DuplicateTreeMap<Long, NotificationTask> {
      */
     private static final long serialVersionUID = 7463770974135218140L;
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * Queue handlers waiting on this queue are woken so a notice that is due
+     * earlier than the current head is not held back.
+     */
     @Override
-    public NotificationTask putItem(Long key, NotificationTask value) {
+    public synchronized NotificationTask putItem(Long key, NotificationTask value) {
         NotificationTask ret = super.putItem(key, value);
+        notifyAll();
 
         
         if (LOG.isDebugEnabled()) {
@@ -82,6 +82,11 @@ public final class Notifd extends AbstractServiceDaemon {
      */
     private final Map<String, NotifdQueueHandler> m_queueHandlers = new HashMap<String, NotifdQueueHandler>();
 
+    /**
+     * Delivers the notices that the queue handlers find due.
+     */
+    private final NotificationDeliveryEngine m_deliveryEngine = new NotificationDeliveryEngine();
+
     /**
      * The broadcast event receiver.
      */
@@ -134,6 +139,9 @@ public final class Notifd extends AbstractServiceDaemon {
                 handlerQueue.setQueueID(queue.getQueueId());
                 handlerQueue.setNoticeQueue(curQueue);
                 handlerQueue.setInterval(queue.getInterval());
+                if (handlerQueue instanceof DefaultQueueHandler) {
+                    ((DefaultQueueHandler) handlerQueue).setDeliveryEngine(m_deliveryEngine);
+                }
 
                 m_noticeQueues.put(queue.getQueueId(), curQueue);
                 m_queueHandlers.put(queue.getQueueId(), handlerQueue);
@@ -284,6 +292,7 @@ public final class Notifd extends AbstractServiceDaemon {
      */
     @Override
     protected void onStart() {
+        m_deliveryEngine.start();
         for (NotifdQueueHandler curHandler : m_queueHandlers.values()) {
             curHandler.start();
         }
@@ -301,6 +310,8 @@ public final class Notifd extends AbstractServiceDaemon {
         } catch (Throwable e) {
         }
 
+        m_deliveryEngine.stop();
+
         if (m_eventReader != null) {
             m_eventReader.close();
         }
@@ -338,6 +349,15 @@ public final class Notifd extends AbstractServiceDaemon {
         return m_singleton;
     }
 
+    /**
+     * <p>getDeliveryEngine</p>
+     *
+     * @return a {@link org.opennms.netmgt.notifd.NotificationDeliveryEngine} object.
+     */
+    public NotificationDeliveryEngine getDeliveryEngine() {
+        return m_deliveryEngine;
+    }
+
     /**
      * <p>getEventManager</p>
      *
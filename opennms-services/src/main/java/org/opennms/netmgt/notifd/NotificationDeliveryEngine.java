@@ -0,0 +1,400 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.notifd;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
+import org.opennms.netmgt.config.notificationCommands.Command;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers {@link NotificationTask}s without starting a thread per task.
+ *
+ * <p>Each notification command (javaEmail, xmppMessage, ...) gets its own
+ * pool of worker threads so a slow SMTP relay only delays other mail. A
+ * destination may be limited to a number of messages per minute; deliveries
+ * over the limit are parked on a {@link DelayQueue} until they may be sent.
+ * Delivery counts and the latency between a notice's send time and the
+ * end of its delivery are kept per command.</p>
+ *
+ * <p>Settings are read from system properties:
+ * <code>org.opennms.notifd.delivery.threads</code> (optionally suffixed with
+ * <code>.&lt;command name&gt;</code>) and
+ * <code>org.opennms.notifd.delivery.destinationRate</code>.</p>
+ */
+public class NotificationDeliveryEngine {
+    private static final Logger LOG = LoggerFactory.getLogger(NotificationDeliveryEngine.class);
+
+    /** Constant <code>PROPERTY_PREFIX="org.opennms.notifd.delivery."</code> */
+    public static final String PROPERTY_PREFIX = "org.opennms.notifd.delivery.";
+
+    private final DelayQueue<Delivery> m_delayed = new DelayQueue<Delivery>();
+
+    private final Map<String, StrategyPool> m_pools = new ConcurrentHashMap<String, StrategyPool>();
+
+    private final Map<String, Long> m_nextAllowed = new ConcurrentHashMap<String, Long>();
+
+    private final AtomicLong m_sequence = new AtomicLong();
+
+    private volatile ExecutorService m_dispatcher;
+
+    private final long m_destinationInterval;
+
+    private ExecutorService m_scheduler;
+
+    /**
+     * <p>Constructor for NotificationDeliveryEngine.</p>
+     */
+    public NotificationDeliveryEngine() {
+        this(Integer.getInteger(PROPERTY_PREFIX + "destinationRate", 0));
+    }
+
+    /**
+     * <p>Constructor for NotificationDeliveryEngine.</p>
+     *
+     * @param destinationRate the most messages sent to one destination per
+     * minute, or 0 for no limit
+     */
+    public NotificationDeliveryEngine(final int destinationRate) {
+        m_destinationInterval = destinationRate > 0 ? TimeUnit.MINUTES.toMillis(1) / destinationRate : 0;
+    }
+
+    /**
+     * Starts the thread that checks tasks and the thread that releases
+     * rate-limited deliveries.
+     */
+    public synchronized void start() {
+        if (m_scheduler != null) {
+            return;
+        }
+        m_dispatcher = Executors.newSingleThreadExecutor(new LogPreservingThreadFactory("Notifd-Dispatcher", 1, false));
+        m_scheduler = Executors.newSingleThreadExecutor(new LogPreservingThreadFactory("Notifd-DeliveryScheduler", 1, false));
+        m_scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        release(m_delayed.take());
+                    } catch (final InterruptedException e) {
+                        break;
+                    } catch (final Throwable t) {
+                        LOG.error("failed to dispatch delayed notification", t);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops accepting work and shuts the worker pools down. Deliveries that
+     * are already running are allowed to finish.
+     */
+    public synchronized void stop() {
+        if (m_scheduler == null) {
+            return;
+        }
+        m_scheduler.shutdownNow();
+        m_scheduler = null;
+        if (m_delayed.size() > 0) {
+            LOG.info("stop: discarding {} rate-limited notifications", m_delayed.size());
+            m_delayed.clear();
+        }
+        m_dispatcher.shutdown();
+        for (final StrategyPool pool : m_pools.values()) {
+            pool.m_executor.shutdown();
+        }
+        m_pools.clear();
+    }
+
+    /**
+     * Hands a task whose send time has come to the engine. The outstanding
+     * and on-duty checks and each command run on the engine's threads.
+     *
+     * @param task the task to deliver
+     */
+    public void deliver(final NotificationTask task) {
+        final ExecutorService dispatcher = m_dispatcher;
+        if (dispatcher == null || dispatcher.isShutdown()) {
+            throw new IllegalStateException("the notification delivery engine is not running");
+        }
+        dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!task.isReadyToSend()) {
+                    return;
+                }
+                for (final Command command : task.getCommands()) {
+                    if (command == null) {
+                        continue;
+                    }
+                    dispatch(new Delivery(task, command, task.getDestination(command), System.currentTimeMillis(), m_sequence.getAndIncrement()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends a delivery that was held back by the rate limit, unless the
+     * notice has been acknowledged or the user has gone off duty while it
+     * waited. The check runs on the dispatcher thread like the first one.
+     */
+    private void release(final Delivery delivery) {
+        m_dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (delivery.m_task.isReadyToSend()) {
+                    dispatch(delivery);
+                } else {
+                    LOG.debug("release: notice is no longer ready to send, dropping delayed {}", delivery.m_command.getName());
+                }
+            }
+        });
+    }
+
+    private void dispatch(final Delivery delivery) {
+        if (!delivery.m_reserved) {
+            final long now = System.currentTimeMillis();
+            final long allowed = reserve(delivery.m_destination, now);
+            if (allowed > now) {
+                LOG.debug("dispatch: rate limit reached for {}, delaying {} by {}ms", delivery.m_destination, delivery.m_command.getName(), allowed - now);
+                delivery.m_due = allowed;
+                delivery.m_reserved = true;
+                m_delayed.offer(delivery);
+                return;
+            }
+        }
+        getPool(delivery.m_command.getName()).submit(delivery);
+    }
+
+    /**
+     * Returns when the next message to a destination may be sent and books
+     * that slot.
+     */
+    private long reserve(final String destination, final long now) {
+        if (m_destinationInterval <= 0 || destination == null) {
+            return now;
+        }
+        synchronized (m_nextAllowed) {
+            final Long next = m_nextAllowed.get(destination);
+            if (next != null && next > now) {
+                m_nextAllowed.put(destination, next + m_destinationInterval);
+                return next;
+            }
+            m_nextAllowed.put(destination, now + m_destinationInterval);
+            if (m_nextAllowed.size() > 1000) {
+                for (final Iterator<Long> it = m_nextAllowed.values().iterator(); it.hasNext();) {
+                    if (it.next() <= now) {
+                        it.remove();
+                    }
+                }
+            }
+            return now;
+        }
+    }
+
+    private StrategyPool getPool(final String name) {
+        StrategyPool pool = m_pools.get(name);
+        if (pool == null) {
+            synchronized (m_pools) {
+                pool = m_pools.get(name);
+                if (pool == null) {
+                    final int threads = Integer.getInteger(PROPERTY_PREFIX + "threads." + name, Integer.getInteger(PROPERTY_PREFIX + "threads", 4));
+                    pool = new StrategyPool(name, threads);
+                    m_pools.put(name, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * <p>getStrategyNames</p>
+     *
+     * @return the names of the commands that have been used so far
+     */
+    public List<String> getStrategyNames() {
+        return new ArrayList<String>(m_pools.keySet());
+    }
+
+    /**
+     * <p>getDelayedCount</p>
+     *
+     * @return the number of deliveries held back by the rate limit
+     */
+    public int getDelayedCount() {
+        return m_delayed.size();
+    }
+
+    /**
+     * <p>getQueueDepth</p>
+     *
+     * @param name a command name
+     * @return the number of deliveries waiting for a worker, or -1 if the
+     * command has not been used
+     */
+    public int getQueueDepth(final String name) {
+        final StrategyPool pool = m_pools.get(name);
+        return pool == null ? -1 : pool.m_executor.getQueue().size();
+    }
+
+    /**
+     * <p>getDelivered</p>
+     *
+     * @param name a command name
+     * @return the number of successful deliveries
+     */
+    public long getDelivered(final String name) {
+        final StrategyPool pool = m_pools.get(name);
+        return pool == null ? 0 : pool.m_delivered.get();
+    }
+
+    /**
+     * <p>getFailed</p>
+     *
+     * @param name a command name
+     * @return the number of deliveries that failed
+     */
+    public long getFailed(final String name) {
+        final StrategyPool pool = m_pools.get(name);
+        return pool == null ? 0 : pool.m_failed.get();
+    }
+
+    /**
+     * <p>getAverageLatency</p>
+     *
+     * @param name a command name
+     * @return the average time in milliseconds from the notice's send time to
+     * the end of its delivery
+     */
+    public long getAverageLatency(final String name) {
+        final StrategyPool pool = m_pools.get(name);
+        if (pool == null) {
+            return 0;
+        }
+        final long count = pool.m_delivered.get() + pool.m_failed.get();
+        return count == 0 ? 0 : pool.m_totalLatency.get() / count;
+    }
+
+    /**
+     * <p>getMaxLatency</p>
+     *
+     * @param name a command name
+     * @return the longest delivery latency in milliseconds
+     */
+    public long getMaxLatency(final String name) {
+        final StrategyPool pool = m_pools.get(name);
+        return pool == null ? 0 : pool.m_maxLatency.get();
+    }
+
+    private static class StrategyPool {
+        private final ThreadPoolExecutor m_executor;
+        private final AtomicLong m_delivered = new AtomicLong();
+        private final AtomicLong m_failed = new AtomicLong();
+        private final AtomicLong m_totalLatency = new AtomicLong();
+        private final AtomicLong m_maxLatency = new AtomicLong();
+
+        public StrategyPool(final String name, final int threads) {
+            m_executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new LogPreservingThreadFactory("Notifd-" + name, threads, false)
+            );
+            m_executor.allowCoreThreadTimeOut(true);
+        }
+
+        public void submit(final Delivery delivery) {
+            m_executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final boolean sent = delivery.m_task.sendCommand(delivery.m_command);
+                    final long latency = Math.max(0, System.currentTimeMillis() - delivery.m_task.getSendTime());
+                    if (sent) {
+                        m_delivered.incrementAndGet();
+                    } else {
+                        m_failed.incrementAndGet();
+                    }
+                    m_totalLatency.addAndGet(latency);
+                    long max;
+                    while (latency > (max = m_maxLatency.get()) && !m_maxLatency.compareAndSet(max, latency)) {
+                        // retry
+                    }
+                }
+            });
+        }
+    }
+
+    private static class Delivery implements Delayed {
+        private final NotificationTask m_task;
+        private final Command m_command;
+        private final String m_destination;
+        private final long m_sequence;
+        private volatile long m_due;
+        private volatile boolean m_reserved;
+
+        public Delivery(final NotificationTask task, final Command command, final String destination, final long due, final long sequence) {
+            m_task = task;
+            m_command = command;
+            m_destination = destination;
+            m_due = due;
+            m_sequence = sequence;
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(m_due - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed o) {
+            final Delivery other = (Delivery) o;
+            if (m_due != other.m_due) {
+                return m_due < other.m_due ? -1 : 1;
+            }
+            return m_sequence < other.m_sequence ? -1 : (m_sequence == other.m_sequence ? 0 : 1);
+        }
+    }
+}
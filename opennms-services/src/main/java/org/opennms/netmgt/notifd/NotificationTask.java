@@ -225,6 +225,20 @@ public class NotificationTask extends Thread {
      */
     @Override
     public void run() {
+        if (isReadyToSend()) {
+            for (Command command : m_commands) {
+                sendCommand(command);
+            }
+        }
+    }
+
+    /**
+     * Checks whether this notice still needs to go out: it must not have been
+     * acknowledged and the user must be on duty.
+     *
+     * @return true if the commands of this task should be executed
+     */
+    public boolean isReadyToSend() {
         boolean outstanding = false;
         try {
             outstanding = getNotificationManager().noticeOutstanding(m_notifyId);
@@ -236,38 +250,7 @@ public class NotificationTask extends Thread {
         if (outstanding) {
             try {
                 if (getUserManager().isUserOnDuty(m_user.getUserId(), Calendar.getInstance())) {
-
-                    // send the notice
-                    ExecutorStrategy strategy = null;
-                    String cntct = "";
-
-                    for (Command command : m_commands) {
-                        try {
-                            cntct = getContactInfo(command.getName());
-                            try {
-                                getNotificationManager().updateNoticeWithUserInfo(m_user.getUserId(), m_notifyId, command.getName(), cntct, m_autoNotify);
-                            } catch (Throwable e) {
-                                LOG.error("Could not insert notice info into database, aborting send notice", e);
-                                continue;
-                            }
-                            String binaryCommand = command.getBinary();
-                            if (binaryCommand == null) {
-                                LOG.error("binary flag not set for command: {}.  Guessing false.", command.getExecute());
-                                binaryCommand = "false";
-                            }
-                            if (binaryCommand.equals("true")) {
-                                strategy = new CommandExecutor();
-                            } else {
-                                strategy = new ClassExecutor();
-                            }
-                            LOG.debug("Class created is: {}", command.getClass());
-
-                            int returnCode = strategy.execute(command.getExecute(), getArgumentList(command));
-                            LOG.debug("command {} return code = {}", command.getName(), returnCode);
-                        } catch (Throwable e) {
-                            LOG.warn("Notification command failed: {}", command.getName(), e);
-                        }
-                    }
+                    return true;
                 } else {
                     LOG.debug("User {} is not on duty, skipping", m_user.getUserId());
                 }
@@ -288,6 +271,63 @@ public class NotificationTask extends Thread {
             // m_notifTree.remove(task);
             //}
         }
+        return false;
+    }
+
+    /**
+     * Records the notice for the user and executes a single command.
+     *
+     * @param command the command to execute
+     * @return true if the command ran and returned 0
+     */
+    public boolean sendCommand(Command command) {
+        try {
+            String cntct = getContactInfo(command.getName());
+            try {
+                getNotificationManager().updateNoticeWithUserInfo(m_user.getUserId(), m_notifyId, command.getName(), cntct, m_autoNotify);
+            } catch (Throwable e) {
+                LOG.error("Could not insert notice info into database, aborting send notice", e);
+                return false;
+            }
+            String binaryCommand = command.getBinary();
+            if (binaryCommand == null) {
+                LOG.error("binary flag not set for command: {}.  Guessing false.", command.getExecute());
+                binaryCommand = "false";
+            }
+            ExecutorStrategy strategy;
+            if (binaryCommand.equals("true")) {
+                strategy = new CommandExecutor();
+            } else {
+                strategy = new ClassExecutor();
+            }
+            LOG.debug("Class created is: {}", command.getClass());
+
+            int returnCode = strategy.execute(command.getExecute(), getArgumentList(command));
+            LOG.debug("command {} return code = {}", command.getName(), returnCode);
+            return returnCode == 0;
+        } catch (Throwable e) {
+            LOG.warn("Notification command failed: {}", command.getName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the address a command will deliver to, falling back to the
+     * user ID when the user has no contact info for the command.
+     *
+     * @param command the command
+     * @return a {@link java.lang.String} object.
+     */
+    public String getDestination(Command command) {
+        try {
+            final String contact = getContactInfo(command.getName());
+            if (contact != null && contact.length() > 0) {
+                return contact;
+            }
+        } catch (Throwable e) {
+            LOG.debug("unable to get contact info for command {}", command.getName(), e);
+        }
+        return m_user.getUserId();
     }
 
     private NotificationManager getNotificationManager() {
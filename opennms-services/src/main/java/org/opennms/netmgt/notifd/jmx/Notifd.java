@@ -29,6 +29,7 @@
 package org.opennms.netmgt.notifd.jmx;
 
 import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
 
 import org.opennms.core.db.DataSourceFactory;
 import org.opennms.netmgt.config.DestinationPathFactory;
@@ -41,6 +42,7 @@ import org.opennms.netmgt.config.UserFactory;
 import org.opennms.netmgt.daemon.AbstractServiceDaemon;
 import org.opennms.netmgt.dao.hibernate.NodeDaoHibernate;
 import org.opennms.netmgt.eventd.EventIpcManagerFactory;
+import org.opennms.netmgt.notifd.NotificationDeliveryEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -167,4 +169,56 @@ public class Notifd extends AbstractServiceDaemon implements NotifdMBean {
     public int getStatus() {
         return getNotifd().getStatus();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getNotificationsDelivered() {
+        long delivered = 0;
+        for (final String name : getDeliveryEngine().getStrategyNames()) {
+            delivered += getDeliveryEngine().getDelivered(name);
+        }
+        return delivered;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getNotificationsFailed() {
+        long failed = 0;
+        for (final String name : getDeliveryEngine().getStrategyNames()) {
+            failed += getDeliveryEngine().getFailed(name);
+        }
+        return failed;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getNotificationsQueued() {
+        long queued = getDeliveryEngine().getDelayedCount();
+        for (final String name : getDeliveryEngine().getStrategyNames()) {
+            queued += Math.max(0, getDeliveryEngine().getQueueDepth(name));
+        }
+        return queued;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getDeliveryStatistics() {
+        final NotificationDeliveryEngine engine = getDeliveryEngine();
+        final List<String> names = engine.getStrategyNames();
+        final String[] statistics = new String[names.size()];
+        for (int i = 0; i < statistics.length; i++) {
+            final String name = names.get(i);
+            statistics[i] = name
+                + ": queued=" + engine.getQueueDepth(name)
+                + ", delivered=" + engine.getDelivered(name)
+                + ", failed=" + engine.getFailed(name)
+                + ", averageLatency=" + engine.getAverageLatency(name) + "ms"
+                + ", maxLatency=" + engine.getMaxLatency(name) + "ms";
+        }
+        return statistics;
+    }
+
+    private NotificationDeliveryEngine getDeliveryEngine() {
+        return getNotifd().getDeliveryEngine();
+    }
 }
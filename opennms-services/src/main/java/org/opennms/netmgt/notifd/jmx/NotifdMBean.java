@@ -37,4 +37,25 @@ import org.opennms.netmgt.daemon.BaseOnmsMBean;
  * @version $Id: $
  */
 public interface NotifdMBean extends BaseOnmsMBean {
+    /**
+     * @return the number of notifications sent successfully
+     */
+    public long getNotificationsDelivered();
+
+    /**
+     * @return the number of notifications whose command failed
+     */
+    public long getNotificationsFailed();
+
+    /**
+     * @return the number of notifications waiting for a worker or held back
+     * by the per-destination rate limit
+     */
+    public long getNotificationsQueued();
+
+    /**
+     * @return one line per notification command with its queue depth,
+     * delivered and failed counts, and average and maximum latency
+     */
+    public String[] getDeliveryStatistics();
 }
@@ -0,0 +1,771 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.poller;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.opennms.core.utils.DBUtils;
+import org.opennms.core.utils.Querier;
+import org.opennms.netmgt.EventConstants;
+import org.opennms.netmgt.config.OpennmsServerConfigFactory;
+import org.opennms.netmgt.model.events.EventIpcManager;
+import org.opennms.netmgt.model.events.EventListener;
+import org.opennms.netmgt.xml.event.Event;
+import org.opennms.netmgt.xml.event.Parm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+/**
+ * <p>CachingQueryManager is a {@link QueryManager} that keeps a poller-side
+ * view of the open outages, the node labels and the critical paths, so the
+ * poller doesn't need a database round trip to answer them.</p>
+ *
+ * <p>The open outages and the node labels are loaded with one query each on
+ * first use and are kept current by the outage operations the poller performs
+ * through this class, and by the node events it receives. The critical paths
+ * are not changed through events, so they are reloaded in bulk when they get
+ * older than the configured refresh interval.</p>
+ *
+ * <p>Outage writes (open, resolve, reparent and close) are queued and applied
+ * in order by a single writer thread, which drains the queue in batches and
+ * applies each batch on one connection and transaction. If a batch fails it is
+ * rolled back and each operation is retried through the delegate.</p>
+ *
+ * <p>Everything else is delegated to the wrapped {@link QueryManager}.</p>
+ */
+public class CachingQueryManager implements QueryManager, EventListener, InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingQueryManager.class);
+
+    static final String SQL_LOAD_OPEN_OUTAGES = "SELECT outages.nodeId, outages.ipAddr, service.serviceName, outages.ifLostService FROM outages JOIN service ON outages.serviceId = service.serviceId WHERE outages.ifRegainedService IS NULL";
+
+    static final String SQL_LOAD_NODE_LABELS = "SELECT nodeId, nodeLabel FROM node WHERE nodeType != 'D'";
+
+    static final String SQL_LOAD_CRITICAL_PATHS = "SELECT nodeId, criticalPathIp, criticalPathServiceName FROM pathoutage";
+
+    static final String SQL_LOAD_SERVICE_IDS = "SELECT serviceId, serviceName FROM service";
+
+    static final String SQL_OPEN_OUTAGE = "INSERT INTO outages (outageId, svcLostEventId, nodeId, ipAddr, serviceId, ifLostService) VALUES (?, ?, ?, ?, ?, ?)";
+
+    static final String SQL_RESOLVE_OUTAGE = "UPDATE outages SET svcRegainedEventId = ?, ifRegainedService = ? WHERE nodeId = ? AND ipAddr = ? AND serviceId = ? AND ifRegainedService IS NULL";
+
+    static final String SQL_REPARENT_OUTAGES = "UPDATE outages SET nodeId = ? WHERE nodeId = ? AND ipAddr = ?";
+
+    private QueryManager m_delegate;
+
+    private EventIpcManager m_eventManager;
+
+    private long m_criticalPathRefreshInterval = 300000L;
+
+    private int m_maxBatchSize = 500;
+
+    private final Map<ServiceKey, Date> m_openOutages = new ConcurrentHashMap<ServiceKey, Date>();
+
+    private final Map<Integer, String> m_nodeLabels = new ConcurrentHashMap<Integer, String>();
+
+    private volatile Map<Integer, String[]> m_criticalPaths = Collections.emptyMap();
+
+    private volatile long m_criticalPathsLoadedAt = 0L;
+
+    private final Object m_criticalPathLock = new Object();
+
+    private volatile Map<String, Integer> m_serviceIds = Collections.emptyMap();
+
+    private volatile boolean m_loaded = false;
+
+    private final BlockingQueue<OutageOperation> m_pendingOperations = new LinkedBlockingQueue<OutageOperation>();
+
+    private final Object m_writerLock = new Object();
+
+    private volatile Thread m_writer;
+
+    private volatile boolean m_stopped = false;
+
+    /**
+     * The key of a polled service.
+     */
+    static final class ServiceKey {
+        private final int m_nodeId;
+        private final String m_ipAddr;
+        private final String m_svcName;
+
+        ServiceKey(int nodeId, String ipAddr, String svcName) {
+            m_nodeId = nodeId;
+            m_ipAddr = ipAddr;
+            m_svcName = svcName;
+        }
+
+        int getNodeId() {
+            return m_nodeId;
+        }
+
+        String getIpAddr() {
+            return m_ipAddr;
+        }
+
+        String getSvcName() {
+            return m_svcName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ServiceKey)) {
+                return false;
+            }
+            ServiceKey other = (ServiceKey) obj;
+            return m_nodeId == other.m_nodeId && m_ipAddr.equals(other.m_ipAddr) && m_svcName.equals(other.m_svcName);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * (31 * m_nodeId + m_ipAddr.hashCode())) + m_svcName.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return m_nodeId + ":" + m_ipAddr + ":" + m_svcName;
+        }
+    }
+
+    /**
+     * A queued outage write.
+     */
+    abstract class OutageOperation {
+
+        /**
+         * Applies the operation using the batch connection.
+         */
+        abstract void apply(Connection conn, Map<String, PreparedStatement> statements, DBUtils d) throws SQLException;
+
+        /**
+         * Applies the operation on its own through the delegate.
+         */
+        abstract void applyDirectly();
+    }
+
+    /**
+     * <p>setDelegate</p>
+     *
+     * @param delegate the {@link QueryManager} used for everything that is not cached.
+     */
+    public void setDelegate(QueryManager delegate) {
+        m_delegate = delegate;
+    }
+
+    /**
+     * <p>getDelegate</p>
+     *
+     * @return a {@link org.opennms.netmgt.poller.QueryManager} object.
+     */
+    public QueryManager getDelegate() {
+        return m_delegate;
+    }
+
+    /**
+     * <p>setEventManager</p>
+     *
+     * @param eventManager a {@link org.opennms.netmgt.model.events.EventIpcManager} object.
+     */
+    public void setEventManager(EventIpcManager eventManager) {
+        m_eventManager = eventManager;
+    }
+
+    /**
+     * <p>setCriticalPathRefreshInterval</p>
+     *
+     * @param criticalPathRefreshInterval the maximum age, in milliseconds, of the critical paths.
+     */
+    public void setCriticalPathRefreshInterval(long criticalPathRefreshInterval) {
+        m_criticalPathRefreshInterval = criticalPathRefreshInterval;
+    }
+
+    /**
+     * <p>setMaxBatchSize</p>
+     *
+     * @param maxBatchSize the maximum number of outage writes applied in one transaction.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        m_maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * <p>getPendingOperationCount</p>
+     *
+     * @return the number of outage writes not yet applied.
+     */
+    public int getPendingOperationCount() {
+        return m_pendingOperations.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(m_delegate, "delegate must be set");
+        if (m_eventManager != null) {
+            List<String> ueiList = new ArrayList<String>();
+            ueiList.add(EventConstants.NODE_LABEL_CHANGED_EVENT_UEI);
+            ueiList.add(EventConstants.NODE_DELETED_EVENT_UEI);
+            ueiList.add(EventConstants.DUP_NODE_DELETED_EVENT_UEI);
+            m_eventManager.addEventListener(this, ueiList);
+        }
+        synchronized (m_writerLock) {
+            m_stopped = false;
+            m_writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeOutages();
+                }
+            }, "PollerOutageWriter");
+            m_writer.setDaemon(true);
+            m_writer.start();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void destroy() {
+        if (m_eventManager != null) {
+            m_eventManager.removeEventListener(this);
+        }
+        synchronized (m_writerLock) {
+            m_stopped = true;
+            if (m_writer != null) {
+                m_writer.interrupt();
+                try {
+                    m_writer.join(30000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                m_writer = null;
+            }
+        }
+        // Whatever is left is applied from the calling thread
+        flush();
+    }
+
+    /**
+     * Applies all the queued outage writes from the calling thread.
+     */
+    public void flush() {
+        List<OutageOperation> batch = new ArrayList<OutageOperation>();
+        while (m_pendingOperations.drainTo(batch, m_maxBatchSize) > 0) {
+            applyBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeOutages() {
+        List<OutageOperation> batch = new ArrayList<OutageOperation>();
+        while (!m_stopped) {
+            try {
+                OutageOperation first = m_pendingOperations.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                m_pendingOperations.drainTo(batch, m_maxBatchSize - 1);
+                applyBatch(batch);
+            } catch (InterruptedException e) {
+                LOG.debug("writeOutages: interrupted, {} outage writes pending", m_pendingOperations.size());
+                if (!batch.isEmpty()) {
+                    applyBatch(batch);
+                }
+                return;
+            } catch (Throwable t) {
+                LOG.error("writeOutages: unexpected error applying outage writes", t);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void applyBatch(List<OutageOperation> batch) {
+        final DBUtils d = new DBUtils(getClass());
+        Connection conn = null;
+        try {
+            conn = getDataSource().getConnection();
+            d.watch(conn);
+            conn.setAutoCommit(false);
+            Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+            for (OutageOperation op : batch) {
+                op.apply(conn, statements, d);
+            }
+            conn.commit();
+            LOG.debug("applyBatch: applied {} outage writes", batch.size());
+        } catch (Throwable t) {
+            LOG.warn("applyBatch: failed to apply {} outage writes in one transaction, retrying them one by one", batch.size(), t);
+            rollback(conn);
+            for (OutageOperation op : batch) {
+                op.applyDirectly();
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    LOG.debug("applyBatch: unable to restore auto-commit", e);
+                }
+            }
+            d.cleanUp();
+        }
+    }
+
+    private static void rollback(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            LOG.warn("applyBatch: rollback failed", e);
+        }
+    }
+
+    private static PreparedStatement getStatement(Connection conn, Map<String, PreparedStatement> statements, DBUtils d, String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null) {
+            stmt = conn.prepareStatement(sql);
+            d.watch(stmt);
+            statements.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    private void enqueue(OutageOperation op) {
+        if (m_stopped || m_writer == null) {
+            op.applyDirectly();
+        } else {
+            m_pendingOperations.add(op);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (m_loaded) return;
+        synchronized (this) {
+            if (m_loaded) return;
+            loadServiceIds();
+            loadOpenOutages();
+            loadNodeLabels();
+            m_loaded = true;
+        }
+    }
+
+    private void loadServiceIds() {
+        final Map<String, Integer> serviceIds = new HashMap<String, Integer>();
+        Querier querier = new Querier(getDataSource(), SQL_LOAD_SERVICE_IDS) {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                serviceIds.put(rs.getString(2), Integer.valueOf(rs.getInt(1)));
+            }
+        };
+        querier.execute();
+        m_serviceIds = serviceIds;
+    }
+
+    private void loadOpenOutages() {
+        Querier querier = new Querier(getDataSource(), SQL_LOAD_OPEN_OUTAGES) {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                Timestamp lost = rs.getTimestamp(4);
+                m_openOutages.put(new ServiceKey(rs.getInt(1), rs.getString(2), rs.getString(3)), new Date(lost.getTime()));
+            }
+        };
+        querier.execute();
+        LOG.info("loadOpenOutages: loaded {} open outages", m_openOutages.size());
+    }
+
+    private void loadNodeLabels() {
+        Querier querier = new Querier(getDataSource(), SQL_LOAD_NODE_LABELS) {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                String label = rs.getString(2);
+                if (label != null) {
+                    m_nodeLabels.put(Integer.valueOf(rs.getInt(1)), label);
+                }
+            }
+        };
+        querier.execute();
+        LOG.debug("loadNodeLabels: loaded {} node labels", m_nodeLabels.size());
+    }
+
+    private Map<Integer, String[]> getCriticalPaths() {
+        long now = System.currentTimeMillis();
+        if (now - m_criticalPathsLoadedAt > m_criticalPathRefreshInterval) {
+            synchronized (m_criticalPathLock) {
+                if (now - m_criticalPathsLoadedAt > m_criticalPathRefreshInterval) {
+                    final Map<Integer, String[]> paths = new HashMap<Integer, String[]>();
+                    Querier querier = new Querier(getDataSource(), SQL_LOAD_CRITICAL_PATHS) {
+                        @Override
+                        public void processRow(ResultSet rs) throws SQLException {
+                            paths.put(Integer.valueOf(rs.getInt(1)), new String[] { rs.getString(2), rs.getString(3) });
+                        }
+                    };
+                    querier.execute();
+                    m_criticalPaths = paths;
+                    m_criticalPathsLoadedAt = System.currentTimeMillis();
+                    LOG.debug("getCriticalPaths: loaded {} critical paths", paths.size());
+                }
+            }
+        }
+        return m_criticalPaths;
+    }
+
+    private static Timestamp toTimestamp(String time) {
+        try {
+            return new Timestamp(EventConstants.parseToDate(time).getTime());
+        } catch (ParseException e) {
+            throw new RuntimeException("Invalid date format "+time, e);
+        }
+    }
+
+    private int getServiceId(String svcName) {
+        Integer serviceId = m_serviceIds.get(svcName);
+        if (serviceId == null) {
+            // A service created after the poller started
+            loadServiceIds();
+            serviceId = m_serviceIds.get(svcName);
+        }
+        return serviceId == null ? -1 : serviceId.intValue();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return "Poller:CachingQueryManager";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onEvent(Event e) {
+        if (e.getNodeid() == null) return;
+        Integer nodeId = Integer.valueOf(e.getNodeid().intValue());
+        if (EventConstants.NODE_LABEL_CHANGED_EVENT_UEI.equals(e.getUei())) {
+            for (Parm parm : e.getParmCollection()) {
+                if (EventConstants.PARM_NEW_NODE_LABEL.equals(parm.getParmName()) && parm.getValue() != null) {
+                    m_nodeLabels.put(nodeId, parm.getValue().getContent());
+                    return;
+                }
+            }
+            // No new label on the event, load it again when needed
+            m_nodeLabels.remove(nodeId);
+        } else {
+            m_nodeLabels.remove(nodeId);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setDataSource(DataSource dataSource) {
+        m_delegate.setDataSource(dataSource);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataSource getDataSource() {
+        return m_delegate.getDataSource();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean activeServiceExists(String whichEvent, int nodeId, String ipAddr, String serviceName) {
+        return m_delegate.activeServiceExists(whichEvent, nodeId, ipAddr, serviceName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Integer> getActiveServiceIdsForInterface(String ipaddr) throws SQLException {
+        return m_delegate.getActiveServiceIdsForInterface(ipaddr);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNodeIDForInterface(String ipaddr) throws SQLException {
+        return m_delegate.getNodeIDForInterface(ipaddr);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getNodeLabel(int nodeId) throws SQLException {
+        ensureLoaded();
+        Integer key = Integer.valueOf(nodeId);
+        String nodeLabel = m_nodeLabels.get(key);
+        if (nodeLabel == null) {
+            nodeLabel = m_delegate.getNodeLabel(nodeId);
+            if (nodeLabel != null) {
+                m_nodeLabels.put(key, nodeLabel);
+            }
+        }
+        return nodeLabel;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getServiceCountForInterface(String ipaddr) throws SQLException {
+        return m_delegate.getServiceCountForInterface(ipaddr);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<IfKey> getInterfacesWithService(String svcName) throws SQLException {
+        return m_delegate.getInterfacesWithService(svcName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Date getServiceLostDate(int nodeId, String ipAddr, String svcName, int serviceId) {
+        if (serviceId < 0) {
+            LOG.warn("Failed to retrieve service identifier for interface {} and service '{}'", ipAddr, svcName);
+            return null;
+        }
+        ensureLoaded();
+        return m_openOutages.get(new ServiceKey(nodeId, ipAddr, svcName));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void openOutage(final String outageIdSQL, final int nodeId, final String ipAddr, final String svcName, final int dbid, final String time) {
+        ensureLoaded();
+        final Timestamp lostTime = toTimestamp(time);
+        m_openOutages.put(new ServiceKey(nodeId, ipAddr, svcName), new Date(lostTime.getTime()));
+        enqueue(new OutageOperation() {
+            @Override
+            void apply(Connection conn, Map<String, PreparedStatement> statements, DBUtils d) throws SQLException {
+                int serviceId = getServiceId(svcName);
+                Statement idStmt = conn.createStatement();
+                d.watch(idStmt);
+                ResultSet rs = idStmt.executeQuery(outageIdSQL);
+                d.watch(rs);
+                if (!rs.next()) {
+                    throw new SQLException("Null outageId returned from SQL: " + outageIdSQL);
+                }
+                Object outageId = rs.getObject(1);
+                rs.close();
+                idStmt.close();
+
+                PreparedStatement stmt = getStatement(conn, statements, d, SQL_OPEN_OUTAGE);
+                stmt.setObject(1, outageId);
+                stmt.setInt(2, dbid);
+                stmt.setInt(3, nodeId);
+                stmt.setString(4, ipAddr);
+                stmt.setInt(5, serviceId);
+                stmt.setTimestamp(6, lostTime);
+                stmt.executeUpdate();
+            }
+
+            @Override
+            void applyDirectly() {
+                m_delegate.openOutage(outageIdSQL, nodeId, ipAddr, svcName, dbid, time);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void resolveOutage(final int nodeId, final String ipAddr, final String svcName, final int dbid, final String time) {
+        ensureLoaded();
+        if (m_openOutages.remove(new ServiceKey(nodeId, ipAddr, svcName)) == null) {
+            // The outage may have been opened by someone else since the cache was loaded,
+            // the update only touches open outages so it is safe to run anyway.
+            LOG.debug("resolveOutage: no cached outage for {}:{}:{}, resolving it in the database", nodeId, ipAddr, svcName);
+        }
+        final Timestamp regainedTime = toTimestamp(time);
+        enqueue(new OutageOperation() {
+            @Override
+            void apply(Connection conn, Map<String, PreparedStatement> statements, DBUtils d) throws SQLException {
+                PreparedStatement stmt = getStatement(conn, statements, d, SQL_RESOLVE_OUTAGE);
+                stmt.setInt(1, dbid);
+                stmt.setTimestamp(2, regainedTime);
+                stmt.setInt(3, nodeId);
+                stmt.setString(4, ipAddr);
+                stmt.setInt(5, getServiceId(svcName));
+                stmt.executeUpdate();
+            }
+
+            @Override
+            void applyDirectly() {
+                m_delegate.resolveOutage(nodeId, ipAddr, svcName, dbid, time);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void reparentOutages(final String ipAddr, final int oldNodeId, final int newNodeId) {
+        ensureLoaded();
+        Map<ServiceKey, Date> moved = new HashMap<ServiceKey, Date>();
+        for (Iterator<Map.Entry<ServiceKey, Date>> it = m_openOutages.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<ServiceKey, Date> entry = it.next();
+            ServiceKey key = entry.getKey();
+            if (key.getNodeId() == oldNodeId && key.getIpAddr().equals(ipAddr)) {
+                moved.put(new ServiceKey(newNodeId, ipAddr, key.getSvcName()), entry.getValue());
+                it.remove();
+            }
+        }
+        m_openOutages.putAll(moved);
+        enqueue(new OutageOperation() {
+            @Override
+            void apply(Connection conn, Map<String, PreparedStatement> statements, DBUtils d) throws SQLException {
+                PreparedStatement stmt = getStatement(conn, statements, d, SQL_REPARENT_OUTAGES);
+                stmt.setInt(1, newNodeId);
+                stmt.setInt(2, oldNodeId);
+                stmt.setString(3, ipAddr);
+                stmt.executeUpdate();
+            }
+
+            @Override
+            void applyDirectly() {
+                m_delegate.reparentOutages(ipAddr, oldNodeId, newNodeId);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void closeOutagesForNode(final Date closeDate, final int eventId, final int nodeId) {
+        ensureLoaded();
+        for (Iterator<ServiceKey> it = m_openOutages.keySet().iterator(); it.hasNext();) {
+            if (it.next().getNodeId() == nodeId) {
+                it.remove();
+            }
+        }
+        enqueue(new OutageOperation() {
+            @Override
+            void apply(Connection conn, Map<String, PreparedStatement> statements, DBUtils d) throws SQLException {
+                PreparedStatement stmt = getStatement(conn, statements, d, DefaultQueryManager.SQL_CLOSE_OUTAGES_FOR_NODE);
+                stmt.setTimestamp(1, new Timestamp(closeDate.getTime()));
+                stmt.setInt(2, eventId);
+                stmt.setInt(3, nodeId);
+                stmt.executeUpdate();
+            }
+
+            @Override
+            void applyDirectly() {
+                m_delegate.closeOutagesForNode(closeDate, eventId, nodeId);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void closeOutagesForInterface(final Date closeDate, final int eventId, final int nodeId, final String ipAddr) {
+        ensureLoaded();
+        for (Iterator<ServiceKey> it = m_openOutages.keySet().iterator(); it.hasNext();) {
+            ServiceKey key = it.next();
+            if (key.getNodeId() == nodeId && key.getIpAddr().equals(ipAddr)) {
+                it.remove();
+            }
+        }
+        enqueue(new OutageOperation() {
+            @Override
+            void apply(Connection conn, Map<String, PreparedStatement> statements, DBUtils d) throws SQLException {
+                PreparedStatement stmt = getStatement(conn, statements, d, DefaultQueryManager.SQL_CLOSE_OUTAGES_FOR_IFACE);
+                stmt.setTimestamp(1, new Timestamp(closeDate.getTime()));
+                stmt.setInt(2, eventId);
+                stmt.setInt(3, nodeId);
+                stmt.setString(4, ipAddr);
+                stmt.executeUpdate();
+            }
+
+            @Override
+            void applyDirectly() {
+                m_delegate.closeOutagesForInterface(closeDate, eventId, nodeId, ipAddr);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void closeOutagesForService(final Date closeDate, final int eventId, final int nodeId, final String ipAddr, final String serviceName) {
+        ensureLoaded();
+        m_openOutages.remove(new ServiceKey(nodeId, ipAddr, serviceName));
+        enqueue(new OutageOperation() {
+            @Override
+            void apply(Connection conn, Map<String, PreparedStatement> statements, DBUtils d) throws SQLException {
+                PreparedStatement stmt = getStatement(conn, statements, d, DefaultQueryManager.SQL_CLOSE_OUTAGES_FOR_SERVICE);
+                stmt.setTimestamp(1, new Timestamp(closeDate.getTime()));
+                stmt.setInt(2, eventId);
+                stmt.setInt(3, nodeId);
+                stmt.setString(4, ipAddr);
+                stmt.setString(5, serviceName);
+                stmt.executeUpdate();
+            }
+
+            @Override
+            void applyDirectly() {
+                m_delegate.closeOutagesForService(closeDate, eventId, nodeId, ipAddr, serviceName);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getCriticalPath(int nodeId) {
+        String[] path = getCriticalPaths().get(Integer.valueOf(nodeId));
+        final String[] cpath = new String[2];
+        if (path != null) {
+            cpath[0] = path[0];
+            cpath[1] = path[1];
+        }
+        if (cpath[0] == null || cpath[0].equals("")) {
+            cpath[0] = OpennmsServerConfigFactory.getInstance().getDefaultCriticalPathIp();
+            cpath[1] = "ICMP";
+        }
+        if (cpath[1] == null || cpath[1].equals("")) {
+            cpath[1] = "ICMP";
+        }
+        return cpath;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String[]> getNodeServices(int nodeId) {
+        return m_delegate.getNodeServices(nodeId);
+    }
+
+}
@@ -89,6 +89,12 @@ public class DefaultQueryManager implements QueryManager {
      */
     final static String SQL_FETCH_IFSERVICES_TO_POLL = "SELECT if.serviceid FROM ifservices if, service s WHERE if.serviceid = s.serviceid AND if.status = 'A' AND if.ipaddr = ?";
 
+    final static String SQL_CLOSE_OUTAGES_FOR_NODE = "UPDATE outages set ifregainedservice = ?, svcRegainedEventId = ? where outages.nodeId = ? AND (outages.ifregainedservice IS NULL)";
+
+    final static String SQL_CLOSE_OUTAGES_FOR_IFACE = "UPDATE outages set ifregainedservice = ?, svcRegainedEventId = ? where outages.nodeId = ? AND outages.ipAddr = ? AND (outages.ifregainedservice IS NULL)";
+
+    final static String SQL_CLOSE_OUTAGES_FOR_SERVICE = "UPDATE outages set ifregainedservice = ?, svcRegainedEventId = ? where outageid in (select outages.outageid from outages, service where outages.nodeid = ? AND outages.ipaddr = ? AND outages.serviceid = service.serviceId AND service.servicename = ? AND outages.ifregainedservice IS NULL)";
+
     final static String SQL_FETCH_INTERFACES_AND_SERVICES_ON_NODE ="SELECT ipaddr,servicename FROM ifservices,service WHERE nodeid= ? AND ifservices.serviceid=service.serviceid";
     
     
@@ -491,6 +497,30 @@ public class DefaultQueryManager implements QueryManager {
         
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void closeOutagesForNode(Date closeDate, int eventId, int nodeId) {
+        Timestamp closeTime = new Timestamp(closeDate.getTime());
+        Updater svcUpdater = new Updater(getDataSource(), SQL_CLOSE_OUTAGES_FOR_NODE);
+        svcUpdater.execute(closeTime, Integer.valueOf(eventId), Integer.valueOf(nodeId));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void closeOutagesForInterface(Date closeDate, int eventId, int nodeId, String ipAddr) {
+        Timestamp closeTime = new Timestamp(closeDate.getTime());
+        Updater svcUpdater = new Updater(getDataSource(), SQL_CLOSE_OUTAGES_FOR_IFACE);
+        svcUpdater.execute(closeTime, Integer.valueOf(eventId), Integer.valueOf(nodeId), ipAddr);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void closeOutagesForService(Date closeDate, int eventId, int nodeId, String ipAddr, String serviceName) {
+        Timestamp closeTime = new Timestamp(closeDate.getTime());
+        Updater svcUpdater = new Updater(getDataSource(), SQL_CLOSE_OUTAGES_FOR_SERVICE);
+        svcUpdater.execute(closeTime, Integer.valueOf(eventId), Integer.valueOf(nodeId), ipAddr, serviceName);
+    }
+
     /**
      * <p>getServiceID</p>
      *
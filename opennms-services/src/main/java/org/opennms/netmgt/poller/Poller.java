@@ -30,15 +30,27 @@ package org.opennms.netmgt.poller;
 
 import java.lang.reflect.UndeclaredThrowableException;
 import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
+import org.opennms.core.fiber.Fiber;
+import org.opennms.core.utils.DBUtils;
 import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.core.utils.Querier;
 import org.opennms.core.utils.Updater;
@@ -75,6 +87,12 @@ public class Poller extends AbstractServiceDaemon {
 
     private final static String LOG4J_CATEGORY = "poller";
 
+    private final static int STARTUP_CHUNK_SIZE = 1000;
+
+    private final static String SQL_UPDATE_SERVICE_STATUS = "UPDATE ifservices SET status = ? WHERE id " +
+            " IN (SELECT ifs.id FROM ifservices AS ifs JOIN service AS svc ON ifs.serviceid = svc.serviceid " +
+            " WHERE ifs.nodeId = ? AND ifs.ipAddr = ? AND svc.servicename = ?)";
+
     private final static Poller m_singleton = new Poller();
 
     private boolean m_initialized = false;
@@ -312,10 +330,7 @@ public class Poller extends AbstractServiceDaemon {
      * @param nodeId a int.
      */
     public void closeOutagesForNode(Date closeDate, int eventId, int nodeId) {
-        Timestamp closeTime = new Timestamp(closeDate.getTime());
-        final String DB_CLOSE_OUTAGES_FOR_NODE = "UPDATE outages set ifregainedservice = ?, svcRegainedEventId = ? where outages.nodeId = ? AND (outages.ifregainedservice IS NULL)";
-        Updater svcUpdater = new Updater(m_dataSource, DB_CLOSE_OUTAGES_FOR_NODE);
-        svcUpdater.execute(closeTime, Integer.valueOf(eventId), Integer.valueOf(nodeId));
+        getQueryManager().closeOutagesForNode(closeDate, eventId, nodeId);
     }
     
     /**
@@ -327,10 +342,7 @@ public class Poller extends AbstractServiceDaemon {
      * @param ipAddr a {@link java.lang.String} object.
      */
     public void closeOutagesForInterface(Date closeDate, int eventId, int nodeId, String ipAddr) {
-        Timestamp closeTime = new Timestamp(closeDate.getTime());
-        final String DB_CLOSE_OUTAGES_FOR_IFACE = "UPDATE outages set ifregainedservice = ?, svcRegainedEventId = ? where outages.nodeId = ? AND outages.ipAddr = ? AND (outages.ifregainedservice IS NULL)";
-        Updater svcUpdater = new Updater(m_dataSource, DB_CLOSE_OUTAGES_FOR_IFACE);
-        svcUpdater.execute(closeTime, Integer.valueOf(eventId), Integer.valueOf(nodeId), ipAddr);
+        getQueryManager().closeOutagesForInterface(closeDate, eventId, nodeId, ipAddr);
     }
     
     /**
@@ -343,10 +355,7 @@ public class Poller extends AbstractServiceDaemon {
      * @param serviceName a {@link java.lang.String} object.
      */
     public void closeOutagesForService(Date closeDate, int eventId, int nodeId, String ipAddr, String serviceName) {
-        Timestamp closeTime = new Timestamp(closeDate.getTime());
-        final String DB_CLOSE_OUTAGES_FOR_SERVICE = "UPDATE outages set ifregainedservice = ?, svcRegainedEventId = ? where outageid in (select outages.outageid from outages, service where outages.nodeid = ? AND outages.ipaddr = ? AND outages.serviceid = service.serviceId AND service.servicename = ? AND outages.ifregainedservice IS NULL)";
-        Updater svcUpdater = new Updater(m_dataSource, DB_CLOSE_OUTAGES_FOR_SERVICE);
-        svcUpdater.execute(closeTime, Integer.valueOf(eventId), Integer.valueOf(nodeId), ipAddr, serviceName);
+        getQueryManager().closeOutagesForService(closeDate, eventId, nodeId, ipAddr, serviceName);
     }
 
     private void createScheduler() {
@@ -372,10 +381,9 @@ public class Poller extends AbstractServiceDaemon {
         // start the scheduler
         //
         try {
-            if (LOG.isDebugEnabled())
-                LOG.debug("start: Starting poller scheduler");
-
-            getScheduler().start();
+            // The scheduler is normally already running, it is started
+            // while the existing services are being scheduled
+            startScheduler();
         } catch (RuntimeException e) {
             LOG.error("start: Failed to start scheduler", e);
             throw e;
@@ -438,22 +446,204 @@ public class Poller extends AbstractServiceDaemon {
     }
 
     private void scheduleExistingServices() throws Exception {
-        scheduleMatchingServices(null);
-        
-        getNetwork().recalculateStatus();
-        getNetwork().propagateInitialCause();
-        getNetwork().resetStatusChanged();
-        
-        
+        final List<ManagedService> services = loadManagedServices();
+        LOG.info("scheduleExistingServices: loaded {} managed services", services.size());
+
+        resolvePackages(services);
+        applyServiceStatusChanges(services);
+
+        // Start polling now, each node is scheduled as soon as its tree is complete
+        startScheduler();
+
+        final Map<Integer, List<ManagedService>> servicesByNode = new LinkedHashMap<Integer, List<ManagedService>>();
+        for (final ManagedService service : services) {
+            List<ManagedService> nodeServices = servicesByNode.get(service.nodeId);
+            if (nodeServices == null) {
+                nodeServices = new ArrayList<ManagedService>();
+                servicesByNode.put(service.nodeId, nodeServices);
+            }
+            nodeServices.add(service);
+        }
+
+        int scheduled = 0;
+        for (final List<ManagedService> nodeServices : servicesByNode.values()) {
+            scheduled += scheduleNodeServices(nodeServices);
+        }
+        LOG.info("scheduleExistingServices: scheduled {} services on {} nodes", scheduled, servicesByNode.size());
+
         // Debug dump pollable network
         //
         LOG.debug("scheduleExistingServices: dumping content of pollable network: ");
         getNetwork().dump();
 
-        
+    }
 
+    private void startScheduler() {
+        synchronized (getScheduler()) {
+            if (getScheduler().getStatus() == Fiber.START_PENDING) {
+                LOG.debug("startScheduler: Starting poller scheduler");
+                getScheduler().start();
+            }
+        }
     }
-    
+
+    /**
+     * A row of the managed services query, along with its polling package.
+     */
+    private static final class ManagedService {
+        final Integer nodeId;
+        final String nodeLabel;
+        final String ipAddr;
+        final String serviceName;
+        final boolean active;
+        final Number svcLostEventId;
+        final Date ifLostService;
+        final String svcLostEventUei;
+        Package pkg;
+
+        ManagedService(final ResultSet rs) throws SQLException {
+            nodeId = Integer.valueOf(rs.getInt("nodeId"));
+            nodeLabel = rs.getString("nodeLabel");
+            ipAddr = rs.getString("ipAddr");
+            serviceName = rs.getString("serviceName");
+            active = "A".equals(rs.getString("status"));
+            svcLostEventId = (Number)rs.getObject("svcLostEventId");
+            ifLostService = rs.getTimestamp("ifLostService");
+            svcLostEventUei = rs.getString("svcLostEventUei");
+        }
+    }
+
+    private List<ManagedService> loadManagedServices() {
+        final List<ManagedService> services = new ArrayList<ManagedService>();
+        Querier querier = new Querier(m_dataSource, getManagedServicesQuery(null)) {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                services.add(new ManagedService(rs));
+            }
+        };
+        querier.execute();
+        return services;
+    }
+
+    /**
+     * Looks up the polling package of every service, spreading the work over
+     * the available processors.
+     */
+    private void resolvePackages(final List<ManagedService> services) throws Exception {
+        final ServicePackageIndex index = new ServicePackageIndex(m_pollerConfig);
+        final int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), services.size() / STARTUP_CHUNK_SIZE));
+        if (threads == 1) {
+            for (final ManagedService service : services) {
+                service.pkg = index.findPackageForService(service.ipAddr, service.serviceName);
+            }
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new LogPreservingThreadFactory("PollerStartup", threads, false));
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int start = 0; start < services.size(); start += STARTUP_CHUNK_SIZE) {
+                final List<ManagedService> chunk = services.subList(start, Math.min(start + STARTUP_CHUNK_SIZE, services.size()));
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (final ManagedService service : chunk) {
+                            service.pkg = index.findPackageForService(service.ipAddr, service.serviceName);
+                        }
+                    }
+                }));
+            }
+            // Future.get() also makes the package assignments visible to this thread
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Marks active services without a package as not polled, and not polled
+     * services with a package as active, in batches.
+     */
+    private void applyServiceStatusChanges(final List<ManagedService> services) throws SQLException {
+        final List<ManagedService> changed = new ArrayList<ManagedService>();
+        for (final ManagedService service : services) {
+            if ((service.pkg == null) == service.active) {
+                changed.add(service);
+            }
+        }
+        // We don't want to adjust the management state of the service if we're
+        // on a machine that uses multiple servers with access to the same database
+        if (changed.isEmpty() || OpennmsServerConfigFactory.getInstance().verifyServer()) {
+            return;
+        }
+
+        final DBUtils d = new DBUtils(getClass());
+        try {
+            final Connection conn = m_dataSource.getConnection();
+            d.watch(conn);
+            final PreparedStatement stmt = conn.prepareStatement(SQL_UPDATE_SERVICE_STATUS);
+            d.watch(stmt);
+
+            int pending = 0;
+            for (final ManagedService service : changed) {
+                final String status;
+                if (service.pkg == null) {
+                    LOG.warn("Active service {} on {} not configured for any package. Marking as Not Polled.", service.serviceName, service.ipAddr);
+                    status = "N";
+                } else {
+                    LOG.info("Active service {} on {} is now configured for any package. Marking as active.", service.serviceName, service.ipAddr);
+                    status = "A";
+                }
+                stmt.setString(1, status);
+                stmt.setInt(2, service.nodeId.intValue());
+                stmt.setString(3, service.ipAddr);
+                stmt.setString(4, service.serviceName);
+                stmt.addBatch();
+                if (++pending == STARTUP_CHUNK_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+            LOG.debug("applyServiceStatusChanges: updated the status of {} services", changed.size());
+        } finally {
+            d.cleanUp();
+        }
+    }
+
+    /**
+     * Builds and schedules the services of one node while holding its tree
+     * lock, so the node is only polled once its initial status is known.
+     */
+    private int scheduleNodeServices(final List<ManagedService> nodeServices) {
+        final ManagedService first = nodeServices.get(0);
+        final PollableNode node = getNetwork().createNodeIfNecessary(first.nodeId.intValue(), first.nodeLabel);
+        final AtomicInteger count = new AtomicInteger(0);
+        try {
+            node.withTreeLock(new Runnable() {
+                @Override
+                public void run() {
+                    for (final ManagedService service : nodeServices) {
+                        if (service.pkg != null && scheduleService(node, service.ipAddr, service.serviceName, service.pkg, service.svcLostEventId, service.ifLostService, service.svcLostEventUei)) {
+                            count.incrementAndGet();
+                        }
+                    }
+                    node.recalculateStatus();
+                    node.extrapolateCause();
+                    node.inheritParentalCause();
+                    node.resetStatusChanged();
+                }
+            });
+        } catch (final Throwable e) {
+            LOG.error("Unable to schedule services for node {}", first.nodeId, e);
+        }
+        return count.get();
+    }
+
     /**
      * <p>scheduleService</p>
      *
@@ -497,8 +687,8 @@ public class Poller extends AbstractServiceDaemon {
         }
     }
     
-    private int scheduleMatchingServices(String criteria) {
-        String sql = "SELECT ifServices.nodeId AS nodeId, node.nodeLabel AS nodeLabel, ifServices.ipAddr AS ipAddr, " +
+    private static String getManagedServicesQuery(String criteria) {
+        return "SELECT ifServices.nodeId AS nodeId, node.nodeLabel AS nodeLabel, ifServices.ipAddr AS ipAddr, " +
                 "ifServices.serviceId AS serviceId, service.serviceName AS serviceName, ifServices.status as status, " +
                 "outages.svcLostEventId AS svcLostEventId, events.eventUei AS svcLostEventUei, " +
                 "outages.ifLostService AS ifLostService, outages.ifRegainedService AS ifRegainedService " +
@@ -513,7 +703,10 @@ public class Poller extends AbstractServiceDaemon {
         "LEFT OUTER JOIN events ON outages.svcLostEventId = events.eventid " +
         "WHERE ifServices.status in ('A','N')" +
         (criteria == null ? "" : " AND "+criteria);
-       
+    }
+
+    private int scheduleMatchingServices(String criteria) {
+        String sql = getManagedServicesQuery(criteria);
         
         final AtomicInteger count = new AtomicInteger(0);
         
@@ -535,11 +728,7 @@ public class Poller extends AbstractServiceDaemon {
     }
     
     private void updateServiceStatus(int nodeId, String ipAddr, String serviceName, String status) {
-        final String sql = "UPDATE ifservices SET status = ? WHERE id " +
-        		" IN (SELECT ifs.id FROM ifservices AS ifs JOIN service AS svc ON ifs.serviceid = svc.serviceid " +
-        		" WHERE ifs.nodeId = ? AND ifs.ipAddr = ? AND svc.servicename = ?)"; 
-
-        Updater updater = new Updater(m_dataSource, sql);
+        Updater updater = new Updater(m_dataSource, SQL_UPDATE_SERVICE_STATUS);
         updater.execute(status, nodeId, ipAddr, serviceName);
         
     }
@@ -561,6 +750,10 @@ public class Poller extends AbstractServiceDaemon {
             updateServiceStatus(nodeId, ipAddr, serviceName, "A");
         }
 
+        return scheduleService(getNetwork().createNodeIfNecessary(nodeId, nodeLabel), ipAddr, serviceName, pkg, svcLostEventId, date, svcLostUei);
+    }
+
+    private boolean scheduleService(PollableNode node, String ipAddr, String serviceName, Package pkg, Number svcLostEventId, Date date, String svcLostUei) {
         ServiceMonitor monitor = m_pollerConfig.getServiceMonitor(serviceName);
         if (monitor == null) {
             LOG.info("Could not find service monitor associated with service {}", serviceName);
@@ -574,7 +767,7 @@ public class Poller extends AbstractServiceDaemon {
             return false;
         }
         
-        PollableService svc = getNetwork().createService(nodeId, nodeLabel, addr, serviceName);
+        PollableService svc = node.createService(addr, serviceName);
         PollableServiceConfig pollConfig = new PollableServiceConfig(svc, m_pollerConfig, m_pollOutagesConfig, pkg, getScheduler());
         svc.setPollConfig(pollConfig);
         synchronized(svc) {
@@ -718,6 +911,25 @@ public class Poller extends AbstractServiceDaemon {
         }
     }
 
+    /**
+     * Returns the number of times a poll or an event had to wait for a
+     * node's tree lock.
+     *
+     * @return the number of contended tree lock acquisitions
+     */
+    public long getTreeLockContendedCount() {
+        return (m_network == null ? 0L : m_network.getTreeLockContendedCount());
+    }
+
+    /**
+     * Returns the total time spent waiting for node tree locks.
+     *
+     * @return the wait time in milliseconds
+     */
+    public long getTreeLockWaitTime() {
+        return (m_network == null ? 0L : m_network.getTreeLockWaitTime());
+    }
+
     public static String getLoggingCategory() {
         return LOG4J_CATEGORY;
 	}
@@ -157,6 +157,36 @@ public interface QueryManager {
      * @param newNodeId a int.
      */
     public void reparentOutages(String ipAddr, int oldNodeId, int newNodeId);
+
+    /**
+     * <p>closeOutagesForNode</p>
+     *
+     * @param closeDate a {@link java.util.Date} object.
+     * @param eventId a int.
+     * @param nodeId a int.
+     */
+    public void closeOutagesForNode(Date closeDate, int eventId, int nodeId);
+
+    /**
+     * <p>closeOutagesForInterface</p>
+     *
+     * @param closeDate a {@link java.util.Date} object.
+     * @param eventId a int.
+     * @param nodeId a int.
+     * @param ipAddr a {@link java.lang.String} object.
+     */
+    public void closeOutagesForInterface(Date closeDate, int eventId, int nodeId, String ipAddr);
+
+    /**
+     * <p>closeOutagesForService</p>
+     *
+     * @param closeDate a {@link java.util.Date} object.
+     * @param eventId a int.
+     * @param nodeId a int.
+     * @param ipAddr a {@link java.lang.String} object.
+     * @param serviceName a {@link java.lang.String} object.
+     */
+    public void closeOutagesForService(Date closeDate, int eventId, int nodeId, String ipAddr, String serviceName);
     
     
 
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.poller;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opennms.netmgt.config.PollerConfig;
+import org.opennms.netmgt.config.poller.Package;
+
+/**
+ * <p>ServicePackageIndex resolves the polling package of many services
+ * against the same snapshot of the poller packages.</p>
+ *
+ * <p>The package membership of each service name and of each interface is
+ * evaluated once and remembered, so resolving the packages of all the
+ * services on an interface costs one pass over the packages instead of
+ * one per service. The index is safe to use from several threads.</p>
+ *
+ * <p>It applies the same rules as {@link Poller#pollableServiceInPackage}
+ * before the poller is initialized: remote packages are skipped, and the
+ * last matching package wins.</p>
+ */
+class ServicePackageIndex {
+
+    private final PollerConfig m_pollerConfig;
+
+    private final List<Package> m_packages = new ArrayList<Package>();
+
+    private final ConcurrentMap<String, boolean[]> m_servicePackages = new ConcurrentHashMap<String, boolean[]>();
+
+    private final ConcurrentMap<String, boolean[]> m_interfacePackages = new ConcurrentHashMap<String, boolean[]>();
+
+    /**
+     * <p>Constructor for ServicePackageIndex.</p>
+     *
+     * @param pollerConfig a {@link org.opennms.netmgt.config.PollerConfig} object.
+     */
+    ServicePackageIndex(PollerConfig pollerConfig) {
+        m_pollerConfig = pollerConfig;
+        Enumeration<Package> en = pollerConfig.enumeratePackage();
+        while (en.hasMoreElements()) {
+            m_packages.add(en.nextElement());
+        }
+    }
+
+    /**
+     * <p>findPackageForService</p>
+     *
+     * @param ipAddr a {@link java.lang.String} object.
+     * @param serviceName a {@link java.lang.String} object.
+     * @return the last package that polls the service on the interface, or null.
+     */
+    Package findPackageForService(String ipAddr, String serviceName) {
+        boolean[] svcMembership = getServiceMembership(serviceName);
+        boolean[] ifMembership = null;
+        for (int i = m_packages.size() - 1; i >= 0; i--) {
+            if (!svcMembership[i]) continue;
+            if (ifMembership == null) {
+                ifMembership = getInterfaceMembership(ipAddr);
+            }
+            if (ifMembership[i]) {
+                return m_packages.get(i);
+            }
+        }
+        return null;
+    }
+
+    private boolean[] getServiceMembership(String serviceName) {
+        boolean[] membership = m_servicePackages.get(serviceName);
+        if (membership == null) {
+            membership = new boolean[m_packages.size()];
+            for (int i = 0; i < membership.length; i++) {
+                Package pkg = m_packages.get(i);
+                membership[i] = !pkg.getRemote() && m_pollerConfig.isServiceInPackageAndEnabled(serviceName, pkg);
+            }
+            // Another thread may have raced us here, either result is the same
+            m_servicePackages.putIfAbsent(serviceName, membership);
+        }
+        return membership;
+    }
+
+    private boolean[] getInterfaceMembership(String ipAddr) {
+        boolean[] membership = m_interfacePackages.get(ipAddr);
+        if (membership == null) {
+            membership = new boolean[m_packages.size()];
+            for (int i = 0; i < membership.length; i++) {
+                Package pkg = m_packages.get(i);
+                membership[i] = !pkg.getRemote() && m_pollerConfig.isInterfaceInPackage(ipAddr, pkg);
+            }
+            m_interfacePackages.putIfAbsent(ipAddr, membership);
+        }
+        return membership;
+    }
+
+}
@@ -55,4 +55,16 @@ public class Pollerd extends AbstractSpringContextJmxServiceDaemon<org.opennms.n
     public long getNumPolls() {
         return getDaemon().getNumPolls();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTreeLockContendedCount() {
+        return getDaemon().getTreeLockContendedCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTreeLockWaitTime() {
+        return getDaemon().getTreeLockWaitTime();
+    }
 }
@@ -43,4 +43,20 @@ public interface PollerdMBean extends BaseOnmsMBean {
      * @return the number of polls that have been executed
      */
     public long getNumPolls();
+
+    /**
+     * Returns the number of times a thread had to wait for a node's tree
+     * lock (counter).
+     *
+     * @return the number of contended tree lock acquisitions
+     */
+    public long getTreeLockContendedCount();
+
+    /**
+     * Returns the total time, in milliseconds, threads spent waiting for
+     * node tree locks (counter).
+     *
+     * @return the tree lock wait time
+     */
+    public long getTreeLockWaitTime();
 }
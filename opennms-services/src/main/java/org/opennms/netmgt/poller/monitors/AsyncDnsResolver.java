@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.poller.monitors;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.core.utils.TimeoutTracker;
+import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.PollStatusCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Type;
+
+/**
+ * Runs the lookups of {@link DnsMonitor} on non-blocking UDP channels, all
+ * driven by a single selector thread. Each poll keeps the semantics of the
+ * blocking monitor: the same retries and per-attempt timeout, the same fatal
+ * response codes and the same status for each kind of failure.
+ */
+final class AsyncDnsResolver implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncDnsResolver.class);
+
+    private static AsyncDnsResolver m_instance;
+
+    private final Selector m_selector;
+
+    private final Queue<DnsQuery> m_newQueries = new ConcurrentLinkedQueue<DnsQuery>();
+
+    /** Large enough for any UDP datagram, only used by the selector thread */
+    private final ByteBuffer m_readBuffer = ByteBuffer.allocate(65535);
+
+    /**
+     * Returns the shared resolver, starting its selector thread on first use.
+     */
+    static synchronized AsyncDnsResolver getInstance() throws IOException {
+        if (m_instance == null) {
+            AsyncDnsResolver resolver = new AsyncDnsResolver(Selector.open());
+            Thread thread = new Thread(resolver, "AsyncDnsResolver");
+            thread.setDaemon(true);
+            thread.start();
+            m_instance = resolver;
+        }
+        return m_instance;
+    }
+
+    private AsyncDnsResolver(Selector selector) {
+        m_selector = selector;
+    }
+
+    /**
+     * Starts looking up the A record of a name on a DNS server. The callback
+     * is invoked from the selector thread.
+     */
+    void poll(InetAddress address, int port, String lookup, List<Integer> fatalCodes, TimeoutTracker tracker, PollStatusCallback callback) {
+        m_newQueries.add(new DnsQuery(address, port, lookup, fatalCodes, tracker, callback));
+        m_selector.wakeup();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                long now = System.currentTimeMillis();
+                DnsQuery query;
+                while ((query = m_newQueries.poll()) != null) {
+                    query.start(now);
+                }
+
+                long nextDeadline = expire(now);
+                if (nextDeadline == Long.MAX_VALUE) {
+                    m_selector.select();
+                } else {
+                    m_selector.select(Math.max(1L, nextDeadline - System.currentTimeMillis()));
+                }
+
+                for (Iterator<SelectionKey> it = m_selector.selectedKeys().iterator(); it.hasNext();) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (key.isValid() && key.isReadable()) {
+                        ((DnsQuery) key.attachment()).read();
+                    }
+                }
+            } catch (Throwable t) {
+                LOG.error("Unexpected error in the DNS poll selector loop", t);
+            }
+        }
+    }
+
+    /**
+     * Times out the attempts past their deadline and returns the earliest
+     * deadline of the remaining ones.
+     */
+    private long expire(long now) {
+        long nextDeadline = Long.MAX_VALUE;
+        List<DnsQuery> expired = new ArrayList<DnsQuery>();
+        for (SelectionKey key : m_selector.keys()) {
+            if (!key.isValid()) continue;
+            DnsQuery query = (DnsQuery) key.attachment();
+            if (query.m_deadline <= now) {
+                expired.add(query);
+            } else {
+                nextDeadline = Math.min(nextDeadline, query.m_deadline);
+            }
+        }
+        for (DnsQuery query : expired) {
+            query.timedOut(now);
+        }
+        return nextDeadline;
+    }
+
+    private final class DnsQuery {
+        private final InetAddress m_address;
+        private final int m_port;
+        private final String m_lookup;
+        private final List<Integer> m_fatalCodes;
+        private final TimeoutTracker m_tracker;
+        private final PollStatusCallback m_callback;
+        private final String m_addr;
+
+        private DatagramChannel m_channel;
+        private SelectionKey m_key;
+        private int m_queryId;
+        private long m_deadline;
+
+        DnsQuery(InetAddress address, int port, String lookup, List<Integer> fatalCodes, TimeoutTracker tracker, PollStatusCallback callback) {
+            m_address = address;
+            m_port = port;
+            m_lookup = lookup;
+            m_fatalCodes = fatalCodes;
+            m_tracker = tracker;
+            m_callback = callback;
+            m_addr = InetAddressUtils.str(address);
+            m_tracker.reset();
+        }
+
+        void start(long now) {
+            try {
+                final Name name = Name.fromString(m_lookup, Name.root);
+                final Record question = Record.newRecord(name, Type.A, DClass.IN);
+                final Message query = Message.newQuery(question);
+                m_queryId = query.getHeader().getID();
+
+                // Same whole-second timeout as SimpleResolver.setTimeout() in the blocking monitor
+                long timeout = m_tracker.getSoTimeout() / 1000;
+                m_deadline = now + (timeout < 1 ? 1 : timeout) * 1000L;
+
+                m_channel = DatagramChannel.open();
+                m_channel.configureBlocking(false);
+                m_channel.connect(new InetSocketAddress(m_address, m_port));
+                m_tracker.startAttempt();
+                m_channel.write(ByteBuffer.wrap(query.toWire()));
+                m_key = m_channel.register(m_selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        void read() {
+            try {
+                m_readBuffer.clear();
+                if (m_channel.read(m_readBuffer) <= 0) {
+                    return;
+                }
+                double responseTime = m_tracker.elapsedTimeInMillis();
+                m_readBuffer.flip();
+                byte[] data = new byte[m_readBuffer.remaining()];
+                m_readBuffer.get(data);
+
+                final Message response = new Message(data);
+                if (response.getHeader().getID() != m_queryId) {
+                    // A late answer to an earlier attempt, keep waiting for ours
+                    LOG.debug("ignoring DNS response with id {} from {}, expected {}", response.getHeader().getID(), m_addr, m_queryId);
+                    return;
+                }
+
+                final Integer rcode = response.getHeader().getRcode();
+                LOG.debug("received response code: {}", rcode);
+
+                if (m_fatalCodes.contains(rcode)) {
+                    String reason = "Received an invalid DNS response for address: " + m_addr;
+                    LOG.debug(reason);
+                    complete(PollStatus.unavailable(reason));
+                } else {
+                    LOG.debug("valid DNS request received, responseTime= {}ms", responseTime);
+                    complete(PollStatus.available(responseTime));
+                }
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        void timedOut(long now) {
+            // No response received, retry without marking the poll failed
+            close();
+            m_tracker.nextAttempt();
+            if (m_tracker.shouldRetry()) {
+                start(now);
+            } else {
+                String reason = "Never received valid DNS response for address: " + m_addr;
+                LOG.debug(reason);
+                complete(PollStatus.unavailable(reason));
+            }
+        }
+
+        private void failed(IOException e) {
+            String reason;
+            if (e instanceof NoRouteToHostException) {
+                reason = "No route to host exception for address: " + m_addr;
+            } else if (e instanceof ConnectException) {
+                reason = "Connection exception for address: " + m_addr;
+            } else {
+                reason = "IOException while polling address: " + m_addr + " " + e.getMessage();
+            }
+            LOG.debug(reason, e);
+            complete(PollStatus.unavailable(reason));
+        }
+
+        private void complete(PollStatus status) {
+            close();
+            try {
+                m_callback.complete(status);
+            } catch (Throwable t) {
+                LOG.warn("Unexpected error handling the result of the DNS poll of {}:{}", m_addr, m_port, t);
+            }
+        }
+
+        private void close() {
+            if (m_key != null) {
+                m_key.cancel();
+                m_key = null;
+            }
+            if (m_channel != null) {
+                try {
+                    m_channel.close();
+                } catch (IOException e) {
+                    LOG.debug("poll: Error closing channel.", e);
+                }
+                m_channel = null;
+            }
+        }
+    }
+
+}
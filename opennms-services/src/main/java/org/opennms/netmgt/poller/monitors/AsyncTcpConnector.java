@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.poller.monitors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.core.utils.TimeoutTracker;
+import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.PollStatusCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the connect and banner checks of {@link TcpMonitor} on non-blocking
+ * channels, all driven by a single selector thread. Each poll keeps the
+ * semantics of the blocking monitor: the same retries and timeouts, the same
+ * status for each kind of failure and the same banner matching on the first
+ * line the service sends.
+ */
+final class AsyncTcpConnector implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncTcpConnector.class);
+
+    /** The longest banner line that is read, longer lines are cut here */
+    private static final int MAX_BANNER_LENGTH = 8192;
+
+    private static AsyncTcpConnector m_instance;
+
+    private final Selector m_selector;
+
+    private final Queue<TcpPoll> m_newPolls = new ConcurrentLinkedQueue<TcpPoll>();
+
+    /** Polls waiting to start their next attempt, only used by the selector thread */
+    private final List<TcpPoll> m_retries = new ArrayList<TcpPoll>();
+
+    private final ByteBuffer m_readBuffer = ByteBuffer.allocate(1024);
+
+    /**
+     * Returns the shared connector, starting its selector thread on first use.
+     */
+    static synchronized AsyncTcpConnector getInstance() throws IOException {
+        if (m_instance == null) {
+            AsyncTcpConnector connector = new AsyncTcpConnector(Selector.open());
+            Thread thread = new Thread(connector, "AsyncTcpConnector");
+            thread.setDaemon(true);
+            thread.start();
+            m_instance = connector;
+        }
+        return m_instance;
+    }
+
+    private AsyncTcpConnector(Selector selector) {
+        m_selector = selector;
+    }
+
+    /**
+     * Starts polling a TCP service. The callback is invoked from the selector
+     * thread.
+     */
+    void poll(InetAddress address, int port, String bannerMatch, TimeoutTracker tracker, boolean strictTimeouts, PollStatusCallback callback) {
+        m_newPolls.add(new TcpPoll(address, port, bannerMatch, tracker, strictTimeouts, callback));
+        m_selector.wakeup();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                long now = System.currentTimeMillis();
+                TcpPoll poll;
+                while ((poll = m_newPolls.poll()) != null) {
+                    poll.start(now);
+                }
+                startRetries(now);
+
+                long nextDeadline = expire(now);
+                for (TcpPoll retry : m_retries) {
+                    nextDeadline = Math.min(nextDeadline, retry.m_notBefore);
+                }
+
+                if (nextDeadline == Long.MAX_VALUE) {
+                    m_selector.select();
+                } else {
+                    m_selector.select(Math.max(1L, nextDeadline - System.currentTimeMillis()));
+                }
+
+                for (Iterator<SelectionKey> it = m_selector.selectedKeys().iterator(); it.hasNext();) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    TcpPoll selected = (TcpPoll) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isConnectable()) {
+                        selected.finishConnect();
+                    } else if (key.isReadable()) {
+                        selected.read();
+                    }
+                }
+            } catch (Throwable t) {
+                LOG.error("Unexpected error in the TCP poll selector loop", t);
+            }
+        }
+    }
+
+    private void startRetries(long now) {
+        if (m_retries.isEmpty()) return;
+        List<TcpPoll> ready = new ArrayList<TcpPoll>();
+        for (Iterator<TcpPoll> it = m_retries.iterator(); it.hasNext();) {
+            TcpPoll retry = it.next();
+            if (retry.m_notBefore <= now) {
+                it.remove();
+                ready.add(retry);
+            }
+        }
+        for (TcpPoll retry : ready) {
+            retry.start(now);
+        }
+    }
+
+    /**
+     * Times out the attempts past their deadline and returns the earliest
+     * deadline of the remaining ones.
+     */
+    private long expire(long now) {
+        long nextDeadline = Long.MAX_VALUE;
+        List<TcpPoll> expired = new ArrayList<TcpPoll>();
+        for (SelectionKey key : m_selector.keys()) {
+            if (!key.isValid()) continue;
+            TcpPoll poll = (TcpPoll) key.attachment();
+            if (poll.m_deadline <= now) {
+                expired.add(poll);
+            } else {
+                nextDeadline = Math.min(nextDeadline, poll.m_deadline);
+            }
+        }
+        for (TcpPoll poll : expired) {
+            poll.timedOut();
+        }
+        return nextDeadline;
+    }
+
+    private final class TcpPoll {
+        private final InetAddress m_address;
+        private final int m_port;
+        private final String m_bannerMatch;
+        private final TimeoutTracker m_tracker;
+        private final boolean m_strictTimeouts;
+        private final PollStatusCallback m_callback;
+
+        private PollStatus m_status = PollStatus.unavailable();
+        private SocketChannel m_channel;
+        private SelectionKey m_key;
+        private ByteArrayOutputStream m_banner;
+        private long m_attemptStart;
+        private long m_deadline;
+        private long m_notBefore;
+
+        TcpPoll(InetAddress address, int port, String bannerMatch, TimeoutTracker tracker, boolean strictTimeouts, PollStatusCallback callback) {
+            m_address = address;
+            m_port = port;
+            m_bannerMatch = bannerMatch;
+            m_tracker = tracker;
+            m_strictTimeouts = strictTimeouts;
+            m_callback = callback;
+            m_tracker.reset();
+        }
+
+        void start(long now) {
+            m_tracker.startAttempt();
+            m_attemptStart = now;
+            m_banner = null;
+            try {
+                m_channel = SocketChannel.open();
+                m_channel.configureBlocking(false);
+                m_deadline = now + m_tracker.getConnectionTimeout();
+                if (m_channel.connect(new InetSocketAddress(m_address, m_port))) {
+                    m_key = m_channel.register(m_selector, 0, this);
+                    connected();
+                } else {
+                    m_key = m_channel.register(m_selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        void finishConnect() {
+            try {
+                if (m_channel.finishConnect()) {
+                    connected();
+                }
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        private void connected() {
+            LOG.debug("TcpMonitor: connected to host: {} on port: {}", m_address, m_port);
+
+            // We're connected, so upgrade status to unresponsive
+            m_status = PollStatus.unresponsive();
+
+            if (m_bannerMatch == null || m_bannerMatch.length() == 0 || m_bannerMatch.equals("*")) {
+                complete(PollStatus.available(m_tracker.elapsedTimeInMillis()));
+                return;
+            }
+
+            m_banner = new ByteArrayOutputStream();
+            m_deadline = System.currentTimeMillis() + m_tracker.getSoTimeout();
+            m_key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void read() {
+            try {
+                m_readBuffer.clear();
+                int count = m_channel.read(m_readBuffer);
+                if (count < 0) {
+                    // End of stream, check whatever was sent as the banner line
+                    if (m_banner.size() == 0) {
+                        retry(m_status);
+                    } else {
+                        checkBanner();
+                    }
+                    return;
+                }
+                m_readBuffer.flip();
+                while (m_readBuffer.hasRemaining()) {
+                    byte b = m_readBuffer.get();
+                    if (b == '\n' || m_banner.size() >= MAX_BANNER_LENGTH) {
+                        checkBanner();
+                        return;
+                    }
+                    m_banner.write(b);
+                }
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        private void checkBanner() {
+            String response = m_banner.toString();
+            if (response.endsWith("\r")) {
+                response = response.substring(0, response.length() - 1);
+            }
+            double responseTime = m_tracker.elapsedTimeInMillis();
+
+            LOG.debug("poll: banner = {}", response);
+            LOG.debug("poll: responseTime= {}ms", responseTime);
+
+            if (response.indexOf(m_bannerMatch) > -1) {
+                complete(PollStatus.available(responseTime));
+            } else {
+                retry(PollStatus.unavailable("Banner: '"+response+"' does not contain match string '"+m_bannerMatch+"'"));
+            }
+        }
+
+        void timedOut() {
+            String reason = "did not connect to host with " + m_tracker;
+            LOG.debug(reason);
+            retry(PollStatus.unavailable(reason));
+        }
+
+        private void failed(IOException e) {
+            if (e instanceof NoRouteToHostException) {
+                String reason = "No route to host exception for address " + InetAddressUtils.str(m_address);
+                LOG.debug(reason, e);
+                complete(PollStatus.unavailable(reason));
+            } else if (e instanceof ConnectException) {
+                String reason = "Connection exception for address: " + m_address;
+                LOG.debug(reason, e);
+                retry(PollStatus.unavailable(reason));
+            } else {
+                String reason = "IOException while polling address: " + m_address;
+                LOG.debug(reason, e);
+                retry(PollStatus.unavailable(reason));
+            }
+        }
+
+        private void retry(PollStatus status) {
+            close();
+            m_status = status;
+            m_tracker.nextAttempt();
+            if (!m_tracker.shouldRetry()) {
+                complete(m_status);
+                return;
+            }
+            // With strict timeouts an attempt never starts before the previous one timed out
+            m_notBefore = m_strictTimeouts ? m_attemptStart + m_tracker.getTimeoutInMillis() : 0L;
+            m_retries.add(this);
+        }
+
+        private void complete(PollStatus status) {
+            close();
+            try {
+                m_callback.complete(status);
+            } catch (Throwable t) {
+                LOG.warn("Unexpected error handling the result of the TCP poll of {}:{}", m_address, m_port, t);
+            }
+        }
+
+        private void close() {
+            if (m_key != null) {
+                m_key.cancel();
+                m_key = null;
+            }
+            if (m_channel != null) {
+                try {
+                    m_channel.close();
+                } catch (IOException e) {
+                    LOG.debug("poll: Error closing socket.", e);
+                }
+                m_channel = null;
+            }
+        }
+    }
+
+}
@@ -44,10 +44,12 @@ import org.slf4j.LoggerFactory;
 import org.opennms.core.utils.ParameterMap;
 import org.opennms.core.utils.TimeoutTracker;
 import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.AsyncServiceMonitor;
 import org.opennms.netmgt.poller.Distributable;
 import org.opennms.netmgt.poller.MonitoredService;
 import org.opennms.netmgt.poller.NetworkInterface;
 import org.opennms.netmgt.poller.NetworkInterfaceNotSupportedException;
+import org.opennms.netmgt.poller.PollStatusCallback;
 import org.xbill.DNS.DClass;
 import org.xbill.DNS.Message;
 import org.xbill.DNS.Name;
@@ -67,7 +69,7 @@ import org.xbill.DNS.Type;
  * @author <A HREF="http://www.opennms.org/">OpenNMS </A>
  */
 @Distributable
-final public class DnsMonitor extends AbstractServiceMonitor {
+final public class DnsMonitor extends AbstractServiceMonitor implements AsyncServiceMonitor {
     private static final Logger LOG = LoggerFactory.getLogger(DnsMonitor.class);
     /**
      * Default DNS port.
@@ -122,24 +124,9 @@ final public class DnsMonitor extends AbstractServiceMonitor {
         TimeoutTracker timeoutTracker = new TimeoutTracker(parameters, DEFAULT_RETRY, DEFAULT_TIMEOUT);
         int port = ParameterMap.getKeyedInteger(parameters, "port", DEFAULT_PORT);
 
-        // Host to lookup?
-        //
-        String lookup = ParameterMap.getKeyedString(parameters, "lookup", null);
-        if (lookup == null || lookup.length() == 0) {
-            // Get hostname of local machine for future DNS lookups
-        	lookup = InetAddressUtils.getLocalHostAddressAsString();
-        	if (lookup == null) {
-        		throw new UnsupportedOperationException("Unable to look up local host address.");
-        	}
-        }
+        String lookup = getLookup(parameters);
+        final List<Integer> fatalCodes = getFatalCodes(parameters);
 
-        // What do we consider fatal?
-        //
-        final List<Integer> fatalCodes = new ArrayList<Integer>();
-        for (final int code : ParameterMap.getKeyedIntegerArray(parameters, "fatal-response-codes", DEFAULT_FATAL_RESP_CODES)) {
-            fatalCodes.add(code);
-        }
-        
         // get the address and DNS address request
         //
         final InetAddress addr = iface.getAddress();
@@ -160,6 +147,59 @@ final public class DnsMonitor extends AbstractServiceMonitor {
         return serviceStatus;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Runs the same lookup as {@link #poll(MonitoredService, Map)} on a
+     * non-blocking UDP channel, so no thread waits for the response or the
+     * timeouts.
+     */
+    @Override
+    public void poll(MonitoredService svc, Map<String, Object> parameters, PollStatusCallback callback) {
+        NetworkInterface<InetAddress> iface = svc.getNetInterface();
+
+        if (iface.getType() != NetworkInterface.TYPE_INET)
+            throw new NetworkInterfaceNotSupportedException("Unsupported interface type, only TYPE_INET currently supported");
+
+        TimeoutTracker timeoutTracker = new TimeoutTracker(parameters, DEFAULT_RETRY, DEFAULT_TIMEOUT);
+        int port = ParameterMap.getKeyedInteger(parameters, "port", DEFAULT_PORT);
+        String lookup = getLookup(parameters);
+        List<Integer> fatalCodes = getFatalCodes(parameters);
+        InetAddress addr = iface.getAddress();
+
+        try {
+            AsyncDnsResolver.getInstance().poll(addr, port, lookup, fatalCodes, timeoutTracker, callback);
+        } catch (IOException e) {
+            String reason = "IOException while polling address: " + InetAddressUtils.str(addr) + " " + e.getMessage();
+            LOG.debug(reason, e);
+            callback.complete(PollStatus.unavailable(reason));
+        }
+    }
+
+    private static String getLookup(Map<String, Object> parameters) {
+        // Host to lookup?
+        //
+        String lookup = ParameterMap.getKeyedString(parameters, "lookup", null);
+        if (lookup == null || lookup.length() == 0) {
+            // Get hostname of local machine for future DNS lookups
+            lookup = InetAddressUtils.getLocalHostAddressAsString();
+            if (lookup == null) {
+                throw new UnsupportedOperationException("Unable to look up local host address.");
+            }
+        }
+        return lookup;
+    }
+
+    private static List<Integer> getFatalCodes(Map<String, Object> parameters) {
+        // What do we consider fatal?
+        //
+        final List<Integer> fatalCodes = new ArrayList<Integer>();
+        for (final int code : ParameterMap.getKeyedIntegerArray(parameters, "fatal-response-codes", DEFAULT_FATAL_RESP_CODES)) {
+            fatalCodes.add(code);
+        }
+        return fatalCodes;
+    }
+
     private PollStatus pollDNS(final TimeoutTracker timeoutTracker, final int port, final InetAddress address, final String lookup, final List<Integer> fatalCodes) {
     	final String addr = InetAddressUtils.str(address);
         for (timeoutTracker.reset(); timeoutTracker.shouldRetry(); timeoutTracker.nextAttempt()) {
@@ -31,17 +31,22 @@ package org.opennms.netmgt.poller.monitors;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.opennms.core.utils.ParameterMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.opennms.netmgt.icmp.EchoPacket;
 import org.opennms.netmgt.icmp.PingConstants;
+import org.opennms.netmgt.icmp.PingResponseCallback;
 import org.opennms.netmgt.icmp.PingerFactory;
 import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.AsyncServiceMonitor;
 import org.opennms.netmgt.poller.Distributable;
 import org.opennms.netmgt.poller.MonitoredService;
 import org.opennms.netmgt.poller.NetworkInterface;
 import org.opennms.netmgt.poller.NetworkInterfaceNotSupportedException;
+import org.opennms.netmgt.poller.PollStatusCallback;
 
 /**
  * <P>
@@ -56,7 +61,7 @@ import org.opennms.netmgt.poller.NetworkInterfaceNotSupportedException;
  */
 
 @Distributable
-final public class IcmpMonitor extends AbstractServiceMonitor {
+final public class IcmpMonitor extends AbstractServiceMonitor implements AsyncServiceMonitor {
     private static final Logger LOG = LoggerFactory.getLogger(IcmpMonitor.class);
     /**
      * Constructs a new monitor.
@@ -114,4 +119,49 @@ final public class IcmpMonitor extends AbstractServiceMonitor {
 
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <P>
+     * Sends the echo request through the pinger's callback interface, so no
+     * thread waits for the reply or the timeout.
+     * </P>
+     */
+    @Override
+    public void poll(MonitoredService svc, Map<String, Object> parameters, final PollStatusCallback callback) {
+        NetworkInterface<InetAddress> iface = svc.getNetInterface();
+
+        if (iface.getType() != NetworkInterface.TYPE_INET)
+            throw new NetworkInterfaceNotSupportedException("Unsupported interface type, only TYPE_INET currently supported");
+
+        final InetAddress host = (InetAddress) iface.getAddress();
+
+        int retries = ParameterMap.getKeyedInteger(parameters, "retry", PingConstants.DEFAULT_RETRIES);
+        long timeout = ParameterMap.getKeyedLong(parameters, "timeout", PingConstants.DEFAULT_TIMEOUT);
+        int packetSize = ParameterMap.getKeyedInteger(parameters, "packet-size", PingConstants.DEFAULT_PACKET_SIZE);
+
+        try {
+            PingerFactory.getInstance().ping(host, timeout, retries, packetSize, 1, new PingResponseCallback() {
+                @Override
+                public void handleResponse(InetAddress address, EchoPacket response) {
+                    callback.complete(PollStatus.available((double)Math.round(response.elapsedTime(TimeUnit.MICROSECONDS))));
+                }
+
+                @Override
+                public void handleTimeout(InetAddress address, EchoPacket request) {
+                    callback.complete(PollStatus.unavailable());
+                }
+
+                @Override
+                public void handleError(InetAddress address, EchoPacket request, Throwable t) {
+                    LOG.debug("failed to ping {}", address, t);
+                    callback.complete(PollStatus.unavailable());
+                }
+            });
+        } catch (Throwable e) {
+            LOG.debug("failed to ping {}", host, e);
+            callback.complete(PollStatus.unavailable());
+        }
+    }
+
 }
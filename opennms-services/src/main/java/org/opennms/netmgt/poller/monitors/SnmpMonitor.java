@@ -31,6 +31,8 @@ package org.opennms.netmgt.poller.monitors;
 import java.io.IOException;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -41,14 +43,23 @@ import org.opennms.core.utils.PropertiesUtils;
 import org.opennms.core.utils.TimeoutTracker;
 import org.opennms.netmgt.config.SnmpPeerFactory;
 import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.AsyncServiceMonitor;
 import org.opennms.netmgt.poller.Distributable;
 import org.opennms.netmgt.poller.DistributionContext;
 import org.opennms.netmgt.poller.MonitoredService;
 import org.opennms.netmgt.poller.NetworkInterface;
+import org.opennms.netmgt.poller.PollStatusCallback;
+import org.opennms.netmgt.snmp.CollectionTracker;
+import org.opennms.netmgt.snmp.ColumnTracker;
 import org.opennms.netmgt.snmp.SnmpAgentConfig;
+import org.opennms.netmgt.snmp.SingleInstanceTracker;
+import org.opennms.netmgt.snmp.SnmpInstId;
 import org.opennms.netmgt.snmp.SnmpObjId;
+import org.opennms.netmgt.snmp.SnmpResult;
 import org.opennms.netmgt.snmp.SnmpUtils;
 import org.opennms.netmgt.snmp.SnmpValue;
+import org.opennms.netmgt.snmp.SnmpWalkCallback;
+import org.opennms.netmgt.snmp.SnmpWalker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,7 +79,7 @@ import org.slf4j.LoggerFactory;
  * @author <A HREF="http://www.opennms.org/">OpenNMS </A>
  */
 @Distributable(DistributionContext.DAEMON)
-public class SnmpMonitor extends SnmpMonitorStrategy {
+public class SnmpMonitor extends SnmpMonitorStrategy implements AsyncServiceMonitor {
     
     public static final Logger LOG = LoggerFactory.getLogger(SnmpMonitor.class);
     
@@ -152,159 +163,259 @@ public class SnmpMonitor extends SnmpMonitorStrategy {
      */
     @Override
     public PollStatus poll(MonitoredService svc, Map<String, Object> parameters) {
-        NetworkInterface<InetAddress> iface = svc.getNetInterface();
+        SnmpPoll poll = new SnmpPoll(svc, parameters);
 
-        PollStatus status = PollStatus.unavailable();
-        InetAddress ipaddr = iface.getAddress();
-
-        // Retrieve this interface's SNMP peer object
+        // Establish SNMP session with interface
         //
-        SnmpAgentConfig agentConfig = SnmpPeerFactory.getInstance().getAgentConfig(ipaddr);
-        if (agentConfig == null) throw new RuntimeException("SnmpAgentConfig object not available for interface " + ipaddr);
-        final String hostAddress = InetAddressUtils.str(ipaddr);
-		LOG.debug("poll: setting SNMP peer attribute for interface {}", hostAddress);
+        try {
+            LOG.debug("SnmpMonitor.poll: SnmpAgentConfig address: {}", poll.m_agentConfig);
 
-        // Get configuration parameters
-        //
-        String oid = ParameterMap.getKeyedString(parameters, "oid", DEFAULT_OBJECT_IDENTIFIER);
-        String operator = ParameterMap.getKeyedString(parameters, "operator", null);
-        String operand = ParameterMap.getKeyedString(parameters, "operand", null);
-        String walkstr = ParameterMap.getKeyedString(parameters, "walk", "false");
-        String matchstr = ParameterMap.getKeyedString(parameters, "match-all", "true");
-        int countMin = ParameterMap.getKeyedInteger(parameters, "minimum", 0);
-        int countMax = ParameterMap.getKeyedInteger(parameters, "maximum", 0);
-        String reasonTemplate = ParameterMap.getKeyedString(parameters, "reason-template", DEFAULT_REASON_TEMPLATE);
-        String hexstr = ParameterMap.getKeyedString(parameters, "hex", "false");
-
-        hex = "true".equalsIgnoreCase(hexstr);
-        // set timeout and retries on SNMP peer object
-        //
-        agentConfig.setTimeout(ParameterMap.getKeyedInteger(parameters, "timeout", agentConfig.getTimeout()));
-        agentConfig.setRetries(ParameterMap.getKeyedInteger(parameters, "retry", ParameterMap.getKeyedInteger(parameters, "retries", agentConfig.getRetries())));
-        agentConfig.setPort(ParameterMap.getKeyedInteger(parameters, "port", agentConfig.getPort()));
-
-        // Squirrel the configuration parameters away in a Properties for later expansion if service is down
-        Properties svcParams = new Properties();
-        svcParams.setProperty("oid", oid);
-        svcParams.setProperty("operator", String.valueOf(operator));
-        svcParams.setProperty("operand", String.valueOf(operand));
-        svcParams.setProperty("walk", walkstr);
-        svcParams.setProperty("matchAll", matchstr);
-        svcParams.setProperty("minimum", String.valueOf(countMin));
-        svcParams.setProperty("maximum", String.valueOf(countMax));
-        svcParams.setProperty("timeout", String.valueOf(agentConfig.getTimeout()));
-        svcParams.setProperty("retry", String.valueOf(agentConfig.getRetries()));
-        svcParams.setProperty("retries", svcParams.getProperty("retry"));
-        svcParams.setProperty("ipaddr", hostAddress);
-        svcParams.setProperty("port", String.valueOf(agentConfig.getPort()));
-        svcParams.setProperty("hex", hexstr);
-
-        LOG.debug("poll: service= SNMP address= {}", agentConfig);
+            if (poll.isWalk()) {
+                return poll.evaluateColumns(SnmpUtils.getColumns(poll.m_agentConfig, "snmpPoller", poll.m_snmpObjectId));
+            } else {
+                return poll.evaluateGet(SnmpUtils.get(poll.m_agentConfig, poll.m_snmpObjectId));
+            }
+        } catch (Throwable t) {
+            return poll.failed(t);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Runs the same check as {@link #poll(MonitoredService, Map)} with an
+     * {@link SnmpWalker} that reports back through a callback, so no thread
+     * waits for the agent. A plain get is sent as the GETNEXT of the
+     * preceding OID, the way {@link SingleInstanceTracker} collects a single
+     * instance.
+     */
+    @Override
+    public void poll(MonitoredService svc, Map<String, Object> parameters, final PollStatusCallback callback) {
+        final SnmpPoll poll = new SnmpPoll(svc, parameters);
+        final List<SnmpValue> results = Collections.synchronizedList(new ArrayList<SnmpValue>());
 
-        // Establish SNMP session with interface
-        //
         try {
-            LOG.debug("SnmpMonitor.poll: SnmpAgentConfig address: {}", agentConfig);
+            LOG.debug("SnmpMonitor.poll: SnmpAgentConfig address: {}", poll.m_agentConfig);
+
+            CollectionTracker tracker;
+            if (poll.isWalk()) {
+                tracker = new ColumnTracker(poll.m_snmpObjectId) {
+                    @Override
+                    protected void storeResult(SnmpResult res) {
+                        results.add(res.getValue());
+                    }
+                };
+            } else {
+                SnmpObjId oid = poll.m_snmpObjectId;
+                tracker = new SingleInstanceTracker(oid.getPrefix(oid.length() - 1), new SnmpInstId(oid.getLastSubId())) {
+                    @Override
+                    protected void storeResult(SnmpResult res) {
+                        results.add(res.getValue());
+                    }
+                };
+            }
+
+            SnmpWalker walker = SnmpUtils.createWalker(poll.m_agentConfig, "snmpPoller", tracker);
+            walker.setCallback(new SnmpWalkCallback() {
+                @Override
+                public void complete(SnmpWalker walker) {
+                    if (walker.failed()) {
+                        LOG.debug("poll: {}", walker.getErrorMessage());
+                    }
+                    PollStatus status;
+                    try {
+                        if (poll.isWalk()) {
+                            status = poll.evaluateColumns(results);
+                        } else {
+                            status = poll.evaluateGet(results.isEmpty() ? null : results.get(0));
+                        }
+                    } catch (Throwable t) {
+                        status = poll.failed(t);
+                    }
+                    callback.complete(status);
+                }
+            });
+            walker.start();
+        } catch (Throwable t) {
+            callback.complete(poll.failed(t));
+        }
+    }
+
+    /**
+     * The parameters of one poll and the evaluation of its results, shared
+     * by the blocking and the asynchronous poll.
+     */
+    private final class SnmpPoll {
+        private final SnmpAgentConfig m_agentConfig;
+        private final String m_hostAddress;
+        private final String m_oid;
+        private final SnmpObjId m_snmpObjectId;
+        private final String m_operator;
+        private final String m_operand;
+        private final String m_walkstr;
+        private final String m_matchstr;
+        private final int m_countMin;
+        private final int m_countMax;
+        private final String m_reasonTemplate;
+        private final Properties m_svcParams = new Properties();
+        private final TimeoutTracker m_tracker;
 
-            TimeoutTracker tracker = new TimeoutTracker(parameters, agentConfig.getRetries(), agentConfig.getTimeout());
-            tracker.reset();
-            tracker.startAttempt();
+        SnmpPoll(MonitoredService svc, Map<String, Object> parameters) {
+            NetworkInterface<InetAddress> iface = svc.getNetInterface();
+            InetAddress ipaddr = iface.getAddress();
 
-            SnmpObjId snmpObjectId = SnmpObjId.get(oid);
+            // Retrieve this interface's SNMP peer object
+            //
+            m_agentConfig = SnmpPeerFactory.getInstance().getAgentConfig(ipaddr);
+            if (m_agentConfig == null) throw new RuntimeException("SnmpAgentConfig object not available for interface " + ipaddr);
+            m_hostAddress = InetAddressUtils.str(ipaddr);
+            LOG.debug("poll: setting SNMP peer attribute for interface {}", m_hostAddress);
+
+            // Get configuration parameters
+            //
+            m_oid = ParameterMap.getKeyedString(parameters, "oid", DEFAULT_OBJECT_IDENTIFIER);
+            m_operator = ParameterMap.getKeyedString(parameters, "operator", null);
+            m_operand = ParameterMap.getKeyedString(parameters, "operand", null);
+            m_walkstr = ParameterMap.getKeyedString(parameters, "walk", "false");
+            m_matchstr = ParameterMap.getKeyedString(parameters, "match-all", "true");
+            m_countMin = ParameterMap.getKeyedInteger(parameters, "minimum", 0);
+            m_countMax = ParameterMap.getKeyedInteger(parameters, "maximum", 0);
+            m_reasonTemplate = ParameterMap.getKeyedString(parameters, "reason-template", DEFAULT_REASON_TEMPLATE);
+            String hexstr = ParameterMap.getKeyedString(parameters, "hex", "false");
+
+            hex = "true".equalsIgnoreCase(hexstr);
+            // set timeout and retries on SNMP peer object
+            //
+            m_agentConfig.setTimeout(ParameterMap.getKeyedInteger(parameters, "timeout", m_agentConfig.getTimeout()));
+            m_agentConfig.setRetries(ParameterMap.getKeyedInteger(parameters, "retry", ParameterMap.getKeyedInteger(parameters, "retries", m_agentConfig.getRetries())));
+            m_agentConfig.setPort(ParameterMap.getKeyedInteger(parameters, "port", m_agentConfig.getPort()));
+
+            // Squirrel the configuration parameters away in a Properties for later expansion if service is down
+            m_svcParams.setProperty("oid", m_oid);
+            m_svcParams.setProperty("operator", String.valueOf(m_operator));
+            m_svcParams.setProperty("operand", String.valueOf(m_operand));
+            m_svcParams.setProperty("walk", m_walkstr);
+            m_svcParams.setProperty("matchAll", m_matchstr);
+            m_svcParams.setProperty("minimum", String.valueOf(m_countMin));
+            m_svcParams.setProperty("maximum", String.valueOf(m_countMax));
+            m_svcParams.setProperty("timeout", String.valueOf(m_agentConfig.getTimeout()));
+            m_svcParams.setProperty("retry", String.valueOf(m_agentConfig.getRetries()));
+            m_svcParams.setProperty("retries", m_svcParams.getProperty("retry"));
+            m_svcParams.setProperty("ipaddr", m_hostAddress);
+            m_svcParams.setProperty("port", String.valueOf(m_agentConfig.getPort()));
+            m_svcParams.setProperty("hex", hexstr);
+
+            LOG.debug("poll: service= SNMP address= {}", m_agentConfig);
+
+            m_snmpObjectId = SnmpObjId.get(m_oid);
+
+            m_tracker = new TimeoutTracker(parameters, m_agentConfig.getRetries(), m_agentConfig.getTimeout());
+            m_tracker.reset();
+            m_tracker.startAttempt();
+        }
+
+        /**
+         * Setting the parameter "matchall" to "count" will act as if "walk"
+         * has been set to "true".
+         */
+        boolean isWalk() {
+            return "count".equals(m_matchstr) || "true".equals(m_walkstr);
+        }
+
+        PollStatus evaluateColumns(List<SnmpValue> results) {
+            String reasonTemplate = m_reasonTemplate;
 
             // This if block will count the number of matches within a walk and mark the service
-            // as up if it is between the minimum and maximum number, down if otherwise. Setting
-            // the parameter "matchall" to "count" will act as if "walk" has been set to "true".
-            if ("count".equals(matchstr)) {
+            // as up if it is between the minimum and maximum number, down if otherwise.
+            if ("count".equals(m_matchstr)) {
                 if (DEFAULT_REASON_TEMPLATE.equals(reasonTemplate)) {
                     reasonTemplate = "Value: ${matchCount} outside of range Min: ${minimum} to Max: ${maximum}";
                 }
                 int matchCount = 0;
-                List<SnmpValue> results = SnmpUtils.getColumns(agentConfig, "snmpPoller", snmpObjectId);
                 for(SnmpValue result : results) {
 
                     if (result != null) {
-                        LOG.debug("poll: SNMPwalk poll succeeded, addr={} oid={} value={}", hostAddress, oid, result);
-                        if (meetsCriteria(result, operator, operand)) {
+                        LOG.debug("poll: SNMPwalk poll succeeded, addr={} oid={} value={}", m_hostAddress, m_oid, result);
+                        if (meetsCriteria(result, m_operator, m_operand)) {
                             matchCount++;
                         }
                     }
                 }
-                svcParams.setProperty("matchCount", String.valueOf(matchCount));
-                LOG.debug("poll: SNMPwalk count succeeded, total={} min={} max={}", matchCount, countMin, countMax);
-                if ((countMin <= matchCount) && (matchCount <= countMax)) {
-                    status = PollStatus.available(tracker.elapsedTimeInMillis());
+                m_svcParams.setProperty("matchCount", String.valueOf(matchCount));
+                LOG.debug("poll: SNMPwalk count succeeded, total={} min={} max={}", matchCount, m_countMin, m_countMax);
+                if ((m_countMin <= matchCount) && (matchCount <= m_countMax)) {
+                    return PollStatus.available(m_tracker.elapsedTimeInMillis());
                 } else {
-                    String reason = PropertiesUtils.substitute(reasonTemplate, svcParams);
+                    String reason = PropertiesUtils.substitute(reasonTemplate, m_svcParams);
                     LOG.debug(reason);
-                    status = PollStatus.unavailable(reason);
-                    return status;
-                }
-            } else if ("true".equals(walkstr)) {
-                if (DEFAULT_REASON_TEMPLATE.equals(reasonTemplate)) {
-                    reasonTemplate = "SNMP poll failed, addr=${ipaddr} oid=${oid}";
+                    return PollStatus.unavailable(reason);
                 }
-                List<SnmpValue> results = SnmpUtils.getColumns(agentConfig, "snmpPoller", snmpObjectId);
-                for(SnmpValue result : results) {
-                    if (result != null) {
-                        svcParams.setProperty("observedValue", getStringValue(result));
-                        LOG.debug("poll: SNMPwalk poll succeeded, addr={} oid={} value={}", hostAddress, oid, result);
-                        if (meetsCriteria(result, operator, operand)) {
-                            status = PollStatus.available(tracker.elapsedTimeInMillis());
-                            if ("false".equals(matchstr)) {
-                                return status;
-                            }
-                        } else if ("true".equals(matchstr)) {
-                            String reason = PropertiesUtils.substitute(reasonTemplate, svcParams);
-                            LOG.debug(reason);
-                            status = PollStatus.unavailable(reason);
+            }
+
+            if (DEFAULT_REASON_TEMPLATE.equals(reasonTemplate)) {
+                reasonTemplate = "SNMP poll failed, addr=${ipaddr} oid=${oid}";
+            }
+            PollStatus status = PollStatus.unavailable();
+            for(SnmpValue result : results) {
+                if (result != null) {
+                    m_svcParams.setProperty("observedValue", getStringValue(result));
+                    LOG.debug("poll: SNMPwalk poll succeeded, addr={} oid={} value={}", m_hostAddress, m_oid, result);
+                    if (meetsCriteria(result, m_operator, m_operand)) {
+                        status = PollStatus.available(m_tracker.elapsedTimeInMillis());
+                        if ("false".equals(m_matchstr)) {
                             return status;
                         }
+                    } else if ("true".equals(m_matchstr)) {
+                        String reason = PropertiesUtils.substitute(reasonTemplate, m_svcParams);
+                        LOG.debug(reason);
+                        return PollStatus.unavailable(reason);
                     }
                 }
+            }
+            return status;
+        }
 
-            } else {
-                if (DEFAULT_REASON_TEMPLATE.equals(reasonTemplate)) {
-                    if (operator != null) {
-                        reasonTemplate = "Observed value '${observedValue}' does not meet criteria '${operator} ${operand}'";
-                    } else {
-                        reasonTemplate = "Observed value '${observedValue}' was null";
-                    }
+        PollStatus evaluateGet(SnmpValue result) {
+            String reasonTemplate = m_reasonTemplate;
+            if (DEFAULT_REASON_TEMPLATE.equals(reasonTemplate)) {
+                if (m_operator != null) {
+                    reasonTemplate = "Observed value '${observedValue}' does not meet criteria '${operator} ${operand}'";
+                } else {
+                    reasonTemplate = "Observed value '${observedValue}' was null";
                 }
+            }
 
-                SnmpValue result = SnmpUtils.get(agentConfig, snmpObjectId);
+            if (result != null) {
+                m_svcParams.setProperty("observedValue", getStringValue(result));
+                LOG.debug("poll: SNMP poll succeeded, addr={} oid={} value={}", m_hostAddress, m_oid, result);
 
-                if (result != null) {
-                    svcParams.setProperty("observedValue", getStringValue(result));
-                    LOG.debug("poll: SNMP poll succeeded, addr={} oid={} value={}", hostAddress, oid, result);
-                    
-                    if (meetsCriteria(result, operator, operand)) {
-                        status = PollStatus.available(tracker.elapsedTimeInMillis());
-                    } else {
-                        status = PollStatus.unavailable(PropertiesUtils.substitute(reasonTemplate, svcParams));
-                    }
+                if (meetsCriteria(result, m_operator, m_operand)) {
+                    return PollStatus.available(m_tracker.elapsedTimeInMillis());
                 } else {
-                    String reason = "SNMP poll failed, addr=" + hostAddress + " oid=" + oid;
-                    LOG.debug(reason);
-                    status = PollStatus.unavailable(reason);
+                    return PollStatus.unavailable(PropertiesUtils.substitute(reasonTemplate, m_svcParams));
                 }
+            } else {
+                String reason = "SNMP poll failed, addr=" + m_hostAddress + " oid=" + m_oid;
+                LOG.debug(reason);
+                return PollStatus.unavailable(reason);
             }
-
-        } catch (NumberFormatException e) {
-            String reason = "Number operator used on a non-number " + e.getMessage();
-            LOG.debug(reason);
-            status = PollStatus.unavailable(reason);
-        } catch (IllegalArgumentException e) {
-            String reason = "Invalid SNMP Criteria: " + e.getMessage();
-            LOG.debug(reason);
-            status = PollStatus.unavailable(reason);
-        } catch (Throwable t) {
-            String reason = "Unexpected exception during SNMP poll of interface " + hostAddress;
-            LOG.debug(reason, t);
-            status = PollStatus.unavailable(reason);
         }
 
-        return status;
+        PollStatus failed(Throwable t) {
+            if (t instanceof NumberFormatException) {
+                String reason = "Number operator used on a non-number " + t.getMessage();
+                LOG.debug(reason);
+                return PollStatus.unavailable(reason);
+            } else if (t instanceof IllegalArgumentException) {
+                String reason = "Invalid SNMP Criteria: " + t.getMessage();
+                LOG.debug(reason);
+                return PollStatus.unavailable(reason);
+            } else {
+                String reason = "Unexpected exception during SNMP poll of interface " + m_hostAddress;
+                LOG.debug(reason, t);
+                return PollStatus.unavailable(reason);
+            }
+        }
     }
 
 }
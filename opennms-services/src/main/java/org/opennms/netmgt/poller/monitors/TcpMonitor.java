@@ -43,10 +43,12 @@ import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.core.utils.ParameterMap;
 import org.opennms.core.utils.TimeoutTracker;
 import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.AsyncServiceMonitor;
 import org.opennms.netmgt.poller.Distributable;
 import org.opennms.netmgt.poller.MonitoredService;
 import org.opennms.netmgt.poller.NetworkInterface;
 import org.opennms.netmgt.poller.NetworkInterfaceNotSupportedException;
+import org.opennms.netmgt.poller.PollStatusCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,7 +65,7 @@ import org.slf4j.LoggerFactory;
  */
 
 @Distributable
-final public class TcpMonitor extends AbstractServiceMonitor {
+final public class TcpMonitor extends AbstractServiceMonitor implements AsyncServiceMonitor {
     
     
     public static final Logger LOG = LoggerFactory.getLogger(TcpMonitor.class);
@@ -209,4 +211,40 @@ final public class TcpMonitor extends AbstractServiceMonitor {
         return serviceStatus;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Runs the same check as {@link #poll(MonitoredService, Map)} on a
+     * non-blocking socket, so no thread waits for the connection, the banner
+     * or the timeouts.
+     */
+    @Override
+    public void poll(MonitoredService svc, Map<String, Object> parameters, PollStatusCallback callback) {
+        NetworkInterface<InetAddress> iface = svc.getNetInterface();
+
+        if (iface.getType() != NetworkInterface.TYPE_INET)
+            throw new NetworkInterfaceNotSupportedException("Unsupported interface type, only TYPE_INET currently supported");
+
+        TimeoutTracker tracker = new TimeoutTracker(parameters, DEFAULT_RETRY, DEFAULT_TIMEOUT);
+
+        int port = ParameterMap.getKeyedInteger(parameters, PARAMETER_PORT, DEFAULT_PORT);
+        if (port == DEFAULT_PORT) {
+            throw new RuntimeException("TcpMonitor: required parameter 'port' is not present in supplied properties.");
+        }
+
+        String strBannerMatch = ParameterMap.getKeyedString(parameters, PARAMETER_BANNER, null);
+        boolean strictTimeouts = ParameterMap.getKeyedBoolean(parameters, "strict-timeout", false);
+
+        InetAddress ipv4Addr = (InetAddress) iface.getAddress();
+        LOG.debug("poll: address = {}, port = {}, {}", InetAddressUtils.str(ipv4Addr), port, tracker);
+
+        try {
+            AsyncTcpConnector.getInstance().poll(ipv4Addr, port, strBannerMatch, tracker, strictTimeouts, callback);
+        } catch (IOException e) {
+            String reason = "IOException while polling address: " + ipv4Addr;
+            LOG.debug(reason, e);
+            callback.complete(PollStatus.unavailable(reason));
+        }
+    }
+
 }
@@ -38,6 +38,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.core.utils.ParameterMap;
@@ -45,7 +47,9 @@ import org.opennms.netmgt.config.PollerConfig;
 import org.opennms.netmgt.config.poller.Package;
 import org.opennms.netmgt.model.PollStatus;
 import org.opennms.netmgt.model.RrdRepository;
+import org.opennms.netmgt.poller.AsyncServiceMonitor;
 import org.opennms.netmgt.poller.MonitoredService;
+import org.opennms.netmgt.poller.PollStatusCallback;
 import org.opennms.netmgt.poller.ServiceMonitor;
 import org.opennms.netmgt.rrd.RrdDataSource;
 import org.opennms.netmgt.rrd.RrdException;
@@ -108,8 +112,48 @@ public class LatencyStoringServiceMonitorAdaptor implements ServiceMonitor {
     /** {@inheritDoc} */
     @Override
     public PollStatus poll(MonitoredService svc, Map<String, Object> parameters) {
-        PollStatus status = m_serviceMonitor.poll(svc, parameters);
+        return handlePollResult(svc, parameters, m_serviceMonitor.poll(svc, parameters));
+    }
+
+    /**
+     * <p>isAsync</p>
+     *
+     * @return true if the wrapped monitor is an {@link AsyncServiceMonitor};
+     *         whether it is used that way is up to {@link PollableServiceConfig#isAsync()}
+     */
+    public boolean isAsync() {
+        return m_serviceMonitor instanceof AsyncServiceMonitor;
+    }
+
+    /**
+     * Polls the service through the wrapped {@link AsyncServiceMonitor}. The
+     * latency is stored and the callback is invoked from the given executor,
+     * not from the monitor's I/O thread.
+     *
+     * @param svc a {@link org.opennms.netmgt.poller.MonitoredService} object.
+     * @param parameters a {@link java.util.Map} object.
+     * @param executor runs the completion of the poll
+     * @param callback receives the result of the poll
+     */
+    public void poll(final MonitoredService svc, final Map<String, Object> parameters, final Executor executor, final PollStatusCallback callback) {
+        ((AsyncServiceMonitor)m_serviceMonitor).poll(svc, parameters, new PollStatusCallback() {
+            @Override
+            public void complete(final PollStatus status) {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.complete(handlePollResult(svc, parameters, status));
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    LOG.info("Discarding the result of the poll of {}, the poller is stopping", svc);
+                }
+            }
+        });
+    }
 
+    private PollStatus handlePollResult(MonitoredService svc, Map<String, Object> parameters, PollStatus status) {
         if (!status.getProperties().isEmpty()) {
             storeResponseTime(svc, new LinkedHashMap<String, Number>(status.getProperties()), parameters);
         }
@@ -29,6 +29,7 @@
 package org.opennms.netmgt.poller.pollables;
 
 import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.PollStatusCallback;
 import org.opennms.netmgt.scheduler.Timer;
 
 
@@ -47,6 +48,22 @@ public interface PollConfig extends Timer {
      */
     public PollStatus poll();
 
+    /**
+     * <p>isAsync</p>
+     *
+     * @return true if the service can be polled with {@link #poll(PollStatusCallback)}
+     */
+    public boolean isAsync();
+
+    /**
+     * Starts polling the service without blocking the calling thread. The
+     * callback is invoked from one of the poller's threads once the poll is
+     * complete.
+     *
+     * @param callback a {@link org.opennms.netmgt.poller.PollStatusCallback} object.
+     */
+    public void poll(PollStatusCallback callback);
+
     /**
      * <p>getCurrentTime</p>
      *
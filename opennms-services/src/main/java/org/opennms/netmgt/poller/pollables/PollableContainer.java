@@ -31,9 +31,9 @@ package org.opennms.netmgt.poller.pollables;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.opennms.netmgt.model.PollStatus;
 
@@ -47,7 +47,13 @@ import org.opennms.netmgt.model.PollStatus;
  */
 abstract public class PollableContainer extends PollableElement {
 
-    private final Map<Object, PollableElement> m_members = new HashMap<Object, PollableElement>();
+    /**
+     * Members are read far more often than they are added or removed, and
+     * every poll walks them, so reads do not take the container's monitor.
+     * Iteration is weakly consistent: it never fails when the membership
+     * changes underneath it and never shows an element twice.
+     */
+    private final ConcurrentMap<Object, PollableElement> m_members = new ConcurrentHashMap<Object, PollableElement>();
 
     /**
      * <p>Constructor for PollableContainer.</p>
@@ -65,8 +71,8 @@ abstract public class PollableContainer extends PollableElement {
      * @param key a {@link java.lang.Object} object.
      * @return a {@link org.opennms.netmgt.poller.pollables.PollableElement} object.
      */
-    protected synchronized PollableElement getMember(Object key) {
-        return m_members.get(key);
+    protected PollableElement getMember(Object key) {
+        return (key == null ? null : m_members.get(key));
     }
 
     /**
@@ -74,7 +80,7 @@ abstract public class PollableContainer extends PollableElement {
      *
      * @return a int.
      */
-    protected synchronized int getMemberCount() {
+    protected int getMemberCount() {
         return m_members.size();
     }
     
@@ -83,7 +89,7 @@ abstract public class PollableContainer extends PollableElement {
      *
      * @return a {@link java.util.Collection} object.
      */
-    protected synchronized Collection<PollableElement> getMembers() {
+    protected Collection<PollableElement> getMembers() {
         return new ArrayList<PollableElement>(m_members.values());
     }
     
@@ -100,7 +106,7 @@ abstract public class PollableContainer extends PollableElement {
      *
      * @param member a {@link org.opennms.netmgt.poller.pollables.PollableElement} object.
      */
-    protected synchronized void addMember(PollableElement member) {
+    protected void addMember(PollableElement member) {
         Object key = createMemberKey(member);
         m_members.put(key, member);
     }
@@ -110,7 +116,7 @@ abstract public class PollableContainer extends PollableElement {
      *
      * @param member a {@link org.opennms.netmgt.poller.pollables.PollableElement} object.
      */
-    public synchronized void removeMember(PollableElement member) {
+    public void removeMember(PollableElement member) {
         Object key = createMemberKey(member);
         m_members.remove(key);
     }
@@ -167,7 +173,7 @@ abstract public class PollableContainer extends PollableElement {
      * @param v a {@link org.opennms.netmgt.poller.pollables.PollableVisitor} object.
      */
     protected void visitMembers(PollableVisitor v) {
-        for (Iterator<PollableElement> it = getMembers().iterator(); it.hasNext();) {
+        for (Iterator<PollableElement> it = m_members.values().iterator(); it.hasNext();) {
             PollableElement element = it.next();
             element.visit(v);
         }
@@ -241,7 +247,7 @@ abstract public class PollableContainer extends PollableElement {
         Runnable r = new Runnable() {
             @Override
             public void run() {
-                for (Iterator<PollableElement> it = getMembers().iterator(); it.hasNext(); ) {
+                for (Iterator<PollableElement> it = m_members.values().iterator(); it.hasNext(); ) {
                     PollableElement element = it.next();
                     iter.forEachElement(element);
                 }
@@ -384,10 +390,11 @@ abstract public class PollableContainer extends PollableElement {
      */
     @Override
     public PollableElement selectPollElement() {
-        if (getMemberCount() == 0) 
+        Iterator<PollableElement> it = m_members.values().iterator();
+        if (!it.hasNext()) 
             return null;
 
-        PollableElement member = (PollableElement)getMembers().iterator().next();
+        PollableElement member = it.next();
         return member.selectPollElement();
             
     }
@@ -496,7 +503,7 @@ abstract public class PollableContainer extends PollableElement {
 
     private PollEvent extrapolateMemberCauseWithLargestScope() {
         PollEvent cause = null;
-        for(PollableElement member : getMembers()) {
+        for(PollableElement member : m_members.values()) {
             PollEvent memberCause = member.extrapolateCause();
             if (memberCause != null && !memberCause.hasScopeSmallerThan(getScope())) {
                 // a cause has been found that exceeds the scope of the members
@@ -513,7 +520,7 @@ abstract public class PollableContainer extends PollableElement {
     @Override
     protected void doInheritParentalCause() {
         super.doInheritParentalCause();
-        for(PollableElement member : getMembers()) {
+        for(PollableElement member : m_members.values()) {
             member.inheritParentalCause();
         }
         
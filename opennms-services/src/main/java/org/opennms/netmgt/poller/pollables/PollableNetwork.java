@@ -241,6 +241,32 @@ public class PollableNetwork extends PollableContainer {
         
     }
 
+    /**
+     * <p>getTreeLockContendedCount</p>
+     *
+     * @return the number of times a thread had to wait for a node's tree lock, over all nodes
+     */
+    public long getTreeLockContendedCount() {
+        long count = 0;
+        for (PollableElement member : getMembers()) {
+            count += ((PollableNode)member).getTreeLockContendedCount();
+        }
+        return count;
+    }
+
+    /**
+     * <p>getTreeLockWaitTime</p>
+     *
+     * @return the total time, in milliseconds, spent waiting for node tree locks
+     */
+    public long getTreeLockWaitTime() {
+        long waitTime = 0;
+        for (PollableElement member : getMembers()) {
+            waitTime += ((PollableNode)member).getTreeLockWaitTime();
+        }
+        return waitTime;
+    }
+
     /**
      * <p>delete</p>
      */
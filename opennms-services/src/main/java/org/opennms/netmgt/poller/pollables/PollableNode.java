@@ -54,14 +54,18 @@ public class PollableNode extends PollableContainer {
     public class Lock {
         private Thread m_owner = null;
         private int m_obtainCount = 0;
+        private long m_contendedCount = 0;
+        private long m_waitTime = 0;
         
         public synchronized void obtain() {
             
             if (m_owner != Thread.currentThread()) {
                 LOG.debug("Trying to obtain lock for {}", PollableNode.this);
+                long start = (m_owner == null ? 0 : System.currentTimeMillis());
                 while (m_owner != null) {
                     try { wait();} catch (InterruptedException e) { throw new ThreadInterrupted("Lock for "+PollableNode.this+" is unavailable", e);}
                 }
+                if (start != 0) recordWait(start);
                 m_owner = Thread.currentThread();
                 LOG.debug("Obtained lock for {}", PollableNode.this);
             }
@@ -73,19 +77,30 @@ public class PollableNode extends PollableContainer {
             if (m_owner != Thread.currentThread()) {
                 LOG.debug("Trying to obtain lock for {}", PollableNode.this);
                 long now = System.currentTimeMillis();
+                long start = (m_owner == null ? 0 : now);
                 long endTime = (timeout == 0 ? Long.MAX_VALUE : now+timeout);
                 while (m_owner != null) {
                     try { wait(endTime-now);} catch (InterruptedException e) { throw new ThreadInterrupted("Lock for "+PollableNode.this+" is unavailable", e);}
                     now = System.currentTimeMillis();
-                    if (now >= endTime)
+                    if (now >= endTime) {
+                        recordWait(start);
                         throw new LockUnavailable("Unable to obtain lock for "+PollableNode.this+" before timeout");
+                    }
                 }
+                if (start != 0) recordWait(start);
                 m_owner = Thread.currentThread();
                 LOG.debug("Obtained lock for {}", PollableNode.this);
             }
             m_obtainCount++;
         }
         
+        private void recordWait(long start) {
+            long waited = System.currentTimeMillis() - start;
+            m_contendedCount++;
+            m_waitTime += waited;
+            LOG.debug("Waited {}ms for lock for {}", waited, PollableNode.this);
+        }
+        
         public synchronized void release() {
             if (m_owner == Thread.currentThread()) {
                 m_obtainCount--;
@@ -104,6 +119,20 @@ public class PollableNode extends PollableContainer {
             return m_owner == null;
         }
 
+        /**
+         * @return the number of times a thread had to wait for this lock
+         */
+        public synchronized long getContendedCount() {
+            return m_contendedCount;
+        }
+
+        /**
+         * @return the total time, in milliseconds, threads waited for this lock
+         */
+        public synchronized long getWaitTime() {
+            return m_waitTime;
+        }
+
     }
     
     private final int m_nodeId;
@@ -305,6 +334,24 @@ public class PollableNode extends PollableContainer {
     public void releaseTreeLock() {
         m_lock.release();
     }
+
+    /**
+     * <p>getTreeLockContendedCount</p>
+     *
+     * @return the number of times a thread had to wait for this node's tree lock
+     */
+    public long getTreeLockContendedCount() {
+        return m_lock.getContendedCount();
+    }
+
+    /**
+     * <p>getTreeLockWaitTime</p>
+     *
+     * @return the total time, in milliseconds, spent waiting for this node's tree lock
+     */
+    public long getTreeLockWaitTime() {
+        return m_lock.getWaitTime();
+    }
     
     /** {@inheritDoc} */
     @Override
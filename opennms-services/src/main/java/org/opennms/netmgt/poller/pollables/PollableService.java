@@ -30,12 +30,14 @@ package org.opennms.netmgt.poller.pollables;
 
 import java.net.InetAddress;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.opennms.netmgt.EventConstants;
 import org.opennms.netmgt.model.PollStatus;
 import org.opennms.netmgt.poller.InetNetworkInterface;
 import org.opennms.netmgt.poller.MonitoredService;
 import org.opennms.netmgt.poller.NetworkInterface;
+import org.opennms.netmgt.poller.PollStatusCallback;
 import org.opennms.netmgt.scheduler.PostponeNecessary;
 import org.opennms.netmgt.scheduler.ReadyRunnable;
 import org.opennms.netmgt.scheduler.Schedule;
@@ -56,9 +58,24 @@ public class PollableService extends PollableElement implements ReadyRunnable, M
     private final class PollRunner implements Runnable {
     	
     	private volatile PollStatus m_pollStatus;
+    	private final PollStatus m_polledStatus;
+    	
+    	PollRunner(PollStatus polledStatus) {
+    	    m_polledStatus = polledStatus;
+    	}
+    	
             @Override
 		public void run() {
-		    doPoll();
+		    if (isDeleted()) {
+		        m_pollStatus = getStatus();
+		        return;
+		    }
+		    m_prePolledStatus = m_polledStatus;
+		    try {
+		        doPoll();
+		    } finally {
+		        m_prePolledStatus = null;
+		    }
 		    getNode().processStatusChange(new Date());
 		    m_pollStatus = getStatus();
 		}
@@ -71,6 +88,9 @@ public class PollableService extends PollableElement implements ReadyRunnable, M
     private final InetNetworkInterface m_netInterface;
 
     private volatile PollConfig m_pollConfig;
+    /** The result of a poll made before the tree lock was taken, only set while that result is applied */
+    private PollStatus m_prePolledStatus;
+    private final AtomicBoolean m_asyncPollInProgress = new AtomicBoolean(false);
     private volatile PollStatus m_oldStatus;
     private volatile Schedule m_schedule;
     private volatile long m_statusChangeTime = 0L;
@@ -179,6 +199,15 @@ public class PollableService extends PollableElement implements ReadyRunnable, M
         m_pollConfig = pollConfig;
     }
 
+    /**
+     * <p>getPollConfig</p>
+     *
+     * @return a {@link org.opennms.netmgt.poller.pollables.PollConfig} object.
+     */
+    public PollConfig getPollConfig() {
+        return m_pollConfig;
+    }
+
     /**
      * <p>poll</p>
      *
@@ -186,7 +215,12 @@ public class PollableService extends PollableElement implements ReadyRunnable, M
      */
     @Override
     public PollStatus poll() {
-        PollStatus newStatus = m_pollConfig.poll();
+        PollStatus newStatus = m_prePolledStatus;
+        if (newStatus != null) {
+            m_prePolledStatus = null;
+        } else {
+            newStatus = m_pollConfig.poll();
+        }
         if (!newStatus.isUnknown()) { 
             updateStatus(newStatus);
         }
@@ -383,7 +417,56 @@ public class PollableService extends PollableElement implements ReadyRunnable, M
      */
     @Override
     public void run() {
-        doRun(500);
+        if (m_pollConfig.isAsync() && isPolledDirectly()) {
+            doRunAsync();
+        } else {
+            doRun(500);
+        }
+    }
+
+    /**
+     * Starts an asynchronous poll and returns without waiting for it. The
+     * result is applied from the completion callback, on one of the
+     * scheduler's threads. If the previous poll of the service hasn't
+     * completed yet this run is skipped.
+     */
+    private void doRunAsync() {
+        if (!m_asyncPollInProgress.compareAndSet(false, true)) {
+            LOG.debug("Skipping Scheduled Poll of service {}, the previous poll has not completed", this);
+            return;
+        }
+        final long startDate = System.currentTimeMillis();
+        LOG.debug("Start Scheduled Asynchronous Poll of service {}", this);
+        m_pollConfig.poll(new PollStatusCallback() {
+            @Override
+            public void complete(PollStatus polledStatus) {
+                try {
+                    if (getContext().isNodeProcessingEnabled()) {
+                        try {
+                            withTreeLock(new PollRunner(polledStatus), 500);
+                        } catch (LockUnavailable e) {
+                            // Same as the synchronous path, but the scheduler run has
+                            // already returned so the schedule is postponed directly
+                            LOG.info("Postponing poll for {}", PollableService.this, e);
+                            m_schedule.postpone();
+                        }
+                    } else if (!isDeleted()) {
+                        m_prePolledStatus = polledStatus;
+                        try {
+                            doPoll();
+                        } finally {
+                            m_prePolledStatus = null;
+                        }
+                        processStatusChange(new Date());
+                    }
+                    LOG.debug("Finish Scheduled Asynchronous Poll of service {}, started at {}", PollableService.this, new Date(startDate));
+                } catch (Throwable t) {
+                    LOG.error("Unexpected error applying the result of the poll of {}", PollableService.this, t);
+                } finally {
+                    m_asyncPollInProgress.set(false);
+                }
+            }
+        });
     }
     
     /**
@@ -400,7 +483,10 @@ public class PollableService extends PollableElement implements ReadyRunnable, M
         LOG.debug("Start Scheduled Poll of service {}", this);
         PollStatus status;
         if (getContext().isNodeProcessingEnabled()) {
-            PollRunner r = new PollRunner();
+            // Poll the monitor before taking the node's tree lock so that the
+            // services of a node don't wait on each other's network I/O. The
+            // lock is only held to apply the result and propagate status.
+            PollRunner r = new PollRunner(isPolledDirectly() ? m_pollConfig.poll() : null);
             try {
 				withTreeLock(r, timeout);
             } catch (LockUnavailable e) {
@@ -418,6 +504,19 @@ public class PollableService extends PollableElement implements ReadyRunnable, M
         return status;
 	}
 
+    /**
+     * Returns true if the poll of this service is expected to reach its
+     * monitor, i.e. its interface is up or this is the interface's critical
+     * service. When the interface is down only the critical service is
+     * polled, so the other services are not polled ahead of the lock.
+     */
+    private boolean isPolledDirectly() {
+        PollableInterface iface = getInterface();
+        if (iface.getStatus().isUp()) return true;
+        String critSvcName = getContext().getCriticalServiceName();
+        return critSvcName == null || iface.getService(critSvcName) == null || m_svcName.equals(critSvcName);
+    }
+
 	/**
      * <p>delete</p>
      */
@@ -30,9 +30,11 @@ package org.opennms.netmgt.poller.pollables;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.opennms.core.utils.ParameterMap;
 import org.opennms.netmgt.config.PollOutagesConfig;
 import org.opennms.netmgt.config.PollerConfig;
 import org.opennms.netmgt.config.poller.Downtime;
@@ -40,7 +42,9 @@ import org.opennms.netmgt.config.poller.Package;
 import org.opennms.netmgt.config.poller.Parameter;
 import org.opennms.netmgt.config.poller.Service;
 import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.PollStatusCallback;
 import org.opennms.netmgt.poller.ServiceMonitor;
+import org.opennms.netmgt.scheduler.LegacyScheduler;
 import org.opennms.netmgt.scheduler.ScheduleInterval;
 import org.opennms.netmgt.scheduler.Timer;
 
@@ -60,7 +64,7 @@ public class PollableServiceConfig implements PollConfig, ScheduleInterval {
     private Package m_pkg;
     private Timer m_timer;
     private Service m_configService;
-	private ServiceMonitor m_serviceMonitor;
+	private LatencyStoringServiceMonitorAdaptor m_serviceMonitor;
 
     /**
      * <p>Constructor for PollableServiceConfig.</p>
@@ -121,7 +125,61 @@ public class PollableServiceConfig implements PollConfig, ScheduleInterval {
         }
     }
 
-	private synchronized ServiceMonitor getServiceMonitor() {
+    /**
+     * <p>isAsync</p>
+     *
+     * <p>Asynchronous polls are off unless the monitor supports them and they
+     * are turned on with the <code>org.opennms.poller.async</code> system
+     * property. The <code>async</code> parameter of a service overrides the
+     * property for that service.</p>
+     *
+     * @return a boolean.
+     */
+    @Override
+    public boolean isAsync() {
+        if (!getServiceMonitor().isAsync()) {
+            return false;
+        }
+        final String async = ParameterMap.getKeyedString(getParameters(), "async", null);
+        if (async != null) {
+            return Boolean.valueOf(async.trim());
+        }
+        return Boolean.getBoolean("org.opennms.poller.async");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void poll(final PollStatusCallback callback) {
+        String packageName = null;
+        synchronized(this) {
+            packageName = m_pkg.getName();
+        }
+        try {
+            LOG.debug("Polling {} asynchronously using pkg {}", packageName, m_service);
+            getServiceMonitor().poll(m_service, getParameters(), getCompletionExecutor(), callback);
+        } catch (Throwable e) {
+            LOG.error("Unexpected exception while polling {}. Marking service as DOWN", m_service, e);
+            callback.complete(PollStatus.down("Unexpected exception while polling "+m_service+". "+e));
+        }
+    }
+
+    /**
+     * The results of asynchronous polls are handled by the scheduler's
+     * threads, the monitors' I/O threads only hand them over.
+     */
+    private Executor getCompletionExecutor() {
+        if (m_timer instanceof LegacyScheduler) {
+            return ((LegacyScheduler)m_timer).getRunner();
+        }
+        return new Executor() {
+            @Override
+            public void execute(Runnable r) {
+                r.run();
+            }
+        };
+    }
+
+	private synchronized LatencyStoringServiceMonitorAdaptor getServiceMonitor() {
 		if (m_serviceMonitor == null) {
 			ServiceMonitor monitor = m_pollerConfig.getServiceMonitor(m_service.getSvcName());
 			m_serviceMonitor = new LatencyStoringServiceMonitorAdaptor(monitor, m_pollerConfig, m_pkg);
@@ -180,6 +238,15 @@ public class PollableServiceConfig implements PollConfig, ScheduleInterval {
     }
     
 
+    /**
+     * <p>getPackageName</p>
+     *
+     * @return the name of the package the service is polled by.
+     */
+    public synchronized String getPackageName() {
+        return m_pkg.getName();
+    }
+
     /**
      * <p>getCurrentTime</p>
      *
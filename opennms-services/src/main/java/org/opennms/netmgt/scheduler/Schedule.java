@@ -85,8 +85,7 @@ public class Schedule {
                 try {
                     Schedule.this.run();
                 } catch (PostponeNecessary e) {
-				   // Chose a random number of seconds between 5 and 14 to wait before trying again
-                    m_timer.schedule(random.nextInt(10)*1000+5000, this);
+                    m_timer.schedule(getPostponeDelay(), this);
                     return;
                 }
             }
@@ -149,6 +148,21 @@ public class Schedule {
         schedule(m_interval.getInterval());
     }
 
+    /**
+     * Runs the schedulable again after the same delay as when a run throws
+     * {@link PostponeNecessary}, for runs that only find out they must be
+     * postponed after they returned, such as asynchronous polls.
+     */
+    public void postpone() {
+        if (m_scheduled)
+            m_timer.schedule(getPostponeDelay(), new ScheduleEntry(++m_currentExpirationCode));
+    }
+
+    private static long getPostponeDelay() {
+        // Chose a random number of seconds between 5 and 14 to wait before trying again
+        return random.nextInt(10)*1000+5000;
+    }
+
     /**
      * <p>unschedule</p>
      */
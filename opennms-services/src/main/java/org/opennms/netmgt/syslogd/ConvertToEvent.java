@@ -56,6 +56,7 @@ import org.opennms.netmgt.config.syslogd.ProcessMatch;
 import org.opennms.netmgt.config.syslogd.UeiList;
 import org.opennms.netmgt.config.syslogd.UeiMatch;
 import org.opennms.netmgt.model.events.EventBuilder;
+import org.opennms.netmgt.utils.InterfaceToNodeCache;
 import org.opennms.netmgt.xml.event.Event;
 
 /**
@@ -210,13 +211,15 @@ final class ConvertToEvent {
 
         final String hostAddress = message.getHostAddress();
         if (hostAddress != null && hostAddress.length() > 0) {
+            final InetAddress address = addr(hostAddress);
+
             // Set nodeId
-            long nodeId = SyslogdIPMgr.getNodeId(hostAddress);
+            long nodeId = InterfaceToNodeCache.getInstance().getNodeId(address);
             if (nodeId != -1) {
                 bldr.setNodeid(nodeId);
             }
 
-            bldr.setInterface(addr(hostAddress));
+            bldr.setInterface(address);
         }
         
         bldr.setLogDest("logndisplay");
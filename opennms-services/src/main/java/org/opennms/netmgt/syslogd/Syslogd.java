@@ -37,6 +37,7 @@ import org.exolab.castor.xml.ValidationException;
 import org.opennms.netmgt.config.SyslogdConfigFactory;
 import org.opennms.netmgt.daemon.AbstractServiceDaemon;
 import org.opennms.netmgt.dao.api.EventDao;
+import org.opennms.netmgt.utils.InterfaceToNodeCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -114,11 +115,12 @@ import org.slf4j.LoggerFactory;
 
         try {
             // clear out the known nodes
-            SyslogdIPMgr.dataSourceSync();
+            InterfaceToNodeCache.getInstance().dataSourceSync();
         } catch (SQLException e) {
             LOG.error("Failed to load known IP address list", e);
             throw new UndeclaredThrowableException(e);
         }
+        InterfaceToNodeCache.getInstance().startBackgroundRefresh(this);
 
         SyslogHandler.setSyslogConfig(SyslogdConfigFactory.getInstance());
         LOG.debug("Starting SyslogProcessor");
@@ -167,6 +169,8 @@ import org.slf4j.LoggerFactory;
 
         m_udpEventReceiver.stop();
         LOG.debug("Stopped the Syslog UDP Receiver");
+
+        InterfaceToNodeCache.getInstance().stopBackgroundRefresh(this);
     }
 
     /**
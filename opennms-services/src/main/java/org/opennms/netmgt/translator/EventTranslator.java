@@ -28,6 +28,8 @@
 
 package org.opennms.netmgt.translator;
 
+import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -40,6 +42,7 @@ import org.opennms.netmgt.model.events.EventBuilder;
 import org.opennms.netmgt.model.events.EventIpcManager;
 import org.opennms.netmgt.model.events.EventListener;
 import org.opennms.netmgt.model.events.EventUtils;
+import org.opennms.netmgt.utils.InterfaceToNodeCache;
 import org.opennms.netmgt.xml.event.Event;
 import org.opennms.netmgt.xml.event.Events;
 import org.opennms.netmgt.xml.event.Log;
@@ -57,6 +60,22 @@ import org.slf4j.LoggerFactory;
 public class EventTranslator extends AbstractServiceDaemon implements EventListener {
     
     private static final Logger LOG = LoggerFactory.getLogger(EventTranslator.class);
+
+    /**
+     * Inventory changes that may alter the results of sql-value lookups.
+     */
+    private static final List<String> INVENTORY_CHANGE_UEIS = Arrays.asList(
+        EventConstants.NODE_ADDED_EVENT_UEI,
+        EventConstants.NODE_UPDATED_EVENT_UEI,
+        EventConstants.NODE_DELETED_EVENT_UEI,
+        EventConstants.NODE_LABEL_CHANGED_EVENT_UEI,
+        EventConstants.NODE_GAINED_INTERFACE_EVENT_UEI,
+        EventConstants.INTERFACE_DELETED_EVENT_UEI,
+        EventConstants.INTERFACE_REPARENTED_EVENT_UEI,
+        EventConstants.INTERFACE_INDEX_CHANGED_EVENT_UEI,
+        EventConstants.NODE_GAINED_SERVICE_EVENT_UEI,
+        EventConstants.SERVICE_DELETED_EVENT_UEI
+    );
     
     private static EventTranslator s_instance = new EventTranslator();
 
@@ -111,6 +130,12 @@ public class EventTranslator extends AbstractServiceDaemon implements EventListe
         if (m_initialized) return;
         
         checkPreRequisites();
+        try {
+            InterfaceToNodeCache.getInstance().dataSourceSync();
+        } catch (final SQLException e) {
+            LOG.warn("onInit: failed to load known IP address list, translated events will not get node IDs from it", e);
+        }
+        InterfaceToNodeCache.getInstance().startBackgroundRefresh(this);
         createMessageSelectorAndSubscribe();
                 
         m_initialized = true;
@@ -130,6 +155,11 @@ public class EventTranslator extends AbstractServiceDaemon implements EventListe
      */
     @Override
     protected void onStop() {
+        if (m_config != null) {
+            // hands back the connections held by pooled sql-value statements
+            m_config.invalidateLookups();
+        }
+        InterfaceToNodeCache.getInstance().stopBackgroundRefresh(this);
         m_initialized = false;
         m_eventMgr = null;
         m_config = null;
@@ -139,6 +169,7 @@ public class EventTranslator extends AbstractServiceDaemon implements EventListe
         // Subscribe to eventd
         List<String> ueiList = m_config.getUEIList();
         ueiList.add(EventConstants.RELOAD_DAEMON_CONFIG_UEI);
+        ueiList.addAll(INVENTORY_CHANGE_UEIS);
         getEventManager().addEventListener(this, ueiList);
     }
 
@@ -151,6 +182,12 @@ public class EventTranslator extends AbstractServiceDaemon implements EventListe
             return;
         }
 
+        if (INVENTORY_CHANGE_UEIS.contains(e.getUei())) {
+            LOG.debug("onEvent: invalidating sql-value lookups on {}", e.getUei());
+            m_config.invalidateLookups();
+            updateKnownInterfaces(e);
+        }
+
         if (getName().equals(e.getSource())) {
             LOG.debug("onEvent: ignoring event with EventTranslator as source");
             return;
@@ -169,6 +206,7 @@ public class EventTranslator extends AbstractServiceDaemon implements EventListe
             Events events = new Events();
             for (Iterator<Event> iter = translated.iterator(); iter.hasNext();) {
                 Event event = iter.next();
+                assignNodeId(event);
                 events.addEvent(event);
                 LOG.debug("onEvent: sended translated event: \n", EventUtils.toString(event));
             }
@@ -177,6 +215,31 @@ public class EventTranslator extends AbstractServiceDaemon implements EventListe
         }
     }
 
+    private static void updateKnownInterfaces(Event e) {
+        final String uei = e.getUei();
+        if (e.getInterface() == null) {
+            return;
+        } else if (EventConstants.INTERFACE_DELETED_EVENT_UEI.equals(uei)) {
+            InterfaceToNodeCache.getInstance().removeNodeId(e.getInterface());
+        } else if ((EventConstants.NODE_GAINED_INTERFACE_EVENT_UEI.equals(uei) || EventConstants.INTERFACE_REPARENTED_EVENT_UEI.equals(uei)) && e.hasNodeid()) {
+            InterfaceToNodeCache.getInstance().setNodeId(e.getInterface(), e.getNodeid());
+        }
+    }
+
+    /**
+     * Give a translated event that has an interface but no node the node
+     * that interface belongs to.
+     */
+    private static void assignNodeId(Event event) {
+        if (event.getInterface() == null || (event.hasNodeid() && event.getNodeid() > 0)) {
+            return;
+        }
+        final long nodeId = InterfaceToNodeCache.getInstance().getNodeId(event.getInterface());
+        if (nodeId != -1) {
+            event.setNodeid(nodeId);
+        }
+    }
+
     /**
      * Re-marshals the translator specs into the factory's config member and
      * re-registers the UIEs with the eventProxy.
@@ -194,6 +257,7 @@ public class EventTranslator extends AbstractServiceDaemon implements EventListe
             //registered separate from the config (i.e. reloadDaemonConfig)
             getEventManager().removeEventListener(this, previousUeis);
             getEventManager().addEventListener(this, m_config.getUEIList());
+            getEventManager().addEventListener(this, INVENTORY_CHANGE_UEIS);
             
             LOG.debug("onEvent: configuration reloaded.");
             ebldr = new EventBuilder(EventConstants.RELOAD_DAEMON_CONFIG_SUCCESSFUL_UEI, getName());
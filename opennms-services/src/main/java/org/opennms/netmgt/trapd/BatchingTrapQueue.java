@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.trapd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
+import org.opennms.netmgt.model.events.EventIpcManager;
+import org.opennms.netmgt.snmp.TrapNotification;
+import org.opennms.netmgt.xml.event.Event;
+import org.opennms.netmgt.xml.event.Events;
+import org.opennms.netmgt.xml.event.Log;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Bounded queue between the SNMP receiver threads and event creation. With
+ * <code>org.opennms.trapd.batch=true</code>, received traps are put on a
+ * queue of <code>org.opennms.trapd.batch.queueSize</code> traps instead of
+ * being handed to the backlog executor one by one. When the queue is full the
+ * trap is dropped and counted, so a burst cannot exhaust the heap or hold up
+ * the receiver threads.
+ * </p>
+ *
+ * <p>
+ * <code>org.opennms.trapd.batch.threads</code> worker threads take whatever
+ * is queued, up to <code>org.opennms.trapd.batch.size</code> traps, convert
+ * the traps to events and send them to eventd as one {@link Log}. A batch is
+ * sent as soon as the queue is empty, so a lone trap is not delayed. With more
+ * than one worker, traps may reach eventd out of order.
+ * </p>
+ */
+public final class BatchingTrapQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingTrapQueue.class);
+
+    /** How long an idle worker waits for a trap before checking for shutdown */
+    private static final long POLL_INTERVAL = 500;
+
+    /** How long stopping waits for the queued traps to be sent */
+    private static final long STOP_TIMEOUT = 10000;
+
+    private final boolean m_enabled;
+    private final int m_batchSize;
+    private final int m_threads;
+    private final BlockingQueue<TrapNotification> m_queue;
+
+    private final AtomicLong m_dropped = new AtomicLong();
+    private final AtomicLong m_batches = new AtomicLong();
+
+    private volatile boolean m_running;
+    private ExecutorService m_workers;
+    private TrapQueueProcessorFactory m_processorFactory;
+
+    /**
+     * Configure from the <code>org.opennms.trapd.batch.*</code> system properties.
+     */
+    BatchingTrapQueue() {
+        this(Boolean.getBoolean("org.opennms.trapd.batch"),
+             Integer.getInteger("org.opennms.trapd.batch.queueSize", 50000),
+             Integer.getInteger("org.opennms.trapd.batch.size", 500),
+             Integer.getInteger("org.opennms.trapd.batch.threads", 1));
+    }
+
+    BatchingTrapQueue(final boolean enabled, final int queueSize, final int batchSize, final int threads) {
+        m_enabled = enabled;
+        m_batchSize = Math.max(1, batchSize);
+        m_threads = Math.max(1, threads);
+        m_queue = new ArrayBlockingQueue<TrapNotification>(Math.max(1, queueSize));
+    }
+
+    public boolean isEnabled() {
+        return m_enabled;
+    }
+
+    /**
+     * Start the workers that convert and send the queued traps.
+     */
+    synchronized void start(final TrapQueueProcessorFactory processorFactory) {
+        if (!m_enabled || m_workers != null) {
+            return;
+        }
+        m_processorFactory = processorFactory;
+        m_running = true;
+        m_workers = Executors.newFixedThreadPool(m_threads, new LogPreservingThreadFactory("Trapd-Batch", m_threads, false));
+        for (int i = 0; i < m_threads; i++) {
+            m_workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            });
+        }
+        LOG.info("Batching traps to eventd: queue of {} traps, batches of up to {} traps, {} worker threads", m_queue.remainingCapacity() + m_queue.size(), m_batchSize, m_threads);
+    }
+
+    /**
+     * Queue a received trap.
+     *
+     * @return false if the queue is full and the trap was dropped
+     */
+    boolean offer(final TrapNotification trapNotification) {
+        if (m_queue.offer(trapNotification)) {
+            return true;
+        }
+        final long dropped = m_dropped.incrementAndGet();
+        if (dropped == 1 || dropped % 10000 == 0) {
+            LOG.warn("Trap queue is full, {} traps dropped so far", dropped);
+        }
+        return false;
+    }
+
+    /**
+     * Stop taking traps and wait for the workers to send what is queued.
+     */
+    synchronized void stop() {
+        if (m_workers == null) {
+            return;
+        }
+        m_running = false;
+        m_workers.shutdown();
+        try {
+            if (!m_workers.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                LOG.warn("Timed out sending queued traps, discarding {} traps", m_queue.size());
+                m_workers.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            LOG.warn("Interrupted while sending queued traps, discarding {} traps", m_queue.size());
+            m_workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        m_queue.clear();
+        m_workers = null;
+    }
+
+    private void drain() {
+        final List<TrapNotification> batch = new ArrayList<TrapNotification>(m_batchSize);
+        while (m_running || !m_queue.isEmpty()) {
+            try {
+                final TrapNotification first = m_queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                m_queue.drainTo(batch, m_batchSize - 1);
+                send(batch);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(final List<TrapNotification> batch) {
+        final Events events = new Events();
+        for (final TrapNotification trapNotification : batch) {
+            for (final Event event : m_processorFactory.getInstance(trapNotification).createEvents()) {
+                events.addEvent(event);
+            }
+        }
+        if (events.getEventCount() == 0) {
+            return;
+        }
+
+        final Log log = new Log();
+        log.setEvents(events);
+        final EventIpcManager eventManager = m_processorFactory.getEventManager();
+        try {
+            eventManager.sendNow(log);
+            m_batches.incrementAndGet();
+            LOG.debug("Sent {} events for {} traps to eventd", events.getEventCount(), batch.size());
+        } catch (final Throwable e) {
+            LOG.error("Unexpected error sending {} trap events: {}", events.getEventCount(), e, e);
+        }
+    }
+
+    /**
+     * @return the number of traps waiting to be converted
+     */
+    public int getQueued() {
+        return m_queue.size();
+    }
+
+    /**
+     * @return the number of traps dropped because the queue was full
+     */
+    public long getDropped() {
+        return m_dropped.get();
+    }
+
+    /**
+     * @return the number of batches sent to eventd
+     */
+    public long getBatches() {
+        return m_batches.get();
+    }
+}
@@ -29,12 +29,13 @@
 package org.opennms.netmgt.trapd;
 
 import java.net.InetAddress;
-import java.util.HashMap;
+import java.sql.SQLException;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
-import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.netmgt.dao.api.IpInterfaceDao;
 import org.opennms.netmgt.model.OnmsIpInterface;
+import org.opennms.netmgt.utils.InterfaceToNodeCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -58,9 +59,9 @@ public class HibernateTrapdIpMgr implements TrapdIpMgr, InitializingBean {
     private IpInterfaceDao m_ipInterfaceDao;
     
     /**
-     * A Map of IP addresses and node IDs
+     * The IP addresses and node IDs, shared with the other daemons
      */
-    private Map<InetAddress, Integer> m_knownips = new HashMap<InetAddress, Integer>();
+    private final InterfaceToNodeCache m_knownips = InterfaceToNodeCache.getInstance();
 
     /**
      * Default construct for the instance.
@@ -76,8 +77,19 @@ public class HibernateTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      */
     @Transactional(readOnly = true)
     @Override
-    public synchronized void dataSourceSync() {
-        m_knownips = m_ipInterfaceDao.getInterfacesForNodes();
+    public void dataSourceSync() throws SQLException {
+        try {
+            m_knownips.rebuild(new Callable<Map<InetAddress, Integer>>() {
+                @Override
+                public Map<InetAddress, Integer> call() {
+                    return m_ipInterfaceDao.getInterfacesForNodes();
+                }
+            });
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new SQLException("Unable to load the known IP addresses", e);
+        }
     }
 
     /* (non-Javadoc)
@@ -85,11 +97,14 @@ public class HibernateTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      */
     /** {@inheritDoc} */
     @Override
-    public synchronized long getNodeId(String addr) {
-        if (addr == null) {
-            return -1;
-        }
-        return longValue(m_knownips.get(InetAddressUtils.getInetAddress(addr)));
+    public long getNodeId(String addr) {
+        return m_knownips.getNodeId(addr);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getNodeId(InetAddress addr) {
+        return m_knownips.getNodeId(addr);
     }
 
     /* (non-Javadoc)
@@ -97,18 +112,18 @@ public class HibernateTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      */
     /** {@inheritDoc} */
     @Override
-    public synchronized long setNodeId(String addr, long nodeid) {
+    public long setNodeId(String addr, long nodeid) {
         if (addr == null || nodeid == -1) {
             return -1;
         }
         // Only add the address if it doesn't exist on the map. If it exists, only replace the current one if the new address is primary.
         boolean add = true;
-        if (m_knownips.containsKey(InetAddressUtils.getInetAddress(addr))) {
+        if (m_knownips.getNodeId(addr) != -1) {
             OnmsIpInterface intf = m_ipInterfaceDao.findByNodeIdAndIpAddress(Integer.valueOf((int) nodeid), addr);
             add = intf != null && intf.isPrimary();
             LOG.info("setNodeId: address found {}. Should be added? {}", intf, add);
         }
-        return add ? longValue(m_knownips.put(InetAddressUtils.getInetAddress(addr), Integer.valueOf((int) nodeid))) : -1;
+        return add ? m_knownips.setNodeId(addr, nodeid) : -1;
     }
 
     /* (non-Javadoc)
@@ -116,11 +131,8 @@ public class HibernateTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      */
     /** {@inheritDoc} */
     @Override
-    public synchronized long removeNodeId(String addr) {
-        if (addr == null) {
-            return -1;
-        }
-        return longValue(m_knownips.remove(InetAddressUtils.getInetAddress(addr)));
+    public long removeNodeId(String addr) {
+        return m_knownips.removeNodeId(addr);
     }
 
     /* (non-Javadoc)
@@ -130,14 +142,10 @@ public class HibernateTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      * <p>clearKnownIpsMap</p>
      */
     @Override
-    public synchronized void clearKnownIpsMap() {
+    public void clearKnownIpsMap() {
         m_knownips.clear();
     }
 
-    private static long longValue(Integer result) {
-        return (result == null ? -1 : result.longValue());
-    }
-
     /**
      * <p>afterPropertiesSet</p>
      *
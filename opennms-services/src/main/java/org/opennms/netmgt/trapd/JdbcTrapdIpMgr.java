@@ -28,16 +28,13 @@
 
 package org.opennms.netmgt.trapd;
 
-import java.sql.ResultSet;
+import java.net.InetAddress;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
 
 import javax.sql.DataSource;
 
+import org.opennms.netmgt.utils.InterfaceToNodeCache;
 import org.springframework.beans.factory.InitializingBean;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.util.Assert;
 
 /**
@@ -49,17 +46,11 @@ import org.springframework.util.Assert;
  */
 public class JdbcTrapdIpMgr implements TrapdIpMgr, InitializingBean {
     private DataSource m_dataSource;
-    
-    /**
-     * The SQL statement used to extract the list of currently known IP
-     * addresses and their node IDs from the IP Interface table.
-     */
-    private static final String IP_LOAD_SQL = "SELECT ipAddr, nodeid FROM ipInterface";
 
     /**
-     * A Map of IP addresses and node IDs
+     * The IP addresses and node IDs, shared with the other daemons
      */
-    private Map<String, Long> m_knownips = new HashMap<String, Long>();
+    private final InterfaceToNodeCache m_knownips = InterfaceToNodeCache.getInstance();
 
     /**
      * Default construct for the instance.
@@ -74,15 +65,8 @@ public class JdbcTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      * <p>dataSourceSync</p>
      */
     @Override
-    public synchronized void dataSourceSync() {
-        m_knownips.clear();
-
-        new JdbcTemplate(m_dataSource).query(IP_LOAD_SQL, new RowCallbackHandler() {
-            @Override
-            public void processRow(ResultSet rs) throws SQLException {
-                m_knownips.put(rs.getString(1), rs.getLong(2));
-            }
-        });
+    public void dataSourceSync() throws SQLException {
+        m_knownips.dataSourceSync(m_dataSource);
     }
 
     /* (non-Javadoc)
@@ -90,11 +74,14 @@ public class JdbcTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      */
     /** {@inheritDoc} */
     @Override
-    public synchronized long getNodeId(String addr) {
-        if (addr == null) {
-            return -1;
-        }
-        return longValue(m_knownips.get(addr));
+    public long getNodeId(String addr) {
+        return m_knownips.getNodeId(addr);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getNodeId(InetAddress addr) {
+        return m_knownips.getNodeId(addr);
     }
 
     /* (non-Javadoc)
@@ -102,12 +89,8 @@ public class JdbcTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      */
     /** {@inheritDoc} */
     @Override
-    public synchronized long setNodeId(String addr, long nodeid) {
-        if (addr == null || nodeid == -1) {
-            return -1;
-        }
-        
-        return longValue(m_knownips.put(addr, Long.valueOf(nodeid)));
+    public long setNodeId(String addr, long nodeid) {
+        return m_knownips.setNodeId(addr, nodeid);
     }
 
     /* (non-Javadoc)
@@ -115,11 +98,8 @@ public class JdbcTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      */
     /** {@inheritDoc} */
     @Override
-    public synchronized long removeNodeId(String addr) {
-        if (addr == null) {
-            return -1;
-        }
-        return longValue(m_knownips.remove(addr));
+    public long removeNodeId(String addr) {
+        return m_knownips.removeNodeId(addr);
     }
 
     /* (non-Javadoc)
@@ -129,14 +109,10 @@ public class JdbcTrapdIpMgr implements TrapdIpMgr, InitializingBean {
      * <p>clearKnownIpsMap</p>
      */
     @Override
-    public synchronized void clearKnownIpsMap() {
+    public void clearKnownIpsMap() {
         m_knownips.clear();
     }
 
-    private static long longValue(Long result) {
-        return (result == null ? -1 : result.longValue());
-    }
-
     /**
      * <p>getDataSource</p>
      *
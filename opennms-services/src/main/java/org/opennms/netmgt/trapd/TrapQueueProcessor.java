@@ -31,6 +31,8 @@ package org.opennms.netmgt.trapd;
 import static org.opennms.core.utils.InetAddressUtils.addr;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import org.opennms.core.concurrent.WaterfallCallable;
@@ -155,21 +157,41 @@ class TrapQueueProcessor implements WaterfallCallable, InitializingBean {
     @Override
     public Callable<Void> call() {
         try {
-            processTrapEvent(((EventCreator)m_trapNotification.getTrapProcessor()).getEvent());
+            for (final Event event : createEvents()) {
+                m_eventMgr.sendNow(event);
+            }
+        } catch (Throwable e) {
+            LOG.error("Unexpected error sending trap event: {}", e, e);
+        }
+        return null;
+    }
+
+    /**
+     * Converts the trap into the events to send to eventd: the trap event,
+     * unless it is discarded, followed by a newSuspect event when the trap
+     * came from an unknown interface.
+     *
+     * @return the events, empty if the trap could not be converted
+     */
+    List<Event> createEvents() {
+        final List<Event> events = new ArrayList<Event>(2);
+        try {
+            processTrapEvent(((EventCreator)m_trapNotification.getTrapProcessor()).getEvent(), events);
         } catch (IllegalArgumentException e) {
             LOG.info(e.getMessage());
         } catch (Throwable e) {
             LOG.error("Unexpected error processing trap: {}", e, e);
         }
-        return null;
+        return events;
     }
 
     /**
      * <p>processTrapEvent</p>
      *
      * @param event a {@link org.opennms.netmgt.xml.event.Event} object.
+     * @param events the events to send to eventd
      */
-    private void processTrapEvent(final Event event) {
+    private void processTrapEvent(final Event event, final List<Event> events) {
     	final InetAddress trapInterface = event.getInterfaceAddress();
 
     	final org.opennms.netmgt.xml.eventconf.Event econf = m_eventConfDao.findByEvent(event);
@@ -191,33 +213,31 @@ class TrapQueueProcessor implements WaterfallCallable, InitializingBean {
         }
 
         // send the event to eventd
-        m_eventMgr.sendNow(event);
+        events.add(event);
 
-        LOG.debug("Trap successfully converted and sent to eventd with UEI {}", event.getUei());
+        LOG.debug("Trap successfully converted to event with UEI {}", event.getUei());
 
         if (!event.hasNodeid() && m_newSuspect) {
-            sendNewSuspectEvent(InetAddressUtils.str(trapInterface));
+            events.add(createNewSuspectEvent(InetAddressUtils.str(trapInterface)));
 
-            LOG.debug("Sent newSuspectEvent for interface: {}", trapInterface);
+            LOG.debug("Created newSuspectEvent for interface: {}", trapInterface);
 
         }
     }
 
     /**
-     * Send a newSuspect event for the interface
+     * Create a newSuspect event for the interface
      * 
      * @param trapInterface
      *            The interface for which the newSuspect event is to be
      *            generated
      */
-    private void sendNewSuspectEvent(String trapInterface) {
+    private static Event createNewSuspectEvent(String trapInterface) {
         // construct event with 'trapd' as source
         EventBuilder bldr = new EventBuilder(org.opennms.netmgt.EventConstants.NEW_SUSPECT_INTERFACE_EVENT_UEI, "trapd");
         bldr.setInterface(addr(trapInterface));
         bldr.setHost(LOCALHOST_ADDRESS);
-
-        // send the event to eventd
-        m_eventMgr.sendNow(bldr.getEvent());
+        return bldr.getEvent();
     }
 
     /**
@@ -34,6 +34,8 @@ import java.net.InetAddress;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Resource;
 
@@ -47,6 +49,7 @@ import org.opennms.netmgt.snmp.TrapNotification;
 import org.opennms.netmgt.snmp.TrapNotificationListener;
 import org.opennms.netmgt.snmp.TrapProcessor;
 import org.opennms.netmgt.snmp.TrapProcessorFactory;
+import org.opennms.netmgt.utils.InterfaceToNodeCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -92,6 +95,13 @@ public class Trapd extends AbstractServiceDaemon implements TrapProcessorFactory
      */
     private ExecutorService m_backlogQ;
 
+    /**
+     * The bounded queue used instead of the backlog when traps are batched
+     */
+    private final BatchingTrapQueue m_trapQueue = new BatchingTrapQueue();
+
+    private final AtomicLong m_trapsReceived = new AtomicLong();
+
     /**
      * The queue processing thread
      */
@@ -148,7 +158,12 @@ public class Trapd extends AbstractServiceDaemon implements TrapProcessorFactory
     /** {@inheritDoc} */
     @Override
     public void trapReceived(TrapNotification trapNotification) {
-        m_backlogQ.submit(m_processorFactory.getInstance(trapNotification));
+        m_trapsReceived.incrementAndGet();
+        if (m_trapQueue.isEnabled()) {
+            m_trapQueue.offer(trapNotification);
+        } else {
+            m_backlogQ.submit(m_processorFactory.getInstance(trapNotification));
+        }
     }
 
     /**
@@ -166,6 +181,9 @@ public class Trapd extends AbstractServiceDaemon implements TrapProcessorFactory
             LOG.error("init: Failed to load known IP address list", e);
             throw new UndeclaredThrowableException(e);
         }
+        InterfaceToNodeCache.getInstance().startBackgroundRefresh(this);
+
+        m_trapQueue.start(m_processorFactory);
 
         try {
         	InetAddress address = getInetAddress();
@@ -288,10 +306,13 @@ public class Trapd extends AbstractServiceDaemon implements TrapProcessorFactory
 
         LOG.debug("stop: Stopping queue processor.");
 
+        m_trapQueue.stop();
         m_backlogQ.shutdown();
 
         m_eventReader.close();
 
+        InterfaceToNodeCache.getInstance().stopBackgroundRefresh(this);
+
         m_status = STOPPED;
 
         LOG.debug("stop: Trapd stopped");
@@ -349,6 +370,39 @@ public class Trapd extends AbstractServiceDaemon implements TrapProcessorFactory
         m_backlogQ = backlogQ;
     }
 
+    /**
+     * @return the number of traps received
+     */
+    public long getTrapsReceived() {
+        return m_trapsReceived.get();
+    }
+
+    /**
+     * @return the number of traps dropped because the trap queue was full
+     */
+    public long getTrapsDropped() {
+        return m_trapQueue.getDropped();
+    }
+
+    /**
+     * @return the number of traps received and not yet converted to events
+     */
+    public int getTrapsQueued() {
+        if (m_trapQueue.isEnabled()) {
+            return m_trapQueue.getQueued();
+        } else if (m_backlogQ instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) m_backlogQ).getQueue().size();
+        }
+        return 0;
+    }
+
+    /**
+     * @return the number of batches of trap events sent to eventd
+     */
+    public long getTrapBatchesSent() {
+        return m_trapQueue.getBatches();
+    }
+
     public static String getLoggingCategory() {
         return LOG4J_CATEGORY;
     }
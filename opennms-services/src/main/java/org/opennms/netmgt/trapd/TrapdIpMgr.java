@@ -28,6 +28,7 @@
 
 package org.opennms.netmgt.trapd;
 
+import java.net.InetAddress;
 import java.sql.SQLException;
 
 /**
@@ -59,6 +60,15 @@ public interface TrapdIpMgr {
      */
     public abstract long getNodeId(String addr);
 
+    /**
+     * Returns the nodeid for the IP Address
+     *
+     * @param addr
+     *            The IP Address to query.
+     * @return The node ID of the IP Address if known.
+     */
+    public abstract long getNodeId(InetAddress addr);
+
     /**
      * Sets the IP Address and Node ID in the Map.
      *
@@ -48,4 +48,28 @@ public class Trapd extends AbstractSpringContextJmxServiceDaemon<org.opennms.net
     protected String getSpringContext() {
         return "trapDaemonContext";       
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTrapsReceived() {
+        return getDaemon().getTrapsReceived();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTrapsDropped() {
+        return getDaemon().getTrapsDropped();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getTrapsQueued() {
+        return getDaemon().getTrapsQueued();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTrapBatchesSent() {
+        return getDaemon().getTrapBatchesSent();
+    }
 }
@@ -37,4 +37,24 @@ import org.opennms.netmgt.daemon.BaseOnmsMBean;
  * @version $Id: $
  */
 public interface TrapdMBean extends BaseOnmsMBean {
+    /**
+     * @return the number of traps received (counter)
+     */
+    public long getTrapsReceived();
+
+    /**
+     * @return the number of traps dropped because the trap queue was full
+     * (counter)
+     */
+    public long getTrapsDropped();
+
+    /**
+     * @return the number of traps received and not yet converted to events
+     */
+    public int getTrapsQueued();
+
+    /**
+     * @return the number of batches of trap events sent to eventd (counter)
+     */
+    public long getTrapBatchesSent();
 }
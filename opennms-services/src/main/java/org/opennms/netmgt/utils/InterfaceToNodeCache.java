@@ -0,0 +1,370 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.utils;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
+import org.opennms.core.db.DataSourceFactory;
+import org.opennms.core.utils.DBUtils;
+import org.opennms.core.utils.InetAddressUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Maps IP addresses to the node that has them, for the daemons that need to
+ * find the node a message came from (Trapd, Syslogd, the event translator and
+ * Discovery).  A single instance is shared by all of them.
+ * </p>
+ *
+ * <p>
+ * Lookups never lock: the addresses are kept in a concurrent map keyed by
+ * {@link InetAddress}, so IPv4 and IPv6 addresses compare by value no matter
+ * how they were written.  The daemons keep the map current from
+ * nodeGainedInterface, interfaceReparented and interfaceDeleted events, and it
+ * is rebuilt from the database every
+ * <code>org.opennms.interfaceToNodeCache.refreshInterval</code> milliseconds
+ * (default 5 minutes, 0 disables it) for as long as one of the daemons that
+ * started the refresh is running.  A rebuild loads a new map and swaps it
+ * in, replaying any updates made while it was loading.
+ * </p>
+ *
+ * <p>
+ * When an address belongs to more than one node, the node where it is the
+ * primary SNMP interface is preferred.
+ * </p>
+ */
+public final class InterfaceToNodeCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InterfaceToNodeCache.class);
+
+    /**
+     * Loads the addresses of all the interfaces that have not been deleted,
+     * primary SNMP interfaces last so that they win.
+     */
+    public static final String LOAD_SQL = "SELECT ipAddr, nodeId FROM ipInterface WHERE isManaged IS NULL OR isManaged <> 'D' "
+            + "ORDER BY CASE WHEN isSnmpPrimary = 'P' THEN 1 ELSE 0 END";
+
+    private static final InterfaceToNodeCache s_instance = new InterfaceToNodeCache();
+
+    private volatile ConcurrentMap<InetAddress, Integer> m_nodeIds = new ConcurrentHashMap<InetAddress, Integer>();
+
+    /** Serializes updates with swapping in a rebuilt map, lookups never take it */
+    private final Object m_updateLock = new Object();
+
+    /** Serializes rebuilds */
+    private final Object m_rebuildLock = new Object();
+
+    /** Updates made while a rebuild is loading, null when none is */
+    private List<Object[]> m_journal = null;
+
+    private ScheduledExecutorService m_refresher = null;
+
+    /** The daemons that want the background refresh, it stops with the last one */
+    private final Set<Object> m_refreshUsers = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    InterfaceToNodeCache() {
+    }
+
+    /**
+     * <p>getInstance</p>
+     *
+     * @return the instance shared by all daemons
+     */
+    public static InterfaceToNodeCache getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * Returns the node ID for the IP address.
+     *
+     * @param addr the IP address to query
+     * @return the node ID of the IP address, or -1 if it is unknown
+     */
+    public long getNodeId(final InetAddress addr) {
+        if (addr == null) {
+            return -1;
+        }
+        return longValue(m_nodeIds.get(addr));
+    }
+
+    /**
+     * Returns the node ID for the IP address.
+     *
+     * @param addr the IP address to query, as a string
+     * @return the node ID of the IP address, or -1 if it is unknown
+     */
+    public long getNodeId(final String addr) {
+        final InetAddress address = toAddress(addr);
+        return address == null ? -1 : getNodeId(address);
+    }
+
+    /**
+     * Maps the IP address to the node.
+     *
+     * @return the node ID the address was mapped to before, or -1
+     */
+    public long setNodeId(final InetAddress addr, final long nodeId) {
+        if (addr == null || nodeId == -1) {
+            return -1;
+        }
+        synchronized (m_updateLock) {
+            journal(addr, Integer.valueOf((int) nodeId));
+            return longValue(m_nodeIds.put(addr, Integer.valueOf((int) nodeId)));
+        }
+    }
+
+    /**
+     * Maps the IP address to the node.
+     *
+     * @return the node ID the address was mapped to before, or -1
+     */
+    public long setNodeId(final String addr, final long nodeId) {
+        return setNodeId(toAddress(addr), nodeId);
+    }
+
+    /**
+     * Forgets the IP address.
+     *
+     * @return the node ID the address was mapped to, or -1
+     */
+    public long removeNodeId(final InetAddress addr) {
+        if (addr == null) {
+            return -1;
+        }
+        synchronized (m_updateLock) {
+            journal(addr, null);
+            return longValue(m_nodeIds.remove(addr));
+        }
+    }
+
+    /**
+     * Forgets the IP address.
+     *
+     * @return the node ID the address was mapped to, or -1
+     */
+    public long removeNodeId(final String addr) {
+        return removeNodeId(toAddress(addr));
+    }
+
+    /**
+     * <p>clear</p>
+     */
+    public void clear() {
+        synchronized (m_updateLock) {
+            if (m_journal != null) {
+                m_journal.clear();
+            }
+            m_nodeIds = new ConcurrentHashMap<InetAddress, Integer>();
+        }
+    }
+
+    /**
+     * @return the number of IP addresses known
+     */
+    public int size() {
+        return m_nodeIds.size();
+    }
+
+    /**
+     * Rebuild the map from the ipInterface table.
+     *
+     * @throws SQLException if the addresses cannot be loaded, the current
+     *         map is kept
+     */
+    public void dataSourceSync() throws SQLException {
+        dataSourceSync(DataSourceFactory.getInstance());
+    }
+
+    /**
+     * Rebuild the map from the ipInterface table in <code>dataSource</code>.
+     * Addresses that cannot be parsed are skipped.
+     *
+     * @throws SQLException if the addresses cannot be loaded, the current
+     *         map is kept
+     */
+    public void dataSourceSync(final DataSource dataSource) throws SQLException {
+        try {
+            rebuild(new Callable<Map<InetAddress, Integer>>() {
+                @Override
+                public Map<InetAddress, Integer> call() throws SQLException {
+                    return loadFromDatabase(dataSource);
+                }
+            });
+        } catch (final SQLException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IllegalStateException("Unable to load the known IP addresses", e);
+        }
+    }
+
+    /**
+     * Rebuild the map from what <code>loader</code> returns.  Lookups keep
+     * using the current map while the loader runs, updates made in the
+     * meantime are applied to the new map before it replaces the current one.
+     *
+     * @throws Exception whatever the loader throws, the current map is kept
+     */
+    public void rebuild(final Callable<Map<InetAddress, Integer>> loader) throws Exception {
+        synchronized (m_rebuildLock) {
+            synchronized (m_updateLock) {
+                m_journal = new ArrayList<Object[]>();
+            }
+            Map<InetAddress, Integer> loaded = null;
+            try {
+                loaded = loader.call();
+            } finally {
+                synchronized (m_updateLock) {
+                    if (loaded != null) {
+                        final ConcurrentMap<InetAddress, Integer> nodeIds = new ConcurrentHashMap<InetAddress, Integer>(loaded);
+                        for (final Object[] update : m_journal) {
+                            if (update[1] == null) {
+                                nodeIds.remove(update[0]);
+                            } else {
+                                nodeIds.put((InetAddress) update[0], (Integer) update[1]);
+                            }
+                        }
+                        m_nodeIds = nodeIds;
+                    }
+                    m_journal = null;
+                }
+            }
+            LOG.info("Loaded {} known IP addresses", m_nodeIds.size());
+        }
+    }
+
+    /**
+     * Start rebuilding the map from the database in the background on behalf
+     * of <code>user</code>, unless that is disabled.  The refresh keeps
+     * running until every user has called {@link #stopBackgroundRefresh(Object)}.
+     *
+     * @param user the daemon that needs the refresh, starting twice for the
+     *        same user has no effect
+     */
+    public synchronized void startBackgroundRefresh(final Object user) {
+        m_refreshUsers.add(user);
+        final long interval = Long.getLong("org.opennms.interfaceToNodeCache.refreshInterval", 5L * 60L * 1000L);
+        if (m_refresher != null || interval <= 0) {
+            return;
+        }
+        m_refresher = Executors.newSingleThreadScheduledExecutor(new LogPreservingThreadFactory("InterfaceToNodeCache", 1, true));
+        m_refresher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dataSourceSync();
+                } catch (final Throwable e) {
+                    LOG.warn("Unable to refresh the known IP addresses, keeping the current ones", e);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background refresh once no other user needs it.
+     *
+     * @param user the daemon that started the refresh
+     */
+    public synchronized void stopBackgroundRefresh(final Object user) {
+        m_refreshUsers.remove(user);
+        if (m_refreshUsers.isEmpty() && m_refresher != null) {
+            m_refresher.shutdownNow();
+            m_refresher = null;
+        }
+    }
+
+    synchronized boolean isBackgroundRefreshRunning() {
+        return m_refresher != null;
+    }
+
+    private void journal(final InetAddress addr, final Integer nodeId) {
+        if (m_journal != null) {
+            m_journal.add(new Object[] { addr, nodeId });
+        }
+    }
+
+    private static Map<InetAddress, Integer> loadFromDatabase(final DataSource dataSource) throws SQLException {
+        final Map<InetAddress, Integer> nodeIds = new HashMap<InetAddress, Integer>();
+        final DBUtils d = new DBUtils(InterfaceToNodeCache.class);
+        try {
+            final Connection conn = dataSource.getConnection();
+            d.watch(conn);
+            final PreparedStatement stmt = conn.prepareStatement(LOAD_SQL);
+            d.watch(stmt);
+            final ResultSet rs = stmt.executeQuery();
+            d.watch(rs);
+            while (rs.next()) {
+                final InetAddress addr = toAddress(rs.getString(1));
+                if (addr != null) {
+                    nodeIds.put(addr, rs.getInt(2));
+                }
+            }
+        } finally {
+            d.cleanUp();
+        }
+        return nodeIds;
+    }
+
+    private static InetAddress toAddress(final String addr) {
+        if (addr == null) {
+            return null;
+        }
+        try {
+            return InetAddressUtils.addr(addr);
+        } catch (final IllegalArgumentException e) {
+            LOG.debug("Ignoring invalid IP address {}", addr);
+            return null;
+        }
+    }
+
+    private static long longValue(final Integer result) {
+        return (result == null ? -1 : result.longValue());
+    }
+}
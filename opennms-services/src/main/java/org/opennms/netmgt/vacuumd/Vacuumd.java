@@ -255,7 +255,8 @@ public class Vacuumd extends AbstractServiceDaemon implements Runnable, EventLis
             dbConn.setAutoCommit(autoCommitFlag);
 
             PreparedStatement stmt = dbConn.prepareStatement(sql);
-            int count = stmt.executeUpdate();
+            // statements may also be a SELECT of a maintenance function
+            int count = stmt.execute() ? -1 : stmt.getUpdateCount();
             stmt.close();
 
             LOG.debug("Vacuumd: Ran update {}: this affected {} rows", sql, count);
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.collectd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncCollectionDispatcherTest {
+
+    private AsyncCollectionDispatcher m_dispatcher;
+
+    @After
+    public void tearDown() {
+        if (m_dispatcher != null) {
+            m_dispatcher.stop();
+        }
+    }
+
+    @Test
+    public void testInFlightLimit() {
+        m_dispatcher = new AsyncCollectionDispatcher(true, 2, 1);
+
+        assertTrue(m_dispatcher.tryStart());
+        assertTrue(m_dispatcher.tryStart());
+        assertEquals(2, m_dispatcher.getInFlight());
+
+        assertFalse(m_dispatcher.tryStart());
+        assertEquals(1, m_dispatcher.getDeferred());
+
+        m_dispatcher.finished();
+        assertEquals(1, m_dispatcher.getInFlight());
+        assertTrue(m_dispatcher.tryStart());
+    }
+
+    @Test
+    public void testCompletionRunsOnPool() throws Exception {
+        m_dispatcher = new AsyncCollectionDispatcher(true, 10, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final Thread[] completedOn = new Thread[1];
+
+        m_dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                completedOn[0] = Thread.currentThread();
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertFalse(caller == completedOn[0]);
+    }
+
+    @Test
+    public void testStatistics() {
+        m_dispatcher = new AsyncCollectionDispatcher(false, 10, 1);
+
+        m_dispatcher.recordLateness(100);
+        m_dispatcher.recordLateness(300);
+        m_dispatcher.recordLateness(-50);
+        assertEquals(133, m_dispatcher.getAverageLateness());
+        assertEquals(300, m_dispatcher.getMaxLateness());
+
+        m_dispatcher.recordTimeout("192.168.1.2");
+        m_dispatcher.recordTimeout("192.168.1.1");
+        m_dispatcher.recordTimeout("192.168.1.2");
+        assertEquals(3, m_dispatcher.getTimeouts());
+        assertEquals(Arrays.asList("192.168.1.1: 1", "192.168.1.2: 2"), m_dispatcher.getTimeoutsPerAgent());
+    }
+}
@@ -32,6 +32,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.Map;
 
 import org.opennms.netmgt.config.CollectdPackage;
 import org.opennms.netmgt.config.collectd.Filter;
@@ -47,6 +49,10 @@ import org.opennms.test.FileAnticipator;
 public abstract class CollectorTestUtils {
 
     static CollectionSpecification createCollectionSpec(String svcName, ServiceCollector svcCollector, String collectionName) {
+        return createCollectionSpec(svcName, svcCollector, collectionName, Collections.<String,String>emptyMap());
+    }
+
+    static CollectionSpecification createCollectionSpec(String svcName, ServiceCollector svcCollector, String collectionName, Map<String,String> extraParameters) {
         Package pkg = new Package();
         Filter filter = new Filter();
         filter.setContent("IPADDR IPLIKE *.*.*.*");
@@ -57,6 +63,12 @@ public abstract class CollectorTestUtils {
         collectionParm.setKey("collection");
         collectionParm.setValue(collectionName);
         service.addParameter(collectionParm);
+        for (Map.Entry<String,String> entry : extraParameters.entrySet()) {
+            Parameter parm = new Parameter();
+            parm.setKey(entry.getKey());
+            parm.setValue(entry.getValue());
+            service.addParameter(parm);
+        }
         pkg.addService(service);
 
         CollectdPackage wpkg = new CollectdPackage(pkg, "default", false);
@@ -30,6 +30,7 @@ package org.opennms.netmgt.collectd;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.net.InetAddress;
@@ -38,6 +39,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.After;
 import org.junit.Before;
@@ -49,6 +54,7 @@ import org.opennms.core.test.db.annotations.JUnitTemporaryDatabase;
 import org.opennms.core.test.snmp.annotations.JUnitSnmpAgent;
 import org.opennms.core.utils.BeanUtils;
 import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.netmgt.config.PollOutagesConfigFactory;
 import org.opennms.netmgt.config.SnmpPeerFactory;
 import org.opennms.netmgt.config.collector.CollectionSet;
 import org.opennms.netmgt.dao.api.IpInterfaceDao;
@@ -60,6 +66,8 @@ import org.opennms.netmgt.rrd.RrdDataSource;
 import org.opennms.netmgt.rrd.RrdStrategy;
 import org.opennms.netmgt.rrd.RrdUtils;
 import org.opennms.netmgt.rrd.RrdUtils.StrategyName;
+import org.opennms.netmgt.scheduler.ReadyRunnable;
+import org.opennms.netmgt.scheduler.Scheduler;
 import org.opennms.netmgt.snmp.SnmpAgentConfig;
 import org.opennms.netmgt.snmp.SnmpObjId;
 import org.opennms.netmgt.snmp.SnmpUtils;
@@ -67,6 +75,7 @@ import org.opennms.test.JUnitConfigurationEnvironment;
 import org.opennms.test.mock.MockUtil;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestContext;
 import org.springframework.test.context.TestExecutionListeners;
@@ -108,8 +117,12 @@ public class SnmpCollectorTest implements InitializingBean, TestContextAware {
 
     private final static String TEST_NODE_LABEL = "TestNode"; 
 
+    private SnmpCollector m_collector;
+
     private CollectionSpecification m_collectionSpecification;
 
+    private OnmsIpInterface m_iface;
+
     private CollectionAgent m_collectionAgent;
 
     private SnmpAgentConfig m_agentConfig;
@@ -152,11 +165,13 @@ public class SnmpCollectorTest implements InitializingBean, TestContextAware {
         Set<OnmsIpInterface> ifaces = testNode.getIpInterfaces();
         assertEquals(1, ifaces.size());
         iface = ifaces.iterator().next();
+        m_iface = iface;
 
         SnmpPeerFactory.setInstance(m_snmpPeerFactory);
 
         SnmpCollector collector = new SnmpCollector();
         collector.initialize(null);
+        m_collector = collector;
 
         m_collectionSpecification = CollectorTestUtils.createCollectionSpec("SNMP", collector, "default");
         m_collectionAgent = DefaultCollectionAgent.create(iface.getId(), m_ipInterfaceDao, m_transactionManager);
@@ -229,6 +244,177 @@ public class SnmpCollectorTest implements InitializingBean, TestContextAware {
         m_collectionSpecification.release(m_collectionAgent);
     }
 
+    @Test
+    @JUnitCollector(
+                    datacollectionConfig = "/org/opennms/netmgt/config/datacollection-config.xml", 
+                    datacollectionType = "snmp",
+                    anticipateFiles = {
+                            "1",
+                            "1/fw0"
+                    },
+                    anticipateRrds = {
+                            "1/tcpActiveOpens",
+                            "1/tcpAttemptFails",
+                            "1/tcpPassiveOpens",
+                            "1/tcpRetransSegs",
+                            "1/tcpCurrEstab",
+                            "1/tcpEstabResets",
+                            "1/tcpInErrors",
+                            "1/tcpInSegs",
+                            "1/tcpOutRsts",
+                            "1/tcpOutSegs",
+                            "1/fw0/ifInDiscards",
+                            "1/fw0/ifInErrors",
+                            "1/fw0/ifInNUcastpkts",
+                            "1/fw0/ifInOctets",
+                            "1/fw0/ifInUcastpkts",
+                            "1/fw0/ifOutErrors",
+                            "1/fw0/ifOutNUcastPkts",
+                            "1/fw0/ifOutOctets",
+                            "1/fw0/ifOutUcastPkts"
+                    }
+            )
+    @JUnitSnmpAgent(resource = "/org/opennms/netmgt/snmp/snmpTestData1.properties")
+    public void testCollectAsync() throws Exception {
+        assertTrue("SNMP collection should be asynchronous", m_collectionSpecification.isAsync());
+
+        // don't forget to initialize the agent
+        m_collectionSpecification.initialize(m_collectionAgent);
+
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicReference<CollectionSet> result = new AtomicReference<CollectionSet>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        m_collectionSpecification.collect(m_collectionAgent, new CollectionSetCallback() {
+            @Override
+            public void complete(CollectionSet collectionSet) {
+                result.set(collectionSet);
+                completed.incrementAndGet();
+                latch.countDown();
+            }
+
+            @Override
+            public void failed(CollectionException e) {
+                failed.incrementAndGet();
+                latch.countDown();
+            }
+        });
+
+        assertTrue("collection did not finish", latch.await(30, TimeUnit.SECONDS));
+
+        // give a second callback a chance to show up
+        Thread.sleep(500);
+        assertEquals("complete calls", 1, completed.get());
+        assertEquals("failed calls", 0, failed.get());
+        assertEquals("collection status",
+                     ServiceCollector.COLLECTION_SUCCEEDED,
+                     result.get().getStatus());
+
+        CollectorTestUtils.persistCollectionSet(m_collectionSpecification, result.get());
+
+        // release the agent
+        m_collectionSpecification.release(m_collectionAgent);
+    }
+
+    @Test
+    @JUnitCollector(
+                    datacollectionConfig = "/org/opennms/netmgt/config/datacollection-config.xml", 
+                    datacollectionType = "snmp",
+                    anticipateFiles = {
+                            "1",
+                            "1/fw0"
+                    },
+                    anticipateRrds = {
+                            "1/tcpActiveOpens",
+                            "1/tcpAttemptFails",
+                            "1/tcpPassiveOpens",
+                            "1/tcpRetransSegs",
+                            "1/tcpCurrEstab",
+                            "1/tcpEstabResets",
+                            "1/tcpInErrors",
+                            "1/tcpInSegs",
+                            "1/tcpOutRsts",
+                            "1/tcpOutSegs",
+                            "1/fw0/ifInDiscards",
+                            "1/fw0/ifInErrors",
+                            "1/fw0/ifInNUcastpkts",
+                            "1/fw0/ifInOctets",
+                            "1/fw0/ifInUcastpkts",
+                            "1/fw0/ifOutErrors",
+                            "1/fw0/ifOutNUcastPkts",
+                            "1/fw0/ifOutOctets",
+                            "1/fw0/ifOutUcastPkts"
+                    }
+            )
+    @JUnitSnmpAgent(resource = "/org/opennms/netmgt/snmp/snmpTestData1.properties")
+    public void testCollectableServiceAsync() throws Exception {
+        PollOutagesConfigFactory outages = new PollOutagesConfigFactory(new ClassPathResource("etc/poll-outages.xml"));
+        outages.afterPropertiesSet();
+        PollOutagesConfigFactory.setInstance(outages);
+
+        final Map<String,String> parameters = new HashMap<String,String>();
+        parameters.put("thresholding-enabled", "false");
+        final CollectionSpecification spec = CollectorTestUtils.createCollectionSpec("SNMP", m_collector, "default", parameters);
+
+        final AtomicInteger scheduled = new AtomicInteger();
+        final CountDownLatch rescheduled = new CountDownLatch(1);
+        final Scheduler scheduler = new Scheduler() {
+            @Override
+            public void schedule(long interval, ReadyRunnable runnable) {
+                scheduled.incrementAndGet();
+                rescheduled.countDown();
+            }
+
+            @Override
+            public long getCurrentTime() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public void start() {}
+
+            @Override
+            public void stop() {}
+
+            @Override
+            public void pause() {}
+
+            @Override
+            public void resume() {}
+
+            @Override
+            public int getStatus() {
+                return 0;
+            }
+
+            @Override
+            public long getNumTasksExecuted() {
+                return 0;
+            }
+        };
+
+        System.setProperty("org.opennms.collectd.async", "true");
+        final AsyncCollectionDispatcher dispatcher = new AsyncCollectionDispatcher();
+        try {
+            assertTrue(dispatcher.isEnabled());
+
+            final CollectableService service = new CollectableService(m_iface, m_ipInterfaceDao, spec, scheduler, new Collectd.SchedulingCompletedFlag(), m_transactionManager, dispatcher);
+
+            // run() returns once the walk has started, completion reschedules the service
+            service.run();
+            assertTrue("collection was not rescheduled", rescheduled.await(30, TimeUnit.SECONDS));
+
+            Thread.sleep(500);
+            assertEquals("reschedules", 1, scheduled.get());
+            assertEquals("in flight", 0, dispatcher.getInFlight());
+            assertEquals("deferred", 0, dispatcher.getDeferred());
+        } finally {
+            dispatcher.stop();
+            System.clearProperty("org.opennms.collectd.async");
+        }
+    }
+
     @Test
     @Transactional
     @JUnitCollector(
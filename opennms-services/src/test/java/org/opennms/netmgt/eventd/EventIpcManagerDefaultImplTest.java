@@ -33,6 +33,8 @@ import static org.opennms.core.utils.InetAddressUtils.addr;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
@@ -454,6 +456,57 @@ public class EventIpcManagerDefaultImplTest extends TestCase {
         m_mocks.verifyAll();
     }
     
+    public void testFullListenerQueueDiscardsEvents() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final EventListener slowListener = new EventListener() {
+            @Override
+            public String getName() {
+                return "slow listener";
+            }
+
+            @Override
+            public void onEvent(Event e) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        EventIpcManagerDefaultImpl manager = new EventIpcManagerDefaultImpl();
+        manager.setEventHandler(m_eventHandler);
+        manager.setHandlerPoolSize(5);
+        manager.setHandlerQueueLength(2);
+        manager.afterPropertiesSet();
+        manager.addEventListener(slowListener);
+
+        m_mocks.replayAll();
+
+        manager.broadcastNow(new EventBuilder("uei.opennms.org/foo", "testFullListenerQueueDiscardsEvents").getEvent());
+        assertTrue("listener never received the first event", started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 4; i++) {
+            manager.broadcastNow(new EventBuilder("uei.opennms.org/foo", "testFullListenerQueueDiscardsEvents").getEvent());
+        }
+        assertEquals("queued events", 2, manager.getListenerQueueDepth(slowListener.getName()));
+        assertEquals("dropped events", 2, manager.getListenerEventsDropped(slowListener.getName()));
+
+        release.countDown();
+        for (int i = 0; i < 50 && manager.getListenerEventsDelivered(slowListener.getName()) < 3; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals("delivered events", 3, manager.getListenerEventsDelivered(slowListener.getName()));
+        assertEquals("queued events", 0, manager.getListenerQueueDepth(slowListener.getName()));
+
+        manager.removeEventListener(slowListener);
+        assertEquals("queue depth of removed listener", -1, manager.getListenerQueueDepth(slowListener.getName()));
+
+        m_mocks.verifyAll();
+    }
+
     public class MockEventListener implements EventListener {
         private List<Event> m_events = new ArrayList<Event>();
         
@@ -30,6 +30,7 @@ package org.opennms.netmgt.mock;
 
 import java.net.UnknownHostException;
 import java.util.Collection;
+import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
@@ -513,6 +514,35 @@ public class MockNetworkTest extends TestCase {
 
     }
 
+    public void testQueryManagerOutages() throws Exception {
+        MockQueryManager queryManager = new MockQueryManager(m_network);
+        Date lostDate = new Date(1000L * (System.currentTimeMillis() / 1000L));
+        String time = EventConstants.formatToString(lostDate);
+
+        queryManager.openOutage(null, 1, "192.168.1.1", "ICMP", 1, time);
+        queryManager.openOutage(null, 1, "192.168.1.1", "SMTP", 1, time);
+        queryManager.openOutage(null, 1, "192.168.1.2", "ICMP", 1, time);
+        queryManager.openOutage(null, 2, "192.168.1.3", "HTTP", 1, time);
+        queryManager.openOutage(null, 1, "192.168.1.17", "ICMP", 1, time);
+        assertEquals(4, queryManager.getOpenOutageCount());
+        assertEquals(lostDate, queryManager.getServiceLostDate(1, "192.168.1.1", "ICMP", 1));
+
+        queryManager.resolveOutage(1, "192.168.1.1", "ICMP", 2, time);
+        assertNull(queryManager.getServiceLostDate(1, "192.168.1.1", "ICMP", 1));
+        assertEquals(3, queryManager.getOpenOutageCount());
+
+        queryManager.closeOutagesForService(new Date(), 3, 2, "192.168.1.3", "HTTP");
+        assertEquals(2, queryManager.getOpenOutageCount());
+
+        queryManager.closeOutagesForInterface(new Date(), 4, 1, "192.168.1.2");
+        assertEquals(1, queryManager.getOpenOutageCount());
+        assertNotNull(queryManager.getServiceLostDate(1, "192.168.1.1", "SMTP", 2));
+
+        queryManager.openOutage(null, 1, "192.168.1.2", "SMTP", 1, time);
+        queryManager.closeOutagesForNode(new Date(), 5, 1);
+        assertEquals(0, queryManager.getOpenOutageCount());
+    }
+
     private Collection<MockService> getServicesForInterface(MockInterface iface) {
         return iface.getServices();
     }
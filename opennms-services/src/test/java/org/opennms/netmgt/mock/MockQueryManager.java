@@ -29,14 +29,18 @@
 package org.opennms.netmgt.mock;
 
 import java.sql.SQLException;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
+import org.opennms.netmgt.EventConstants;
 import org.opennms.netmgt.poller.IfKey;
 import org.opennms.netmgt.poller.QueryManager;
 
@@ -57,6 +61,18 @@ public class MockQueryManager implements QueryManager {
      */
     private final MockNetwork m_network;
 
+    /**
+     * The open outages, keyed by service, with the time the service was lost
+     */
+    private final Map<MockService, Date> m_openOutages = new ConcurrentHashMap<MockService, Date>();
+
+    private final MockVisitor m_closeOutages = new MockVisitorAdapter() {
+        @Override
+        public void visitService(MockService svc) {
+            m_openOutages.remove(svc);
+        }
+    };
+
     /**
      * @param network
      */
@@ -129,26 +145,78 @@ public class MockQueryManager implements QueryManager {
 
     @Override
     public Date getServiceLostDate(int nodeId, String ipAddr, String svcName, int serviceId) {
-        return null;
+        MockService svc = m_network.getService(nodeId, ipAddr, svcName);
+        return (svc == null ? null : m_openOutages.get(svc));
     }
+
     @Override
     public void openOutage(String outageIdSQL, int nodeId, String ipAddr, String svcName, int dbid, String time) {
-        // TODO Auto-generated method stub
-
+        MockService svc = m_network.getService(nodeId, ipAddr, svcName);
+        if (svc != null && !m_openOutages.containsKey(svc)) {
+            m_openOutages.put(svc, toDate(time));
+        }
     }
     
     
     @Override
     public void resolveOutage(int nodeId, String ipAddr, String svcName, int dbid, String time) {
-        // TODO Auto-generated method stub
-
+        MockService svc = m_network.getService(nodeId, ipAddr, svcName);
+        if (svc != null) {
+            m_openOutages.remove(svc);
+        }
     }
     
     
     @Override
     public void reparentOutages(String ipAddr, int oldNodeId, int newNodeId) {
-        // TODO Auto-generated method stub
+        for (MockService oldSvc : new ArrayList<MockService>(m_openOutages.keySet())) {
+            if (oldSvc.getNodeId() == oldNodeId && ipAddr.equals(oldSvc.getIpAddr())) {
+                Date lostDate = m_openOutages.remove(oldSvc);
+                MockService newSvc = m_network.getService(newNodeId, ipAddr, oldSvc.getSvcName());
+                if (newSvc != null) {
+                    m_openOutages.put(newSvc, lostDate);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void closeOutagesForNode(Date closeDate, int eventId, int nodeId) {
+        MockNode node = m_network.getNode(nodeId);
+        if (node != null) {
+            node.visit(m_closeOutages);
+        }
+    }
+
+    @Override
+    public void closeOutagesForInterface(Date closeDate, int eventId, int nodeId, String ipAddr) {
+        MockInterface iface = m_network.getInterface(nodeId, ipAddr);
+        if (iface != null) {
+            iface.visit(m_closeOutages);
+        }
+    }
+
+    @Override
+    public void closeOutagesForService(Date closeDate, int eventId, int nodeId, String ipAddr, String serviceName) {
+        MockService svc = m_network.getService(nodeId, ipAddr, serviceName);
+        if (svc != null) {
+            svc.visit(m_closeOutages);
+        }
+    }
+
+    /**
+     * @return the number of services with an open outage
+     */
+    public int getOpenOutageCount() {
+        return m_openOutages.size();
+    }
 
+    private static Date toDate(String time) {
+        try {
+            return EventConstants.parseToDate(time);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date format " + time, e);
+        }
     }
 
     @Override
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.notifd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.config.notificationCommands.Command;
+
+public class NotificationDeliveryEngineTest {
+
+    private NotificationDeliveryEngine m_engine;
+
+    @Before
+    public void setUp() {
+        // 600 per minute is one message per 100ms to each destination
+        m_engine = new NotificationDeliveryEngine(600);
+        m_engine.start();
+    }
+
+    @After
+    public void tearDown() {
+        m_engine.stop();
+    }
+
+    @Test
+    public void testDestinationRateLimit() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final List<Long> sent = new CopyOnWriteArrayList<Long>();
+
+        for (int i = 0; i < 3; i++) {
+            m_engine.deliver(new TestTask("user@example.com", sent, latch));
+        }
+
+        assertTrue("all notifications should be delivered", latch.await(5, TimeUnit.SECONDS));
+
+        final List<Long> times = new ArrayList<Long>(sent);
+        Collections.sort(times);
+        assertTrue("second message was not delayed", times.get(1) - times.get(0) >= 90);
+        assertTrue("third message was not delayed", times.get(2) - times.get(1) >= 90);
+
+        // the counters are updated after the command returns
+        for (int i = 0; i < 50 && m_engine.getDelivered("javaEmail") < 3; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(3, m_engine.getDelivered("javaEmail"));
+        assertEquals(0, m_engine.getFailed("javaEmail"));
+        assertEquals(0, m_engine.getDelayedCount());
+    }
+
+    @Test
+    public void testDelayedDeliveryIsRechecked() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<Long> sent = new CopyOnWriteArrayList<Long>();
+
+        m_engine.deliver(new TestTask("user@example.com", sent, latch));
+        assertTrue("first notification should be delivered", latch.await(5, TimeUnit.SECONDS));
+
+        // acknowledged while it waits for the rate limit
+        final AtomicInteger checks = new AtomicInteger();
+        m_engine.deliver(new TestTask("user@example.com", sent, new CountDownLatch(1)) {
+            @Override
+            public boolean isReadyToSend() {
+                return checks.incrementAndGet() == 1;
+            }
+        });
+
+        for (int i = 0; i < 50 && checks.get() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        assertEquals("the delayed delivery should be checked again", 2, checks.get());
+        assertEquals("the acknowledged notice should not be sent", 1, sent.size());
+        assertEquals(0, m_engine.getDelayedCount());
+    }
+
+    @Test
+    public void testQueueIsClearedWhenEngineIsStopped() {
+        final NoticeQueue queue = new NoticeQueue();
+        final long sendTime = System.currentTimeMillis() - 1000;
+        queue.putItem(sendTime, new TestTask("user@example.com", new ArrayList<Long>(), new CountDownLatch(1)));
+        queue.putItem(sendTime, new TestTask("other@example.com", new ArrayList<Long>(), new CountDownLatch(1)));
+
+        final DefaultQueueHandler handler = new DefaultQueueHandler();
+        handler.setNoticeQueue(queue);
+        handler.setDeliveryEngine(m_engine);
+        m_engine.stop();
+
+        // deliver() fails, but the due notices must not be retried on every pass
+        handler.processQueue();
+        assertEquals(0, queue.size());
+    }
+
+    private static class TestTask extends NotificationTask {
+        private final String m_destination;
+        private final List<Long> m_sent;
+        private final CountDownLatch m_latch;
+
+        public TestTask(final String destination, final List<Long> sent, final CountDownLatch latch) {
+            super(null, null, System.currentTimeMillis(), Collections.<String,String>emptyMap(), null, null);
+            m_destination = destination;
+            m_sent = sent;
+            m_latch = latch;
+
+            final Command command = new Command();
+            command.setName("javaEmail");
+            setCommands(new Command[] { command });
+        }
+
+        @Override
+        public boolean isReadyToSend() {
+            return true;
+        }
+
+        @Override
+        public String getDestination(final Command command) {
+            return m_destination;
+        }
+
+        @Override
+        public boolean sendCommand(final Command command) {
+            m_sent.add(System.currentTimeMillis());
+            m_latch.countDown();
+            return true;
+        }
+    }
+}
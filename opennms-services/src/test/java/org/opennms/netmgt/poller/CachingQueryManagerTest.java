@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.poller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.core.db.DataSourceFactory;
+import org.opennms.core.test.MockLogAppender;
+import org.opennms.core.test.db.MockDatabase;
+import org.opennms.netmgt.mock.MockEventUtil;
+import org.opennms.netmgt.mock.MockNetwork;
+import org.opennms.netmgt.mock.MockService;
+import org.opennms.netmgt.xml.event.Event;
+
+public class CachingQueryManagerTest {
+
+    private MockNetwork m_network;
+
+    private MockDatabase m_db;
+
+    private CachingQueryManager m_queryManager;
+
+    @Before
+    public void setUp() throws Exception {
+        MockLogAppender.setupLogging();
+
+        m_network = new MockNetwork();
+        m_network.setCriticalService("ICMP");
+        m_network.addNode(1, "Router");
+        m_network.addInterface("192.168.1.1");
+        m_network.addService("ICMP");
+        m_network.addService("SMTP");
+        m_network.addInterface("192.168.1.2");
+        m_network.addService("ICMP");
+        m_network.addService("SMTP");
+        m_network.addNode(2, "Server");
+        m_network.addInterface("192.168.1.3");
+        m_network.addService("ICMP");
+        m_network.addService("HTTP");
+
+        m_db = new MockDatabase();
+        m_db.populate(m_network);
+        DataSourceFactory.setInstance(m_db);
+
+        DefaultQueryManager delegate = new DefaultQueryManager();
+        delegate.setDataSource(m_db);
+
+        m_queryManager = new CachingQueryManager();
+        m_queryManager.setDelegate(delegate);
+        m_queryManager.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_queryManager.destroy();
+        m_db.drop();
+    }
+
+    /**
+     * Open and resolve the same outage several times back to back so the
+     * writes end up queued together, they must reach the database in order.
+     */
+    @Test
+    public void testWriteBehindKeepsOrder() {
+        MockService svc = m_network.getService(1, "192.168.1.1", "SMTP");
+
+        for (int i = 0; i < 3; i++) {
+            openOutage(svc);
+            resolveOutage(svc);
+        }
+        Event lostEvent = openOutage(svc);
+        assertNotNull(m_queryManager.getServiceLostDate(svc.getNodeId(), svc.getIpAddr(), svc.getSvcName(), svc.getId()));
+
+        m_queryManager.destroy();
+
+        assertEquals(0, m_queryManager.getPendingOperationCount());
+        assertEquals(4, m_db.countOutagesForService(svc));
+        assertEquals(1, m_db.countOpenOutagesForService(svc));
+        assertEquals(1, m_db.countOutagesForService(svc, "svcLostEventId = " + lostEvent.getDbid() + " and ifRegainedService is null"));
+    }
+
+    @Test
+    public void testCloseOutagesForNodeAfterOpen() {
+        MockService icmp = m_network.getService(1, "192.168.1.1", "ICMP");
+        MockService smtp = m_network.getService(1, "192.168.1.2", "SMTP");
+        MockService http = m_network.getService(2, "192.168.1.3", "HTTP");
+
+        openOutage(icmp);
+        openOutage(smtp);
+        openOutage(http);
+
+        Event nodeUp = MockEventUtil.createNodeUpEvent("Test", m_network.getNode(1));
+        m_db.writeEvent(nodeUp);
+        m_queryManager.closeOutagesForNode(new Date(), nodeUp.getDbid(), 1);
+        assertNull(m_queryManager.getServiceLostDate(icmp.getNodeId(), icmp.getIpAddr(), icmp.getSvcName(), icmp.getId()));
+
+        m_queryManager.flush();
+
+        assertEquals(0, m_db.countOpenOutagesForService(icmp));
+        assertEquals(0, m_db.countOpenOutagesForService(smtp));
+        assertEquals(1, m_db.countOpenOutagesForService(http));
+    }
+
+    /**
+     * An outage the cache does not know about, for instance one opened before
+     * a restart by another writer, must still be closed in the database.
+     */
+    @Test
+    public void testResolveOutageNotInCache() {
+        MockService svc = m_network.getService(2, "192.168.1.3", "HTTP");
+
+        // loads the cache before the outage exists
+        assertNull(m_queryManager.getServiceLostDate(svc.getNodeId(), svc.getIpAddr(), svc.getSvcName(), svc.getId()));
+
+        Event lostEvent = MockEventUtil.createNodeLostServiceEvent("Test", svc);
+        m_db.writeEvent(lostEvent);
+        m_db.createOutage(svc, lostEvent);
+        assertEquals(1, m_db.countOpenOutagesForService(svc));
+        assertNull(m_queryManager.getServiceLostDate(svc.getNodeId(), svc.getIpAddr(), svc.getSvcName(), svc.getId()));
+
+        resolveOutage(svc);
+        m_queryManager.flush();
+
+        assertEquals(0, m_db.countOpenOutagesForService(svc));
+        assertEquals(1, m_db.countOutagesForService(svc));
+    }
+
+    @Test
+    public void testLoadsOpenOutages() {
+        MockService svc = m_network.getService(1, "192.168.1.2", "ICMP");
+
+        Event lostEvent = MockEventUtil.createNodeLostServiceEvent("Test", svc);
+        m_db.writeEvent(lostEvent);
+        m_db.createOutage(svc, lostEvent);
+
+        assertEquals(m_db.convertEventTimeToTimeStamp(lostEvent.getTime()).getTime(),
+                     m_queryManager.getServiceLostDate(svc.getNodeId(), svc.getIpAddr(), svc.getSvcName(), svc.getId()).getTime());
+    }
+
+    private Event openOutage(MockService svc) {
+        Event lostEvent = MockEventUtil.createNodeLostServiceEvent("Test", svc);
+        m_db.writeEvent(lostEvent);
+        m_queryManager.openOutage(m_db.getNextOutageIdStatement(), svc.getNodeId(), svc.getIpAddr(), svc.getSvcName(), lostEvent.getDbid(), lostEvent.getTime());
+        return lostEvent;
+    }
+
+    private Event resolveOutage(MockService svc) {
+        Event regainedEvent = MockEventUtil.createNodeRegainedServiceEvent("Test", svc);
+        m_db.writeEvent(regainedEvent);
+        m_queryManager.resolveOutage(svc.getNodeId(), svc.getIpAddr(), svc.getSvcName(), regainedEvent.getDbid(), regainedEvent.getTime());
+        return regainedEvent;
+    }
+}
@@ -41,7 +41,9 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import org.junit.After;
 import org.junit.Before;
@@ -79,7 +81,11 @@ import org.opennms.netmgt.mock.TestCapsdConfigManager;
 import org.opennms.netmgt.model.PollStatus;
 import org.opennms.netmgt.model.events.EventUtils;
 import org.opennms.netmgt.poller.pollables.PollableNetwork;
+import org.opennms.netmgt.poller.pollables.PollableService;
+import org.opennms.netmgt.poller.pollables.PollableServiceConfig;
+import org.opennms.netmgt.poller.pollables.PollableVisitorAdaptor;
 import org.opennms.netmgt.rrd.RrdUtils;
+import org.opennms.netmgt.scheduler.LegacyScheduler;
 import org.opennms.netmgt.xml.event.Event;
 import org.opennms.netmgt.xmlrpcd.OpenNMSProvisioner;
 import org.opennms.test.mock.MockUtil;
@@ -1110,6 +1116,66 @@ public class PollerTest {
 		verifyAnticipated(10000);
     }
 
+    /**
+     * The bulk startup path must end up with the same services, packages and
+     * statuses as scheduling each service on its own.
+     */
+    @Test
+    public void testBulkScheduleMatchesPerServiceSchedule() throws Exception {
+        // a remote package is never used for local polling, even if it matches last
+        m_pollerConfig.addPackage("RemotePkg");
+        m_pollerConfig.populatePackage(m_network);
+        m_pollerConfig.getPackage("RemotePkg").setRemote(true);
+
+        startDaemons();
+        final Map<String, String> bulkScheduled = getScheduledServices(m_poller.getNetwork());
+
+        final QueryManager queryManager = new DefaultQueryManager();
+        queryManager.setDataSource(m_db);
+
+        final DefaultPollContext pollContext = new DefaultPollContext();
+        pollContext.setEventManager(m_eventMgr);
+        pollContext.setLocalHostName("localhost");
+        pollContext.setName("Test.PerServicePollContext");
+        pollContext.setPollerConfig(m_pollerConfig);
+        pollContext.setQueryManager(queryManager);
+
+        final Poller perServicePoller = new Poller();
+        perServicePoller.setDataSource(m_db);
+        perServicePoller.setEventManager(m_eventMgr);
+        perServicePoller.setNetwork(new PollableNetwork(pollContext));
+        perServicePoller.setQueryManager(queryManager);
+        perServicePoller.setPollerConfig(m_pollerConfig);
+        perServicePoller.setPollOutagesConfig(m_pollerConfig);
+        // never started, the services just sit in its queue
+        perServicePoller.setScheduler(new LegacyScheduler("PerServicePoller", 1));
+
+        m_network.visit(new MockVisitorAdapter() {
+            @Override
+            public void visitService(final MockService svc) {
+                perServicePoller.scheduleService(svc.getNodeId(), svc.getNode().getLabel(), svc.getIpAddr(), svc.getSvcName());
+            }
+        });
+        final Map<String, String> perServiceScheduled = getScheduledServices(perServicePoller.getNetwork());
+
+        assertEquals(m_network.getServiceCount(), bulkScheduled.size());
+        assertEquals("TestPkg2/Up", bulkScheduled.get("2:192.168.1.3:HTTP"));
+        assertEquals("TestPackage/Up", bulkScheduled.get("1:192.168.1.1:ICMP"));
+        assertEquals(perServiceScheduled, bulkScheduled);
+    }
+
+    private static Map<String, String> getScheduledServices(final PollableNetwork network) {
+        final Map<String, String> scheduled = new TreeMap<String, String>();
+        network.visit(new PollableVisitorAdaptor() {
+            @Override
+            public void visitService(final PollableService svc) {
+                final String pkgName = ((PollableServiceConfig)svc.getPollConfig()).getPackageName();
+                scheduled.put(svc.getNodeId() + ":" + svc.getIpAddr() + ":" + svc.getSvcName(), pkgName + "/" + svc.getStatus().getStatusName());
+            }
+        });
+        return scheduled;
+    }
+
     @Test
 	public void testNodeGainedDynamicService() throws Exception {
 		m_pollerConfig.setNodeOutageProcessingEnabled(true);
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.netmgt.poller.monitors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.opennms.core.test.MockLogAppender;
+import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.MonitoredService;
+import org.opennms.netmgt.poller.PollStatusCallback;
+import org.opennms.netmgt.poller.mock.MonitorTestUtils;
+import org.opennms.test.mock.MockUtil;
+
+/**
+ * Tests the asynchronous poll of {@link TcpMonitor} against local stand-in
+ * services, including many outstanding polls with a mix of up and down targets.
+ * {@link #testThroughput()} measures the polls per second and is run by hand.
+ */
+public class AsyncTcpMonitorTest {
+
+    private static final int POLL_COUNT = 1000;
+
+    private ServerSocket m_bannerServer;
+    private ServerSocket m_silentServer;
+    private int m_closedPort;
+    private Thread m_acceptor;
+
+    @Before
+    public void setUp() throws Exception {
+        MockLogAppender.setupLogging();
+
+        // All the connections of testManyOutstandingPolls may be pending at once
+        m_bannerServer = new ServerSocket(0, POLL_COUNT);
+        m_acceptor = new Thread("AsyncTcpMonitorTest-acceptor") {
+            @Override
+            public void run() {
+                while (!m_bannerServer.isClosed()) {
+                    try {
+                        Socket socket = m_bannerServer.accept();
+                        OutputStream out = socket.getOutputStream();
+                        out.write("220 localhost ESMTP ready\r\n".getBytes());
+                        out.flush();
+                        socket.close();
+                    } catch (IOException e) {
+                        // closed by tearDown
+                    }
+                }
+            }
+        };
+        m_acceptor.setDaemon(true);
+        m_acceptor.start();
+
+        // Accepts connections through its backlog but never sends anything
+        m_silentServer = new ServerSocket(0);
+
+        ServerSocket closed = new ServerSocket(0);
+        m_closedPort = closed.getLocalPort();
+        closed.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_bannerServer.close();
+        m_silentServer.close();
+        m_acceptor.join(1000);
+    }
+
+    @Test
+    public void testAvailable() throws Exception {
+        PollStatus status = poll(m_bannerServer.getLocalPort(), null);
+        assertEquals(PollStatus.SERVICE_AVAILABLE, status.getStatusCode());
+        assertNotNull(status.getResponseTime());
+    }
+
+    @Test
+    public void testBannerMatch() throws Exception {
+        assertEquals(PollStatus.SERVICE_AVAILABLE, poll(m_bannerServer.getLocalPort(), "ESMTP").getStatusCode());
+
+        PollStatus status = poll(m_bannerServer.getLocalPort(), "IMAP");
+        assertEquals(PollStatus.SERVICE_UNAVAILABLE, status.getStatusCode());
+        assertEquals("Banner: '220 localhost ESMTP ready' does not contain match string 'IMAP'", status.getReason());
+    }
+
+    @Test
+    public void testConnectionRefused() throws Exception {
+        PollStatus status = poll(m_closedPort, null);
+        assertEquals(PollStatus.SERVICE_UNAVAILABLE, status.getStatusCode());
+        assertTrue(status.getReason().startsWith("Connection exception for address"));
+    }
+
+    @Test
+    public void testBannerTimeout() throws Exception {
+        PollStatus status = poll(m_silentServer.getLocalPort(), "ESMTP");
+        assertEquals(PollStatus.SERVICE_UNAVAILABLE, status.getStatusCode());
+        assertTrue(status.getReason().startsWith("did not connect to host with"));
+    }
+
+    @Test
+    public void testSameResultAsBlockingPoll() throws Exception {
+        TcpMonitor monitor = new TcpMonitor();
+        MonitoredService svc = MonitorTestUtils.getMonitoredService(1, InetAddress.getByName("127.0.0.1"), "TCP");
+        int[] ports = { m_bannerServer.getLocalPort(), m_closedPort };
+        String[] banners = { null, "ESMTP", "IMAP" };
+        for (int port : ports) {
+            for (String banner : banners) {
+                Map<String, Object> parameters = getParameters(port, banner);
+                PollStatus blocking = monitor.poll(svc, parameters);
+                PollStatus async = poll(port, banner);
+                assertEquals("port " + port + ", banner " + banner, blocking.getStatusCode(), async.getStatusCode());
+                assertEquals("port " + port + ", banner " + banner, blocking.getReason(), async.getReason());
+            }
+        }
+    }
+
+    /**
+     * Starts many polls from one thread against 90% available and 10%
+     * refusing targets, and checks that they all complete.
+     */
+    @Test
+    public void testManyOutstandingPolls() throws Exception {
+        final TcpMonitor monitor = new TcpMonitor();
+        final MonitoredService svc = MonitorTestUtils.getMonitoredService(1, InetAddress.getByName("127.0.0.1"), "TCP");
+        final CountDownLatch latch = new CountDownLatch(POLL_COUNT);
+        final AtomicInteger available = new AtomicInteger(0);
+
+        for (int i = 0; i < POLL_COUNT; i++) {
+            int port = (i % 10 == 0 ? m_closedPort : m_bannerServer.getLocalPort());
+            Map<String, Object> parameters = getParameters(port, null);
+            parameters.put("timeout", "3000");
+            monitor.poll(svc, parameters, new PollStatusCallback() {
+                @Override
+                public void complete(PollStatus status) {
+                    if (status.isAvailable()) {
+                        available.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue("polls did not complete", latch.await(60, TimeUnit.SECONDS));
+
+        // the refused ports are never available, nearly all of the others must be
+        int expected = POLL_COUNT - POLL_COUNT / 10;
+        assertTrue("too many available polls: " + available.get(), available.get() <= expected);
+        assertTrue("too few available polls: " + available.get(), available.get() >= expected * 9 / 10);
+    }
+
+    /**
+     * Runs polls against 90% available and 10% refusing targets, all started
+     * from one thread, and reports the polls per second. The result depends
+     * on the machine, so this is a benchmark to run by hand.
+     */
+    @Test
+    @Ignore("benchmark, remove the @Ignore to measure the polls per second")
+    public void testThroughput() throws Exception {
+        final TcpMonitor monitor = new TcpMonitor();
+        final MonitoredService svc = MonitorTestUtils.getMonitoredService(1, InetAddress.getByName("127.0.0.1"), "TCP");
+        final CountDownLatch latch = new CountDownLatch(POLL_COUNT);
+        final AtomicInteger available = new AtomicInteger(0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < POLL_COUNT; i++) {
+            int port = (i % 10 == 0 ? m_closedPort : m_bannerServer.getLocalPort());
+            monitor.poll(svc, getParameters(port, null), new PollStatusCallback() {
+                @Override
+                public void complete(PollStatus status) {
+                    if (status.isAvailable()) {
+                        available.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue("polls did not complete", latch.await(60, TimeUnit.SECONDS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        MockUtil.println(String.format("%d asynchronous TCP polls in %.2fs: %.0f polls/sec, %d available", POLL_COUNT, seconds, POLL_COUNT / seconds, available.get()));
+    }
+
+    private PollStatus poll(int port, String banner) throws Exception {
+        TcpMonitor monitor = new TcpMonitor();
+        MonitoredService svc = MonitorTestUtils.getMonitoredService(1, InetAddress.getByName("127.0.0.1"), "TCP");
+        final BlockingQueue<PollStatus> result = new ArrayBlockingQueue<PollStatus>(1);
+        monitor.poll(svc, getParameters(port, banner), new PollStatusCallback() {
+            @Override
+            public void complete(PollStatus status) {
+                result.add(status);
+            }
+        });
+        PollStatus status = result.poll(10, TimeUnit.SECONDS);
+        assertNotNull("poll did not complete", status);
+        return status;
+    }
+
+    private static Map<String, Object> getParameters(int port, String banner) {
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("port", String.valueOf(port));
+        parameters.put("retry", "1");
+        parameters.put("timeout", "500");
+        if (banner != null) {
+            parameters.put("banner", banner);
+        }
+        return parameters;
+    }
+}
@@ -36,7 +36,10 @@ import static org.opennms.core.utils.InetAddressUtils.addr;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -48,6 +51,7 @@ import org.opennms.core.test.dns.annotations.DNSZone;
 import org.opennms.core.test.dns.annotations.JUnitDNSServer;
 import org.opennms.netmgt.model.PollStatus;
 import org.opennms.netmgt.poller.MonitoredService;
+import org.opennms.netmgt.poller.PollStatusCallback;
 import org.opennms.netmgt.poller.ServiceMonitor;
 import org.opennms.netmgt.poller.mock.MonitorTestUtils;
 import org.opennms.test.JUnitConfigurationEnvironment;
@@ -165,6 +169,47 @@ public class DnsMonitorTest {
         assertEquals(PollStatus.SERVICE_AVAILABLE, status.getStatusCode());
     }
     
+    @Test
+    public void testAsyncResponse() throws Exception {
+        final Map<String, Object> m = new ConcurrentSkipListMap<String, Object>();
+        m.put("port", "9153");
+        m.put("retry", "1");
+        m.put("timeout", "3000");
+        m.put("lookup", "example.com");
+
+        final PollStatus status = pollAsync("127.0.0.1", m);
+        assertEquals(PollStatus.SERVICE_AVAILABLE, status.getStatusCode());
+        assertNotNull(status.getResponseTime());
+    }
+
+    @Test
+    public void testAsyncNotFoundWithCustomRcode() throws Exception {
+        final Map<String, Object> m = new ConcurrentSkipListMap<String, Object>();
+        m.put("port", "9153");
+        m.put("retry", "2");
+        m.put("timeout", "5000");
+        m.put("lookup", "bogus.example.com");
+        m.put("fatal-response-codes", "3");
+
+        final PollStatus status = pollAsync("127.0.0.1", m);
+        assertEquals(PollStatus.SERVICE_UNAVAILABLE, status.getStatusCode());
+        assertEquals("Received an invalid DNS response for address: 127.0.0.1", status.getReason());
+    }
+
+    @Test
+    public void testAsyncMatchesBlockingWithoutServer() throws Exception {
+        final Map<String, Object> m = new ConcurrentSkipListMap<String, Object>();
+        m.put("port", "9000");
+        m.put("retry", "1");
+        m.put("timeout", "500");
+        m.put("lookup", "example.com");
+
+        final PollStatus expected = new DnsMonitor().poll(MonitorTestUtils.getMonitoredService(99, addr("127.0.0.1"), "DNS"), m);
+        final PollStatus status = pollAsync("127.0.0.1", m);
+        assertEquals(expected.getStatusCode(), status.getStatusCode());
+        assertEquals(PollStatus.SERVICE_UNAVAILABLE, status.getStatusCode());
+    }
+
     @Test
     public void testDnsJavaResponse() throws IOException {
         final Lookup l = new Lookup("example.com");
@@ -238,4 +283,19 @@ public class DnsMonitorTest {
         }
         assertTrue(l.getResult() == Lookup.SUCCESSFUL);
     }
+
+    private static PollStatus pollAsync(final String address, final Map<String, Object> parameters) throws Exception {
+        final DnsMonitor monitor = new DnsMonitor();
+        final MonitoredService svc = MonitorTestUtils.getMonitoredService(99, addr(address), "DNS");
+        final BlockingQueue<PollStatus> result = new ArrayBlockingQueue<PollStatus>(1);
+        monitor.poll(svc, parameters, new PollStatusCallback() {
+            @Override
+            public void complete(PollStatus status) {
+                result.add(status);
+            }
+        });
+        final PollStatus status = result.poll(30, TimeUnit.SECONDS);
+        assertNotNull("poll did not complete", status);
+        return status;
+    }
 }
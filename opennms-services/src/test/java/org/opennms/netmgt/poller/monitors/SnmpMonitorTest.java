@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.poller.monitors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opennms.core.test.MockLogAppender;
+import org.opennms.core.test.OpenNMSJUnit4ClassRunner;
+import org.opennms.core.test.snmp.annotations.JUnitSnmpAgent;
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.netmgt.config.SnmpPeerFactory;
+import org.opennms.netmgt.model.PollStatus;
+import org.opennms.netmgt.poller.MonitoredService;
+import org.opennms.netmgt.poller.PollStatusCallback;
+import org.opennms.netmgt.poller.mock.MockMonitoredService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Checks that the asynchronous poll of {@link SnmpMonitor} reaches the same
+ * status as the blocking one for each kind of check.
+ */
+@RunWith(OpenNMSJUnit4ClassRunner.class)
+@ContextConfiguration(locations={
+        "classpath:/META-INF/opennms/applicationContext-proxy-snmp.xml"
+})
+@JUnitSnmpAgent(port=SnmpMonitorTest.TEST_SNMP_PORT, host=SnmpMonitorTest.TEST_IP_ADDRESS, resource="classpath:org/opennms/netmgt/snmp/snmpTestData1.properties")
+public class SnmpMonitorTest {
+    static final int TEST_SNMP_PORT = 9161;
+    static final String TEST_IP_ADDRESS = "127.0.0.1";
+
+    @Autowired
+    private SnmpPeerFactory m_snmpPeerFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        MockLogAppender.setupLogging();
+        SnmpPeerFactory.setInstance(m_snmpPeerFactory);
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        PollStatus status = assertSameStatus(createParams(".1.3.6.1.2.1.1.2.0"));
+        assertTrue(status.isAvailable());
+    }
+
+    @Test
+    public void testGetCriteriaNotMet() throws Exception {
+        Map<String, Object> parameters = createParams(".1.3.6.1.2.1.1.5.0");
+        parameters.put("operator", "=");
+        parameters.put("operand", "some.other.host");
+        PollStatus status = assertSameStatus(parameters);
+        assertFalse(status.isAvailable());
+        assertEquals("Observed value 'brozow.local' does not meet criteria '= some.other.host'", status.getReason());
+    }
+
+    @Test
+    public void testGetMissingOid() throws Exception {
+        PollStatus status = assertSameStatus(createParams(".1.3.6.1.2.1.1.7.0"));
+        assertFalse(status.isAvailable());
+        assertEquals("SNMP poll failed, addr=127.0.0.1 oid=.1.3.6.1.2.1.1.7.0", status.getReason());
+    }
+
+    @Test
+    public void testWalk() throws Exception {
+        Map<String, Object> parameters = createParams(".1.3.6.1.2.1.1.9.1.2");
+        parameters.put("walk", "true");
+        PollStatus status = assertSameStatus(parameters);
+        assertTrue(status.isAvailable());
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        Map<String, Object> parameters = createParams(".1.3.6.1.2.1.1.9.1.2");
+        parameters.put("match-all", "count");
+        parameters.put("minimum", "1");
+        parameters.put("maximum", "2");
+        PollStatus status = assertSameStatus(parameters);
+        assertFalse(status.isAvailable());
+        assertTrue(status.getReason(), status.getReason().startsWith("Value: "));
+    }
+
+    private PollStatus assertSameStatus(Map<String, Object> parameters) throws Exception {
+        SnmpMonitor monitor = new SnmpMonitor();
+        MonitoredService svc = new MockMonitoredService(1, "test-server", InetAddressUtils.getInetAddress(TEST_IP_ADDRESS), "SNMP");
+
+        PollStatus expected = monitor.poll(svc, parameters);
+
+        final BlockingQueue<PollStatus> result = new ArrayBlockingQueue<PollStatus>(1);
+        monitor.poll(svc, parameters, new PollStatusCallback() {
+            @Override
+            public void complete(PollStatus status) {
+                result.add(status);
+            }
+        });
+        PollStatus status = result.poll(30, TimeUnit.SECONDS);
+        assertNotNull("poll did not complete", status);
+
+        assertEquals(expected.getStatusCode(), status.getStatusCode());
+        assertEquals(expected.getReason(), status.getReason());
+        return status;
+    }
+
+    private Map<String, Object> createParams(String oid) {
+        Map<String, Object> parameters = new HashMap<String,Object>();
+        parameters.put("port", m_snmpPeerFactory.getAgentConfig(InetAddressUtils.getInetAddress(TEST_IP_ADDRESS)).getPort());
+        parameters.put("oid", oid);
+        return parameters;
+    }
+}
@@ -42,9 +42,15 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.sql.DataSource;
 
@@ -71,6 +77,7 @@ import org.opennms.netmgt.mock.MockService;
 import org.opennms.netmgt.mock.MockVisitor;
 import org.opennms.netmgt.mock.MockVisitorAdapter;
 import org.opennms.netmgt.mock.OutageAnticipator;
+import org.opennms.netmgt.mock.PollAnticipator;
 import org.opennms.netmgt.model.PollStatus;
 import org.opennms.netmgt.poller.mock.MockPollContext;
 import org.opennms.netmgt.poller.mock.MockScheduler;
@@ -2390,6 +2397,143 @@ public class PollablesTest {
         
     }
 
+    @Test(timeout=30000)
+    public void testPollOutsideTreeLock() throws Throwable {
+        final CountDownLatch polled = new CountDownLatch(1);
+        mDot1Smtp.addAnticipator(new PollAnticipator() {
+            @Override
+            public void poll(MockService svc) {
+                polled.countDown();
+            }
+        });
+        mDot1Smtp.bringDown();
+        anticipateDown(mDot1Smtp);
+
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final Thread poller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pDot1Smtp.doRun();
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }
+        });
+
+        pNode1.obtainTreeLock(0);
+        try {
+            poller.start();
+            // the monitor is called while another thread holds the node's lock
+            assertTrue("service was not polled while the tree lock was held", polled.await(10, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            assertUp(pDot1Smtp);
+        } finally {
+            pNode1.releaseTreeLock();
+        }
+        poller.join();
+        if (error.get() != null) throw error.get();
+
+        assertDown(pDot1Smtp);
+        assertEquals(1, pNode1.getTreeLockContendedCount());
+        assertTrue(pNode1.getTreeLockWaitTime() >= 100);
+        assertEquals(1, m_network.getTreeLockContendedCount());
+        assertEquals(0, pNode2.getTreeLockContendedCount());
+        verifyAnticipated();
+    }
+
+    @Test(timeout=60000)
+    public void testConcurrentPollsPropagateStatus() throws Throwable {
+        final PollableService[] node1Services = { pDot1Icmp, pDot1Smtp, pDot2Icmp, pDot2Smtp };
+
+        mNode1.bringDown();
+        anticipateDown(mNode1);
+        pollConcurrently(node1Services);
+
+        assertDown(pNode1);
+        assertDown(pDot1);
+        assertDown(pDot2);
+        for (PollableService svc : node1Services) {
+            assertDown(svc);
+        }
+        assertUp(pNode2);
+        verifyAnticipated();
+
+        mNode1.bringUp();
+        anticipateUp(mNode1);
+        pollConcurrently(node1Services);
+
+        assertUp(pNode1);
+        assertUp(pDot1);
+        assertUp(pDot2);
+        for (PollableService svc : node1Services) {
+            assertUp(svc);
+        }
+        verifyAnticipated();
+    }
+
+    /**
+     * Polls each service from several threads at once while another thread
+     * keeps walking the network, and fails on any error from those threads.
+     */
+    private void pollConcurrently(PollableService[] services) throws Throwable {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        final int serviceCount = countServices();
+        threads.add(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        assertEquals(serviceCount, countServices());
+                    }
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                }
+            }
+        }));
+        for (final PollableService svc : services) {
+            for (int i = 0; i < 3; i++) {
+                threads.add(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int j = 0; j < 5; j++) {
+                                svc.doRun();
+                            }
+                        } catch (Throwable t) {
+                            error.compareAndSet(null, t);
+                        }
+                    }
+                }));
+            }
+        }
+
+        for (Thread t : threads) {
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (error.get() != null) throw error.get();
+    }
+
+    private int countServices() {
+        final AtomicInteger count = new AtomicInteger(0);
+        m_network.visit(new PollableVisitorAdaptor() {
+            @Override
+            public void visitService(PollableService service) {
+                count.incrementAndGet();
+            }
+        });
+        return count.get();
+    }
+
     /**
      * @param i
      */
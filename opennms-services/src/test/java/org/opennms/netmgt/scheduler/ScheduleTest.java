@@ -210,6 +210,32 @@ public class ScheduleTest extends TestCase {
         assertRunAndScheduled(3000, 1000, 3, 1);
     }
     
+    public void testPostpone() {
+        m_sched.schedule();
+
+        m_scheduler.next();
+
+        assertRunAndScheduled(0, 1000, 1, 1);
+
+        m_sched.postpone();
+
+        assertEquals(2, m_scheduler.getEntryCount());
+
+        // jump to the expired entry, only the postponed one is left
+        m_scheduler.next();
+
+        assertEquals(1, m_schedulable.getRunCount());
+        assertEquals(1000, m_scheduler.getCurrentTime());
+        assertEquals(1, m_scheduler.getEntryCount());
+
+        // the postponed run happens between 5 and 14 seconds later
+        m_scheduler.next();
+
+        long postponedTime = m_scheduler.getCurrentTime();
+        assertTrue(postponedTime >= 5000 && postponedTime <= 14000);
+        assertRunAndScheduled(postponedTime, 1000, 2, 1);
+    }
+
     public void testAdjustScheduleWithinRun() {
         m_schedulable.setCallingAdjustSchedule(true);
         
@@ -298,6 +298,32 @@ public class EventTranslatorTest {
         assertEquals("p-brane", translatedEvents.get(0).getParmCollection().get(2).getValue().getContent());
     }
 
+    @Test
+    public void testSqlValueLookupsCachedUntilInvalidated() throws Exception {
+        InputStream rdr = new ByteArrayInputStream(getLinkDownTranslation().getBytes("UTF-8"));
+        m_config = new EventTranslatorConfigFactory(rdr, m_db);
+        m_translator.setConfig(m_config);
+
+        updateIfName("david");
+        assertEquals("david", m_config.translateEvent(createLinkDownEvent()).get(0).getParmCollection().get(1).getValue().getContent());
+
+        // the cached lookup is still used after the row changes
+        updateIfName("mathew");
+        assertEquals("david", m_config.translateEvent(createLinkDownEvent()).get(0).getParmCollection().get(1).getValue().getContent());
+
+        // until an inventory change invalidates it
+        m_translator.onEvent(new EventBuilder(EventConstants.NODE_GAINED_INTERFACE_EVENT_UEI, "test").setNodeid(1).getEvent());
+        assertEquals("mathew", m_config.translateEvent(createLinkDownEvent()).get(0).getParmCollection().get(1).getValue().getContent());
+    }
+
+    private void updateIfName(String ifName) throws SQLException {
+        Connection c = m_db.getConnection();
+        Statement stmt = c.createStatement();
+        stmt.executeUpdate("update snmpinterface set snmpifname = '"+ifName+"' WHERE nodeid = 1 and snmpifindex = 2");
+        stmt.close();
+        c.close();
+    }
+
 	private String getLinkDownTranslation() {
 	    String linkDownConfig = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + 
 	    		"<event-translator-configuration xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n" + 
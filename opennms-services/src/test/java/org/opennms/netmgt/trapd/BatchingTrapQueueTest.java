@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.trapd;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Test;
+import org.opennms.netmgt.model.events.EventBuilder;
+import org.opennms.netmgt.model.events.EventIpcManager;
+import org.opennms.netmgt.snmp.TrapNotification;
+import org.opennms.netmgt.snmp.TrapProcessor;
+import org.opennms.netmgt.xml.event.Event;
+import org.opennms.netmgt.xml.event.Log;
+
+public class BatchingTrapQueueTest {
+
+    private static final TrapNotification TRAP = new TrapNotification() {
+        @Override
+        public TrapProcessor getTrapProcessor() {
+            return null;
+        }
+    };
+
+    private BatchingTrapQueue m_queue;
+
+    @After
+    public void tearDown() {
+        if (m_queue != null) {
+            m_queue.stop();
+        }
+    }
+
+    @Test
+    public void testDropsWhenFull() {
+        m_queue = new BatchingTrapQueue(true, 2, 10, 1);
+
+        assertTrue(m_queue.offer(TRAP));
+        assertTrue(m_queue.offer(TRAP));
+        assertFalse(m_queue.offer(TRAP));
+
+        assertEquals(2, m_queue.getQueued());
+        assertEquals(1, m_queue.getDropped());
+    }
+
+    @Test
+    public void testQueuedTrapsAreSentAsOneLog() throws Exception {
+        final List<Log> logs = new CopyOnWriteArrayList<Log>();
+        final EventIpcManager eventManager = createMock(EventIpcManager.class);
+        eventManager.sendNow(isA(Log.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() {
+                logs.add((Log) getCurrentArguments()[0]);
+                return null;
+            }
+        }).anyTimes();
+        replay(eventManager);
+
+        final TrapQueueProcessorFactory factory = new TrapQueueProcessorFactory() {
+            @Override
+            public TrapQueueProcessor getInstance(final TrapNotification info) {
+                return new TrapQueueProcessor() {
+                    @Override
+                    List<Event> createEvents() {
+                        return Collections.singletonList(new EventBuilder("uei.opennms.org/default/trap", "trapd").getEvent());
+                    }
+                };
+            }
+        };
+        factory.setEventManager(eventManager);
+
+        m_queue = new BatchingTrapQueue(true, 100, 10, 1);
+        for (int i = 0; i < 5; i++) {
+            m_queue.offer(TRAP);
+        }
+        m_queue.start(factory);
+        m_queue.stop();
+
+        assertEquals(1, logs.size());
+        assertEquals(5, logs.get(0).getEvents().getEventCount());
+        assertEquals(1, m_queue.getBatches());
+        assertEquals(0, m_queue.getQueued());
+    }
+}
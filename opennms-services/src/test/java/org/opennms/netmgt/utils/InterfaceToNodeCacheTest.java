@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.netmgt.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InterfaceToNodeCacheTest {
+    private InterfaceToNodeCache m_cache;
+
+    @Before
+    public void setUp() {
+        m_cache = InterfaceToNodeCache.getInstance();
+        m_cache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        m_cache.clear();
+    }
+
+    @Test
+    public void testLookupByAddressValue() throws Exception {
+        assertEquals(-1, m_cache.setNodeId("192.168.1.1", 1));
+        assertEquals(-1, m_cache.setNodeId("fe80:0000:0000:0000:0000:0000:0000:0001", 2));
+
+        assertEquals(1, m_cache.getNodeId(InetAddress.getByName("192.168.1.1")));
+        assertEquals(2, m_cache.getNodeId("fe80::1"));
+        assertEquals(-1, m_cache.getNodeId("192.168.1.2"));
+
+        assertEquals(1, m_cache.setNodeId("192.168.1.1", 3));
+        assertEquals(3, m_cache.removeNodeId("192.168.1.1"));
+        assertEquals(-1, m_cache.getNodeId("192.168.1.1"));
+        assertEquals(1, m_cache.size());
+    }
+
+    @Test
+    public void testRebuildKeepsUpdatesMadeWhileLoading() throws Exception {
+        m_cache.setNodeId("10.0.0.1", 1);
+        m_cache.setNodeId("10.0.0.2", 2);
+
+        m_cache.rebuild(new Callable<Map<InetAddress, Integer>>() {
+            @Override
+            public Map<InetAddress, Integer> call() throws Exception {
+                final Map<InetAddress, Integer> loaded = new HashMap<InetAddress, Integer>();
+                loaded.put(InetAddress.getByName("10.0.0.1"), 1);
+                loaded.put(InetAddress.getByName("10.0.0.2"), 2);
+
+                // events handled after the query ran, before the swap
+                m_cache.setNodeId("10.0.0.3", 3);
+                m_cache.removeNodeId("10.0.0.2");
+                assertEquals(2, m_cache.size());
+                return loaded;
+            }
+        });
+
+        assertEquals(1, m_cache.getNodeId("10.0.0.1"));
+        assertEquals(-1, m_cache.getNodeId("10.0.0.2"));
+        assertEquals(3, m_cache.getNodeId("10.0.0.3"));
+        assertEquals(2, m_cache.size());
+    }
+
+    @Test
+    public void testFailedRebuildKeepsCurrentMap() throws Exception {
+        m_cache.setNodeId("10.0.0.1", 1);
+        try {
+            m_cache.rebuild(new Callable<Map<InetAddress, Integer>>() {
+                @Override
+                public Map<InetAddress, Integer> call() throws Exception {
+                    throw new IllegalStateException("database is down");
+                }
+            });
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, m_cache.getNodeId("10.0.0.1"));
+    }
+
+    @Test
+    public void testBackgroundRefreshStopsWithLastUser() throws Exception {
+        final Object trapd = new Object();
+        final Object syslogd = new Object();
+        System.setProperty("org.opennms.interfaceToNodeCache.refreshInterval", "3600000");
+        try {
+            m_cache.startBackgroundRefresh(trapd);
+            m_cache.startBackgroundRefresh(trapd);
+            m_cache.startBackgroundRefresh(syslogd);
+            assertTrue(m_cache.isBackgroundRefreshRunning());
+
+            m_cache.stopBackgroundRefresh(trapd);
+            m_cache.stopBackgroundRefresh(trapd);
+            assertTrue(m_cache.isBackgroundRefreshRunning());
+
+            m_cache.stopBackgroundRefresh(syslogd);
+            assertFalse(m_cache.isBackgroundRefreshRunning());
+
+            m_cache.startBackgroundRefresh(trapd);
+            assertTrue(m_cache.isBackgroundRefreshRunning());
+        } finally {
+            m_cache.stopBackgroundRefresh(trapd);
+            m_cache.stopBackgroundRefresh(syslogd);
+            System.clearProperty("org.opennms.interfaceToNodeCache.refreshInterval");
+        }
+        assertFalse(m_cache.isBackgroundRefreshRunning());
+    }
+}
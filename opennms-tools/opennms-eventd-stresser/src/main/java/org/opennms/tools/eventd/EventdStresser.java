@@ -10,6 +10,7 @@ import java.sql.Statement;
 import java.text.DateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.dbcp.PoolingConnection;
 import org.opennms.netmgt.snmp.SnmpObjId;
@@ -32,6 +33,7 @@ public class EventdStresser {
     private static final String PROPERTY_TRAP_COUNT = "trap.count";
     private static final String PROPERTY_TRAP_COMMUNITY = "trap.community";
     private static final String PROPERTY_TRAP_PORT = "trap.port";
+    private static final String PROPERTY_SENDER_THREADS = "sender.threads";
     private static final String PROPERTY_PERSIST_WAIT = "persist.wait";
     private static final String PROPERTY_DELETE_ALL_EVENTS = "delete.all.events";
     private static final String PROPERTY_DELETE_TEST_EVENTS = "delete.test.events";
@@ -47,6 +49,7 @@ public class EventdStresser {
     private static Double m_trapRate = Double.valueOf(100); // seconds
     private static Integer m_trapCount = Integer.valueOf(10000);
     private static Integer m_batchDelay = Integer.valueOf(1); // seconds
+    private static Integer m_senderThreads = Integer.valueOf(1);
     private static Integer m_batchSize = m_trapCount;
     private static int m_batchCount = 1;
     private static int m_persistWait = 60;
@@ -118,6 +121,7 @@ public class EventdStresser {
         System.out.println(REPORT_SPACING + PROPERTY_TRAP_RATE + printDefault(m_trapRate));
         System.out.println(REPORT_SPACING + PROPERTY_BATCH_DELAY + printDefault(m_batchDelay));
         System.out.println(REPORT_SPACING + PROPERTY_BATCH_SIZE + printDefault(m_batchSize));
+        System.out.println(REPORT_SPACING + PROPERTY_SENDER_THREADS + printDefault(m_senderThreads));
         System.out.println(REPORT_SPACING + PROPERTY_PERSIST_WAIT + printDefault(m_persistWait));
         System.out.println(REPORT_SPACING + PROPERTY_DELETE_ALL_EVENTS + printDefault(m_deleteAllEvents));
         System.out.println(REPORT_SPACING + PROPERTY_DELETE_TEST_EVENTS + printDefault(m_deleteTestEvents));
@@ -212,6 +216,12 @@ public class EventdStresser {
             System.out.println("Using batch size: " + m_batchSize);
         }
 
+        property = System.getProperty(PROPERTY_SENDER_THREADS);
+        if (property != null) {
+            m_senderThreads = Integer.getInteger(PROPERTY_SENDER_THREADS);
+            System.out.println("Using sender threads: " + m_senderThreads);
+        }
+
         property = System.getProperty(PROPERTY_PERSIST_WAIT);
         if (property != null) {
             m_persistWait = Integer.getInteger(PROPERTY_PERSIST_WAIT);
@@ -332,30 +342,12 @@ public class EventdStresser {
         for (int i = 1; i <= m_batchCount; i++) {
 
             Long batchBegin = Calendar.getInstance().getTimeInMillis();
-            Double currentRate = 0.0;
-            Integer batchTrapsSent = 0;
-            Long batchElapsedMillis = 0L;
             System.out.println("Sending batch " + i + " of " + Integer.valueOf(m_batchCount) + " batches of " + m_batchSize.intValue() + " traps at the rate of " + m_trapRate.toString()
                     + " traps/sec...");
             System.out.println("Estimated time to send: " + m_batchSize.doubleValue() / m_trapRate.doubleValue() + " seconds");
 
-            while (batchTrapsSent.intValue() < m_batchSize.intValue()) {
-
-                if (currentRate <= m_trapRate || batchElapsedMillis == 0) {
-                    batchTrapsSent += sendTrap(builder);
-                } else {
-                    Thread.sleep(1);
-                    m_sleepMillis++;
-                }
-
-                batchElapsedMillis = Calendar.getInstance().getTimeInMillis() - batchBegin;
-                currentRate = batchTrapsSent.doubleValue() / batchElapsedMillis.doubleValue() * 1000.0;
-
-                if (batchElapsedMillis % 1000 == 0) {
-                    System.out.print(".");
-                }
-
-            }
+            int batchTrapsSent = sendTraps(builder, m_batchSize.intValue());
+            Long batchElapsedMillis = Calendar.getInstance().getTimeInMillis() - batchBegin;
 
             System.out.println();
             totalTrapsSent += batchTrapsSent;
@@ -371,24 +363,7 @@ public class EventdStresser {
 
         int remainingTraps = m_trapCount - totalTrapsSent;
         System.out.println("Sending batch remainder of " + remainingTraps + " traps...");
-        Long batchBegin = Calendar.getInstance().getTimeInMillis();
-        Double currentRate = 0.0;
-        Long batchTrapsSent = 0L;
-        Long elapsedMillis = 0L;
-        while (batchTrapsSent.intValue() < remainingTraps) {
-
-            if (currentRate <= m_trapRate || elapsedMillis == 0) {
-                batchTrapsSent += sendTrap(builder);
-            } else {
-                Thread.sleep(1);
-                m_sleepMillis++;
-            }
-
-            elapsedMillis = Calendar.getInstance().getTimeInMillis() - batchBegin;
-            currentRate = batchTrapsSent.doubleValue() / elapsedMillis.doubleValue() * 1000.0;
-        }
-
-        totalTrapsSent += batchTrapsSent;
+        totalTrapsSent += sendTraps(builder, remainingTraps);
         System.out.println("Elapsed Time (secs): " + ((System.currentTimeMillis() - beginMillis) / 1000L));
         System.out.println("         Traps sent: " + Integer.valueOf(totalTrapsSent).toString());
         Integer currentEventCount = getEventCount(pool) - initialEventCount;
@@ -396,6 +371,63 @@ public class EventdStresser {
         return totalTrapsSent;
     }
 
+    /**
+     * Send count traps at the trap rate, split over the sender threads. Each
+     * extra thread sends with its own builder.
+     */
+    private static int sendTraps(final SnmpTrapBuilder builder, final int count) throws InterruptedException {
+        final int threads = Math.max(1, Math.min(m_senderThreads.intValue(), count));
+        if (threads == 1) {
+            return sendTraps(builder, count, m_trapRate.doubleValue());
+        }
+
+        final AtomicInteger trapsSent = new AtomicInteger();
+        final Thread[] senders = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int share = count / threads + (i < count % threads ? 1 : 0);
+            final SnmpTrapBuilder threadBuilder = (i == 0 ? builder : createBuilder());
+            senders[i] = new Thread("EventdStresser-Sender-" + i) {
+                @Override
+                public void run() {
+                    try {
+                        trapsSent.addAndGet(sendTraps(threadBuilder, share, m_trapRate.doubleValue() / threads));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            senders[i].start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        return trapsSent.get();
+    }
+
+    private static int sendTraps(final SnmpTrapBuilder builder, final int count, final double rate) throws InterruptedException {
+        long begin = Calendar.getInstance().getTimeInMillis();
+        double currentRate = 0.0;
+        int trapsSent = 0;
+        long elapsedMillis = 0L;
+        while (trapsSent < count) {
+
+            if (currentRate <= rate || elapsedMillis == 0) {
+                trapsSent += sendTrap(builder);
+            } else {
+                Thread.sleep(1);
+            }
+
+            long previousElapsedMillis = elapsedMillis;
+            elapsedMillis = Calendar.getInstance().getTimeInMillis() - begin;
+            currentRate = trapsSent / (double) elapsedMillis * 1000.0;
+
+            if (elapsedMillis / 1000 > previousElapsedMillis / 1000) {
+                System.out.print(".");
+            }
+        }
+        return trapsSent;
+    }
+
     private static int sendTrap(final SnmpTrapBuilder builder) {
         int trapsSent = 0;
         try {
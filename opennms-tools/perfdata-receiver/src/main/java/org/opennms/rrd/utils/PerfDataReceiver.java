@@ -28,6 +28,7 @@
 
 package org.opennms.rrd.utils;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.ServerSocket;
@@ -46,16 +47,21 @@ public class PerfDataReceiver {
 		Runtime.getRuntime().addShutdownHook(createShutdownHook());
 
 		int port = 8999;
+		boolean streaming = false;
 		
 		if (args.length < 1) {
 			System.err.println("Defaulting to port: 8999.  To change, pass valid port value as first argument.");
 		} else {
 			port = Integer.valueOf(args[0]);
 		}
+		if (args.length > 1 && "--streaming".equals(args[1])) {
+			// Matches org.opennms.rrd.tcp.streaming=true on the OpenNMS side
+			streaming = true;
+		}
 		
-		System.err.println("Ready to receive OpenNMS QOS Data on TCP Port:"+String.valueOf(port)+"...");
+		System.err.println("Ready to receive OpenNMS QOS Data on TCP Port:"+String.valueOf(port)+(streaming ? " (length-delimited stream)" : "")+"...");
 		try {
-			listener = createListenerThread(port);
+			listener = createListenerThread(port, streaming);
 			listener.start();
 			listener.join();
 		} catch (Throwable t) {
@@ -76,6 +82,10 @@ public class PerfDataReceiver {
 	}
 
 	public static Thread createListenerThread(final int port) {
+		return createListenerThread(port, false);
+	}
+
+	public static Thread createListenerThread(final int port, final boolean streaming) {
 		m_listenerThread = new Thread() {
 			public void run() {
 				this.setName("fail");
@@ -84,30 +94,19 @@ public class PerfDataReceiver {
 					ssocket.setSoTimeout(0);
 					while (true) {
 						try {
-							Socket socket = ssocket.accept();
-							InputStream is = socket.getInputStream();
-							PerformanceDataProtos.PerformanceDataReadings messages = PerformanceDataProtos.PerformanceDataReadings.parseFrom(is);
-							for (PerformanceDataProtos.PerformanceDataReading message : messages.getMessageList()) {
-								StringBuffer values = new StringBuffer();
-								values.append("{ ");
-								for (int i = 0; i < message.getValueCount(); i++) {
-									if (i != 0) {
-										values.append(", ");
+							final Socket socket = ssocket.accept();
+							if (streaming) {
+								// Each connection stays open and carries many batches
+								Thread reader = new Thread("PerfDataReceiver-" + socket.getRemoteSocketAddress()) {
+									public void run() {
+										readStream(socket);
 									}
-									values.append(message.getValue(i));
-								}
-								values.append(" }");
-								System.out
-										.println("Message received: { "
-												+ "path: \""
-												+ message.getPath() + "\", "
-												+ "owner: \""
-												+ message.getOwner() + "\", "
-												+ "timestamp: \""
-												+ message.getTimestamp()
-												+ "\", " + "values: "
-												+ values.toString() + " }");
-
+								};
+								reader.setDaemon(true);
+								reader.start();
+							} else {
+								InputStream is = socket.getInputStream();
+								printMessages(PerformanceDataProtos.PerformanceDataReadings.parseFrom(is));
 							}
 						} catch (SocketTimeoutException e) {
 							System.err.println(e.getLocalizedMessage());
@@ -133,4 +132,51 @@ public class PerfDataReceiver {
 		return m_listenerThread;
 
 	}
+
+	private static void readStream(final Socket socket) {
+		try {
+			final InputStream is = new BufferedInputStream(socket.getInputStream());
+			while (true) {
+				is.mark(1);
+				if (is.read() == -1) {
+					break;
+				}
+				is.reset();
+				printMessages(PerformanceDataProtos.PerformanceDataReadings.parseDelimitedFrom(is));
+			}
+		} catch (IOException e) {
+			System.err.println(e.getLocalizedMessage());
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				System.err.println(e.getLocalizedMessage());
+			}
+		}
+	}
+
+	private static void printMessages(final PerformanceDataProtos.PerformanceDataReadings messages) {
+		for (PerformanceDataProtos.PerformanceDataReading message : messages.getMessageList()) {
+			StringBuffer values = new StringBuffer();
+			values.append("{ ");
+			for (int i = 0; i < message.getValueCount(); i++) {
+				if (i != 0) {
+					values.append(", ");
+				}
+				values.append(message.getValue(i));
+			}
+			values.append(" }");
+			System.out
+					.println("Message received: { "
+							+ "path: \""
+							+ message.getPath() + "\", "
+							+ "owner: \""
+							+ message.getOwner() + "\", "
+							+ "timestamp: \""
+							+ message.getTimestamp()
+							+ "\", " + "values: "
+							+ values.toString() + " }");
+
+		}
+	}
 }
@@ -35,6 +35,8 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Date;
 import java.util.Vector;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.ServletContext;
 
@@ -48,6 +50,8 @@ import org.opennms.web.event.filter.NodeFilter;
 import org.opennms.web.event.filter.ServiceFilter;
 import org.opennms.web.event.filter.SeverityFilter;
 import org.opennms.web.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Encapsulates all querying functionality for events.
@@ -56,6 +60,11 @@ import org.opennms.web.filter.Filter;
  */
 public class EventFactory {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EventFactory.class);
+
+    /** Matches the planner's row estimate on the top node of an EXPLAIN plan. */
+    private static final Pattern PLAN_ROWS_PATTERN = Pattern.compile("rows=(\\d+)");
+
     /** Private constructor so this class cannot be instantiated. */
     private EventFactory() {
     }
@@ -119,6 +128,68 @@ public class EventFactory {
         return eventCount;
     }
 
+    /**
+     * Count the number of events for a given acknowledgement type, either
+     * exactly or from the planner's estimate of how many rows the query
+     * would return.  An estimate avoids scanning every matching event, which
+     * is what makes exact counts slow on large events tables; it is only as
+     * good as the table statistics and is meant for page counts and the like.
+     *
+     * @param ackType a {@link org.opennms.web.event.AcknowledgeType} object.
+     * @param filters an array of org$opennms$web$filter$Filter objects.
+     * @param exact if true, count the events exactly
+     * @return a int.
+     * @throws java.sql.SQLException if any.
+     */
+    public static int getEventCount(AcknowledgeType ackType, Filter[] filters, boolean exact) throws SQLException {
+        if (exact) {
+            return getEventCount(ackType, filters);
+        }
+        if (ackType == null || filters == null) {
+            throw new IllegalArgumentException("Cannot take null parameters.");
+        }
+
+        String plan = null;
+        final Connection conn = DataSourceFactory.getInstance().getConnection();
+        final DBUtils d = new DBUtils(EventFactory.class, conn);
+        try {
+            StringBuffer select = new StringBuffer("EXPLAIN SELECT EVENTID FROM EVENTS LEFT OUTER JOIN NODE USING (NODEID) LEFT OUTER JOIN SERVICE USING (SERVICEID) WHERE ");
+            select.append(getAcknowledgeTypeClause(ackType));
+
+            for (Filter filter : filters) {
+                select.append(" AND");
+                select.append(filter.getParamSql());
+            }
+
+            select.append(" AND EVENTDISPLAY='Y' ");
+
+            PreparedStatement stmt = conn.prepareStatement(select.toString());
+            d.watch(stmt);
+
+            int parameterIndex = 1;
+            for (Filter filter : filters) {
+                parameterIndex += filter.bindParam(stmt, parameterIndex);
+            }
+
+            ResultSet rs = stmt.executeQuery();
+            d.watch(rs);
+
+            // the first line of the plan is its top node, which carries the row estimate for the whole query
+            if (rs.next()) {
+                plan = rs.getString(1);
+            }
+        } finally {
+            d.cleanUp();
+        }
+
+        final Matcher m = plan == null ? null : PLAN_ROWS_PATTERN.matcher(plan);
+        if (m == null || !m.find()) {
+            LOG.warn("Unable to find a row estimate in query plan '{}', counting events exactly", plan);
+            return getEventCount(ackType, filters);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Long.parseLong(m.group(1)));
+    }
+
     /**
      * Count the number of events for a given acknowledgement type.
      *
@@ -363,6 +434,94 @@ public class EventFactory {
         return events;
     }
 
+    /**
+     * Return a page of events that follow the given event in the order of the
+     * sort style, i.e. keyset pagination.  Unlike {@link #getEvents(SortStyle,
+     * AcknowledgeType, Filter[], int, int)} with an offset, the database does
+     * not have to read and throw away all of the preceding events, so deep
+     * pages cost the same as the first one.
+     *
+     * <p>
+     * Events are ordered by the sort style's column with ties broken by event
+     * ID.  To get the next page, pass the ID of the last event of the
+     * current page.  If that event no longer exists, the page is empty.
+     * </p>
+     *
+     * @param sortStyle a {@link org.opennms.web.event.SortStyle} object.
+     * @param ackType a {@link org.opennms.web.event.AcknowledgeType} object.
+     * @param filters an array of org$opennms$web$filter$Filter objects.
+     * @param afterEventId
+     *            the ID of the last event of the previous page, or zero or
+     *            less for the first page
+     * @param limit
+     *            the largest number of events to return, if zero or less
+     *            no limit is used
+     * @return an array of {@link org.opennms.web.event.Event} objects.
+     * @throws java.sql.SQLException if any.
+     */
+    public static Event[] getEventsAfter(SortStyle sortStyle, AcknowledgeType ackType, Filter[] filters, int afterEventId, int limit) throws SQLException {
+        if (sortStyle == null || ackType == null || filters == null) {
+            throw new IllegalArgumentException("Cannot take null parameters.");
+        }
+
+        Event[] events = null;
+        final Connection conn = DataSourceFactory.getInstance().getConnection();
+        final DBUtils d = new DBUtils(EventFactory.class, conn);
+
+        try {
+            StringBuffer select = new StringBuffer("" +
+                    "          SELECT events.*, node.nodelabel, service.servicename " + 
+                    "            FROM node " + 
+                    "RIGHT OUTER JOIN events " +
+                    "              ON (events.nodeid = node.nodeid) " + 
+                    " LEFT OUTER JOIN service " +
+                    "              ON (service.serviceid = events.serviceid) " + 
+                    "           WHERE ");
+
+            select.append(getAcknowledgeTypeClause(ackType));
+
+            for (Filter filter : filters) {
+                select.append(" AND");
+                select.append(filter.getParamSql());
+            }
+
+            select.append(" AND EVENTDISPLAY='Y' ");
+
+            if (afterEventId > 0) {
+                select.append(" AND ");
+                select.append(getKeysetClause(sortStyle));
+            }
+
+            select.append(sortStyle.getKeysetOrderByClause());
+
+            if (limit > 0) {
+                select.append(" LIMIT ");
+                select.append(limit);
+            }
+
+            final PreparedStatement stmt = conn.prepareStatement(select.toString());
+            d.watch(stmt);
+
+            int parameterIndex = 1;
+            for (Filter filter : filters) {
+                parameterIndex += filter.bindParam(stmt, parameterIndex);
+            }
+
+            if (afterEventId > 0) {
+                stmt.setInt(parameterIndex++, afterEventId);
+            }
+
+            final ResultSet rs = stmt.executeQuery();
+            d.watch(rs);
+
+            events = rs2Events(rs);
+        } finally {
+            d.cleanUp();
+        }
+
+        return events;
+    }
+
     /*
      * ****************************************************************************
      * N O D E M E T H O D S
@@ -1302,6 +1461,30 @@ public class EventFactory {
         return sortStyle.getOrderByClause();
     }
 
+    /**
+     * Convenience method for getting the SQL condition that selects the
+     * events following a given event, bound as a single parameter, in the
+     * order of {@link SortStyle#getKeysetOrderByClause()}.
+     *
+     * @param sortStyle a {@link org.opennms.web.event.SortStyle} object.
+     * @return a {@link java.lang.String} object.
+     */
+    protected static String getKeysetClause(SortStyle sortStyle) {
+        if (sortStyle == null) {
+            throw new IllegalArgumentException("Cannot take null parameters.");
+        }
+
+        final String operator = sortStyle.isDescending() ? " < " : " > ";
+        final String column = sortStyle.getKeysetColumn();
+
+        if (column == null) {
+            return "EVENTID" + operator + "?";
+        }
+
+        // compare (key, id) pairs as rows so that an index on both columns can be used
+        return "(" + column + ", EVENTID)" + operator + "(SELECT " + column + ", EVENTID FROM EVENTS LEFT OUTER JOIN NODE USING (NODEID) LEFT OUTER JOIN SERVICE USING (SERVICEID) WHERE EVENTID = ?)";
+    }
+
     /**
      * Convenience method for getting the SQL <em>ORDER BY</em> clause related
      * to a given sort style.
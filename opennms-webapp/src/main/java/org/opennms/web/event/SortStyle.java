@@ -185,4 +185,86 @@ public enum SortStyle {
     
         return clause;
     }
+
+    /**
+     * Convenience method for getting the SQL expression that events are
+     * ordered by for this sort style when paging with
+     * {@link EventFactory#getEventsAfter}, or null when they are ordered by
+     * event ID alone.  Nullable columns are coalesced so every event has a
+     * comparable key.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    protected String getKeysetColumn() {
+        switch (this) {
+        case SEVERITY:
+        case REVERSE_SEVERITY:
+            return "EVENTSEVERITY";
+
+        case TIME:
+        case REVERSE_TIME:
+            return "EVENTTIME";
+
+        case NODE:
+        case REVERSE_NODE:
+            return "COALESCE(NODELABEL, '')";
+
+        case INTERFACE:
+        case REVERSE_INTERFACE:
+            return "COALESCE(IPADDR, '')";
+
+        case SERVICE:
+        case REVERSE_SERVICE:
+            return "COALESCE(SERVICENAME, '')";
+
+        case POLLER:
+        case REVERSE_POLLER:
+            return "EVENTDPNAME";
+
+        case ID:
+        case REVERSE_ID:
+            return null;
+
+        default:
+            throw new IllegalArgumentException("Unknown SortStyle: " + this);
+        }
+    }
+
+    /**
+     * Whether this sort style lists the greatest keys first.
+     *
+     * @return a boolean.
+     */
+    protected boolean isDescending() {
+        switch (this) {
+        case SEVERITY:
+        case TIME:
+        case REVERSE_NODE:
+        case REVERSE_INTERFACE:
+        case REVERSE_SERVICE:
+        case REVERSE_POLLER:
+        case ID:
+            return true;
+
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Convenience method for getting the SQL <em>ORDER BY</em> clause used
+     * when paging with {@link EventFactory#getEventsAfter}.  Ties are broken
+     * by event ID so that every event has a unique position.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    protected String getKeysetOrderByClause() {
+        final String direction = isDescending() ? " DESC" : " ASC";
+        final String column = getKeysetColumn();
+
+        if (column == null) {
+            return " ORDER BY EVENTID" + direction;
+        }
+        return " ORDER BY " + column + direction + ", EVENTID" + direction;
+    }
 }
@@ -38,10 +38,13 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
 
+import org.opennms.core.criteria.Criteria;
 import org.opennms.core.criteria.CriteriaBuilder;
 import org.opennms.netmgt.dao.api.AcknowledgmentDao;
 import org.opennms.netmgt.dao.api.AlarmDao;
@@ -123,6 +126,12 @@ public class AlarmRestService extends AlarmRestServiceBase {
      * getAlarms
      * </p>
      * 
+     * <p>
+     * Alarms are ordered by last event time, newest first.  The "afterId"
+     * parameter pages from the given alarm instead of an offset; see
+     * {@link EventRestService#getEvents()}.
+     * </p>
+     * 
      * @return a {@link org.opennms.netmgt.model.OnmsAlarmCollection} object.
      */
     @GET
@@ -132,12 +141,35 @@ public class AlarmRestService extends AlarmRestServiceBase {
         readLock();
 
         try {
-            final CriteriaBuilder builder = getCriteriaBuilder(m_uriInfo.getQueryParameters(), false);
+            final MultivaluedMap<String, String> params = m_uriInfo.getQueryParameters();
+            final Integer afterId = removeAfterId(params);
+            final boolean exactCount = removeExactCount(params, afterId != null);
+            final boolean filtered = hasFilters(params);
+
+            final CriteriaBuilder builder = getCriteriaBuilder(params, false);
             builder.distinct();
+
+            // the total covers the whole listing, not just what follows the keyset
+            final Criteria countCriteria = builder.toCriteria();
+            countCriteria.setLimit(0);
+            countCriteria.setOffset(0);
+
+            if (afterId != null) {
+                final OnmsAlarm after = m_alarmDao.get(afterId);
+                if (after == null) {
+                    throw getException(Status.BAD_REQUEST, "Alarm {} does not exist", afterId.toString());
+                }
+                applyKeyset(builder, "lastEventTime", after.getLastEventTime(), afterId, false);
+            }
+
             final OnmsAlarmCollection coll = new OnmsAlarmCollection(m_alarmDao.findMatching(builder.toCriteria()));
 
             // For getting totalCount
-            coll.setTotalCount(m_alarmDao.countMatching(builder.clearOrder().limit(0).offset(0).toCriteria()));
+            if (exactCount) {
+                coll.setTotalCount(m_alarmDao.countMatching(countCriteria));
+            } else {
+                coll.setTotalCount(filtered ? -1 : m_alarmDao.estimateCountAll());
+            }
 
             return coll;
         } finally {
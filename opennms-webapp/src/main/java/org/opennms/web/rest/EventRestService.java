@@ -45,9 +45,11 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Response.Status;
 
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
+import org.opennms.core.criteria.Criteria;
 import org.opennms.core.criteria.CriteriaBuilder;
 import org.opennms.netmgt.dao.api.EventDao;
 import org.opennms.netmgt.model.OnmsEvent;
@@ -123,6 +125,15 @@ public class EventRestService extends OnmsRestService {
      * Returns all the events which match the filter/query in the query
      * parameters
      * 
+     * <p>
+     * Events are ordered by time.  Instead of an offset, the "afterId"
+     * parameter can give the ID of the last event of the previous page; the
+     * events after it are then found without reading all of the preceding
+     * ones.  Such pages carry an estimated total count unless "totalCount=exact"
+     * is given; an estimate is only available for unfiltered listings and is
+     * -1 otherwise.
+     * </p>
+     * 
      * @return Collection of OnmsEvents (ready to be XML-ified)
      * @throws java.text.ParseException
      *             if any.
@@ -134,12 +145,32 @@ public class EventRestService extends OnmsRestService {
         readLock();
 
         try {
+            final MultivaluedMap<String, String> params = m_uriInfo.getQueryParameters();
+            final Integer afterId = removeAfterId(params);
+            final boolean exactCount = removeExactCount(params, afterId != null);
+            final boolean filtered = hasFilters(params);
+
             final CriteriaBuilder builder = new CriteriaBuilder(OnmsEvent.class);
-            applyQueryFilters(m_uriInfo.getQueryParameters(), builder);
+            applyQueryFilters(params, builder);
             builder.orderBy("eventTime").asc();
 
+            // the total covers the whole listing, not just what follows the keyset
+            final Criteria countCriteria = builder.toCriteria();
+
+            if (afterId != null) {
+                final OnmsEvent after = m_eventDao.get(afterId);
+                if (after == null) {
+                    throw getException(Status.BAD_REQUEST, "Event {} does not exist", afterId.toString());
+                }
+                applyKeyset(builder, "eventTime", after.getEventTime(), afterId, true);
+            }
+
             final OnmsEventCollection coll = new OnmsEventCollection(m_eventDao.findMatching(builder.toCriteria()));
-            coll.setTotalCount(m_eventDao.countMatching(builder.clearOrder().toCriteria()));
+            if (exactCount) {
+                coll.setTotalCount(m_eventDao.countMatching(countCriteria));
+            } else {
+                coll.setTotalCount(filtered ? -1 : m_eventDao.estimateCountAll());
+            }
 
             return coll;
         } finally {
@@ -33,6 +33,8 @@ import java.beans.IntrospectionException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -47,6 +49,7 @@ import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.opennms.core.criteria.Criteria;
 import org.opennms.core.criteria.CriteriaBuilder;
+import org.opennms.core.criteria.restrictions.Restrictions;
 import org.opennms.netmgt.model.OnmsArpInterface.StatusType;
 import org.opennms.netmgt.model.OnmsSeverity;
 import org.opennms.netmgt.model.OnmsSeverityEditor;
@@ -82,6 +85,9 @@ public class OnmsRestService {
 
 	protected enum ComparisonOperation { EQ, NE, ILIKE, LIKE, IPLIKE, GT, LT, GE, LE, CONTAINS }
 
+	/** Query parameters that page, order or qualify a listing rather than restrict it. */
+	private static final List<String> NON_FILTERING_PARAMETERS = Arrays.asList("_dc", "limit", "offset", "start", "orderBy", "order", "afterId", "totalCount", "match", "comparator");
+
 	/**
 	 * <p>Constructor for OnmsRestService.</p>
 	 */
@@ -245,6 +251,85 @@ public class OnmsRestService {
     	}
     }
     
+    /**
+     * Removes the "afterId" parameter and returns its value, or null if it is
+     * not present.  It asks for the page of a listing that follows the entity
+     * with that ID (keyset paging) and so cannot be combined with an offset
+     * or an ordering of its own.
+     *
+     * @param params the query parameters
+     * @return the ID of the last entity of the previous page, or null
+     */
+    protected Integer removeAfterId(final MultivaluedMap<java.lang.String, java.lang.String> params) {
+        final String afterId = removeParameter(params, "afterId");
+        if (afterId == null) {
+            return null;
+        }
+        if (params.containsKey("offset") || params.containsKey("start") || params.containsKey("orderBy") || "any".equals(params.getFirst("match"))) {
+            throw getException(Status.BAD_REQUEST, "The afterId parameter cannot be combined with offset, start, orderBy or match=any");
+        }
+        try {
+            return Integer.valueOf(afterId);
+        } catch (final NumberFormatException e) {
+            throw getException(Status.BAD_REQUEST, "Invalid afterId: {}", afterId);
+        }
+    }
+
+    /**
+     * Removes the "totalCount" parameter and returns whether the total count
+     * of a listing has to be exact.  It can be "exact" or "estimate"; when it
+     * is not given, keyset pages are estimated and all others are counted
+     * exactly.
+     *
+     * @param params the query parameters
+     * @param keyset whether the listing is paged with "afterId"
+     * @return true if the matching entities have to be counted
+     */
+    protected boolean removeExactCount(final MultivaluedMap<java.lang.String, java.lang.String> params, final boolean keyset) {
+        final String totalCount = removeParameter(params, "totalCount", keyset ? "estimate" : "exact");
+        if ("exact".equalsIgnoreCase(totalCount)) {
+            return true;
+        } else if ("estimate".equalsIgnoreCase(totalCount)) {
+            return false;
+        }
+        throw getException(Status.BAD_REQUEST, "Invalid totalCount: {}, must be 'exact' or 'estimate'", totalCount);
+    }
+
+    /**
+     * Whether any of the query parameters restrict which entities are listed,
+     * as opposed to how they are paged or ordered.
+     *
+     * @param params the query parameters
+     * @return true if the listing is filtered
+     */
+    protected static boolean hasFilters(final MultivaluedMap<java.lang.String, java.lang.String> params) {
+        for (final String key : params.keySet()) {
+            if (!NON_FILTERING_PARAMETERS.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Restricts the builder to the entities that follow the given one when
+     * ordered by the attribute and then by ID, and orders them that way.
+     *
+     * @param builder the criteria of the listing
+     * @param attribute the attribute the listing is ordered by
+     * @param value the attribute's value on the last entity of the previous page
+     * @param afterId the ID of the last entity of the previous page
+     * @param ascending the direction of the ordering
+     */
+    protected static void applyKeyset(final CriteriaBuilder builder, final String attribute, final Object value, final Integer afterId, final boolean ascending) {
+        if (ascending) {
+            builder.or(Restrictions.gt(attribute, value), Restrictions.and(Restrictions.eq(attribute, value), Restrictions.gt("id", afterId)));
+        } else {
+            builder.or(Restrictions.lt(attribute, value), Restrictions.and(Restrictions.eq(attribute, value), Restrictions.lt("id", afterId)));
+        }
+        builder.orderBy("id", ascending);
+    }
+
     /**
      * <p>throwException</p>
      *
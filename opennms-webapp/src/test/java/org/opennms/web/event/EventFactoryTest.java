@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+
+package org.opennms.web.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opennms.core.db.DataSourceFactory;
+import org.opennms.core.test.OpenNMSJUnit4ClassRunner;
+import org.opennms.core.test.db.annotations.JUnitTemporaryDatabase;
+import org.opennms.core.utils.BeanUtils;
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.netmgt.dao.DatabasePopulator;
+import org.opennms.netmgt.model.OnmsEvent;
+import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.model.OnmsServiceType;
+import org.opennms.test.JUnitConfigurationEnvironment;
+import org.opennms.web.event.filter.SeverityFilter;
+import org.opennms.web.filter.Filter;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Tests the keyset paging and the estimated counts of {@link EventFactory}.
+ */
+@RunWith(OpenNMSJUnit4ClassRunner.class)
+@ContextConfiguration(locations= {
+        "classpath:/META-INF/opennms/applicationContext-soa.xml",
+        "classpath:/META-INF/opennms/applicationContext-dao.xml",
+        "classpath*:/META-INF/opennms/component-dao.xml",
+        "classpath*:/META-INF/opennms/component-service.xml",
+        "classpath:/jdbcWebRepositoryTestContext.xml",
+        "classpath:/META-INF/opennms/applicationContext-minimal-conf.xml"
+})
+@JUnitConfigurationEnvironment
+@JUnitTemporaryDatabase
+public class EventFactoryTest implements InitializingBean {
+
+    private static final Filter[] NO_FILTERS = new Filter[0];
+
+    @Autowired
+    DatabasePopulator m_dbPopulator;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        BeanUtils.assertAutowiring(this);
+    }
+
+    @Before
+    public void setUp() {
+        m_dbPopulator.populateDatabase();
+
+        // several events share a time, severity, node, address, service and
+        // poller so that every sort style has ties to break by event ID
+        final Date now = new Date();
+        final Date earlier = new Date(now.getTime() - 60000);
+        final OnmsServiceType icmp = m_dbPopulator.getServiceTypeDao().findByName("ICMP");
+        final OnmsServiceType http = m_dbPopulator.getServiceTypeDao().findByName("HTTP");
+
+        addEvent(now, 4, m_dbPopulator.getNode1(), "192.168.1.1", icmp);
+        addEvent(now, 4, m_dbPopulator.getNode1(), "192.168.1.1", icmp);
+        addEvent(earlier, 6, m_dbPopulator.getNode2(), "192.168.2.1", http);
+        addEvent(earlier, 6, m_dbPopulator.getNode2(), null, null);
+        addEvent(now, 2, null, null, null);
+        addEvent(earlier, 4, null, "10.1.1.1", null);
+        addEvent(now, 7, m_dbPopulator.getNode1(), "192.168.1.2", http);
+    }
+
+    private void addEvent(final Date time, final int severity, final OnmsNode node, final String ipAddr, final OnmsServiceType service) {
+        final OnmsEvent event = new OnmsEvent();
+        event.setDistPoller(m_dbPopulator.getDistPollerDao().load("localhost"));
+        event.setEventUei("uei.opennms.org/test");
+        event.setEventTime(time);
+        event.setEventSource("test");
+        event.setEventCreateTime(time);
+        event.setEventSeverity(severity);
+        event.setEventLog("Y");
+        event.setEventDisplay("Y");
+        event.setNode(node);
+        event.setIpAddr(ipAddr == null ? null : InetAddressUtils.addr(ipAddr));
+        event.setServiceType(service);
+        m_dbPopulator.getEventDao().save(event);
+        m_dbPopulator.getEventDao().flush();
+    }
+
+    @Test
+    public void testKeysetPagesMatchSingleQuery() throws Exception {
+        final int total = EventFactory.getEventCount(AcknowledgeType.BOTH, NO_FILTERS);
+        assertTrue("expected the test events to be visible, got " + total, total >= 8);
+
+        for (final SortStyle sortStyle : SortStyle.values()) {
+            final List<Integer> expected = getIds(EventFactory.getEventsAfter(sortStyle, AcknowledgeType.BOTH, NO_FILTERS, 0, 0));
+            assertEquals(sortStyle + " should list every event", total, expected.size());
+            assertEquals(sortStyle + " should list every event once", total, new HashSet<Integer>(expected).size());
+
+            for (final int pageSize : new int[] { 1, 2, 3 }) {
+                assertEquals(sortStyle + " in pages of " + pageSize, expected, getIdsInPages(sortStyle, NO_FILTERS, pageSize));
+            }
+        }
+    }
+
+    @Test
+    public void testKeysetPagesWithFilter() throws Exception {
+        final Filter[] filters = new Filter[] { new SeverityFilter(4) };
+        final int total = EventFactory.getEventCount(AcknowledgeType.BOTH, filters);
+        assertEquals(3, total);
+
+        for (final SortStyle sortStyle : SortStyle.values()) {
+            final List<Integer> expected = getIds(EventFactory.getEventsAfter(sortStyle, AcknowledgeType.BOTH, filters, 0, 0));
+            assertEquals(sortStyle.toString(), total, expected.size());
+            assertEquals(sortStyle.toString(), expected, getIdsInPages(sortStyle, filters, 2));
+        }
+    }
+
+    @Test
+    public void testKeysetOrderMatchesOffsetOrder() throws Exception {
+        // without ties to break, keyset and offset paging list events alike
+        for (final SortStyle sortStyle : new SortStyle[] { SortStyle.ID, SortStyle.REVERSE_ID }) {
+            final List<Integer> offset = getIds(EventFactory.getEvents(sortStyle, AcknowledgeType.BOTH, NO_FILTERS));
+            final List<Integer> keyset = getIds(EventFactory.getEventsAfter(sortStyle, AcknowledgeType.BOTH, NO_FILTERS, 0, 0));
+            assertEquals(sortStyle.toString(), offset, keyset);
+        }
+    }
+
+    @Test
+    public void testKeysetAfterMissingEvent() throws Exception {
+        for (final SortStyle sortStyle : SortStyle.values()) {
+            if (sortStyle.getKeysetColumn() != null) {
+                assertEquals(sortStyle.toString(), 0, EventFactory.getEventsAfter(sortStyle, AcknowledgeType.BOTH, NO_FILTERS, Integer.MAX_VALUE, 10).length);
+            }
+        }
+    }
+
+    @Test
+    public void testEstimatedCount() throws Exception {
+        analyze();
+
+        for (final AcknowledgeType ackType : AcknowledgeType.values()) {
+            assertEquals(ackType.toString(), EventFactory.getEventCount(ackType, NO_FILTERS), EventFactory.getEventCount(ackType, NO_FILTERS, true));
+        }
+
+        final int exact = EventFactory.getEventCount(AcknowledgeType.BOTH, NO_FILTERS);
+        final int estimate = EventFactory.getEventCount(AcknowledgeType.BOTH, NO_FILTERS, false);
+        assertTrue("estimate " + estimate + " should be close to " + exact, estimate > 0 && estimate <= exact * 2);
+
+        // the planner estimates at least one row even when nothing matches
+        final int filtered = EventFactory.getEventCount(AcknowledgeType.ACKNOWLEDGED, new Filter[] { new SeverityFilter(4) }, false);
+        assertTrue("filtered estimate " + filtered + " should not exceed the total", filtered >= 0 && filtered <= estimate);
+    }
+
+    private static void analyze() throws Exception {
+        final Connection conn = DataSourceFactory.getInstance().getConnection();
+        try {
+            final Statement stmt = conn.createStatement();
+            try {
+                stmt.execute("ANALYZE events");
+            } finally {
+                stmt.close();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static List<Integer> getIdsInPages(final SortStyle sortStyle, final Filter[] filters, final int pageSize) throws Exception {
+        final List<Integer> ids = new ArrayList<Integer>();
+        final Set<Integer> seen = new HashSet<Integer>();
+        int after = 0;
+        while (true) {
+            final Event[] page = EventFactory.getEventsAfter(sortStyle, AcknowledgeType.BOTH, filters, after, pageSize);
+            assertTrue(sortStyle + " returned more than a page", page.length <= pageSize);
+            if (page.length == 0) {
+                return ids;
+            }
+            for (final Event event : page) {
+                assertTrue(sortStyle + " returned event " + event.getId() + " twice", seen.add(event.getId()));
+                ids.add(event.getId());
+            }
+            after = page[page.length - 1].getId();
+        }
+    }
+
+    private static List<Integer> getIds(final Event[] events) {
+        final List<Integer> ids = new ArrayList<Integer>(events.length);
+        for (final Event event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+}
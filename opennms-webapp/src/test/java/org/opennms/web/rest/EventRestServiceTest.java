@@ -28,8 +28,13 @@
 
 package org.opennms.web.rest;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.opennms.core.test.MockLogAppender;
@@ -88,4 +93,30 @@ public class EventRestServiceTest extends AbstractSpringJerseyRestTestCase {
         xml = sendRequest(GET, "/events/between", parseParamData("end=2010-01-01T01:00:00Z"), 200);
         assertTrue(xml.contains("totalCount=\"0\""));
     }
+
+    @Test
+    public void testAfterId() throws Exception {
+        String xml = sendRequest(GET, "/events", parseParamData("limit=1"), 200);
+        final String total = getTotalCount(xml);
+        final Matcher m = Pattern.compile("<event [^>]* id=\"(\\d+)\"").matcher(xml);
+        assertTrue(m.find());
+        final String firstId = m.group(1);
+
+        // the total is over all events, not just the ones after the first
+        xml = sendRequest(GET, "/events", parseParamData("limit=100&afterId=" + firstId + "&totalCount=exact"), 200);
+        assertEquals(total, getTotalCount(xml));
+        assertFalse(xml.contains(" id=\"" + firstId + "\""));
+
+        // the test database has no planner statistics, so the estimate is an exact count
+        xml = sendRequest(GET, "/events", parseParamData("limit=100&afterId=" + firstId), 200);
+        assertEquals(total, getTotalCount(xml));
+
+        sendRequest(GET, "/events", parseParamData("afterId=" + firstId + "&offset=10"), 400);
+    }
+
+    private static String getTotalCount(final String xml) {
+        final Matcher m = Pattern.compile("totalCount=\"(-?\\d+)\"").matcher(xml);
+        assertTrue(m.find());
+        return m.group(1);
+    }
 }
@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -72,6 +73,7 @@ import org.opennms.netmgt.config.datacollection.StorageStrategy;
 import org.opennms.netmgt.dao.api.NodeDao;
 import org.opennms.netmgt.model.OnmsNode;
 import org.opennms.netmgt.model.RrdRepository;
+import org.opennms.protocols.xml.config.CompiledXPath;
 import org.opennms.protocols.xml.config.Content;
 import org.opennms.protocols.xml.config.Header;
 import org.opennms.protocols.xml.config.Parameter;
@@ -98,6 +100,14 @@ public abstract class AbstractXmlCollectionHandler implements XmlCollectionHandl
 	
 	private static final Logger LOG = LoggerFactory.getLogger(AbstractXmlCollectionHandler.class);
 
+    /** XPath objects are not thread safe, each collector thread reuses its own. */
+    private static final ThreadLocal<XPath> s_xpath = new ThreadLocal<XPath>() {
+        @Override
+        protected XPath initialValue() {
+            return XPathFactory.newInstance().newXPath();
+        }
+    };
+
 
     /** The Service Name associated with this Collection Handler. */
     private String m_serviceName;
@@ -177,19 +187,19 @@ public abstract class AbstractXmlCollectionHandler implements XmlCollectionHandl
      * @throws ParseException the parse exception
      */
     protected void fillCollectionSet(CollectionAgent agent, XmlCollectionSet collectionSet, XmlSource source, Document doc) throws XPathExpressionException, ParseException {
-        XPath xpath = XPathFactory.newInstance().newXPath();
+        XPath xpath = s_xpath.get();
         for (XmlGroup group : source.getXmlGroups()) {
             LOG.debug("fillCollectionSet: getting resources for XML group {} using XPATH {}", group.getName(), group.getResourceXpath());
             Date timestamp = getTimeStamp(doc, xpath, group);
-            NodeList resourceList = (NodeList) xpath.evaluate(group.getResourceXpath(), doc, XPathConstants.NODESET);
+            NodeList resourceList = (NodeList) group.getCompiledResourceXpath().evaluate(doc, XPathConstants.NODESET);
             for (int j = 0; j < resourceList.getLength(); j++) {
                 Node resource = resourceList.item(j);
-                String resourceName = getResourceName(xpath, group, resource);
+                String resourceName = getResourceName(group, resource);
                 LOG.debug("fillCollectionSet: processing XML resource {}", resourceName);
                 XmlCollectionResource collectionResource = getCollectionResource(agent, resourceName, group.getResourceType(), timestamp);
                 AttributeGroupType attribGroupType = new AttributeGroupType(group.getName(), group.getIfType());
                 for (XmlObject object : group.getXmlObjects()) {
-                    String value = (String) xpath.evaluate(object.getXpath(), resource, XPathConstants.STRING);
+                    String value = (String) object.getCompiledXpath().evaluate(resource, XPathConstants.STRING);
                     XmlCollectionAttributeType attribType = new XmlCollectionAttributeType(object, attribGroupType);
                     collectionResource.setAttributeValue(attribType, value);
                 }
@@ -199,22 +209,87 @@ public abstract class AbstractXmlCollectionHandler implements XmlCollectionHandl
         }
     }
 
+    /**
+     * Fill collection set from an XML stream.
+     * <p>When all the groups of the source have the "repeated element plus child values" shape supported
+     * by {@link XmlStreamingParser}, the document is processed in a single pass without building a DOM,
+     * so big documents can be processed in bounded memory. Otherwise, the document is parsed into a DOM and
+     * the XPath expressions are evaluated as usual.</p>
+     *
+     * @param agent the agent
+     * @param collectionSet the collection set
+     * @param source the source
+     * @param is the input stream with the XML document
+     * @throws Exception the exception
+     */
+    protected void fillCollectionSet(final CollectionAgent agent, final XmlCollectionSet collectionSet, final XmlSource source, final InputStream is) throws Exception {
+        final XmlStreamingParser parser = XmlStreamingParser.forSource(source);
+        if (parser == null) {
+            LOG.debug("fillCollectionSet: using DOM parser for source {}", source.getUrl());
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setIgnoringComments(true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            fillCollectionSet(agent, collectionSet, source, builder.parse(is));
+            return;
+        }
+        LOG.debug("fillCollectionSet: using streaming parser for source {}", source.getUrl());
+        final Map<XmlGroup, List<XmlCollectionResource>> resourcesByGroup = new HashMap<XmlGroup, List<XmlCollectionResource>>();
+        parser.parse(is, new XmlStreamingParser.ResourceHandler() {
+            @Override
+            public void resourceFound(XmlGroup group, String resourceName, Map<XmlObject, String> values) {
+                LOG.debug("fillCollectionSet: processing XML resource {}", resourceName);
+                XmlCollectionResource collectionResource = getCollectionResource(agent, resourceName, group.getResourceType(), null);
+                AttributeGroupType attribGroupType = new AttributeGroupType(group.getName(), group.getIfType());
+                for (Map.Entry<XmlObject, String> entry : values.entrySet()) {
+                    XmlCollectionAttributeType attribType = new XmlCollectionAttributeType(entry.getKey(), attribGroupType);
+                    collectionResource.setAttributeValue(attribType, entry.getValue());
+                }
+                processXmlResource(collectionResource, attribGroupType);
+                collectionSet.getCollectionResources().add(collectionResource);
+                List<XmlCollectionResource> resources = resourcesByGroup.get(group);
+                if (resources == null) {
+                    resources = new ArrayList<XmlCollectionResource>();
+                    resourcesByGroup.put(group, resources);
+                }
+                resources.add(collectionResource);
+            }
+        });
+        // The timestamp can appear after the resources (i.e. on the 3GPP file footer).
+        for (Map.Entry<XmlGroup, List<XmlCollectionResource>> entry : resourcesByGroup.entrySet()) {
+            XmlGroup group = entry.getKey();
+            if (group.getTimestampXpath() == null) {
+                continue;
+            }
+            String value = parser.getTimestampValue(group);
+            if (value == null) {
+                LOG.warn("fillCollectionSet: can't find the custom timestamp using XPATH {}",  group.getTimestampXpath());
+                continue;
+            }
+            Date timestamp = getTimeStamp(group, value);
+            if (timestamp != null) {
+                LOG.debug("fillCollectionSet: the date that will be used when updating the RRDs is {}", timestamp);
+                for (XmlCollectionResource resource : entry.getValue()) {
+                    resource.setTimeKeeper(new ConstantTimeKeeper(timestamp));
+                }
+            }
+        }
+    }
+
     /**
      * Gets the resource name.
      *
-     * @param xpath the Xpath
      * @param group the group
      * @param resource the resource
      * @return the resource name
      * @throws XPathExpressionException the x path expression exception
      */
-    private String getResourceName(XPath xpath, XmlGroup group, Node resource) throws XPathExpressionException {
+    private String getResourceName(XmlGroup group, Node resource) throws XPathExpressionException {
         // Processing multiple-key resource name.
         if (group.hasMultipleResourceKey()) {
             List<String> keys = new ArrayList<String>();
-            for (String key : group.getXmlResourceKey().getKeyXpathList()) {
+            for (CompiledXPath key : group.getXmlResourceKey().getCompiledKeyXpathList()) {
                 LOG.debug("getResourceName: getting key for resource's name using {}", key);
-                Node keyNode = (Node) xpath.evaluate(key, resource, XPathConstants.NODE);
+                Node keyNode = (Node) key.evaluate(resource, XPathConstants.NODE);
                 keys.add(keyNode.getNodeValue() == null ? keyNode.getTextContent() : keyNode.getNodeValue());
             }
             return StringUtils.join(keys, "_");
@@ -225,7 +300,7 @@ public abstract class AbstractXmlCollectionHandler implements XmlCollectionHandl
         }
         // Processing single-key resource name.
         LOG.debug("getResourceName: getting key for resource's name using {}", group.getKeyXpath());
-        Node keyNode = (Node) xpath.evaluate(group.getKeyXpath(), resource, XPathConstants.NODE);
+        Node keyNode = (Node) group.getCompiledKeyXpath().evaluate(resource, XPathConstants.NODE);
         return keyNode.getNodeValue() == null ? keyNode.getTextContent() : keyNode.getNodeValue();
     }
 
@@ -263,6 +338,9 @@ public abstract class AbstractXmlCollectionHandler implements XmlCollectionHandl
 
     /**
      * Gets the time stamp.
+     * <p>This is the method called while filling the collection set from a DOM document;
+     * by default it delegates to {@link #getTimeStamp(Document, XmlGroup)}, which uses the precompiled
+     * timestamp XPath. Streamed documents use {@link #getTimeStamp(XmlGroup, String)} instead.</p>
      * 
      * @param doc the doc
      * @param xpath the xpath
@@ -271,18 +349,54 @@ public abstract class AbstractXmlCollectionHandler implements XmlCollectionHandl
      * @throws XPathExpressionException the x path expression exception
      */
     protected Date getTimeStamp(Document doc, XPath xpath, XmlGroup group) throws XPathExpressionException {
+        return getTimeStamp(doc, group);
+    }
+
+    /**
+     * Gets the time stamp.
+     * 
+     * @param doc the doc
+     * @param group the group
+     * @return the time stamp
+     * @throws XPathExpressionException the x path expression exception
+     */
+    protected Date getTimeStamp(Document doc, XmlGroup group) throws XPathExpressionException {
         if (group.getTimestampXpath() == null) {
             return null;
         }
-        String pattern = group.getTimestampFormat() == null ? "yyyy-MM-dd HH:mm:ss" : group.getTimestampFormat();
-        LOG.debug("getTimeStamp: retrieving custom timestamp to be used when updating RRDs using XPATH {} and pattern {}", group.getTimestampXpath(), pattern);
-        Node tsNode = (Node) xpath.evaluate(group.getTimestampXpath(), doc, XPathConstants.NODE);
+        LOG.debug("getTimeStamp: retrieving custom timestamp to be used when updating RRDs using XPATH {}", group.getTimestampXpath());
+        Node tsNode = (Node) group.getCompiledTimestampXpath().evaluate(doc, XPathConstants.NODE);
         if (tsNode == null) {
             LOG.warn("getTimeStamp: can't find the custom timestamp using XPATH {}",  group.getTimestampXpath());
             return null;
         }
-        Date date = null;
         String value = tsNode.getNodeValue() == null ? tsNode.getTextContent() : tsNode.getNodeValue();
+        return parseTimeStamp(group, value);
+    }
+
+    /**
+     * Gets the time stamp from the value found by the streaming parser.
+     * <p>This is the method called while filling the collection set from a streamed document,
+     * by default it just parses the value.</p>
+     *
+     * @param group the group
+     * @param value the time stamp value selected by the timestamp XPath
+     * @return the time stamp, or null if the value can't be parsed
+     */
+    protected Date getTimeStamp(XmlGroup group, String value) {
+        return parseTimeStamp(group, value);
+    }
+
+    /**
+     * Parses the time stamp.
+     *
+     * @param group the group
+     * @param value the time stamp value
+     * @return the time stamp, or null if the value can't be parsed
+     */
+    protected Date parseTimeStamp(XmlGroup group, String value) {
+        String pattern = group.getTimestampFormat() == null ? "yyyy-MM-dd HH:mm:ss" : group.getTimestampFormat();
+        Date date = null;
         try {
             DateTimeFormatter dtf = DateTimeFormat.forPattern(pattern);
             DateTime dateTime = dtf.parseDateTime(value);
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.protocols.xml.collector;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.opennms.netmgt.collectd.CollectionAgent;
+import org.opennms.netmgt.collectd.CollectionException;
+import org.opennms.netmgt.collectd.ServiceCollector;
+import org.opennms.netmgt.config.collector.AttributeGroupType;
+import org.opennms.protocols.xml.config.Request;
+import org.opennms.protocols.xml.config.XmlDataCollection;
+import org.opennms.protocols.xml.config.XmlSource;
+
+/**
+ * The streaming implementation of the interface XmlCollectionHandler based on AbstractXmlCollectionHandler.
+ * <p>The documents are processed with {@link XmlStreamingParser} when all the groups of a source are supported
+ * by it, so big documents can be collected without building a DOM. Sources with other XPath expressions are
+ * processed like {@link DefaultXmlCollectionHandler} does.</p>
+ * <p>The request parameters <code>pre-parse-html</code> and <code>xslt-source-file</code> are not supported
+ * by this handler.</p>
+ */
+public class StreamingXmlCollectionHandler extends AbstractXmlCollectionHandler {
+
+    /* (non-Javadoc)
+     * @see org.opennms.protocols.xml.collector.XmlCollectionHandler#collect(org.opennms.netmgt.collectd.CollectionAgent, org.opennms.protocols.xml.config.XmlDataCollection, java.util.Map)
+     */
+    @Override
+    public XmlCollectionSet collect(CollectionAgent agent, XmlDataCollection collection, Map<String, Object> parameters) throws CollectionException {
+        XmlCollectionSet collectionSet = new XmlCollectionSet(agent);
+        collectionSet.setCollectionTimestamp(new Date());
+        collectionSet.setStatus(ServiceCollector.COLLECTION_UNKNOWN);
+        try {
+            for (XmlSource source : collection.getXmlSources()) {
+                String urlStr = parseUrl(source.getUrl(), agent, collection.getXmlRrd().getStep());
+                Request request = parseRequest(source.getRequest(), agent);
+                URL url = UrlFactory.getUrl(urlStr, request);
+                URLConnection c = url.openConnection();
+                InputStream is = null;
+                try {
+                    is = c.getInputStream();
+                    fillCollectionSet(agent, collectionSet, source, is);
+                } finally {
+                    IOUtils.closeQuietly(is);
+                    UrlFactory.disconnect(c);
+                }
+            }
+            collectionSet.setStatus(ServiceCollector.COLLECTION_SUCCEEDED);
+            return collectionSet;
+        } catch (Exception e) {
+            collectionSet.setStatus(ServiceCollector.COLLECTION_FAILED);
+            throw new CollectionException(e.getMessage(), e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.opennms.protocols.xml.collector.AbstractXmlCollectionHandler#processXmlResource(org.opennms.protocols.xml.collector.XmlCollectionResource, org.opennms.netmgt.config.collector.AttributeGroupType)
+     */
+    @Override
+    protected void processXmlResource(XmlCollectionResource collectionResource, AttributeGroupType attribGroupType) {}
+
+}
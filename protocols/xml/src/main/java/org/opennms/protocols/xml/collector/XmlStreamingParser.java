@@ -0,0 +1,620 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.protocols.xml.collector;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang.StringUtils;
+import org.opennms.protocols.xml.config.XmlGroup;
+import org.opennms.protocols.xml.config.XmlObject;
+import org.opennms.protocols.xml.config.XmlSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class XmlStreamingParser.
+ * <p>StAX based alternative to the DOM/XPath evaluation performed by {@link AbstractXmlCollectionHandler},
+ * which processes a document in a single pass and in bounded memory.</p>
+ * <p>Only the common "repeated element plus child values" group shape is supported:</p>
+ * <ul>
+ * <li>The resource XPath and the timestamp XPath must be absolute location paths made of element
+ * names, optionally followed by a single attribute equality predicate, like
+ * <code>/measCollecFile/measData/measInfo[@measInfoId='ga|msg']/measValue</code>. The timestamp
+ * XPath can end with an attribute step, like <code>/measCollecFile/fileFooter/measCollec/@endTime</code>.</li>
+ * <li>The key XPaths and the object XPaths must be relative paths with the same kind of steps,
+ * optionally ending with an attribute step, like <code>@measObjLdn</code>, <code>suspect</code> or
+ * <code>r[@p=1]</code>.</li>
+ * </ul>
+ * <p>Use {@link #forSource(XmlSource)} to check if a source can be streamed; when it can't, the caller
+ * must fall back to the DOM implementation.</p>
+ */
+public class XmlStreamingParser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(XmlStreamingParser.class);
+
+    /** The pattern for a supported step (an element name with an optional attribute equality predicate). */
+    private static final Pattern STEP_PATTERN = Pattern.compile("^([A-Za-z_][\\w.:-]*)(?:\\[\\s*@([A-Za-z_][\\w.:-]*)\\s*=\\s*(?:'([^']*)'|\"([^\"]*)\"|([\\w.+-]+))\\s*\\])?$");
+
+    /** The pattern for a supported attribute step. */
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("^@([A-Za-z_][\\w.:-]*)$");
+
+    /** The StAX factory. */
+    private static final XMLInputFactory FACTORY = createInputFactory();
+
+    /**
+     * The Interface ResourceHandler.
+     * <p>Receives the resources found while streaming a document.</p>
+     */
+    public interface ResourceHandler {
+
+        /**
+         * Called when the end of a resource element has been reached.
+         *
+         * @param group the XML group
+         * @param resourceName the resource name
+         * @param values the object values (a missing object is mapped to an empty string)
+         */
+        void resourceFound(XmlGroup group, String resourceName, Map<XmlObject, String> values);
+    }
+
+    /**
+     * The Class Step.
+     */
+    static final class Step {
+
+        /** The element name. */
+        final String m_name;
+
+        /** The predicate attribute name (can be null). */
+        final String m_attribute;
+
+        /** The predicate attribute value (can be null). */
+        final String m_value;
+
+        /** The predicate value is numeric, so comparison follows the XPath number rules. */
+        final boolean m_numeric;
+
+        Step(String name, String attribute, String value, boolean numeric) {
+            m_name = name;
+            m_attribute = attribute;
+            m_value = value;
+            m_numeric = numeric;
+        }
+
+        boolean matches(Element element) {
+            if (!m_name.equals(element.m_name)) {
+                return false;
+            }
+            if (m_attribute == null) {
+                return true;
+            }
+            String value = element.m_attributes.get(m_attribute);
+            if (value == null) {
+                return false;
+            }
+            if (m_numeric) {
+                try {
+                    return Double.parseDouble(value.trim()) == Double.parseDouble(m_value);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            return m_value.equals(value);
+        }
+    }
+
+    /**
+     * The Class Path.
+     * <p>A list of element steps, optionally followed by an attribute.</p>
+     */
+    static final class Path {
+
+        /** The element steps. */
+        final Step[] m_steps;
+
+        /** The trailing attribute name (can be null). */
+        final String m_attribute;
+
+        Path(Step[] steps, String attribute) {
+            m_steps = steps;
+            m_attribute = attribute;
+        }
+
+        /**
+         * Checks if the element at the given depth is selected by the element steps of this path.
+         *
+         * @param stack the element stack
+         * @param base the depth of the context element (-1 for the document)
+         * @return true, if successful
+         */
+        boolean matches(List<Element> stack, int base) {
+            if (stack.size() - 1 - base != m_steps.length) {
+                return false;
+            }
+            for (int i = 0; i < m_steps.length; i++) {
+                if (!m_steps[i].matches(stack.get(base + 1 + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The Class Element.
+     */
+    static final class Element {
+
+        /** The element name. */
+        final String m_name;
+
+        /** The element attributes. */
+        final Map<String, String> m_attributes;
+
+        Element(XMLStreamReader reader) {
+            m_name = reader.getLocalName();
+            int count = reader.getAttributeCount();
+            if (count == 0) {
+                m_attributes = Collections.emptyMap();
+            } else {
+                m_attributes = new HashMap<String, String>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    m_attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * The Class Target.
+     * <p>A value to be extracted (a key, an object or a timestamp) while streaming.</p>
+     */
+    static final class Target {
+
+        /** The path. */
+        final Path m_path;
+
+        /** The extracted value (null if not found yet). */
+        String m_value;
+
+        /** The text buffer (not null while collecting the text content of an element). */
+        StringBuilder m_text;
+
+        /** The depth of the element whose text content is being collected. */
+        int m_textDepth;
+
+        Target(Path path) {
+            m_path = path;
+        }
+
+        void reset() {
+            m_value = null;
+            m_text = null;
+        }
+    }
+
+    /**
+     * The Class GroupState.
+     */
+    final class GroupState {
+
+        /** The XML group. */
+        final XmlGroup m_group;
+
+        /** The resource path. */
+        final Path m_resourcePath;
+
+        /** The key targets (empty for node level resources). */
+        final List<Target> m_keys = new ArrayList<Target>();
+
+        /** The object targets. */
+        final Map<XmlObject, Target> m_objects = new LinkedHashMap<XmlObject, Target>();
+
+        /** The timestamp target (can be null). */
+        final Target m_timestamp;
+
+        /** The depth of the current resource element (-1 when outside of a resource). */
+        int m_resourceDepth = -1;
+
+        GroupState(XmlGroup group) {
+            m_group = group;
+            m_resourcePath = parsePath(group.getResourceXpath(), true);
+            m_timestamp = group.getTimestampXpath() == null ? null : createTarget(group.getTimestampXpath(), true);
+            if (group.hasMultipleResourceKey()) {
+                for (String key : group.getXmlResourceKey().getKeyXpathList()) {
+                    m_keys.add(createTarget(key, false));
+                }
+            } else if (group.getKeyXpath() != null) {
+                m_keys.add(createTarget(group.getKeyXpath(), false));
+            }
+            for (XmlObject object : group.getXmlObjects()) {
+                m_objects.put(object, createTarget(object.getXpath(), false));
+            }
+        }
+
+        boolean isStreamable() {
+            if (m_resourcePath == null || m_resourcePath.m_attribute != null || m_resourcePath.m_steps.length == 0) {
+                return false;
+            }
+            if (m_timestamp != null && m_timestamp.m_path == null) {
+                return false;
+            }
+            for (Target key : m_keys) {
+                if (key.m_path == null) {
+                    return false;
+                }
+            }
+            for (Target object : m_objects.values()) {
+                if (object.m_path == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The group states. */
+    private final List<GroupState> m_groups = new ArrayList<GroupState>();
+
+    /**
+     * Instantiates a new XML streaming parser.
+     *
+     * @param source the XML source
+     */
+    private XmlStreamingParser(XmlSource source) {
+        for (XmlGroup group : source.getXmlGroups()) {
+            m_groups.add(new GroupState(group));
+        }
+    }
+
+    /**
+     * Gets a streaming parser for a given XML source.
+     *
+     * @param source the XML source
+     * @return the streaming parser, or null if at least one of the groups can't be evaluated in a single pass
+     */
+    public static XmlStreamingParser forSource(XmlSource source) {
+        XmlStreamingParser parser = new XmlStreamingParser(source);
+        for (GroupState state : parser.m_groups) {
+            if (!state.isStreamable()) {
+                LOG.debug("forSource: the XML group {} can't be processed in streaming mode", state.m_group.getName());
+                return null;
+            }
+        }
+        return parser;
+    }
+
+    /**
+     * Parses the XML document.
+     * <p>The parser holds per-document state, so it must not be shared between threads.</p>
+     *
+     * @param is the input stream
+     * @param handler the resource handler
+     * @throws XMLStreamException the XML stream exception
+     */
+    public void parse(InputStream is, ResourceHandler handler) throws XMLStreamException {
+        for (GroupState state : m_groups) {
+            state.m_resourceDepth = -1;
+            if (state.m_timestamp != null) {
+                state.m_timestamp.reset();
+            }
+        }
+        List<Element> stack = new ArrayList<Element>();
+        List<Target> collectingText = new ArrayList<Target>();
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(is);
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    stack.add(new Element(reader));
+                    startElement(stack, collectingText);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!collectingText.isEmpty()) {
+                        String text = reader.getText();
+                        for (Target target : collectingText) {
+                            target.m_text.append(text);
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement(stack, collectingText, handler);
+                    stack.remove(stack.size() - 1);
+                    break;
+                default:
+                    break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Gets the timestamp value found for a given group on the last parsed document.
+     *
+     * @param group the XML group
+     * @return the timestamp value, or null if not found
+     */
+    public String getTimestampValue(XmlGroup group) {
+        for (GroupState state : m_groups) {
+            if (state.m_group == group) {
+                return state.m_timestamp == null ? null : state.m_timestamp.m_value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Process the start of an element.
+     *
+     * @param stack the element stack
+     * @param collectingText the targets collecting text
+     */
+    private void startElement(List<Element> stack, List<Target> collectingText) {
+        int depth = stack.size() - 1;
+        for (GroupState state : m_groups) {
+            if (state.m_timestamp != null && state.m_timestamp.m_value == null && state.m_timestamp.m_text == null) {
+                startTarget(state.m_timestamp, stack, -1, collectingText);
+            }
+            if (state.m_resourceDepth < 0) {
+                if (state.m_resourcePath.matches(stack, -1)) {
+                    state.m_resourceDepth = depth;
+                    for (Target key : state.m_keys) {
+                        key.reset();
+                        startTarget(key, stack, depth, collectingText);
+                    }
+                    for (Target object : state.m_objects.values()) {
+                        object.reset();
+                        startTarget(object, stack, depth, collectingText);
+                    }
+                }
+            } else {
+                for (Target key : state.m_keys) {
+                    startTarget(key, stack, state.m_resourceDepth, collectingText);
+                }
+                for (Target object : state.m_objects.values()) {
+                    startTarget(object, stack, state.m_resourceDepth, collectingText);
+                }
+            }
+        }
+    }
+
+    /**
+     * Start a target if the current element is selected by its path.
+     * <p>Like the XPath string value of a node-set, only the first selected node is taken.</p>
+     *
+     * @param target the target
+     * @param stack the element stack
+     * @param base the depth of the context element
+     * @param collectingText the targets collecting text
+     */
+    private static void startTarget(Target target, List<Element> stack, int base, List<Target> collectingText) {
+        if (target.m_value != null || target.m_text != null || !target.m_path.matches(stack, base)) {
+            return;
+        }
+        Element element = stack.get(stack.size() - 1);
+        if (target.m_path.m_attribute == null) {
+            target.m_text = new StringBuilder();
+            target.m_textDepth = stack.size() - 1;
+            collectingText.add(target);
+        } else {
+            target.m_value = element.m_attributes.get(target.m_path.m_attribute);
+        }
+    }
+
+    /**
+     * Process the end of an element.
+     *
+     * @param stack the element stack
+     * @param collectingText the targets collecting text
+     * @param handler the resource handler
+     */
+    private void endElement(List<Element> stack, List<Target> collectingText, ResourceHandler handler) {
+        int depth = stack.size() - 1;
+        for (int i = collectingText.size() - 1; i >= 0; i--) {
+            Target target = collectingText.get(i);
+            if (target.m_textDepth == depth) {
+                target.m_value = target.m_text.toString();
+                target.m_text = null;
+                collectingText.remove(i);
+            }
+        }
+        for (GroupState state : m_groups) {
+            if (state.m_resourceDepth == depth) {
+                state.m_resourceDepth = -1;
+                String resourceName = getResourceName(state);
+                if (resourceName == null) {
+                    LOG.warn("endElement: can't find the resource key for XML group {}, ignoring resource", state.m_group.getName());
+                    continue;
+                }
+                Map<XmlObject, String> values = new LinkedHashMap<XmlObject, String>();
+                for (Map.Entry<XmlObject, Target> entry : state.m_objects.entrySet()) {
+                    String value = entry.getValue().m_value;
+                    values.put(entry.getKey(), value == null ? "" : value);
+                }
+                handler.resourceFound(state.m_group, resourceName, values);
+            }
+        }
+    }
+
+    /**
+     * Gets the resource name.
+     *
+     * @param state the group state
+     * @return the resource name, or null if a key was not found
+     */
+    private static String getResourceName(GroupState state) {
+        if (state.m_keys.isEmpty()) {
+            return "node";
+        }
+        List<String> keys = new ArrayList<String>(state.m_keys.size());
+        for (Target key : state.m_keys) {
+            if (key.m_value == null) {
+                return null;
+            }
+            keys.add(key.m_value);
+        }
+        return StringUtils.join(keys, "_");
+    }
+
+    /**
+     * Creates a target.
+     *
+     * @param xpath the XPath
+     * @param absolute true if the XPath must be an absolute location path
+     * @return the target (with a null path if the XPath is not supported)
+     */
+    private static Target createTarget(String xpath, boolean absolute) {
+        return new Target(parsePath(xpath, absolute));
+    }
+
+    /**
+     * Parses a location path.
+     *
+     * @param xpath the XPath
+     * @param absolute true if the XPath must be an absolute location path
+     * @return the path, or null if the XPath is not supported
+     */
+    static Path parsePath(String xpath, boolean absolute) {
+        if (xpath == null) {
+            return null;
+        }
+        String path = xpath.trim();
+        if (absolute != path.startsWith("/")) {
+            return null;
+        }
+        if (absolute) {
+            path = path.substring(1);
+        }
+        List<String> tokens = split(path);
+        if (tokens == null || tokens.isEmpty()) {
+            return null;
+        }
+        List<Step> steps = new ArrayList<Step>();
+        String attribute = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i).trim();
+            Matcher m = ATTRIBUTE_PATTERN.matcher(token);
+            if (m.matches()) {
+                if (i != tokens.size() - 1) {
+                    return null;
+                }
+                attribute = m.group(1);
+                break;
+            }
+            m = STEP_PATTERN.matcher(token);
+            if (!m.matches()) {
+                return null;
+            }
+            if (m.group(2) == null) {
+                steps.add(new Step(m.group(1), null, null, false));
+            } else if (m.group(5) != null) {
+                try {
+                    Double.parseDouble(m.group(5));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                steps.add(new Step(m.group(1), m.group(2), m.group(5), true));
+            } else {
+                steps.add(new Step(m.group(1), m.group(2), m.group(3) != null ? m.group(3) : m.group(4), false));
+            }
+        }
+        return new Path(steps.toArray(new Step[steps.size()]), attribute);
+    }
+
+    /**
+     * Splits a location path on the step separators, ignoring the separators inside predicates.
+     *
+     * @param path the location path
+     * @return the list of steps, or null if the path contains descendant steps or unbalanced predicates
+     */
+    private static List<String> split(String path) {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        int brackets = 0;
+        char quote = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                brackets++;
+            } else if (c == ']') {
+                brackets--;
+            } else if (c == '/' && brackets == 0) {
+                if (current.length() == 0) {
+                    return null;
+                }
+                tokens.add(current.toString());
+                current.setLength(0);
+                continue;
+            }
+            current.append(c);
+        }
+        if (brackets != 0 || quote != 0 || current.length() == 0) {
+            return null;
+        }
+        tokens.add(current.toString());
+        return tokens;
+    }
+
+    /**
+     * Creates the StAX input factory.
+     * <p>Namespace processing is disabled to match the DocumentBuilderFactory settings used by the DOM implementation.</p>
+     *
+     * @return the XML input factory
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
+    }
+}
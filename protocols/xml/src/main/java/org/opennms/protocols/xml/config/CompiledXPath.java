@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.protocols.xml.config;
+
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * The Class CompiledXPath.
+ * <p>Holds an XPath expression taken from the XML collection configuration, compiled only once
+ * per configuration load.</p>
+ * <p>A compiled <code>XPathExpression</code> is neither thread-safe nor reentrant, so each collector
+ * thread gets its own compiled copy.</p>
+ */
+public class CompiledXPath {
+
+    /** The per-thread XPath compiler (creating XPathFactory instances is expensive). */
+    private static final ThreadLocal<XPath> XPATH = new ThreadLocal<XPath>() {
+        @Override
+        protected XPath initialValue() {
+            return XPathFactory.newInstance().newXPath();
+        }
+    };
+
+    /** The XPath expression. */
+    private final String m_expression;
+
+    /** The per-thread compiled expression. */
+    private final ThreadLocal<XPathExpression> m_compiled = new ThreadLocal<XPathExpression>();
+
+    /**
+     * Instantiates a new compiled XPath.
+     *
+     * @param expression the XPath expression
+     */
+    public CompiledXPath(String expression) {
+        m_expression = expression;
+    }
+
+    /**
+     * Gets the XPath expression.
+     *
+     * @return the XPath expression
+     */
+    public String getExpression() {
+        return m_expression;
+    }
+
+    /**
+     * Gets the compiled expression for the current thread.
+     *
+     * @return the compiled expression
+     * @throws XPathExpressionException the XPath expression exception
+     */
+    public XPathExpression getCompiledExpression() throws XPathExpressionException {
+        XPathExpression compiled = m_compiled.get();
+        if (compiled == null) {
+            compiled = XPATH.get().compile(m_expression);
+            m_compiled.set(compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param item the starting context (a DOM node for example)
+     * @param returnType the expected return type
+     * @return the result of the evaluation
+     * @throws XPathExpressionException the XPath expression exception
+     */
+    public Object evaluate(Object item, QName returnType) throws XPathExpressionException {
+        return getCompiledExpression().evaluate(item, returnType);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return m_expression;
+    }
+}
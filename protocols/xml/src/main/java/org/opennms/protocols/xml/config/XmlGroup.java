@@ -91,6 +91,18 @@ public class XmlGroup implements Serializable, Comparable<XmlGroup> {
     @XmlElement(name="resource-key", required=false)
     private XmlResourceKey m_xmlResourceKey;
 
+    /** The compiled resource XPath. */
+    @XmlTransient
+    private transient CompiledXPath m_compiledResourceXpath;
+
+    /** The compiled key XPath. */
+    @XmlTransient
+    private transient CompiledXPath m_compiledKeyXpath;
+
+    /** The compiled timestamp XPath. */
+    @XmlTransient
+    private transient CompiledXPath m_compiledTimestampXpath;
+
     /**
      * Gets the name.
      *
@@ -194,6 +206,19 @@ public class XmlGroup implements Serializable, Comparable<XmlGroup> {
      */
     public void setResourceXpath(String resourceXpath) {
         this.m_resourceXpath = resourceXpath;
+        this.m_compiledResourceXpath = null;
+    }
+
+    /**
+     * Gets the compiled resource XPath.
+     *
+     * @return the compiled resource XPath
+     */
+    public CompiledXPath getCompiledResourceXpath() {
+        if (m_compiledResourceXpath == null) {
+            m_compiledResourceXpath = new CompiledXPath(m_resourceXpath);
+        }
+        return m_compiledResourceXpath;
     }
 
     /**
@@ -212,6 +237,22 @@ public class XmlGroup implements Serializable, Comparable<XmlGroup> {
      */
     public void setKeyXpath(String keyXpath) {
         this.m_keyXpath = keyXpath;
+        this.m_compiledKeyXpath = null;
+    }
+
+    /**
+     * Gets the compiled key XPath.
+     *
+     * @return the compiled key XPath, or null if the key XPath is not defined
+     */
+    public CompiledXPath getCompiledKeyXpath() {
+        if (m_keyXpath == null) {
+            return null;
+        }
+        if (m_compiledKeyXpath == null) {
+            m_compiledKeyXpath = new CompiledXPath(m_keyXpath);
+        }
+        return m_compiledKeyXpath;
     }
 
     /**
@@ -230,6 +271,22 @@ public class XmlGroup implements Serializable, Comparable<XmlGroup> {
      */
     public void setTimestampXpath(String timestampXpath) {
         this.m_timestampXpath = timestampXpath;
+        this.m_compiledTimestampXpath = null;
+    }
+
+    /**
+     * Gets the compiled timestamp XPath.
+     *
+     * @return the compiled timestamp XPath, or null if the timestamp XPath is not defined
+     */
+    public CompiledXPath getCompiledTimestampXpath() {
+        if (m_timestampXpath == null) {
+            return null;
+        }
+        if (m_compiledTimestampXpath == null) {
+            m_compiledTimestampXpath = new CompiledXPath(m_timestampXpath);
+        }
+        return m_compiledTimestampXpath;
     }
 
     /**
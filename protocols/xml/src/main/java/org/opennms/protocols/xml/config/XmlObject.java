@@ -34,6 +34,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 import org.apache.commons.lang.builder.CompareToBuilder;
 import org.apache.commons.lang.builder.EqualsBuilder;
@@ -62,6 +63,10 @@ public class XmlObject implements Serializable, Comparable<XmlObject> {
     @XmlAttribute(name="xpath", required=true)
     private String m_xpath;
 
+    /** The compiled XPath. */
+    @XmlTransient
+    private transient CompiledXPath m_compiledXpath;
+
     /**
      * Instantiates a new XML object.
      */
@@ -134,6 +139,19 @@ public class XmlObject implements Serializable, Comparable<XmlObject> {
      */
     public void setXpath(String xpath) {
         m_xpath = xpath;
+        m_compiledXpath = null;
+    }
+
+    /**
+     * Gets the compiled XPath.
+     *
+     * @return the compiled XPath
+     */
+    public CompiledXPath getCompiledXpath() {
+        if (m_compiledXpath == null) {
+            m_compiledXpath = new CompiledXPath(m_xpath);
+        }
+        return m_compiledXpath;
     }
 
     /* (non-Javadoc)
@@ -36,6 +36,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 import org.apache.commons.lang.builder.CompareToBuilder;
 import org.apache.commons.lang.builder.EqualsBuilder;
@@ -57,6 +58,10 @@ public class XmlResourceKey implements Serializable, Comparable<XmlResourceKey>
     @XmlElement(name="key-xpath", required=true)
     private List<String> m_keyXpathList = new ArrayList<String>();
 
+    /** The compiled key-path list. */
+    @XmlTransient
+    private transient List<CompiledXPath> m_compiledKeyXpathList;
+
     /**
      * Instantiates a new XML object.
      */
@@ -80,6 +85,7 @@ public class XmlResourceKey implements Serializable, Comparable<XmlResourceKey>
      */
     public void setKeyXpathList(List<String> keyXpathList) {
         this.m_keyXpathList = keyXpathList;
+        this.m_compiledKeyXpathList = null;
     }
 
     /**
@@ -89,6 +95,7 @@ public class XmlResourceKey implements Serializable, Comparable<XmlResourceKey>
      */
     public void addKeyXpath(String keyXpath) {
         m_keyXpathList.add(keyXpath);
+        m_compiledKeyXpathList = null;
     }
 
     /**
@@ -98,6 +105,23 @@ public class XmlResourceKey implements Serializable, Comparable<XmlResourceKey>
      */
     public void removeKeyXpath(String keyXpath) {
         m_keyXpathList.remove(keyXpath);
+        m_compiledKeyXpathList = null;
+    }
+
+    /**
+     * Gets the compiled key XPath list.
+     *
+     * @return the compiled key XPath list
+     */
+    public List<CompiledXPath> getCompiledKeyXpathList() {
+        if (m_compiledKeyXpathList == null) {
+            List<CompiledXPath> compiled = new ArrayList<CompiledXPath>(m_keyXpathList.size());
+            for (String keyXpath : m_keyXpathList) {
+                compiled.add(new CompiledXPath(keyXpath));
+            }
+            m_compiledKeyXpathList = compiled;
+        }
+        return m_compiledKeyXpathList;
     }
 
     /* (non-Javadoc)
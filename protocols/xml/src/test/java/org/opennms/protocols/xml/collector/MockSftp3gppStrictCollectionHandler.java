@@ -90,7 +90,19 @@ public class MockSftp3gppStrictCollectionHandler extends Sftp3gppXmlCollectionHa
      */
     @Override
     protected Date getTimeStamp(Document doc, XPath xpath, XmlGroup group) throws XPathExpressionException {
-        long ts = super.getTimeStamp(doc, xpath, group).getTime();
+        return shift(super.getTimeStamp(doc, xpath, group));
+    }
+
+    /* (non-Javadoc)
+     * @see org.opennms.protocols.xml.collector.AbstractXmlCollectionHandler#getTimeStamp(org.opennms.protocols.xml.config.XmlGroup, java.lang.String)
+     */
+    @Override
+    protected Date getTimeStamp(XmlGroup group, String value) {
+        return shift(super.getTimeStamp(group, value));
+    }
+
+    private static Date shift(Date date) {
+        long ts = date.getTime();
         long offset = System.currentTimeMillis() - ts;
         return new Date(ts + offset + 900000);
     }
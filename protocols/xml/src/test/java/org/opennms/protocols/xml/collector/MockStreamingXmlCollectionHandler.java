@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.protocols.xml.collector;
+
+import java.io.File;
+
+import org.opennms.netmgt.collectd.CollectionAgent;
+import org.opennms.protocols.xml.config.XmlResourceUtils;
+
+/**
+ * The Mock Class for StreamingXmlCollectionHandler.
+ * <p>The sample file provided through MockDocumentBuilder is read using a file URL.</p>
+ */
+public class MockStreamingXmlCollectionHandler extends StreamingXmlCollectionHandler {
+
+    /* (non-Javadoc)
+     * @see org.opennms.protocols.xml.collector.AbstractXmlCollectionHandler#parseUrl(java.lang.String, org.opennms.netmgt.collectd.CollectionAgent, java.lang.Integer)
+     */
+    @Override
+    protected String parseUrl(String unformattedUrl, CollectionAgent agent, Integer collectionStep) {
+        return "file://" + new File(MockDocumentBuilder.m_xmlFileName).getAbsolutePath();
+    }
+
+    /* (non-Javadoc)
+     * @see org.opennms.protocols.xml.collector.AbstractXmlCollectionHandler#getXmlResourceType(org.opennms.netmgt.collectd.CollectionAgent, java.lang.String)
+     */
+    @Override
+    protected XmlResourceType getXmlResourceType(CollectionAgent agent, String resourceType) {
+        return XmlResourceUtils.getXmlResourceType(agent, resourceType);
+    }
+}
@@ -29,6 +29,8 @@
 package org.opennms.protocols.xml.collector;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -41,6 +43,9 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.junit.Assert;
 import org.junit.Test;
+import org.opennms.protocols.xml.config.XmlGroup;
+import org.opennms.protocols.xml.config.XmlObject;
+import org.opennms.protocols.xml.config.XmlSource;
 
 /**
  * The Test class for XML Collector for 3GPP Statistics
@@ -86,6 +91,37 @@ public class XmlCollector3GPPTest extends AbstractXmlCollectorTest {
         Assert.assertEquals(expectedTimestamp, date.getTime());
     }
 
+    /**
+     * Test that the timestamp of a streamed document matches the one found on the DOM document.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testStreamingTimeStamp() throws Exception {
+        XmlSource source = getConfigDao().getDataCollectionByName("3GPP").getXmlSources().get(0);
+        XmlGroup group = source.getXmlGroups().get(0);
+        XmlStreamingParser parser = XmlStreamingParser.forSource(source);
+        InputStream is = new FileInputStream(getXmlSampleFileName());
+        try {
+            parser.parse(is, new XmlStreamingParser.ResourceHandler() {
+                @Override
+                public void resourceFound(XmlGroup g, String resourceName, Map<XmlObject, String> values) {
+                }
+            });
+        } finally {
+            is.close();
+        }
+
+        MockDefaultXmlCollectionHandler handler = new MockDefaultXmlCollectionHandler();
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        Date expected = handler.getTimeStamp(MockDocumentBuilder.getXmlDocument(), xpath, group);
+        Assert.assertEquals(expected, handler.getTimeStamp(group, parser.getTimestampValue(group)));
+
+        MockSftp3gppStrictCollectionHandler strict = new MockSftp3gppStrictCollectionHandler();
+        Date overridden = strict.getTimeStamp(group, parser.getTimestampValue(group));
+        Assert.assertTrue(overridden.getTime() > System.currentTimeMillis());
+    }
+
     /**
      * Test XML collector with Standard handler.
      *
@@ -104,4 +140,23 @@ public class XmlCollector3GPPTest extends AbstractXmlCollectorTest {
         validateJrb(file, dsnames, dsvalues);
     }
 
+    /**
+     * Test XML collector with Streaming handler.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testStreamingXmlCollector() throws Exception {
+        Assert.assertNotNull(XmlStreamingParser.forSource(getConfigDao().getDataCollectionByName("3GPP").getXmlSources().get(0)));
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("collection", "3GPP");
+        parameters.put("handler-class", "org.opennms.protocols.xml.collector.MockStreamingXmlCollectionHandler");
+        executeCollectorTest(parameters, 147);
+        // Test a JRB.
+        File file = new File("target/snmp/1/platformSystemResource/processor_v1_frame0_shelf0_slot4_sub-slot1/platform-system-resource.jrb");
+        String[] dsnames = new String[] { "cpuUtilization", "memoryUtilization" };
+        Double[] dsvalues = new Double[] { 1.0, 18.0 };
+        validateJrb(file, dsnames, dsvalues);
+    }
+
 }
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * This file is part of OpenNMS(R).
+ *
+ * Copyright (C) 2013 The OpenNMS Group, Inc.
+ * OpenNMS(R) is Copyright (C) 1999-2013 The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is a registered trademark of The OpenNMS Group, Inc.
+ *
+ * OpenNMS(R) is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * OpenNMS(R) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenNMS(R).  If not, see:
+ *      http://www.gnu.org/licenses/
+ *
+ * For more information contact:
+ *     OpenNMS(R) Licensing <license@opennms.org>
+ *     http://www.opennms.org/
+ *     http://www.opennms.com/
+ *******************************************************************************/
+
+package org.opennms.protocols.xml.collector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Test Class for XmlStreamingParser.
+ */
+public class XmlStreamingParserTest {
+
+    /**
+     * Test the supported location paths.
+     */
+    @Test
+    public void testSupportedPaths() {
+        XmlStreamingParser.Path path = XmlStreamingParser.parsePath("/measCollecFile/measData/measInfo[@measInfoId='ga|msg']/measValue", true);
+        Assert.assertNotNull(path);
+        Assert.assertEquals(4, path.m_steps.length);
+        Assert.assertEquals("measInfoId", path.m_steps[2].m_attribute);
+        Assert.assertEquals("ga|msg", path.m_steps[2].m_value);
+        Assert.assertNull(path.m_attribute);
+
+        path = XmlStreamingParser.parsePath("/measCollecFile/fileFooter/measCollec/@endTime", true);
+        Assert.assertNotNull(path);
+        Assert.assertEquals(3, path.m_steps.length);
+        Assert.assertEquals("endTime", path.m_attribute);
+
+        path = XmlStreamingParser.parsePath("@measObjLdn", false);
+        Assert.assertNotNull(path);
+        Assert.assertEquals(0, path.m_steps.length);
+        Assert.assertEquals("measObjLdn", path.m_attribute);
+
+        path = XmlStreamingParser.parsePath("r[@p=1]", false);
+        Assert.assertNotNull(path);
+        Assert.assertTrue(path.m_steps[0].m_numeric);
+
+        path = XmlStreamingParser.parsePath("parameter[@key=\"a/b\"]/@value", false);
+        Assert.assertNotNull(path);
+        Assert.assertEquals("a/b", path.m_steps[0].m_value);
+    }
+
+    /**
+     * Test the unsupported location paths.
+     */
+    @Test
+    public void testUnsupportedPaths() {
+        Assert.assertNull(XmlStreamingParser.parsePath("//measValue", true));
+        Assert.assertNull(XmlStreamingParser.parsePath("measValue", true));
+        Assert.assertNull(XmlStreamingParser.parsePath("/measValue", false));
+        Assert.assertNull(XmlStreamingParser.parsePath("/data/value[1]", true));
+        Assert.assertNull(XmlStreamingParser.parsePath("/data/value[@a='1' and @b='2']", true));
+        Assert.assertNull(XmlStreamingParser.parsePath("count(value)", false));
+        Assert.assertNull(XmlStreamingParser.parsePath("@a/value", false));
+        Assert.assertNull(XmlStreamingParser.parsePath("../value", false));
+    }
+}
@@ -78,6 +78,7 @@ import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.Variable;
+import org.snmp4j.transport.AbstractTransportMapping;
 import org.snmp4j.transport.DefaultUdpTransportMapping;
 import org.snmp4j.util.ThreadPool;
 
@@ -677,6 +678,22 @@ public class MockSnmpAgent extends BaseAgent implements Runnable {
         return null;
     }
     
+    /**
+     * <p>setMaxResponseSize</p>
+     *
+     * Limit the size of the messages the agent answers with, to simulate an
+     * agent that truncates GETBULK responses or answers tooBig.
+     *
+     * @param maxResponseSize the maximum message size in bytes
+     */
+    public void setMaxResponseSize(final int maxResponseSize) {
+        for (final TransportMapping transportMapping : transportMappings) {
+            if (transportMapping instanceof AbstractTransportMapping) {
+                ((AbstractTransportMapping)transportMapping).setMaxInboundMessageSize(maxResponseSize);
+            }
+        }
+    }
+
     /**
      * <p>updateValue</p>
      *